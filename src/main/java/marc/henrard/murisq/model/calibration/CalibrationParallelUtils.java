@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.calibration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntToDoubleFunction;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+
+/**
+ * Utilities to compute in parallel the values and the Jacobians used in the calibration objective functions.
+ * <p>
+ * The tasks are submitted to a fork-join pool and the results are collected in the order of the tasks.
+ * When the underlying functions are stateless, the results are identical to the ones of the sequential
+ * computation.
+ *
+ * @author Marc Henrard
+ */
+public class CalibrationParallelUtils {
+
+  /** The shift used in the forward finite difference. Same as the default in Strata's differentiators. */
+  private static final double FD_SHIFT = 1.0E-5;
+
+  // Private constructor
+  private CalibrationParallelUtils() {
+  }
+
+  /**
+   * Computes a set of values in parallel.
+   *
+   * @param nbValues  the number of values
+   * @param value  the function computing the value for a given index
+   * @param pool  the fork-join pool on which the values are computed
+   * @return the values, in the order of the indices
+   */
+  public static DoubleArray values(int nbValues, IntToDoubleFunction value, ForkJoinPool pool) {
+    ArgChecker.notNull(pool, "pool");
+    List<Callable<Double>> tasks = new ArrayList<>(nbValues);
+    for (int i = 0; i < nbValues; i++) {
+      int index = i;
+      tasks.add(() -> value.applyAsDouble(index));
+    }
+    double[] values = new double[nbValues];
+    try {
+      List<Future<Double>> results = pool.invokeAll(tasks);
+      for (int i = 0; i < nbValues; i++) {
+        values[i] = results.get(i).get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw unchecked(e);
+    }
+    return DoubleArray.ofUnsafe(values);
+  }
+
+  /**
+   * Returns the Jacobian of a vector function computed by forward finite difference with the columns computed
+   * in parallel.
+   * <p>
+   * The shift and the formula are the ones of the default {@code VectorFieldFirstOrderDifferentiator};
+   * the results are identical to the ones of the sequential differentiator.
+   *
+   * @param function  the function
+   * @param pool  the fork-join pool on which the function values are computed
+   * @return the Jacobian function
+   */
+  public static Function<DoubleArray, DoubleMatrix> jacobianForward(
+      Function<DoubleArray, DoubleArray> function,
+      ForkJoinPool pool) {
+
+    ArgChecker.notNull(pool, "pool");
+    return x -> {
+      int nbX = x.size();
+      List<Callable<DoubleArray>> tasks = new ArrayList<>(nbX + 1);
+      tasks.add(() -> function.apply(x));
+      for (int j = 0; j < nbX; j++) {
+        DoubleArray xShifted = x.with(j, x.get(j) + FD_SHIFT);
+        tasks.add(() -> function.apply(xShifted));
+      }
+      DoubleArray[] y = new DoubleArray[nbX + 1];
+      try {
+        List<Future<DoubleArray>> results = pool.invokeAll(tasks);
+        for (int j = 0; j <= nbX; j++) {
+          y[j] = results.get(j).get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        throw unchecked(e);
+      }
+      int nbY = y[0].size();
+      double[][] jacobian = new double[nbY][nbX];
+      for (int j = 0; j < nbX; j++) {
+        for (int i = 0; i < nbY; i++) {
+          jacobian[i][j] = (y[j + 1].get(i) - y[0].get(i)) / FD_SHIFT;
+        }
+      }
+      return DoubleMatrix.ofUnsafe(jacobian);
+    };
+  }
+
+  /**
+   * Returns the cause of an execution exception as an unchecked exception.
+   * <p>
+   * Runtime exceptions and errors thrown by the task are propagated unchanged; checked exceptions are wrapped.
+   * Also used by the other parallel implementations, like the Monte Carlo pricers.
+   *
+   * @param e  the execution exception
+   * @return the unchecked exception
+   */
+  public static RuntimeException unchecked(ExecutionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new RuntimeException(cause);
+  }
+
+}
@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.calibration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.opengamma.strata.basics.index.Index;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.collect.timeseries.LocalDateDoubleTimeSeries;
+import com.opengamma.strata.collect.tuple.Pair;
+import com.opengamma.strata.market.curve.Curve;
+import com.opengamma.strata.math.impl.linearalgebra.DecompositionFactory;
+import com.opengamma.strata.math.impl.rootfinding.newton.BaseNewtonVectorRootFinder;
+import com.opengamma.strata.math.impl.rootfinding.newton.BroydenMatrixUpdateFunction;
+import com.opengamma.strata.math.impl.rootfinding.newton.JacobianDirectionFunction;
+import com.opengamma.strata.math.impl.rootfinding.newton.JacobianEstimateInitializationFunction;
+import com.opengamma.strata.math.impl.rootfinding.newton.NewtonRootFinderMatrixUpdateFunction;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+
+/**
+ * Cache of the last calibration results, used to warm-start the next calibration of the same model on
+ * the same instruments.
+ * <p>
+ * The entries are stored by key, typically the model template and the calibrating instruments. Each entry
+ * contains the fingerprint of the market data used in the calibration, the calibrated parameters and an
+ * approximation of the Jacobian at the calibrated parameters. When the fingerprint of the new market data is
+ * identical to the one stored, the calibrated parameters are reused without root-finding. Otherwise, the
+ * root-finding starts from the stored parameters and the stored Jacobian is used as the initial Jacobian.
+ * <p>
+ * The number of entries is bounded; the least recently used entries are evicted first.
+ * The cache can be shared between threads.
+ *
+ * @author Marc Henrard
+ */
+public final class CalibrationWarmStartCache {
+
+  /** The maximal number of entries. */
+  private final int maxSize;
+  /** The entries, in access order. */
+  private final LinkedHashMap<Object, CalibrationWarmStart> entries;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param maxSize  the maximal number of entries
+   * @return the cache
+   */
+  public static CalibrationWarmStartCache of(int maxSize) {
+    return new CalibrationWarmStartCache(maxSize);
+  }
+
+  // Private constructor
+  private CalibrationWarmStartCache(int maxSize) {
+    ArgChecker.isTrue(maxSize > 0, "maximal size must be strictly positive");
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<Object, CalibrationWarmStart>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, CalibrationWarmStart> eldest) {
+        return size() > CalibrationWarmStartCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the fingerprint of the market data used in a calibration.
+   * <p>
+   * The fingerprint contains the valuation date, the parameters of the discounting and forward curves,
+   * sorted by curve name, the time series of fixings, sorted by index name, and the quotes of the calibrating
+   * instruments. The FX rates are not included; the calibrations using the cache are single currency and
+   * do not depend on them.
+   *
+   * @param multicurve  the multi-curve provider
+   * @param quotes  the quotes of the calibrating instruments
+   * @return the fingerprint
+   */
+  public static DoubleArray fingerprint(RatesProvider multicurve, DoubleArray quotes) {
+    ImmutableRatesProvider provider = multicurve.toImmutableRatesProvider();
+    List<Curve> curves = new ArrayList<>(provider.getDiscountCurves().values());
+    curves.addAll(provider.getIndexCurves().values());
+    curves.sort(Comparator.comparing((Curve curve) -> curve.getName().getName()));
+    List<Double> fingerprint = new ArrayList<>();
+    fingerprint.add((double) provider.getValuationDate().toEpochDay());
+    for (Curve curve : curves) {
+      fingerprint.add((double) curve.getParameterCount());
+      for (int i = 0; i < curve.getParameterCount(); i++) {
+        fingerprint.add(curve.getParameter(i));
+      }
+    }
+    List<Map.Entry<Index, LocalDateDoubleTimeSeries>> timeSeries =
+        new ArrayList<>(provider.getTimeSeries().entrySet());
+    timeSeries.sort(Comparator.comparing((Map.Entry<Index, LocalDateDoubleTimeSeries> e) -> e.getKey().getName()));
+    for (Map.Entry<Index, LocalDateDoubleTimeSeries> entry : timeSeries) {
+      fingerprint.add((double) entry.getValue().size());
+      entry.getValue().forEach((date, value) -> {
+        fingerprint.add((double) date.toEpochDay());
+        fingerprint.add(value);
+      });
+    }
+    for (int i = 0; i < quotes.size(); i++) {
+      fingerprint.add(quotes.get(i));
+    }
+    return DoubleArray.copyOf(fingerprint);
+  }
+
+  /**
+   * Returns the entry for a key, if any.
+   * <p>
+   * The entry becomes the most recently used.
+   *
+   * @param key  the key
+   * @return the entry, empty if not present
+   */
+  public synchronized Optional<CalibrationWarmStart> get(Object key) {
+    return Optional.ofNullable(entries.get(key));
+  }
+
+  /**
+   * Stores the entry for a key, replacing the existing one.
+   * <p>
+   * If the cache is full, the least recently used entry is evicted.
+   *
+   * @param key  the key
+   * @param warmStart  the entry
+   */
+  public synchronized void put(Object key, CalibrationWarmStart warmStart) {
+    ArgChecker.notNull(key, "key");
+    ArgChecker.notNull(warmStart, "warm start");
+    entries.put(key, warmStart);
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Removes all the entries.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The result of a calibration stored in the cache.
+   */
+  public static final class CalibrationWarmStart {
+
+    /** The fingerprint of the market data used in the calibration. */
+    private final DoubleArray fingerprint;
+    /** The calibrated parameters. */
+    private final DoubleArray solution;
+    /** The Jacobian at the calibrated parameters, if any. */
+    private final Optional<DoubleMatrix> jacobian;
+
+    /**
+     * Creates an instance.
+     *
+     * @param fingerprint  the fingerprint of the market data used in the calibration
+     * @param solution  the calibrated parameters
+     * @param jacobian  the Jacobian at the calibrated parameters, if any
+     * @return the instance
+     */
+    public static CalibrationWarmStart of(
+        DoubleArray fingerprint,
+        DoubleArray solution,
+        Optional<DoubleMatrix> jacobian) {
+
+      return new CalibrationWarmStart(fingerprint, solution, jacobian);
+    }
+
+    // Private constructor
+    private CalibrationWarmStart(
+        DoubleArray fingerprint,
+        DoubleArray solution,
+        Optional<DoubleMatrix> jacobian) {
+
+      this.fingerprint = ArgChecker.notNull(fingerprint, "fingerprint");
+      this.solution = ArgChecker.notNull(solution, "solution");
+      this.jacobian = ArgChecker.notNull(jacobian, "jacobian");
+    }
+
+    /**
+     * Returns the fingerprint of the market data used in the calibration.
+     *
+     * @return the fingerprint
+     */
+    public DoubleArray getFingerprint() {
+      return fingerprint;
+    }
+
+    /**
+     * Returns the calibrated parameters.
+     *
+     * @return the parameters
+     */
+    public DoubleArray getSolution() {
+      return solution;
+    }
+
+    /**
+     * Returns the Jacobian at the calibrated parameters, if any.
+     *
+     * @return the Jacobian
+     */
+    public Optional<DoubleMatrix> getJacobian() {
+      return jacobian;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Jacobian function seeded with the Jacobian of a previous calibration.
+   * <p>
+   * At the starting point of the root-finding, the seed is returned in place of the computed Jacobian.
+   * In all the other cases the underlying Jacobian is computed.
+   */
+  public static final class SeededJacobian implements Function<DoubleArray, DoubleMatrix> {
+
+    /** The underlying Jacobian function. */
+    private final Function<DoubleArray, DoubleMatrix> jacobian;
+    /** The starting point of the root-finding. */
+    private final DoubleArray start;
+    /** The seed, used at the starting point. */
+    private final Optional<DoubleMatrix> seed;
+
+    /**
+     * Creates an instance.
+     *
+     * @param jacobian  the underlying Jacobian function
+     * @param start  the starting point of the root-finding
+     * @param seed  the seed, used at the starting point
+     */
+    public SeededJacobian(
+        Function<DoubleArray, DoubleMatrix> jacobian,
+        DoubleArray start,
+        Optional<DoubleMatrix> seed) {
+
+      this.jacobian = jacobian;
+      this.start = start;
+      this.seed = seed;
+    }
+
+    @Override
+    public DoubleMatrix apply(DoubleArray x) {
+      return (seed.isPresent() && x.equals(start)) ? seed.get() : jacobian.apply(x);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Broyden root-finder returning, with the root, the last Jacobian of the root-finding.
+   * <p>
+   * The Jacobian is computed at the starting point and then updated by the rank-one Broyden updates. The last
+   * updated Jacobian is returned; it is an approximation of the Jacobian at the root obtained without additional
+   * evaluation and is used as the seed of the next calibration.
+   * The root-finder can be shared between threads; the Jacobian is recorded for each root-finding separately.
+   */
+  public static final class BroydenRootFinderWithJacobian {
+
+    /** The absolute tolerance. */
+    private final double toleranceAbs;
+    /** The relative tolerance. */
+    private final double toleranceRel;
+    /** The maximal number of steps. */
+    private final int stepMax;
+
+    /**
+     * Creates an instance.
+     *
+     * @param toleranceAbs  the absolute tolerance
+     * @param toleranceRel  the relative tolerance
+     * @param stepMax  the maximal number of steps
+     */
+    public BroydenRootFinderWithJacobian(double toleranceAbs, double toleranceRel, int stepMax) {
+      this.toleranceAbs = toleranceAbs;
+      this.toleranceRel = toleranceRel;
+      this.stepMax = stepMax;
+    }
+
+    /**
+     * Finds the root of a function.
+     *
+     * @param function  the function
+     * @param jacobian  the Jacobian function
+     * @param start  the starting point
+     * @return the root and the last Jacobian of the root-finding
+     */
+    public Pair<DoubleArray, DoubleMatrix> findRoot(
+        Function<DoubleArray, DoubleArray> function,
+        Function<DoubleArray, DoubleMatrix> jacobian,
+        DoubleArray start) {
+
+      DoubleMatrix[] last = new DoubleMatrix[1];
+      Function<DoubleArray, DoubleMatrix> jacobianRecorded = x -> {
+        last[0] = jacobian.apply(x);
+        return last[0];
+      };
+      BroydenMatrixUpdateFunction broyden = new BroydenMatrixUpdateFunction();
+      NewtonRootFinderMatrixUpdateFunction update = (jacobianFunction, x, deltaX, deltaY, matrix) -> {
+        last[0] = broyden.getUpdatedMatrix(jacobianFunction, x, deltaX, deltaY, matrix);
+        return last[0];
+      };
+      BaseNewtonVectorRootFinder rootFinder = new BaseNewtonVectorRootFinder(
+          toleranceAbs,
+          toleranceRel,
+          stepMax,
+          new JacobianDirectionFunction(DecompositionFactory.SV_COMMONS),
+          new JacobianEstimateInitializationFunction(),
+          update);
+      DoubleArray root = rootFinder.findRoot(function, jacobianRecorded, start);
+      return Pair.of(root, last[0]);
+    }
+  }
+
+}
@@ -0,0 +1,387 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.calibration;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.io.CharSource;
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.io.CsvFile;
+import com.opengamma.strata.collect.io.CsvOutput;
+import com.opengamma.strata.collect.io.CsvRow;
+import com.opengamma.strata.collect.io.ResourceLocator;
+import com.opengamma.strata.collect.result.Result;
+import com.opengamma.strata.data.MarketData;
+import com.opengamma.strata.loader.csv.QuotesCsvLoader;
+import com.opengamma.strata.market.curve.RatesCurveGroupDefinition;
+import com.opengamma.strata.pricer.curve.RatesCurveCalibrator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.capfloor.ResolvedIborCapFloorTrade;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.model.generic.SingleCurrencyModelTemplate;
+import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorTradePricer;
+
+/**
+ * Historical back-test of the calibration of a single currency model to cap/floor trades.
+ * <p>
+ * For each business day in a date range, the curves are calibrated to the quotes of the day, the cap/floor
+ * trades of the day are created from the volatility quotes and the model is calibrated with
+ * {@link SingleCurrencyModelCapFloorLeastSquarePriceCalibrator}. The calibrated parameters are written
+ * to a CSV file, one row by date, in date order: the row of a date is written as soon as the date and all the
+ * earlier dates of the run are done. The rows of the later dates are kept in memory until then.
+ * <p>
+ * The dates are split in partitions of consecutive dates which are calibrated in parallel on a fork-join pool.
+ * In each partition, the calibration of a date starts from the parameters calibrated on the previous date.
+ * The first date of a partition starts from the parameters of the closest earlier date of the checkpoint, if any.
+ * <p>
+ * The failure of the calibration of one date, for example due to missing quotes, does not stop the back-test.
+ * The failure is returned for that date and the next date starts from the last date successfully calibrated.
+ * <p>
+  * The output file is also the checkpoint of the back-test: the dates already present in the file are not
+ * calibrated again when the back-test is restarted with the same file. The failed dates are not written
+ * in the file and are calibrated again on restart. An incomplete last row, for example due to an interruption
+ * during the write, is removed from the file on restart.
+ *
+ * @author Marc Henrard
+ */
+public final class SingleCurrencyModelCapFloorBacktestRunner {
+
+  /** The header of the date column in the output file. */
+  public static final String HEADER_DATE = "Valuation Date";
+  /** The prefix of the header of the parameter columns in the output file. */
+  public static final String HEADER_PARAMETER = "Parameter ";
+  /** The curve calibrator. */
+  private static final RatesCurveCalibrator CURVE_CALIBRATOR = RatesCurveCalibrator.standard();
+
+  /** The curve group definition, typically loaded with RatesCalibrationCsvLoader2. */
+  private final RatesCurveGroupDefinition curveGroup;
+  /** The quotes file for each date. */
+  private final Function<LocalDate, ResourceLocator> quotesResources;
+  /** The cap/floor trades for each date, with the volatility quotes represented by the premiums. */
+  private final BiFunction<LocalDate, RatesProvider, List<ResolvedIborCapFloorTrade>> trades;
+  /** The model template for each date, from the multi-curve and the parameters of the previous date if any. */
+  private final BiFunction<RatesProvider, Optional<DoubleArray>, SingleCurrencyModelTemplate> templates;
+  /** The cap/floor trade pricer. */
+  private final SingleCurrencyModelCapFloorTradePricer pricer;
+  /** The reference data. */
+  private final ReferenceData refData;
+
+  /**
+   * Creates an instance of the back-test runner.
+   * <p>
+   * The template function is called with the parameters of the last date successfully calibrated, which are
+   * expected to be used as initial guess. For the first date of a partition, they are the parameters of the closest
+   * earlier date in the checkpoint. The parameters are empty when there is no such date.
+   *
+   * @param curveGroup  the curve group definition
+   * @param quotesResources  the function providing the quotes file for each date
+   * @param trades  the function providing the cap/floor trades for each date and multi-curve
+   * @param templates  the function providing the model template for each multi-curve and previous parameters
+   * @param pricer  the cap/floor trade pricer
+   * @param refData  the reference data
+   * @return the instance
+   */
+  public static SingleCurrencyModelCapFloorBacktestRunner of(
+      RatesCurveGroupDefinition curveGroup,
+      Function<LocalDate, ResourceLocator> quotesResources,
+      BiFunction<LocalDate, RatesProvider, List<ResolvedIborCapFloorTrade>> trades,
+      BiFunction<RatesProvider, Optional<DoubleArray>, SingleCurrencyModelTemplate> templates,
+      SingleCurrencyModelCapFloorTradePricer pricer,
+      ReferenceData refData) {
+
+    return new SingleCurrencyModelCapFloorBacktestRunner(
+        curveGroup, quotesResources, trades, templates, pricer, refData);
+  }
+
+  // Private constructor
+  private SingleCurrencyModelCapFloorBacktestRunner(
+      RatesCurveGroupDefinition curveGroup,
+      Function<LocalDate, ResourceLocator> quotesResources,
+      BiFunction<LocalDate, RatesProvider, List<ResolvedIborCapFloorTrade>> trades,
+      BiFunction<RatesProvider, Optional<DoubleArray>, SingleCurrencyModelTemplate> templates,
+      SingleCurrencyModelCapFloorTradePricer pricer,
+      ReferenceData refData) {
+
+    this.curveGroup = ArgChecker.notNull(curveGroup, "curve group");
+    this.quotesResources = ArgChecker.notNull(quotesResources, "quotes resources");
+    this.trades = ArgChecker.notNull(trades, "trades");
+    this.templates = ArgChecker.notNull(templates, "templates");
+    this.pricer = ArgChecker.notNull(pricer, "pricer");
+    this.refData = ArgChecker.notNull(refData, "reference data");
+  }
+
+  /**
+   * Runs the back-test between two dates.
+   * <p>
+   * The dates already in the output file are not calibrated again. The other business days are split
+   * in partitions of consecutive dates. To benefit from the work-stealing of the pool, the number of
+   * partitions should be larger than the parallelism of the pool. Each partition starts from the closest earlier
+   * date in the output file, if any.
+   *
+   * @param startDate  the first date, included
+   * @param endDate  the last date, included
+   * @param calendar  the calendar defining the business days
+   * @param output  the output file, which is also the checkpoint
+   * @param nbPartitions  the number of partitions
+   * @param pool  the fork-join pool on which the partitions are calibrated
+   * @return the calibration results by date, including the ones read from the checkpoint, with a failure
+   *   for each date for which the calibration failed
+   */
+  public ImmutableSortedMap<LocalDate, Result<DoubleArray>> run(
+      LocalDate startDate,
+      LocalDate endDate,
+      HolidayCalendar calendar,
+      Path output,
+      int nbPartitions,
+      ForkJoinPool pool) {
+
+    ArgChecker.inOrderOrEqual(startDate, endDate, "start date", "end date");
+    ArgChecker.notNegativeOrZero(nbPartitions, "number of partitions");
+    ArgChecker.notNull(pool, "pool");
+    removeIncompleteRow(output);
+    boolean newFile = isEmpty(output);
+    ImmutableSortedMap<LocalDate, DoubleArray> checkpoint = checkpoint(output);
+    TreeMap<LocalDate, Result<DoubleArray>> results = new TreeMap<>();
+    for (Map.Entry<LocalDate, DoubleArray> entry : checkpoint.entrySet()) {
+      results.put(entry.getKey(), Result.success(entry.getValue()));
+    }
+    // Dates to calibrate
+    List<LocalDate> dates = new ArrayList<>();
+    for (LocalDate date = calendar.nextOrSame(startDate); !date.isAfter(endDate); date = calendar.next(date)) {
+      if (!results.containsKey(date)) {
+        dates.add(date);
+      }
+    }
+    if (dates.isEmpty()) {
+      return ImmutableSortedMap.copyOf(results);
+    }
+    // Partitions of consecutive dates
+    int nbPartitionsUsed = Math.min(nbPartitions, dates.size());
+    List<Callable<Map<LocalDate, Result<DoubleArray>>>> tasks = new ArrayList<>(nbPartitionsUsed);
+    try (BufferedWriter writer = Files.newBufferedWriter(
+        output, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      CsvWriter csv = new CsvWriter(writer, newFile, dates);
+      for (int looppart = 0; looppart < nbPartitionsUsed; looppart++) {
+        List<LocalDate> partition = dates.subList(
+            looppart * dates.size() / nbPartitionsUsed, (looppart + 1) * dates.size() / nbPartitionsUsed);
+        Optional<DoubleArray> seed = Optional.ofNullable(checkpoint.lowerEntry(partition.get(0)))
+            .map(Map.Entry::getValue);
+        tasks.add(() -> calibratePartition(partition, seed, csv));
+      }
+      List<Future<Map<LocalDate, Result<DoubleArray>>>> partitionResults = pool.invokeAll(tasks);
+      for (Future<Map<LocalDate, Result<DoubleArray>>> partitionResult : partitionResults) {
+        results.putAll(partitionResult.get());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw CalibrationParallelUtils.unchecked(e);
+    }
+    return ImmutableSortedMap.copyOf(results);
+  }
+
+  /**
+   * Calibrates the model for one date.
+   *
+   * @param date  the date
+   * @param previous  the parameters calibrated on the previous date, if any
+   * @return the calibrated parameters
+   */
+  public DoubleArray calibrate(LocalDate date, Optional<DoubleArray> previous) {
+    MarketData marketData = MarketData.of(date, QuotesCsvLoader.load(date, quotesResources.apply(date)));
+    RatesProvider multicurve = CURVE_CALIBRATOR.calibrate(curveGroup, marketData, refData);
+    List<ResolvedIborCapFloorTrade> tradesDate = trades.apply(date, multicurve);
+    SingleCurrencyModelTemplate template = templates.apply(multicurve, previous);
+    SingleCurrencyModelParameters calibrated = SingleCurrencyModelCapFloorLeastSquarePriceCalibrator.of(template)
+        .calibrateConstraints(tradesDate, multicurve, pricer);
+    return calibrated.getParameters();
+  }
+
+  // Calibrates the dates of the partition in order, each date starting from the last successful one
+  private Map<LocalDate, Result<DoubleArray>> calibratePartition(
+      List<LocalDate> partition,
+      Optional<DoubleArray> seed,
+      CsvWriter csv) {
+
+    Map<LocalDate, Result<DoubleArray>> results = new TreeMap<>();
+    Optional<DoubleArray> previous = seed;
+    for (LocalDate date : partition) {
+      DoubleArray parameters;
+      try {
+        parameters = calibrate(date, previous);
+      } catch (RuntimeException e) {
+        results.put(date, Result.failure(e));
+        csv.done(date, Optional.empty());
+        continue;
+      }
+      csv.done(date, Optional.of(parameters));
+      results.put(date, Result.success(parameters));
+      previous = Optional.of(parameters);
+    }
+    return results;
+  }
+
+  /**
+   * Reads the calibrated parameters from a back-test output file.
+   * <p>
+   * Returns an empty map if the file does not exist or is empty. The file contains only the dates
+   * successfully calibrated. The last row is ignored if it is not terminated by a new line, i.e. if its write
+   * was interrupted. The other rows must have one field for each header.
+   *
+   * @param output  the output file
+   * @return the calibrated parameters by date
+   * @throws IllegalArgumentException if a complete row does not have one field for each header
+   */
+  public static ImmutableSortedMap<LocalDate, DoubleArray> checkpoint(Path output) {
+    if (isEmpty(output)) {
+      return ImmutableSortedMap.of();
+    }
+    String content = new String(readAllBytes(output), StandardCharsets.UTF_8);
+    content = content.substring(0, content.lastIndexOf('\n') + 1); // complete rows only
+    if (content.isEmpty()) {
+      return ImmutableSortedMap.of();
+    }
+    TreeMap<LocalDate, DoubleArray> results = new TreeMap<>();
+    CsvFile csv = CsvFile.of(CharSource.wrap(content), true);
+    int nbFields = csv.headers().size();
+    for (CsvRow row : csv.rows()) {
+      ArgChecker.isTrue(row.fieldCount() == nbFields,
+          "row of {} in {} has {} fields, expected {}", row.getField(0), output, row.fieldCount(), nbFields);
+      LocalDate date = LocalDate.parse(row.getValue(HEADER_DATE));
+      double[] parameters = new double[row.fieldCount() - 1];
+      for (int i = 0; i < parameters.length; i++) {
+        parameters[i] = Double.parseDouble(row.getField(i + 1));
+      }
+      results.put(date, DoubleArray.ofUnsafe(parameters));
+    }
+    return ImmutableSortedMap.copyOf(results);
+  }
+
+  // Checks if the file does not exist or is empty
+  private static boolean isEmpty(Path output) {
+    try {
+      return !Files.exists(output) || Files.size(output) == 0;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static byte[] readAllBytes(Path output) {
+    try {
+      return Files.readAllBytes(output);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Truncates the file after its last new line, the new rows are then appended after the complete rows
+  private static void removeIncompleteRow(Path output) {
+    if (isEmpty(output)) {
+      return;
+    }
+    byte[] content = readAllBytes(output);
+    int end = content.length;
+    while (end > 0 && content[end - 1] != '\n') {
+      end--;
+    }
+    if (end < content.length) {
+      try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+        channel.truncate(end);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  // Writes the rows in date order, with the header before the first row of a new file.
+  // The dates done before an earlier date are buffered until that date is done.
+  private static final class CsvWriter {
+
+    private final BufferedWriter writer;
+    private final CsvOutput csv;
+    private boolean headerRequired;
+    /** The dates of the run, in order. */
+    private final List<LocalDate> dates;
+    /** The index of the first date not written yet. */
+    private int nextDate;
+    /** The dates done and not written yet, with the parameters or empty for a failure. */
+    private final Map<LocalDate, Optional<DoubleArray>> buffer = new HashMap<>();
+
+    CsvWriter(BufferedWriter writer, boolean headerRequired, List<LocalDate> dates) {
+      this.writer = writer;
+      this.csv = CsvOutput.standard(writer);
+      this.headerRequired = headerRequired;
+      this.dates = dates;
+    }
+
+    // Records a date as done and writes all the dates done in order
+    synchronized void done(LocalDate date, Optional<DoubleArray> parameters) {
+      buffer.put(date, parameters);
+      boolean written = false;
+      while (nextDate < dates.size() && buffer.containsKey(dates.get(nextDate))) {
+        Optional<DoubleArray> next = buffer.remove(dates.get(nextDate));
+        if (next.isPresent()) {
+          writeRow(dates.get(nextDate), next.get());
+          written = true;
+        }
+        nextDate++;
+      }
+      if (written) {
+        try {
+          writer.flush(); // checkpoint
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    private void writeRow(LocalDate date, DoubleArray parameters) {
+      if (headerRequired) {
+        List<String> header = new ArrayList<>();
+        header.add(HEADER_DATE);
+        for (int i = 0; i < parameters.size(); i++) {
+          header.add(HEADER_PARAMETER + i);
+        }
+        csv.writeLine(header);
+        headerRequired = false;
+      }
+      List<String> row = new ArrayList<>();
+      row.add(date.toString());
+      for (int i = 0; i < parameters.size(); i++) {
+        row.add(Double.toString(parameters.get(i)));
+      }
+      csv.writeLine(row);
+    }
+  }
+
+}
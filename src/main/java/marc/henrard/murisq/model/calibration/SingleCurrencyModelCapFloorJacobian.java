@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.calibration;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.capfloor.ResolvedIborCapFloorTrade;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.model.generic.SingleCurrencyModelTemplate;
+import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorTradePricer;
+
+/**
+ * Jacobian of the cap/floor model prices with respect to the calibrated, i.e. non-fixed, parameters.
+ * <p>
+ * When the trade pricer provides the sensitivities to the model parameters, see
+ * {@link SingleCurrencyModelCapFloorTradePricer#presentValueSensitivityModelParameters}, they are used directly.
+ * The parameters of the model generated by the template are supposed to be the template parameters, in the same
+ * order; this is the case of the rational model templates. Otherwise the Jacobian is computed by finite difference
+ * on the prices.
+ *
+ * @author Marc Henrard
+ */
+class SingleCurrencyModelCapFloorJacobian implements Function<DoubleArray, DoubleMatrix> {
+
+  /** The trades on which the model is calibrated. */
+  private final List<ResolvedIborCapFloorTrade> trades;
+  /** The multi-curve used to compute trade values. */
+  private final RatesProvider multicurve;
+  /** The model template. */
+  private final SingleCurrencyModelTemplate template;
+  /** The pricer for the trades. */
+  private final SingleCurrencyModelCapFloorTradePricer pricer;
+  /** The Jacobian by finite difference, used when the sensitivities are not available. */
+  private final Function<DoubleArray, DoubleMatrix> jacobianFiniteDifference;
+
+  // Constructor
+  SingleCurrencyModelCapFloorJacobian(
+      List<ResolvedIborCapFloorTrade> trades,
+      RatesProvider multicurve,
+      SingleCurrencyModelTemplate template,
+      SingleCurrencyModelCapFloorTradePricer pricer,
+      Function<DoubleArray, DoubleMatrix> jacobianFiniteDifference) {
+
+    this.trades = trades;
+    this.multicurve = multicurve;
+    this.template = template;
+    this.pricer = pricer;
+    this.jacobianFiniteDifference = jacobianFiniteDifference;
+  }
+
+  @Override
+  public DoubleMatrix apply(DoubleArray x) {
+    Optional<DoubleMatrix> sensitivities = sensitivities(x);
+    return sensitivities.isPresent() ? sensitivities.get() : jacobianFiniteDifference.apply(x);
+  }
+
+  /**
+   * Returns the Jacobian of the prices from the sensitivities to the model parameters, if available.
+   * 
+   * @param x  the calibrated parameters
+   * @return the Jacobian, dimensions: trades x calibrated parameters, empty if the sensitivities are not available
+   */
+  Optional<DoubleMatrix> sensitivities(DoubleArray x) {
+    int nbParam = template.parametersCount();
+    int loopx = 0;
+    double[] p = new double[nbParam];
+    for (int i = 0; i < nbParam; i++) {
+      if (template.getFixed().get(i)) {
+        p[i] = template.initialGuess().get(i);
+      } else {
+        p[i] = x.get(loopx);
+        loopx++;
+      }
+    }
+    SingleCurrencyModelParameters model = template.generate(DoubleArray.ofUnsafe(p));
+    if (model.getParameterCount() != nbParam) {
+      return Optional.empty();
+    }
+    Optional<DoubleMatrix> sensitivities = pricer.presentValueSensitivityModelParameters(trades, multicurve, model);
+    if (!sensitivities.isPresent()) {
+      return Optional.empty();
+    }
+    double[][] jacobian = new double[trades.size()][x.size()];
+    for (int loopt = 0; loopt < trades.size(); loopt++) {
+      int loopv = 0;
+      for (int i = 0; i < nbParam; i++) {
+        if (!template.getFixed().get(i)) {
+          jacobian[loopt][loopv] = sensitivities.get().get(loopt, i);
+          loopv++;
+        }
+      }
+    }
+    return Optional.of(DoubleMatrix.ofUnsafe(jacobian));
+  }
+
+}
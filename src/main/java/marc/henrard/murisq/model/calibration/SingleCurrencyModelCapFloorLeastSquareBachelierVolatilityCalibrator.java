@@ -6,9 +6,12 @@ package marc.henrard.murisq.model.calibration;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.currency.CurrencyAmount;
 import com.opengamma.strata.basics.currency.Payment;
 import com.opengamma.strata.collect.ArgChecker;
 import com.opengamma.strata.collect.array.DoubleArray;
@@ -20,10 +23,12 @@ import com.opengamma.strata.math.impl.statistics.leastsquare.LeastSquareResults;
 import com.opengamma.strata.math.impl.statistics.leastsquare.NonLinearLeastSquare;
 import com.opengamma.strata.pricer.DiscountingPaymentPricer;
 import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.capfloor.ResolvedIborCapFloorLeg;
 import com.opengamma.strata.product.capfloor.ResolvedIborCapFloorTrade;
 
 import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
 import marc.henrard.murisq.model.generic.SingleCurrencyModelTemplate;
+import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorLegPricer;
 import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorTradePricer;
 
 /**
@@ -44,6 +49,8 @@ public class SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator
   
   /** The template generating {@link RationalParameters}. */
   private final SingleCurrencyModelTemplate template;
+  /** The pool on which the trades are priced in parallel. Empty for a sequential pricing. */
+  private final Optional<ForkJoinPool> pool;
 
   /**
    * Create an instance of the calibrator.
@@ -52,15 +59,37 @@ public class SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator
    * @return the instance
    */
   public static SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator of(SingleCurrencyModelTemplate template) {
-    return new SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator(template);
+    return new SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator(template, Optional.empty());
+  }
+
+  /**
+   * Create an instance of the calibrator with the trades priced in parallel.
+   * <p>
+   * In each evaluation of the objective function, the trades are priced and their implied volatilities computed
+   * in parallel on the pool. The columns of the finite difference Jacobian, when used, are also computed in parallel.
+   * 
+   * @param template  the rational model template
+   * @param pool  the fork-join pool on which the trades are priced
+   * @return the instance
+   */
+  public static SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator of(
+      SingleCurrencyModelTemplate template,
+      ForkJoinPool pool) {
+
+    return new SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator(template, Optional.of(pool));
   }
   
   /**
    * Private constructor. 
    * @param template
+   * @param pool
    */
-  private SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator(SingleCurrencyModelTemplate template) {
+  private SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator(
+      SingleCurrencyModelTemplate template,
+      Optional<ForkJoinPool> pool) {
+
     this.template = template;
+    this.pool = pool;
   }
   
   /**
@@ -82,11 +111,21 @@ public class SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator
     checkTrades(trades);
     DoubleArray observedValues = DoubleArray.filled(trades.size()); // premium included in trade
     DoubleArray sigma = DoubleArray.filled(trades.size(), 1.0); // Scaling of errors
-    ModelValuesConstraints function = new ModelValuesConstraints(trades, multicurve, template, pricer);
-    // Jacobian by finite difference: TODO: improve
-    VectorFieldFirstOrderDifferentiator differentiator = new VectorFieldFirstOrderDifferentiator();
-    Function<DoubleArray, DoubleMatrix>  jacobien = differentiator.differentiate(function);
-    
+    ModelValuesConstraints function = new ModelValuesConstraints(trades, multicurve, template, pricer, pool);
+    Function<DoubleArray, DoubleMatrix> jacobianFd = pool.isPresent() ?
+        CalibrationParallelUtils.jacobianForward(function, pool.get()) :
+        new VectorFieldFirstOrderDifferentiator().differentiate(function);
+    // Jacobian from the price sensitivities and the Bachelier vegas when available, by finite difference otherwise
+    SingleCurrencyModelCapFloorJacobian jacobianPrices =
+        new SingleCurrencyModelCapFloorJacobian(trades, multicurve, template, pricer, jacobianFd);
+    Function<DoubleArray, DoubleMatrix> jacobien = x -> {
+      Optional<DoubleMatrix> sensitivities = jacobianPrices.sensitivities(x);
+      if (!sensitivities.isPresent()) {
+        return jacobianFd.apply(x);
+      }
+      return function.jacobianFromPrices(x, sensitivities.get()).orElseGet(() -> jacobianFd.apply(x));
+    };
+
     DoubleArray startCalibratedParameters = initialGuessVariable(template.initialGuess(), template.getFixed());
     LeastSquareResults results = LS.solve(observedValues, 
         sigma,
@@ -134,18 +173,22 @@ public class SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator
     private final SingleCurrencyModelCapFloorTradePricer pricer;
     /** The implied volatility of the trade premiums. */
     private final List<Double> impliedVolatilitiesPremium;
+    /** The pool on which the trades are priced in parallel. Empty for a sequential pricing. */
+    private final Optional<ForkJoinPool> pool;
 
     // Constructor
     public ModelValuesConstraints(
         List<ResolvedIborCapFloorTrade> trades, 
         RatesProvider multicurve,
         SingleCurrencyModelTemplate template, 
-        SingleCurrencyModelCapFloorTradePricer pricer) {
+        SingleCurrencyModelCapFloorTradePricer pricer,
+        Optional<ForkJoinPool> pool) {
       this.trades = trades;
       this.multicurve = multicurve;
       this.template = template;
       nbTrades = trades.size();
       this.pricer = pricer;
+      this.pool = pool;
       List<Double> iv = new ArrayList<>(trades.size());
       for (int i = 0; i < trades.size(); i++) {
         Payment premium = trades.get(i).getPremium().get();
@@ -175,14 +218,53 @@ public class SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator
         }
       }
       SingleCurrencyModelParameters model = template.generate(DoubleArray.ofUnsafe(p));
+      SingleCurrencyModelCapFloorLegPricer legPricer = pricer.getProductPricer().getCapFloorLegPricer();
+      List<ResolvedIborCapFloorLeg> legs = new ArrayList<>(nbTrades);
+      for (int i = 0; i < nbTrades; i++) {
+        legs.add(trades.get(i).getProduct().getCapFloorLeg());
+      }
+      if (pool.isPresent()) { // trades priced in parallel
+        return CalibrationParallelUtils.values(nbTrades,
+            i -> legPricer.impliedVolatilityBachelier(legs.get(i), multicurve,
+                legPricer.presentValue(legs.get(i), multicurve, model).getAmount(), model.getValuationDateTime())
+                - impliedVolatilitiesPremium.get(i),
+            pool.get());
+      }
+      List<CurrencyAmount> pvLegs = legPricer.presentValues(legs, multicurve, model); // all caplets priced together
       double[] ivDifference = new double[nbTrades];
       for (int i = 0; i < nbTrades; i++) {
-        ivDifference[i] = pricer.getProductPricer().getCapFloorLegPricer()
-            .impliedVolatilityBachelier(trades.get(i).getProduct().getCapFloorLeg(), multicurve, model)
+        ivDifference[i] = legPricer.impliedVolatilityBachelier(
+            legs.get(i), multicurve, pvLegs.get(i).getAmount(), model.getValuationDateTime())
             - impliedVolatilitiesPremium.get(i);
       }
       return DoubleArray.ofUnsafe(ivDifference);
     }
+
+    /**
+     * Computes the Jacobian of the implied volatility differences from the Jacobian of the prices.
+     * <p>
+     * The derivative of the implied volatility of a trade is the derivative of its price divided by the Bachelier
+     * vega at the implied volatility. Returns empty if a vega is 0, e.g. for a 0 implied volatility.
+     * 
+     * @param x  the calibrated parameters
+     * @param jacobianPrices  the Jacobian of the prices, dimensions: trades x calibrated parameters
+     * @return the Jacobian of the implied volatility differences, dimensions: trades x calibrated parameters
+     */
+    Optional<DoubleMatrix> jacobianFromPrices(DoubleArray x, DoubleMatrix jacobianPrices) {
+      DoubleArray ivDifference = apply(x);
+      SingleCurrencyModelCapFloorLegPricer legPricer = pricer.getProductPricer().getCapFloorLegPricer();
+      double[][] jacobian = new double[nbTrades][];
+      for (int i = 0; i < nbTrades; i++) {
+        double iv = ivDifference.get(i) + impliedVolatilitiesPremium.get(i);
+        double vega = legPricer.vegaBachelier(trades.get(i).getProduct().getCapFloorLeg(), multicurve, iv,
+            template.getValuationDateTime());
+        if (vega == 0.0d) {
+          return Optional.empty();
+        }
+        jacobian[i] = jacobianPrices.row(i).dividedBy(vega).toArrayUnsafe();
+      }
+      return Optional.of(DoubleMatrix.ofUnsafe(jacobian));
+    }
   }
   
   /**
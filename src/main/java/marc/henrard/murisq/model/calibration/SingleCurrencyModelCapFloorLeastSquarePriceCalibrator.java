@@ -5,9 +5,12 @@ package marc.henrard.murisq.model.calibration;
 
 import java.util.BitSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.currency.MultiCurrencyAmount;
 import com.opengamma.strata.collect.array.DoubleArray;
 import com.opengamma.strata.collect.array.DoubleMatrix;
 import com.opengamma.strata.math.impl.differentiation.VectorFieldFirstOrderDifferentiator;
@@ -37,6 +40,8 @@ public class SingleCurrencyModelCapFloorLeastSquarePriceCalibrator {
 
   /** The template generating {@link RationalParameters}. */
   private final SingleCurrencyModelTemplate template;
+  /** The pool on which the trades are priced in parallel. Empty for a sequential pricing. */
+  private final Optional<ForkJoinPool> pool;
 
   /**
    * Create an instance of the calibrator.
@@ -45,15 +50,37 @@ public class SingleCurrencyModelCapFloorLeastSquarePriceCalibrator {
    * @return the instance
    */
   public static SingleCurrencyModelCapFloorLeastSquarePriceCalibrator of(SingleCurrencyModelTemplate template) {
-    return new SingleCurrencyModelCapFloorLeastSquarePriceCalibrator(template);
+    return new SingleCurrencyModelCapFloorLeastSquarePriceCalibrator(template, Optional.empty());
+  }
+
+  /**
+   * Create an instance of the calibrator with the trades priced in parallel.
+   * <p>
+   * In each evaluation of the objective function, the trades are priced in parallel on the pool. 
+   * The columns of the finite difference Jacobian, when used, are also computed in parallel.
+   * 
+   * @param template  the rational model template
+   * @param pool  the fork-join pool on which the trades are priced
+   * @return the instance
+   */
+  public static SingleCurrencyModelCapFloorLeastSquarePriceCalibrator of(
+      SingleCurrencyModelTemplate template,
+      ForkJoinPool pool) {
+
+    return new SingleCurrencyModelCapFloorLeastSquarePriceCalibrator(template, Optional.of(pool));
   }
   
   /**
    * Private constructor. 
    * @param template
+   * @param pool
    */
-  private SingleCurrencyModelCapFloorLeastSquarePriceCalibrator(SingleCurrencyModelTemplate template) {
+  private SingleCurrencyModelCapFloorLeastSquarePriceCalibrator(
+      SingleCurrencyModelTemplate template,
+      Optional<ForkJoinPool> pool) {
+
     this.template = template;
+    this.pool = pool;
   }
   
   /**
@@ -74,10 +101,13 @@ public class SingleCurrencyModelCapFloorLeastSquarePriceCalibrator {
     
     DoubleArray observedValues = DoubleArray.filled(trades.size()); // premium included in trade
     DoubleArray sigma = DoubleArray.filled(trades.size(), 1.0); // Scaling of errors
-    ModelValuesConstraints function = new ModelValuesConstraints(trades, multicurve, template, pricer);
-    // Jacobian by finite difference: TODO: improve
-    VectorFieldFirstOrderDifferentiator differentiator = new VectorFieldFirstOrderDifferentiator();
-    Function<DoubleArray, DoubleMatrix>  jacobien = differentiator.differentiate(function);
+    ModelValuesConstraints function = new ModelValuesConstraints(trades, multicurve, template, pricer, pool);
+    Function<DoubleArray, DoubleMatrix> jacobianFd = pool.isPresent() ?
+        CalibrationParallelUtils.jacobianForward(function, pool.get()) :
+        new VectorFieldFirstOrderDifferentiator().differentiate(function);
+    // Jacobian from the model parameter sensitivities when available, by finite difference otherwise
+    Function<DoubleArray, DoubleMatrix> jacobien =
+        new SingleCurrencyModelCapFloorJacobian(trades, multicurve, template, pricer, jacobianFd);
     
     DoubleArray startCalibratedParameters = initialGuessVariable(template.initialGuess(), template.getFixed());
     LeastSquareResults results = LS.solve(observedValues, 
@@ -107,18 +137,22 @@ public class SingleCurrencyModelCapFloorLeastSquarePriceCalibrator {
     private final int nbTrades;
     /** The pricer for the trades. */
     private final SingleCurrencyModelCapFloorTradePricer pricer;
+    /** The pool on which the trades are priced in parallel. Empty for a sequential pricing. */
+    private final Optional<ForkJoinPool> pool;
 
     // Constructor
     public ModelValuesConstraints(
         List<ResolvedIborCapFloorTrade> trades, 
         RatesProvider multicurve,
         SingleCurrencyModelTemplate template, 
-        SingleCurrencyModelCapFloorTradePricer pricer) {
+        SingleCurrencyModelCapFloorTradePricer pricer,
+        Optional<ForkJoinPool> pool) {
       this.trades = trades;
       this.multicurve = multicurve;
       this.template = template;
       nbTrades = trades.size();
       this.pricer = pricer;
+      this.pool = pool;
     }
 
     /**
@@ -140,10 +174,15 @@ public class SingleCurrencyModelCapFloorLeastSquarePriceCalibrator {
       }
       SingleCurrencyModelParameters model = template.generate(DoubleArray.ofUnsafe(p));
       Currency ccy = model.getCurrency();
+      if (pool.isPresent()) { // trades priced in parallel
+        return CalibrationParallelUtils.values(nbTrades,
+            i -> pricer.presentValue(trades.get(i), multicurve, model).convertedTo(ccy, multicurve).getAmount(),
+            pool.get());
+      }
+      List<MultiCurrencyAmount> pv = pricer.presentValues(trades, multicurve, model); // all caplets priced together
       double[] modelPrice = new double[nbTrades];
       for (int i = 0; i < nbTrades; i++) {
-        modelPrice[i] = pricer.presentValue(trades.get(i), multicurve, model)
-            .convertedTo(ccy, multicurve).getAmount();
+        modelPrice[i] = pv.get(i).convertedTo(ccy, multicurve).getAmount();
       }
       return DoubleArray.ofUnsafe(modelPrice);
     }
@@ -3,20 +3,26 @@
  */
 package marc.henrard.murisq.model.calibration;
 
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.currency.MultiCurrencyAmount;
 import com.opengamma.strata.collect.ArgChecker;
 import com.opengamma.strata.collect.array.DoubleArray;
 import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.collect.tuple.Pair;
 import com.opengamma.strata.math.impl.differentiation.VectorFieldFirstOrderDifferentiator;
-import com.opengamma.strata.math.impl.linearalgebra.DecompositionFactory;
-import com.opengamma.strata.math.impl.rootfinding.newton.BroydenVectorRootFinder;
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.capfloor.ResolvedIborCapFloorTrade;
 
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.BroydenRootFinderWithJacobian;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.CalibrationWarmStart;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.SeededJacobian;
 import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
 import marc.henrard.murisq.model.generic.SingleCurrencyModelTemplate;
 import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorTradePricer;
@@ -33,14 +39,15 @@ public class SingleCurrencyModelCapFloorRootPriceCalibrator {
   private static final double TOLERANCE_REL = 1.0E-4;
   private static final int STEP_MAX = 250;
   /** The root-finder implementation. */ //TODO: make this flexible
-  private final static BroydenVectorRootFinder ROOT_FINDER = new BroydenVectorRootFinder(
+  private final static BroydenRootFinderWithJacobian ROOT_FINDER = new BroydenRootFinderWithJacobian(
       TOLERANCE_ABS,
       TOLERANCE_REL,
-      STEP_MAX,
-      DecompositionFactory.SV_COMMONS);
+      STEP_MAX);
 
   /** The template generating {@link SingleCurrencyModelParameters}. */
   private final SingleCurrencyModelTemplate template;
+  /** The pool on which the trades are priced in parallel. Empty for a sequential pricing. */
+  private final Optional<ForkJoinPool> pool;
 
   /**
    * Create an instance of the calibrator.
@@ -49,15 +56,37 @@ public class SingleCurrencyModelCapFloorRootPriceCalibrator {
    * @return the instance
    */
   public static SingleCurrencyModelCapFloorRootPriceCalibrator of(SingleCurrencyModelTemplate template) {
-    return new SingleCurrencyModelCapFloorRootPriceCalibrator(template);
+    return new SingleCurrencyModelCapFloorRootPriceCalibrator(template, Optional.empty());
+  }
+
+  /**
+   * Create an instance of the calibrator with the trades priced in parallel.
+   * <p>
+   * In each evaluation of the objective function, the trades are priced in parallel on the pool. 
+   * The columns of the finite difference Jacobian, when used, are also computed in parallel.
+   * 
+   * @param template  the rational model template
+   * @param pool  the fork-join pool on which the trades are priced
+   * @return the instance
+   */
+  public static SingleCurrencyModelCapFloorRootPriceCalibrator of(
+      SingleCurrencyModelTemplate template,
+      ForkJoinPool pool) {
+
+    return new SingleCurrencyModelCapFloorRootPriceCalibrator(template, Optional.of(pool));
   }
   
   /**
    * Private constructor. 
    * @param template
+   * @param pool
    */
-  private SingleCurrencyModelCapFloorRootPriceCalibrator(SingleCurrencyModelTemplate template) {
+  private SingleCurrencyModelCapFloorRootPriceCalibrator(
+      SingleCurrencyModelTemplate template,
+      Optional<ForkJoinPool> pool) {
+
     this.template = template;
+    this.pool = pool;
   }
   
   /**
@@ -76,16 +105,100 @@ public class SingleCurrencyModelCapFloorRootPriceCalibrator {
       RatesProvider multicurve,
       SingleCurrencyModelCapFloorTradePricer pricer) {
     
-    ModelValues function = new ModelValues(trades, multicurve, template, pricer);
-    // Jacobian by finite difference: TODO: improve
-    VectorFieldFirstOrderDifferentiator differentiator = new VectorFieldFirstOrderDifferentiator();
-    Function<DoubleArray, DoubleMatrix>  jacobian = differentiator.differentiate(function);
     DoubleArray startCalibratedParameters = initialGuessVariable(template.initialGuess(), template.getFixed());
-    DoubleArray parametersCalibrated = ROOT_FINDER.findRoot(function, jacobian, startCalibratedParameters);
+    DoubleArray parametersCalibrated =
+        findRoot(trades, multicurve, pricer, startCalibratedParameters, Optional.empty()).getFirst();
+    return template.generate(allParametersFromCalibrated(
+        parametersCalibrated, template.initialGuess(), template.getFixed()));
+  }
+
+  /**
+   * Calibrates the model parameters to a set of cap/floor trades by exact root finding approach, starting from
+   * the previous calibration stored in the cache.
+   * <p>
+   * The cache key is composed of the template, the pricer and the cap/floor products. The market data fingerprint 
+   * is composed of the multi-curve and the trade premiums. If the fingerprint is the one of the cache entry, 
+   * the stored parameters are returned without root-finding. Otherwise the root-finding starts from the stored 
+   * parameters and Jacobian, or from the template initial guess if there is no entry. The cache entry is 
+   * updated with the result and the last Jacobian of the root-finding.
+   * 
+   * @param trades  the cap/floor trades
+   * @param multicurve  the multi-curve provider
+   * @param pricer  the cap/floor trade pricer
+   * @param cache  the warm-start cache
+   * @return  the model parameters
+   */
+  public SingleCurrencyModelParameters calibrateConstraints(
+      List<ResolvedIborCapFloorTrade> trades, 
+      RatesProvider multicurve,
+      SingleCurrencyModelCapFloorTradePricer pricer,
+      CalibrationWarmStartCache cache) {
+
+    List<Object> key = warmStartKey(trades, pricer);
+    double[] premiums = new double[trades.size()];
+    for (int i = 0; i < trades.size(); i++) {
+      premiums[i] = trades.get(i).getPremium().map(p -> p.getAmount()).orElse(0.0d);
+    }
+    DoubleArray fingerprint = CalibrationWarmStartCache.fingerprint(multicurve, DoubleArray.ofUnsafe(premiums));
+    Optional<CalibrationWarmStart> warmStart = cache.get(key);
+    DoubleArray parametersCalibrated;
+    if (warmStart.isPresent() && warmStart.get().getFingerprint().equals(fingerprint)) { // market unchanged
+      parametersCalibrated = warmStart.get().getSolution();
+    } else {
+      DoubleArray startCalibratedParameters = warmStart.isPresent() ?
+          warmStart.get().getSolution() :
+          initialGuessVariable(template.initialGuess(), template.getFixed());
+      Pair<DoubleArray, DoubleMatrix> result = findRoot(trades, multicurve, pricer,
+          startCalibratedParameters, warmStart.flatMap(CalibrationWarmStart::getJacobian));
+      parametersCalibrated = result.getFirst();
+      cache.put(key, CalibrationWarmStart.of(fingerprint, parametersCalibrated, Optional.of(result.getSecond())));
+    }
     return template.generate(allParametersFromCalibrated(
         parametersCalibrated, template.initialGuess(), template.getFixed()));
   }
 
+  /**
+   * Returns the key of the calibration in the warm-start cache.
+   * <p>
+   * The key is composed of the template, the pricer and the cap/floor products, without the premiums.
+   * 
+   * @param trades  the cap/floor trades
+   * @param pricer  the cap/floor trade pricer
+   * @return  the key
+   */
+  public List<Object> warmStartKey(
+      List<ResolvedIborCapFloorTrade> trades, 
+      SingleCurrencyModelCapFloorTradePricer pricer) {
+
+    List<Object> key = new ArrayList<>();
+    key.add(template);
+    key.add(pricer);
+    for (ResolvedIborCapFloorTrade trade : trades) {
+      key.add(trade.getProduct());
+    }
+    return key;
+  }
+
+  // Root-finding from the starting point with the Jacobian seed; returns the root and the last Jacobian
+  // of the root-finding
+  private Pair<DoubleArray, DoubleMatrix> findRoot(
+      List<ResolvedIborCapFloorTrade> trades, 
+      RatesProvider multicurve,
+      SingleCurrencyModelCapFloorTradePricer pricer,
+      DoubleArray startCalibratedParameters,
+      Optional<DoubleMatrix> jacobianSeed) {
+
+    ModelValues function = new ModelValues(trades, multicurve, template, pricer, pool);
+    Function<DoubleArray, DoubleMatrix> jacobianFd = pool.isPresent() ?
+        CalibrationParallelUtils.jacobianForward(function, pool.get()) :
+        new VectorFieldFirstOrderDifferentiator().differentiate(function);
+    // Jacobian from the model parameter sensitivities when available, by finite difference otherwise
+    Function<DoubleArray, DoubleMatrix> jacobian =
+        new SingleCurrencyModelCapFloorJacobian(trades, multicurve, template, pricer, jacobianFd);
+    return ROOT_FINDER.findRoot(function,
+        new SeededJacobian(jacobian, startCalibratedParameters, jacobianSeed), startCalibratedParameters);
+  }
+
   /**
    * Inner class computing the model price from the variable parameters.
    */
@@ -101,19 +214,23 @@ public class SingleCurrencyModelCapFloorRootPriceCalibrator {
     private final int nbTrades;
     /** The pricer for the trades. */
     private final SingleCurrencyModelCapFloorTradePricer pricer;
+    /** The pool on which the trades are priced in parallel. Empty for a sequential pricing. */
+    private final Optional<ForkJoinPool> pool;
 
     // Constructor
     public ModelValues(
         List<ResolvedIborCapFloorTrade> trades, 
         RatesProvider multicurve,
         SingleCurrencyModelTemplate template, 
-        SingleCurrencyModelCapFloorTradePricer pricer) {
+        SingleCurrencyModelCapFloorTradePricer pricer,
+        Optional<ForkJoinPool> pool) {
       
       this.trades = trades;
       this.multicurve = multicurve;
       this.template = template;
       nbTrades = trades.size();
       this.pricer = pricer;
+      this.pool = pool;
       ArgChecker.isTrue(nbTrades == template.parametersVariableCount(), 
           "number of variable parameters should be equal to the number of trades");
     }
@@ -138,10 +255,15 @@ public class SingleCurrencyModelCapFloorRootPriceCalibrator {
       }
       SingleCurrencyModelParameters model = template.generate(DoubleArray.ofUnsafe(p));
       Currency ccy = model.getCurrency();
+      if (pool.isPresent()) { // trades priced in parallel
+        return CalibrationParallelUtils.values(nbTrades,
+            i -> pricer.presentValue(trades.get(i), multicurve, model).convertedTo(ccy, multicurve).getAmount(),
+            pool.get());
+      }
+      List<MultiCurrencyAmount> pv = pricer.presentValues(trades, multicurve, model); // all caplets priced together
       double[] modelPrice = new double[nbTrades];
       for (int i = 0; i < nbTrades; i++) {
-        modelPrice[i] = pricer.presentValue(trades.get(i), multicurve, model)
-            .convertedTo(ccy, multicurve).getAmount();
+        modelPrice[i] = pv.get(i).convertedTo(ccy, multicurve).getAmount();
       }
       return DoubleArray.ofUnsafe(modelPrice);
     }
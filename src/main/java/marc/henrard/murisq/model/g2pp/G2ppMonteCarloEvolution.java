@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.g2pp;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBufferHeap;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloStepConsumer;
+
+/**
+ * Method to generate Monte Carlo paths for a G2++ model with piecewise constant volatilities.
+ * <p>
+ * See the details of the model parameters in {@link G2ppPiecewiseConstantDeterministicSpreadParameters}.
+ * <p>
+ * The numeraire is the pseudo-discount factor associated to the last date of the model T_N, as in the LMM.
+ * In the associated forward measure, the rebased discount factors are 
+ * P(t,T_k)/P(t,T_N) = P(0,T_k)/P(0,T_N) exp(-H(T_N,T_k) . X(t) - 1/2 Var(H(T_N,T_k) . X(t))) 
+ * where X_i(t) = int_0^t eta_i(s) exp(kappa_i s) dW_i(s) are the two factors and H are the maturity dependent parts
+ * of the volatility. The factors are Gaussian martingales with independent increments and their covariance
+ * on a step is given by {@link G2ppPiecewiseConstantFormulas#gammaRatioDiscountFactors}. The evolution is exact:
+ * there is no discretisation error and only one jump is required between two steps whatever their length.
+ * <p>
+ * The output at each step are the rebased discount factors for all the dates of the model. The initial values are 
+ * the discount factors P(0,T_k), stored in the overnight rates of the multi-curve equivalent values, and the 
+ * initial value of the numeraire is P(0,T_N).
+ * <p>
+ * Only the dates of the model after the step date are relevant; the values for the dates before are computed
+ * with the same formula but have no financial meaning.
+ *
+ * @author Marc Henrard
+ */
+public final class G2ppMonteCarloEvolution {
+
+  /** The formulas for the G2++ model. */
+  private static final G2ppPiecewiseConstantFormulas FORMULAS_G2PP = G2ppPiecewiseConstantFormulas.DEFAULT;
+
+  /** Default instance */
+  public static final G2ppMonteCarloEvolution DEFAULT = new G2ppMonteCarloEvolution();
+
+  // Private constructor
+  private G2ppMonteCarloEvolution() {
+  }
+
+  /**
+   * Evolves according to a model starting values up to the decision date.
+   *
+   * @param stepDateTime  the date and time of the step
+   * @param initialValues  the initial discount factors on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the rebased discount factors at the decision date described in the multi-curve equivalent
+   */
+  public List<MulticurveEquivalentValues> evolveOneStep(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      G2ppPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    return evolveOneStepPaths(stepDateTime, initialValues, model, numberGenerator, nbPaths).toValues();
+  }
+
+  /**
+   * Evolves according to a model starting values up to the decision date and returns the rebased discount factors
+   * in a path buffer.
+   *
+   * @param stepDateTime  the date and time of the step
+   * @param initialValues  the initial discount factors on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the rebased discount factors at the decision date, dimensions: model dates x paths
+   */
+  public MonteCarloPathBuffer evolveOneStepPaths(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      G2ppPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    double[] stepTimes = new double[] {model.relativeTime(stepDateTime)};
+    double[][][] result = new double[1][][];
+    pathGeneratorDiscountFactors(stepTimes, initialValues.getOnRates().toArrayUnsafe(), model, numberGenerator,
+        nbPaths, (step, values) -> result[0] = values);
+    return MonteCarloPathBufferHeap.ofUnsafe(result[0]);
+  }
+
+  /**
+   * Evolves according to a model starting values up to the different decision dates.
+   *
+   * @param stepDateTimes  the dates and times of each step
+   * @param initialValues  the initial discount factors on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the rebased discount factors at the decision dates described in the multi-curve equivalent,
+   *   dimensions nbPaths x nbSteps
+   */
+  public List<List<MulticurveEquivalentValues>> evolveMultiSteps(
+      List<ZonedDateTime> stepDateTimes,
+      MulticurveEquivalentValues initialValues,
+      G2ppPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    int nbSteps = stepDateTimes.size();
+    int nbDates = model.getIborTimes().size();
+    List<List<MulticurveEquivalentValues>> paths = new ArrayList<>();
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      paths.add(new ArrayList<>(nbSteps));
+    }
+    evolveMultiStepsStreaming(stepDateTimes, initialValues, model, numberGenerator, nbPaths,
+        (step, values) -> {
+          for (int looppath = 0; looppath < nbPaths; looppath++) {
+            double[] dfs = new double[nbDates];
+            for (int i = 0; i < nbDates; i++) {
+              dfs[i] = values[i][looppath];
+            }
+            paths.get(looppath).add(MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(dfs)).build());
+          }
+        });
+    return paths;
+  }
+
+  /**
+   * Evolves according to a model starting values up to the different decision dates and passes the rebased
+   * discount factors at each decision date to a consumer.
+   * <p>
+   * The streaming version of {@link #evolveMultiSteps}: the random numbers are the same and the values
+   * passed to the consumer at each step are the ones returned by that method, but only the running state is stored.
+   *
+   * @param stepDateTimes  the dates and times of each step
+   * @param initialValues  the initial discount factors on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the rebased discount factors at each step, dimensions: model dates x paths
+   */
+  public void evolveMultiStepsStreaming(
+      List<ZonedDateTime> stepDateTimes,
+      MulticurveEquivalentValues initialValues,
+      G2ppPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    int nbSteps = stepDateTimes.size();
+    double[] stepTimes = new double[nbSteps];
+    for (int i = 0; i < nbSteps; i++) {
+      stepTimes[i] = model.relativeTime(stepDateTimes.get(i));
+    }
+    pathGeneratorDiscountFactors(stepTimes, initialValues.getOnRates().toArrayUnsafe(), model, numberGenerator,
+        nbPaths, consumer);
+  }
+
+  /**
+   * Generates the paths of the rebased discount factors and passes them to a consumer at each step.
+   * <p>
+   * For each step, two vectors of random numbers are drawn from the generator: the first one for the first
+   * factor and the second one for the second factor. A new array is passed to the consumer for each step.
+   *
+   * @param stepTimes  the required step times, today is represented by 0, the times must be positive and in
+   *   increasing order
+   * @param initialDiscountFactors  the discount factors P(0,T_k) on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the rebased discount factors at each step, dimensions: model dates x paths
+   */
+  public void pathGeneratorDiscountFactors(
+      double[] stepTimes,
+      double[] initialDiscountFactors,
+      G2ppPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    G2ppPiecewiseConstantParameters g2pp = model.getG2ppParameters();
+    double rho = g2pp.getCorrelation();
+    double[] dateTimes = model.getIborTimes().toArrayUnsafe();
+    int nbDates = dateTimes.length;
+    ArgChecker.isTrue(initialDiscountFactors.length == nbDates,
+        "initial discount factors must have the same size as the model dates");
+    double[][] h = FORMULAS_G2PP.volatilityMaturityPartRatioDiscountFactors(g2pp, dateTimes[nbDates - 1], dateTimes);
+    double[] x1 = new double[nbPaths];
+    double[] x2 = new double[nbPaths];
+    double timePrevious = 0.0d;
+    for (int loopstep = 0; loopstep < stepTimes.length; loopstep++) {
+      double time = stepTimes[loopstep];
+      ArgChecker.isTrue(time >= timePrevious, "step times must be positive and in increasing order");
+      // Exact evolution of the factors with Cholesky decomposition of the step covariance
+      double[][] gamma = FORMULAS_G2PP.gammaRatioDiscountFactors(g2pp, timePrevious, time);
+      double l11 = Math.sqrt(gamma[0][0]);
+      double l21 = (l11 > 0.0d) ? rho * gamma[0][1] / l11 : 0.0d;
+      double l22 = Math.sqrt(Math.max(0.0d, gamma[1][1] - l21 * l21));
+      double[] z1 = numberGenerator.getVector(nbPaths);
+      double[] z2 = numberGenerator.getVector(nbPaths);
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        x1[looppath] += l11 * z1[looppath];
+        x2[looppath] += l21 * z1[looppath] + l22 * z2[looppath];
+      }
+      // Rebased discount factors: P(0,T)/P(0,T_N) exp(-H . X - Var(H . X) / 2)
+      double[][] gamma0 = FORMULAS_G2PP.gammaRatioDiscountFactors(g2pp, 0.0d, time);
+      double[][] dfs = new double[nbDates][nbPaths];
+      for (int loopdate = 0; loopdate < nbDates; loopdate++) {
+        double h1 = h[0][loopdate];
+        double h2 = h[1][loopdate];
+        double variance = h1 * h1 * gamma0[0][0] + h2 * h2 * gamma0[1][1] + 2.0d * rho * h1 * h2 * gamma0[0][1];
+        double factor = initialDiscountFactors[loopdate] / initialDiscountFactors[nbDates - 1]
+            * Math.exp(-0.5d * variance);
+        for (int looppath = 0; looppath < nbPaths; looppath++) {
+          dfs[loopdate][looppath] = factor * Math.exp(-h1 * x1[looppath] - h2 * x2[looppath]);
+        }
+      }
+      consumer.accept(loopstep, dfs);
+      timePrevious = time;
+    }
+  }
+
+  /**
+   * Returns the number of random dimensions used in the path generation for one path.
+   * <p>
+   * Two dimensions are used for each step: one for each factor.
+   *
+   * @param stepTimes  the required step times, the times must be positive and in increasing order
+   * @return the number of dimensions
+   */
+  public int randomDimension(double[] stepTimes) {
+    return 2 * stepTimes.length;
+  }
+
+}
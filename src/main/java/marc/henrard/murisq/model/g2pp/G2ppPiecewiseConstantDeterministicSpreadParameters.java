@@ -0,0 +1,793 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.g2pp;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.ImmutableValidator;
+import org.joda.beans.gen.PropertyDefinition;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.index.IborIndex;
+import com.opengamma.strata.basics.index.IborIndexObservation;
+import com.opengamma.strata.basics.index.OvernightIndex;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.market.param.ParameterMetadata;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.joda.beans.Bean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+/**
+ * G2++ model with piecewise constant volatilities in the multi-curve framework, represented on a set of dates 
+ * for Monte Carlo simulations.
+ * <p>
+ * The dynamic is on the discounting curve; the IBOR rates on the periods between the dates are obtained by 
+ * deterministic multiplicative spreads, as in {@code LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters}.
+ * The discount factors are simulated on the dates of the model.
+ * <p>
+ * The model parameters are the ones of the underlying {@link G2ppPiecewiseConstantParameters}.
+ * 
+ * @author Marc Henrard
+ */
+@BeanDefinition
+public final class G2ppPiecewiseConstantDeterministicSpreadParameters
+    implements SingleCurrencyModelParameters, ImmutableBean, Serializable {
+
+  /** The G2++ model parameters, including the valuation date and the time measure. */
+  @PropertyDefinition(validate = "notNull")
+  private final G2ppPiecewiseConstantParameters g2ppParameters;
+  /** The overnight index represented by the discounting curve. */
+  @PropertyDefinition(validate = "notNull")
+  private final OvernightIndex overnightIndex;
+  /** The IBOR index modeled by the multiplicative spreads. */
+  @PropertyDefinition(validate = "notNull")
+  private final IborIndex iborIndex;
+  /** The times of the dates on which the discount factors are simulated. In increasing order. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray iborTimes;
+  /** The accrual factors for the periods between the dates. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray accrualFactors;
+  /** The multiplicative spread between the forward discounting rates and the forward IBOR rates. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray multiplicativeSpreads;
+  /** The time tolerance to indicate that two dates are equal. */
+  @PropertyDefinition
+  private final double timeTolerance;
+
+  /**
+   * Creates the model on a set of dates with the multiplicative spreads implied by a multi-curve framework.
+   * <p>
+   * The spread on each period is the ratio between the IBOR forward factor and the discounting forward factor 
+   * for the IBOR rate with effective date the start date of the period.
+   * 
+   * @param g2ppParameters  the G2++ model parameters
+   * @param iborDates  the dates of the model
+   * @param overnightIndex  the overnight index
+   * @param iborIndex  the IBOR index
+   * @param multicurve  the multi-curve used to compute the spreads
+   * @param timeTolerance  the time tolerance to indicate that two dates are equal
+   * @param refData  the reference data with holidays
+   * @return the model
+   */
+  public static G2ppPiecewiseConstantDeterministicSpreadParameters of(
+      G2ppPiecewiseConstantParameters g2ppParameters,
+      List<LocalDate> iborDates,
+      OvernightIndex overnightIndex,
+      IborIndex iborIndex,
+      RatesProvider multicurve,
+      double timeTolerance,
+      ReferenceData refData) {
+
+    int nbDates = iborDates.size();
+    double[] iborTimes = new double[nbDates];
+    for (int i = 0; i < nbDates; i++) {
+      iborTimes[i] = g2ppParameters.getTimeMeasure()
+          .relativeTime(g2ppParameters.getValuationDate(), iborDates.get(i));
+    }
+    double[] accrualFactors = new double[nbDates - 1];
+    double[] multiplicativeSpreads = new double[nbDates - 1];
+    for (int i = 0; i < nbDates - 1; i++) {
+      accrualFactors[i] = iborIndex.getDayCount().relativeYearFraction(iborDates.get(i), iborDates.get(i + 1));
+      LocalDate fixingDate = iborIndex.calculateFixingFromEffective(iborDates.get(i), refData);
+      IborIndexObservation obs = IborIndexObservation.of(iborIndex, fixingDate, refData);
+      double iborRate = multicurve.iborIndexRates(iborIndex).rate(obs);
+      double dfStart = multicurve.discountFactor(iborIndex.getCurrency(), obs.getEffectiveDate());
+      double dfEnd = multicurve.discountFactor(iborIndex.getCurrency(), obs.getMaturityDate());
+      multiplicativeSpreads[i] = (1.0 + accrualFactors[i] * iborRate) / (dfStart / dfEnd);
+    }
+    return G2ppPiecewiseConstantDeterministicSpreadParameters.builder()
+        .g2ppParameters(g2ppParameters)
+        .overnightIndex(overnightIndex)
+        .iborIndex(iborIndex)
+        .iborTimes(DoubleArray.ofUnsafe(iborTimes))
+        .accrualFactors(DoubleArray.ofUnsafe(accrualFactors))
+        .multiplicativeSpreads(DoubleArray.ofUnsafe(multiplicativeSpreads))
+        .timeTolerance(timeTolerance).build();
+  }
+
+  @ImmutableValidator
+  private void validate() {
+    ArgChecker.isTrue(g2ppParameters.getCurrency().equals(overnightIndex.getCurrency()),
+        "overnightIndex and G2++ parameters must have the same currency");
+    ArgChecker.isTrue(overnightIndex.getCurrency().equals(iborIndex.getCurrency()),
+        "iborIndex and overnightIndex must have the same currency");
+    ArgChecker.isTrue(accrualFactors.size() == iborTimes.size() - 1,
+        "number of accrual factors must be equal to number of periods");
+    ArgChecker.isTrue(accrualFactors.size() == multiplicativeSpreads.size(),
+        "number of accrual factors must be equal to number of spreads");
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Currency getCurrency() {
+    return g2ppParameters.getCurrency();
+  }
+
+  @Override
+  public ZonedDateTime getValuationDateTime() {
+    return g2ppParameters.getValuationDateTime();
+  }
+
+  @Override
+  public double relativeTime(ZonedDateTime dateTime) {
+    return g2ppParameters.relativeTime(dateTime);
+  }
+
+  /**
+   * Returns the time between the valuation date and a given date.
+   * 
+   * @param date  the date
+   * @return the time
+   */
+  public double relativeTime(LocalDate date) {
+    return g2ppParameters.getTimeMeasure().relativeTime(g2ppParameters.getValuationDate(), date);
+  }
+
+  /**
+   * Returns the number of periods between the dates of the model.
+   * 
+   * @return the number of periods
+   */
+  public int getIborPeriodsCount() {
+    return accrualFactors.size();
+  }
+
+  /**
+   * The indices in the ibor times corresponding to the input times.
+   * <p>
+   * The relevant Ibor time is the first one larger than the (input time minus the time tolerance).
+   * 
+   * @param times  the times for which the indices are requested
+   * @return the indices
+   */
+  public int[] getIborTimeIndex(double[] times) {
+    int nbTimes = times.length;
+    int[] timeIndices = new int[nbTimes];
+    for (int i = 0; i < nbTimes; i++) {
+      int index = Arrays.binarySearch(iborTimes.toArrayUnsafe(), times[i] - timeTolerance);
+      timeIndices[i] = (index >= 0) ? index : -index - 1;
+    }
+    return timeIndices;
+  }
+
+  /**
+   * Returns the IBOR rate on a given period from the discount factors at the start and end of the period.
+   * <p>
+   * The discount factors can be rebased by a common numeraire.
+   * 
+   * @param discountFactorStart  the discount factor at the start of the period
+   * @param discountFactorEnd  the discount factor at the end of the period
+   * @param index  the index of the period
+   * @return the IBOR rate
+   */
+  public double iborRateFromDiscountFactors(double discountFactorStart, double discountFactorEnd, int index) {
+    return (multiplicativeSpreads.get(index) * discountFactorStart / discountFactorEnd - 1.0d)
+        / accrualFactors.get(index);
+  }
+
+  @Override
+  public int getParameterCount() {
+    return g2ppParameters.getParameterCount();
+  }
+
+  @Override
+  public double getParameter(int parameterIndex) {
+    return g2ppParameters.getParameter(parameterIndex);
+  }
+
+  @Override
+  public ParameterMetadata getParameterMetadata(int parameterIndex) {
+    return g2ppParameters.getParameterMetadata(parameterIndex);
+  }
+
+  @Override
+  public G2ppPiecewiseConstantDeterministicSpreadParameters withParameter(int parameterIndex, double newValue) {
+    return this.toBuilder().g2ppParameters(g2ppParameters.withParameter(parameterIndex, newValue)).build();
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code G2ppPiecewiseConstantDeterministicSpreadParameters}.
+   * @return the meta-bean, not null
+   */
+  public static G2ppPiecewiseConstantDeterministicSpreadParameters.Meta meta() {
+    return G2ppPiecewiseConstantDeterministicSpreadParameters.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(G2ppPiecewiseConstantDeterministicSpreadParameters.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static G2ppPiecewiseConstantDeterministicSpreadParameters.Builder builder() {
+    return new G2ppPiecewiseConstantDeterministicSpreadParameters.Builder();
+  }
+
+  private G2ppPiecewiseConstantDeterministicSpreadParameters(
+      G2ppPiecewiseConstantParameters g2ppParameters,
+      OvernightIndex overnightIndex,
+      IborIndex iborIndex,
+      DoubleArray iborTimes,
+      DoubleArray accrualFactors,
+      DoubleArray multiplicativeSpreads,
+      double timeTolerance) {
+    JodaBeanUtils.notNull(g2ppParameters, "g2ppParameters");
+    JodaBeanUtils.notNull(overnightIndex, "overnightIndex");
+    JodaBeanUtils.notNull(iborIndex, "iborIndex");
+    JodaBeanUtils.notNull(iborTimes, "iborTimes");
+    JodaBeanUtils.notNull(accrualFactors, "accrualFactors");
+    JodaBeanUtils.notNull(multiplicativeSpreads, "multiplicativeSpreads");
+    this.g2ppParameters = g2ppParameters;
+    this.overnightIndex = overnightIndex;
+    this.iborIndex = iborIndex;
+    this.iborTimes = iborTimes;
+    this.accrualFactors = accrualFactors;
+    this.multiplicativeSpreads = multiplicativeSpreads;
+    this.timeTolerance = timeTolerance;
+    validate();
+  }
+
+  @Override
+  public G2ppPiecewiseConstantDeterministicSpreadParameters.Meta metaBean() {
+    return G2ppPiecewiseConstantDeterministicSpreadParameters.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the G2++ model parameters, including the valuation date and the time measure.
+   * @return the value of the property, not null
+   */
+  public G2ppPiecewiseConstantParameters getG2ppParameters() {
+    return g2ppParameters;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the overnight index represented by the discounting curve.
+   * @return the value of the property, not null
+   */
+  public OvernightIndex getOvernightIndex() {
+    return overnightIndex;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the IBOR index modeled by the multiplicative spreads.
+   * @return the value of the property, not null
+   */
+  public IborIndex getIborIndex() {
+    return iborIndex;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the times of the dates on which the discount factors are simulated. In increasing order.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getIborTimes() {
+    return iborTimes;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the accrual factors for the periods between the dates.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getAccrualFactors() {
+    return accrualFactors;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the multiplicative spread between the forward discounting rates and the forward IBOR rates.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getMultiplicativeSpreads() {
+    return multiplicativeSpreads;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the time tolerance to indicate that two dates are equal.
+   * @return the value of the property
+   */
+  public double getTimeTolerance() {
+    return timeTolerance;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      G2ppPiecewiseConstantDeterministicSpreadParameters other = (G2ppPiecewiseConstantDeterministicSpreadParameters) obj;
+      return JodaBeanUtils.equal(g2ppParameters, other.g2ppParameters) &&
+          JodaBeanUtils.equal(overnightIndex, other.overnightIndex) &&
+          JodaBeanUtils.equal(iborIndex, other.iborIndex) &&
+          JodaBeanUtils.equal(iborTimes, other.iborTimes) &&
+          JodaBeanUtils.equal(accrualFactors, other.accrualFactors) &&
+          JodaBeanUtils.equal(multiplicativeSpreads, other.multiplicativeSpreads) &&
+          JodaBeanUtils.equal(timeTolerance, other.timeTolerance);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(g2ppParameters);
+    hash = hash * 31 + JodaBeanUtils.hashCode(overnightIndex);
+    hash = hash * 31 + JodaBeanUtils.hashCode(iborIndex);
+    hash = hash * 31 + JodaBeanUtils.hashCode(iborTimes);
+    hash = hash * 31 + JodaBeanUtils.hashCode(accrualFactors);
+    hash = hash * 31 + JodaBeanUtils.hashCode(multiplicativeSpreads);
+    hash = hash * 31 + JodaBeanUtils.hashCode(timeTolerance);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(256);
+    buf.append("G2ppPiecewiseConstantDeterministicSpreadParameters{");
+    buf.append("g2ppParameters").append('=').append(JodaBeanUtils.toString(g2ppParameters)).append(',').append(' ');
+    buf.append("overnightIndex").append('=').append(JodaBeanUtils.toString(overnightIndex)).append(',').append(' ');
+    buf.append("iborIndex").append('=').append(JodaBeanUtils.toString(iborIndex)).append(',').append(' ');
+    buf.append("iborTimes").append('=').append(JodaBeanUtils.toString(iborTimes)).append(',').append(' ');
+    buf.append("accrualFactors").append('=').append(JodaBeanUtils.toString(accrualFactors)).append(',').append(' ');
+    buf.append("multiplicativeSpreads").append('=').append(JodaBeanUtils.toString(multiplicativeSpreads)).append(',').append(' ');
+    buf.append("timeTolerance").append('=').append(JodaBeanUtils.toString(timeTolerance));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code G2ppPiecewiseConstantDeterministicSpreadParameters}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code g2ppParameters} property.
+     */
+    private final MetaProperty<G2ppPiecewiseConstantParameters> g2ppParameters = DirectMetaProperty.ofImmutable(
+        this, "g2ppParameters", G2ppPiecewiseConstantDeterministicSpreadParameters.class, G2ppPiecewiseConstantParameters.class);
+    /**
+     * The meta-property for the {@code overnightIndex} property.
+     */
+    private final MetaProperty<OvernightIndex> overnightIndex = DirectMetaProperty.ofImmutable(
+        this, "overnightIndex", G2ppPiecewiseConstantDeterministicSpreadParameters.class, OvernightIndex.class);
+    /**
+     * The meta-property for the {@code iborIndex} property.
+     */
+    private final MetaProperty<IborIndex> iborIndex = DirectMetaProperty.ofImmutable(
+        this, "iborIndex", G2ppPiecewiseConstantDeterministicSpreadParameters.class, IborIndex.class);
+    /**
+     * The meta-property for the {@code iborTimes} property.
+     */
+    private final MetaProperty<DoubleArray> iborTimes = DirectMetaProperty.ofImmutable(
+        this, "iborTimes", G2ppPiecewiseConstantDeterministicSpreadParameters.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code accrualFactors} property.
+     */
+    private final MetaProperty<DoubleArray> accrualFactors = DirectMetaProperty.ofImmutable(
+        this, "accrualFactors", G2ppPiecewiseConstantDeterministicSpreadParameters.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code multiplicativeSpreads} property.
+     */
+    private final MetaProperty<DoubleArray> multiplicativeSpreads = DirectMetaProperty.ofImmutable(
+        this, "multiplicativeSpreads", G2ppPiecewiseConstantDeterministicSpreadParameters.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code timeTolerance} property.
+     */
+    private final MetaProperty<Double> timeTolerance = DirectMetaProperty.ofImmutable(
+        this, "timeTolerance", G2ppPiecewiseConstantDeterministicSpreadParameters.class, Double.TYPE);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "g2ppParameters",
+        "overnightIndex",
+        "iborIndex",
+        "iborTimes",
+        "accrualFactors",
+        "multiplicativeSpreads",
+        "timeTolerance");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case -1983672267:  // g2ppParameters
+          return g2ppParameters;
+        case 292087662:  // overnightIndex
+          return overnightIndex;
+        case 1255740790:  // iborIndex
+          return iborIndex;
+        case 1265759210:  // iborTimes
+          return iborTimes;
+        case -505352107:  // accrualFactors
+          return accrualFactors;
+        case 1919950890:  // multiplicativeSpreads
+          return multiplicativeSpreads;
+        case -1231350848:  // timeTolerance
+          return timeTolerance;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public G2ppPiecewiseConstantDeterministicSpreadParameters.Builder builder() {
+      return new G2ppPiecewiseConstantDeterministicSpreadParameters.Builder();
+    }
+
+    @Override
+    public Class<? extends G2ppPiecewiseConstantDeterministicSpreadParameters> beanType() {
+      return G2ppPiecewiseConstantDeterministicSpreadParameters.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code g2ppParameters} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<G2ppPiecewiseConstantParameters> g2ppParameters() {
+      return g2ppParameters;
+    }
+
+    /**
+     * The meta-property for the {@code overnightIndex} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<OvernightIndex> overnightIndex() {
+      return overnightIndex;
+    }
+
+    /**
+     * The meta-property for the {@code iborIndex} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<IborIndex> iborIndex() {
+      return iborIndex;
+    }
+
+    /**
+     * The meta-property for the {@code iborTimes} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> iborTimes() {
+      return iborTimes;
+    }
+
+    /**
+     * The meta-property for the {@code accrualFactors} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> accrualFactors() {
+      return accrualFactors;
+    }
+
+    /**
+     * The meta-property for the {@code multiplicativeSpreads} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> multiplicativeSpreads() {
+      return multiplicativeSpreads;
+    }
+
+    /**
+     * The meta-property for the {@code timeTolerance} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Double> timeTolerance() {
+      return timeTolerance;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case -1983672267:  // g2ppParameters
+          return ((G2ppPiecewiseConstantDeterministicSpreadParameters) bean).getG2ppParameters();
+        case 292087662:  // overnightIndex
+          return ((G2ppPiecewiseConstantDeterministicSpreadParameters) bean).getOvernightIndex();
+        case 1255740790:  // iborIndex
+          return ((G2ppPiecewiseConstantDeterministicSpreadParameters) bean).getIborIndex();
+        case 1265759210:  // iborTimes
+          return ((G2ppPiecewiseConstantDeterministicSpreadParameters) bean).getIborTimes();
+        case -505352107:  // accrualFactors
+          return ((G2ppPiecewiseConstantDeterministicSpreadParameters) bean).getAccrualFactors();
+        case 1919950890:  // multiplicativeSpreads
+          return ((G2ppPiecewiseConstantDeterministicSpreadParameters) bean).getMultiplicativeSpreads();
+        case -1231350848:  // timeTolerance
+          return ((G2ppPiecewiseConstantDeterministicSpreadParameters) bean).getTimeTolerance();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code G2ppPiecewiseConstantDeterministicSpreadParameters}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<G2ppPiecewiseConstantDeterministicSpreadParameters> {
+
+    private G2ppPiecewiseConstantParameters g2ppParameters;
+    private OvernightIndex overnightIndex;
+    private IborIndex iborIndex;
+    private DoubleArray iborTimes;
+    private DoubleArray accrualFactors;
+    private DoubleArray multiplicativeSpreads;
+    private double timeTolerance;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(G2ppPiecewiseConstantDeterministicSpreadParameters beanToCopy) {
+      this.g2ppParameters = beanToCopy.getG2ppParameters();
+      this.overnightIndex = beanToCopy.getOvernightIndex();
+      this.iborIndex = beanToCopy.getIborIndex();
+      this.iborTimes = beanToCopy.getIborTimes();
+      this.accrualFactors = beanToCopy.getAccrualFactors();
+      this.multiplicativeSpreads = beanToCopy.getMultiplicativeSpreads();
+      this.timeTolerance = beanToCopy.getTimeTolerance();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case -1983672267:  // g2ppParameters
+          return g2ppParameters;
+        case 292087662:  // overnightIndex
+          return overnightIndex;
+        case 1255740790:  // iborIndex
+          return iborIndex;
+        case 1265759210:  // iborTimes
+          return iborTimes;
+        case -505352107:  // accrualFactors
+          return accrualFactors;
+        case 1919950890:  // multiplicativeSpreads
+          return multiplicativeSpreads;
+        case -1231350848:  // timeTolerance
+          return timeTolerance;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case -1983672267:  // g2ppParameters
+          this.g2ppParameters = (G2ppPiecewiseConstantParameters) newValue;
+          break;
+        case 292087662:  // overnightIndex
+          this.overnightIndex = (OvernightIndex) newValue;
+          break;
+        case 1255740790:  // iborIndex
+          this.iborIndex = (IborIndex) newValue;
+          break;
+        case 1265759210:  // iborTimes
+          this.iborTimes = (DoubleArray) newValue;
+          break;
+        case -505352107:  // accrualFactors
+          this.accrualFactors = (DoubleArray) newValue;
+          break;
+        case 1919950890:  // multiplicativeSpreads
+          this.multiplicativeSpreads = (DoubleArray) newValue;
+          break;
+        case -1231350848:  // timeTolerance
+          this.timeTolerance = (Double) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public G2ppPiecewiseConstantDeterministicSpreadParameters build() {
+      return new G2ppPiecewiseConstantDeterministicSpreadParameters(
+          g2ppParameters,
+          overnightIndex,
+          iborIndex,
+          iborTimes,
+          accrualFactors,
+          multiplicativeSpreads,
+          timeTolerance);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the G2++ model parameters, including the valuation date and the time measure.
+     * @param g2ppParameters  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder g2ppParameters(G2ppPiecewiseConstantParameters g2ppParameters) {
+      JodaBeanUtils.notNull(g2ppParameters, "g2ppParameters");
+      this.g2ppParameters = g2ppParameters;
+      return this;
+    }
+
+    /**
+     * Sets the overnight index represented by the discounting curve.
+     * @param overnightIndex  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder overnightIndex(OvernightIndex overnightIndex) {
+      JodaBeanUtils.notNull(overnightIndex, "overnightIndex");
+      this.overnightIndex = overnightIndex;
+      return this;
+    }
+
+    /**
+     * Sets the IBOR index modeled by the multiplicative spreads.
+     * @param iborIndex  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder iborIndex(IborIndex iborIndex) {
+      JodaBeanUtils.notNull(iborIndex, "iborIndex");
+      this.iborIndex = iborIndex;
+      return this;
+    }
+
+    /**
+     * Sets the times of the dates on which the discount factors are simulated. In increasing order.
+     * @param iborTimes  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder iborTimes(DoubleArray iborTimes) {
+      JodaBeanUtils.notNull(iborTimes, "iborTimes");
+      this.iborTimes = iborTimes;
+      return this;
+    }
+
+    /**
+     * Sets the accrual factors for the periods between the dates.
+     * @param accrualFactors  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder accrualFactors(DoubleArray accrualFactors) {
+      JodaBeanUtils.notNull(accrualFactors, "accrualFactors");
+      this.accrualFactors = accrualFactors;
+      return this;
+    }
+
+    /**
+     * Sets the multiplicative spread between the forward discounting rates and the forward IBOR rates.
+     * @param multiplicativeSpreads  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder multiplicativeSpreads(DoubleArray multiplicativeSpreads) {
+      JodaBeanUtils.notNull(multiplicativeSpreads, "multiplicativeSpreads");
+      this.multiplicativeSpreads = multiplicativeSpreads;
+      return this;
+    }
+
+    /**
+     * Sets the time tolerance to indicate that two dates are equal.
+     * @param timeTolerance  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder timeTolerance(double timeTolerance) {
+      this.timeTolerance = timeTolerance;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(256);
+      buf.append("G2ppPiecewiseConstantDeterministicSpreadParameters.Builder{");
+      buf.append("g2ppParameters").append('=').append(JodaBeanUtils.toString(g2ppParameters)).append(',').append(' ');
+      buf.append("overnightIndex").append('=').append(JodaBeanUtils.toString(overnightIndex)).append(',').append(' ');
+      buf.append("iborIndex").append('=').append(JodaBeanUtils.toString(iborIndex)).append(',').append(' ');
+      buf.append("iborTimes").append('=').append(JodaBeanUtils.toString(iborTimes)).append(',').append(' ');
+      buf.append("accrualFactors").append('=').append(JodaBeanUtils.toString(accrualFactors)).append(',').append(' ');
+      buf.append("multiplicativeSpreads").append('=').append(JodaBeanUtils.toString(multiplicativeSpreads)).append(',').append(' ');
+      buf.append("timeTolerance").append('=').append(JodaBeanUtils.toString(timeTolerance));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
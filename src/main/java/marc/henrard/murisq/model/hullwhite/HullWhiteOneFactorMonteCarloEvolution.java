@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.hullwhite;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParameters;
+
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBufferHeap;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloStepConsumer;
+
+/**
+ * Method to generate Monte Carlo paths for a Hull-White one-factor model with piecewise constant volatility.
+ * <p>
+ * See the details of the model parameters in {@link HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters}.
+ * <p>
+ * The short rate is r(t) = f(0,t) + m(t) + x(t) where x is the zero-mean Ornstein-Uhlenbeck process and m is the
+ * model part of the mean. The state variables are x and its integral J. They are jointly normal and their
+ * evolution between two steps is exact for piecewise constant volatilities: there is no discretisation error
+ * and only one jump is required between two steps whatever their length.
+ * <p>
+ * The numeraire is the cash account N(t) = exp(int_0^t r(s) ds). The output at each step are the numeraire
+ * rebased discount factors P(t,T_k)/N(t) for all the dates T_k of the model. Those values are martingales.
+ * The initial values are the discount factors P(0,T_k), stored in the overnight rates of the multi-curve
+ * equivalent values, and the initial value of the numeraire is 1.
+ * <p>
+ * Only the dates of the model after the step date are relevant; the values for the dates before are computed
+ * with the same formula but have no financial meaning.
+ *
+ * @author Marc Henrard
+ */
+public final class HullWhiteOneFactorMonteCarloEvolution {
+
+  /** Default instance */
+  public static final HullWhiteOneFactorMonteCarloEvolution DEFAULT = new HullWhiteOneFactorMonteCarloEvolution();
+
+  // Private constructor
+  private HullWhiteOneFactorMonteCarloEvolution() {
+  }
+
+  /**
+   * Evolves according to a model starting values up to the decision date.
+   *
+   * @param stepDateTime  the date and time of the step
+   * @param initialValues  the initial discount factors on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the rebased discount factors at the decision date described in the multi-curve equivalent
+   */
+  public List<MulticurveEquivalentValues> evolveOneStep(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    return evolveOneStepPaths(stepDateTime, initialValues, model, numberGenerator, nbPaths).toValues();
+  }
+
+  /**
+   * Evolves according to a model starting values up to the decision date and returns the rebased discount factors
+   * in a path buffer.
+   *
+   * @param stepDateTime  the date and time of the step
+   * @param initialValues  the initial discount factors on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the rebased discount factors at the decision date, dimensions: model dates x paths
+   */
+  public MonteCarloPathBuffer evolveOneStepPaths(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    double[] stepTimes = new double[] {model.relativeTime(stepDateTime)};
+    double[][][] result = new double[1][][];
+    pathGeneratorDiscountFactors(stepTimes, initialValues.getOnRates().toArrayUnsafe(), model, numberGenerator,
+        nbPaths, (step, values) -> result[0] = values);
+    return MonteCarloPathBufferHeap.ofUnsafe(result[0]);
+  }
+
+  /**
+   * Evolves according to a model starting values up to the different decision dates.
+   *
+   * @param stepDateTimes  the dates and times of each step
+   * @param initialValues  the initial discount factors on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the rebased discount factors at the decision dates described in the multi-curve equivalent,
+   *   dimensions nbPaths x nbSteps
+   */
+  public List<List<MulticurveEquivalentValues>> evolveMultiSteps(
+      List<ZonedDateTime> stepDateTimes,
+      MulticurveEquivalentValues initialValues,
+      HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    int nbSteps = stepDateTimes.size();
+    int nbDates = model.getIborTimes().size();
+    List<List<MulticurveEquivalentValues>> paths = new ArrayList<>();
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      paths.add(new ArrayList<>(nbSteps));
+    }
+    evolveMultiStepsStreaming(stepDateTimes, initialValues, model, numberGenerator, nbPaths,
+        (step, values) -> {
+          for (int looppath = 0; looppath < nbPaths; looppath++) {
+            double[] dfs = new double[nbDates];
+            for (int i = 0; i < nbDates; i++) {
+              dfs[i] = values[i][looppath];
+            }
+            paths.get(looppath).add(MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(dfs)).build());
+          }
+        });
+    return paths;
+  }
+
+  /**
+   * Evolves according to a model starting values up to the different decision dates and passes the rebased
+   * discount factors at each decision date to a consumer.
+   * <p>
+   * The streaming version of {@link #evolveMultiSteps}: the random numbers are the same and the values
+   * passed to the consumer at each step are the ones returned by that method, but only the running state is stored.
+   *
+   * @param stepDateTimes  the dates and times of each step
+   * @param initialValues  the initial discount factors on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the rebased discount factors at each step, dimensions: model dates x paths
+   */
+  public void evolveMultiStepsStreaming(
+      List<ZonedDateTime> stepDateTimes,
+      MulticurveEquivalentValues initialValues,
+      HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    int nbSteps = stepDateTimes.size();
+    double[] stepTimes = new double[nbSteps];
+    for (int i = 0; i < nbSteps; i++) {
+      stepTimes[i] = model.relativeTime(stepDateTimes.get(i));
+    }
+    pathGeneratorDiscountFactors(stepTimes, initialValues.getOnRates().toArrayUnsafe(), model, numberGenerator,
+        nbPaths, consumer);
+  }
+
+  /**
+   * Generates the paths of the rebased discount factors and passes them to a consumer at each step.
+   * <p>
+   * For each step, two vectors of random numbers are drawn from the generator: the first one for the short rate
+   * and the second one for its integral. A new array is passed to the consumer for each step.
+   *
+   * @param stepTimes  the required step times, today is represented by 0, the times must be positive and in
+   *   increasing order
+   * @param initialDiscountFactors  the discount factors P(0,T_k) on the model dates
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the rebased discount factors at each step, dimensions: model dates x paths
+   */
+  public void pathGeneratorDiscountFactors(
+      double[] stepTimes,
+      double[] initialDiscountFactors,
+      HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    HullWhiteOneFactorPiecewiseConstantParameters hw = model.getHullWhiteParameters();
+    double kappa = hw.getMeanReversion();
+    double[] dateTimes = model.getIborTimes().toArrayUnsafe();
+    int nbDates = dateTimes.length;
+    ArgChecker.isTrue(initialDiscountFactors.length == nbDates,
+        "initial discount factors must have the same size as the model dates");
+    pathGeneratorStates(stepTimes, hw, numberGenerator, nbPaths,
+        (step, states) -> {
+          double time = stepTimes[step];
+          double[] x = states[0];
+          double[] j = states[1];
+          // Rebased discount factors: P(0,T) exp(-J - VJ/2 - B(t,T) (x + m) - B(t,T)^2 y / 2)
+          double[] cov0 = HullWhiteOneFactorPiecewiseConstantMonteCarloUtils.stepCovariance(hw, 0.0d, time);
+          double[][] dfs = new double[nbDates][nbPaths];
+          for (int loopdate = 0; loopdate < nbDates; loopdate++) {
+            double b = (1.0d - Math.exp(-kappa * (dateTimes[loopdate] - time))) / kappa;
+            double factor = initialDiscountFactors[loopdate]
+                * Math.exp(-0.5d * cov0[2] - b * cov0[1] - 0.5d * b * b * cov0[0]);
+            for (int looppath = 0; looppath < nbPaths; looppath++) {
+              dfs[loopdate][looppath] = factor * Math.exp(-j[looppath] - b * x[looppath]);
+            }
+          }
+          consumer.accept(step, dfs);
+        });
+  }
+
+  /**
+   * Generates the paths of the state variables (x, J) and passes them to a consumer at each step.
+   * <p>
+   * For each step, two vectors of random numbers are drawn from the generator: the first one for the short rate
+   * and the second one for its integral. The arrays passed to the consumer are the running state of the
+   * evolution: index 0 is x and index 1 is J. Any quantity of the model at the step, like discount factors for
+   * any maturity or the numeraire, is an explicit function of those two states.
+   *
+   * @param stepTimes  the required step times, today is represented by 0, the times must be positive and in
+   *   increasing order
+   * @param hw  the Hull-White model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the states at each step, dimensions: 2 x paths
+   */
+  public void pathGeneratorStates(
+      double[] stepTimes,
+      HullWhiteOneFactorPiecewiseConstantParameters hw,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    double kappa = hw.getMeanReversion();
+    double[] x = new double[nbPaths];
+    double[] j = new double[nbPaths];
+    double[][] states = new double[][] {x, j};
+    double timePrevious = 0.0d;
+    for (int loopstep = 0; loopstep < stepTimes.length; loopstep++) {
+      double time = stepTimes[loopstep];
+      ArgChecker.isTrue(time >= timePrevious, "step times must be positive and in increasing order");
+      // Exact evolution of (x, J) with Cholesky decomposition of the step covariance
+      double[] cov = HullWhiteOneFactorPiecewiseConstantMonteCarloUtils.stepCovariance(hw, timePrevious, time);
+      double decay = Math.exp(-kappa * (time - timePrevious));
+      double bStep = (1.0d - decay) / kappa;
+      double stdX = Math.sqrt(cov[0]);
+      double l21 = (stdX > 0.0d) ? cov[1] / stdX : 0.0d;
+      double l22 = Math.sqrt(Math.max(0.0d, cov[2] - l21 * l21));
+      double[] z1 = numberGenerator.getVector(nbPaths);
+      double[] z2 = numberGenerator.getVector(nbPaths);
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        j[looppath] += bStep * x[looppath] + l21 * z1[looppath] + l22 * z2[looppath];
+        x[looppath] = decay * x[looppath] + stdX * z1[looppath];
+      }
+      consumer.accept(loopstep, states);
+      timePrevious = time;
+    }
+  }
+
+  /**
+   * Returns the number of random dimensions used in the path generation for one path.
+   * <p>
+   * Two dimensions are used for each step: one for the short rate and one for its integral.
+   *
+   * @param stepTimes  the required step times, the times must be positive and in increasing order
+   * @return the number of dimensions
+   */
+  public int randomDimension(double[] stepTimes) {
+    return 2 * stepTimes.length;
+  }
+
+}
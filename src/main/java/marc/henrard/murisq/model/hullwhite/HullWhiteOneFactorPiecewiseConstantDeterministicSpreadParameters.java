@@ -0,0 +1,1040 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.hullwhite;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.ImmutableValidator;
+import org.joda.beans.gen.PropertyDefinition;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.index.IborIndex;
+import com.opengamma.strata.basics.index.IborIndexObservation;
+import com.opengamma.strata.basics.index.OvernightIndex;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.market.param.LabelParameterMetadata;
+import com.opengamma.strata.market.param.ParameterMetadata;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParameters;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+
+import marc.henrard.murisq.basics.time.TimeMeasurement;
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.joda.beans.Bean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+/**
+ * Hull-White one-factor model with piecewise constant volatility in the multi-curve framework, represented 
+ * on a set of dates for Monte Carlo simulations.
+ * <p>
+ * The dynamic is on the discounting curve; the IBOR rates on the periods between the dates are obtained by 
+ * deterministic multiplicative spreads, as in {@code LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters}.
+ * The discount factors are simulated on the dates of the model.
+ * <p>
+ * The model parameters are the mean reversion (parameter 0) and the volatilities (parameters 1 to n).
+ * 
+ * @author Marc Henrard
+ */
+@BeanDefinition
+public final class HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters
+    implements SingleCurrencyModelParameters, ImmutableBean, Serializable {
+
+  /** The overnight index represented by the discounting curve. */
+  @PropertyDefinition(validate = "notNull")
+  private final OvernightIndex overnightIndex;
+  /** The IBOR index modeled by the multiplicative spreads. */
+  @PropertyDefinition(validate = "notNull")
+  private final IborIndex iborIndex;
+  /** The valuation date. All data items in this environment are calibrated for this date. */
+  @PropertyDefinition(validate = "notNull")
+  private final LocalDate valuationDate;
+  /** The valuation time. All data items in this environment are calibrated for this time. */
+  @PropertyDefinition(validate = "notNull")
+  private final LocalTime valuationTime;
+  /** The valuation zone.*/
+  @PropertyDefinition(validate = "notNull")
+  private final ZoneId valuationZone;
+  /** The mechanism to measure time for time to expiry. */
+  @PropertyDefinition(validate = "notNull")
+  private final TimeMeasurement timeMeasure;
+  /** The Hull-White one-factor model parameters: mean reversion and piecewise constant volatility. */
+  @PropertyDefinition(validate = "notNull")
+  private final HullWhiteOneFactorPiecewiseConstantParameters hullWhiteParameters;
+  /** The times of the dates on which the discount factors are simulated. In increasing order. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray iborTimes;
+  /** The accrual factors for the periods between the dates. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray accrualFactors;
+  /** The multiplicative spread between the forward discounting rates and the forward IBOR rates. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray multiplicativeSpreads;
+  /** The time tolerance to indicate that two dates are equal. */
+  @PropertyDefinition
+  private final double timeTolerance;
+
+  /**
+   * Creates the model on a set of dates with the multiplicative spreads implied by a multi-curve framework.
+   * <p>
+   * The spread on each period is the ratio between the IBOR forward factor and the discounting forward factor 
+   * for the IBOR rate with effective date the start date of the period.
+   * 
+   * @param hullWhiteParameters  the Hull-White model parameters
+   * @param iborDates  the dates of the model
+   * @param overnightIndex  the overnight index
+   * @param iborIndex  the IBOR index
+   * @param timeMeasure  the time measure for the times in the model
+   * @param multicurve  the multi-curve used to compute the spreads
+   * @param valuationZone  the valuation zone
+   * @param valuationTime  the valuation time
+   * @param timeTolerance  the time tolerance to indicate that two dates are equal
+   * @param refData  the reference data with holidays
+   * @return the model
+   */
+  public static HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters of(
+      HullWhiteOneFactorPiecewiseConstantParameters hullWhiteParameters,
+      List<LocalDate> iborDates,
+      OvernightIndex overnightIndex,
+      IborIndex iborIndex,
+      TimeMeasurement timeMeasure,
+      RatesProvider multicurve,
+      ZoneId valuationZone,
+      LocalTime valuationTime,
+      double timeTolerance,
+      ReferenceData refData) {
+
+    LocalDate valuationDate = multicurve.getValuationDate();
+    int nbDates = iborDates.size();
+    double[] iborTimes = new double[nbDates];
+    for (int i = 0; i < nbDates; i++) {
+      iborTimes[i] = timeMeasure.relativeTime(valuationDate, iborDates.get(i));
+    }
+    double[] accrualFactors = new double[nbDates - 1];
+    double[] multiplicativeSpreads = new double[nbDates - 1];
+    for (int i = 0; i < nbDates - 1; i++) {
+      accrualFactors[i] = iborIndex.getDayCount().relativeYearFraction(iborDates.get(i), iborDates.get(i + 1));
+      LocalDate fixingDate = iborIndex.calculateFixingFromEffective(iborDates.get(i), refData);
+      IborIndexObservation obs = IborIndexObservation.of(iborIndex, fixingDate, refData);
+      double iborRate = multicurve.iborIndexRates(iborIndex).rate(obs);
+      double dfStart = multicurve.discountFactor(iborIndex.getCurrency(), obs.getEffectiveDate());
+      double dfEnd = multicurve.discountFactor(iborIndex.getCurrency(), obs.getMaturityDate());
+      multiplicativeSpreads[i] = (1.0 + accrualFactors[i] * iborRate) / (dfStart / dfEnd);
+    }
+    return HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.builder()
+        .overnightIndex(overnightIndex)
+        .iborIndex(iborIndex)
+        .valuationDate(valuationDate).valuationTime(valuationTime).valuationZone(valuationZone)
+        .timeMeasure(timeMeasure)
+        .hullWhiteParameters(hullWhiteParameters)
+        .iborTimes(DoubleArray.ofUnsafe(iborTimes))
+        .accrualFactors(DoubleArray.ofUnsafe(accrualFactors))
+        .multiplicativeSpreads(DoubleArray.ofUnsafe(multiplicativeSpreads))
+        .timeTolerance(timeTolerance).build();
+  }
+
+  @ImmutableValidator
+  private void validate() {
+    ArgChecker.isTrue(overnightIndex.getCurrency().equals(iborIndex.getCurrency()),
+        "iborIndex and overnightIndex must have the same currency");
+    ArgChecker.isTrue(accrualFactors.size() == iborTimes.size() - 1,
+        "number of accrual factors must be equal to number of periods");
+    ArgChecker.isTrue(accrualFactors.size() == multiplicativeSpreads.size(),
+        "number of accrual factors must be equal to number of spreads");
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Currency getCurrency() {
+    return overnightIndex.getCurrency();
+  }
+
+  @Override
+  public ZonedDateTime getValuationDateTime() {
+    return ZonedDateTime.of(valuationDate, valuationTime, valuationZone);
+  }
+
+  @Override
+  public double relativeTime(ZonedDateTime dateTime) {
+    return timeMeasure.relativeTime(getValuationDateTime(), dateTime);
+  }
+
+  /**
+   * Returns the number of periods between the dates of the model.
+   * 
+   * @return the number of periods
+   */
+  public int getIborPeriodsCount() {
+    return accrualFactors.size();
+  }
+
+  /**
+   * The indices in the ibor times corresponding to the input times.
+   * <p>
+   * The relevant Ibor time is the first one larger than the (input time minus the time tolerance).
+   * 
+   * @param times  the times for which the indices are requested
+   * @return the indices
+   */
+  public int[] getIborTimeIndex(double[] times) {
+    int nbTimes = times.length;
+    int[] timeIndices = new int[nbTimes];
+    for (int i = 0; i < nbTimes; i++) {
+      int index = Arrays.binarySearch(iborTimes.toArrayUnsafe(), times[i] - timeTolerance);
+      timeIndices[i] = (index >= 0) ? index : -index - 1;
+    }
+    return timeIndices;
+  }
+
+  /**
+   * Returns the IBOR rate on a given period from the discount factors at the start and end of the period.
+   * <p>
+   * The discount factors can be rebased by a common numeraire.
+   * 
+   * @param discountFactorStart  the discount factor at the start of the period
+   * @param discountFactorEnd  the discount factor at the end of the period
+   * @param index  the index of the period
+   * @return the IBOR rate
+   */
+  public double iborRateFromDiscountFactors(double discountFactorStart, double discountFactorEnd, int index) {
+    return (multiplicativeSpreads.get(index) * discountFactorStart / discountFactorEnd - 1.0d)
+        / accrualFactors.get(index);
+  }
+
+  @Override
+  public int getParameterCount() {
+    return 1 + hullWhiteParameters.getVolatility().size();
+  }
+
+  @Override
+  public double getParameter(int parameterIndex) {
+    ArgChecker.inRange(parameterIndex, 0, getParameterCount(), "parameterIndex");
+    if (parameterIndex == 0) {
+      return hullWhiteParameters.getMeanReversion();
+    }
+    return hullWhiteParameters.getVolatility().get(parameterIndex - 1);
+  }
+
+  @Override
+  public ParameterMetadata getParameterMetadata(int parameterIndex) {
+    ArgChecker.inRange(parameterIndex, 0, getParameterCount(), "parameterIndex");
+    if (parameterIndex == 0) {
+      return LabelParameterMetadata.of("meanReversion");
+    }
+    return LabelParameterMetadata.of("volatility-" + (parameterIndex - 1));
+  }
+
+  @Override
+  public HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters withParameter(
+      int parameterIndex,
+      double newValue) {
+
+    ArgChecker.inRange(parameterIndex, 0, getParameterCount(), "parameterIndex");
+    double meanReversion = hullWhiteParameters.getMeanReversion();
+    DoubleArray volatility = hullWhiteParameters.getVolatility();
+    if (parameterIndex == 0) {
+      meanReversion = newValue;
+    } else {
+      volatility = volatility.with(parameterIndex - 1, newValue);
+    }
+    DoubleArray volatilityTime = hullWhiteParameters.getVolatilityTime(); // with 0 and infinity added
+    HullWhiteOneFactorPiecewiseConstantParameters hwNew = HullWhiteOneFactorPiecewiseConstantParameters
+        .of(meanReversion, volatility, volatilityTime.subArray(1, volatilityTime.size() - 1));
+    return this.toBuilder().hullWhiteParameters(hwNew).build();
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters}.
+   * @return the meta-bean, not null
+   */
+  public static HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Meta meta() {
+    return HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Builder builder() {
+    return new HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Builder();
+  }
+
+  private HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters(
+      OvernightIndex overnightIndex,
+      IborIndex iborIndex,
+      LocalDate valuationDate,
+      LocalTime valuationTime,
+      ZoneId valuationZone,
+      TimeMeasurement timeMeasure,
+      HullWhiteOneFactorPiecewiseConstantParameters hullWhiteParameters,
+      DoubleArray iborTimes,
+      DoubleArray accrualFactors,
+      DoubleArray multiplicativeSpreads,
+      double timeTolerance) {
+    JodaBeanUtils.notNull(overnightIndex, "overnightIndex");
+    JodaBeanUtils.notNull(iborIndex, "iborIndex");
+    JodaBeanUtils.notNull(valuationDate, "valuationDate");
+    JodaBeanUtils.notNull(valuationTime, "valuationTime");
+    JodaBeanUtils.notNull(valuationZone, "valuationZone");
+    JodaBeanUtils.notNull(timeMeasure, "timeMeasure");
+    JodaBeanUtils.notNull(hullWhiteParameters, "hullWhiteParameters");
+    JodaBeanUtils.notNull(iborTimes, "iborTimes");
+    JodaBeanUtils.notNull(accrualFactors, "accrualFactors");
+    JodaBeanUtils.notNull(multiplicativeSpreads, "multiplicativeSpreads");
+    this.overnightIndex = overnightIndex;
+    this.iborIndex = iborIndex;
+    this.valuationDate = valuationDate;
+    this.valuationTime = valuationTime;
+    this.valuationZone = valuationZone;
+    this.timeMeasure = timeMeasure;
+    this.hullWhiteParameters = hullWhiteParameters;
+    this.iborTimes = iborTimes;
+    this.accrualFactors = accrualFactors;
+    this.multiplicativeSpreads = multiplicativeSpreads;
+    this.timeTolerance = timeTolerance;
+    validate();
+  }
+
+  @Override
+  public HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Meta metaBean() {
+    return HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the overnight index represented by the discounting curve.
+   * @return the value of the property, not null
+   */
+  public OvernightIndex getOvernightIndex() {
+    return overnightIndex;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the IBOR index modeled by the multiplicative spreads.
+   * @return the value of the property, not null
+   */
+  public IborIndex getIborIndex() {
+    return iborIndex;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the valuation date. All data items in this environment are calibrated for this date.
+   * @return the value of the property, not null
+   */
+  public LocalDate getValuationDate() {
+    return valuationDate;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the valuation time. All data items in this environment are calibrated for this time.
+   * @return the value of the property, not null
+   */
+  public LocalTime getValuationTime() {
+    return valuationTime;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the valuation zone.
+   * @return the value of the property, not null
+   */
+  public ZoneId getValuationZone() {
+    return valuationZone;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the mechanism to measure time for time to expiry.
+   * @return the value of the property, not null
+   */
+  public TimeMeasurement getTimeMeasure() {
+    return timeMeasure;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the Hull-White one-factor model parameters: mean reversion and piecewise constant volatility.
+   * @return the value of the property, not null
+   */
+  public HullWhiteOneFactorPiecewiseConstantParameters getHullWhiteParameters() {
+    return hullWhiteParameters;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the times of the dates on which the discount factors are simulated. In increasing order.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getIborTimes() {
+    return iborTimes;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the accrual factors for the periods between the dates.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getAccrualFactors() {
+    return accrualFactors;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the multiplicative spread between the forward discounting rates and the forward IBOR rates.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getMultiplicativeSpreads() {
+    return multiplicativeSpreads;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the time tolerance to indicate that two dates are equal.
+   * @return the value of the property
+   */
+  public double getTimeTolerance() {
+    return timeTolerance;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters other = (HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) obj;
+      return JodaBeanUtils.equal(overnightIndex, other.overnightIndex) &&
+          JodaBeanUtils.equal(iborIndex, other.iborIndex) &&
+          JodaBeanUtils.equal(valuationDate, other.valuationDate) &&
+          JodaBeanUtils.equal(valuationTime, other.valuationTime) &&
+          JodaBeanUtils.equal(valuationZone, other.valuationZone) &&
+          JodaBeanUtils.equal(timeMeasure, other.timeMeasure) &&
+          JodaBeanUtils.equal(hullWhiteParameters, other.hullWhiteParameters) &&
+          JodaBeanUtils.equal(iborTimes, other.iborTimes) &&
+          JodaBeanUtils.equal(accrualFactors, other.accrualFactors) &&
+          JodaBeanUtils.equal(multiplicativeSpreads, other.multiplicativeSpreads) &&
+          JodaBeanUtils.equal(timeTolerance, other.timeTolerance);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(overnightIndex);
+    hash = hash * 31 + JodaBeanUtils.hashCode(iborIndex);
+    hash = hash * 31 + JodaBeanUtils.hashCode(valuationDate);
+    hash = hash * 31 + JodaBeanUtils.hashCode(valuationTime);
+    hash = hash * 31 + JodaBeanUtils.hashCode(valuationZone);
+    hash = hash * 31 + JodaBeanUtils.hashCode(timeMeasure);
+    hash = hash * 31 + JodaBeanUtils.hashCode(hullWhiteParameters);
+    hash = hash * 31 + JodaBeanUtils.hashCode(iborTimes);
+    hash = hash * 31 + JodaBeanUtils.hashCode(accrualFactors);
+    hash = hash * 31 + JodaBeanUtils.hashCode(multiplicativeSpreads);
+    hash = hash * 31 + JodaBeanUtils.hashCode(timeTolerance);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(384);
+    buf.append("HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters{");
+    buf.append("overnightIndex").append('=').append(JodaBeanUtils.toString(overnightIndex)).append(',').append(' ');
+    buf.append("iborIndex").append('=').append(JodaBeanUtils.toString(iborIndex)).append(',').append(' ');
+    buf.append("valuationDate").append('=').append(JodaBeanUtils.toString(valuationDate)).append(',').append(' ');
+    buf.append("valuationTime").append('=').append(JodaBeanUtils.toString(valuationTime)).append(',').append(' ');
+    buf.append("valuationZone").append('=').append(JodaBeanUtils.toString(valuationZone)).append(',').append(' ');
+    buf.append("timeMeasure").append('=').append(JodaBeanUtils.toString(timeMeasure)).append(',').append(' ');
+    buf.append("hullWhiteParameters").append('=').append(JodaBeanUtils.toString(hullWhiteParameters)).append(',').append(' ');
+    buf.append("iborTimes").append('=').append(JodaBeanUtils.toString(iborTimes)).append(',').append(' ');
+    buf.append("accrualFactors").append('=').append(JodaBeanUtils.toString(accrualFactors)).append(',').append(' ');
+    buf.append("multiplicativeSpreads").append('=').append(JodaBeanUtils.toString(multiplicativeSpreads)).append(',').append(' ');
+    buf.append("timeTolerance").append('=').append(JodaBeanUtils.toString(timeTolerance));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code overnightIndex} property.
+     */
+    private final MetaProperty<OvernightIndex> overnightIndex = DirectMetaProperty.ofImmutable(
+        this, "overnightIndex", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, OvernightIndex.class);
+    /**
+     * The meta-property for the {@code iborIndex} property.
+     */
+    private final MetaProperty<IborIndex> iborIndex = DirectMetaProperty.ofImmutable(
+        this, "iborIndex", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, IborIndex.class);
+    /**
+     * The meta-property for the {@code valuationDate} property.
+     */
+    private final MetaProperty<LocalDate> valuationDate = DirectMetaProperty.ofImmutable(
+        this, "valuationDate", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, LocalDate.class);
+    /**
+     * The meta-property for the {@code valuationTime} property.
+     */
+    private final MetaProperty<LocalTime> valuationTime = DirectMetaProperty.ofImmutable(
+        this, "valuationTime", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, LocalTime.class);
+    /**
+     * The meta-property for the {@code valuationZone} property.
+     */
+    private final MetaProperty<ZoneId> valuationZone = DirectMetaProperty.ofImmutable(
+        this, "valuationZone", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, ZoneId.class);
+    /**
+     * The meta-property for the {@code timeMeasure} property.
+     */
+    private final MetaProperty<TimeMeasurement> timeMeasure = DirectMetaProperty.ofImmutable(
+        this, "timeMeasure", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, TimeMeasurement.class);
+    /**
+     * The meta-property for the {@code hullWhiteParameters} property.
+     */
+    private final MetaProperty<HullWhiteOneFactorPiecewiseConstantParameters> hullWhiteParameters = DirectMetaProperty.ofImmutable(
+        this, "hullWhiteParameters", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, HullWhiteOneFactorPiecewiseConstantParameters.class);
+    /**
+     * The meta-property for the {@code iborTimes} property.
+     */
+    private final MetaProperty<DoubleArray> iborTimes = DirectMetaProperty.ofImmutable(
+        this, "iborTimes", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code accrualFactors} property.
+     */
+    private final MetaProperty<DoubleArray> accrualFactors = DirectMetaProperty.ofImmutable(
+        this, "accrualFactors", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code multiplicativeSpreads} property.
+     */
+    private final MetaProperty<DoubleArray> multiplicativeSpreads = DirectMetaProperty.ofImmutable(
+        this, "multiplicativeSpreads", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code timeTolerance} property.
+     */
+    private final MetaProperty<Double> timeTolerance = DirectMetaProperty.ofImmutable(
+        this, "timeTolerance", HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class, Double.TYPE);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "overnightIndex",
+        "iborIndex",
+        "valuationDate",
+        "valuationTime",
+        "valuationZone",
+        "timeMeasure",
+        "hullWhiteParameters",
+        "iborTimes",
+        "accrualFactors",
+        "multiplicativeSpreads",
+        "timeTolerance");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 292087662:  // overnightIndex
+          return overnightIndex;
+        case 1255740790:  // iborIndex
+          return iborIndex;
+        case 113107279:  // valuationDate
+          return valuationDate;
+        case 113591406:  // valuationTime
+          return valuationTime;
+        case 113775949:  // valuationZone
+          return valuationZone;
+        case 1642109393:  // timeMeasure
+          return timeMeasure;
+        case -2124213274:  // hullWhiteParameters
+          return hullWhiteParameters;
+        case 1265759210:  // iborTimes
+          return iborTimes;
+        case -505352107:  // accrualFactors
+          return accrualFactors;
+        case 1919950890:  // multiplicativeSpreads
+          return multiplicativeSpreads;
+        case -1231350848:  // timeTolerance
+          return timeTolerance;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Builder builder() {
+      return new HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Builder();
+    }
+
+    @Override
+    public Class<? extends HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters> beanType() {
+      return HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code overnightIndex} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<OvernightIndex> overnightIndex() {
+      return overnightIndex;
+    }
+
+    /**
+     * The meta-property for the {@code iborIndex} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<IborIndex> iborIndex() {
+      return iborIndex;
+    }
+
+    /**
+     * The meta-property for the {@code valuationDate} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<LocalDate> valuationDate() {
+      return valuationDate;
+    }
+
+    /**
+     * The meta-property for the {@code valuationTime} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<LocalTime> valuationTime() {
+      return valuationTime;
+    }
+
+    /**
+     * The meta-property for the {@code valuationZone} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<ZoneId> valuationZone() {
+      return valuationZone;
+    }
+
+    /**
+     * The meta-property for the {@code timeMeasure} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<TimeMeasurement> timeMeasure() {
+      return timeMeasure;
+    }
+
+    /**
+     * The meta-property for the {@code hullWhiteParameters} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<HullWhiteOneFactorPiecewiseConstantParameters> hullWhiteParameters() {
+      return hullWhiteParameters;
+    }
+
+    /**
+     * The meta-property for the {@code iborTimes} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> iborTimes() {
+      return iborTimes;
+    }
+
+    /**
+     * The meta-property for the {@code accrualFactors} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> accrualFactors() {
+      return accrualFactors;
+    }
+
+    /**
+     * The meta-property for the {@code multiplicativeSpreads} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> multiplicativeSpreads() {
+      return multiplicativeSpreads;
+    }
+
+    /**
+     * The meta-property for the {@code timeTolerance} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Double> timeTolerance() {
+      return timeTolerance;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 292087662:  // overnightIndex
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getOvernightIndex();
+        case 1255740790:  // iborIndex
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getIborIndex();
+        case 113107279:  // valuationDate
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getValuationDate();
+        case 113591406:  // valuationTime
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getValuationTime();
+        case 113775949:  // valuationZone
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getValuationZone();
+        case 1642109393:  // timeMeasure
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getTimeMeasure();
+        case -2124213274:  // hullWhiteParameters
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getHullWhiteParameters();
+        case 1265759210:  // iborTimes
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getIborTimes();
+        case -505352107:  // accrualFactors
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getAccrualFactors();
+        case 1919950890:  // multiplicativeSpreads
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getMultiplicativeSpreads();
+        case -1231350848:  // timeTolerance
+          return ((HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) bean).getTimeTolerance();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters> {
+
+    private OvernightIndex overnightIndex;
+    private IborIndex iborIndex;
+    private LocalDate valuationDate;
+    private LocalTime valuationTime;
+    private ZoneId valuationZone;
+    private TimeMeasurement timeMeasure;
+    private HullWhiteOneFactorPiecewiseConstantParameters hullWhiteParameters;
+    private DoubleArray iborTimes;
+    private DoubleArray accrualFactors;
+    private DoubleArray multiplicativeSpreads;
+    private double timeTolerance;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters beanToCopy) {
+      this.overnightIndex = beanToCopy.getOvernightIndex();
+      this.iborIndex = beanToCopy.getIborIndex();
+      this.valuationDate = beanToCopy.getValuationDate();
+      this.valuationTime = beanToCopy.getValuationTime();
+      this.valuationZone = beanToCopy.getValuationZone();
+      this.timeMeasure = beanToCopy.getTimeMeasure();
+      this.hullWhiteParameters = beanToCopy.getHullWhiteParameters();
+      this.iborTimes = beanToCopy.getIborTimes();
+      this.accrualFactors = beanToCopy.getAccrualFactors();
+      this.multiplicativeSpreads = beanToCopy.getMultiplicativeSpreads();
+      this.timeTolerance = beanToCopy.getTimeTolerance();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 292087662:  // overnightIndex
+          return overnightIndex;
+        case 1255740790:  // iborIndex
+          return iborIndex;
+        case 113107279:  // valuationDate
+          return valuationDate;
+        case 113591406:  // valuationTime
+          return valuationTime;
+        case 113775949:  // valuationZone
+          return valuationZone;
+        case 1642109393:  // timeMeasure
+          return timeMeasure;
+        case -2124213274:  // hullWhiteParameters
+          return hullWhiteParameters;
+        case 1265759210:  // iborTimes
+          return iborTimes;
+        case -505352107:  // accrualFactors
+          return accrualFactors;
+        case 1919950890:  // multiplicativeSpreads
+          return multiplicativeSpreads;
+        case -1231350848:  // timeTolerance
+          return timeTolerance;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 292087662:  // overnightIndex
+          this.overnightIndex = (OvernightIndex) newValue;
+          break;
+        case 1255740790:  // iborIndex
+          this.iborIndex = (IborIndex) newValue;
+          break;
+        case 113107279:  // valuationDate
+          this.valuationDate = (LocalDate) newValue;
+          break;
+        case 113591406:  // valuationTime
+          this.valuationTime = (LocalTime) newValue;
+          break;
+        case 113775949:  // valuationZone
+          this.valuationZone = (ZoneId) newValue;
+          break;
+        case 1642109393:  // timeMeasure
+          this.timeMeasure = (TimeMeasurement) newValue;
+          break;
+        case -2124213274:  // hullWhiteParameters
+          this.hullWhiteParameters = (HullWhiteOneFactorPiecewiseConstantParameters) newValue;
+          break;
+        case 1265759210:  // iborTimes
+          this.iborTimes = (DoubleArray) newValue;
+          break;
+        case -505352107:  // accrualFactors
+          this.accrualFactors = (DoubleArray) newValue;
+          break;
+        case 1919950890:  // multiplicativeSpreads
+          this.multiplicativeSpreads = (DoubleArray) newValue;
+          break;
+        case -1231350848:  // timeTolerance
+          this.timeTolerance = (Double) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters build() {
+      return new HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters(
+          overnightIndex,
+          iborIndex,
+          valuationDate,
+          valuationTime,
+          valuationZone,
+          timeMeasure,
+          hullWhiteParameters,
+          iborTimes,
+          accrualFactors,
+          multiplicativeSpreads,
+          timeTolerance);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the overnight index represented by the discounting curve.
+     * @param overnightIndex  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder overnightIndex(OvernightIndex overnightIndex) {
+      JodaBeanUtils.notNull(overnightIndex, "overnightIndex");
+      this.overnightIndex = overnightIndex;
+      return this;
+    }
+
+    /**
+     * Sets the IBOR index modeled by the multiplicative spreads.
+     * @param iborIndex  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder iborIndex(IborIndex iborIndex) {
+      JodaBeanUtils.notNull(iborIndex, "iborIndex");
+      this.iborIndex = iborIndex;
+      return this;
+    }
+
+    /**
+     * Sets the valuation date. All data items in this environment are calibrated for this date.
+     * @param valuationDate  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder valuationDate(LocalDate valuationDate) {
+      JodaBeanUtils.notNull(valuationDate, "valuationDate");
+      this.valuationDate = valuationDate;
+      return this;
+    }
+
+    /**
+     * Sets the valuation time. All data items in this environment are calibrated for this time.
+     * @param valuationTime  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder valuationTime(LocalTime valuationTime) {
+      JodaBeanUtils.notNull(valuationTime, "valuationTime");
+      this.valuationTime = valuationTime;
+      return this;
+    }
+
+    /**
+     * Sets the valuation zone.
+     * @param valuationZone  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder valuationZone(ZoneId valuationZone) {
+      JodaBeanUtils.notNull(valuationZone, "valuationZone");
+      this.valuationZone = valuationZone;
+      return this;
+    }
+
+    /**
+     * Sets the mechanism to measure time for time to expiry.
+     * @param timeMeasure  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder timeMeasure(TimeMeasurement timeMeasure) {
+      JodaBeanUtils.notNull(timeMeasure, "timeMeasure");
+      this.timeMeasure = timeMeasure;
+      return this;
+    }
+
+    /**
+     * Sets the Hull-White one-factor model parameters: mean reversion and piecewise constant volatility.
+     * @param hullWhiteParameters  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder hullWhiteParameters(HullWhiteOneFactorPiecewiseConstantParameters hullWhiteParameters) {
+      JodaBeanUtils.notNull(hullWhiteParameters, "hullWhiteParameters");
+      this.hullWhiteParameters = hullWhiteParameters;
+      return this;
+    }
+
+    /**
+     * Sets the times of the dates on which the discount factors are simulated. In increasing order.
+     * @param iborTimes  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder iborTimes(DoubleArray iborTimes) {
+      JodaBeanUtils.notNull(iborTimes, "iborTimes");
+      this.iborTimes = iborTimes;
+      return this;
+    }
+
+    /**
+     * Sets the accrual factors for the periods between the dates.
+     * @param accrualFactors  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder accrualFactors(DoubleArray accrualFactors) {
+      JodaBeanUtils.notNull(accrualFactors, "accrualFactors");
+      this.accrualFactors = accrualFactors;
+      return this;
+    }
+
+    /**
+     * Sets the multiplicative spread between the forward discounting rates and the forward IBOR rates.
+     * @param multiplicativeSpreads  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder multiplicativeSpreads(DoubleArray multiplicativeSpreads) {
+      JodaBeanUtils.notNull(multiplicativeSpreads, "multiplicativeSpreads");
+      this.multiplicativeSpreads = multiplicativeSpreads;
+      return this;
+    }
+
+    /**
+     * Sets the time tolerance to indicate that two dates are equal.
+     * @param timeTolerance  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder timeTolerance(double timeTolerance) {
+      this.timeTolerance = timeTolerance;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(384);
+      buf.append("HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.Builder{");
+      buf.append("overnightIndex").append('=').append(JodaBeanUtils.toString(overnightIndex)).append(',').append(' ');
+      buf.append("iborIndex").append('=').append(JodaBeanUtils.toString(iborIndex)).append(',').append(' ');
+      buf.append("valuationDate").append('=').append(JodaBeanUtils.toString(valuationDate)).append(',').append(' ');
+      buf.append("valuationTime").append('=').append(JodaBeanUtils.toString(valuationTime)).append(',').append(' ');
+      buf.append("valuationZone").append('=').append(JodaBeanUtils.toString(valuationZone)).append(',').append(' ');
+      buf.append("timeMeasure").append('=').append(JodaBeanUtils.toString(timeMeasure)).append(',').append(' ');
+      buf.append("hullWhiteParameters").append('=').append(JodaBeanUtils.toString(hullWhiteParameters)).append(',').append(' ');
+      buf.append("iborTimes").append('=').append(JodaBeanUtils.toString(iborTimes)).append(',').append(' ');
+      buf.append("accrualFactors").append('=').append(JodaBeanUtils.toString(accrualFactors)).append(',').append(' ');
+      buf.append("multiplicativeSpreads").append('=').append(JodaBeanUtils.toString(multiplicativeSpreads)).append(',').append(' ');
+      buf.append("timeTolerance").append('=').append(JodaBeanUtils.toString(timeTolerance));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
@@ -53,4 +53,42 @@ public class HullWhiteOneFactorPiecewiseConstantMonteCarloUtils {
     return x;
   }
   
-}
+  /**
+   * Returns the covariance over a time step of the zero-mean part of the short rate and of its integral.
+   * <p>
+   * The zero-mean part x of the short rate and its integral J are jointly normal. Over a step from 
+   * start to end, x(end) = exp(-kappa (end-start)) x(start) + epsX and J(end) = J(start) + B(start,end) x(start) + epsJ
+   * with B(s,t) = (1 - exp(-kappa (t-s)))/kappa. The method returns the variance of epsX, the covariance 
+   * between epsX and epsJ and the variance of epsJ. With a start time 0, the values are the variance of x, 
+   * the model part of the mean of the short rate and the variance of the integral of x.
+   * 
+   * @param parameters  the Hull-White model parameters
+   * @param start  the start time of the step
+   * @param end  the end time of the step
+   * @return the variance of x, the covariance between x and J and the variance of J
+   */
+  public static double[] stepCovariance(
+      HullWhiteOneFactorPiecewiseConstantParameters parameters,
+      double start,
+      double end) {
+
+    double kappa = parameters.getMeanReversion();
+    double[] volTime = parameters.getVolatilityTime().toArrayUnsafe();
+    double[] vol = parameters.getVolatility().toArrayUnsafe();
+    double i0 = 0.0d; // integral of sigma^2
+    double i1 = 0.0d; // integral of sigma^2 exp(-kappa (end-u))
+    double i2 = 0.0d; // integral of sigma^2 exp(-2 kappa (end-u))
+    for (int loopvol = 0; loopvol < vol.length; loopvol++) {
+      double a = Math.max(start, volTime[loopvol]);
+      double b = Math.min(end, volTime[loopvol + 1]);
+      if (b > a) {
+        double sigma2 = vol[loopvol] * vol[loopvol];
+        i0 += sigma2 * (b - a);
+        i1 += sigma2 * (Math.exp(-kappa * (end - b)) - Math.exp(-kappa * (end - a))) / kappa;
+        i2 += sigma2 * (Math.exp(-2.0d * kappa * (end - b)) - Math.exp(-2.0d * kappa * (end - a))) / (2.0d * kappa);
+      }
+    }
+    return new double[] {i2, (i1 - i2) / kappa, (i0 - 2.0d * i1 + i2) / (kappa * kappa)};
+  }
+  
+}
\ No newline at end of file
@@ -13,13 +13,16 @@ import org.joda.beans.ImmutableBean;
 import org.joda.beans.gen.BeanDefinition;
 import org.joda.beans.gen.PropertyDefinition;
 
+import com.opengamma.strata.collect.ArgChecker;
 import com.opengamma.strata.collect.array.DoubleArray;
-import com.opengamma.strata.collect.array.DoubleMatrix;
-import com.opengamma.strata.math.impl.matrix.CommonsMatrixAlgebra;
-import com.opengamma.strata.math.impl.matrix.MatrixAlgebra;
 import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
 
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.BrownianBridge;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBufferHeap;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBufferOffHeap;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloStepConsumer;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import org.joda.beans.Bean;
@@ -49,11 +52,92 @@ public final class LiborMarketModelMonteCarloEvolution
   /** The maximum length of a jump in the path generation. */
   @PropertyDefinition
   private final double maxJump;
+  /**
+   * The flag indicating if the path buffers are stored off-heap.
+   * <p>
+   * The paths are always evolved in heap arrays, the flag only selects where the evolved values are stored.
+   * The peak heap usage of the evolution is not reduced.
+   */
+  @PropertyDefinition
+  private final boolean pathBufferOffHeap;
+  /**
+   * The flag indicating if the random numbers are used in Brownian bridge order.
+   * <p>
+   * When true, all the random numbers of a block are drawn before the evolution. For each factor, the Brownian
+   * motion on all the jump times is constructed by a Brownian bridge: the first random numbers drive the value at
+   * the last time, then at the middle time, etc. The random dimensions are allocated with the bridge steps first and
+   * the factors second. This is recommended with quasi-random numbers like {@code SobolNormalRandomNumberGenerator}.
+   */
+  @PropertyDefinition
+  private final boolean brownianBridge;
+  /**
+   * The flag indicating if the long-step scheme is used.
+   * <p>
+   * When true, the maximum jump is ignored and the evolution between two step times is done in one jump. 
+   * The covariance of the rates on the jump is integrated exactly for the time dependency of the volatilities 
+   * and the state dependent drift is frozen on the jump with a predictor-corrector adjustment using the same 
+   * integrated covariance. See {@link LiborMarketModelMonteCarloKernel}.
+   */
+  @PropertyDefinition
+  private final boolean longStep;
   
   /** Default instance */
   public static LiborMarketModelMonteCarloEvolution DEFAULT =
       LiborMarketModelMonteCarloEvolution.of(MAX_JUMP_DEFAULT);
   
+  /**
+   * Obtains an instance with the path buffers stored on the heap.
+   * 
+   * @param maxJump  the maximum length of a jump in the path generation
+   * @return the instance
+   */
+  public static LiborMarketModelMonteCarloEvolution of(double maxJump) {
+    return of(maxJump, false, false);
+  }
+  
+  /**
+   * Obtains an instance with the intermediary jumps scheme.
+   * 
+   * @param maxJump  the maximum length of a jump in the path generation
+   * @param pathBufferOffHeap  the flag indicating if the path buffers are stored off-heap
+   * @param brownianBridge  the flag indicating if the random numbers are used in Brownian bridge order
+   * @return the instance
+   */
+  public static LiborMarketModelMonteCarloEvolution of(
+      double maxJump,
+      boolean pathBufferOffHeap,
+      boolean brownianBridge) {
+
+    return of(maxJump, pathBufferOffHeap, brownianBridge, false);
+  }
+  
+  /**
+   * Obtains an instance with the long-step scheme and the path buffers stored on the heap.
+   * <p>
+   * One jump is used between two step times, e.g. one jump up to the expiry for European options.
+   * 
+   * @return the instance
+   */
+  public static LiborMarketModelMonteCarloEvolution ofLongStep() {
+    return of(MAX_JUMP_DEFAULT, false, false, true);
+  }
+  
+  /**
+   * Creates an evolution kernel for a model, with the numerical scheme of this evolution.
+   * <p>
+   * The kernel is intended to be created once for a pricing call, or for a block of paths computed in parallel,
+   * and used for all the blocks of that call. The methods of this class taking the model in place of a kernel
+   * create a kernel for each call.
+   * 
+   * @param model  the model parameters
+   * @return the kernel
+   */
+  public LiborMarketModelMonteCarloKernel kernel(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model) {
+
+    return LiborMarketModelMonteCarloKernel.of(model, longStep);
+  }
+
   /**
    * Evolves according to a model starting values up to the decision date.
    * <p>
@@ -75,27 +159,113 @@ public final class LiborMarketModelMonteCarloEvolution
       RandomNumberGenerator numberGenerator,
       int nbPaths) {
 
+    return evolveOneStepPaths(stepDateTime, initialValues, model, numberGenerator, nbPaths).toValues();
+  }
+  
+  /**
+   * Evolves according to a model starting values up to the decision date and returns the forward rates
+   * in a path buffer.
+   * <p>
+   * The pseudo-numeraire is implicitly the pseudo-discount factor associated to the last Ibor time.
+   * <p>
+   * The buffer is stored on the heap or off-heap according to the {@code pathBufferOffHeap} flag. The rates are
+   * evolved in place in heap arrays for all the paths and periods; the heap buffer wraps those arrays without copy
+   * and the off-heap buffer receives the rates period by period once the evolution is done. The off-heap buffer
+   * does not reduce the peak heap usage of the evolution, only the heap retained by the returned buffer.
+   * 
+   * @param stepDateTime  the date and time of the step
+   * @param startingValues  the initial values of the forward rates, must be compatible with the model
+   * @param model  the model parameters
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the forward rates at the decision date, dimensions: LMM periods x paths
+   */
+  public MonteCarloPathBuffer evolveOneStepPaths(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    return evolveOneStepPaths(stepDateTime, initialValues, kernel(model), numberGenerator, nbPaths);
+  }
+
+  /**
+   * Evolves according to a model starting values up to the decision date using a given evolution kernel and 
+   * returns the forward rates in a path buffer.
+   * <p>
+   * The kernel stores the model and jump dependent quantities; reusing the same kernel for several blocks of
+   * paths avoids their re-computation. The kernel is not thread-safe.
+   * 
+   * @param stepDateTime  the date and time of the step
+   * @param initialValues  the initial values of the forward rates, must be compatible with the model
+   * @param kernel  the evolution kernel
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the forward rates at the decision date, dimensions: LMM periods x paths
+   */
+  public MonteCarloPathBuffer evolveOneStepPaths(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      LiborMarketModelMonteCarloKernel kernel,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model = kernel.getModel();
     double[] stepTimes = new double[] {model.relativeTime(stepDateTime)};
     int nbLmmPeriods = model.getDisplacements().size();
-    double[][] initForwards = new double[nbLmmPeriods][nbPaths];
+    double[][] forwards = new double[nbLmmPeriods][nbPaths]; // evolved in place
     DoubleArray initialValueOnRates = initialValues.getOnRates();
     for (int i = 0; i < nbLmmPeriods; i++) {
-      Arrays.fill(initForwards[i], initialValueOnRates.get(i));
+      Arrays.fill(forwards[i], initialValueOnRates.get(i));
     }
-    double[][][] pathsData = pathGeneratorForwards(stepTimes, initForwards, model, numberGenerator);
-    List<MulticurveEquivalentValues> paths = new ArrayList<>();
-    for (int looppath = 0; looppath < nbPaths; looppath++) {
-      double[] onRates = new double[nbLmmPeriods];
-      for (int i = 0; i < nbLmmPeriods; i++) {
-        onRates[i] = pathsData[0][i][looppath];
-      }
-      MulticurveEquivalentValues pathValues = MulticurveEquivalentValues.builder()
-          .onRates(DoubleArray.ofUnsafe(onRates)).build();
-      paths.add(pathValues);
+    checkKernel(kernel);
+    pathGeneratorForwardsInPlace(stepTimes, forwards, kernel, numberGenerator, (loopjump, f) -> { });
+    if (!pathBufferOffHeap) {
+      return MonteCarloPathBufferHeap.ofUnsafe(forwards);
+    }
+    MonteCarloPathBuffer paths = MonteCarloPathBufferOffHeap.of(nbLmmPeriods, nbPaths);
+    for (int i = 0; i < nbLmmPeriods; i++) {
+      paths.setPeriod(i, forwards[i]);
+      forwards[i] = null; // the heap rates are released as they are copied
     }
     return paths;
   }
   
+  /**
+   * Evolves according to a model starting values up to the decision date and records the evolution for 
+   * pathwise adjoint sensitivities.
+   * <p>
+   * The random numbers are used in the same order as in {@link #evolveOneStepPaths}, the forward rates at the 
+   * decision date are the same. The Brownian bridge is not supported.
+   * 
+   * @param stepDateTime  the date and time of the step
+   * @param initialValues  the initial values of the forward rates, must be compatible with the model
+   * @param kernel  the evolution kernel
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the record of the evolution
+   */
+  public LiborMarketModelMonteCarloTape evolveOneStepTape(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      LiborMarketModelMonteCarloKernel kernel,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    ArgChecker.isFalse(brownianBridge, "Brownian bridge not supported for the adjoint evolution");
+    checkKernel(kernel);
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model = kernel.getModel();
+    double stepTime = model.relativeTime(stepDateTime);
+    int nbLmmPeriods = model.getIborPeriodsCount();
+    double[][] initForwards = new double[nbLmmPeriods][nbPaths];
+    DoubleArray initialValueOnRates = initialValues.getOnRates();
+    for (int i = 0; i < nbLmmPeriods; i++) {
+      Arrays.fill(initForwards[i], initialValueOnRates.get(i));
+    }
+    return LiborMarketModelMonteCarloTape.record(kernel, jumpTimes(0.0d, stepTime), initForwards, numberGenerator);
+  }
+  
   /**
    * Evolves according to a model starting values up to the different decision dates.
    * 
@@ -142,6 +312,44 @@ public final class LiborMarketModelMonteCarloEvolution
     return paths;
   }
 
+  /**
+   * Evolves according to a model starting values up to the different decision dates and passes the forward rates
+   * at each decision date to a consumer.
+   * <p>
+   * The streaming version of {@link #evolveMultiSteps}: the random numbers are the same and the forward rates 
+   * passed to the consumer at each step are the ones of the values returned by that method, but only the running
+   * forward rates are stored.
+   * 
+   * @param stepDateTimes  the dates and times of each step
+   * @param initialValues  the initial values of the forward rates, must be compatible with the model
+   * @param kernel  the evolution kernel
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the forward rates at each step, dimensions: LMM periods x paths
+   */
+  public void evolveMultiStepsStreaming(
+      List<ZonedDateTime> stepDateTimes,
+      MulticurveEquivalentValues initialValues,
+      LiborMarketModelMonteCarloKernel kernel,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model = kernel.getModel();
+    int nbSteps = stepDateTimes.size();
+    double[] stepTimes = new double[nbSteps];
+    for (int i = 0; i < nbSteps; i++) {
+      stepTimes[i] = model.relativeTime(stepDateTimes.get(i));
+    }
+    int nbLmmPeriods = model.getIborPeriodsCount();
+    double[][] initForwards = new double[nbLmmPeriods][nbPaths];
+    DoubleArray initialValueOnRates = initialValues.getOnRates(); // dsc forwards
+    for (int i = 0; i < nbLmmPeriods; i++) {
+      Arrays.fill(initForwards[i], initialValueOnRates.get(i));
+    }
+    pathGeneratorForwards(stepTimes, initForwards, kernel, numberGenerator, consumer);
+  }
+
   /**
    * Generates multi-steps for the path in the model.
    * 
@@ -157,37 +365,180 @@ public final class LiborMarketModelMonteCarloEvolution
       LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm,
       RandomNumberGenerator numberGenerator) {
 
+    return pathGeneratorForwards(stepTimes, initForwards, kernel(lmm), numberGenerator);
+  }
+
+  /**
+   * Generates multi-steps for the path in the model using a given evolution kernel.
+   * <p>
+   * The kernel stores the model and jump dependent quantities; reusing the same kernel for several blocks of
+   * paths avoids their re-computation. The kernel is not thread-safe.
+   * 
+   * @param stepTimes  the required step times, today is represented by 0, the times must be positive and in 
+   *  increasing order
+   * @param initForwards  the initial forward rates, dimensions: LMM periods x paths, the number of paths must be the
+   *  same for each rate
+   * @param kernel  the evolution kernel
+   * @param numberGenerator  the random number generator
+   * @return the forward rates at each step, dimensions: steps x LMM periods x paths
+   */
+  public double[][][] pathGeneratorForwards(
+      double[] stepTimes,
+      double[][] initForwards,
+      LiborMarketModelMonteCarloKernel kernel,
+      RandomNumberGenerator numberGenerator) {
+
+    final int nbPeriod = initForwards.length;
+    final int nbPath = initForwards[0].length;
+    final double[][][] result = new double[stepTimes.length][nbPeriod][nbPath];
+    pathGeneratorForwards(stepTimes, initForwards, kernel, numberGenerator, (loopjump, forwards) -> {
+      for (int loopperiod = 0; loopperiod < nbPeriod; loopperiod++) {
+        System.arraycopy(forwards[loopperiod], 0, result[loopjump][loopperiod], 0, nbPath);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Generates multi-steps for the path in the model and passes the forward rates at each step to a consumer.
+   * <p>
+   * Only the running forward rates are stored; the memory used is independent of the number of steps, except 
+   * for the random numbers when the Brownian bridge is used. The random numbers are used in the same order as 
+   * in {@link #pathGeneratorForwards(double[], double[][], LiborMarketModelMonteCarloKernel, RandomNumberGenerator)}
+   * and the forward rates passed to the consumer are the same as the ones returned by that method.
+   * 
+   * @param stepTimes  the required step times, today is represented by 0, the times must be positive and in 
+   *  increasing order
+   * @param initForwards  the initial forward rates, dimensions: LMM periods x paths, the number of paths must be the
+   *  same for each rate, not modified
+   * @param kernel  the evolution kernel
+   * @param numberGenerator  the random number generator
+   * @param consumer  the consumer of the forward rates at each step, dimensions: LMM periods x paths
+   */
+  public void pathGeneratorForwards(
+      double[] stepTimes,
+      double[][] initForwards,
+      LiborMarketModelMonteCarloKernel kernel,
+      RandomNumberGenerator numberGenerator,
+      MonteCarloStepConsumer consumer) {
+
+    checkKernel(kernel);
     final int nbPeriod = initForwards.length;
     final int nbPath = initForwards[0].length;
-    final int nbJump = stepTimes.length;
     double[][] initTmp = new double[nbPeriod][nbPath]; // modified at each step
     for (int loopperiod = 0; loopperiod < nbPeriod; loopperiod++) {
       System.arraycopy(initForwards[loopperiod], 0, initTmp[loopperiod], 0, nbPath);
     }
+    pathGeneratorForwardsInPlace(stepTimes, initTmp, kernel, numberGenerator, consumer);
+  }
+
+  // Generates multi-steps with the forward rates, dimensions: LMM periods x paths, evolved in place
+  private void pathGeneratorForwardsInPlace(
+      double[] stepTimes,
+      double[][] initTmp,
+      LiborMarketModelMonteCarloKernel kernel,
+      RandomNumberGenerator numberGenerator,
+      MonteCarloStepConsumer consumer) {
+
+    final int nbPath = initTmp[0].length;
+    final int nbJump = stepTimes.length;
     final double[] jumpTimeAugmented = new double[nbJump + 1];
     jumpTimeAugmented[0] = 0;
     System.arraycopy(stepTimes, 0, jumpTimeAugmented, 1, nbJump); // Add 0 in the steps to facilitate algorithm
-    final double[][][] result = new double[nbJump][nbPeriod][nbPath];
+    if (brownianBridge) {
+      double[][] jumpIn = new double[nbJump][];
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        jumpIn[loopjump] = jumpTimes(jumpTimeAugmented[loopjump], jumpTimeAugmented[loopjump + 1]);
+      }
+      double[][][] dw =
+          brownianBridgeIncrements(jumpIn, kernel.getModel().getFactorCount(), nbPath, numberGenerator);
+      int loopjumpall = 0;
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) { // Long jump start
+        for (int loopJumpIn = 0; loopJumpIn < jumpIn[loopjump].length - 1; loopJumpIn++) {
+          kernel.jump(jumpIn[loopjump][loopJumpIn], jumpIn[loopjump][loopJumpIn + 1], initTmp, dw[loopjumpall]);
+          dw[loopjumpall] = null; // increments not used anymore
+          loopjumpall++;
+        }
+        consumer.accept(loopjump, initTmp);
+      } // Long jump end
+      return;
+    }
     for (int loopjump = 0; loopjump < nbJump; loopjump++) { // Long jump start
       // Intermediary jumps; intermediary values are not exported
-      double[] jumpIn;
-      if (jumpTimeAugmented[loopjump + 1] - jumpTimeAugmented[loopjump] < maxJump) {
-        jumpIn = new double[] {jumpTimeAugmented[loopjump], jumpTimeAugmented[loopjump + 1]};
-      } else {
-        double jump = jumpTimeAugmented[loopjump + 1] - jumpTimeAugmented[loopjump];
-        int nbJumpIn = (int) Math.ceil(jump / maxJump);
-        jumpIn = new double[nbJumpIn + 1];
-        jumpIn[0] = jumpTimeAugmented[loopjump];
-        for (int loopJumpIn = 1; loopJumpIn <= nbJumpIn; loopJumpIn++) {
-          jumpIn[loopJumpIn] = jumpTimeAugmented[loopjump] + loopJumpIn * jump / nbJumpIn;
-        }
+      double[] jumpIn = jumpTimes(jumpTimeAugmented[loopjump], jumpTimeAugmented[loopjump + 1]);
+      kernel.step(jumpIn, initTmp, numberGenerator);
+      consumer.accept(loopjump, initTmp);
+    } // Long jump end
+  }
+
+  /**
+   * Returns the number of random dimensions used to generate the paths up to the step times.
+   * <p>
+   * The number of dimensions is the number of factors multiplied by the total number of jumps.
+   * This is the dimension required for quasi-random number generators.
+   * 
+   * @param stepTimes  the required step times, the times must be positive and in increasing order
+   * @param lmm  the model parameters
+   * @return the number of dimensions
+   */
+  public int randomDimension(
+      double[] stepTimes,
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm) {
+
+    int nbJumpAll = 0;
+    double previousTime = 0.0;
+    for (int loopstep = 0; loopstep < stepTimes.length; loopstep++) {
+      nbJumpAll += jumpTimes(previousTime, stepTimes[loopstep]).length - 1;
+      previousTime = stepTimes[loopstep];
+    }
+    return nbJumpAll * lmm.getFactorCount();
+  }
+
+  /**
+   * Returns the standard normal increments of the jumps constructed by Brownian bridges.
+   * <p>
+   * The random numbers are drawn in the bridge order: for each bridge step, one vector for each factor. 
+   * The first dimensions of the generator drive the largest scale movements.
+   * 
+   * @param jumpTimes  the jump times for each step, including the start and end times of the step
+   * @param nbFactors  the number of factors
+   * @param nbPath  the number of paths
+   * @param numberGenerator  the random number generator
+   * @return the increments, dimensions: jumps x factors x paths
+   */
+  private static double[][][] brownianBridgeIncrements(
+      double[][] jumpTimes,
+      int nbFactors,
+      int nbPath,
+      RandomNumberGenerator numberGenerator) {
+
+    int nbJumpAll = 0;
+    for (int loopstep = 0; loopstep < jumpTimes.length; loopstep++) {
+      nbJumpAll += jumpTimes[loopstep].length - 1;
+    }
+    double[] jumpEndTimes = new double[nbJumpAll];
+    int loopjumpall = 0;
+    for (int loopstep = 0; loopstep < jumpTimes.length; loopstep++) {
+      for (int loopJumpIn = 1; loopJumpIn < jumpTimes[loopstep].length; loopJumpIn++) {
+        jumpEndTimes[loopjumpall] = jumpTimes[loopstep][loopJumpIn];
+        loopjumpall++;
       }
-      initTmp = stepPredictorCorrector(jumpIn, initTmp, lmm, numberGenerator);
-      for (int loopperiod = 0; loopperiod < nbPeriod; loopperiod++) {
-        System.arraycopy(initTmp[loopperiod], 0, result[loopjump][loopperiod], 0, nbPath);
+    }
+    BrownianBridge bridge = BrownianBridge.of(jumpEndTimes);
+    double[][][] normals = new double[nbFactors][nbJumpAll][]; // factors x bridge steps x paths
+    for (int loopbridge = 0; loopbridge < nbJumpAll; loopbridge++) {
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        normals[loopfact][loopbridge] = numberGenerator.getVector(nbPath);
       }
-    } // Long jump end
-    return result;
+    }
+    double[][][] dw = new double[nbJumpAll][nbFactors][];
+    for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+      double[][] incrementsFactor = bridge.increments(normals[loopfact]);
+      for (int loopjump = 0; loopjump < nbJumpAll; loopjump++) {
+        dw[loopjump][loopfact] = incrementsFactor[loopjump];
+      }
+    }
+    return dw;
   }
 
   /**
@@ -200,6 +551,8 @@ public final class LiborMarketModelMonteCarloEvolution
    * of intermediary jump period values.
    * <p>
    * The implementation uses the efficient one step implementation that is described in Section 5.3 of the reference.
+   * The computation is done by {@link LiborMarketModelMonteCarloKernel}. The rows of the initial forward rates 
+   * array are modified in place.
    * 
    * @param jumpTimes  the intermediary jump times, the start step is the first time in the array and 
    *   the last jump time is the long step time
@@ -214,117 +567,38 @@ public final class LiborMarketModelMonteCarloEvolution
       LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm,
       RandomNumberGenerator numberGenerator) {
     
-    double amr = lmm.getMeanReversion();
-    double[] iborTimes = lmm.getIborTimes().toArrayUnsafe();
-    double[] almm = lmm.getDisplacements().toArrayUnsafe();
-    double[] deltalmm = lmm.getAccrualFactors().toArrayUnsafe();
-    int nbPeriodLMM = lmm.getIborPeriodsCount();
-    int nbFactorLMM = lmm.getFactorCount();
-    double timeTolerance = lmm.getTimeTolerance();
-    DoubleMatrix gammaLMM = lmm.getVolatilities();
-    MatrixAlgebra algebra = new CommonsMatrixAlgebra();
-    DoubleMatrix s = (DoubleMatrix) algebra.multiply(gammaLMM, algebra.getTranspose(gammaLMM));
-    int nbJump = jumpTimes.length - 1;
-    int nbPath = initForwards[0].length;
-    double[] dt = new double[nbJump];
-    double[] alpha = new double[nbJump];
-    double[] alpha2 = new double[nbJump];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      dt[loopjump] = jumpTimes[loopjump + 1] - jumpTimes[loopjump];
-      alpha[loopjump] = Math.exp(amr * jumpTimes[loopjump + 1]);
-      alpha2[loopjump] = alpha[loopjump] * alpha[loopjump];
-    }
-
     double[][] f = initForwards.clone();
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      double sqrtDt = Math.sqrt(dt[loopjump]);
-      int index = Arrays.binarySearch(iborTimes, jumpTimes[loopjump + 1] - timeTolerance);
-      // index: The index from which the rate should be evolved, the others are unchanged.
-      if (index < 0) { // not exact match
-        index = -index - 1;
-      }
-      int nbIndices = nbPeriodLMM - index; // the number of rates evolved
-      double[] deltaI = new double[nbIndices];
-      for (int loopn = 0; loopn < nbIndices; loopn++) {
-        deltaI[loopn] = 1.0 / deltalmm[index + loopn];
-      }
-      double[][] salpha2Array = new double[nbIndices][nbIndices];
-      for (int loopn1 = 0; loopn1 < nbIndices; loopn1++) {
-        for (int loopn2 = 0; loopn2 < nbIndices; loopn2++) {
-          salpha2Array[loopn1][loopn2] = s.get(index + loopn1, index + loopn2) * alpha2[loopjump];
-        }
-      }
-      DoubleMatrix salpha2 = DoubleMatrix.ofUnsafe(salpha2Array);
-      double[][] dw = getNormalArray(nbFactorLMM, nbPath, numberGenerator); // Random seed normal
-      // Common figures (without state dependent drift)
-      double[] drift1 = new double[nbIndices];
-      for (int loopn = 0; loopn < nbIndices; loopn++) {
-        drift1[loopn] = -0.5 * salpha2.get(loopn, loopn) * dt[loopjump];
-      }
-      final double[][] cc = new double[nbIndices][nbPath];
-      for (int loopn = 0; loopn < nbIndices; loopn++) {
-        for (int looppath = 0; looppath < nbPath; looppath++) {
-          for (int loopfact = 0; loopfact < nbFactorLMM; loopfact++) {
-            cc[loopn][looppath] +=
-                gammaLMM.get(index + loopn, loopfact) * dw[loopfact][looppath] * sqrtDt * alpha[loopjump];
-          }
-          cc[loopn][looppath] += drift1[loopn];
-        }
-      }
-      // Unique step: predictor and corrector
-      final double[][] muPredict = new double[nbIndices][nbPath];
-      final double[][] muCorrect = new double[nbIndices][nbPath];
-      final double[][] coefPredict = new double[nbPath][nbIndices - 1];
-      final double[][] coefCorrect = new double[nbIndices][nbPath];
-      for (int looppath = 0; looppath < nbPath; looppath++) {
-        for (int loopn = 0; loopn < nbIndices - 1; loopn++) {
-          coefPredict[looppath][loopn] = (f[index + loopn + 1][looppath] + almm[index + loopn + 1]) /
-              (f[index + loopn + 1][looppath] + deltaI[loopn + 1]);
-        }
-      }
-      for (int loopdrift = nbIndices - 1; loopdrift >= 0; loopdrift--) {
-        if (loopdrift < nbIndices - 1) {
-          for (int looppath = 0; looppath < nbPath; looppath++) {
-            coefCorrect[loopdrift + 1][looppath] = 
-                (f[index + loopdrift + 1][looppath] + almm[index + loopdrift + 1])
-                  / (f[index + loopdrift + 1][looppath] + deltaI[loopdrift + 1]); // Note: f has already been updated
-            for (int loop = loopdrift + 1; loop < nbIndices; loop++) {
-              muPredict[loopdrift][looppath] += salpha2.get(loop, loopdrift) * coefPredict[looppath][loop - 1];
-              muCorrect[loopdrift][looppath] += salpha2.get(loop, loopdrift) * coefCorrect[loop][looppath];
-            }
-          }
-          for (int looppath = 0; looppath < nbPath; looppath++) {
-            f[loopdrift + index][looppath] = (f[loopdrift + index][looppath] + almm[index + loopdrift]) 
-                * Math.exp(-0.5 * (muPredict[loopdrift][looppath] + muCorrect[loopdrift][looppath]) * dt[loopjump] + cc[loopdrift][looppath]) 
-                - almm[index + loopdrift];
-          }
-        } else { // Last forward rate does not have state dependent drift
-          for (int looppath = 0; looppath < nbPath; looppath++) {
-            f[loopdrift + index][looppath] =
-                (f[loopdrift + index][looppath] + almm[index + loopdrift]) * Math.exp(cc[loopdrift][looppath]) 
-                - almm[index + loopdrift];
-          }
-        }
-      }
-    }
+    kernel(lmm).step(jumpTimes, f, numberGenerator);
     return f;
   }
 
   /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
-   * @param nbPath The number of paths.
-   * @return The array of variables.
+   * Returns the intermediary jump times between two step times.
+   * <p>
+   * The step is divided in jumps of equal length, not longer than the maximum jump. 
+   * With the long-step scheme, the step is done in one jump.
+   * 
+   * @param stepStart  the step start time
+   * @param stepEnd  the step end time
+   * @return the jump times, including the start and the end times
    */
-  private double[][] getNormalArray(
-      int nbJump, 
-      int nbPath,
-      RandomNumberGenerator numberGenerator) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = numberGenerator.getVector(nbPath);
+  private double[] jumpTimes(double stepStart, double stepEnd) {
+    if (longStep || stepEnd - stepStart < maxJump) {
+      return new double[] {stepStart, stepEnd};
     }
-    return result;
+    double jump = stepEnd - stepStart;
+    int nbJumpIn = (int) Math.ceil(jump / maxJump);
+    double[] jumpIn = new double[nbJumpIn + 1];
+    jumpIn[0] = stepStart;
+    for (int loopJumpIn = 1; loopJumpIn <= nbJumpIn; loopJumpIn++) {
+      jumpIn[loopJumpIn] = stepStart + loopJumpIn * jump / nbJumpIn;
+    }
+    return jumpIn;
+  }
+
+  // Checks that the kernel uses the numerical scheme of the evolution
+  private void checkKernel(LiborMarketModelMonteCarloKernel kernel) {
+    ArgChecker.isTrue(kernel.isLongStep() == longStep, "kernel scheme must be the scheme of the evolution");
   }
 
   //------------------------- AUTOGENERATED START -------------------------
@@ -348,12 +622,21 @@ public final class LiborMarketModelMonteCarloEvolution
   /**
    * Obtains an instance.
    * @param maxJump  the value of the property
+   * @param pathBufferOffHeap  the value of the property
+   * @param brownianBridge  the value of the property
+   * @param longStep  the value of the property
    * @return the instance
    */
   public static LiborMarketModelMonteCarloEvolution of(
-      double maxJump) {
+      double maxJump,
+      boolean pathBufferOffHeap,
+      boolean brownianBridge,
+      boolean longStep) {
     return new LiborMarketModelMonteCarloEvolution(
-      maxJump);
+      maxJump,
+      pathBufferOffHeap,
+      brownianBridge,
+      longStep);
   }
 
   /**
@@ -365,8 +648,14 @@ public final class LiborMarketModelMonteCarloEvolution
   }
 
   private LiborMarketModelMonteCarloEvolution(
-      double maxJump) {
+      double maxJump,
+      boolean pathBufferOffHeap,
+      boolean brownianBridge,
+      boolean longStep) {
     this.maxJump = maxJump;
+    this.pathBufferOffHeap = pathBufferOffHeap;
+    this.brownianBridge = brownianBridge;
+    this.longStep = longStep;
   }
 
   @Override
@@ -383,6 +672,33 @@ public final class LiborMarketModelMonteCarloEvolution
     return maxJump;
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the flag indicating if the path buffers are stored off-heap.
+   * @return the value of the property
+   */
+  public boolean isPathBufferOffHeap() {
+    return pathBufferOffHeap;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the flag indicating if the random numbers are used in Brownian bridge order.
+   * @return the value of the property
+   */
+  public boolean isBrownianBridge() {
+    return brownianBridge;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the flag indicating if the long-step scheme is used.
+   * @return the value of the property
+   */
+  public boolean isLongStep() {
+    return longStep;
+  }
+
   //-----------------------------------------------------------------------
   /**
    * Returns a builder that allows this bean to be mutated.
@@ -399,7 +715,10 @@ public final class LiborMarketModelMonteCarloEvolution
     }
     if (obj != null && obj.getClass() == this.getClass()) {
       LiborMarketModelMonteCarloEvolution other = (LiborMarketModelMonteCarloEvolution) obj;
-      return JodaBeanUtils.equal(maxJump, other.maxJump);
+      return JodaBeanUtils.equal(maxJump, other.maxJump) &&
+          (pathBufferOffHeap == other.pathBufferOffHeap) &&
+          (brownianBridge == other.brownianBridge) &&
+          (longStep == other.longStep);
     }
     return false;
   }
@@ -408,14 +727,20 @@ public final class LiborMarketModelMonteCarloEvolution
   public int hashCode() {
     int hash = getClass().hashCode();
     hash = hash * 31 + JodaBeanUtils.hashCode(maxJump);
+    hash = hash * 31 + JodaBeanUtils.hashCode(pathBufferOffHeap);
+    hash = hash * 31 + JodaBeanUtils.hashCode(brownianBridge);
+    hash = hash * 31 + JodaBeanUtils.hashCode(longStep);
     return hash;
   }
 
   @Override
   public String toString() {
-    StringBuilder buf = new StringBuilder(64);
+    StringBuilder buf = new StringBuilder(160);
     buf.append("LiborMarketModelMonteCarloEvolution{");
-    buf.append("maxJump").append('=').append(JodaBeanUtils.toString(maxJump));
+    buf.append("maxJump").append('=').append(JodaBeanUtils.toString(maxJump)).append(',').append(' ');
+    buf.append("pathBufferOffHeap").append('=').append(JodaBeanUtils.toString(pathBufferOffHeap)).append(',').append(' ');
+    buf.append("brownianBridge").append('=').append(JodaBeanUtils.toString(brownianBridge)).append(',').append(' ');
+    buf.append("longStep").append('=').append(JodaBeanUtils.toString(longStep));
     buf.append('}');
     return buf.toString();
   }
@@ -435,12 +760,30 @@ public final class LiborMarketModelMonteCarloEvolution
      */
     private final MetaProperty<Double> maxJump = DirectMetaProperty.ofImmutable(
         this, "maxJump", LiborMarketModelMonteCarloEvolution.class, Double.TYPE);
+    /**
+     * The meta-property for the {@code pathBufferOffHeap} property.
+     */
+    private final MetaProperty<Boolean> pathBufferOffHeap = DirectMetaProperty.ofImmutable(
+        this, "pathBufferOffHeap", LiborMarketModelMonteCarloEvolution.class, Boolean.TYPE);
+    /**
+     * The meta-property for the {@code brownianBridge} property.
+     */
+    private final MetaProperty<Boolean> brownianBridge = DirectMetaProperty.ofImmutable(
+        this, "brownianBridge", LiborMarketModelMonteCarloEvolution.class, Boolean.TYPE);
+    /**
+     * The meta-property for the {@code longStep} property.
+     */
+    private final MetaProperty<Boolean> longStep = DirectMetaProperty.ofImmutable(
+        this, "longStep", LiborMarketModelMonteCarloEvolution.class, Boolean.TYPE);
     /**
      * The meta-properties.
      */
     private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
         this, null,
-        "maxJump");
+        "maxJump",
+        "pathBufferOffHeap",
+        "brownianBridge",
+        "longStep");
 
     /**
      * Restricted constructor.
@@ -453,6 +796,12 @@ public final class LiborMarketModelMonteCarloEvolution
       switch (propertyName.hashCode()) {
         case 843824050:  // maxJump
           return maxJump;
+        case -1365849226:  // pathBufferOffHeap
+          return pathBufferOffHeap;
+        case -1886582519:  // brownianBridge
+          return brownianBridge;
+        case -2074434712:  // longStep
+          return longStep;
       }
       return super.metaPropertyGet(propertyName);
     }
@@ -481,12 +830,42 @@ public final class LiborMarketModelMonteCarloEvolution
       return maxJump;
     }
 
+    /**
+     * The meta-property for the {@code pathBufferOffHeap} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Boolean> pathBufferOffHeap() {
+      return pathBufferOffHeap;
+    }
+
+    /**
+     * The meta-property for the {@code brownianBridge} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Boolean> brownianBridge() {
+      return brownianBridge;
+    }
+
+    /**
+     * The meta-property for the {@code longStep} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Boolean> longStep() {
+      return longStep;
+    }
+
     //-----------------------------------------------------------------------
     @Override
     protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
       switch (propertyName.hashCode()) {
         case 843824050:  // maxJump
           return ((LiborMarketModelMonteCarloEvolution) bean).getMaxJump();
+        case -1365849226:  // pathBufferOffHeap
+          return ((LiborMarketModelMonteCarloEvolution) bean).isPathBufferOffHeap();
+        case -1886582519:  // brownianBridge
+          return ((LiborMarketModelMonteCarloEvolution) bean).isBrownianBridge();
+        case -2074434712:  // longStep
+          return ((LiborMarketModelMonteCarloEvolution) bean).isLongStep();
       }
       return super.propertyGet(bean, propertyName, quiet);
     }
@@ -509,6 +888,9 @@ public final class LiborMarketModelMonteCarloEvolution
   public static final class Builder extends DirectFieldsBeanBuilder<LiborMarketModelMonteCarloEvolution> {
 
     private double maxJump;
+    private boolean pathBufferOffHeap;
+    private boolean brownianBridge;
+    private boolean longStep;
 
     /**
      * Restricted constructor.
@@ -522,6 +904,9 @@ public final class LiborMarketModelMonteCarloEvolution
      */
     private Builder(LiborMarketModelMonteCarloEvolution beanToCopy) {
       this.maxJump = beanToCopy.getMaxJump();
+      this.pathBufferOffHeap = beanToCopy.isPathBufferOffHeap();
+      this.brownianBridge = beanToCopy.isBrownianBridge();
+      this.longStep = beanToCopy.isLongStep();
     }
 
     //-----------------------------------------------------------------------
@@ -530,6 +915,12 @@ public final class LiborMarketModelMonteCarloEvolution
       switch (propertyName.hashCode()) {
         case 843824050:  // maxJump
           return maxJump;
+        case -1365849226:  // pathBufferOffHeap
+          return pathBufferOffHeap;
+        case -1886582519:  // brownianBridge
+          return brownianBridge;
+        case -2074434712:  // longStep
+          return longStep;
         default:
           throw new NoSuchElementException("Unknown property: " + propertyName);
       }
@@ -541,6 +932,15 @@ public final class LiborMarketModelMonteCarloEvolution
         case 843824050:  // maxJump
           this.maxJump = (Double) newValue;
           break;
+        case -1365849226:  // pathBufferOffHeap
+          this.pathBufferOffHeap = (Boolean) newValue;
+          break;
+        case -1886582519:  // brownianBridge
+          this.brownianBridge = (Boolean) newValue;
+          break;
+        case -2074434712:  // longStep
+          this.longStep = (Boolean) newValue;
+          break;
         default:
           throw new NoSuchElementException("Unknown property: " + propertyName);
       }
@@ -556,7 +956,10 @@ public final class LiborMarketModelMonteCarloEvolution
     @Override
     public LiborMarketModelMonteCarloEvolution build() {
       return new LiborMarketModelMonteCarloEvolution(
-          maxJump);
+          maxJump,
+          pathBufferOffHeap,
+          brownianBridge,
+          longStep);
     }
 
     //-----------------------------------------------------------------------
@@ -570,12 +973,45 @@ public final class LiborMarketModelMonteCarloEvolution
       return this;
     }
 
+    /**
+     * Sets the flag indicating if the path buffers are stored off-heap.
+     * @param pathBufferOffHeap  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder pathBufferOffHeap(boolean pathBufferOffHeap) {
+      this.pathBufferOffHeap = pathBufferOffHeap;
+      return this;
+    }
+
+    /**
+     * Sets the flag indicating if the random numbers are used in Brownian bridge order.
+     * @param brownianBridge  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder brownianBridge(boolean brownianBridge) {
+      this.brownianBridge = brownianBridge;
+      return this;
+    }
+
+    /**
+     * Sets the flag indicating if the long-step scheme is used.
+     * @param longStep  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder longStep(boolean longStep) {
+      this.longStep = longStep;
+      return this;
+    }
+
     //-----------------------------------------------------------------------
     @Override
     public String toString() {
-      StringBuilder buf = new StringBuilder(64);
+      StringBuilder buf = new StringBuilder(160);
       buf.append("LiborMarketModelMonteCarloEvolution.Builder{");
-      buf.append("maxJump").append('=').append(JodaBeanUtils.toString(maxJump));
+      buf.append("maxJump").append('=').append(JodaBeanUtils.toString(maxJump)).append(',').append(' ');
+      buf.append("pathBufferOffHeap").append('=').append(JodaBeanUtils.toString(pathBufferOffHeap)).append(',').append(' ');
+      buf.append("brownianBridge").append('=').append(JodaBeanUtils.toString(brownianBridge)).append(',').append(' ');
+      buf.append("longStep").append('=').append(JodaBeanUtils.toString(longStep));
       buf.append('}');
       return buf.toString();
     }
@@ -0,0 +1,547 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.lmm;
+
+import java.util.Arrays;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+/**
+ * Kernel for the predictor-corrector evolution of the forward rates in a LMM with displaced diffusion and
+ * deterministic IBOR/collateral spreads.
+ * <p>
+ * The numerical scheme is the one described in {@link LiborMarketModelMonteCarloEvolution#stepPredictorCorrector}.
+ * The model dependent quantities (covariance of the rates, displacements, inverse of accrual factors) are
+ * computed once at the creation of the kernel. The quantities dependent on the jump times (index of the first
+ * rate evolved, covariance multiplied by the mean reversion factor, factor loadings and deterministic drift)
+ * are computed at the first use of the jump and stored for later use, indexed by the order of first use. The jumps
+ * are looked for from the one following the last jump used, so that the lookup is immediate when the same jumps are
+ * repeated for each block of paths. The forward rates are evolved in place using scratch buffers reused from one
+ * jump to the next.
+ * <p>
+ * Two schemes are available for the jump dependent quantities. In the standard scheme, the volatilities are
+ * frozen at their value at the end of the jump, which requires short jumps when the mean reversion is not 0.
+ * In the long-step scheme, the covariance of the rates is integrated exactly on the jump: the volatility of the
+ * rate i at time t is gamma_i exp(a t) and the covariance on [s, e] is gamma_i . gamma_j (exp(2 a e) - exp(2 a s)) 
+ * / (2 a). The factor loadings, the convexity term and the state dependent drift use that integrated covariance,
+ * the latter with the predictor-corrector coefficients evaluated at the start and at the predicted end of the jump.
+ * With the terminal measure, a rate only depends on the rates with larger index; the rates that fix before the
+ * end of the jump are not evolved and one jump up to the expiry is sufficient for European options.
+ * <p>
+ * The adjoint of a jump, used for pathwise sensitivities, is provided by {@link #jumpAdjoint}.
+ * <p>
+ * The kernel is mutable and not thread-safe. It is intended to be created for a pricing call, or for a block of
+ * paths computed in parallel, and discarded with it.
+ * <p>
+ * Implementation reference:
+ * Henrard, M. Libor/Forward Market Model in the multi-curve framework, muRisQ Model description, September 2020.
+ *
+ * @author Marc Henrard
+ */
+public final class LiborMarketModelMonteCarloKernel {
+
+  /** The mean reversion below which the integrated covariance of the long-step scheme is computed without it. */
+  private static final double SMALL_MEAN_REVERSION = 1.0E-10;
+  /** The initial capacity of the jump dependent data. */
+  private static final int INITIAL_JUMPS = 16;
+
+  /** The model parameters. */
+  private final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model;
+  /** The number of LMM periods. */
+  private final int nbPeriods;
+  /** The number of factors. */
+  private final int nbFactors;
+  /** The mean reversion. */
+  private final double meanReversion;
+  /** The Ibor times. */
+  private final double[] iborTimes;
+  /** The displacements. */
+  private final double[] displacements;
+  /** The inverse of the accrual factors. */
+  private final double[] accrualFactorsInverse;
+  /** The volatilities, dimensions: periods x factors. */
+  private final double[][] volatilities;
+  /** The covariance of the rates, i.e. volatilities x volatilities^T, dimensions: periods x periods. */
+  private final double[][] covariance;
+  /** The time tolerance used to select the rates evolved at each jump. */
+  private final double timeTolerance;
+  /** The flag indicating if the long-step scheme is used. */
+  private final boolean longStep;
+  /** The number of jumps with data. */
+  private int nbJumps;
+  /** The start and end times of the jumps with data, in the order of first use. */
+  private double[] jumpStarts = new double[INITIAL_JUMPS];
+  private double[] jumpEnds = new double[INITIAL_JUMPS];
+  /** The jump dependent data, in the order of first use. */
+  private JumpData[] jumps = new JumpData[INITIAL_JUMPS];
+  /** The index of the last jump used. */
+  private int lastJump = -1;
+
+  /* Scratch buffers, dimensions: periods x paths. Reallocated when the number of paths increases. */
+  private int scratchPaths;
+  private double[][] cc;
+  private double[][] coefPredict;
+  private double[][] coefCorrect;
+  private double[] muPredict;
+  private double[] muCorrect;
+  /* Scratch buffers for the adjoint, dimensions: periods x paths. Reallocated when the number of paths increases. */
+  private int scratchAdjointPaths;
+  private double[][] coefPredictAdjoint;
+  private double[][] coefCorrectAdjoint;
+  private double[][] coefPredictBar;
+  private double[][] coefCorrectBar;
+  private double[] exponentBar;
+
+  /**
+   * Creates a kernel for a given model with the standard scheme.
+   *
+   * @param model  the model parameters
+   * @return the kernel
+   */
+  public static LiborMarketModelMonteCarloKernel of(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model) {
+
+    return new LiborMarketModelMonteCarloKernel(model, false);
+  }
+
+  /**
+   * Creates a kernel for a given model and scheme.
+   *
+   * @param model  the model parameters
+   * @param longStep  the flag indicating if the long-step scheme is used
+   * @return the kernel
+   */
+  public static LiborMarketModelMonteCarloKernel of(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model,
+      boolean longStep) {
+
+    return new LiborMarketModelMonteCarloKernel(model, longStep);
+  }
+
+  // Private constructor
+  private LiborMarketModelMonteCarloKernel(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model,
+      boolean longStep) {
+
+    this.model = ArgChecker.notNull(model, "model");
+    this.longStep = longStep;
+    this.nbPeriods = model.getIborPeriodsCount();
+    this.nbFactors = model.getFactorCount();
+    this.meanReversion = model.getMeanReversion();
+    this.iborTimes = model.getIborTimes().toArray();
+    this.displacements = model.getDisplacements().toArray();
+    double[] delta = model.getAccrualFactors().toArrayUnsafe();
+    this.accrualFactorsInverse = new double[nbPeriods];
+    for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+      accrualFactorsInverse[loopperiod] = 1.0 / delta[loopperiod];
+    }
+    DoubleMatrix gamma = model.getVolatilities();
+    this.volatilities = gamma.toArray();
+    this.covariance = new double[nbPeriods][nbPeriods];
+    for (int loopperiod1 = 0; loopperiod1 < nbPeriods; loopperiod1++) {
+      for (int loopperiod2 = 0; loopperiod2 < nbPeriods; loopperiod2++) {
+        double sum = 0.0;
+        for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+          sum += volatilities[loopperiod1][loopfact] * volatilities[loopperiod2][loopfact];
+        }
+        covariance[loopperiod1][loopperiod2] = sum;
+      }
+    }
+    this.timeTolerance = model.getTimeTolerance();
+  }
+
+  /**
+   * Returns the model parameters.
+   *
+   * @return the model
+   */
+  public LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters getModel() {
+    return model;
+  }
+
+  /**
+   * Returns the flag indicating if the long-step scheme is used.
+   *
+   * @return the flag
+   */
+  public boolean isLongStep() {
+    return longStep;
+  }
+
+  /**
+   * Evolves the forward rates through several intermediary jump times, in place.
+   * <p>
+   * For each jump, the standard normal random variables are drawn from the generator,
+   * with dimensions factors x paths, before the evolution of the jump.
+   *
+   * @param jumpTimes  the intermediary jump times, the start step is the first time in the array and
+   *   the last jump time is the long step time
+   * @param forwards  the forward rates, dimensions: periodsLMM x paths, modified in place
+   * @param numberGenerator  the random number generator
+   */
+  public void step(
+      double[] jumpTimes,
+      double[][] forwards,
+      RandomNumberGenerator numberGenerator) {
+
+    int nbJump = jumpTimes.length - 1;
+    int nbPath = forwards[0].length;
+    double[][] dw = new double[nbFactors][];
+    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        dw[loopfact] = numberGenerator.getVector(nbPath);
+      }
+      jump(jumpTimes[loopjump], jumpTimes[loopjump + 1], forwards, dw);
+    }
+  }
+
+  /**
+   * Evolves the forward rates over one jump with given standard normal random variables, in place.
+   * <p>
+   * Only the rates after the jump end time are evolved, the other rates are unchanged.
+   *
+   * @param jumpStart  the jump start time
+   * @param jumpEnd  the jump end time
+   * @param forwards  the forward rates, dimensions: periodsLMM x paths, modified in place
+   * @param dw  the standard normal random variables, dimensions: factors x paths
+   */
+  public void jump(
+      double jumpStart,
+      double jumpEnd,
+      double[][] forwards,
+      double[][] dw) {
+
+    int nbPath = forwards[0].length;
+    ensureScratch(nbPath);
+    JumpData data = jumpData(jumpStart, jumpEnd);
+    int index = data.index;
+    int nbIndices = nbPeriods - index;
+    double dt = data.dt;
+    double[][] salpha2 = data.salpha2;
+    // Common figures (without state dependent drift)
+    for (int loopn = 0; loopn < nbIndices; loopn++) {
+      double[] ccn = cc[loopn];
+      double[] loadingn = data.loadings[loopn];
+      Arrays.fill(ccn, 0, nbPath, 0.0);
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        double loading = loadingn[loopfact];
+        double[] dwfact = dw[loopfact];
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          ccn[looppath] += loading * dwfact[looppath];
+        }
+      }
+      double drift1 = data.drift1[loopn];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        ccn[looppath] += drift1;
+      }
+    }
+    // Unique step: predictor and corrector
+    for (int loopn = 0; loopn < nbIndices - 1; loopn++) {
+      double[] f = forwards[index + loopn + 1];
+      double a = displacements[index + loopn + 1];
+      double deltaI = accrualFactorsInverse[index + loopn + 1];
+      double[] coef = coefPredict[loopn];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        coef[looppath] = (f[looppath] + a) / (f[looppath] + deltaI);
+      }
+    }
+    for (int loopdrift = nbIndices - 1; loopdrift >= 0; loopdrift--) {
+      double[] f = forwards[index + loopdrift];
+      double a = displacements[index + loopdrift];
+      double[] ccdrift = cc[loopdrift];
+      if (loopdrift < nbIndices - 1) {
+        double[] fNext = forwards[index + loopdrift + 1]; // Note: f has already been updated
+        double aNext = displacements[index + loopdrift + 1];
+        double deltaINext = accrualFactorsInverse[index + loopdrift + 1];
+        double[] coefCorrectNext = coefCorrect[loopdrift + 1];
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          coefCorrectNext[looppath] = (fNext[looppath] + aNext) / (fNext[looppath] + deltaINext);
+        }
+        Arrays.fill(muPredict, 0, nbPath, 0.0);
+        Arrays.fill(muCorrect, 0, nbPath, 0.0);
+        for (int loop = loopdrift + 1; loop < nbIndices; loop++) {
+          double s = salpha2[loop][loopdrift];
+          double[] coefP = coefPredict[loop - 1];
+          double[] coefC = coefCorrect[loop];
+          for (int looppath = 0; looppath < nbPath; looppath++) {
+            muPredict[looppath] += s * coefP[looppath];
+            muCorrect[looppath] += s * coefC[looppath];
+          }
+        }
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          f[looppath] = (f[looppath] + a) *
+              Math.exp(-0.5 * (muPredict[looppath] + muCorrect[looppath]) * dt + ccdrift[looppath]) - a;
+        }
+      } else { // Last forward rate does not have state dependent drift
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          f[looppath] = (f[looppath] + a) * Math.exp(ccdrift[looppath]) - a;
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the adjoint of one jump, i.e. propagates the derivatives with respect to the forward rates at the
+   * end of the jump to the forward rates at the start of the jump and to the model parameters.
+   * <p>
+   * The end forward rates must be the result of {@link #jump} applied to the start forward rates with the same
+   * random variables. The start forward rates and the random variables are not modified.
+   * <p>
+   * The derivatives with respect to the displacements and the volatilities are summed over the paths and
+   * added to the existing values.
+   *
+   * @param jumpStart  the jump start time
+   * @param jumpEnd  the jump end time
+   * @param forwardsStart  the forward rates at the start of the jump, dimensions: periodsLMM x paths
+   * @param forwardsEnd  the forward rates at the end of the jump, dimensions: periodsLMM x paths
+   * @param dw  the standard normal random variables used in the jump, dimensions: factors x paths
+   * @param forwardsBar  on input the derivatives with respect to the end forward rates, on output the derivatives
+   *   with respect to the start forward rates, dimensions: periodsLMM x paths, modified in place
+   * @param displacementsBar  the derivatives with respect to the displacements, dimension: periodsLMM, 
+   *   modified in place
+   * @param volatilitiesBar  the derivatives with respect to the volatilities, dimensions: periodsLMM x factors,
+   *   modified in place
+   */
+  public void jumpAdjoint(
+      double jumpStart,
+      double jumpEnd,
+      double[][] forwardsStart,
+      double[][] forwardsEnd,
+      double[][] dw,
+      double[][] forwardsBar,
+      double[] displacementsBar,
+      double[][] volatilitiesBar) {
+
+    int nbPath = forwardsStart[0].length;
+    ensureAdjointScratch(nbPath);
+    JumpData data = jumpData(jumpStart, jumpEnd);
+    int index = data.index;
+    int nbIndices = nbPeriods - index;
+    double dt = data.dt;
+    double[][] salpha2 = data.salpha2;
+    // Predictor and corrector coefficients
+    for (int loopn = 1; loopn < nbIndices; loopn++) {
+      double[] fStart = forwardsStart[index + loopn];
+      double[] fEnd = forwardsEnd[index + loopn];
+      double a = displacements[index + loopn];
+      double deltaI = accrualFactorsInverse[index + loopn];
+      double[] coefP = coefPredictAdjoint[loopn];
+      double[] coefC = coefCorrectAdjoint[loopn];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        coefP[looppath] = (fStart[looppath] + a) / (fStart[looppath] + deltaI);
+        coefC[looppath] = (fEnd[looppath] + a) / (fEnd[looppath] + deltaI);
+      }
+      Arrays.fill(coefPredictBar[loopn], 0, nbPath, 0.0);
+      Arrays.fill(coefCorrectBar[loopn], 0, nbPath, 0.0);
+    }
+    double[][] salpha2Bar = new double[nbIndices][nbIndices];
+    // Backward sweep: the rates are evolved from the last to the first, the adjoint is from the first to the last
+    for (int loopn = 0; loopn < nbIndices; loopn++) {
+      int i = index + loopn;
+      double[] fStart = forwardsStart[i];
+      double[] fEnd = forwardsEnd[i];
+      double[] fBar = forwardsBar[i];
+      double a = displacements[i];
+      double deltaI = accrualFactorsInverse[i];
+      double aBar = 0.0;
+      if (loopn > 0) { // End rate used in the corrector of the rates with lower index
+        double[] coefCBar = coefCorrectBar[loopn];
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          double denominator = fEnd[looppath] + deltaI;
+          fBar[looppath] += coefCBar[looppath] * (deltaI - a) / (denominator * denominator);
+          aBar += coefCBar[looppath] / denominator;
+        }
+      }
+      // fEnd = (fStart + a) * exp(exponent) - a
+      double exponentBarSum = 0.0;
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        double ratio = (fEnd[looppath] + a) / (fStart[looppath] + a);
+        exponentBar[looppath] = fBar[looppath] * (fEnd[looppath] + a);
+        exponentBarSum += exponentBar[looppath];
+        aBar += fBar[looppath] * (ratio - 1.0d);
+        fBar[looppath] = fBar[looppath] * ratio;
+      }
+      // exponent = -0.5 * (muPredict + muCorrect) * dt + loadings.dw + drift1
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        double[] dwfact = dw[loopfact];
+        double sum = 0.0;
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          sum += exponentBar[looppath] * dwfact[looppath];
+        }
+        volatilitiesBar[i][loopfact] += data.sqrtDtAlpha * sum;
+      }
+      salpha2Bar[loopn][loopn] += -0.5 * dt * exponentBarSum;
+      for (int loop = loopn + 1; loop < nbIndices; loop++) {
+        double s = salpha2[loop][loopn];
+        double[] coefP = coefPredictAdjoint[loop];
+        double[] coefC = coefCorrectAdjoint[loop];
+        double[] coefPBar = coefPredictBar[loop];
+        double[] coefCBar = coefCorrectBar[loop];
+        double sBar = 0.0;
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          double muBar = -0.5 * dt * exponentBar[looppath];
+          sBar += muBar * (coefP[looppath] + coefC[looppath]);
+          coefPBar[looppath] += muBar * s;
+          coefCBar[looppath] += muBar * s;
+        }
+        salpha2Bar[loop][loopn] += sBar;
+      }
+      displacementsBar[i] += aBar;
+    }
+    // Start rates used in the predictor
+    for (int loopn = 1; loopn < nbIndices; loopn++) {
+      int i = index + loopn;
+      double[] fStart = forwardsStart[i];
+      double[] fBar = forwardsBar[i];
+      double a = displacements[i];
+      double deltaI = accrualFactorsInverse[i];
+      double[] coefPBar = coefPredictBar[loopn];
+      double aBar = 0.0;
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        double denominator = fStart[looppath] + deltaI;
+        fBar[looppath] += coefPBar[looppath] * (deltaI - a) / (denominator * denominator);
+        aBar += coefPBar[looppath] / denominator;
+      }
+      displacementsBar[i] += aBar;
+    }
+    // Covariance: salpha2 = volatilities x volatilities^T x alpha^2
+    for (int loopn1 = 0; loopn1 < nbIndices; loopn1++) {
+      for (int loopn2 = 0; loopn2 <= loopn1; loopn2++) {
+        double sBar = salpha2Bar[loopn1][loopn2] * data.alpha2;
+        if (sBar != 0.0) {
+          for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+            volatilitiesBar[index + loopn1][loopfact] += sBar * volatilities[index + loopn2][loopfact];
+            volatilitiesBar[index + loopn2][loopfact] += sBar * volatilities[index + loopn1][loopfact];
+          }
+        }
+      }
+    }
+  }
+
+  // Returns the jump dependent data, computed and stored at the first use of the jump
+  private JumpData jumpData(double jumpStart, double jumpEnd) {
+    for (int loop = 0; loop < nbJumps; loop++) {
+      int index = (lastJump + 1 + loop) % nbJumps; // starts from the jump after the last one
+      if (jumpStarts[index] == jumpStart && jumpEnds[index] == jumpEnd) {
+        lastJump = index;
+        return jumps[index];
+      }
+    }
+    if (nbJumps == jumps.length) {
+      jumpStarts = Arrays.copyOf(jumpStarts, 2 * nbJumps);
+      jumpEnds = Arrays.copyOf(jumpEnds, 2 * nbJumps);
+      jumps = Arrays.copyOf(jumps, 2 * nbJumps);
+    }
+    jumpStarts[nbJumps] = jumpStart;
+    jumpEnds[nbJumps] = jumpEnd;
+    jumps[nbJumps] = computeJumpData(jumpStart, jumpEnd);
+    lastJump = nbJumps;
+    nbJumps++;
+    return jumps[lastJump];
+  }
+
+  // Computes the jump dependent data
+  private JumpData computeJumpData(double jumpStart, double jumpEnd) {
+    double dt = jumpEnd - jumpStart;
+    double sqrtDt = Math.sqrt(dt);
+    double alpha = Math.exp(meanReversion * jumpEnd);
+    double alpha2 = alpha * alpha;
+    if (longStep) { // integral of exp(2 a t) on the jump; the time is included in alpha2 and dt is 1
+      alpha2 = (Math.abs(meanReversion) > SMALL_MEAN_REVERSION)
+          ? (Math.exp(2.0d * meanReversion * jumpEnd) - Math.exp(2.0d * meanReversion * jumpStart))
+              / (2.0d * meanReversion)
+          : dt;
+      alpha = Math.sqrt(alpha2);
+      dt = 1.0d;
+      sqrtDt = 1.0d;
+    }
+    int index = Arrays.binarySearch(iborTimes, jumpEnd - timeTolerance);
+    // index: The index from which the rate should be evolved, the others are unchanged.
+    if (index < 0) { // not exact match
+      index = -index - 1;
+    }
+    int nbIndices = nbPeriods - index; // the number of rates evolved
+    double[][] salpha2 = new double[nbIndices][nbIndices];
+    for (int loopn1 = 0; loopn1 < nbIndices; loopn1++) {
+      for (int loopn2 = 0; loopn2 < nbIndices; loopn2++) {
+        salpha2[loopn1][loopn2] = covariance[index + loopn1][index + loopn2] * alpha2;
+      }
+    }
+    double[][] loadings = new double[nbIndices][nbFactors];
+    double[] drift1 = new double[nbIndices];
+    for (int loopn = 0; loopn < nbIndices; loopn++) {
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        loadings[loopn][loopfact] = volatilities[index + loopn][loopfact] * sqrtDt * alpha;
+      }
+      drift1[loopn] = -0.5 * salpha2[loopn][loopn] * dt;
+    }
+    return new JumpData(index, dt, sqrtDt * alpha, alpha2, salpha2, loadings, drift1);
+  }
+
+  // Allocates the scratch buffers if required
+  private void ensureScratch(int nbPath) {
+    if (nbPath > scratchPaths) {
+      cc = new double[nbPeriods][nbPath];
+      coefPredict = new double[nbPeriods][nbPath];
+      coefCorrect = new double[nbPeriods][nbPath];
+      muPredict = new double[nbPath];
+      muCorrect = new double[nbPath];
+      scratchPaths = nbPath;
+    }
+  }
+
+  // Allocates the adjoint scratch buffers if required
+  private void ensureAdjointScratch(int nbPath) {
+    if (nbPath > scratchAdjointPaths) {
+      coefPredictAdjoint = new double[nbPeriods][nbPath];
+      coefCorrectAdjoint = new double[nbPeriods][nbPath];
+      coefPredictBar = new double[nbPeriods][nbPath];
+      coefCorrectBar = new double[nbPeriods][nbPath];
+      exponentBar = new double[nbPath];
+      scratchAdjointPaths = nbPath;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The data associated to a jump.
+   */
+  private static final class JumpData {
+    /** The index from which the rates are evolved. */
+    private final int index;
+    /** The jump length. 1 in the long-step scheme, where the time is included in the mean reversion factor. */
+    private final double dt;
+    /** The square root of the jump length multiplied by the mean reversion factor. */
+    private final double sqrtDtAlpha;
+    /** The square of the mean reversion factor. In the long-step scheme, its integral on the jump. */
+    private final double alpha2;
+    /** The covariance multiplied by the squared mean reversion factor, for the rates evolved. */
+    private final double[][] salpha2;
+    /** The factor loadings for the jump, dimensions: rates evolved x factors. */
+    private final double[][] loadings;
+    /** The deterministic part of the drift. */
+    private final double[] drift1;
+
+    private JumpData(
+        int index,
+        double dt,
+        double sqrtDtAlpha,
+        double alpha2,
+        double[][] salpha2,
+        double[][] loadings,
+        double[] drift1) {
+
+      this.index = index;
+      this.dt = dt;
+      this.sqrtDtAlpha = sqrtDtAlpha;
+      this.alpha2 = alpha2;
+      this.salpha2 = salpha2;
+      this.loadings = loadings;
+      this.drift1 = drift1;
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.lmm;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+/**
+ * Record of the evolution of the forward rates in a LMM through several jumps, used for pathwise adjoint
+ * sensitivities.
+ * <p>
+ * The record contains the forward rates at each jump time and the random variables used for each jump.
+ * The forward rates are evolved with {@link LiborMarketModelMonteCarloKernel#jump}; the random variables are
+ * drawn in the same order as in {@link LiborMarketModelMonteCarloKernel#step}, hence the forward rates at the
+ * end are the same as the ones obtained by the step with the same generator.
+ * <p>
+ * The adjoint propagates backward the derivatives with respect to the final forward rates to the initial
+ * forward rates and to the model parameters (displacements and volatilities) in one sweep.
+ * <p>
+ * The record is mutable through its kernel and not thread-safe.
+ *
+ * @author Marc Henrard
+ */
+public final class LiborMarketModelMonteCarloTape {
+
+  /** The evolution kernel. */
+  private final LiborMarketModelMonteCarloKernel kernel;
+  /** The jump times, including the start and the end times. */
+  private final double[] jumpTimes;
+  /** The forward rates at each jump time, dimensions: jump times x periodsLMM x paths. */
+  private final double[][][] forwards;
+  /** The random variables used for each jump, dimensions: jumps x factors x paths. */
+  private final double[][][] dw;
+
+  /**
+   * Evolves the forward rates through the jump times and records the evolution.
+   *
+   * @param kernel  the evolution kernel
+   * @param jumpTimes  the jump times, the start time is the first time in the array and the end time is the last
+   * @param initForwards  the initial forward rates, dimensions: periodsLMM x paths, not modified
+   * @param numberGenerator  the random number generator
+   * @return the record
+   */
+  public static LiborMarketModelMonteCarloTape record(
+      LiborMarketModelMonteCarloKernel kernel,
+      double[] jumpTimes,
+      double[][] initForwards,
+      RandomNumberGenerator numberGenerator) {
+
+    ArgChecker.isTrue(jumpTimes.length >= 2, "at least one jump is required");
+    int nbJump = jumpTimes.length - 1;
+    int nbPeriods = initForwards.length;
+    int nbPath = initForwards[0].length;
+    int nbFactors = kernel.getModel().getFactorCount();
+    double[][][] forwards = new double[nbJump + 1][nbPeriods][];
+    for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+      forwards[0][loopperiod] = initForwards[loopperiod].clone();
+    }
+    double[][][] dw = new double[nbJump][nbFactors][];
+    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        dw[loopjump][loopfact] = numberGenerator.getVector(nbPath);
+      }
+      for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+        forwards[loopjump + 1][loopperiod] = forwards[loopjump][loopperiod].clone();
+      }
+      kernel.jump(jumpTimes[loopjump], jumpTimes[loopjump + 1], forwards[loopjump + 1], dw[loopjump]);
+    }
+    return new LiborMarketModelMonteCarloTape(kernel, jumpTimes.clone(), forwards, dw);
+  }
+
+  // Private constructor
+  private LiborMarketModelMonteCarloTape(
+      LiborMarketModelMonteCarloKernel kernel,
+      double[] jumpTimes,
+      double[][][] forwards,
+      double[][][] dw) {
+
+    this.kernel = kernel;
+    this.jumpTimes = jumpTimes;
+    this.forwards = forwards;
+    this.dw = dw;
+  }
+
+  /**
+   * Returns the number of paths.
+   *
+   * @return the number of paths
+   */
+  public int getPathsCount() {
+    return forwards[0][0].length;
+  }
+
+  /**
+   * Returns the forward rates at the end time.
+   * <p>
+   * The array is not a copy and should not be modified.
+   *
+   * @return the forward rates, dimensions: periodsLMM x paths
+   */
+  public double[][] getForwardsEnd() {
+    return forwards[forwards.length - 1];
+  }
+
+  /**
+   * Propagates backward the derivatives with respect to the final forward rates.
+   * <p>
+   * The derivatives with respect to the displacements and the volatilities are summed over the paths and
+   * added to the existing values.
+   *
+   * @param forwardsEndBar  the derivatives with respect to the forward rates at the end time,
+   *   dimensions: periodsLMM x paths, not modified
+   * @param displacementsBar  the derivatives with respect to the displacements, modified in place
+   * @param volatilitiesBar  the derivatives with respect to the volatilities, dimensions: periodsLMM x factors,
+   *   modified in place
+   * @return the derivatives with respect to the initial forward rates, dimensions: periodsLMM x paths
+   */
+  public double[][] adjoint(
+      double[][] forwardsEndBar,
+      double[] displacementsBar,
+      double[][] volatilitiesBar) {
+
+    int nbPeriods = forwardsEndBar.length;
+    double[][] forwardsBar = new double[nbPeriods][];
+    for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+      forwardsBar[loopperiod] = forwardsEndBar[loopperiod].clone();
+    }
+    for (int loopjump = dw.length - 1; loopjump >= 0; loopjump--) {
+      kernel.jumpAdjoint(jumpTimes[loopjump], jumpTimes[loopjump + 1], forwards[loopjump], forwards[loopjump + 1],
+          dw[loopjump], forwardsBar, displacementsBar, volatilitiesBar);
+    }
+    return forwardsBar;
+  }
+
+}
@@ -13,7 +13,7 @@ import com.opengamma.strata.math.impl.rootfinding.newton.BroydenVectorRootFinder
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.swaption.ResolvedSwaption;
 
-import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductExplicitApproxPricer;
+import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductExplicitApproxSession;
 
 /**
  * Exact calibration by root-finding of one swaption for the LMM displaced diffusion.
@@ -90,13 +90,10 @@ public class LmmdddSwaptionRootBachelierVolatility1LevelCalibrator {
    */
   static class ModelValues implements Function<DoubleArray, DoubleArray> {
 
-    private static final LmmdddSwaptionPhysicalProductExplicitApproxPricer PRICER_SWAPTION_LMM_APPROX = 
-        LmmdddSwaptionPhysicalProductExplicitApproxPricer.DEFAULT;
-    
-    private final ResolvedSwaption swaption;
     private final double ivMarket;
-    private final RatesProvider multicurve;
     private final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters;
+    /** The pricing session, with the curve-dependent quantities computed once. */
+    private final LmmdddSwaptionPhysicalProductExplicitApproxSession session;
 
     // Constructor
     public ModelValues(
@@ -105,10 +102,9 @@ public class LmmdddSwaptionRootBachelierVolatility1LevelCalibrator {
         RatesProvider multicurve, 
         LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters) {
       
-      this.swaption = swaption;
       this.ivMarket = impliedVolatility;
-      this.multicurve = multicurve;
       this.startingParameters = startingParameters;
+      this.session = LmmdddSwaptionPhysicalProductExplicitApproxSession.of(swaption, multicurve, startingParameters);
     }
 
     @Override
@@ -116,7 +112,7 @@ public class LmmdddSwaptionRootBachelierVolatility1LevelCalibrator {
       DoubleMatrix volatilityUpdated = startingParameters.getVolatilities().multipliedBy(x.get(0));
       LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersUpdated = 
           startingParameters.toBuilder().volatilities(volatilityUpdated).build();
-      double ivModel = PRICER_SWAPTION_LMM_APPROX.impliedVolatilityBachelier(swaption, multicurve, parametersUpdated);
+      double ivModel = session.impliedVolatilityBachelier(parametersUpdated);
       return DoubleArray.of(ivMarket - ivModel);
     }
     
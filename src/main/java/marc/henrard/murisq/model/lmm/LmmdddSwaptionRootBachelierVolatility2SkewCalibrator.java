@@ -3,7 +3,10 @@
  */
 package marc.henrard.murisq.model.lmm;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 import com.opengamma.strata.collect.ArgChecker;
@@ -15,7 +18,8 @@ import com.opengamma.strata.math.impl.rootfinding.newton.BroydenVectorRootFinder
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.swaption.ResolvedSwaption;
 
-import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductExplicitApproxPricer;
+import marc.henrard.murisq.model.calibration.CalibrationParallelUtils;
+import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductExplicitApproxSession;
 
 /**
  * Exact calibration by root-finding of two swaptions for the LMM displaced diffusion.
@@ -39,6 +43,8 @@ public class LmmdddSwaptionRootBachelierVolatility2SkewCalibrator {
 
   /** Starting parameters. */
   private final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters;
+  /** The pool on which the swaptions are priced in parallel. Empty for a sequential pricing. */
+  private final Optional<ForkJoinPool> pool;
 
   /**
    * Create an instance of the calibrator.
@@ -48,17 +54,36 @@ public class LmmdddSwaptionRootBachelierVolatility2SkewCalibrator {
    */
   public static LmmdddSwaptionRootBachelierVolatility2SkewCalibrator of(
       LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters) {
-    return new LmmdddSwaptionRootBachelierVolatility2SkewCalibrator(startingParameters);
+    return new LmmdddSwaptionRootBachelierVolatility2SkewCalibrator(startingParameters, Optional.empty());
+  }
+
+  /**
+   * Create an instance of the calibrator with the swaptions priced in parallel.
+   * <p>
+   * In each evaluation of the objective function, the swaptions are priced in parallel on the pool.
+   * The columns of the finite difference Jacobian are also computed in parallel.
+   * 
+   * @param startingParameters  the starting parameters to be adjusted
+   * @param pool  the fork-join pool on which the swaptions are priced
+   * @return the instance
+   */
+  public static LmmdddSwaptionRootBachelierVolatility2SkewCalibrator of(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
+      ForkJoinPool pool) {
+    return new LmmdddSwaptionRootBachelierVolatility2SkewCalibrator(startingParameters, Optional.of(pool));
   }
   
   /**
    * Private constructor. 
    * 
    * @param startingParameters  the starting parameters to be adjusted
+   * @param pool  the pool for the parallel pricing, empty for a sequential pricing
    */
   private LmmdddSwaptionRootBachelierVolatility2SkewCalibrator(
-      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters) {
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
+      Optional<ForkJoinPool> pool) {
     this.startingParameters = startingParameters;
+    this.pool = pool;
   }
 
   /**
@@ -78,9 +103,10 @@ public class LmmdddSwaptionRootBachelierVolatility2SkewCalibrator {
     
     ArgChecker.isTrue(swaptions.size() == 2, 
         "there must be exactly two swaptions in the calibration set");
-    ModelValues function = new ModelValues(swaptions, impliedVolatilities, multicurve, startingParameters);
-    VectorFieldFirstOrderDifferentiator differentiator = new VectorFieldFirstOrderDifferentiator();
-    Function<DoubleArray, DoubleMatrix>  jacobian = differentiator.differentiate(function);
+    ModelValues function = new ModelValues(swaptions, impliedVolatilities, multicurve, startingParameters, pool);
+    Function<DoubleArray, DoubleMatrix> jacobian = pool.isPresent() ?
+        CalibrationParallelUtils.jacobianForward(function, pool.get()) :
+        new VectorFieldFirstOrderDifferentiator().differentiate(function);
     DoubleArray parametersCalibrated = 
         ROOT_FINDER.findRoot(function, jacobian, DoubleArray.of(1.0d, 1.0d));
     DoubleMatrix volatilityUpdated = 
@@ -99,25 +125,27 @@ public class LmmdddSwaptionRootBachelierVolatility2SkewCalibrator {
    */
   static class ModelValues implements Function<DoubleArray, DoubleArray> {
 
-    private static final LmmdddSwaptionPhysicalProductExplicitApproxPricer PRICER_SWAPTION_LMM_APPROX = 
-        LmmdddSwaptionPhysicalProductExplicitApproxPricer.DEFAULT;
-    
-    private final List<ResolvedSwaption> swaptions;
     private final DoubleArray ivMarket;
-    private final RatesProvider multicurve;
     private final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters;
+    private final Optional<ForkJoinPool> pool;
+    /** The pricing sessions, with the curve-dependent quantities computed once for each swaption. */
+    private final List<LmmdddSwaptionPhysicalProductExplicitApproxSession> sessions;
 
     // Constructor
     public ModelValues(
         List<ResolvedSwaption> swaptions, 
         DoubleArray impliedVolatilities,
         RatesProvider multicurve, 
-        LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters) {
+        LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
+        Optional<ForkJoinPool> pool) {
       
-      this.swaptions = swaptions;
       this.ivMarket = impliedVolatilities;
-      this.multicurve = multicurve;
       this.startingParameters = startingParameters;
+      this.pool = pool;
+      this.sessions = new ArrayList<>(swaptions.size());
+      for (ResolvedSwaption swaption : swaptions) {
+        sessions.add(LmmdddSwaptionPhysicalProductExplicitApproxSession.of(swaption, multicurve, startingParameters));
+      }
     }
 
     @Override
@@ -128,10 +156,14 @@ public class LmmdddSwaptionRootBachelierVolatility2SkewCalibrator {
           startingParameters.toBuilder()
           .volatilities(volatilityUpdated)
           .displacements(displacementUpdated).build();
+      if (pool.isPresent()) { // swaptions priced in parallel
+        DoubleArray ivModel = CalibrationParallelUtils
+            .values(2, i -> sessions.get(i).impliedVolatilityBachelier(parametersUpdated), pool.get());
+        return ivMarket.minus(ivModel);
+      }
       double[] ivModel = new double[2];
       for (int i = 0; i < 2; i++) {
-        ivModel[i] = PRICER_SWAPTION_LMM_APPROX
-            .impliedVolatilityBachelier(swaptions.get(i), multicurve, parametersUpdated);
+        ivModel[i] = sessions.get(i).impliedVolatilityBachelier(parametersUpdated);
       }
       return ivMarket.minus(DoubleArray.ofUnsafe(ivModel));
     }
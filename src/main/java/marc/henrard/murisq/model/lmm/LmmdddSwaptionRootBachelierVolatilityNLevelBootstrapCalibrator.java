@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.lmm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.market.curve.InterpolatedNodalCurve;
+import com.opengamma.strata.market.curve.interpolator.CurveExtrapolator;
+import com.opengamma.strata.market.curve.interpolator.CurveInterpolator;
+import com.opengamma.strata.math.impl.rootfinding.BracketRoot;
+import com.opengamma.strata.math.impl.rootfinding.BrentSingleRootFinder;
+import com.opengamma.strata.math.impl.rootfinding.RealSingleRootFinder;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+
+import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductExplicitApproxSession;
+
+/**
+ * Exact calibration by sequential bootstrap of swaptions for the LMM displaced diffusion.
+ * <p>
+ * The start volatilities are multiplied by factors to achieve calibration. The factors are interpolated
+ * with the same curve as in {@link LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator}: one node for
+ * each swaption, the first node corresponding to the first forward rate of the first swaption and the last
+ * node to the last rate of the last swaption. The calibrating swaptions must have underlying swaps with
+ * increasing start dates and end dates.
+ * <p>
+ * The factors are obtained one swaption at a time by one dimensional root-finding, each root-finding
+ * pricing only the swaption associated to the node. In the first sweep, the factors of the later nodes
+ * are set to the factor of the current node. As the swaptions also depend on the nodes of the later
+ * swaptions through the interpolation, correction sweeps, where each factor is adjusted with the others
+ * fixed, are run until the factors are stable. The number of swaption pricings is linear in the number
+ * of swaptions, in place of quadratic for the Jacobian of the global root-finding.
+ *
+ * @author Marc Henrard
+ */
+public class LmmdddSwaptionRootBachelierVolatilityNLevelBootstrapCalibrator {
+
+  /** The precision used in the one dimensional root-finding, on the factors. */
+  private static final double TOLERANCE_ROOT = 1.0E-12;
+  /** The precision on the factors required between two sweeps. */
+  private static final double TOLERANCE_SWEEP = 1.0E-10;
+  /** The maximal number of correction sweeps. */
+  private static final int SWEEP_MAX = 100;
+  /** The range of the factors in the bracketing. */
+  private static final double FACTOR_MIN = 1.0E-4;
+  private static final double FACTOR_MAX = 1.0E+2;
+  /** The initial relative width of the bracketing. */
+  private static final double BRACKET_WIDTH = 0.10;
+  /** The root-finder implementation. */
+  private static final RealSingleRootFinder ROOT_FINDER = new BrentSingleRootFinder(TOLERANCE_ROOT);
+  private static final BracketRoot BRACKET_ROOT = new BracketRoot();
+
+  /** Starting parameters. */
+  private final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters;
+  /** Interpolator and extrapolators. */
+  private final CurveInterpolator interpolator;
+  private final CurveExtrapolator extrapolatorLeft;
+  private final CurveExtrapolator extrapolatorRight;
+
+  /**
+   * Create an instance of the calibrator.
+   * <p>
+   * The extrapolators do not impact the pricing of the swaptions in the calibration basket but
+   * may impact other instruments with earlier or later dates.
+   *
+   * @param startingParameters  the starting parameters to be adjusted
+   * @param interpolator  the interpolator for the scaling factors
+   * @param extrapolatorLeft  the left extrapolator for the scaling factors
+   * @param extrapolatorRight  the right extrapolator for the scaling factors
+   * @return the instance
+   */
+  public static LmmdddSwaptionRootBachelierVolatilityNLevelBootstrapCalibrator of(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
+      CurveInterpolator interpolator,
+      CurveExtrapolator extrapolatorLeft,
+      CurveExtrapolator extrapolatorRight) {
+    return new LmmdddSwaptionRootBachelierVolatilityNLevelBootstrapCalibrator(startingParameters, interpolator,
+        extrapolatorLeft, extrapolatorRight);
+  }
+
+  /**
+   * Private constructor.
+   *
+   * @param startingParameters  the starting parameters to be adjusted
+   * @param interpolator  the interpolator for the scaling factors
+   * @param extrapolatorLeft  the left extrapolator for the scaling factors
+   * @param extrapolatorRight  the right extrapolator for the scaling factors
+   */
+  private LmmdddSwaptionRootBachelierVolatilityNLevelBootstrapCalibrator(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
+      CurveInterpolator interpolator,
+      CurveExtrapolator extrapolatorLeft,
+      CurveExtrapolator extrapolatorRight) {
+
+    this.startingParameters = startingParameters;
+    this.interpolator = interpolator;
+    this.extrapolatorLeft = extrapolatorLeft;
+    this.extrapolatorRight = extrapolatorRight;
+  }
+
+  /**
+   * Calibrate the LMM volatilities to a set of swaptions by sequential bootstrap.
+   * <p>
+   * The swaptions must be in increasing start and end date order.
+   *
+   * @param swaptions  the swaptions
+   * @param impliedVolatilities  the Bachelier/normal model implied volatilities
+   * @param multicurve  the multi-curve provider
+   * @return  the calibrated model parameters
+   */
+  public LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters calibrate(
+      List<ResolvedSwaption> swaptions,
+      DoubleArray impliedVolatilities,
+      RatesProvider multicurve) {
+
+    ArgChecker.isTrue(swaptions.size() == impliedVolatilities.size(),
+        "the number of swaptions must be equal to the number of implied volatilities");
+    int nbSwaptions = swaptions.size();
+    DoubleArray xValues =
+        LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator.nodeIndices(swaptions, startingParameters, multicurve);
+    List<LmmdddSwaptionPhysicalProductExplicitApproxSession> sessions = new ArrayList<>(nbSwaptions);
+    for (ResolvedSwaption swaption : swaptions) {
+      sessions.add(LmmdddSwaptionPhysicalProductExplicitApproxSession.of(swaption, multicurve, startingParameters));
+    }
+    double[] yValues = new double[nbSwaptions];
+    // Bootstrap sweep: the later nodes are set to the current node
+    for (int loopswpt = 0; loopswpt < nbSwaptions; loopswpt++) {
+      int index = loopswpt;
+      double[] yFirst = yValues.clone();
+      Function<Double, Double> f = y -> {
+        for (int i = index; i < nbSwaptions; i++) {
+          yFirst[i] = y;
+        }
+        return impliedVolatility(sessions.get(index), xValues, yFirst) - impliedVolatilities.get(index);
+      };
+      double yCalibrated = root(f, (loopswpt == 0) ? 1.0d : yValues[loopswpt - 1]);
+      for (int i = loopswpt; i < nbSwaptions; i++) {
+        yValues[i] = yCalibrated;
+      }
+    }
+    // Correction sweeps: each node adjusted with the other nodes fixed
+    boolean converged = false;
+    for (int loopsweep = 0; loopsweep < SWEEP_MAX && !converged; loopsweep++) {
+      double changeMax = 0.0d;
+      for (int loopswpt = 0; loopswpt < nbSwaptions; loopswpt++) {
+        int index = loopswpt;
+        double[] yCorrection = yValues.clone();
+        Function<Double, Double> f = y -> {
+          yCorrection[index] = y;
+          return impliedVolatility(sessions.get(index), xValues, yCorrection) - impliedVolatilities.get(index);
+        };
+        double yCalibrated = root(f, yValues[loopswpt]);
+        changeMax = Math.max(changeMax, Math.abs(yCalibrated - yValues[loopswpt]));
+        yValues[loopswpt] = yCalibrated;
+      }
+      converged = changeMax < TOLERANCE_SWEEP;
+    }
+    ArgChecker.isTrue(converged, "bootstrap calibration did not converge in {} sweeps", SWEEP_MAX);
+    InterpolatedNodalCurve curve = LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator
+        .adjustmentCurve(xValues, DoubleArray.ofUnsafe(yValues), interpolator, extrapolatorLeft, extrapolatorRight);
+    return LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator.adjustedParameters(startingParameters, curve);
+  }
+
+  // Implied volatility of one swaption for the given scaling factors
+  private double impliedVolatility(
+      LmmdddSwaptionPhysicalProductExplicitApproxSession session,
+      DoubleArray xValues,
+      double[] yValues) {
+
+    InterpolatedNodalCurve curve = LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator
+        .adjustmentCurve(xValues, DoubleArray.copyOf(yValues), interpolator, extrapolatorLeft, extrapolatorRight);
+    return session.impliedVolatilityBachelier(
+        LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator.adjustedParameters(startingParameters, curve));
+  }
+
+  // Root of the function, bracketed around the starting factor
+  private static double root(Function<Double, Double> f, double yStart) {
+    double[] bracket = BRACKET_ROOT.getBracketedPoints(f,
+        Math.max(yStart * (1.0d - BRACKET_WIDTH), FACTOR_MIN), Math.min(yStart * (1.0d + BRACKET_WIDTH), FACTOR_MAX),
+        FACTOR_MIN, FACTOR_MAX);
+    return ROOT_FINDER.getRoot(f, bracket[0], bracket[1]);
+  }
+
+}
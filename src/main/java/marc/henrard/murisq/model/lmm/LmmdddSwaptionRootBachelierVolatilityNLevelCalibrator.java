@@ -4,27 +4,34 @@
 package marc.henrard.murisq.model.lmm;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 import com.opengamma.strata.collect.ArgChecker;
 import com.opengamma.strata.collect.array.DoubleArray;
 import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.collect.tuple.Pair;
 import com.opengamma.strata.market.curve.CurveMetadata;
 import com.opengamma.strata.market.curve.DefaultCurveMetadata;
 import com.opengamma.strata.market.curve.InterpolatedNodalCurve;
 import com.opengamma.strata.market.curve.interpolator.CurveExtrapolator;
 import com.opengamma.strata.market.curve.interpolator.CurveInterpolator;
 import com.opengamma.strata.math.impl.differentiation.VectorFieldFirstOrderDifferentiator;
-import com.opengamma.strata.math.impl.linearalgebra.DecompositionFactory;
-import com.opengamma.strata.math.impl.rootfinding.newton.BroydenVectorRootFinder;
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.swap.ResolvedSwap;
 import com.opengamma.strata.product.swap.ResolvedSwapLeg;
 import com.opengamma.strata.product.swap.SwapLegType;
 import com.opengamma.strata.product.swaption.ResolvedSwaption;
 
-import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductExplicitApproxPricer;
+import marc.henrard.murisq.model.calibration.CalibrationParallelUtils;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.BroydenRootFinderWithJacobian;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.CalibrationWarmStart;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.SeededJacobian;
+import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductExplicitApproxSession;
 
 /**
  * Exact calibration by root-finding of swaptions for the LMM displaced diffusion.
@@ -46,11 +53,10 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator {
   private static final double TOLERANCE_REL = 1.0E-4;
   private static final int STEP_MAX = 250;
   /** The root-finder implementation. */
-  private final static BroydenVectorRootFinder ROOT_FINDER = new BroydenVectorRootFinder(
+  private final static BroydenRootFinderWithJacobian ROOT_FINDER = new BroydenRootFinderWithJacobian(
       TOLERANCE_ABS,
       TOLERANCE_REL,
-      STEP_MAX,
-      DecompositionFactory.SV_COMMONS);
+      STEP_MAX);
   private final static CurveMetadata ADJ_METADATA = DefaultCurveMetadata.of("Adjustment");
 
   /** Starting parameters. */
@@ -59,6 +65,8 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator {
   private final CurveInterpolator interpolator;
   private final CurveExtrapolator extrapolatorLeft;
   private final CurveExtrapolator extrapolatorRight;
+  /** The pool on which the swaptions are priced in parallel. Empty for a sequential pricing. */
+  private final Optional<ForkJoinPool> pool;
 
   /**
    * Create an instance of the calibrator.
@@ -78,7 +86,30 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator {
       CurveExtrapolator extrapolatorLeft,
       CurveExtrapolator extrapolatorRight) {
     return new LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator(startingParameters, interpolator, 
-        extrapolatorLeft, extrapolatorRight);
+        extrapolatorLeft, extrapolatorRight, Optional.empty());
+  }
+
+  /**
+   * Create an instance of the calibrator with the swaptions priced in parallel.
+   * <p>
+   * In each evaluation of the objective function, the swaptions are priced in parallel on the pool.
+   * The columns of the finite difference Jacobian are also computed in parallel.
+   * 
+   * @param startingParameters  the starting parameters to be adjusted
+   * @param interpolator  the interpolator for the scaling factors
+   * @param extrapolatorLeft  the left extrapolator for the scaling factors
+   * @param extrapolatorRight  the right extrapolator for the scaling factors
+   * @param pool  the fork-join pool on which the swaptions are priced
+   * @return the instance
+   */
+  public static LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator of(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
+      CurveInterpolator interpolator,
+      CurveExtrapolator extrapolatorLeft,
+      CurveExtrapolator extrapolatorRight,
+      ForkJoinPool pool) {
+    return new LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator(startingParameters, interpolator, 
+        extrapolatorLeft, extrapolatorRight, Optional.of(pool));
   }
   
   /**
@@ -88,17 +119,20 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator {
    * @param interpolator  the interpolator for the scaling factors
    * @param extrapolatorLeft  the left extrapolator for the scaling factors
    * @param extrapolatorRight  the right extrapolator for the scaling factors
+   * @param pool  the pool for the parallel pricing, empty for a sequential pricing
    */
   private LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator(
       LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
       CurveInterpolator interpolator,
       CurveExtrapolator extrapolatorLeft,
-      CurveExtrapolator extrapolatorRight) {
+      CurveExtrapolator extrapolatorRight,
+      Optional<ForkJoinPool> pool) {
 
     this.startingParameters = startingParameters;
     this.interpolator = interpolator;
     this.extrapolatorLeft = extrapolatorLeft;
     this.extrapolatorRight = extrapolatorRight;
+    this.pool = pool;
   }
 
   /**
@@ -118,6 +152,117 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator {
 
     ArgChecker.isTrue(swaptions.size() == impliedVolatilities.size(),
         "the number of swaptions must be equal to the number of implied volatilities");
+    int nbSwaptions = swaptions.size();
+    DoubleArray xValues = nodeIndices(swaptions, startingParameters, multicurve);
+    DoubleArray yValuesStart = DoubleArray.of(nbSwaptions, i -> 1.0d);
+    DoubleArray parametersCalibrated =
+        findRoot(swaptions, impliedVolatilities, multicurve, xValues, yValuesStart, Optional.empty())
+            .getFirst();
+    // Resulting parameters
+    InterpolatedNodalCurve curve =
+        adjustmentCurve(xValues, parametersCalibrated, interpolator, extrapolatorLeft, extrapolatorRight);
+    return adjustedParameters(startingParameters, curve);
+  }
+
+  /**
+   * Calibrate the LMM volatilities to a set of swaptions, starting from the previous calibration stored 
+   * in the cache.
+   * <p>
+   * The cache key is composed of the starting parameters, the interpolator, the extrapolators and the swaptions.
+   * The market data fingerprint is composed of the multi-curve and the implied volatilities. If the fingerprint
+   * is the one of the cache entry, the stored scaling factors are used without root-finding. Otherwise the 
+   * root-finding starts from the stored scaling factors and Jacobian, or from factors of 1 if there is 
+   * no entry. The cache entry is updated with the result and the last Jacobian of the root-finding.
+   * 
+   * @param swaptions  the swaptions
+   * @param impliedVolatilities  the Bachelier/normal model implied volatilities
+   * @param multicurve  the multi-curve provider
+   * @param cache  the warm-start cache
+   * @return  the calibrated model parameters
+   */
+  public LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters calibrate(
+      List<ResolvedSwaption> swaptions,
+      DoubleArray impliedVolatilities,
+      RatesProvider multicurve,
+      CalibrationWarmStartCache cache) {
+
+    ArgChecker.isTrue(swaptions.size() == impliedVolatilities.size(),
+        "the number of swaptions must be equal to the number of implied volatilities");
+    int nbSwaptions = swaptions.size();
+    DoubleArray xValues = nodeIndices(swaptions, startingParameters, multicurve);
+    List<Object> key = warmStartKey(swaptions);
+    DoubleArray fingerprint = CalibrationWarmStartCache.fingerprint(multicurve, impliedVolatilities);
+    Optional<CalibrationWarmStart> warmStart = cache.get(key);
+    DoubleArray parametersCalibrated;
+    if (warmStart.isPresent() && warmStart.get().getFingerprint().equals(fingerprint)) { // market unchanged
+      parametersCalibrated = warmStart.get().getSolution();
+    } else {
+      DoubleArray yValuesStart = warmStart.isPresent() ?
+          warmStart.get().getSolution() :
+          DoubleArray.of(nbSwaptions, i -> 1.0d);
+      Pair<DoubleArray, DoubleMatrix> result = findRoot(swaptions, impliedVolatilities, multicurve,
+          xValues, yValuesStart, warmStart.flatMap(CalibrationWarmStart::getJacobian));
+      parametersCalibrated = result.getFirst();
+      cache.put(key, CalibrationWarmStart.of(fingerprint, parametersCalibrated, Optional.of(result.getSecond())));
+    }
+    // Resulting parameters
+    InterpolatedNodalCurve curve =
+        adjustmentCurve(xValues, parametersCalibrated, interpolator, extrapolatorLeft, extrapolatorRight);
+    return adjustedParameters(startingParameters, curve);
+  }
+
+  /**
+   * Returns the key of the calibration in the warm-start cache.
+   * <p>
+   * The key is composed of the starting parameters, the interpolator, the extrapolators and the swaptions.
+   * 
+   * @param swaptions  the swaptions
+   * @return  the key
+   */
+  public List<Object> warmStartKey(List<ResolvedSwaption> swaptions) {
+    List<Object> key = new ArrayList<>();
+    key.add(startingParameters);
+    key.add(interpolator);
+    key.add(extrapolatorLeft);
+    key.add(extrapolatorRight);
+    key.addAll(swaptions);
+    return key;
+  }
+
+  // Root-finding from the starting point with the Jacobian seed; returns the root and the last Jacobian
+  // of the root-finding
+  private Pair<DoubleArray, DoubleMatrix> findRoot(
+      List<ResolvedSwaption> swaptions,
+      DoubleArray impliedVolatilities,
+      RatesProvider multicurve,
+      DoubleArray xValues,
+      DoubleArray yValuesStart,
+      Optional<DoubleMatrix> jacobianSeed) {
+
+    ModelValues function = new ModelValues(swaptions, impliedVolatilities, multicurve, 
+        startingParameters, xValues, interpolator, extrapolatorLeft, extrapolatorRight, pool);
+    Function<DoubleArray, DoubleMatrix> jacobianFd = pool.isPresent() ?
+        CalibrationParallelUtils.jacobianForward(function, pool.get()) :
+        new VectorFieldFirstOrderDifferentiator().differentiate(function);
+    return ROOT_FINDER
+        .findRoot(function, new SeededJacobian(jacobianFd, yValuesStart, jacobianSeed), yValuesStart);
+  }
+
+  /**
+   * Returns the nodes of the scaling factor curve, expressed as Ibor indices.
+   * <p>
+   * The swaptions are checked to be in strictly increasing start and end date order.
+   * 
+   * @param swaptions  the swaptions
+   * @param startingParameters  the starting parameters
+   * @param multicurve  the multi-curve provider
+   * @return the nodes
+   */
+  static DoubleArray nodeIndices(
+      List<ResolvedSwaption> swaptions,
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
+      RatesProvider multicurve) {
+
     // indices start/end
     int nbSwaptions = swaptions.size();
     LocalDate valuationDate = multicurve.getValuationDate();
@@ -144,26 +289,56 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator {
       double weightEnd = loopswpt * 1.0d / (nbSwaptions - 1);
       nodeIndices[loopswpt] = (1.0d - weightEnd) * startIndices[loopswpt] + weightEnd * (endIndices[loopswpt] - 1);
     }
-    DoubleArray xValues = DoubleArray.ofUnsafe(nodeIndices);
-    DoubleArray yValuesStart = DoubleArray.of(nbSwaptions, i -> 1.0d);
-    // Root finding
-    ModelValues function = new ModelValues(swaptions, impliedVolatilities, multicurve, 
-        startingParameters, xValues, interpolator, extrapolatorLeft, extrapolatorRight);
-    VectorFieldFirstOrderDifferentiator differentiator = new VectorFieldFirstOrderDifferentiator();
-    Function<DoubleArray, DoubleMatrix>  jacobian = differentiator.differentiate(function);
-    DoubleArray parametersCalibrated = ROOT_FINDER.findRoot(function, jacobian, yValuesStart);
-    // Resulting parameters
-    InterpolatedNodalCurve curve = InterpolatedNodalCurve.of(ADJ_METADATA, xValues, parametersCalibrated, interpolator);
+    return DoubleArray.ofUnsafe(nodeIndices);
+  }
+
+  /**
+   * Returns the scaling factor curve.
+   * 
+   * @param xValues  the nodes
+   * @param yValues  the scaling factors at the nodes
+   * @param interpolator  the interpolator for the scaling factors
+   * @param extrapolatorLeft  the left extrapolator for the scaling factors
+   * @param extrapolatorRight  the right extrapolator for the scaling factors
+   * @return the curve
+   */
+  static InterpolatedNodalCurve adjustmentCurve(
+      DoubleArray xValues,
+      DoubleArray yValues,
+      CurveInterpolator interpolator,
+      CurveExtrapolator extrapolatorLeft,
+      CurveExtrapolator extrapolatorRight) {
+
+    return InterpolatedNodalCurve.builder()
+        .metadata(ADJ_METADATA)
+        .xValues(xValues)
+        .yValues(yValues)
+        .interpolator(interpolator)
+        .extrapolatorLeft(extrapolatorLeft)
+        .extrapolatorRight(extrapolatorRight).build();
+  }
+
+  /**
+   * Returns the parameters with the volatilities multiplied by the scaling factors.
+   * <p>
+   * The volatilities associated to the Ibor index i are multiplied by the curve value at i.
+   * 
+   * @param startingParameters  the starting parameters
+   * @param curve  the scaling factor curve
+   * @return the adjusted parameters
+   */
+  static LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters adjustedParameters(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters,
+      InterpolatedNodalCurve curve) {
+
     double[][] volatilityUpdatedArray = startingParameters.getVolatilities().toArray();
-    for (int i = 0; i < startingParameters.getVolatilities().rowCount(); i++) {
+    for (int i = 0; i < volatilityUpdatedArray.length; i++) {
       double volAdj = curve.yValue(i);
-      for (int j = 0; j < startingParameters.getVolatilities().columnCount(); j++) {
+      for (int j = 0; j < volatilityUpdatedArray[i].length; j++) {
         volatilityUpdatedArray[i][j] *= volAdj;
       }
     }
-    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersUpdated =
-        startingParameters.toBuilder().volatilities(DoubleMatrix.ofUnsafe(volatilityUpdatedArray)).build();
-    return parametersUpdated;
+    return startingParameters.toBuilder().volatilities(DoubleMatrix.ofUnsafe(volatilityUpdatedArray)).build();
   }
 
   /**
@@ -171,20 +346,16 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator {
    */
   static class ModelValues implements Function<DoubleArray, DoubleArray> {
 
-    private static final LmmdddSwaptionPhysicalProductExplicitApproxPricer PRICER_SWAPTION_LMM_APPROX = 
-        LmmdddSwaptionPhysicalProductExplicitApproxPricer.DEFAULT;
-    
-    private final List<ResolvedSwaption> swaptions;
     private final DoubleArray ivMarket;
-    private final RatesProvider multicurve;
     private final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters startingParameters;
-    private final int nbVol;
-    private final int nbFactors;
     private final int nbSwaptions;
     private final DoubleArray xValues;
     private final CurveInterpolator interpolator;
     private final CurveExtrapolator extrapolatorLeft;
     private final CurveExtrapolator extrapolatorRight;
+    private final Optional<ForkJoinPool> pool;
+    /** The pricing sessions, with the curve-dependent quantities computed once for each swaption. */
+    private final List<LmmdddSwaptionPhysicalProductExplicitApproxSession> sessions;
 
     // Constructor
     public ModelValues(
@@ -195,43 +366,37 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator {
         DoubleArray xValues,
         CurveInterpolator interpolator,
         CurveExtrapolator extrapolatorLeft,
-        CurveExtrapolator extrapolatorRight) {
+        CurveExtrapolator extrapolatorRight,
+        Optional<ForkJoinPool> pool) {
       
-      this.swaptions = swaptions;
       this.ivMarket = impliedVolatility;
-      this.multicurve = multicurve;
       this.startingParameters = startingParameters;
-      this.nbVol = startingParameters.getVolatilities().rowCount();
-      this.nbFactors = startingParameters.getVolatilities().columnCount();
       this.nbSwaptions = swaptions.size();
       this.xValues = xValues;
       this.interpolator = interpolator;
       this.extrapolatorLeft = extrapolatorLeft;
       this.extrapolatorRight = extrapolatorRight;
+      this.pool = pool;
+      this.sessions = new ArrayList<>(nbSwaptions);
+      for (ResolvedSwaption swaption : swaptions) {
+        sessions.add(LmmdddSwaptionPhysicalProductExplicitApproxSession.of(swaption, multicurve, startingParameters));
+      }
     }
 
     @Override
     public DoubleArray apply(DoubleArray yValues) {
-      InterpolatedNodalCurve curve = InterpolatedNodalCurve.builder()
-          .metadata(ADJ_METADATA)
-          .xValues(xValues)
-          .yValues(yValues)
-          .interpolator(interpolator)
-          .extrapolatorLeft(extrapolatorLeft)
-          .extrapolatorRight(extrapolatorRight).build();
-      double[][] volatilityUpdatedArray = startingParameters.getVolatilities().toArray();
-      for (int i = 0; i < nbVol; i++) {
-        double volAdj = curve.yValue(i);
-        for (int j = 0; j < nbFactors; j++) {
-          volatilityUpdatedArray[i][j] *= volAdj;
-        }
-      }
+      InterpolatedNodalCurve curve =
+          adjustmentCurve(xValues, yValues, interpolator, extrapolatorLeft, extrapolatorRight);
       LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersUpdated =
-          startingParameters.toBuilder().volatilities(DoubleMatrix.ofUnsafe(volatilityUpdatedArray)).build();
+          adjustedParameters(startingParameters, curve);
+      if (pool.isPresent()) { // swaptions priced in parallel
+        DoubleArray ivModel = CalibrationParallelUtils
+            .values(nbSwaptions, i -> sessions.get(i).impliedVolatilityBachelier(parametersUpdated), pool.get());
+        return ivMarket.minus(ivModel);
+      }
       double[] ivModel = new double[nbSwaptions];
       for (int i = 0; i < nbSwaptions; i++) {
-        ivModel[i] =
-            PRICER_SWAPTION_LMM_APPROX.impliedVolatilityBachelier(swaptions.get(i), multicurve, parametersUpdated);
+        ivModel[i] = sessions.get(i).impliedVolatilityBachelier(parametersUpdated);
       }
       return ivMarket.minus(DoubleArray.ofUnsafe(ivModel));
     }
@@ -0,0 +1,411 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.rationalmulticurve;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.strata.basics.index.IborIndexObservation;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.rate.IborRateComputation;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBufferHeap;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloStepConsumer;
+
+/**
+ * Method to generate Monte Carlo paths for the one-factor and two-factor rational multi-curve models.
+ * <p>
+ * The model parameters are described in {@link RationalOneFactorParameters} and {@link RationalTwoFactorParameters}.
+ * The state variables are the Brownian motions X_i driving the log-normal martingales
+ * A_i(t) = exp(a_i X_i(t) - 0.5 a_i^2 t) - 1. They are sampled exactly at the step dates, with one draw
+ * per factor and per step whatever the length of the step; there is no time discretisation.
+ * <p>
+ * In the rational models, all the quantities required for pricing, once rebased by the numeraire, are affine in
+ * the martingales: P(t,T)/N(t) = P(0,T) + b0(T) A_1(t) for the discount factors and
+ * L(t) P(t,v)/N(t) = L(0) P(0,v) + b1 A_1(t) + b2 A_2(t) for the Ibor rates with maturity v.
+ * The initial value of the numeraire is 1.
+ * <p>
+ * The initial values of the evolution are the coefficients of those affine quantities. They are stored in the
+ * overnight rates of the multi-curve equivalent values: for each quantity, the initial value, the coefficient
+ * of A_1 and the coefficient of A_2, contiguously. The output at each step are the values of the quantities,
+ * evaluated in bulk for all the paths. For the quantities related to Ibor rates, the values are relevant
+ * only up to the fixing date.
+ *
+ * @author Marc Henrard
+ */
+public final class RationalMonteCarloEvolution {
+
+  /** The number of coefficients describing each affine quantity. */
+  public static final int NB_COEFFICIENTS = 3;
+  /** Default instance */
+  public static final RationalMonteCarloEvolution DEFAULT = new RationalMonteCarloEvolution();
+
+  // Private constructor
+  private RationalMonteCarloEvolution() {
+  }
+
+  /**
+   * Returns the coefficients of the affine quantities required to value a multi-curve equivalent.
+   * <p>
+   * The quantities are, in that order, the rebased discount factors for each discount factor payment and,
+   * for each Ibor computation, the rebased Ibor rate multiplied by the discount factor at the index maturity,
+   * the rebased discount factor at the index maturity and the rebased discount factor at the payment date.
+   * The rebased Ibor payment is the first of those quantities divided by the second and multiplied by the third.
+   *
+   * @param mce  the multi-curve equivalent
+   * @param multicurve  the multi-curve provider
+   * @param model  the rational model, one-factor or two-factor
+   * @return the coefficients, dimension: 3 * quantities
+   */
+  public double[] coefficients(
+      MulticurveEquivalent mce,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    int nbFix = mce.getDiscountFactorPayments().size();
+    int nbIbor = mce.getIborComputations().size();
+    double[] coefficients = new double[NB_COEFFICIENTS * (nbFix + 3 * nbIbor)];
+    int loopq = 0;
+    for (int loopfix = 0; loopfix < nbFix; loopfix++) {
+      LocalDate paymentDate = mce.getDiscountFactorPayments().get(loopfix).getPaymentDate();
+      double df = multicurve.discountFactor(model.getCurrency(), paymentDate);
+      System.arraycopy(discountFactorCoefficients(model, paymentDate, df), 0,
+          coefficients, NB_COEFFICIENTS * loopq++, NB_COEFFICIENTS);
+    }
+    for (int loopibor = 0; loopibor < nbIbor; loopibor++) {
+      IborRateComputation computation = mce.getIborComputations().get(loopibor);
+      LocalDate maturityDate = computation.getMaturityDate();
+      LocalDate paymentDate = mce.getIborPayments().get(loopibor).getPaymentDate();
+      double dfMaturity = multicurve.discountFactor(model.getCurrency(), maturityDate);
+      double dfPayment = multicurve.discountFactor(model.getCurrency(), paymentDate);
+      double iborRate = multicurve.iborIndexRates(computation.getIndex()).rate(computation.getObservation());
+      System.arraycopy(iborCoefficients(model, computation.getObservation(), iborRate, dfMaturity), 0,
+          coefficients, NB_COEFFICIENTS * loopq++, NB_COEFFICIENTS);
+      System.arraycopy(discountFactorCoefficients(model, maturityDate, dfMaturity), 0,
+          coefficients, NB_COEFFICIENTS * loopq++, NB_COEFFICIENTS);
+      System.arraycopy(discountFactorCoefficients(model, paymentDate, dfPayment), 0,
+          coefficients, NB_COEFFICIENTS * loopq++, NB_COEFFICIENTS);
+    }
+    return coefficients;
+  }
+
+  /**
+   * Returns the coefficients of the rebased discount factor for a given date.
+   *
+   * @param model  the rational model, one-factor or two-factor
+   * @param date  the discount factor date
+   * @param discountFactor  the initial discount factor P(0,T)
+   * @return the coefficients: initial value, coefficient of A_1 and coefficient of A_2
+   */
+  public double[] discountFactorCoefficients(
+      SingleCurrencyModelParameters model,
+      LocalDate date,
+      double discountFactor) {
+
+    double b0 = (model instanceof RationalTwoFactorParameters) ?
+        ((RationalTwoFactorParameters) model).b0(date) :
+        oneFactor(model).b0(date);
+    return new double[] {discountFactor, b0, 0.0d};
+  }
+
+  /**
+   * Returns the coefficients of the rebased Ibor rate multiplied by the discount factor at the index maturity.
+   *
+   * @param model  the rational model, one-factor or two-factor
+   * @param obs  the Ibor index observation
+   * @param iborRate  the initial forward rate L(0)
+   * @param discountFactorMaturity  the initial discount factor P(0,v) at the index maturity
+   * @return the coefficients: initial value, coefficient of A_1 and coefficient of A_2
+   */
+  public double[] iborCoefficients(
+      SingleCurrencyModelParameters model,
+      IborIndexObservation obs,
+      double iborRate,
+      double discountFactorMaturity) {
+
+    if (model instanceof RationalTwoFactorParameters) {
+      RationalTwoFactorParameters model2 = (RationalTwoFactorParameters) model;
+      return new double[] {iborRate * discountFactorMaturity, model2.b1(obs), model2.b2(obs)};
+    }
+    return new double[] {iborRate * discountFactorMaturity, oneFactor(model).b1(obs), 0.0d};
+  }
+
+  /**
+   * Returns the number of factors of the model.
+   *
+   * @param model  the rational model, one-factor or two-factor
+   * @return the number of factors
+   */
+  public int factorCount(SingleCurrencyModelParameters model) {
+    if (model instanceof RationalTwoFactorParameters) {
+      return 2;
+    }
+    oneFactor(model); // check the model type
+    return 1;
+  }
+
+  /**
+   * Evolves according to a model starting values up to the decision date.
+   *
+   * @param stepDateTime  the date and time of the step
+   * @param initialValues  the coefficients of the affine quantities
+   * @param model  the rational model, one-factor or two-factor
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the quantities at the decision date described in the multi-curve equivalent
+   */
+  public List<MulticurveEquivalentValues> evolveOneStep(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      SingleCurrencyModelParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    return evolveOneStepPaths(stepDateTime, initialValues, model, numberGenerator, nbPaths).toValues();
+  }
+
+  /**
+   * Evolves according to a model starting values up to the decision date and returns the quantities
+   * in a path buffer.
+   *
+   * @param stepDateTime  the date and time of the step
+   * @param initialValues  the coefficients of the affine quantities
+   * @param model  the rational model, one-factor or two-factor
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the quantities at the decision date, dimensions: quantities x paths
+   */
+  public MonteCarloPathBuffer evolveOneStepPaths(
+      ZonedDateTime stepDateTime,
+      MulticurveEquivalentValues initialValues,
+      SingleCurrencyModelParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    double[] stepTimes = new double[] {model.relativeTime(stepDateTime)};
+    double[][][] result = new double[1][][];
+    pathGenerator(stepTimes, initialValues.getOnRates().toArrayUnsafe(), model, numberGenerator,
+        nbPaths, (step, values) -> result[0] = values);
+    return MonteCarloPathBufferHeap.ofUnsafe(result[0]);
+  }
+
+  /**
+   * Evolves according to a model starting values up to the different decision dates.
+   *
+   * @param stepDateTimes  the dates and times of each step
+   * @param initialValues  the coefficients of the affine quantities
+   * @param model  the rational model, one-factor or two-factor
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @return the quantities at the decision dates described in the multi-curve equivalent,
+   *   dimensions nbPaths x nbSteps
+   */
+  public List<List<MulticurveEquivalentValues>> evolveMultiSteps(
+      List<ZonedDateTime> stepDateTimes,
+      MulticurveEquivalentValues initialValues,
+      SingleCurrencyModelParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths) {
+
+    int nbSteps = stepDateTimes.size();
+    int nbQuantities = initialValues.getOnRates().size() / NB_COEFFICIENTS;
+    List<List<MulticurveEquivalentValues>> paths = new ArrayList<>();
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      paths.add(new ArrayList<>(nbSteps));
+    }
+    evolveMultiStepsStreaming(stepDateTimes, initialValues, model, numberGenerator, nbPaths,
+        (step, values) -> {
+          for (int looppath = 0; looppath < nbPaths; looppath++) {
+            double[] q = new double[nbQuantities];
+            for (int i = 0; i < nbQuantities; i++) {
+              q[i] = values[i][looppath];
+            }
+            paths.get(looppath).add(MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(q)).build());
+          }
+        });
+    return paths;
+  }
+
+  /**
+   * Evolves according to a model starting values up to the different decision dates and passes the quantities
+   * at each decision date to a consumer.
+   * <p>
+   * The streaming version of {@link #evolveMultiSteps}: the random numbers are the same and the values
+   * passed to the consumer at each step are the ones returned by that method, but only the running state is stored.
+   *
+   * @param stepDateTimes  the dates and times of each step
+   * @param initialValues  the coefficients of the affine quantities
+   * @param model  the rational model, one-factor or two-factor
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the quantities at each step, dimensions: quantities x paths
+   */
+  public void evolveMultiStepsStreaming(
+      List<ZonedDateTime> stepDateTimes,
+      MulticurveEquivalentValues initialValues,
+      SingleCurrencyModelParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    int nbSteps = stepDateTimes.size();
+    double[] stepTimes = new double[nbSteps];
+    for (int i = 0; i < nbSteps; i++) {
+      stepTimes[i] = model.relativeTime(stepDateTimes.get(i));
+    }
+    pathGenerator(stepTimes, initialValues.getOnRates().toArrayUnsafe(), model, numberGenerator,
+        nbPaths, consumer);
+  }
+
+  /**
+   * Generates the paths of the affine quantities and passes them to a consumer at each step.
+   * <p>
+   * The martingales are generated by {@link #pathGeneratorMartingales} and the quantities are evaluated in bulk
+   * from the coefficients. A new array is passed to the consumer for each step.
+   *
+   * @param stepTimes  the required step times, today is represented by 0, the times must be positive and in
+   *   increasing order
+   * @param coefficients  the coefficients of the affine quantities, dimension: 3 * quantities
+   * @param model  the rational model, one-factor or two-factor
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the quantities at each step, dimensions: quantities x paths
+   */
+  public void pathGenerator(
+      double[] stepTimes,
+      double[] coefficients,
+      SingleCurrencyModelParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    ArgChecker.isTrue(coefficients.length % NB_COEFFICIENTS == 0,
+        "number of coefficients must be a multiple of {}", NB_COEFFICIENTS);
+    int nbQuantities = coefficients.length / NB_COEFFICIENTS;
+    pathGeneratorMartingales(stepTimes, model, numberGenerator, nbPaths,
+        (step, martingales) -> {
+          double[][] values = new double[nbQuantities][nbPaths];
+          for (int loopq = 0; loopq < nbQuantities; loopq++) {
+            affineValues(coefficients, loopq, martingales, values[loopq]);
+          }
+          consumer.accept(step, values);
+        });
+  }
+
+  /**
+   * Generates the paths of the martingales A_i and passes them to a consumer at each step.
+   * <p>
+   * For each step, one vector of random numbers is drawn from the generator for each factor. The increments of
+   * the Brownian motions are exact, the second one correlated to the first one. The running state is stored
+   * in the consumer arrays, a new array is passed to the consumer for each step.
+   *
+   * @param stepTimes  the required step times, today is represented by 0, the times must be positive and in
+   *   increasing order
+   * @param model  the rational model, one-factor or two-factor
+   * @param numberGenerator  the random number generator
+   * @param nbPaths  the number of paths to be generated
+   * @param consumer  the consumer of the martingales at each step, dimensions: factors x paths
+   */
+  public void pathGeneratorMartingales(
+      double[] stepTimes,
+      SingleCurrencyModelParameters model,
+      RandomNumberGenerator numberGenerator,
+      int nbPaths,
+      MonteCarloStepConsumer consumer) {
+
+    int nbFactors = factorCount(model);
+    double[] a;
+    double rho = 0.0d;
+    if (nbFactors == 2) {
+      RationalTwoFactorParameters model2 = (RationalTwoFactorParameters) model;
+      a = new double[] {model2.a1(), model2.a2()};
+      rho = model2.getCorrelation();
+    } else {
+      a = new double[] {oneFactor(model).a()};
+    }
+    double rhoBar = Math.sqrt(1.0d - rho * rho);
+    double[][] x = new double[nbFactors][nbPaths];
+    double timePrevious = 0.0d;
+    for (int loopstep = 0; loopstep < stepTimes.length; loopstep++) {
+      double time = stepTimes[loopstep];
+      ArgChecker.isTrue(time >= timePrevious, "step times must be positive and in increasing order");
+      double sqrtDt = Math.sqrt(time - timePrevious);
+      double[] z1 = numberGenerator.getVector(nbPaths);
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        x[0][looppath] += sqrtDt * z1[looppath];
+      }
+      if (nbFactors == 2) {
+        double[] z2 = numberGenerator.getVector(nbPaths);
+        for (int looppath = 0; looppath < nbPaths; looppath++) {
+          x[1][looppath] += sqrtDt * (rho * z1[looppath] + rhoBar * z2[looppath]);
+        }
+      }
+      double[][] martingales = new double[nbFactors][nbPaths];
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        double drift = -0.5d * a[loopfact] * a[loopfact] * time;
+        for (int looppath = 0; looppath < nbPaths; looppath++) {
+          martingales[loopfact][looppath] = Math.exp(a[loopfact] * x[loopfact][looppath] + drift) - 1.0d;
+        }
+      }
+      consumer.accept(loopstep, martingales);
+      timePrevious = time;
+    }
+  }
+
+  /**
+   * Evaluates one affine quantity for all the paths.
+   *
+   * @param coefficients  the coefficients of the affine quantities, dimension: 3 * quantities
+   * @param quantity  the index of the quantity
+   * @param martingales  the martingales, dimensions: factors x paths
+   * @param values  the values of the quantity, dimension: paths, modified in place
+   */
+  public static void affineValues(double[] coefficients, int quantity, double[][] martingales, double[] values) {
+    int nbPaths = values.length;
+    double c0 = coefficients[NB_COEFFICIENTS * quantity];
+    double c1 = coefficients[NB_COEFFICIENTS * quantity + 1];
+    double c2 = coefficients[NB_COEFFICIENTS * quantity + 2];
+    double[] a1 = martingales[0];
+    if (martingales.length == 1 || c2 == 0.0d) {
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        values[looppath] = c0 + c1 * a1[looppath];
+      }
+      return;
+    }
+    double[] a2 = martingales[1];
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      values[looppath] = c0 + c1 * a1[looppath] + c2 * a2[looppath];
+    }
+  }
+
+  /**
+   * Returns the number of random dimensions used in the path generation for one path.
+   * <p>
+   * One dimension is used for each step and each factor.
+   *
+   * @param stepTimes  the required step times, the times must be positive and in increasing order
+   * @param model  the rational model, one-factor or two-factor
+   * @return the number of dimensions
+   */
+  public int randomDimension(double[] stepTimes, SingleCurrencyModelParameters model) {
+    return factorCount(model) * stepTimes.length;
+  }
+
+  // Cast to one-factor model with check
+  private static RationalOneFactorParameters oneFactor(SingleCurrencyModelParameters model) {
+    ArgChecker.isTrue(model instanceof RationalOneFactorParameters,
+        "model must be a one-factor or a two-factor rational model");
+    return (RationalOneFactorParameters) model;
+  }
+
+}
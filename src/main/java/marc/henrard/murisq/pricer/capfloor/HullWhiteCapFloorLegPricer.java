@@ -5,6 +5,7 @@ package marc.henrard.murisq.pricer.capfloor;
 
 import com.opengamma.strata.basics.currency.CurrencyAmount;
 import com.opengamma.strata.basics.currency.MultiCurrencyAmount;
+import com.opengamma.strata.collect.array.DoubleArray;
 import com.opengamma.strata.market.sensitivity.PointSensitivityBuilder;
 import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParametersProvider;
 import com.opengamma.strata.pricer.rate.RatesProvider;
@@ -96,4 +97,25 @@ public class HullWhiteCapFloorLegPricer {
         .get();
   }
 
+  /**
+   * Calculates the present value sensitivity of the Ibor cap/floor leg to the Hull-White model volatility 
+   * parameters.
+   * 
+   * @param capFloorLeg  the Ibor cap/floor leg
+   * @param multicurve  the rates provider 
+   * @param hwProvider  the Hull-White model parameter provider
+   * @return the sensitivity to the volatility parameters
+   */
+  public DoubleArray presentValueSensitivityModelParamsHullWhite(
+      ResolvedIborCapFloorLeg capFloorLeg,
+      RatesProvider multicurve,
+      HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider) {
+
+    return capFloorLeg.getCapletFloorletPeriods()
+        .stream()
+        .map(period -> PERIOD_PRICER.presentValueSensitivityModelParamsHullWhite(period, multicurve, hwProvider))
+        .reduce((c1, c2) -> c1.plus(c2))
+        .get();
+  }
+
 }
@@ -10,10 +10,12 @@ import com.opengamma.strata.basics.currency.CurrencyAmount;
 import com.opengamma.strata.basics.currency.MultiCurrencyAmount;
 import com.opengamma.strata.basics.index.IborIndexObservation;
 import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
 import com.opengamma.strata.market.sensitivity.PointSensitivityBuilder;
 import com.opengamma.strata.math.impl.statistics.distribution.NormalDistribution;
 import com.opengamma.strata.math.impl.statistics.distribution.ProbabilityDistribution;
 import com.opengamma.strata.pricer.ZeroRateSensitivity;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantInterestRateModel;
 import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParametersProvider;
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.capfloor.IborCapletFloorletPeriod;
@@ -33,6 +35,11 @@ public class HullWhiteCapletFloorletPeriodPricer{
    * Normal distribution function.
    */
   private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+  /**
+   * Hull-White model.
+   */
+  private static final HullWhiteOneFactorPiecewiseConstantInterestRateModel HW_MODEL =
+      HullWhiteOneFactorPiecewiseConstantInterestRateModel.DEFAULT;
 
   /**
    * Default implementation.
@@ -179,6 +186,66 @@ public class HullWhiteCapletFloorletPeriodPricer{
     return sensitivity;
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Calculates the present value sensitivity of the caplet/floorlet period to the Hull-White model volatility 
+   * parameters.
+   * <p>
+   * The sensitivity is computed analytically. The derivative of the exercise boundary kappa does not contribute
+   * as kappa is optimal.
+   * 
+   * @param caplet  the product
+   * @param ratesProvider  the rates provider
+   * @param hwProvider  the Hull-White model parameter provider
+   * @return the sensitivity to the volatility parameters
+   */
+  public DoubleArray presentValueSensitivityModelParamsHullWhite(
+      IborCapletFloorletPeriod caplet, 
+      RatesProvider ratesProvider,
+      HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider) {
+
+    validate(ratesProvider, hwProvider);
+    Currency ccy = caplet.getCurrency();
+    LocalDate expiryDate = caplet.getFixingDate();
+    int nbSigma = hwProvider.getParameters().getVolatility().size();
+    if (expiryDate.isBefore(ratesProvider.getValuationDate())) { // Option has expired already
+      return DoubleArray.filled(nbSigma);
+    }
+    double deltaIbor = caplet.getIborRate().getYearFraction();
+    double deltaPay = caplet.getYearFraction();
+    IborIndexObservation obsIbor = caplet.getIborRate().getObservation();
+    double investmentFactorIbor = 1.0 + deltaIbor * ratesProvider.iborIndexRates(caplet.getIndex()).rate(obsIbor);
+    double onePlusDeltaK = 1.0 + deltaIbor * caplet.getStrike();
+    LocalDate[] paymentDates = new LocalDate[2];
+    paymentDates[0] = obsIbor.getEffectiveDate();
+    paymentDates[1] = caplet.getPaymentDate();
+    double[] alpha = new double[2];
+    DoubleArray[] alphaDsigma = new DoubleArray[2];
+    for (int loopcf = 0; loopcf < 2; loopcf++) {
+      alpha[loopcf] = hwProvider
+          .alpha(ratesProvider.getValuationDate(), expiryDate, paymentDates[loopcf], obsIbor.getMaturityDate());
+      alphaDsigma[loopcf] = HW_MODEL.alphaSensitivity(hwProvider.getParameters(),
+          hwProvider.relativeTime(ratesProvider.getValuationDate()), hwProvider.relativeTime(expiryDate),
+          hwProvider.relativeTime(paymentDates[loopcf]), hwProvider.relativeTime(obsIbor.getMaturityDate()));
+    }
+    double discountFactorPayment = ratesProvider.discountFactor(ccy, caplet.getPaymentDate());
+    double kappa = ( Math.log(investmentFactorIbor / onePlusDeltaK) - 0.5 * alpha[0] * alpha[0]) / alpha[0];
+    double expalpha01 = Math.exp(alpha[0] * alpha[1]);
+    double normalKappaAlpha0Alpha1 = NORMAL.getCDF(kappa + alpha[0] + alpha[1]);
+    // Caplet derivatives, the floorlet ones are obtained by put/call parity
+    double[] pvDalpha = new double[2];
+    pvDalpha[0] = investmentFactorIbor * expalpha01 * normalKappaAlpha0Alpha1 * alpha[1]
+        + onePlusDeltaK * NORMAL.getPDF(kappa + alpha[1]);
+    pvDalpha[1] = investmentFactorIbor * expalpha01 * normalKappaAlpha0Alpha1 * alpha[0];
+    if (!caplet.getPutCall().isCall()) {
+      pvDalpha[0] -= investmentFactorIbor * expalpha01 * alpha[1];
+      pvDalpha[1] -= investmentFactorIbor * expalpha01 * alpha[0];
+    }
+    double factor = discountFactorPayment * deltaPay / deltaIbor * caplet.getNotional();
+    return alphaDsigma[0].multipliedBy(pvDalpha[0] * factor)
+        .plus(alphaDsigma[1].multipliedBy(pvDalpha[1] * factor));
+  }
+
   //-------------------------------------------------------------------------
   // validate that the rates and volatilities providers are coherent
   private void validate(
@@ -0,0 +1,306 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.capfloor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.currency.CurrencyAmount;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.math.impl.statistics.distribution.NormalDistribution;
+import com.opengamma.strata.math.impl.statistics.distribution.ProbabilityDistribution;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.capfloor.IborCapletFloorletPeriod;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.model.rationalmulticurve.RationalTwoFactorFormulas;
+import marc.henrard.murisq.model.rationalmulticurve.RationalTwoFactorParameters;
+import marc.henrard.murisq.pricer.generic.CorrelatedGaussHermiteIntegrator2D;
+
+/**
+ * Price of caplets/floorlets in the two-factor rational model by Gauss-Hermite quadrature.
+ * <p>
+ * The price is the expectation of (c_0 + c_1 (A(1) + 1) + c_2 (A(2) + 1))^+ where the coefficients are the ones
+ * provided by {@link RationalTwoFactorFormulas#capletCoefficients}. The first factor is integrated by Gauss-Hermite
+ * quadrature and the second factor, conditional to the first one, is integrated explicitly.
+ * See {@link CorrelatedGaussHermiteIntegrator2D} for the decomposition of the correlated variables.
+ * <p>
+ * The pricer is designed to price a full cap/floor strip or a strike x expiry grid in one call through
+ * {@link #presentValues}. The coefficients of all the caplets are computed in one pass and the quadrature grids,
+ * which depend only on the model parameters a_1, a_2, the correlation and the expiry, are computed once by call
+ * and shared by all the caplets with the same expiry. The pricer does not keep any state between calls.
+ * <p>
+ * The martingales are A(1) = exp(a_1 X_t^(1) - 0.5 a_1^2 t) - 1, A(2) = exp(a_2 X_t^(2)  - 0.5 a_2^2 t) - 1.
+ * The Libor process numerator is of the form L(0) + b_1 A(1) + b_2 A(2)
+ * The discount factor process numerator is of the form P(0,T) + b_0(T) A(1)
+ *
+ * @author Marc Henrard
+ */
+public class RationalTwoFactorCapletFloorletPeriodGaussHermitePricer
+    extends SingleCurrencyModelCapletFloorletPeriodPricer {
+
+  /** Repository for formulas associated to the two-factor rational model. */
+  private static final RationalTwoFactorFormulas FORMULAS = RationalTwoFactorFormulas.DEFAULT;
+  /** The standard normal distribution. */
+  private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+  /** The shift used in the finite difference of the coefficients with respect to the model parameters. */
+  private static final double FD_SHIFT = 1.0E-6;
+
+  /** The integrator providing the Gauss-Hermite nodes and weights. */
+  private final CorrelatedGaussHermiteIntegrator2D integrator;
+
+  /** Default implementation. */
+  public static final RationalTwoFactorCapletFloorletPeriodGaussHermitePricer DEFAULT =
+      new RationalTwoFactorCapletFloorletPeriodGaussHermitePricer(CorrelatedGaussHermiteIntegrator2D.DEFAULT_ORDER);
+
+  /**
+   * Creates an instance.
+   *
+   * @param order  the number of Gauss-Hermite nodes
+   */
+  public RationalTwoFactorCapletFloorletPeriodGaussHermitePricer(int order) {
+    this.integrator = CorrelatedGaussHermiteIntegrator2D.of(order);
+  }
+
+  @Override
+  public CurrencyAmount presentValue(
+      IborCapletFloorletPeriod caplet,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    List<IborCapletFloorletPeriod> caplets = new ArrayList<>();
+    caplets.add(caplet);
+    return presentValues(caplets, multicurve, model).get(0);
+  }
+
+  /**
+   * Computes the present values of a list of caplets/floorlets in the two-factor rational model.
+   * <p>
+   * The caplets/floorlets can have different expiries, strikes and notionals. The quadrature grid is computed
+   * once for each expiry.
+   *
+   * @param caplets  the caplet/floorlet periods to price
+   * @param multicurve  the rates provider
+   * @param model  the rational model parameters
+   * @return the present values, in the same order as the caplets/floorlets
+   */
+  @Override
+  public List<CurrencyAmount> presentValues(
+      List<IborCapletFloorletPeriod> caplets,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    ArgChecker.isTrue(model instanceof RationalTwoFactorParameters, "model must be RationalTwoFactorParameters");
+    RationalTwoFactorParameters model2 = (RationalTwoFactorParameters) model;
+    double a1 = model2.a1();
+    double a2 = model2.a2();
+    double correlation = model2.getCorrelation();
+    Map<Double, QuadratureGrid> grids = new HashMap<>(); // by expiry time
+    List<CurrencyAmount> pv = new ArrayList<>(caplets.size());
+    for (IborCapletFloorletPeriod caplet : caplets) {
+      validate(multicurve, caplet, model);
+      Currency ccy = caplet.getCurrency();
+      double expiryTime = model.relativeTime(caplet.getFixingDateTime());
+      double[] c = FORMULAS.capletCoefficients(caplet, multicurve, model2);
+      QuadratureGrid grid =
+          grids.computeIfAbsent(expiryTime, t -> new QuadratureGrid(integrator, a1, a2, correlation, t));
+      double pvNum = multicurve.discountFactor(ccy, caplet.getPaymentDate()) /
+          multicurve.discountFactor(ccy, caplet.getIborRate().getMaturityDate()) * grid.expectationPositivePart(c);
+      pv.add(CurrencyAmount.of(ccy, (caplet.getNotional() > 0) ? pvNum : -pvNum));
+    }
+    return pv;
+  }
+
+  /**
+   * Computes the present value sensitivities of a list of caplets/floorlets to the model parameters.
+   * <p>
+   * The derivatives of the expectation with respect to the coefficients, a_1, a_2 and the correlation are computed
+   * analytically on the quadrature grid, with the same computational cost as the present value. The
+   * derivatives of the coefficients, a_1, a_2 and the correlation with respect to the model parameters are
+   * computed by finite difference; they are closed form and do not require any numerical integration.
+   * 
+   * @param caplets  the caplet/floorlet periods to price
+   * @param multicurve  the rates provider
+   * @param model  the rational model parameters
+   * @return the sensitivities, one row for each caplet/floorlet and one column for each model parameter
+   */
+  @Override
+  public Optional<DoubleMatrix> presentValueSensitivityModelParameters(
+      List<IborCapletFloorletPeriod> caplets,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    ArgChecker.isTrue(model instanceof RationalTwoFactorParameters, "model must be RationalTwoFactorParameters");
+    RationalTwoFactorParameters model2 = (RationalTwoFactorParameters) model;
+    double a1 = model2.a1();
+    double a2 = model2.a2();
+    double correlation = model2.getCorrelation();
+    Map<Double, QuadratureGrid> grids = new HashMap<>(); // by expiry time
+    int nbParameters = model.getParameterCount();
+    RationalTwoFactorParameters[] modelsUp = new RationalTwoFactorParameters[nbParameters];
+    RationalTwoFactorParameters[] modelsDown = new RationalTwoFactorParameters[nbParameters];
+    double[][] dModelParameters = new double[nbParameters][3]; // derivatives of a_1, a_2 and rho
+    for (int loopp = 0; loopp < nbParameters; loopp++) {
+      double p = model.getParameter(loopp);
+      modelsUp[loopp] = (RationalTwoFactorParameters) model2.withParameter(loopp, p + FD_SHIFT);
+      modelsDown[loopp] = (RationalTwoFactorParameters) model2.withParameter(loopp, p - FD_SHIFT);
+      dModelParameters[loopp][0] = (modelsUp[loopp].a1() - modelsDown[loopp].a1()) / (2 * FD_SHIFT);
+      dModelParameters[loopp][1] = (modelsUp[loopp].a2() - modelsDown[loopp].a2()) / (2 * FD_SHIFT);
+      dModelParameters[loopp][2] =
+          (modelsUp[loopp].getCorrelation() - modelsDown[loopp].getCorrelation()) / (2 * FD_SHIFT);
+    }
+    double[][] sensitivities = new double[caplets.size()][nbParameters];
+    for (int loopc = 0; loopc < caplets.size(); loopc++) {
+      IborCapletFloorletPeriod caplet = caplets.get(loopc);
+      validate(multicurve, caplet, model);
+      Currency ccy = caplet.getCurrency();
+      double expiryTime = model.relativeTime(caplet.getFixingDateTime());
+      double[] c = FORMULAS.capletCoefficients(caplet, multicurve, model2);
+      QuadratureGrid grid =
+          grids.computeIfAbsent(expiryTime, t -> new QuadratureGrid(integrator, a1, a2, correlation, t));
+      double factor = multicurve.discountFactor(ccy, caplet.getPaymentDate()) /
+          multicurve.discountFactor(ccy, caplet.getIborRate().getMaturityDate()) *
+          ((caplet.getNotional() > 0) ? 1.0d : -1.0d);
+      double[] dExpectation = grid.expectationPositivePartDerivatives(c);
+      for (int loopp = 0; loopp < nbParameters; loopp++) {
+        double[] cUp = FORMULAS.capletCoefficients(caplet, multicurve, modelsUp[loopp]);
+        double[] cDown = FORMULAS.capletCoefficients(caplet, multicurve, modelsDown[loopp]);
+        double sensitivity = 0.0d;
+        for (int j = 0; j < 3; j++) {
+          sensitivity += dExpectation[j] * (cUp[j] - cDown[j]) / (2 * FD_SHIFT)
+              + dExpectation[3 + j] * dModelParameters[loopp][j];
+        }
+        sensitivities[loopc][loopp] = factor * sensitivity;
+      }
+    }
+    return Optional.of(DoubleMatrix.ofUnsafe(sensitivities));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The quadrature grid for a given set of model parameters and expiry.
+   * <p>
+   * For each node z of the first standard normal variable Z_0, the grid contains A(1) + 1 and the part of
+   * A(2) + 1 depending on Z_0. Conditional to Z_0, A(2) + 1 is that part multiplied by exp(v Z_1).
+   */
+  private static final class QuadratureGrid {
+
+    /** The model parameters a_1, a_2, the correlation and the expiry time. */
+    private final double a1;
+    private final double a2;
+    private final double rho;
+    private final double t;
+    /** The quadrature nodes. */
+    private final double[] nodes;
+    /** The quadrature weights. */
+    private final double[] weights;
+    /** The value of exp(a_1 X_t^(1) - 0.5 a_1^2 t) at each node. */
+    private final double[] factor1;
+    /** The value of exp(a_2 rho sqrt(t) z - 0.5 a_2^2 t) at each node. */
+    private final double[] factor2;
+    /** The exponent of Z_1 in exp(a_2 X_t^(2) - 0.5 a_2^2 t). */
+    private final double v;
+    /** The value exp(0.5 v^2) = E[exp(v Z_1)]. */
+    private final double adjustment;
+
+    QuadratureGrid(CorrelatedGaussHermiteIntegrator2D integrator, double a1, double a2, double rho, double t) {
+      ArgChecker.inRangeExclusive(rho, -1.0d, 1.0d, "correlation");
+      this.a1 = a1;
+      this.a2 = a2;
+      this.rho = rho;
+      this.t = t;
+      this.nodes = integrator.getNodes();
+      this.weights = integrator.getWeights();
+      double sqrtt = Math.sqrt(t);
+      int order = nodes.length;
+      this.factor1 = new double[order];
+      this.factor2 = new double[order];
+      for (int i = 0; i < order; i++) {
+        factor1[i] = Math.exp(a1 * sqrtt * nodes[i] - 0.5d * a1 * a1 * t);
+        factor2[i] = Math.exp(a2 * sqrtt * rho * nodes[i] - 0.5d * a2 * a2 * t);
+      }
+      this.v = a2 * sqrtt * Math.sqrt(1.0d - rho * rho);
+      this.adjustment = Math.exp(0.5d * v * v);
+    }
+
+    // E[(c_0 + c_1 (A(1) + 1) + c_2 (A(2) + 1))^+]
+    double expectationPositivePart(double[] c) {
+      double result = 0.0d;
+      for (int i = 0; i < weights.length; i++) {
+        double d0 = c[0] + c[1] * factor1[i];
+        double d1 = c[2] * factor2[i];
+        result += weights[i] * conditionalExpectationPositivePart(d0, d1);
+      }
+      return result;
+    }
+
+    // E[(d_0 + d_1 exp(v Z))^+] for Z standard normal
+    private double conditionalExpectationPositivePart(double d0, double d1) {
+      if (d1 == 0.0d || v == 0.0d) {
+        return Math.max(d0 + d1, 0.0d);
+      }
+      if (d0 >= 0.0d && d1 > 0.0d) {
+        return d0 + d1 * adjustment;
+      }
+      if (d0 <= 0.0d && d1 < 0.0d) {
+        return 0.0d;
+      }
+      double boundary = Math.log(-d0 / d1) / v;
+      if (d1 * v > 0.0d) { // positive above the boundary
+        return d0 * NORMAL.getCDF(-boundary) + d1 * adjustment * NORMAL.getCDF(v - boundary);
+      }
+      return d0 * NORMAL.getCDF(boundary) + d1 * adjustment * NORMAL.getCDF(boundary - v);
+    }
+
+    // Derivatives of E[(c_0 + c_1 (A(1) + 1) + c_2 (A(2) + 1))^+] with respect to c_0, c_1, c_2, a_1, a_2 and rho
+    double[] expectationPositivePartDerivatives(double[] c) {
+      double sqrtt = Math.sqrt(t);
+      double sqrtOneMinusRho2 = Math.sqrt(1.0d - rho * rho);
+      double[] derivatives = new double[6];
+      for (int i = 0; i < weights.length; i++) {
+        double d0 = c[0] + c[1] * factor1[i];
+        double d1 = c[2] * factor2[i];
+        double[] integrals = conditionalIntegrals(d0, d1);
+        double term0 = weights[i] * integrals[0];
+        double term1 = term0 * factor1[i];
+        double term2 = weights[i] * factor2[i] * integrals[1];
+        double term2z = weights[i] * factor2[i] * integrals[2];
+        derivatives[0] += term0;
+        derivatives[1] += term1;
+        derivatives[2] += term2;
+        derivatives[3] += c[1] * term1 * (sqrtt * nodes[i] - a1 * t);
+        derivatives[4] += c[2] * (term2 * (sqrtt * rho * nodes[i] - a2 * t) + term2z * sqrtt * sqrtOneMinusRho2);
+        derivatives[5] += c[2] * a2 * sqrtt * (term2 * nodes[i] - term2z * rho / sqrtOneMinusRho2);
+      }
+      return derivatives;
+    }
+
+    // E[1_R], E[1_R exp(v Z)] and E[1_R exp(v Z) Z] where R is the region where d_0 + d_1 exp(v Z) > 0
+    private double[] conditionalIntegrals(double d0, double d1) {
+      if (v == 0.0d) {
+        return (d0 + d1 > 0.0d) ? new double[] {1.0d, 1.0d, 0.0d} : new double[3];
+      }
+      if ((d1 == 0.0d && d0 > 0.0d) || (d0 >= 0.0d && d1 > 0.0d)) {
+        return new double[] {1.0d, adjustment, v * adjustment};
+      }
+      if (d1 == 0.0d || (d0 <= 0.0d && d1 < 0.0d)) {
+        return new double[3];
+      }
+      double boundary = Math.log(-d0 / d1) / v;
+      double density = NORMAL.getPDF(boundary - v);
+      if (d1 * v > 0.0d) { // region above the boundary
+        double cdf = NORMAL.getCDF(v - boundary);
+        return new double[] {NORMAL.getCDF(-boundary), adjustment * cdf, adjustment * (v * cdf + density)};
+      }
+      double cdf = NORMAL.getCDF(boundary - v);
+      return new double[] {NORMAL.getCDF(boundary), adjustment * cdf, adjustment * (v * cdf - density)};
+    }
+  }
+
+}
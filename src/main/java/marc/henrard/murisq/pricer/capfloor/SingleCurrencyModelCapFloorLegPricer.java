@@ -4,13 +4,19 @@
 package marc.henrard.murisq.pricer.capfloor;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.function.Function;
 
 import com.opengamma.strata.basics.currency.CurrencyAmount;
 import com.opengamma.strata.basics.date.DayCounts;
 import com.opengamma.strata.basics.index.IborIndex;
 import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleMatrix;
 import com.opengamma.strata.market.ValueType;
+import com.opengamma.strata.market.param.CurrencyParameterSensitivity;
+import com.opengamma.strata.market.sensitivity.PointSensitivities;
 import com.opengamma.strata.market.surface.ConstantSurface;
 import com.opengamma.strata.market.surface.DefaultSurfaceMetadata;
 import com.opengamma.strata.math.impl.rootfinding.BracketRoot;
@@ -72,6 +78,82 @@ public class SingleCurrencyModelCapFloorLegPricer {
         .get();
   }
 
+  /**
+   * Calculates the present values of a list of Ibor cap/floor legs.
+   * <p>
+   * The caplets/floorlets of all the legs are priced together through
+   * {@link SingleCurrencyModelCapletFloorletPeriodPricer#presentValues}.
+   * This is useful for the pricers sharing numerical integration data between periods.
+   * 
+   * @param capFloorLegs  the Ibor cap/floor legs
+   * @param multicurve  the rates provider 
+   * @param model  the model parameters
+   * @return the present values, in the same order as the legs
+   */
+  public List<CurrencyAmount> presentValues(
+      List<ResolvedIborCapFloorLeg> capFloorLegs,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    List<IborCapletFloorletPeriod> periods = new ArrayList<>();
+    for (ResolvedIborCapFloorLeg leg : capFloorLegs) {
+      periods.addAll(leg.getCapletFloorletPeriods());
+    }
+    List<CurrencyAmount> pvPeriods = periodPricer.presentValues(periods, multicurve, model);
+    List<CurrencyAmount> pvLegs = new ArrayList<>(capFloorLegs.size());
+    int loopperiod = 0;
+    for (ResolvedIborCapFloorLeg leg : capFloorLegs) {
+      CurrencyAmount pvLeg = pvPeriods.get(loopperiod);
+      loopperiod++;
+      for (int i = 1; i < leg.getCapletFloorletPeriods().size(); i++) {
+        pvLeg = pvLeg.plus(pvPeriods.get(loopperiod));
+        loopperiod++;
+      }
+      pvLegs.add(pvLeg);
+    }
+    return pvLegs;
+  }
+
+  /**
+   * Calculates the present value sensitivities of a list of Ibor cap/floor legs to the model parameters.
+   * <p>
+   * The matrix has one row for each leg and one column for each model parameter. The sensitivities are available
+   * only if the period pricer provides them, 
+   * see {@link SingleCurrencyModelCapletFloorletPeriodPricer#presentValueSensitivityModelParameters}.
+   * 
+   * @param capFloorLegs  the Ibor cap/floor legs
+   * @param multicurve  the rates provider 
+   * @param model  the rational model parameters
+   * @return the sensitivities, if available
+   */
+  public Optional<DoubleMatrix> presentValueSensitivityModelParameters(
+      List<ResolvedIborCapFloorLeg> capFloorLegs,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    List<IborCapletFloorletPeriod> periods = new ArrayList<>();
+    for (ResolvedIborCapFloorLeg leg : capFloorLegs) {
+      periods.addAll(leg.getCapletFloorletPeriods());
+    }
+    Optional<DoubleMatrix> sensiPeriods =
+        periodPricer.presentValueSensitivityModelParameters(periods, multicurve, model);
+    if (!sensiPeriods.isPresent()) {
+      return Optional.empty();
+    }
+    int nbParameters = model.getParameterCount();
+    double[][] sensiLegs = new double[capFloorLegs.size()][nbParameters];
+    int loopperiod = 0;
+    for (int loopleg = 0; loopleg < capFloorLegs.size(); loopleg++) {
+      for (int i = 0; i < capFloorLegs.get(loopleg).getCapletFloorletPeriods().size(); i++) {
+        for (int loopp = 0; loopp < nbParameters; loopp++) {
+          sensiLegs[loopleg][loopp] += sensiPeriods.get().get(loopperiod, loopp);
+        }
+        loopperiod++;
+      }
+    }
+    return Optional.of(DoubleMatrix.ofUnsafe(sensiLegs));
+  }
+
   /**
    * Computes the implied volatility in the Bachelier model.
    * <p>
@@ -119,14 +201,7 @@ public class SingleCurrencyModelCapFloorLegPricer {
     }
     Function<Double, Double> error = x -> {
       NormalIborCapletFloorletExpiryStrikeVolatilities volatilities =
-          NormalIborCapletFloorletExpiryStrikeVolatilities.of(index, valuationDateTime,
-              ConstantSurface.of(DefaultSurfaceMetadata.builder()
-                  .surfaceName("Bachelier-vol")
-                  .xValueType(ValueType.YEAR_FRACTION)
-                  .yValueType(ValueType.STRIKE)
-                  .zValueType(ValueType.NORMAL_VOLATILITY)
-                  .dayCount(DayCounts.ACT_365F).build(),
-                  x));
+          volatilitiesBachelier(index, valuationDateTime, x);
       double pvBachelier = PRICER_LEG_BACHELIER.presentValue(capFloorLeg, multicurve, volatilities).getAmount();
       return pv - pvBachelier;
     };
@@ -137,6 +212,52 @@ public class SingleCurrencyModelCapFloorLegPricer {
     return impliedVolatility;
   }
   
+  /**
+   * Computes the vega in the Bachelier model, i.e. the derivative of the present value with respect to the
+   * constant volatility for all caplets/floorlets composing the leg.
+   * <p>
+   * Combined with the present value sensitivities, the vega at the implied volatility provides the sensitivities
+   * of the implied volatility.
+   * 
+   * @param capFloorLeg  the Ibor cap/floor leg
+   * @param multicurve  the rates provider 
+   * @param volatility  the Bachelier volatility
+   * @param valuationDateTime  the valuation date and time
+   * @return the vega in the Bachelier model
+   */
+  public double vegaBachelier(
+      ResolvedIborCapFloorLeg capFloorLeg,
+      RatesProvider multicurve,
+      double volatility,
+      ZonedDateTime valuationDateTime) {
+
+    NormalIborCapletFloorletExpiryStrikeVolatilities volatilities =
+        volatilitiesBachelier(capFloorLeg.getIndex(), valuationDateTime, volatility);
+    PointSensitivities pts = PRICER_LEG_BACHELIER
+        .presentValueSensitivityModelParamsVolatility(capFloorLeg, multicurve, volatilities).build();
+    double vega = 0.0d;
+    for (CurrencyParameterSensitivity sensitivity : volatilities.parameterSensitivity(pts).getSensitivities()) {
+      vega += sensitivity.getSensitivity().sum(); // one parameter for the constant surface
+    }
+    return vega;
+  }
+
+  // Bachelier volatilities constant for all expiries and strikes
+  private static NormalIborCapletFloorletExpiryStrikeVolatilities volatilitiesBachelier(
+      IborIndex index,
+      ZonedDateTime valuationDateTime,
+      double volatility) {
+
+    return NormalIborCapletFloorletExpiryStrikeVolatilities.of(index, valuationDateTime,
+        ConstantSurface.of(DefaultSurfaceMetadata.builder()
+            .surfaceName("Bachelier-vol")
+            .xValueType(ValueType.YEAR_FRACTION)
+            .yValueType(ValueType.STRIKE)
+            .zValueType(ValueType.NORMAL_VOLATILITY)
+            .dayCount(DayCounts.ACT_365F).build(),
+            volatility));
+  }
+  
   private double notional(ResolvedIborCapFloorLeg capFloorLeg) {
     double n = 0.0;
     for(IborCapletFloorletPeriod p: capFloorLeg.getCapletFloorletPeriods()) {
@@ -3,8 +3,13 @@
  */
 package marc.henrard.murisq.pricer.capfloor;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import com.opengamma.strata.basics.currency.CurrencyAmount;
 import com.opengamma.strata.basics.currency.MultiCurrencyAmount;
+import com.opengamma.strata.collect.array.DoubleMatrix;
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.pricer.swap.DiscountingSwapLegPricer;
 import com.opengamma.strata.product.capfloor.ResolvedIborCapFloor;
@@ -84,5 +89,60 @@ public class SingleCurrencyModelCapFloorProductPricer {
     CurrencyAmount pvPayLeg = vanillaLegPricer.presentValue(capFloor.getPayLeg().get(), multicurve);
     return MultiCurrencyAmount.of(pvCapFloorLeg).plus(pvPayLeg);
   }
+
+  /**
+   * Calculates the present values of a list of Ibor cap/floor products.
+   * <p>
+   * The cap/floor legs of all the products are priced together, see 
+   * {@link SingleCurrencyModelCapFloorLegPricer#presentValues}.
+   * 
+   * @param capFloors  the Ibor cap/floor products
+   * @param multicurve  the rates provider
+   * @param model  the model parameters
+   * @return the present values, in the same order as the products
+   */
+  public List<MultiCurrencyAmount> presentValues(
+      List<ResolvedIborCapFloor> capFloors,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    List<ResolvedIborCapFloorLeg> legs = new ArrayList<>(capFloors.size());
+    for (ResolvedIborCapFloor capFloor : capFloors) {
+      legs.add(capFloor.getCapFloorLeg());
+    }
+    List<CurrencyAmount> pvCapFloorLegs = capFloorLegPricer.presentValues(legs, multicurve, model);
+    List<MultiCurrencyAmount> pv = new ArrayList<>(capFloors.size());
+    for (int i = 0; i < capFloors.size(); i++) {
+      MultiCurrencyAmount pvCapFloor = MultiCurrencyAmount.of(pvCapFloorLegs.get(i));
+      if (capFloors.get(i).getPayLeg().isPresent()) {
+        pvCapFloor = pvCapFloor.plus(vanillaLegPricer.presentValue(capFloors.get(i).getPayLeg().get(), multicurve));
+      }
+      pv.add(pvCapFloor);
+    }
+    return pv;
+  }
+
+  /**
+   * Calculates the present value sensitivities of a list of Ibor cap/floor products to the model parameters.
+   * <p>
+   * The matrix has one row for each product and one column for each model parameter. The pay legs, if any,
+   * do not depend on the model. The sensitivities are available only if the cap/floor leg pricer provides them.
+   * 
+   * @param capFloors  the Ibor cap/floor products
+   * @param multicurve  the rates provider
+   * @param model  the rational model parameters
+   * @return the sensitivities, if available
+   */
+  public Optional<DoubleMatrix> presentValueSensitivityModelParameters(
+      List<ResolvedIborCapFloor> capFloors,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    List<ResolvedIborCapFloorLeg> legs = new ArrayList<>(capFloors.size());
+    for (ResolvedIborCapFloor capFloor : capFloors) {
+      legs.add(capFloor.getCapFloorLeg());
+    }
+    return capFloorLegPricer.presentValueSensitivityModelParameters(legs, multicurve, model);
+  }
   
 }
@@ -3,10 +3,15 @@
  */
 package marc.henrard.murisq.pricer.capfloor;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import com.opengamma.strata.basics.currency.CurrencyAmount;
 import com.opengamma.strata.basics.currency.MultiCurrencyAmount;
 import com.opengamma.strata.basics.currency.Payment;
 import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleMatrix;
 import com.opengamma.strata.pricer.DiscountingPaymentPricer;
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.capfloor.ResolvedIborCapFloor;
@@ -85,6 +90,64 @@ public class SingleCurrencyModelCapFloorTradePricer {
     CurrencyAmount pvPremium = paymentPricer.presentValue(trade.getPremium().get(), multicurve);
     return pvProduct.plus(pvPremium);
   }
-  
+
+  /**
+   * Calculates the present values of a list of Ibor cap/floor trades.
+   * <p>
+   * The products of all the trades are priced together, see
+   * {@link SingleCurrencyModelCapFloorProductPricer#presentValues}.
+   * 
+   * @param trades  the Ibor cap/floor trades
+   * @param multicurve  the rates provider
+   * @param model  the model parameters
+   * @return the present values, in the same order as the trades
+   */
+  public List<MultiCurrencyAmount> presentValues(
+      List<ResolvedIborCapFloorTrade> trades,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    List<ResolvedIborCapFloor> products = new ArrayList<>(trades.size());
+    for (ResolvedIborCapFloorTrade trade : trades) {
+      products.add(trade.getProduct());
+    }
+    List<MultiCurrencyAmount> pvProducts = capFloorProductPricer.presentValues(products, multicurve, model);
+    List<MultiCurrencyAmount> pv = new ArrayList<>(trades.size());
+    for (int i = 0; i < trades.size(); i++) {
+      MultiCurrencyAmount pvTrade = pvProducts.get(i);
+      if (trades.get(i).getPremium().isPresent()) {
+        pvTrade = pvTrade.plus(paymentPricer.presentValue(trades.get(i).getPremium().get(), multicurve));
+      }
+      pv.add(pvTrade);
+    }
+    return pv;
+  }
+
+  /**
+   * Calculates the present value sensitivities of a list of Ibor cap/floor trades to the model parameters.
+   * <p>
+   * The matrix has one row for each trade and one column for each model parameter, as described by
+   * {@link SingleCurrencyModelCapletFloorletPeriodPricer#presentValueSensitivityModelParameters}.
+   * The premiums do not depend on the model.
+   * <p>
+   * The sensitivities are optional; they are available only if the underlying caplet/floorlet pricer
+   * provides them. When available, they are used by the calibrators as analytic Jacobian.
+   * 
+   * @param trades  the Ibor cap/floor trades
+   * @param multicurve  the rates provider
+   * @param model  the rational model parameters
+   * @return the sensitivities, if available
+   */
+  public Optional<DoubleMatrix> presentValueSensitivityModelParameters(
+      List<ResolvedIborCapFloorTrade> trades,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    List<ResolvedIborCapFloor> products = new ArrayList<>(trades.size());
+    for (ResolvedIborCapFloorTrade trade : trades) {
+      products.add(trade.getProduct());
+    }
+    return capFloorProductPricer.presentValueSensitivityModelParameters(products, multicurve, model);
+  }
 
 }
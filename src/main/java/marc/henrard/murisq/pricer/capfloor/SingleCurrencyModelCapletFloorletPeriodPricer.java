@@ -5,8 +5,13 @@ package marc.henrard.murisq.pricer.capfloor;
 
 import static java.time.temporal.ChronoUnit.DAYS;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
 import com.opengamma.strata.basics.currency.CurrencyAmount;
 import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleMatrix;
 import com.opengamma.strata.pricer.impl.option.BlackFormulaRepository;
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.capfloor.IborCapletFloorletPeriod;
@@ -39,6 +44,51 @@ public abstract class SingleCurrencyModelCapletFloorletPeriodPricer {
       IborCapletFloorletPeriod caplet,
       RatesProvider multicurve,
       SingleCurrencyModelParameters model);
+
+  /**
+   * Computes the present values of a list of caplets/floorlets in the model.
+   * <p>
+   * The default implementation prices the caplets/floorlets one by one. The implementations for which a batch
+   * computation is more efficient, e.g. by sharing the numerical integration data between periods, override
+   * this method.
+   * 
+   * @param caplets  the caplet/floorlet periods to price
+   * @param multicurve  the rates provider
+   * @param model  the model parameters
+   * @return the present values, in the same order as the caplets/floorlets
+   */
+  public List<CurrencyAmount> presentValues(
+      List<IborCapletFloorletPeriod> caplets,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    return caplets.stream()
+        .map(caplet -> presentValue(caplet, multicurve, model))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Computes the present value sensitivities of a list of caplets/floorlets to the model parameters.
+   * <p>
+   * The parameters are the ones of the model as {@link com.opengamma.strata.market.param.ParameterizedData}, i.e.
+   * the sensitivity to the parameter i is the derivative with respect to {@code model.getParameter(i)}.
+   * The matrix has one row for each caplet/floorlet and one column for each model parameter.
+   * <p>
+   * The sensitivities are optional. The default implementation returns an empty optional, in which case the users,
+   * like the calibrators, are expected to use finite differences on the present values.
+   * 
+   * @param caplets  the caplet/floorlet periods to price
+   * @param multicurve  the rates provider
+   * @param model  the model parameters
+   * @return the sensitivities, if available
+   */
+  public Optional<DoubleMatrix> presentValueSensitivityModelParameters(
+      List<IborCapletFloorletPeriod> caplets,
+      RatesProvider multicurve,
+      SingleCurrencyModelParameters model) {
+
+    return Optional.empty();
+  }
   
   /**
    * Computes the implied volatility in the Black model.
@@ -4,13 +4,25 @@
 package marc.henrard.murisq.pricer.cms;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
 import com.opengamma.strata.basics.currency.Currency;
 import com.opengamma.strata.basics.currency.CurrencyAmount;
 import com.opengamma.strata.basics.currency.Payment;
 import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.integration.GaussLegendreWeightAndAbscissaFunction;
+import com.opengamma.strata.math.impl.integration.GaussianQuadratureData;
 import com.opengamma.strata.math.impl.integration.RungeKuttaIntegrator1D;
 import com.opengamma.strata.pricer.DiscountingPaymentPricer;
 import com.opengamma.strata.pricer.impl.rate.swap.CashFlowEquivalentCalculator;
@@ -18,17 +30,26 @@ import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantPara
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.cms.CmsPeriod;
 import com.opengamma.strata.product.cms.CmsPeriodType;
+import com.opengamma.strata.product.cms.ResolvedCmsLeg;
 import com.opengamma.strata.product.swap.NotionalExchange;
 import com.opengamma.strata.product.swap.ResolvedSwap;
 import com.opengamma.strata.product.swap.ResolvedSwapLeg;
 import com.opengamma.strata.product.swap.SwapLegType;
 
+import marc.henrard.murisq.model.calibration.CalibrationParallelUtils;
+import marc.henrard.murisq.pricer.generic.CorrelatedGaussHermiteIntegrator2D;
+
 /**
  * Computes the price of a CMS period (coupon, cap or floor) in the Hull-White/extended Vasicek
  * one-factor model with piecewise constant volatility by numerical integration.
  * <p>
- * Pricer used mainly for testing purposes. For an explicit (approximated) implementation,
- * see the pricer {@link HullWhiteCmsPeriodExplicitPricer}.
+ * The period pricer uses an adaptive Runge-Kutta integration and is used mainly for testing purposes. 
+ * For an explicit (approximated) implementation, see the pricer {@link HullWhiteCmsPeriodExplicitPricer}.
+ * <p>
+ * The leg pricer prices all the periods of a CMS leg together with fixed quadrature nodes. The discount factors
+ * and the model volatility terms are shared between the periods. The coupons are integrated with Gauss-Hermite nodes.
+ * The caplets and floorlets are integrated with Gauss-Legendre nodes on the exercise region, the exercise boundary 
+ * being computed explicitly. Fixed nodes on the full real line would converge slowly due to the kink in the payoff.
  * 
  * @author Marc Henrard
  */
@@ -41,6 +62,17 @@ public class HullWhiteCmsPeriodNumericalIntegrationPricer {
   
   /** Minimal number of integration steps in the integration. Default value. */
   private static final int NB_INTEGRATION_STEPS_DEFAULT = 10;
+  /** Number of Gauss-Hermite nodes used for the coupons in the leg pricing. */
+  private static final int NB_NODES_HERMITE = 32;
+  /** Number of Gauss-Legendre nodes used for the caplets and floorlets in the leg pricing. */
+  private static final int NB_NODES_LEGENDRE = 64;
+  /** The Gauss-Legendre nodes and weights on [-1, 1]. */
+  private static final GaussianQuadratureData LEGENDRE =
+      new GaussLegendreWeightAndAbscissaFunction().generate(NB_NODES_LEGENDRE);
+  /** Tolerance on the exercise boundary. */
+  private static final double TOL_BOUNDARY = 1.0E-12;
+  /** Maximal number of iterations to find the exercise boundary. */
+  private static final int MAX_ITERATIONS = 100;
   
   /** Number of integration steps in the integration. */
   private final int nbSteps;
@@ -137,6 +169,357 @@ public class HullWhiteCmsPeriodNumericalIntegrationPricer {
     return CurrencyAmount.of(ccy, cms.getNotional() * cms.getYearFraction() * dfPayment * pv);
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Computes the present value of a CMS leg.
+   * <p>
+   * All the periods are priced together with fixed quadrature nodes, see the class description.
+   * The periods paid before the valuation date have a zero value. The fixing dates of the other periods must be
+   * after the valuation date.
+   * 
+   * @param leg  the CMS leg
+   * @param multicurve  the multi-curve
+   * @param hwProvider  the Hull-White model parameters provider
+   * @return the present value
+   */
+  public CurrencyAmount presentValue(
+      ResolvedCmsLeg leg,
+      RatesProvider multicurve,
+      HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider) {
+
+    return CurrencyAmount.of(leg.getCurrency(), presentValuePeriods(leg, multicurve, hwProvider).sum());
+  }
+
+  /**
+   * Computes the present value of a CMS leg with the periods priced in parallel.
+   * 
+   * @param leg  the CMS leg
+   * @param multicurve  the multi-curve
+   * @param hwProvider  the Hull-White model parameters provider
+   * @param pool  the fork-join pool on which the periods are priced
+   * @return the present value
+   */
+  public CurrencyAmount presentValue(
+      ResolvedCmsLeg leg,
+      RatesProvider multicurve,
+      HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider,
+      ForkJoinPool pool) {
+
+    return CurrencyAmount.of(leg.getCurrency(), presentValuePeriods(leg, multicurve, hwProvider, pool).sum());
+  }
+
+  /**
+   * Computes the present values of each period of a CMS leg.
+   * 
+   * @param leg  the CMS leg
+   * @param multicurve  the multi-curve
+   * @param hwProvider  the Hull-White model parameters provider
+   * @return the present values, in the order of the periods
+   */
+  public DoubleArray presentValuePeriods(
+      ResolvedCmsLeg leg,
+      RatesProvider multicurve,
+      HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider) {
+
+    LegCache cache = new LegCache(leg.getCurrency(), multicurve, hwProvider);
+    List<CmsPeriod> periods = leg.getCmsPeriods();
+    List<ResolvedSwapLeg[]> cashFlowEquivalents = cashFlowEquivalents(periods, cache);
+    return DoubleArray.of(periods.size(),
+        i -> presentValuePeriod(periods.get(i), cashFlowEquivalents.get(i), cache));
+  }
+
+  /**
+   * Computes the present values of each period of a CMS leg with the periods priced in parallel.
+   * <p>
+   * The results are identical to the ones of the sequential version.
+   * 
+   * @param leg  the CMS leg
+   * @param multicurve  the multi-curve
+   * @param hwProvider  the Hull-White model parameters provider
+   * @param pool  the fork-join pool on which the periods are priced
+   * @return the present values, in the order of the periods
+   */
+  public DoubleArray presentValuePeriods(
+      ResolvedCmsLeg leg,
+      RatesProvider multicurve,
+      HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider,
+      ForkJoinPool pool) {
+
+    LegCache cache = new LegCache(leg.getCurrency(), multicurve, hwProvider);
+    List<CmsPeriod> periods = leg.getCmsPeriods();
+    List<ResolvedSwapLeg[]> cashFlowEquivalents = cashFlowEquivalents(periods, cache);
+    List<Callable<Double>> tasks = new ArrayList<>();
+    for (int loopperiod = 0; loopperiod < periods.size(); loopperiod++) {
+      CmsPeriod period = periods.get(loopperiod);
+      ResolvedSwapLeg[] cfe = cashFlowEquivalents.get(loopperiod);
+      tasks.add(() -> presentValuePeriod(period, cfe, cache));
+    }
+    double[] pv = new double[tasks.size()];
+    try {
+      List<Future<Double>> values = pool.invokeAll(tasks);
+      for (int loopperiod = 0; loopperiod < pv.length; loopperiod++) {
+        pv[loopperiod] = values.get(loopperiod).get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw CalibrationParallelUtils.unchecked(e);
+    }
+    return DoubleArray.ofUnsafe(pv);
+  }
+
+  // The cash flow equivalents of the Ibor and fixed legs of the underlying swaps, computed once by swap.
+  // The entries for the periods paid before the valuation date are null.
+  private static List<ResolvedSwapLeg[]> cashFlowEquivalents(List<CmsPeriod> periods, LegCache cache) {
+    Map<ResolvedSwap, ResolvedSwapLeg[]> bySwap = new HashMap<>();
+    List<ResolvedSwapLeg[]> cashFlowEquivalents = new ArrayList<>(periods.size());
+    for (CmsPeriod cms : periods) {
+      if (cms.getPaymentDate().isBefore(cache.valuationDate)) {
+        cashFlowEquivalents.add(null);
+        continue;
+      }
+      ArgChecker.isFalse(cms.getFixingDate().isBefore(cache.valuationDate),
+          "fixing date must be after the valuation date");
+      cashFlowEquivalents.add(bySwap.computeIfAbsent(cms.getUnderlyingSwap(), swap -> {
+        List<ResolvedSwapLeg> legsIbor = swap.getLegs(SwapLegType.IBOR);
+        ArgChecker.isTrue(legsIbor.size() == 1, "swap must have one Ibor leg");
+        List<ResolvedSwapLeg> legsFixed = swap.getLegs(SwapLegType.FIXED);
+        ArgChecker.isTrue(legsFixed.size() == 1, "swap must have one fixed leg");
+        return new ResolvedSwapLeg[] {
+            CashFlowEquivalentCalculator.cashFlowEquivalentIborLeg(legsIbor.get(0), cache.multicurve),
+            CashFlowEquivalentCalculator.cashFlowEquivalentFixedLeg(legsFixed.get(0), cache.multicurve)};
+      }));
+    }
+    return cashFlowEquivalents;
+  }
+
+  // Present value of one period with fixed quadrature nodes, the cash flow equivalents are Ibor then fixed
+  private double presentValuePeriod(CmsPeriod cms, ResolvedSwapLeg[] cashFlowEquivalents, LegCache cache) {
+    if (cms.getPaymentDate().isBefore(cache.valuationDate)) {
+      return 0.0d;
+    }
+    LocalDate fixingDate = cms.getFixingDate();
+    ResolvedSwapLeg cfeIbor = cashFlowEquivalents[0];
+    ResolvedSwapLeg cfeFixed = cashFlowEquivalents[1];
+    double timeFixing = cache.time(fixingDate);
+    double scale = cache.volatilityScale(fixingDate);
+    int nbPaymentsIbor = cfeIbor.getPaymentEvents().size();
+    double[] alphaIbor = new double[nbPaymentsIbor];
+    double[] discountedCashFlowIbor = new double[nbPaymentsIbor];
+    for (int loopcf = 0; loopcf < nbPaymentsIbor; loopcf++) {
+      NotionalExchange payment = (NotionalExchange) cfeIbor.getPaymentEvents().get(loopcf);
+      alphaIbor[loopcf] = scale * cache.decay(cache.time(payment.getPaymentDate()) - timeFixing);
+      discountedCashFlowIbor[loopcf] =
+          payment.getPaymentAmount().getAmount() * cache.discountFactor(payment.getPaymentDate());
+    }
+    int nbPaymentsFixed = cfeFixed.getPaymentEvents().size();
+    double[] alphaFixed = new double[nbPaymentsFixed];
+    double[] discountedCashFlowFixed = new double[nbPaymentsFixed];
+    for (int loopcf = 0; loopcf < nbPaymentsFixed; loopcf++) {
+      NotionalExchange payment = (NotionalExchange) cfeFixed.getPaymentEvents().get(loopcf);
+      alphaFixed[loopcf] = scale * cache.decay(cache.time(payment.getPaymentDate()) - timeFixing);
+      discountedCashFlowFixed[loopcf] =
+          payment.getPaymentAmount().getAmount() * cache.discountFactor(payment.getPaymentDate());
+    }
+    double alphap = scale * cache.decay(cache.time(cms.getPaymentDate()) - timeFixing);
+    double dfPayment = cache.discountFactor(cms.getPaymentDate());
+    PriceIntegrant integrant = 
+        new PriceIntegrant(alphaIbor, alphaFixed, discountedCashFlowIbor, discountedCashFlowFixed, alphap);
+    double pv;
+    if (cms.getCmsPeriodType().equals(CmsPeriodType.COUPON)) {
+      pv = integrant.expectationHermite(x -> x, cache.hermiteNodes, cache.hermiteWeights);
+    } else if (cms.getCmsPeriodType().equals(CmsPeriodType.CAPLET)) {
+      double strike = cms.getCaplet().getAsDouble();
+      double boundary = integrant.boundary(strike);
+      pv = integrant.expectationLegendre(x -> Math.max(x - strike, 0.0d), boundary, LIMIT_INT);
+    } else {
+      double strike = cms.getFloorlet().getAsDouble();
+      double boundary = integrant.boundary(strike);
+      pv = integrant.expectationLegendre(x -> Math.max(strike - x, 0.0d), -LIMIT_INT, boundary);
+    }
+    return cms.getNotional() * cms.getYearFraction() * dfPayment * pv;
+  }
+
+  /** 
+   * Data shared between the periods of a leg. 
+   * <p>
+   * The model volatility term alpha(theta, T) of the period with fixing theta and the cash flow with payment T is
+   * written as scale(theta) * (1 - exp(-a (T - theta))) / a, with scale(theta)^2 the integral of
+   * sigma^2(u) exp(-2 a (theta - u)) between 0 and theta. Both terms have a finite limit when the mean reversion
+   * a goes to 0. The discount factors, the times and the scales are cached by date.
+   */
+  private static final class LegCache {
+
+    private final LocalDate valuationDate;
+    private final Currency currency;
+    private final RatesProvider multicurve;
+    private final HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider;
+    private final double meanReversion;
+    private final double[] hermiteNodes;
+    private final double[] hermiteWeights;
+    private final Map<LocalDate, Double> discountFactors = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Double> times = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Double> volatilityScales = new ConcurrentHashMap<>();
+
+    LegCache(
+        Currency currency,
+        RatesProvider multicurve,
+        HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider) {
+
+      this.valuationDate = multicurve.getValuationDate();
+      this.currency = currency;
+      this.multicurve = multicurve;
+      this.hwProvider = hwProvider;
+      this.meanReversion = hwProvider.getParameters().getMeanReversion();
+      CorrelatedGaussHermiteIntegrator2D hermite = CorrelatedGaussHermiteIntegrator2D.of(NB_NODES_HERMITE);
+      this.hermiteNodes = hermite.getNodes();
+      this.hermiteWeights = hermite.getWeights();
+    }
+
+    double discountFactor(LocalDate date) {
+      return discountFactors.computeIfAbsent(date, d -> multicurve.discountFactor(currency, d));
+    }
+
+    double time(LocalDate date) {
+      return times.computeIfAbsent(date, hwProvider::relativeTime);
+    }
+
+    // (1 - exp(-a t)) / a, with the limit t when a is 0
+    double decay(double t) {
+      return decay(meanReversion, t);
+    }
+
+    double volatilityScale(LocalDate fixingDate) {
+      return volatilityScales.computeIfAbsent(fixingDate, d -> {
+        double theta = time(d);
+        double[] volTime = hwProvider.getParameters().getVolatilityTime().toArrayUnsafe();
+        double[] vol = hwProvider.getParameters().getVolatility().toArrayUnsafe();
+        double variance = 0.0d;
+        for (int loopvol = 0; loopvol < vol.length; loopvol++) {
+          double start = Math.max(0.0d, volTime[loopvol]);
+          double end = Math.min(theta, volTime[loopvol + 1]);
+          if (end > start) {
+            variance += vol[loopvol] * vol[loopvol] * Math.exp(-2.0d * meanReversion * (theta - end)) *
+                decay(2.0d * meanReversion, end - start);
+          }
+        }
+        return Math.sqrt(variance);
+      });
+    }
+
+    private static double decay(double rate, double t) {
+      return (rate == 0.0d) ? t : -Math.expm1(-rate * t) / rate;
+    }
+  }
+
+  /** The swap rate and the numeraire adjustment as function of the Hull-White state, with primitive types. */
+  private static final class PriceIntegrant {
+
+    private final double[] alphaIbor;
+    private final double[] alphaFixed;
+    private final double[] dfIbor;
+    private final double[] dfFixed;
+    private final double alphap;
+    /** Scratch array for the swap rate and its derivative, the integrant is used by one thread. */
+    private final double[] scratch = new double[2];
+
+    PriceIntegrant(double[] alphaIbor, double[] alphaFixed, double[] dfIbor, double[] dfFixed, double alphap) {
+      this.alphaIbor = alphaIbor;
+      this.alphaFixed = alphaFixed;
+      this.dfIbor = dfIbor;
+      this.dfFixed = dfFixed;
+      this.alphap = alphap;
+    }
+
+    // The swap rate and its derivative, in the scratch array overwritten at each call
+    double[] swapRate(double x) {
+      double b = 0.0d;
+      double bp = 0.0d;
+      for (int loopcf = 0; loopcf < alphaIbor.length; loopcf++) {
+        double term =
+            dfIbor[loopcf] * Math.exp(-alphaIbor[loopcf] * x - 0.5 * alphaIbor[loopcf] * alphaIbor[loopcf]);
+        b += term;
+        bp -= alphaIbor[loopcf] * term;
+      }
+      double c = 0.0d;
+      double cp = 0.0d;
+      for (int loopcf = 0; loopcf < alphaFixed.length; loopcf++) {
+        double term =
+            dfFixed[loopcf] * Math.exp(-alphaFixed[loopcf] * x - 0.5 * alphaFixed[loopcf] * alphaFixed[loopcf]);
+        c -= term;
+        cp += alphaFixed[loopcf] * term;
+      }
+      scratch[0] = b / c;
+      scratch[1] = bp / c - b * cp / (c * c);
+      return scratch;
+    }
+
+    // The integrand without the density
+    double value(DoubleUnaryOperator payoff, double x) {
+      return payoff.applyAsDouble(swapRate(x)[0]) * Math.exp(-alphap * x - 0.5 * alphap * alphap);
+    }
+
+    // Expectation with standard normal Gauss-Hermite nodes
+    double expectationHermite(DoubleUnaryOperator payoff, double[] nodes, double[] weights) {
+      double result = 0.0d;
+      for (int loopnode = 0; loopnode < nodes.length; loopnode++) {
+        result += weights[loopnode] * value(payoff, nodes[loopnode]);
+      }
+      return result;
+    }
+
+    // Expectation restricted to [lower, upper] with Gauss-Legendre nodes
+    double expectationLegendre(DoubleUnaryOperator payoff, double lower, double upper) {
+      if (upper <= lower) {
+        return 0.0d;
+      }
+      double halfWidth = 0.5d * (upper - lower);
+      double center = 0.5d * (upper + lower);
+      double[] nodes = LEGENDRE.getNodes();
+      double[] weights = LEGENDRE.getWeights();
+      double result = 0.0d;
+      for (int loopnode = 0; loopnode < nodes.length; loopnode++) {
+        double x = center + halfWidth * nodes[loopnode];
+        result += weights[loopnode] * value(payoff, x) * Math.exp(-0.5d * x * x);
+      }
+      return result * halfWidth / Math.sqrt(2.0d * Math.PI);
+    }
+
+    // The state for which the swap rate is equal to the strike, in [-LIMIT_INT, LIMIT_INT]
+    double boundary(double strike) {
+      double low = -LIMIT_INT;
+      double high = LIMIT_INT;
+      double fLow = swapRate(low)[0] - strike;
+      double fHigh = swapRate(high)[0] - strike;
+      if (fLow * fHigh > 0.0d) { // no boundary in the range, the swap rate is increasing
+        return (fLow > 0.0d) ? low : high;
+      }
+      double x = 0.0d;
+      for (int loopiter = 0; loopiter < MAX_ITERATIONS; loopiter++) {
+        double[] rate = swapRate(x);
+        double f = rate[0] - strike;
+        if (f == 0.0d) {
+          return x;
+        }
+        if (f * fLow > 0.0d) {
+          low = x;
+        } else {
+          high = x;
+        }
+        double xNext = x - f / rate[1];
+        if (!(xNext > low && xNext < high)) { // Newton step outside the bracket: bisection
+          xNext = 0.5d * (low + high);
+        }
+        if (Math.abs(xNext - x) < TOL_BOUNDARY) {
+          return xNext;
+        }
+        x = xNext;
+      }
+      return x;
+    }
+  }
+
   /** Inner class to implement the 1-dimensional integration used in price replication. */
   private static final class PriceIntegrantGeneric 
     implements Function<Double, Double> {
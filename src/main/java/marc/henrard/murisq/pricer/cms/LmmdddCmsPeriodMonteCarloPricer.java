@@ -16,11 +16,10 @@ import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDetermini
 import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
 import marc.henrard.murisq.pricer.decomposition.MulticurveDecisionScheduleCalculator;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
-import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
 import marc.henrard.murisq.pricer.montecarlo.LmmdddMonteCarloEuropeanPricer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
 import marc.henrard.murisq.product.cms.CmsPeriodResolved;
 
-import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import org.joda.beans.MetaBean;
@@ -68,9 +67,9 @@ implements LmmdddMonteCarloEuropeanPricer<CmsPeriodResolved>, ImmutableBean, Ser
   public DoubleArray aggregation(
       CmsPeriodResolved cms,
       MulticurveEquivalent me,
-      List<MulticurveEquivalentValues> valuesExpiry) {
+      MonteCarloPathBuffer valuesExpiry) {
 
-    int nbPathsA = valuesExpiry.size();
+    int nbPathsA = valuesExpiry.getPathsCount();
     int nbDF = me.getDiscountFactorPayments().size(); // Last DF payment corresponds to the coupon payment date
     double[] fixTimes = new double[nbDF];
     for (int i = 0; i < nbDF; i++) {
@@ -90,33 +89,38 @@ implements LmmdddMonteCarloEuropeanPricer<CmsPeriodResolved>, ImmutableBean, Ser
     int[] iborPaymentIndices = model.getIborTimeIndex(iborPaymentTimes);
     int[] iborEffectiveIndices = model.getIborTimeIndex(iborEffectiveTimes);
     
-    double[][] discounting = discounting(valuesExpiry);
+    double[][] discounting = discounting(valuesExpiry); // dates x paths
     // Swap rate
-    double[] swapRate =  new double[nbPathsA];
-    for (int looppath = 0; looppath < nbPathsA; looppath++) {
-      MulticurveEquivalentValues valuePath = valuesExpiry.get(looppath);
-      double[] valueFwdPath = valuePath.getOnRates().toArrayUnsafe();
-      double pvbp = 0.0; // path value numeraire re-based
-      for (int loopfix = 0; loopfix < nbDF - 1; loopfix++) { // -1 as the last DF payment corresponds to the payment date
-        pvbp += me.getDiscountFactorPayments().get(loopfix).getPaymentAmount().getAmount() *
-            discounting[looppath][fixIndices[loopfix]];
+    double[] pvbp = new double[nbPathsA]; // path value numeraire re-based
+    for (int loopfix = 0; loopfix < nbDF - 1; loopfix++) { // -1 as the last DF payment corresponds to the payment date
+      double amount = me.getDiscountFactorPayments().get(loopfix).getPaymentAmount().getAmount();
+      double[] discountingFix = discounting[fixIndices[loopfix]];
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        pvbp[looppath] += amount * discountingFix[looppath];
       }
-      double pvIborLeg = 0.0; // path value numeraire re-based
-      for (int loopibor = 0; loopibor < nbIbor; loopibor++) {
-        int ipay = iborPaymentIndices[loopibor];
-        int ifwd = iborEffectiveIndices[loopibor];
-        double iborRate = model.iborRateFromDscForwards(valueFwdPath[ifwd], ifwd);
-        pvIborLeg += me.getIborPayments().get(loopibor).getPaymentAmount().getAmount() *
-            iborRate * discounting[looppath][ipay];
+    }
+    double[] pvIborLeg = new double[nbPathsA]; // path value numeraire re-based
+    double[] valueFwd = new double[nbPathsA];
+    for (int loopibor = 0; loopibor < nbIbor; loopibor++) {
+      int ifwd = iborEffectiveIndices[loopibor];
+      double amount = me.getIborPayments().get(loopibor).getPaymentAmount().getAmount();
+      double[] discountingIbor = discounting[iborPaymentIndices[loopibor]];
+      valuesExpiry.getPeriod(ifwd, valueFwd);
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        double iborRate = model.iborRateFromDscForwards(valueFwd[looppath], ifwd);
+        pvIborLeg[looppath] += amount * iborRate * discountingIbor[looppath];
       }
-      swapRate[looppath] = -pvIborLeg / pvbp;
+    }
+    double[] swapRate = new double[nbPathsA];
+    for (int looppath = 0; looppath < nbPathsA; looppath++) {
+      swapRate[looppath] = -pvIborLeg[looppath] / pvbp[looppath];
     }
     // PV
     double[] pv = new double[nbPathsA];
     double[] payoffs = cms.payoff(swapRate);
+    double[] discountingPayment = discounting[fixIndices[nbDF - 1]];
     for (int looppath = 0; looppath < nbPathsA; looppath++) {
-      pv[looppath] = discounting[looppath][fixIndices[nbDF - 1]] * payoffs[looppath];
-
+      pv[looppath] = discountingPayment[looppath] * payoffs[looppath];
     }
     return DoubleArray.ofUnsafe(pv);
   }
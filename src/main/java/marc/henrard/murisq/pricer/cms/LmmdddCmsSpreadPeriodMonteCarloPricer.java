@@ -18,11 +18,10 @@ import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDetermini
 import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
 import marc.henrard.murisq.pricer.decomposition.MulticurveDecisionScheduleCalculator;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
-import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
 import marc.henrard.murisq.pricer.montecarlo.LmmdddMonteCarloEuropeanPricer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
 import marc.henrard.murisq.product.cms.CmsSpreadPeriodResolved;
 
-import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import org.joda.beans.Bean;
@@ -70,17 +69,17 @@ public final class LmmdddCmsSpreadPeriodMonteCarloPricer
   public DoubleArray aggregation(
       CmsSpreadPeriodResolved cmsSpread,
       MulticurveEquivalent me,
-      List<MulticurveEquivalentValues> valuesExpiry) {
+      MonteCarloPathBuffer valuesExpiry) {
 
     ResolvedSwapLeg fixedLeg1 = cmsSpread.getUnderlyingSwap1().getLegs(SwapLegType.FIXED).get(0);
     int nbFixed1 = fixedLeg1.getPaymentPeriods().size();
     ResolvedSwapLeg iborLeg1 = cmsSpread.getUnderlyingSwap1().getLegs(SwapLegType.IBOR).get(0);
     int nbIbor1 = iborLeg1.getPaymentPeriods().size();
-    int nbPathsA = valuesExpiry.size();
+    int nbPathsA = valuesExpiry.getPathsCount();
     int nbDF = me.getDiscountFactorPayments().size(); // Last DF payment corresponds to the coupon payment date
     int nbIbor = me.getIborComputations().size();
     int[][] indicesLmm = cashfowIndices(me);
-    double[][] discounting = discounting(valuesExpiry);
+    double[][] discounting = discounting(valuesExpiry); // dates x paths
     double[][] swapRate = swapRate(
         me, indicesLmm[0], indicesLmm[1], indicesLmm[2],
         valuesExpiry, new int[] {0, nbFixed1, nbDF - 1}, new int[] {0, nbIbor1, nbIbor},
@@ -88,8 +87,9 @@ public final class LmmdddCmsSpreadPeriodMonteCarloPricer
     // PV
     double[] pv = new double[nbPathsA];
     double[] payoffs = cmsSpread.payoff(swapRate[0], swapRate[1]);
+    double[] discountingPayment = discounting[indicesLmm[0][nbDF - 1]];
     for (int looppath = 0; looppath < nbPathsA; looppath++) {
-      pv[looppath] = discounting[looppath][indicesLmm[0][nbDF - 1]] * payoffs[looppath];
+      pv[looppath] = discountingPayment[looppath] * payoffs[looppath];
     }
     return DoubleArray.ofUnsafe(pv);
   }
@@ -129,10 +129,10 @@ public final class LmmdddCmsSpreadPeriodMonteCarloPricer
    * @param fixIndices  the indices associated to the fix payments
    * @param iborPaymentIndices  the indices associated to the IBOR payments
    * @param iborEffectiveIndices  the indices associated to the IBOR effective dates
-   * @param valuesExpiry  the Monter-Carlo values of the model quantities at the expiry date
+   * @param valuesExpiry  the Monter-Carlo values of the model quantities at the expiry date, dimensions: periods x paths
    * @param fixLimits  the limits of the fix payments indices associated to the different swaps
    * @param iborLimits  the limits of the IBOR payments indices associated to the different swaps
-   * @param discounting  the discounting factors
+   * @param discounting  the discounting factors, dimensions: dates x paths
    * @return the swap rates, dimensions: swaps x paths
    */
   public double[][] swapRate(
@@ -140,36 +140,41 @@ public final class LmmdddCmsSpreadPeriodMonteCarloPricer
       int[] fixIndices,
       int[] iborPaymentIndices,
       int[] iborEffectiveIndices,
-      List<MulticurveEquivalentValues> valuesExpiry,
+      MonteCarloPathBuffer valuesExpiry,
       int[] fixLimits, 
       int[] iborLimits,
       double[][] discounting){
     
     int nbSwaps = fixLimits.length - 1;
-    int nbPaths = valuesExpiry.size();
-    double[][] swapRate = new double[2][nbPaths];
-    for (int looppath = 0; looppath < nbPaths; looppath++) {
-      MulticurveEquivalentValues valuePath = valuesExpiry.get(looppath);
-      double[] valueFwdPath = valuePath.getOnRates().toArrayUnsafe();
-      double[] pvbp = new double[2]; // path value numeraire re-based
-      for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
-        for (int loopfix = fixLimits[loopswap]; loopfix < fixLimits[loopswap+1]; loopfix++) {
-          pvbp[loopswap] += me.getDiscountFactorPayments().get(loopfix).getPaymentAmount().getAmount() *
-              discounting[looppath][fixIndices[loopfix]];
+    int nbPaths = valuesExpiry.getPathsCount();
+    double[][] pvbp = new double[nbSwaps][nbPaths]; // path value numeraire re-based
+    for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
+      for (int loopfix = fixLimits[loopswap]; loopfix < fixLimits[loopswap + 1]; loopfix++) {
+        double amount = me.getDiscountFactorPayments().get(loopfix).getPaymentAmount().getAmount();
+        double[] discountingFix = discounting[fixIndices[loopfix]];
+        for (int looppath = 0; looppath < nbPaths; looppath++) {
+          pvbp[loopswap][looppath] += amount * discountingFix[looppath];
         }
       }
-      double[] pvIborLeg = new double[2]; // path value numeraire re-based
-      for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
-        for (int loopibor = iborLimits[loopswap]; loopibor < iborLimits[loopswap+1]; loopibor++) {
-          int ipay = iborPaymentIndices[loopibor];
-          int ifwd = iborEffectiveIndices[loopibor];
-          double iborRate = model.iborRateFromDscForwards(valueFwdPath[ifwd], ifwd);
-          pvIborLeg[loopswap] += me.getIborPayments().get(loopibor).getPaymentAmount().getAmount() *
-              iborRate * discounting[looppath][ipay];
+    }
+    double[][] pvIborLeg = new double[nbSwaps][nbPaths]; // path value numeraire re-based
+    double[] valueFwd = new double[nbPaths];
+    for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
+      for (int loopibor = iborLimits[loopswap]; loopibor < iborLimits[loopswap + 1]; loopibor++) {
+        int ifwd = iborEffectiveIndices[loopibor];
+        double amount = me.getIborPayments().get(loopibor).getPaymentAmount().getAmount();
+        double[] discountingIbor = discounting[iborPaymentIndices[loopibor]];
+        valuesExpiry.getPeriod(ifwd, valueFwd);
+        for (int looppath = 0; looppath < nbPaths; looppath++) {
+          double iborRate = model.iborRateFromDscForwards(valueFwd[looppath], ifwd);
+          pvIborLeg[loopswap][looppath] += amount * iborRate * discountingIbor[looppath];
         }
       }
-      for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
-        swapRate[loopswap][looppath] = -pvIborLeg[loopswap] / pvbp[loopswap];
+    }
+    double[][] swapRate = new double[nbSwaps][nbPaths];
+    for (int loopswap = 0; loopswap < nbSwaps; loopswap++) {
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        swapRate[loopswap][looppath] = -pvIborLeg[loopswap][looppath] / pvbp[loopswap][looppath];
       }
     }
     return swapRate;
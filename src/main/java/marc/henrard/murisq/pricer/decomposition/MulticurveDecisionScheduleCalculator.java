@@ -25,6 +25,7 @@ import com.opengamma.strata.product.swaption.ResolvedSwaption;
 
 import marc.henrard.murisq.product.cms.CmsPeriodResolved;
 import marc.henrard.murisq.product.cms.CmsSpreadPeriodResolved;
+import marc.henrard.murisq.product.swaption.BermudanSwaptionResolved;
 
 /**
  * Calculator of decision schedule in the multi-curve framework for different instruments.
@@ -47,6 +48,24 @@ public class MulticurveDecisionScheduleCalculator {
     return MulticurveEquivalentSchedule.builder().schedules(schedules).build();
   }
   
+  /**
+   * Constructs the multi-curve decision schedule for a Bermudan swaption.
+   * <p>
+   * There is one multi-curve equivalent for each expiry, the one of the swap entered into when the option is 
+   * exercised on that expiry.
+   * 
+   * @param swaption  the Bermudan swaption
+   * @return the decision schedule
+   */
+  public static MulticurveEquivalentSchedule decisionSchedule(BermudanSwaptionResolved swaption) {
+    List<MulticurveEquivalent> schedules = new ArrayList<>();
+    for (int loopexp = 0; loopexp < swaption.getExpiriesCount(); loopexp++) {
+      MulticurveEquivalent multicurveEquivalent = multicurveEquivalent(swaption.underlyingExercise(loopexp));
+      schedules.add(multicurveEquivalent.toBuilder().decisionTime(swaption.getExpiries().get(loopexp)).build());
+    }
+    return MulticurveEquivalentSchedule.builder().schedules(schedules).build();
+  }
+  
   /**
    * Constructs the multi-curve decision schedule for a CMS period.
    * <p>
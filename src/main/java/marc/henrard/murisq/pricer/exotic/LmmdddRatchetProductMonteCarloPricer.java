@@ -4,6 +4,7 @@
 package marc.henrard.murisq.pricer.exotic;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +16,7 @@ import com.google.common.collect.ImmutableList;
 import com.opengamma.strata.basics.currency.Payment;
 import com.opengamma.strata.collect.ArgChecker;
 import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.rate.IborRateComputation;
 import com.opengamma.strata.product.swap.NotionalExchange;
 import com.opengamma.strata.product.swap.RateAccrualPeriod;
@@ -26,10 +28,14 @@ import com.opengamma.strata.product.swap.SwapPaymentPeriod;
 
 import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
 import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloKernel;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentSchedule;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
 import marc.henrard.murisq.pricer.montecarlo.LmmdddMonteCarloMultiDatePricer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloResult;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloResultAccumulator;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloStepConsumer;
 import marc.henrard.murisq.product.rate.IborRatchetRateComputation;
 
 import java.util.Map;
@@ -111,6 +117,115 @@ public final class LmmdddRatchetProductMonteCarloPricer
       LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model){
 
     int nbPaths = valuesExpiries.size();
+    int nbFixings = me.getExpiriesCount();
+    RatchetSchedule schedule = schedule(me, product, model);
+    IborRatchetRateComputation[] ratchetPeriods = schedule.ratchetPeriods;
+    double[] amounts = schedule.amounts;
+    int[] indexIborTimes = schedule.indexIborTimes;
+    int[] indexPaymentTimes = schedule.indexPaymentTimes;
+
+    double[][] pv = new double[nbPaths][nbFixings];
+    for (int looppath = 0; looppath < nbPaths; looppath++) { // loop paths
+      double[] ratchetRates = new double[nbFixings + 1]; // one extra dim to facilitate recursion
+      for (int loopfixing = 0; loopfixing < nbFixings; loopfixing++) { // loop expiries
+        MulticurveEquivalentValues valuePathExpiry = valuesExpiries.get(looppath).get(loopfixing);
+        double[] valueFwdPathExpiry = valuePathExpiry.getOnRates().toArrayUnsafe();
+        double[] discounting = discounting(model, valuePathExpiry);
+        double iborRate = model
+            .iborRateFromDscForwards(valueFwdPathExpiry[indexIborTimes[loopfixing]], indexIborTimes[loopfixing]);
+        ratchetRates[loopfixing + 1] = ratchetPeriods[loopfixing].rate(ratchetRates[loopfixing], iborRate);
+        pv[looppath][loopfixing] = amounts[loopfixing] * ratchetRates[loopfixing + 1] 
+            * discounting[indexPaymentTimes[loopfixing]];
+      } // end loop expiries
+    } // end loop paths
+    return pv;
+  }
+  
+  /**
+   * Present value as a double.
+   * <p>
+   * The paths are evolved with {@link #evolveStreaming} and the ratchet recursion is computed step by step; only
+   * the running forward rates, ratchet rates and path values are stored. The paths are the same as the ones of 
+   * the aggregation of the materialized paths by {@link #aggregation}, and so is the present value.
+   * The evolution kernel is created once for all the blocks.
+   * <p>
+   * There is no parallel version of the multi-date pricers; the blocks are computed sequentially.
+   * 
+   * @param product  the ratchet to price
+   * @param multicurve  the underlying multi-curve framework
+   * @return the present value
+   */
+  @Override
+  public double presentValueDouble(
+      ResolvedSwap product,
+      RatesProvider multicurve) {
+
+    MulticurveEquivalentSchedule mce = multicurveEquivalent(product);
+    MulticurveEquivalentValues initialValues = initialValues(mce, multicurve);
+    RatchetSchedule schedule = schedule(mce, product, model);
+    LiborMarketModelMonteCarloKernel kernel = evolution.kernel(model);
+    double pv = 0.0;
+    int nbPathsDone = 0;
+    while (nbPathsDone < nbPaths) {
+      int nbPathsBlock = Math.min(pathNumberBlock, nbPaths - nbPathsDone);
+      RatchetStepConsumer consumer = new RatchetStepConsumer(schedule, model, nbPathsBlock);
+      evolveStreaming(initialValues, mce.getDecisionTimes(), kernel, nbPathsBlock, consumer);
+      for (int looppath = 0; looppath < nbPathsBlock; looppath++) {
+        pv += consumer.pathValues[looppath];
+      }
+      nbPathsDone += nbPathsBlock;
+    }
+    return pv / nbPaths * numeraireInitialValue(multicurve);
+  }
+
+  /**
+   * Present value with its standard error, computed with a number of paths adapted to a target.
+   * <p>
+   * The streaming version of the generic method: the paths are evolved with {@link #evolveStreaming} as in 
+   * {@link #presentValueDouble}, with the same paths. The blocks are computed sequentially.
+   * 
+   * @param product  the ratchet to price
+   * @param multicurve  the underlying multi-curve framework
+   * @param targetStandardError  the target standard error of the present value
+   * @param maxDuration  the maximal computation time, null for no limit
+   * @return the Monte Carlo result
+   */
+  @Override
+  public MonteCarloResult presentValueResultAdaptive(
+      ResolvedSwap product,
+      RatesProvider multicurve,
+      double targetStandardError,
+      Duration maxDuration) {
+
+    long start = System.nanoTime();
+    MulticurveEquivalentSchedule mce = multicurveEquivalent(product);
+    MulticurveEquivalentValues initialValues = initialValues(mce, multicurve);
+    double initialNumeraireValue = numeraireInitialValue(multicurve);
+    RatchetSchedule schedule = schedule(mce, product, model);
+    LiborMarketModelMonteCarloKernel kernel = evolution.kernel(model);
+    MonteCarloResultAccumulator accumulator = new MonteCarloResultAccumulator();
+    while (accumulator.getNbPaths() < nbPaths) {
+      int nbPathsBlock = Math.min(pathNumberBlock, nbPaths - accumulator.getNbPaths());
+      RatchetStepConsumer consumer = new RatchetStepConsumer(schedule, model, nbPathsBlock);
+      evolveStreaming(initialValues, mce.getDecisionTimes(), kernel, nbPathsBlock, consumer);
+      accumulator.addBlock(consumer.pathValues);
+      if (accumulator.getBlocksCount() >= 2 &&
+          accumulator.standardError(initialNumeraireValue) < targetStandardError) {
+        break;
+      }
+      if (maxDuration != null && System.nanoTime() - start >= maxDuration.toNanos()) {
+        break;
+      }
+    }
+    return accumulator.result(initialNumeraireValue);
+  }
+
+  // The ratchet description required for the aggregation
+  private static RatchetSchedule schedule(
+      MulticurveEquivalentSchedule me,
+      ResolvedSwap product,
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model) {
+
     int nbFixings = me.getExpiriesCount();
     ArgChecker.isTrue(product.getLegs().size()==1, "product must have one leg");
     ResolvedSwapLeg leg = product.getLegs().get(0);
@@ -138,24 +253,9 @@ public final class LmmdddRatchetProductMonteCarloPricer
     }
     int[] indexIborTimes = model.getIborTimeIndex(effectiveTimes);
     int[] indexPaymentTimes = model.getIborTimeIndex(paymentTimes);
-
-    double[][] pv = new double[nbPaths][nbFixings];
-    for (int looppath = 0; looppath < nbPaths; looppath++) { // loop paths
-      double[] ratchetRates = new double[nbFixings + 1]; // one extra dim to facilitate recursion
-      for (int loopfixing = 0; loopfixing < nbFixings; loopfixing++) { // loop expiries
-        MulticurveEquivalentValues valuePathExpiry = valuesExpiries.get(looppath).get(loopfixing);
-        double[] valueFwdPathExpiry = valuePathExpiry.getOnRates().toArrayUnsafe();
-        double[] discounting = discounting(model, valuePathExpiry);
-        double iborRate = model
-            .iborRateFromDscForwards(valueFwdPathExpiry[indexIborTimes[loopfixing]], indexIborTimes[loopfixing]);
-        ratchetRates[loopfixing + 1] = ratchetPeriods[loopfixing].rate(ratchetRates[loopfixing], iborRate);
-        pv[looppath][loopfixing] = amounts[loopfixing] * ratchetRates[loopfixing + 1] 
-            * discounting[indexPaymentTimes[loopfixing]];
-      } // end loop expiries
-    } // end loop paths
-    return pv;
+    return new RatchetSchedule(ratchetPeriods, amounts, indexIborTimes, indexPaymentTimes);
   }
-  
+
   /**
    * Returns the numeraire rebased discount factors at the different LMM dates.
    * <p>
@@ -182,6 +282,70 @@ public final class LmmdddRatchetProductMonteCarloPricer
     return discounting;
   }
 
+  //-------------------------------------------------------------------------
+  // The ratchet periods, the amounts and the indices of the fixing and payment dates in the model dates
+  private static final class RatchetSchedule {
+
+    private final IborRatchetRateComputation[] ratchetPeriods;
+    private final double[] amounts;
+    private final int[] indexIborTimes;
+    private final int[] indexPaymentTimes;
+
+    private RatchetSchedule(
+        IborRatchetRateComputation[] ratchetPeriods,
+        double[] amounts,
+        int[] indexIborTimes,
+        int[] indexPaymentTimes) {
+
+      this.ratchetPeriods = ratchetPeriods;
+      this.amounts = amounts;
+      this.indexIborTimes = indexIborTimes;
+      this.indexPaymentTimes = indexPaymentTimes;
+    }
+  }
+
+  // The ratchet recursion for a block of paths, one fixing at a time
+  private static final class RatchetStepConsumer implements MonteCarloStepConsumer {
+
+    private final RatchetSchedule schedule;
+    private final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model;
+    private final double[] delta;
+    /** The ratchet rate of the previous fixing, for each path. */
+    private final double[] ratchetRates;
+    /** The numeraire rebased value of the coupons up to the current fixing, for each path. */
+    private final double[] pathValues;
+
+    private RatchetStepConsumer(
+        RatchetSchedule schedule,
+        LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model,
+        int nbPaths) {
+
+      this.schedule = schedule;
+      this.model = model;
+      this.delta = model.getAccrualFactors().toArrayUnsafe();
+      this.ratchetRates = new double[nbPaths];
+      this.pathValues = new double[nbPaths];
+    }
+
+    @Override
+    public void accept(int loopfixing, double[][] forwards) {
+      int nbFwdPeriods = forwards.length;
+      int indexIbor = schedule.indexIborTimes[loopfixing];
+      int indexPayment = schedule.indexPaymentTimes[loopfixing];
+      IborRatchetRateComputation ratchetPeriod = schedule.ratchetPeriods[loopfixing];
+      double amount = schedule.amounts[loopfixing];
+      for (int looppath = 0; looppath < pathValues.length; looppath++) {
+        double iborRate = model.iborRateFromDscForwards(forwards[indexIbor][looppath], indexIbor);
+        ratchetRates[looppath] = ratchetPeriod.rate(ratchetRates[looppath], iborRate);
+        double discounting = 1.0; // rebased discount factor, computed as in discounting(model, valuesExpiry)
+        for (int loopdsc = nbFwdPeriods - 1; loopdsc >= indexPayment; loopdsc--) {
+          discounting = discounting * (1.0 + forwards[loopdsc][looppath] * delta[loopdsc]);
+        }
+        pathValues[looppath] += amount * ratchetRates[looppath] * discounting;
+      }
+    }
+  }
+
   //------------------------- AUTOGENERATED START -------------------------
   /**
    * The meta-bean for {@code LmmdddRatchetProductMonteCarloPricer}.
@@ -0,0 +1,786 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.exposure;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.joda.beans.Bean;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.ImmutableValidator;
+import org.joda.beans.gen.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+
+/**
+ * The exposure profiles of a portfolio on a grid of dates.
+ * <p>
+ * The value V(t) of the portfolio at the date t is the sum of the trade values, i.e. the netting set is the full 
+ * portfolio and no collateral is taken into account. The profiles are:
+ * <ul>
+ * <li>Expected exposure: EE(t) = E[max(V(t),0)], in the currency of the date t.
+ * <li>Expected positive exposure: EPE(t) = sum_{k} EE(t_k) (t_k - t_{k-1}) / t, the time-weighted average of the
+ *   expected exposure on the dates up to t. On the first date, when its time is 0, it is the expected exposure.
+ * <li>Expected negative exposure: ENE(t) = E[min(V(t),0)], in the currency of the date t.
+ * <li>Potential future exposure: PFE(t), the quantile of max(V(t),0) at the PFE level. It is 0 when the portfolio
+ *   value is negative with a probability above the PFE level.
+ * <li>Discounted expected exposure: E[max(V(t),0)/N(t)], with the numeraire N(0) = 1.
+ * </ul>
+ * The expectations are in the risk neutral measure associated to the numeraire of the simulation.
+ *
+ * @author Marc Henrard
+ */
+@BeanDefinition(factoryName = "of")
+public final class ExposureProfile
+    implements ImmutableBean, Serializable {
+
+  /** The exposure dates. */
+  @PropertyDefinition(validate = "notNull")
+  private final ImmutableList<LocalDate> dates;
+  /** The times of the exposure dates, in the time measure of the discounting curve. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray times;
+  /** The expected exposure E[max(V,0)] at each date, in the currency of the date. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray expectedExposure;
+  /** The expected positive exposure at each date: time-weighted average of the expected exposure up to the date. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray expectedPositiveExposure;
+  /** The expected negative exposure E[min(V,0)] at each date, in the currency of the date. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray expectedNegativeExposure;
+  /** The potential future exposure at each date: quantile of the exposure max(V,0) at the PFE level. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray potentialFutureExposure;
+  /** The discounted expected exposure E[max(V,0)/N(t)] at each date, in present value terms. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray discountedExpectedExposure;
+  /** The quantile level used for the potential future exposure. */
+  @PropertyDefinition
+  private final double pfeLevel;
+
+  @ImmutableValidator
+  private void validate() {
+    int nbDates = dates.size();
+    ArgChecker.isTrue(times.size() == nbDates, "times must have the same size as dates");
+    ArgChecker.isTrue(expectedExposure.size() == nbDates, "expectedExposure must have the same size as dates");
+    ArgChecker.isTrue(expectedPositiveExposure.size() == nbDates,
+        "expectedPositiveExposure must have the same size as dates");
+    ArgChecker.isTrue(expectedNegativeExposure.size() == nbDates,
+        "expectedNegativeExposure must have the same size as dates");
+    ArgChecker.isTrue(potentialFutureExposure.size() == nbDates,
+        "potentialFutureExposure must have the same size as dates");
+    ArgChecker.isTrue(discountedExpectedExposure.size() == nbDates,
+        "discountedExpectedExposure must have the same size as dates");
+  }
+
+  /**
+   * Returns the expected positive exposure profile computed from an expected exposure profile.
+   * <p>
+   * The value at each date is the time-weighted average of the expected exposure on the dates up to that date,
+   * the weight of a date being the time since the previous date, or the time itself for the first date.
+   * When the time of the first date is 0, the value on that date is the expected exposure.
+   * 
+   * @param times  the times of the exposure dates, in increasing order
+   * @param expectedExposure  the expected exposure on the dates
+   * @return the expected positive exposure
+   */
+  public static DoubleArray expectedPositiveExposure(DoubleArray times, DoubleArray expectedExposure) {
+    int nbDates = times.size();
+    double[] epe = new double[nbDates];
+    double integral = 0.0d;
+    double timePrevious = 0.0d;
+    for (int loopdate = 0; loopdate < nbDates; loopdate++) {
+      double time = times.get(loopdate);
+      integral += expectedExposure.get(loopdate) * (time - timePrevious);
+      epe[loopdate] = (time > 0.0d) ? integral / time : expectedExposure.get(loopdate);
+      timePrevious = time;
+    }
+    return DoubleArray.ofUnsafe(epe);
+  }
+
+  /**
+   * Returns the maximum of the potential future exposure profile.
+   * 
+   * @return the peak PFE
+   */
+  public double peakPotentialFutureExposure() {
+    return potentialFutureExposure.max();
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code ExposureProfile}.
+   * @return the meta-bean, not null
+   */
+  public static ExposureProfile.Meta meta() {
+    return ExposureProfile.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(ExposureProfile.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Obtains an instance.
+   * @param dates  the value of the property, not null
+   * @param times  the value of the property, not null
+   * @param expectedExposure  the value of the property, not null
+   * @param expectedPositiveExposure  the value of the property, not null
+   * @param expectedNegativeExposure  the value of the property, not null
+   * @param potentialFutureExposure  the value of the property, not null
+   * @param discountedExpectedExposure  the value of the property, not null
+   * @param pfeLevel  the value of the property
+   * @return the instance
+   */
+  public static ExposureProfile of(
+      List<LocalDate> dates,
+      DoubleArray times,
+      DoubleArray expectedExposure,
+      DoubleArray expectedPositiveExposure,
+      DoubleArray expectedNegativeExposure,
+      DoubleArray potentialFutureExposure,
+      DoubleArray discountedExpectedExposure,
+      double pfeLevel) {
+    return new ExposureProfile(
+      dates,
+      times,
+      expectedExposure,
+      expectedPositiveExposure,
+      expectedNegativeExposure,
+      potentialFutureExposure,
+      discountedExpectedExposure,
+      pfeLevel);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static ExposureProfile.Builder builder() {
+    return new ExposureProfile.Builder();
+  }
+
+  private ExposureProfile(
+      List<LocalDate> dates,
+      DoubleArray times,
+      DoubleArray expectedExposure,
+      DoubleArray expectedPositiveExposure,
+      DoubleArray expectedNegativeExposure,
+      DoubleArray potentialFutureExposure,
+      DoubleArray discountedExpectedExposure,
+      double pfeLevel) {
+    JodaBeanUtils.notNull(dates, "dates");
+    JodaBeanUtils.notNull(times, "times");
+    JodaBeanUtils.notNull(expectedExposure, "expectedExposure");
+    JodaBeanUtils.notNull(expectedPositiveExposure, "expectedPositiveExposure");
+    JodaBeanUtils.notNull(expectedNegativeExposure, "expectedNegativeExposure");
+    JodaBeanUtils.notNull(potentialFutureExposure, "potentialFutureExposure");
+    JodaBeanUtils.notNull(discountedExpectedExposure, "discountedExpectedExposure");
+    this.dates = ImmutableList.copyOf(dates);
+    this.times = times;
+    this.expectedExposure = expectedExposure;
+    this.expectedPositiveExposure = expectedPositiveExposure;
+    this.expectedNegativeExposure = expectedNegativeExposure;
+    this.potentialFutureExposure = potentialFutureExposure;
+    this.discountedExpectedExposure = discountedExpectedExposure;
+    this.pfeLevel = pfeLevel;
+    validate();
+  }
+
+  @Override
+  public ExposureProfile.Meta metaBean() {
+    return ExposureProfile.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the exposure dates.
+   * @return the value of the property, not null
+   */
+  public ImmutableList<LocalDate> getDates() {
+    return dates;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the times of the exposure dates, in the time measure of the discounting curve.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getTimes() {
+    return times;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the expected exposure E[max(V,0)] at each date, in the currency of the date.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getExpectedExposure() {
+    return expectedExposure;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the expected positive exposure at each date: time-weighted average of the expected exposure up to the date.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getExpectedPositiveExposure() {
+    return expectedPositiveExposure;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the expected negative exposure E[min(V,0)] at each date, in the currency of the date.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getExpectedNegativeExposure() {
+    return expectedNegativeExposure;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the potential future exposure at each date: quantile of the exposure max(V,0) at the PFE level.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getPotentialFutureExposure() {
+    return potentialFutureExposure;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the discounted expected exposure E[max(V,0)/N(t)] at each date, in present value terms.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getDiscountedExpectedExposure() {
+    return discountedExpectedExposure;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the quantile level used for the potential future exposure.
+   * @return the value of the property
+   */
+  public double getPfeLevel() {
+    return pfeLevel;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      ExposureProfile other = (ExposureProfile) obj;
+      return JodaBeanUtils.equal(dates, other.dates) &&
+          JodaBeanUtils.equal(times, other.times) &&
+          JodaBeanUtils.equal(expectedExposure, other.expectedExposure) &&
+          JodaBeanUtils.equal(expectedPositiveExposure, other.expectedPositiveExposure) &&
+          JodaBeanUtils.equal(expectedNegativeExposure, other.expectedNegativeExposure) &&
+          JodaBeanUtils.equal(potentialFutureExposure, other.potentialFutureExposure) &&
+          JodaBeanUtils.equal(discountedExpectedExposure, other.discountedExpectedExposure) &&
+          JodaBeanUtils.equal(pfeLevel, other.pfeLevel);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(dates);
+    hash = hash * 31 + JodaBeanUtils.hashCode(times);
+    hash = hash * 31 + JodaBeanUtils.hashCode(expectedExposure);
+    hash = hash * 31 + JodaBeanUtils.hashCode(expectedPositiveExposure);
+    hash = hash * 31 + JodaBeanUtils.hashCode(expectedNegativeExposure);
+    hash = hash * 31 + JodaBeanUtils.hashCode(potentialFutureExposure);
+    hash = hash * 31 + JodaBeanUtils.hashCode(discountedExpectedExposure);
+    hash = hash * 31 + JodaBeanUtils.hashCode(pfeLevel);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(288);
+    buf.append("ExposureProfile{");
+    buf.append("dates").append('=').append(JodaBeanUtils.toString(dates)).append(',').append(' ');
+    buf.append("times").append('=').append(JodaBeanUtils.toString(times)).append(',').append(' ');
+    buf.append("expectedExposure").append('=').append(JodaBeanUtils.toString(expectedExposure)).append(',').append(' ');
+    buf.append("expectedPositiveExposure").append('=').append(JodaBeanUtils.toString(expectedPositiveExposure)).append(',').append(' ');
+    buf.append("expectedNegativeExposure").append('=').append(JodaBeanUtils.toString(expectedNegativeExposure)).append(',').append(' ');
+    buf.append("potentialFutureExposure").append('=').append(JodaBeanUtils.toString(potentialFutureExposure)).append(',').append(' ');
+    buf.append("discountedExpectedExposure").append('=').append(JodaBeanUtils.toString(discountedExpectedExposure)).append(',').append(' ');
+    buf.append("pfeLevel").append('=').append(JodaBeanUtils.toString(pfeLevel));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code ExposureProfile}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code dates} property.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes" })
+    private final MetaProperty<ImmutableList<LocalDate>> dates = DirectMetaProperty.ofImmutable(
+        this, "dates", ExposureProfile.class, (Class) ImmutableList.class);
+    /**
+     * The meta-property for the {@code times} property.
+     */
+    private final MetaProperty<DoubleArray> times = DirectMetaProperty.ofImmutable(
+        this, "times", ExposureProfile.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code expectedExposure} property.
+     */
+    private final MetaProperty<DoubleArray> expectedExposure = DirectMetaProperty.ofImmutable(
+        this, "expectedExposure", ExposureProfile.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code expectedPositiveExposure} property.
+     */
+    private final MetaProperty<DoubleArray> expectedPositiveExposure = DirectMetaProperty.ofImmutable(
+        this, "expectedPositiveExposure", ExposureProfile.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code expectedNegativeExposure} property.
+     */
+    private final MetaProperty<DoubleArray> expectedNegativeExposure = DirectMetaProperty.ofImmutable(
+        this, "expectedNegativeExposure", ExposureProfile.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code potentialFutureExposure} property.
+     */
+    private final MetaProperty<DoubleArray> potentialFutureExposure = DirectMetaProperty.ofImmutable(
+        this, "potentialFutureExposure", ExposureProfile.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code discountedExpectedExposure} property.
+     */
+    private final MetaProperty<DoubleArray> discountedExpectedExposure = DirectMetaProperty.ofImmutable(
+        this, "discountedExpectedExposure", ExposureProfile.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code pfeLevel} property.
+     */
+    private final MetaProperty<Double> pfeLevel = DirectMetaProperty.ofImmutable(
+        this, "pfeLevel", ExposureProfile.class, Double.TYPE);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "dates",
+        "times",
+        "expectedExposure",
+        "expectedPositiveExposure",
+        "expectedNegativeExposure",
+        "potentialFutureExposure",
+        "discountedExpectedExposure",
+        "pfeLevel");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 95356549:  // dates
+          return dates;
+        case 110364486:  // times
+          return times;
+        case 1446440927:  // expectedExposure
+          return expectedExposure;
+        case -776565512:  // expectedPositiveExposure
+          return expectedPositiveExposure;
+        case -2122120396:  // expectedNegativeExposure
+          return expectedNegativeExposure;
+        case -268960856:  // potentialFutureExposure
+          return potentialFutureExposure;
+        case -652465761:  // discountedExpectedExposure
+          return discountedExpectedExposure;
+        case 922181525:  // pfeLevel
+          return pfeLevel;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public ExposureProfile.Builder builder() {
+      return new ExposureProfile.Builder();
+    }
+
+    @Override
+    public Class<? extends ExposureProfile> beanType() {
+      return ExposureProfile.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code dates} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<ImmutableList<LocalDate>> dates() {
+      return dates;
+    }
+
+    /**
+     * The meta-property for the {@code times} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> times() {
+      return times;
+    }
+
+    /**
+     * The meta-property for the {@code expectedExposure} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> expectedExposure() {
+      return expectedExposure;
+    }
+
+    /**
+     * The meta-property for the {@code expectedPositiveExposure} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> expectedPositiveExposure() {
+      return expectedPositiveExposure;
+    }
+
+    /**
+     * The meta-property for the {@code expectedNegativeExposure} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> expectedNegativeExposure() {
+      return expectedNegativeExposure;
+    }
+
+    /**
+     * The meta-property for the {@code potentialFutureExposure} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> potentialFutureExposure() {
+      return potentialFutureExposure;
+    }
+
+    /**
+     * The meta-property for the {@code discountedExpectedExposure} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> discountedExpectedExposure() {
+      return discountedExpectedExposure;
+    }
+
+    /**
+     * The meta-property for the {@code pfeLevel} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Double> pfeLevel() {
+      return pfeLevel;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 95356549:  // dates
+          return ((ExposureProfile) bean).getDates();
+        case 110364486:  // times
+          return ((ExposureProfile) bean).getTimes();
+        case 1446440927:  // expectedExposure
+          return ((ExposureProfile) bean).getExpectedExposure();
+        case -776565512:  // expectedPositiveExposure
+          return ((ExposureProfile) bean).getExpectedPositiveExposure();
+        case -2122120396:  // expectedNegativeExposure
+          return ((ExposureProfile) bean).getExpectedNegativeExposure();
+        case -268960856:  // potentialFutureExposure
+          return ((ExposureProfile) bean).getPotentialFutureExposure();
+        case -652465761:  // discountedExpectedExposure
+          return ((ExposureProfile) bean).getDiscountedExpectedExposure();
+        case 922181525:  // pfeLevel
+          return ((ExposureProfile) bean).getPfeLevel();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code ExposureProfile}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<ExposureProfile> {
+
+    private List<LocalDate> dates = ImmutableList.of();
+    private DoubleArray times;
+    private DoubleArray expectedExposure;
+    private DoubleArray expectedPositiveExposure;
+    private DoubleArray expectedNegativeExposure;
+    private DoubleArray potentialFutureExposure;
+    private DoubleArray discountedExpectedExposure;
+    private double pfeLevel;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(ExposureProfile beanToCopy) {
+      this.dates = beanToCopy.getDates();
+      this.times = beanToCopy.getTimes();
+      this.expectedExposure = beanToCopy.getExpectedExposure();
+      this.expectedPositiveExposure = beanToCopy.getExpectedPositiveExposure();
+      this.expectedNegativeExposure = beanToCopy.getExpectedNegativeExposure();
+      this.potentialFutureExposure = beanToCopy.getPotentialFutureExposure();
+      this.discountedExpectedExposure = beanToCopy.getDiscountedExpectedExposure();
+      this.pfeLevel = beanToCopy.getPfeLevel();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 95356549:  // dates
+          return dates;
+        case 110364486:  // times
+          return times;
+        case 1446440927:  // expectedExposure
+          return expectedExposure;
+        case -776565512:  // expectedPositiveExposure
+          return expectedPositiveExposure;
+        case -2122120396:  // expectedNegativeExposure
+          return expectedNegativeExposure;
+        case -268960856:  // potentialFutureExposure
+          return potentialFutureExposure;
+        case -652465761:  // discountedExpectedExposure
+          return discountedExpectedExposure;
+        case 922181525:  // pfeLevel
+          return pfeLevel;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 95356549:  // dates
+          this.dates = (List<LocalDate>) newValue;
+          break;
+        case 110364486:  // times
+          this.times = (DoubleArray) newValue;
+          break;
+        case 1446440927:  // expectedExposure
+          this.expectedExposure = (DoubleArray) newValue;
+          break;
+        case -776565512:  // expectedPositiveExposure
+          this.expectedPositiveExposure = (DoubleArray) newValue;
+          break;
+        case -2122120396:  // expectedNegativeExposure
+          this.expectedNegativeExposure = (DoubleArray) newValue;
+          break;
+        case -268960856:  // potentialFutureExposure
+          this.potentialFutureExposure = (DoubleArray) newValue;
+          break;
+        case -652465761:  // discountedExpectedExposure
+          this.discountedExpectedExposure = (DoubleArray) newValue;
+          break;
+        case 922181525:  // pfeLevel
+          this.pfeLevel = (Double) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public ExposureProfile build() {
+      return new ExposureProfile(
+          dates,
+          times,
+          expectedExposure,
+          expectedPositiveExposure,
+          expectedNegativeExposure,
+          potentialFutureExposure,
+          discountedExpectedExposure,
+          pfeLevel);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the exposure dates.
+     * @param dates  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder dates(List<LocalDate> dates) {
+      JodaBeanUtils.notNull(dates, "dates");
+      this.dates = dates;
+      return this;
+    }
+
+    /**
+     * Sets the {@code dates} property in the builder
+     * from an array of objects.
+     * @param dates  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder dates(LocalDate... dates) {
+      return dates(ImmutableList.copyOf(dates));
+    }
+
+    /**
+     * Sets the times of the exposure dates, in the time measure of the discounting curve.
+     * @param times  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder times(DoubleArray times) {
+      JodaBeanUtils.notNull(times, "times");
+      this.times = times;
+      return this;
+    }
+
+    /**
+     * Sets the expected exposure E[max(V,0)] at each date, in the currency of the date.
+     * @param expectedExposure  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder expectedExposure(DoubleArray expectedExposure) {
+      JodaBeanUtils.notNull(expectedExposure, "expectedExposure");
+      this.expectedExposure = expectedExposure;
+      return this;
+    }
+
+    /**
+     * Sets the expected positive exposure at each date: time-weighted average of the expected exposure up to the date.
+     * @param expectedPositiveExposure  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder expectedPositiveExposure(DoubleArray expectedPositiveExposure) {
+      JodaBeanUtils.notNull(expectedPositiveExposure, "expectedPositiveExposure");
+      this.expectedPositiveExposure = expectedPositiveExposure;
+      return this;
+    }
+
+    /**
+     * Sets the expected negative exposure E[min(V,0)] at each date, in the currency of the date.
+     * @param expectedNegativeExposure  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder expectedNegativeExposure(DoubleArray expectedNegativeExposure) {
+      JodaBeanUtils.notNull(expectedNegativeExposure, "expectedNegativeExposure");
+      this.expectedNegativeExposure = expectedNegativeExposure;
+      return this;
+    }
+
+    /**
+     * Sets the potential future exposure at each date: quantile of the exposure max(V,0) at the PFE level.
+     * @param potentialFutureExposure  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder potentialFutureExposure(DoubleArray potentialFutureExposure) {
+      JodaBeanUtils.notNull(potentialFutureExposure, "potentialFutureExposure");
+      this.potentialFutureExposure = potentialFutureExposure;
+      return this;
+    }
+
+    /**
+     * Sets the discounted expected exposure E[max(V,0)/N(t)] at each date, in present value terms.
+     * @param discountedExpectedExposure  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder discountedExpectedExposure(DoubleArray discountedExpectedExposure) {
+      JodaBeanUtils.notNull(discountedExpectedExposure, "discountedExpectedExposure");
+      this.discountedExpectedExposure = discountedExpectedExposure;
+      return this;
+    }
+
+    /**
+     * Sets the quantile level used for the potential future exposure.
+     * @param pfeLevel  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder pfeLevel(double pfeLevel) {
+      this.pfeLevel = pfeLevel;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(288);
+      buf.append("ExposureProfile.Builder{");
+      buf.append("dates").append('=').append(JodaBeanUtils.toString(dates)).append(',').append(' ');
+      buf.append("times").append('=').append(JodaBeanUtils.toString(times)).append(',').append(' ');
+      buf.append("expectedExposure").append('=').append(JodaBeanUtils.toString(expectedExposure)).append(',').append(' ');
+      buf.append("expectedPositiveExposure").append('=').append(JodaBeanUtils.toString(expectedPositiveExposure)).append(',').append(' ');
+      buf.append("expectedNegativeExposure").append('=').append(JodaBeanUtils.toString(expectedNegativeExposure)).append(',').append(' ');
+      buf.append("potentialFutureExposure").append('=').append(JodaBeanUtils.toString(potentialFutureExposure)).append(',').append(' ');
+      buf.append("discountedExpectedExposure").append('=').append(JodaBeanUtils.toString(discountedExpectedExposure)).append(',').append(' ');
+      buf.append("pfeLevel").append('=').append(JodaBeanUtils.toString(pfeLevel));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
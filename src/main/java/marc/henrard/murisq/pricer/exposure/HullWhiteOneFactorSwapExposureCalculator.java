@@ -0,0 +1,953 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.exposure;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.joda.beans.Bean;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.ImmutableValidator;
+import org.joda.beans.gen.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.index.IborIndexObservation;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.DiscountFactors;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParameters;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.rate.FixedRateComputation;
+import com.opengamma.strata.product.rate.IborRateComputation;
+import com.opengamma.strata.product.rate.OvernightCompoundedRateComputation;
+import com.opengamma.strata.product.rate.RateComputation;
+import com.opengamma.strata.product.swap.NotionalExchange;
+import com.opengamma.strata.product.swap.RateAccrualPeriod;
+import com.opengamma.strata.product.swap.RatePaymentPeriod;
+import com.opengamma.strata.product.swap.ResolvedSwap;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.SwapPaymentEvent;
+import com.opengamma.strata.product.swap.SwapPaymentPeriod;
+
+import marc.henrard.murisq.model.calibration.CalibrationParallelUtils;
+import marc.henrard.murisq.model.hullwhite.HullWhiteOneFactorMonteCarloEvolution;
+import marc.henrard.murisq.model.hullwhite.HullWhiteOneFactorPiecewiseConstantMonteCarloUtils;
+
+/**
+ * Simulation of the exposure profiles of a portfolio of swaps in the Hull-White one-factor model.
+ * <p>
+ * The state variables (x, J) of the model are simulated exactly with 
+ * {@link HullWhiteOneFactorMonteCarloEvolution#pathGeneratorStates} on the exposure dates, completed by the fixing 
+ * dates of the Ibor periods and the start dates of the overnight periods. At each date the swaps are revalued 
+ * with the closed-form conditional discount factors 
+ *   P(t,T) = P(0,T)/P(0,t) exp(-B(t,T) (x(t) + C(t)) - B(t,T)^2 V(t) / 2)
+ * where V is the variance of x and C its covariance with J. The numeraire is the cash account 
+ * N(t) = exp(J(t) + VJ(t)/2) / P(0,t).
+ * <p>
+ * The swap legs are decomposed in cash flow equivalents, as in {@code CashFlowEquivalentCalculator}, under the
+ * hypothesis of deterministic multiplicative spreads between the forward and discounting curves:
+ * <ul>
+ * <li>Fixed coupons and notional exchanges are fixed amounts at their payment date.
+ * <li>An Ibor coupon is an amount at the effective date of the fixing and a fixed amount at the payment date. 
+ *   At the fixing date, the first amount is converted in a path dependent amount at the payment date.
+ * <li>An overnight coupon is an amount at its start date and a fixed amount at the payment date. After the 
+ *   start date, the first amount is rolled at the cash account up to the payment date.
+ * </ul>
+ * Only the path dependent amounts of the coupons fixed but not yet paid are stored, the memory used is 
+ * independent of the number of dates. The discount factors are computed once for each date and all the paths 
+ * and the trades are revalued in parallel on those discount factors. The trade values are summed in the trade
+ * order and the results do not depend on the number of threads.
+ * <p>
+ * The trades must be in the currency of the discounting curve used for the model. Coupons with an Ibor fixing
+ * before the valuation date are fixed amounts using the fixing from the time series of the rates provider.
+ * Overnight coupons started before the valuation date are not supported.
+ * <p>
+ * The times are measured with the discount factors of the rates provider in the trade currency.
+ *
+ * @author Marc Henrard
+ */
+@BeanDefinition
+public final class HullWhiteOneFactorSwapExposureCalculator
+    implements ImmutableBean, Serializable {
+
+  /** The cash flow is a fixed amount. */
+  private static final int FIXED = 0;
+  /** The cash flow is the start amount of an Ibor coupon, fixed at the fixing date. */
+  private static final int IBOR = 1;
+  /** The cash flow is the start amount of an overnight coupon, rolled at the cash account from the start date. */
+  private static final int OVERNIGHT = 2;
+
+  /** The number of paths */
+  @PropertyDefinition
+  private final int nbPaths;
+  /** The random number generator. */
+  @PropertyDefinition(validate = "notNull")
+  private final RandomNumberGenerator numberGenerator;
+  /** The methods related to the model evolution. */
+  @PropertyDefinition(validate = "notNull")
+  private final HullWhiteOneFactorMonteCarloEvolution evolution;
+  /** The quantile level used for the potential future exposure, typically 0.95 or 0.99. */
+  @PropertyDefinition
+  private final double pfeLevel;
+
+  @ImmutableValidator
+  private void validate() {
+    ArgChecker.isTrue(nbPaths > 0, "nbPaths must be positive");
+    ArgChecker.inRangeExclusive(pfeLevel, 0.0d, 1.0d, "pfeLevel");
+  }
+
+  /**
+   * Returns a monthly grid of dates starting at the start date and ending at the end date.
+   * <p>
+   * The dates are the start date plus an integer number of months, without business day adjustment, and
+   * the end date.
+   * 
+   * @param startDate  the start date, usually the valuation date
+   * @param endDate  the end date, usually the last payment date of the portfolio
+   * @return the dates
+   */
+  public static List<LocalDate> monthlyGrid(LocalDate startDate, LocalDate endDate) {
+    ArgChecker.isFalse(endDate.isBefore(startDate), "end date must be on or after the start date");
+    List<LocalDate> grid = new ArrayList<>();
+    int nbMonths = 0;
+    LocalDate date = startDate;
+    while (date.isBefore(endDate)) {
+      grid.add(date);
+      nbMonths++;
+      date = startDate.plusMonths(nbMonths);
+    }
+    grid.add(endDate);
+    return grid;
+  }
+
+  /**
+   * Computes the exposure profiles of a portfolio of swaps on the exposure dates.
+   * <p>
+   * The trades are revalued in parallel on the common fork-join pool.
+   * 
+   * @param swaps  the swaps of the portfolio, all in the same currency
+   * @param multicurve  the multi-curve rates provider
+   * @param hw  the Hull-White model parameters
+   * @param exposureDates  the exposure dates, on or after the valuation date and in increasing order
+   * @return the exposure profiles
+   */
+  public ExposureProfile exposure(
+      List<ResolvedSwap> swaps,
+      RatesProvider multicurve,
+      HullWhiteOneFactorPiecewiseConstantParameters hw,
+      List<LocalDate> exposureDates) {
+
+    return exposure(swaps, multicurve, hw, exposureDates, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes the exposure profiles of a portfolio of swaps on the exposure dates.
+   * <p>
+   * On each date, the discount factors are computed once and the trades are revalued in parallel on the pool. 
+   * The value of the portfolio is the sum of the trade values in the trade order.
+   * 
+   * @param swaps  the swaps of the portfolio, all in the same currency
+   * @param multicurve  the multi-curve rates provider
+   * @param hw  the Hull-White model parameters
+   * @param exposureDates  the exposure dates, on or after the valuation date and in increasing order
+   * @param pool  the fork-join pool on which the trades are revalued
+   * @return the exposure profiles
+   */
+  public ExposureProfile exposure(
+      List<ResolvedSwap> swaps,
+      RatesProvider multicurve,
+      HullWhiteOneFactorPiecewiseConstantParameters hw,
+      List<LocalDate> exposureDates,
+      ForkJoinPool pool) {
+
+    ArgChecker.notEmpty(swaps, "swaps");
+    ArgChecker.notEmpty(exposureDates, "exposureDates");
+    LocalDate valuationDate = multicurve.getValuationDate();
+    for (int loopdate = 0; loopdate < exposureDates.size(); loopdate++) {
+      ArgChecker.isFalse(exposureDates.get(loopdate).isBefore(valuationDate),
+          "exposure dates must be on or after the valuation date");
+      ArgChecker.isTrue(loopdate == 0 || exposureDates.get(loopdate).isAfter(exposureDates.get(loopdate - 1)),
+          "exposure dates must be in increasing order");
+    }
+    Currency ccy = swaps.get(0).getLegs().get(0).getCurrency();
+    DiscountFactors dsc = multicurve.discountFactors(ccy);
+    // Cash flows of the trades, flow dates and step dates
+    List<List<ExposureCashFlow>> tradeFlows = new ArrayList<>();
+    TreeSet<LocalDate> flowDatesSet = new TreeSet<>();
+    TreeSet<LocalDate> stepDatesSet = new TreeSet<>(exposureDates);
+    for (ResolvedSwap swap : swaps) {
+      List<ExposureCashFlow> flows = cashFlows(swap, ccy, multicurve);
+      for (ExposureCashFlow flow : flows) {
+        flowDatesSet.add(flow.date);
+        flowDatesSet.add(flow.paymentDate);
+        if (flow.kind != FIXED) {
+          stepDatesSet.add(flow.eventDate);
+        }
+      }
+      tradeFlows.add(flows);
+    }
+    List<LocalDate> flowDates = new ArrayList<>(flowDatesSet);
+    List<LocalDate> stepDates = new ArrayList<>(stepDatesSet);
+    int nbDates = flowDates.size();
+    int nbSteps = stepDates.size();
+    Map<LocalDate, Integer> flowIndex = new HashMap<>();
+    double[] flowTimes = new double[nbDates];
+    double[] flowDf0 = new double[nbDates];
+    for (int loopdate = 0; loopdate < nbDates; loopdate++) {
+      flowIndex.put(flowDates.get(loopdate), loopdate);
+      flowTimes[loopdate] = dsc.relativeYearFraction(flowDates.get(loopdate));
+      flowDf0[loopdate] = dsc.discountFactor(flowDates.get(loopdate));
+    }
+    Map<LocalDate, Integer> stepIndex = new HashMap<>();
+    double[] stepTimes = new double[nbSteps];
+    double[] stepDf0 = new double[nbSteps];
+    int[] firstDate = new int[nbSteps]; // first flow date on or after the step date
+    int[] firstAlive = new int[nbSteps]; // first flow date strictly after the step date
+    int[] exposureIndex = new int[nbSteps]; // -1 when the step is not an exposure date
+    TreeSet<LocalDate> exposureDatesSet = new TreeSet<>(exposureDates);
+    int exposureCount = 0;
+    for (int loopstep = 0; loopstep < nbSteps; loopstep++) {
+      LocalDate stepDate = stepDates.get(loopstep);
+      stepIndex.put(stepDate, loopstep);
+      stepTimes[loopstep] = dsc.relativeYearFraction(stepDate);
+      stepDf0[loopstep] = dsc.discountFactor(stepDate);
+      firstDate[loopstep] = flowDatesSet.headSet(stepDate, false).size();
+      firstAlive[loopstep] = flowDatesSet.headSet(stepDate, true).size();
+      exposureIndex[loopstep] = exposureDatesSet.contains(stepDate) ? exposureCount++ : -1;
+    }
+    List<TradeExposure> trades = new ArrayList<>();
+    for (List<ExposureCashFlow> flows : tradeFlows) {
+      trades.add(new TradeExposure(flows, flowIndex, stepIndex));
+    }
+    // Simulation and revaluation
+    int nbExposures = exposureDates.size();
+    double[] ee = new double[nbExposures];
+    double[] ene = new double[nbExposures];
+    double[] pfe = new double[nbExposures];
+    double[] eeDiscounted = new double[nbExposures];
+    double[][] dfs = new double[nbDates][];
+    double[] numeraireInverse = new double[nbPaths];
+    double kappa = hw.getMeanReversion();
+    evolution.pathGeneratorStates(stepTimes, hw, numberGenerator, nbPaths,
+        (step, states) -> {
+          double time = stepTimes[step];
+          double[] x = states[0];
+          double[] j = states[1];
+          // Discount factors P(t,T) on the flow dates on or after the step date and numeraire 1/N(t)
+          double[] cov0 = HullWhiteOneFactorPiecewiseConstantMonteCarloUtils.stepCovariance(hw, 0.0d, time);
+          for (int loopdate = 0; loopdate < firstDate[step]; loopdate++) {
+            dfs[loopdate] = null; // not used anymore
+          }
+          for (int loopdate = firstDate[step]; loopdate < nbDates; loopdate++) {
+            double b = (1.0d - Math.exp(-kappa * (flowTimes[loopdate] - time))) / kappa;
+            double factor = flowDf0[loopdate] / stepDf0[step] * Math.exp(-b * cov0[1] - 0.5d * b * b * cov0[0]);
+            if (dfs[loopdate] == null) {
+              dfs[loopdate] = new double[nbPaths];
+            }
+            for (int looppath = 0; looppath < nbPaths; looppath++) {
+              dfs[loopdate][looppath] = factor * Math.exp(-b * x[looppath]);
+            }
+          }
+          double numeraireFactor = stepDf0[step] * Math.exp(-0.5d * cov0[2]);
+          for (int looppath = 0; looppath < nbPaths; looppath++) {
+            numeraireInverse[looppath] = numeraireFactor * Math.exp(-j[looppath]);
+          }
+          // Trades revalued in parallel, portfolio value summed in the trade order
+          boolean isExposure = exposureIndex[step] >= 0;
+          List<Callable<double[]>> tasks = new ArrayList<>();
+          for (TradeExposure trade : trades) {
+            tasks.add(() -> trade.values(step, firstAlive[step], dfs, numeraireInverse, isExposure, nbPaths));
+          }
+          double[] portfolio = new double[nbPaths];
+          try {
+            List<Future<double[]>> tradeValues = pool.invokeAll(tasks);
+            if (isExposure) {
+              for (Future<double[]> tradeValue : tradeValues) {
+                double[] values = tradeValue.get();
+                for (int looppath = 0; looppath < nbPaths; looppath++) {
+                  portfolio[looppath] += values[looppath];
+                }
+              }
+            } else {
+              for (Future<double[]> tradeValue : tradeValues) {
+                tradeValue.get(); // propagates the exceptions
+              }
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+          } catch (ExecutionException e) {
+            throw CalibrationParallelUtils.unchecked(e);
+          }
+          if (isExposure) {
+            int index = exposureIndex[step];
+            for (int looppath = 0; looppath < nbPaths; looppath++) {
+              double positive = Math.max(portfolio[looppath], 0.0d);
+              ee[index] += positive;
+              ene[index] += Math.min(portfolio[looppath], 0.0d);
+              eeDiscounted[index] += positive * numeraireInverse[looppath];
+              portfolio[looppath] = positive; // PFE is a quantile of the exposure, not of the value
+            }
+            ee[index] /= nbPaths;
+            ene[index] /= nbPaths;
+            eeDiscounted[index] /= nbPaths;
+            Arrays.sort(portfolio);
+            int quantileIndex = Math.min(nbPaths - 1, Math.max(0, (int) Math.ceil(pfeLevel * nbPaths) - 1));
+            pfe[index] = portfolio[quantileIndex];
+          }
+        });
+    double[] exposureTimes = new double[nbExposures];
+    for (int loopexp = 0; loopexp < nbExposures; loopexp++) {
+      exposureTimes[loopexp] = dsc.relativeYearFraction(exposureDates.get(loopexp));
+    }
+    DoubleArray times = DoubleArray.ofUnsafe(exposureTimes);
+    DoubleArray expectedExposure = DoubleArray.ofUnsafe(ee);
+    return ExposureProfile.of(
+        exposureDates,
+        times,
+        expectedExposure,
+        ExposureProfile.expectedPositiveExposure(times, expectedExposure),
+        DoubleArray.ofUnsafe(ene),
+        DoubleArray.ofUnsafe(pfe),
+        DoubleArray.ofUnsafe(eeDiscounted),
+        pfeLevel);
+  }
+
+  /**
+   * Returns the cash flows of a swap paid after the valuation date.
+   * 
+   * @param swap  the swap
+   * @param ccy  the currency of the model
+   * @param multicurve  the multi-curve rates provider
+   * @return the cash flows
+   */
+  private static List<ExposureCashFlow> cashFlows(ResolvedSwap swap, Currency ccy, RatesProvider multicurve) {
+    LocalDate valuationDate = multicurve.getValuationDate();
+    List<ExposureCashFlow> flows = new ArrayList<>();
+    for (ResolvedSwapLeg leg : swap.getLegs()) {
+      ArgChecker.isTrue(leg.getCurrency().equals(ccy), "all the legs must be in the currency {}", ccy);
+      for (SwapPaymentEvent event : leg.getPaymentEvents()) {
+        ArgChecker.isTrue(event instanceof NotionalExchange, "payment events must be NotionalExchange");
+        if (event.getPaymentDate().isAfter(valuationDate)) {
+          flows.add(ExposureCashFlow.fixed(
+              ((NotionalExchange) event).getPaymentAmount().getAmount(), event.getPaymentDate()));
+        }
+      }
+      for (SwapPaymentPeriod paymentPeriod : leg.getPaymentPeriods()) {
+        LocalDate paymentDate = paymentPeriod.getPaymentDate();
+        if (!paymentDate.isAfter(valuationDate)) {
+          continue; // already paid
+        }
+        ArgChecker.isTrue(paymentPeriod instanceof RatePaymentPeriod, "rate payment should be RatePaymentPeriod");
+        RatePaymentPeriod ratePaymentPeriod = (RatePaymentPeriod) paymentPeriod;
+        ArgChecker.isTrue(ratePaymentPeriod.getAccrualPeriods().size() == 1, "rate payment should not be compounding");
+        RateAccrualPeriod accrualPeriod = ratePaymentPeriod.getAccrualPeriods().get(0);
+        ArgChecker.isTrue(accrualPeriod.getGearing() == 1.0d, "gearing should be 1");
+        double notional = ratePaymentPeriod.getNotional();
+        double accrual = accrualPeriod.getYearFraction();
+        RateComputation computation = accrualPeriod.getRateComputation();
+        if (computation instanceof FixedRateComputation) {
+          double rate = ((FixedRateComputation) computation).getRate() + accrualPeriod.getSpread();
+          flows.add(ExposureCashFlow.fixed(notional * accrual * rate, paymentDate));
+        } else if (computation instanceof IborRateComputation) {
+          IborIndexObservation obs = ((IborRateComputation) computation).getObservation();
+          double rate = multicurve.iborIndexRates(obs.getIndex()).rate(obs);
+          if (obs.getFixingDate().isBefore(valuationDate)) { // already fixed
+            flows.add(ExposureCashFlow.fixed(notional * accrual * (rate + accrualPeriod.getSpread()), paymentDate));
+            continue;
+          }
+          LocalDate effectiveDate = obs.getEffectiveDate();
+          double fixingAccrual = obs.getYearFraction();
+          double beta = (1.0d + fixingAccrual * rate) 
+              * multicurve.discountFactor(ccy, paymentDate) / multicurve.discountFactor(ccy, effectiveDate);
+          double ycRatio = accrual / fixingAccrual;
+          flows.add(ExposureCashFlow.floating(
+              IBOR, notional * beta * ycRatio, effectiveDate, obs.getFixingDate(), paymentDate));
+          flows.add(ExposureCashFlow.fixed(notional * (-ycRatio + accrual * accrualPeriod.getSpread()), paymentDate));
+        } else if (computation instanceof OvernightCompoundedRateComputation) {
+          OvernightCompoundedRateComputation onComputation = (OvernightCompoundedRateComputation) computation;
+          LocalDate startDate = accrualPeriod.getStartDate();
+          LocalDate endDate = accrualPeriod.getEndDate();
+          ArgChecker.isFalse(startDate.isBefore(valuationDate),
+              "overnight coupons started before the valuation date are not supported");
+          double computationAccrual = onComputation.getIndex().getDayCount().yearFraction(startDate, endDate);
+          double payDateRatio =
+              multicurve.discountFactor(ccy, paymentDate) / multicurve.discountFactor(ccy, endDate);
+          flows.add(ExposureCashFlow.floating(
+              OVERNIGHT, notional * payDateRatio * accrual / computationAccrual, startDate, startDate, paymentDate));
+          flows.add(ExposureCashFlow.fixed(
+              notional * (-accrual / computationAccrual + accrualPeriod.getSpread() * accrual), paymentDate));
+        } else {
+          throw new IllegalArgumentException("rate computation must be fixed, Ibor or overnight compounded");
+        }
+      }
+    }
+    return flows;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A cash flow of a trade.
+   */
+  private static final class ExposureCashFlow {
+    /** The type of cash flow: FIXED, IBOR or OVERNIGHT. */
+    private final int kind;
+    /** The amount. */
+    private final double amount;
+    /** The date of the amount. */
+    private final LocalDate date;
+    /** The date at which the amount is fixed or starts to be rolled. Equal to the date for fixed amounts. */
+    private final LocalDate eventDate;
+    /** The payment date of the coupon. Equal to the date for fixed amounts. */
+    private final LocalDate paymentDate;
+
+    private ExposureCashFlow(int kind, double amount, LocalDate date, LocalDate eventDate, LocalDate paymentDate) {
+      this.kind = kind;
+      this.amount = amount;
+      this.date = date;
+      this.eventDate = eventDate;
+      this.paymentDate = paymentDate;
+    }
+
+    private static ExposureCashFlow fixed(double amount, LocalDate paymentDate) {
+      return new ExposureCashFlow(FIXED, amount, paymentDate, paymentDate, paymentDate);
+    }
+
+    private static ExposureCashFlow floating(
+        int kind,
+        double amount,
+        LocalDate date,
+        LocalDate eventDate,
+        LocalDate paymentDate) {
+
+      return new ExposureCashFlow(kind, amount, date, eventDate, paymentDate);
+    }
+  }
+
+  /**
+   * The cash flows of a trade, indexed on the flow dates and the steps, and the path dependent amounts
+   * of the coupons fixed but not paid.
+   * <p>
+   * The instance is mutable and used by one thread at a time.
+   */
+  private static final class TradeExposure {
+    private final int[] kind;
+    private final double[] amount;
+    private final int[] dateIndex;
+    private final int[] paymentIndex;
+    private final int[] eventStep;
+    /** The path dependent amounts, for each cash flow, null when not fixed or already paid. */
+    private final double[][] fixedAmounts;
+
+    private TradeExposure(
+        List<ExposureCashFlow> flows,
+        Map<LocalDate, Integer> flowIndex,
+        Map<LocalDate, Integer> stepIndex) {
+
+      int nbFlows = flows.size();
+      kind = new int[nbFlows];
+      amount = new double[nbFlows];
+      dateIndex = new int[nbFlows];
+      paymentIndex = new int[nbFlows];
+      eventStep = new int[nbFlows];
+      fixedAmounts = new double[nbFlows][];
+      for (int loopflow = 0; loopflow < nbFlows; loopflow++) {
+        ExposureCashFlow flow = flows.get(loopflow);
+        kind[loopflow] = flow.kind;
+        amount[loopflow] = flow.amount;
+        dateIndex[loopflow] = flowIndex.get(flow.date);
+        paymentIndex[loopflow] = flowIndex.get(flow.paymentDate);
+        eventStep[loopflow] = (flow.kind == FIXED) ? -1 : stepIndex.get(flow.eventDate);
+      }
+    }
+
+    /**
+     * Fixes the coupons with an event at the step and returns the trade values on all the paths.
+     * 
+     * @param step  the step index
+     * @param firstAlive  the index of the first flow date after the step date
+     * @param dfs  the discount factors for the flow dates on or after the step date, dimensions: dates x paths
+     * @param numeraireInverse  the inverse of the numeraire on each path
+     * @param isExposure  whether the values are required
+     * @param nbPaths  the number of paths
+     * @return the values, null when they are not required
+     */
+    private double[] values(
+        int step,
+        int firstAlive,
+        double[][] dfs,
+        double[] numeraireInverse,
+        boolean isExposure,
+        int nbPaths) {
+
+      double[] values = isExposure ? new double[nbPaths] : null;
+      for (int loopflow = 0; loopflow < kind.length; loopflow++) {
+        if (kind[loopflow] == FIXED || step < eventStep[loopflow]) { // amount at a fixed date
+          if (isExposure && dateIndex[loopflow] >= firstAlive) {
+            double[] df = dfs[dateIndex[loopflow]];
+            for (int looppath = 0; looppath < nbPaths; looppath++) {
+              values[looppath] += amount[loopflow] * df[looppath];
+            }
+          }
+        } else if (paymentIndex[loopflow] >= firstAlive) { // fixed coupon, not paid
+          if (step == eventStep[loopflow]) {
+            double[] fixed = new double[nbPaths];
+            if (kind[loopflow] == IBOR) { // amount at payment date
+              double[] dfStart = dfs[dateIndex[loopflow]];
+              double[] dfPayment = dfs[paymentIndex[loopflow]];
+              for (int looppath = 0; looppath < nbPaths; looppath++) {
+                fixed[looppath] = amount[loopflow] * dfStart[looppath] / dfPayment[looppath];
+              }
+            } else { // OVERNIGHT: amount rebased by the numeraire
+              for (int looppath = 0; looppath < nbPaths; looppath++) {
+                fixed[looppath] = amount[loopflow] * numeraireInverse[looppath];
+              }
+            }
+            fixedAmounts[loopflow] = fixed;
+          }
+          if (isExposure) {
+            double[] fixed = fixedAmounts[loopflow];
+            if (kind[loopflow] == IBOR) {
+              double[] dfPayment = dfs[paymentIndex[loopflow]];
+              for (int looppath = 0; looppath < nbPaths; looppath++) {
+                values[looppath] += fixed[looppath] * dfPayment[looppath];
+              }
+            } else {
+              for (int looppath = 0; looppath < nbPaths; looppath++) {
+                values[looppath] += fixed[looppath] / numeraireInverse[looppath];
+              }
+            }
+          }
+        } else {
+          fixedAmounts[loopflow] = null; // paid
+        }
+      }
+      return values;
+    }
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code HullWhiteOneFactorSwapExposureCalculator}.
+   * @return the meta-bean, not null
+   */
+  public static HullWhiteOneFactorSwapExposureCalculator.Meta meta() {
+    return HullWhiteOneFactorSwapExposureCalculator.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(HullWhiteOneFactorSwapExposureCalculator.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static HullWhiteOneFactorSwapExposureCalculator.Builder builder() {
+    return new HullWhiteOneFactorSwapExposureCalculator.Builder();
+  }
+
+  private HullWhiteOneFactorSwapExposureCalculator(
+      int nbPaths,
+      RandomNumberGenerator numberGenerator,
+      HullWhiteOneFactorMonteCarloEvolution evolution,
+      double pfeLevel) {
+    JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+    JodaBeanUtils.notNull(evolution, "evolution");
+    this.nbPaths = nbPaths;
+    this.numberGenerator = numberGenerator;
+    this.evolution = evolution;
+    this.pfeLevel = pfeLevel;
+    validate();
+  }
+
+  @Override
+  public HullWhiteOneFactorSwapExposureCalculator.Meta metaBean() {
+    return HullWhiteOneFactorSwapExposureCalculator.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths
+   * @return the value of the property
+   */
+  public int getNbPaths() {
+    return nbPaths;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the random number generator.
+   * @return the value of the property, not null
+   */
+  public RandomNumberGenerator getNumberGenerator() {
+    return numberGenerator;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the methods related to the model evolution.
+   * @return the value of the property, not null
+   */
+  public HullWhiteOneFactorMonteCarloEvolution getEvolution() {
+    return evolution;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the quantile level used for the potential future exposure, typically 0.95 or 0.99.
+   * @return the value of the property
+   */
+  public double getPfeLevel() {
+    return pfeLevel;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      HullWhiteOneFactorSwapExposureCalculator other = (HullWhiteOneFactorSwapExposureCalculator) obj;
+      return (nbPaths == other.nbPaths) &&
+          JodaBeanUtils.equal(numberGenerator, other.numberGenerator) &&
+          JodaBeanUtils.equal(evolution, other.evolution) &&
+          JodaBeanUtils.equal(pfeLevel, other.pfeLevel);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(nbPaths);
+    hash = hash * 31 + JodaBeanUtils.hashCode(numberGenerator);
+    hash = hash * 31 + JodaBeanUtils.hashCode(evolution);
+    hash = hash * 31 + JodaBeanUtils.hashCode(pfeLevel);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(160);
+    buf.append("HullWhiteOneFactorSwapExposureCalculator{");
+    buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+    buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator)).append(',').append(' ');
+    buf.append("evolution").append('=').append(JodaBeanUtils.toString(evolution)).append(',').append(' ');
+    buf.append("pfeLevel").append('=').append(JodaBeanUtils.toString(pfeLevel));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code HullWhiteOneFactorSwapExposureCalculator}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     */
+    private final MetaProperty<Integer> nbPaths = DirectMetaProperty.ofImmutable(
+        this, "nbPaths", HullWhiteOneFactorSwapExposureCalculator.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     */
+    private final MetaProperty<RandomNumberGenerator> numberGenerator = DirectMetaProperty.ofImmutable(
+        this, "numberGenerator", HullWhiteOneFactorSwapExposureCalculator.class, RandomNumberGenerator.class);
+    /**
+     * The meta-property for the {@code evolution} property.
+     */
+    private final MetaProperty<HullWhiteOneFactorMonteCarloEvolution> evolution = DirectMetaProperty.ofImmutable(
+        this, "evolution", HullWhiteOneFactorSwapExposureCalculator.class, HullWhiteOneFactorMonteCarloEvolution.class);
+    /**
+     * The meta-property for the {@code pfeLevel} property.
+     */
+    private final MetaProperty<Double> pfeLevel = DirectMetaProperty.ofImmutable(
+        this, "pfeLevel", HullWhiteOneFactorSwapExposureCalculator.class, Double.TYPE);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "nbPaths",
+        "numberGenerator",
+        "evolution",
+        "pfeLevel");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        case 261136251:  // evolution
+          return evolution;
+        case 922181525:  // pfeLevel
+          return pfeLevel;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public HullWhiteOneFactorSwapExposureCalculator.Builder builder() {
+      return new HullWhiteOneFactorSwapExposureCalculator.Builder();
+    }
+
+    @Override
+    public Class<? extends HullWhiteOneFactorSwapExposureCalculator> beanType() {
+      return HullWhiteOneFactorSwapExposureCalculator.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> nbPaths() {
+      return nbPaths;
+    }
+
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<RandomNumberGenerator> numberGenerator() {
+      return numberGenerator;
+    }
+
+    /**
+     * The meta-property for the {@code evolution} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<HullWhiteOneFactorMonteCarloEvolution> evolution() {
+      return evolution;
+    }
+
+    /**
+     * The meta-property for the {@code pfeLevel} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Double> pfeLevel() {
+      return pfeLevel;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return ((HullWhiteOneFactorSwapExposureCalculator) bean).getNbPaths();
+        case 1709932938:  // numberGenerator
+          return ((HullWhiteOneFactorSwapExposureCalculator) bean).getNumberGenerator();
+        case 261136251:  // evolution
+          return ((HullWhiteOneFactorSwapExposureCalculator) bean).getEvolution();
+        case 922181525:  // pfeLevel
+          return ((HullWhiteOneFactorSwapExposureCalculator) bean).getPfeLevel();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code HullWhiteOneFactorSwapExposureCalculator}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<HullWhiteOneFactorSwapExposureCalculator> {
+
+    private int nbPaths;
+    private RandomNumberGenerator numberGenerator;
+    private HullWhiteOneFactorMonteCarloEvolution evolution;
+    private double pfeLevel;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(HullWhiteOneFactorSwapExposureCalculator beanToCopy) {
+      this.nbPaths = beanToCopy.getNbPaths();
+      this.numberGenerator = beanToCopy.getNumberGenerator();
+      this.evolution = beanToCopy.getEvolution();
+      this.pfeLevel = beanToCopy.getPfeLevel();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        case 261136251:  // evolution
+          return evolution;
+        case 922181525:  // pfeLevel
+          return pfeLevel;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          this.nbPaths = (Integer) newValue;
+          break;
+        case 1709932938:  // numberGenerator
+          this.numberGenerator = (RandomNumberGenerator) newValue;
+          break;
+        case 261136251:  // evolution
+          this.evolution = (HullWhiteOneFactorMonteCarloEvolution) newValue;
+          break;
+        case 922181525:  // pfeLevel
+          this.pfeLevel = (Double) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public HullWhiteOneFactorSwapExposureCalculator build() {
+      return new HullWhiteOneFactorSwapExposureCalculator(
+          nbPaths,
+          numberGenerator,
+          evolution,
+          pfeLevel);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the number of paths
+     * @param nbPaths  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder nbPaths(int nbPaths) {
+      this.nbPaths = nbPaths;
+      return this;
+    }
+
+    /**
+     * Sets the random number generator.
+     * @param numberGenerator  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder numberGenerator(RandomNumberGenerator numberGenerator) {
+      JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+      this.numberGenerator = numberGenerator;
+      return this;
+    }
+
+    /**
+     * Sets the methods related to the model evolution.
+     * @param evolution  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder evolution(HullWhiteOneFactorMonteCarloEvolution evolution) {
+      JodaBeanUtils.notNull(evolution, "evolution");
+      this.evolution = evolution;
+      return this;
+    }
+
+    /**
+     * Sets the quantile level used for the potential future exposure, typically 0.95 or 0.99.
+     * @param pfeLevel  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder pfeLevel(double pfeLevel) {
+      this.pfeLevel = pfeLevel;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(160);
+      buf.append("HullWhiteOneFactorSwapExposureCalculator.Builder{");
+      buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+      buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator)).append(',').append(' ');
+      buf.append("evolution").append('=').append(JodaBeanUtils.toString(evolution)).append(',').append(' ');
+      buf.append("pfeLevel").append('=').append(JodaBeanUtils.toString(pfeLevel));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
@@ -0,0 +1,8 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+
+/**
+ * Package with classes related to the simulation of the exposure profiles of portfolios.
+ */
+package marc.henrard.murisq.pricer.exposure;
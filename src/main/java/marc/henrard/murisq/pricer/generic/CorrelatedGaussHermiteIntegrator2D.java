@@ -0,0 +1,327 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.generic;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleBinaryOperator;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.math.impl.integration.GaussHermiteWeightAndAbscissaFunction;
+import com.opengamma.strata.math.impl.integration.GaussianQuadratureData;
+import com.opengamma.strata.math.impl.statistics.distribution.NormalDistribution;
+import com.opengamma.strata.math.impl.statistics.distribution.ProbabilityDistribution;
+
+/**
+ * Gauss-Hermite quadrature for expectations of functions of two correlated standard normal variables.
+ * <p>
+ * The variables are written as X0 = Z0 and X1 = rho Z0 + sqrt(1-rho^2) Z1 with Z0 and Z1 independent standard
+ * normal variables. The nodes and weights are the Gauss-Hermite ones rescaled to the standard normal density.
+ * <p>
+ * Two integration schemes are proposed. The first one is the tensor product quadrature for a generic
+ * integrand provided as a primitive {@link DoubleBinaryOperator}. The second one is specialised for the positive
+ * part of a sum of exponentials, which is the payoff of swaptions and caplets in the Gaussian and rational models.
+ * The quadrature is used in Z0 and the integral in Z1 conditional to Z0 is computed explicitly once the exercise
+ * boundary is found. The function integrated by quadrature is then smooth and the convergence is fast,
+ * while the tensor quadrature converges slowly for payoffs with a kink.
+ * <p>
+ * The nodes and weights are computed once for each order and cached. The instances are immutable and thread-safe.
+ *
+ * @author Marc Henrard
+ */
+public final class CorrelatedGaussHermiteIntegrator2D {
+
+  /** The default quadrature order. */
+  public static final int DEFAULT_ORDER = 32;
+  /** The instances already created, by order. */
+  private static final ConcurrentHashMap<Integer, CorrelatedGaussHermiteIntegrator2D> CACHE =
+      new ConcurrentHashMap<>();
+  /** The generator of Gauss-Hermite nodes and weights. */
+  private static final GaussHermiteWeightAndAbscissaFunction GAUSS_HERMITE =
+      new GaussHermiteWeightAndAbscissaFunction();
+  /** The standard normal distribution. */
+  private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+  /** Tolerance to consider two exponents as equal. */
+  private static final double TOLERANCE_EXPONENT = 1.0E-14;
+  /** Tolerance on the exercise boundary. */
+  private static final double TOLERANCE_BOUNDARY = 1.0E-12;
+  /** The maximal number of iterations to find the exercise boundary. */
+  private static final int MAX_ITERATIONS = 100;
+  /** Limit beyond which the normal density is negligible. */
+  private static final double LIMIT_BOUNDARY = 40.0;
+
+  /** The quadrature order. */
+  private final int order;
+  /** The nodes for the standard normal density. */
+  private final double[] nodes;
+  /** The weights for the standard normal density. */
+  private final double[] weights;
+
+  /**
+   * Returns the integrator for the default order.
+   *
+   * @return the integrator
+   */
+  public static CorrelatedGaussHermiteIntegrator2D of() {
+    return of(DEFAULT_ORDER);
+  }
+
+  /**
+   * Returns the integrator of a given order.
+   * <p>
+   * The nodes and weights are cached by order.
+   *
+   * @param order  the number of nodes in each dimension
+   * @return the integrator
+   */
+  public static CorrelatedGaussHermiteIntegrator2D of(int order) {
+    ArgChecker.isTrue(order > 1, "order must be larger than 1");
+    return CACHE.computeIfAbsent(order, CorrelatedGaussHermiteIntegrator2D::new);
+  }
+
+  // Private constructor
+  private CorrelatedGaussHermiteIntegrator2D(int order) {
+    this.order = order;
+    GaussianQuadratureData data = GAUSS_HERMITE.generate(order);
+    // Nodes and weights for exp(-x^2) rescaled to the standard normal density
+    double scaleNode = Math.sqrt(2.0d);
+    double scaleWeight = 1.0d / Math.sqrt(Math.PI);
+    this.nodes = new double[order];
+    this.weights = new double[order];
+    for (int i = 0; i < order; i++) {
+      nodes[i] = data.getNodes()[i] * scaleNode;
+      weights[i] = data.getWeights()[i] * scaleWeight;
+    }
+  }
+
+  /**
+   * Returns the quadrature order.
+   *
+   * @return the order
+   */
+  public int getOrder() {
+    return order;
+  }
+
+  /**
+   * Returns the nodes for the standard normal density.
+   *
+   * @return the nodes
+   */
+  public double[] getNodes() {
+    return nodes.clone();
+  }
+
+  /**
+   * Returns the weights for the standard normal density.
+   *
+   * @return the weights
+   */
+  public double[] getWeights() {
+    return weights.clone();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Computes the expectation of a function of two correlated standard normal variables with the tensor quadrature.
+   *
+   * @param function  the function of (x0, x1)
+   * @param correlation  the correlation between the variables
+   * @return the expectation
+   */
+  public double expectation(DoubleBinaryOperator function, double correlation) {
+    double sqrtOneMinusRho2 = sqrtOneMinusRho2(correlation);
+    double result = 0.0d;
+    for (int loop0 = 0; loop0 < order; loop0++) {
+      double resultInner = 0.0d;
+      for (int loop1 = 0; loop1 < order; loop1++) {
+        double x1 = correlation * nodes[loop0] + sqrtOneMinusRho2 * nodes[loop1];
+        resultInner += weights[loop1] * function.applyAsDouble(nodes[loop0], x1);
+      }
+      result += weights[loop0] * resultInner;
+    }
+    return result;
+  }
+
+  /**
+   * Computes the expectation of the positive part of a sum of exponentials of two correlated standard normal
+   * variables.
+   * <p>
+   * The function is max(sum_i c_i exp(e0_i x0 + e1_i x1), 0). Conditional to the first variable, the sum is
+   * a sum of exponentials in the second variable. When its signs at minus and plus infinity are different,
+   * the sum is supposed to have a unique root, the exercise boundary, and the integral in the second dimension is
+   * explicit. This is the case of the standard swaptions and caplets. When the signs at infinity are the same but the
+   * coefficients have different signs, the second dimension is also integrated by quadrature.
+   *
+   * @param coefficients  the coefficients c_i
+   * @param exponents0  the exponents e0_i of the first variable
+   * @param exponents1  the exponents e1_i of the second variable
+   * @param correlation  the correlation between the variables
+   * @return the expectation
+   */
+  public double expectationPositivePart(
+      double[] coefficients,
+      double[] exponents0,
+      double[] exponents1,
+      double correlation) {
+
+    int nbTerms = coefficients.length;
+    ArgChecker.isTrue(exponents0.length == nbTerms, "exponents0 must have the same length as coefficients");
+    ArgChecker.isTrue(exponents1.length == nbTerms, "exponents1 must have the same length as coefficients");
+    double sqrtOneMinusRho2 = sqrtOneMinusRho2(correlation);
+    // Exponents in (Z0, Z1) and grouping of the terms with the same exponent in Z1, in increasing order
+    double[] u = new double[nbTerms];
+    double[] v = new double[nbTerms];
+    for (int i = 0; i < nbTerms; i++) {
+      u[i] = exponents0[i] + correlation * exponents1[i];
+      v[i] = exponents1[i] * sqrtOneMinusRho2;
+    }
+    int[] sorted = sortedIndices(v);
+    int[] group = new int[nbTerms];
+    double[] vGroup = new double[nbTerms];
+    int nbGroups = 0;
+    for (int i = 0; i < nbTerms; i++) {
+      int index = sorted[i];
+      if (nbGroups == 0 || Math.abs(v[index] - vGroup[nbGroups - 1]) > TOLERANCE_EXPONENT) {
+        vGroup[nbGroups] = v[index];
+        nbGroups++;
+      }
+      group[index] = nbGroups - 1;
+    }
+    double[] adjustment = new double[nbGroups]; // E[exp(v Z1)]
+    for (int g = 0; g < nbGroups; g++) {
+      adjustment[g] = Math.exp(0.5d * vGroup[g] * vGroup[g]);
+    }
+    double[] d = new double[nbGroups];
+    double result = 0.0d;
+    for (int loop0 = 0; loop0 < order; loop0++) {
+      Arrays.fill(d, 0.0d);
+      for (int i = 0; i < nbTerms; i++) {
+        d[group[i]] += coefficients[i] * Math.exp(u[i] * nodes[loop0]);
+      }
+      result += weights[loop0] * conditionalExpectationPositivePart(d, vGroup, adjustment, nbGroups);
+    }
+    return result;
+  }
+
+  // E[max(sum_g d_g exp(v_g Z), 0)] for Z standard normal, v_g in increasing order
+  private double conditionalExpectationPositivePart(double[] d, double[] v, double[] adjustment, int nbGroups) {
+    double signFirst = 0.0d; // sign for z -> -infinity
+    double signLast = 0.0d; // sign for z -> +infinity
+    boolean signChange = false;
+    for (int g = 0; g < nbGroups; g++) {
+      if (d[g] != 0.0d) {
+        double sign = Math.signum(d[g]);
+        if (signFirst == 0.0d) {
+          signFirst = sign;
+        }
+        signChange = signChange || (sign != signFirst);
+        signLast = sign;
+      }
+    }
+    if (!signChange) { // constant sign
+      if (signLast <= 0.0d) {
+        return 0.0d;
+      }
+      double result = 0.0d;
+      for (int g = 0; g < nbGroups; g++) {
+        result += d[g] * adjustment[g];
+      }
+      return result;
+    }
+    if (signFirst != signLast) { // one exercise boundary
+      double boundary = boundary(d, v, nbGroups);
+      double result = 0.0d;
+      for (int g = 0; g < nbGroups; g++) {
+        double x = (signLast > 0.0d) ? v[g] - boundary : boundary - v[g];
+        result += d[g] * adjustment[g] * NORMAL.getCDF(x);
+      }
+      return result;
+    }
+    double result = 0.0d; // several boundaries: quadrature
+    for (int loop1 = 0; loop1 < order; loop1++) {
+      double sum = 0.0d;
+      for (int g = 0; g < nbGroups; g++) {
+        sum += d[g] * Math.exp(v[g] * nodes[loop1]);
+      }
+      result += weights[loop1] * Math.max(sum, 0.0d);
+    }
+    return result;
+  }
+
+  // The unique root of sum_g d_g exp(v_g z), by Newton method safeguarded by bisection
+  private static double boundary(double[] d, double[] v, int nbGroups) {
+    double low = -1.0d;
+    double high = 1.0d;
+    double fLow = sumExponentials(d, v, nbGroups, low);
+    double fHigh = sumExponentials(d, v, nbGroups, high);
+    while (fLow * fHigh > 0.0d && high < LIMIT_BOUNDARY) {
+      low *= 2.0d;
+      high *= 2.0d;
+      fLow = sumExponentials(d, v, nbGroups, low);
+      fHigh = sumExponentials(d, v, nbGroups, high);
+    }
+    if (fLow * fHigh > 0.0d) { // no boundary in the relevant range
+      return (Math.abs(fLow) < Math.abs(fHigh)) ? low : high;
+    }
+    double z = 0.5d * (low + high);
+    for (int loopiter = 0; loopiter < MAX_ITERATIONS; loopiter++) {
+      double f = 0.0d;
+      double df = 0.0d;
+      for (int g = 0; g < nbGroups; g++) {
+        double term = d[g] * Math.exp(v[g] * z);
+        f += term;
+        df += v[g] * term;
+      }
+      if (f == 0.0d) {
+        return z;
+      }
+      if (f * fLow > 0.0d) {
+        low = z;
+        fLow = f;
+      } else {
+        high = z;
+      }
+      double zNext = z - f / df;
+      if (!(zNext > low && zNext < high)) { // Newton step outside the bracket: bisection
+        zNext = 0.5d * (low + high);
+      }
+      if (Math.abs(zNext - z) < TOLERANCE_BOUNDARY) {
+        return zNext;
+      }
+      z = zNext;
+    }
+    return z;
+  }
+
+  // sum_g d_g exp(v_g z)
+  private static double sumExponentials(double[] d, double[] v, int nbGroups, double z) {
+    double sum = 0.0d;
+    for (int g = 0; g < nbGroups; g++) {
+      sum += d[g] * Math.exp(v[g] * z);
+    }
+    return sum;
+  }
+
+  // The indices sorting the values in increasing order (insertion sort, the number of terms is small)
+  private static int[] sortedIndices(double[] values) {
+    int n = values.length;
+    int[] indices = new int[n];
+    for (int i = 0; i < n; i++) {
+      int j = i;
+      while (j > 0 && values[indices[j - 1]] > values[i]) {
+        indices[j] = indices[j - 1];
+        j--;
+      }
+      indices[j] = i;
+    }
+    return indices;
+  }
+
+  private static double sqrtOneMinusRho2(double correlation) {
+    ArgChecker.inRangeExclusive(correlation, -1.0d, 1.0d, "correlation");
+    return Math.sqrt(1.0d - correlation * correlation);
+  }
+
+}
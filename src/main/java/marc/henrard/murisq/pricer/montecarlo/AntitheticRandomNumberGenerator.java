@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+/**
+ * Random number generator producing antithetic vectors from an underlying symmetric generator.
+ * <p>
+ * The Monte Carlo path generators request the random numbers by vectors with one number for each path of a block.
+ * For a vector of size n, this generator draws (n+1)/2 numbers from the underlying generator and uses them for the
+ * first half of the paths; the second half of the paths uses the opposite numbers. The path i and i+(n+1)/2 are
+ * thus antithetic. When n is odd, the middle path has no antithetic partner.
+ * <p>
+ * The underlying generator should produce numbers with a distribution symmetric around 0, like the
+ * standard normal distribution.
+ * <p>
+ * The generator is mutable and not thread-safe.
+ *
+ * @author Marc Henrard
+ */
+public final class AntitheticRandomNumberGenerator
+    implements RandomNumberGenerator {
+
+  /** The underlying generator. */
+  private final RandomNumberGenerator underlying;
+
+  /**
+   * Creates an antithetic generator from an underlying generator.
+   *
+   * @param underlying  the underlying generator
+   * @return the generator
+   */
+  public static AntitheticRandomNumberGenerator of(RandomNumberGenerator underlying) {
+    return new AntitheticRandomNumberGenerator(underlying);
+  }
+
+  // Private constructor
+  private AntitheticRandomNumberGenerator(RandomNumberGenerator underlying) {
+    this.underlying = ArgChecker.notNull(underlying, "underlying");
+  }
+
+  /**
+   * Returns the underlying generator.
+   *
+   * @return the generator
+   */
+  public RandomNumberGenerator getUnderlying() {
+    return underlying;
+  }
+
+  @Override
+  public double[] getVector(int size) {
+    int half = (size + 1) / 2;
+    double[] z = underlying.getVector(half);
+    double[] vector = new double[size];
+    System.arraycopy(z, 0, vector, 0, half);
+    for (int looppath = half; looppath < size; looppath++) {
+      vector[looppath] = -z[looppath - half];
+    }
+    return vector;
+  }
+
+  @Override
+  public List<double[]> getVectors(int arraySize, int listSize) {
+    List<double[]> vectors = new ArrayList<>(listSize);
+    for (int loopvector = 0; loopvector < listSize; loopvector++) {
+      vectors.add(getVector(arraySize));
+    }
+    return vectors;
+  }
+
+}
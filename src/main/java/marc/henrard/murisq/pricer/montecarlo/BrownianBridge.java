@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import com.opengamma.strata.collect.ArgChecker;
+
+/**
+ * Brownian bridge construction of Brownian motion increments on a time grid.
+ * <p>
+ * The Brownian motion is first built at the last time, then at the time in the middle (by index) of the known
+ * points, and so on recursively. The first normal numbers drive the largest scale movements of the path, which
+ * is important for quasi-random sequences where the first dimensions have the best uniformity.
+ * <p>
+ * The results are the increments normalised by the square root of the time steps, i.e. independent standard normal
+ * variables, in time order.
+ * <p>
+ * Reference: Jaeckel, P. (2002). Monte Carlo Methods in Finance. Wiley, Section 10.8.3.
+ *
+ * @author Marc Henrard
+ */
+public final class BrownianBridge {
+
+  /** The times, strictly positive and increasing. The Brownian motion starts at 0 at time 0. */
+  private final double[] times;
+  /** The square root of the time steps. */
+  private final double[] sqrtDt;
+  /** The index of the time constructed at each bridge step. */
+  private final int[] bridgeIndex;
+  /** The index of the left known time plus one; 0 when the left point is the origin. */
+  private final int[] leftIndex;
+  /** The index of the right known time. */
+  private final int[] rightIndex;
+  /** The weight of the left known point. */
+  private final double[] leftWeight;
+  /** The weight of the right known point. */
+  private final double[] rightWeight;
+  /** The standard deviation of the conditional distribution. */
+  private final double[] stdDev;
+
+  /**
+   * Creates the bridge for a given time grid.
+   * 
+   * @param times  the times, strictly positive and increasing
+   * @return the bridge
+   */
+  public static BrownianBridge of(double[] times) {
+    return new BrownianBridge(times.clone());
+  }
+
+  // Private constructor
+  private BrownianBridge(double[] times) {
+    int size = times.length;
+    ArgChecker.isTrue(size > 0, "at least one time required");
+    ArgChecker.isTrue(times[0] > 0, "times must be strictly positive");
+    this.times = times;
+    this.sqrtDt = new double[size];
+    sqrtDt[0] = Math.sqrt(times[0]);
+    for (int i = 1; i < size; i++) {
+      ArgChecker.isTrue(times[i] > times[i - 1], "times must be strictly increasing");
+      sqrtDt[i] = Math.sqrt(times[i] - times[i - 1]);
+    }
+    this.bridgeIndex = new int[size];
+    this.leftIndex = new int[size];
+    this.rightIndex = new int[size];
+    this.leftWeight = new double[size];
+    this.rightWeight = new double[size];
+    this.stdDev = new double[size];
+    boolean[] known = new boolean[size];
+    known[size - 1] = true;
+    bridgeIndex[0] = size - 1;
+    stdDev[0] = Math.sqrt(times[size - 1]);
+    int j = 0;
+    for (int i = 1; i < size; i++) {
+      while (known[j]) { // first unknown point
+        j++;
+      }
+      int k = j;
+      while (!known[k]) { // next known point
+        k++;
+      }
+      int l = j + ((k - 1 - j) >> 1); // point in the middle of the unknown range
+      known[l] = true;
+      bridgeIndex[i] = l;
+      leftIndex[i] = j;
+      rightIndex[i] = k;
+      double tLeft = (j == 0) ? 0.0 : times[j - 1];
+      leftWeight[i] = (times[k] - times[l]) / (times[k] - tLeft);
+      rightWeight[i] = (times[l] - tLeft) / (times[k] - tLeft);
+      stdDev[i] = Math.sqrt((times[l] - tLeft) * (times[k] - times[l]) / (times[k] - tLeft));
+      j = k + 1;
+      if (j >= size) {
+        j = 0;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of times in the grid.
+   * 
+   * @return the number of times
+   */
+  public int getSize() {
+    return times.length;
+  }
+
+  /**
+   * Computes the normalised Brownian increments for a set of paths.
+   * <p>
+   * The input normal numbers are used in the bridge order: the first one determines the value at the last time.
+   * 
+   * @param normals  the independent standard normal numbers, dimensions: times x paths
+   * @return the normalised increments, in time order, dimensions: times x paths
+   */
+  public double[][] increments(double[][] normals) {
+    int size = times.length;
+    ArgChecker.isTrue(normals.length == size, "number of normal vectors must be equal to the number of times");
+    int nbPaths = normals[0].length;
+    double[][] path = new double[size][nbPaths];
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      path[size - 1][looppath] = stdDev[0] * normals[0][looppath];
+    }
+    for (int i = 1; i < size; i++) {
+      int j = leftIndex[i];
+      int k = rightIndex[i];
+      int l = bridgeIndex[i];
+      double[] pathL = path[l];
+      double[] pathK = path[k];
+      double[] normalsI = normals[i];
+      if (j != 0) {
+        double[] pathJ = path[j - 1];
+        for (int looppath = 0; looppath < nbPaths; looppath++) {
+          pathL[looppath] = leftWeight[i] * pathJ[looppath] + rightWeight[i] * pathK[looppath] +
+              stdDev[i] * normalsI[looppath];
+        }
+      } else {
+        for (int looppath = 0; looppath < nbPaths; looppath++) {
+          pathL[looppath] = rightWeight[i] * pathK[looppath] + stdDev[i] * normalsI[looppath];
+        }
+      }
+    }
+    for (int i = size - 1; i >= 1; i--) { // normalised increments
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        path[i][looppath] = (path[i][looppath] - path[i - 1][looppath]) / sqrtDt[i];
+      }
+    }
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      path[0][looppath] /= sqrtDt[0];
+    }
+    return path;
+  }
+
+}
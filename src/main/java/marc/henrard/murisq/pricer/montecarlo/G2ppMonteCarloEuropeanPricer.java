@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.DiscountFactors;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.ResolvedProduct;
+
+import marc.henrard.murisq.model.g2pp.G2ppMonteCarloEvolution;
+import marc.henrard.murisq.model.g2pp.G2ppPiecewiseConstantDeterministicSpreadParameters;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+
+/**
+ * Generic Monte Carlo pricer for European options in the G2++ model with piecewise constant volatilities.
+ * <p>
+ * The numeraire is the pseudo-discount factor on the last model date, as in the LMM. The evolved values are the 
+ * numeraire rebased discount factors on the model dates, see {@link G2ppMonteCarloEvolution}.
+ *
+ * @param <P> the type of product to be priced 
+ * 
+ * @author Marc Henrard
+ */
+public interface G2ppMonteCarloEuropeanPricer<P extends ResolvedProduct>
+    extends MonteCarloEuropeanPricer<P, G2ppPiecewiseConstantDeterministicSpreadParameters> {
+
+  /**
+   * Returns the mechanism to compute the G2++ evolution.
+   * 
+   * @return the evolution
+   */
+  abstract G2ppMonteCarloEvolution getEvolution();
+
+  /**
+   * Returns the random number generator.
+   * 
+   * @return the random number generator
+   */
+  abstract RandomNumberGenerator getNumberGenerator();
+
+  @Override
+  default public int getNbFactors() {
+    return 2;
+  }
+
+  @Override
+  default public double numeraireInitialValue(RatesProvider multicurve) {
+    // The pseudo-numeraire is the pseudo-discount factor on the last model date.
+    DoubleArray iborTimes = getModel().getIborTimes();
+    double numeraireTime = iborTimes.get(iborTimes.size() - 1);
+    // Curve and model time measure must be compatible
+    return multicurve.discountFactors(getModel().getCurrency()).discountFactor(numeraireTime);
+  }
+
+  /**
+   * Returns the number of random dimensions used for each path to price a product.
+   * <p>
+   * This is the dimension required for quasi-random number generators like 
+   * {@link SobolNormalRandomNumberGenerator}.
+   * 
+   * @param product  the product
+   * @return the number of dimensions
+   */
+  default int randomDimension(P product) {
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    double[] stepTimes = new double[] {getModel().relativeTime(mce.getDecisionTime())};
+    return getEvolution().randomDimension(stepTimes);
+  }
+
+  @Override
+  default public MulticurveEquivalentValues initialValues(
+      MulticurveEquivalent mce,
+      RatesProvider multicurve) {
+
+    // The discount factors on the model dates are stored in ON equivalent values
+    DoubleArray iborTimes = getModel().getIborTimes();
+    DiscountFactors dsc = multicurve.discountFactors(getModel().getCurrency());
+    double[] df = new double[iborTimes.size()];
+    for (int i = 0; i < iborTimes.size(); i++) {
+      df[i] = dsc.discountFactor(iborTimes.get(i));
+    }
+    return MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(df)).build();
+  }
+
+  @Override
+  public default List<MulticurveEquivalentValues> evolve(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths) {
+
+    return getEvolution()
+        .evolveOneStep(expiry, initialValues, getModel(), getNumberGenerator(), numberPaths);
+  }
+
+  @Override
+  public default List<MulticurveEquivalentValues> evolve(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return getEvolution()
+        .evolveOneStep(expiry, initialValues, getModel(), numberGenerator, numberPaths);
+  }
+
+  @Override
+  public default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths) {
+
+    return getEvolution()
+        .evolveOneStepPaths(expiry, initialValues, getModel(), getNumberGenerator(), numberPaths);
+  }
+
+  @Override
+  public default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return getEvolution()
+        .evolveOneStepPaths(expiry, initialValues, getModel(), numberGenerator, numberPaths);
+  }
+
+}
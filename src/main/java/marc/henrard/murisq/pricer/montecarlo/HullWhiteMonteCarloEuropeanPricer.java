@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.DiscountFactors;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.ResolvedProduct;
+
+import marc.henrard.murisq.model.hullwhite.HullWhiteOneFactorMonteCarloEvolution;
+import marc.henrard.murisq.model.hullwhite.HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+
+/**
+ * Generic Monte Carlo pricer for European options in the Hull-White one-factor model.
+ * <p>
+ * The numeraire is the cash account and its initial value is 1. The evolved values are the numeraire rebased 
+ * discount factors on the model dates, see {@link HullWhiteOneFactorMonteCarloEvolution}.
+ *
+ * @param <P> the type of product to be priced 
+ * 
+ * @author Marc Henrard
+ */
+public interface HullWhiteMonteCarloEuropeanPricer<P extends ResolvedProduct>
+    extends MonteCarloEuropeanPricer<P, HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters> {
+
+  /**
+   * Returns the mechanism to compute the Hull-White evolution.
+   * 
+   * @return the evolution
+   */
+  abstract HullWhiteOneFactorMonteCarloEvolution getEvolution();
+
+  /**
+   * Returns the random number generator.
+   * 
+   * @return the random number generator
+   */
+  abstract RandomNumberGenerator getNumberGenerator();
+
+  @Override
+  default public int getNbFactors() {
+    return 1;
+  }
+
+  @Override
+  default public double numeraireInitialValue(RatesProvider multicurve) {
+    return 1.0d; // Cash account
+  }
+
+  /**
+   * Returns the number of random dimensions used for each path to price a product.
+   * <p>
+   * This is the dimension required for quasi-random number generators like 
+   * {@link SobolNormalRandomNumberGenerator}.
+   * 
+   * @param product  the product
+   * @return the number of dimensions
+   */
+  default int randomDimension(P product) {
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    double[] stepTimes = new double[] {getModel().relativeTime(mce.getDecisionTime())};
+    return getEvolution().randomDimension(stepTimes);
+  }
+
+  @Override
+  default public MulticurveEquivalentValues initialValues(
+      MulticurveEquivalent mce,
+      RatesProvider multicurve) {
+
+    // The discount factors on the model dates are stored in ON equivalent values
+    DoubleArray iborTimes = getModel().getIborTimes();
+    DiscountFactors dsc = multicurve.discountFactors(getModel().getCurrency());
+    double[] df = new double[iborTimes.size()];
+    for (int i = 0; i < iborTimes.size(); i++) {
+      df[i] = dsc.discountFactor(iborTimes.get(i));
+    }
+    return MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(df)).build();
+  }
+
+  @Override
+  public default List<MulticurveEquivalentValues> evolve(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths) {
+
+    return getEvolution()
+        .evolveOneStep(expiry, initialValues, getModel(), getNumberGenerator(), numberPaths);
+  }
+
+  @Override
+  public default List<MulticurveEquivalentValues> evolve(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return getEvolution()
+        .evolveOneStep(expiry, initialValues, getModel(), numberGenerator, numberPaths);
+  }
+
+  @Override
+  public default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths) {
+
+    return getEvolution()
+        .evolveOneStepPaths(expiry, initialValues, getModel(), getNumberGenerator(), numberPaths);
+  }
+
+  @Override
+  public default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return getEvolution()
+        .evolveOneStepPaths(expiry, initialValues, getModel(), numberGenerator, numberPaths);
+  }
+
+}
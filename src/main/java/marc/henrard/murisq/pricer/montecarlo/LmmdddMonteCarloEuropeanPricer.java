@@ -4,7 +4,9 @@
 package marc.henrard.murisq.pricer.montecarlo;
 
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntFunction;
 
 import com.opengamma.strata.basics.currency.Currency;
 import com.opengamma.strata.collect.array.DoubleArray;
@@ -15,6 +17,7 @@ import com.opengamma.strata.product.ResolvedProduct;
 
 import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
 import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloKernel;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
 
@@ -56,6 +59,21 @@ public interface LmmdddMonteCarloEuropeanPricer<P extends ResolvedProduct>
     return multicurve.discountFactors(getModel().getCurrency()).discountFactor(numeraireTime);
   }
 
+  /**
+   * Returns the number of random dimensions used for each path to price a product.
+   * <p>
+   * This is the dimension required for quasi-random number generators like 
+   * {@link SobolNormalRandomNumberGenerator}.
+   * 
+   * @param product  the product
+   * @return the number of dimensions
+   */
+  default int randomDimension(P product) {
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    double[] stepTimes = new double[] {getModel().relativeTime(mce.getDecisionTime())};
+    return getEvolution().randomDimension(stepTimes, getModel());
+  }
+
   @Override
   default public MulticurveEquivalentValues initialValues(
       MulticurveEquivalent mce,
@@ -84,6 +102,67 @@ public interface LmmdddMonteCarloEuropeanPricer<P extends ResolvedProduct>
         .evolveOneStep(expiry, initialValues, getModel(), getNumberGenerator(), numberPaths);
   }
 
+  @Override
+  public default List<MulticurveEquivalentValues> evolve(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return getEvolution()
+        .evolveOneStep(expiry, initialValues, getModel(), numberGenerator, numberPaths);
+  }
+
+  @Override
+  public default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths) {
+
+    return getEvolution().evolveOneStepPaths(
+        expiry, initialValues, getModel(), getNumberGenerator(), numberPaths);
+  }
+
+  @Override
+  public default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return getEvolution().evolveOneStepPaths(
+        expiry, initialValues, getModel(), numberGenerator, numberPaths);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * One evolution kernel is created for the call and used for all the blocks.
+   */
+  @Override
+  public default IntFunction<MonteCarloPathBuffer> pathEvolution(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry) {
+
+    return pathEvolution(initialValues, expiry, getNumberGenerator());
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * One evolution kernel is created for the call and used for all the blocks.
+   */
+  @Override
+  public default IntFunction<MonteCarloPathBuffer> pathEvolution(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      RandomNumberGenerator numberGenerator) {
+
+    LiborMarketModelMonteCarloKernel kernel = getEvolution().kernel(getModel());
+    return numberPaths ->
+        getEvolution().evolveOneStepPaths(expiry, initialValues, kernel, numberGenerator, numberPaths);
+  }
+
   /**
    * Returns the numeraire rebased discount factors at the different LMM dates.
    * <p>
@@ -112,4 +191,35 @@ public interface LmmdddMonteCarloEuropeanPricer<P extends ResolvedProduct>
     return discounting;
   }
 
+  /**
+   * Returns the numeraire rebased discount factors at the different LMM dates from forward rates stored 
+   * in a path buffer.
+   * <p>
+   * The numeraire is the discount factor at the last date, hence the last discounting is 1 and the 
+   * one at other dates are above one for positive rates.
+   * <p>
+   * The results are in the same structure as the buffer, i.e. for each date the values for the different 
+   * paths are contiguous.
+   * 
+   * @param valuesExpiry  the modeled forward rates at expiry, dimensions: LMM periods x paths
+   * @return  the rebased discount factors, dimensions: dates x paths
+   */
+  default double[][] discounting(MonteCarloPathBuffer valuesExpiry) {
+
+    int nbFwdPeriods = getModel().getIborPeriodsCount();
+    int nbPathsDsc = valuesExpiry.getPathsCount();
+    double[] delta = getModel().getAccrualFactors().toArrayUnsafe();
+    double[][] discounting = new double[nbFwdPeriods + 1][nbPathsDsc];
+    Arrays.fill(discounting[nbFwdPeriods], 1.0);
+    double[] valueFwd = new double[nbPathsDsc];
+    for (int loopdsc = nbFwdPeriods - 1; loopdsc >= 0; loopdsc--) {
+      valuesExpiry.getPeriod(loopdsc, valueFwd);
+      for (int looppath = 0; looppath < nbPathsDsc; looppath++) {
+        discounting[loopdsc][looppath] =
+            discounting[loopdsc + 1][looppath] * (1.0 + valueFwd[looppath] * delta[loopdsc]);
+      }
+    }
+    return discounting;
+  }
+
 }
@@ -15,6 +15,7 @@ import com.opengamma.strata.product.ResolvedProduct;
 
 import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
 import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloKernel;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentSchedule;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
 
@@ -56,6 +57,24 @@ public interface LmmdddMonteCarloMultiDatePricer<P extends ResolvedProduct>
     return multicurve.discountFactors(getModel().getCurrency()).discountFactor(numeraireTime);
   }
 
+  /**
+   * Returns the number of random dimensions used for each path to price a product.
+   * <p>
+   * This is the dimension required for quasi-random number generators like 
+   * {@link SobolNormalRandomNumberGenerator}.
+   * 
+   * @param product  the product
+   * @return the number of dimensions
+   */
+  default int randomDimension(P product) {
+    List<ZonedDateTime> decisionTimes = multicurveEquivalent(product).getDecisionTimes();
+    double[] stepTimes = new double[decisionTimes.size()];
+    for (int i = 0; i < decisionTimes.size(); i++) {
+      stepTimes[i] = getModel().relativeTime(decisionTimes.get(i));
+    }
+    return getEvolution().randomDimension(stepTimes, getModel());
+  }
+
   @Override
   default public MulticurveEquivalentValues initialValues(
       MulticurveEquivalentSchedule mce, 
@@ -84,6 +103,50 @@ public interface LmmdddMonteCarloMultiDatePricer<P extends ResolvedProduct>
         .evolveMultiSteps(expiries, initialValues, getModel(), getNumberGenerator(), numberSample);
   }
 
+  /**
+   * Evolves the model up to the expiry dates/times and passes the forward rates at each expiry to a consumer.
+   * <p>
+   * The streaming version of {@link #evolve}, with the same random numbers; the memory used is independent of 
+   * the number of expiries.
+   * 
+   * @param initialValues  the initial values for the multi-curve equivalent
+   * @param expiries  the option expiry dates/times
+   * @param numberSample  the number of sample to use in the Monte Carlo
+   * @param consumer  the consumer of the forward rates at each expiry, dimensions: LMM periods x paths
+   */
+  default void evolveStreaming(
+      MulticurveEquivalentValues initialValues,
+      List<ZonedDateTime> expiries,
+      int numberSample,
+      MonteCarloStepConsumer consumer) {
+
+    evolveStreaming(initialValues, expiries, getEvolution().kernel(getModel()), numberSample, consumer);
+  }
+
+  /**
+   * Evolves the model up to the expiry dates/times with a given evolution kernel and passes the forward rates 
+   * at each expiry to a consumer.
+   * <p>
+   * The kernel is created once by pricing call with {@link LiborMarketModelMonteCarloEvolution#kernel} and used
+   * for all the blocks of paths of that call. The kernel is not thread-safe.
+   * 
+   * @param initialValues  the initial values for the multi-curve equivalent
+   * @param expiries  the option expiry dates/times
+   * @param kernel  the evolution kernel
+   * @param numberSample  the number of sample to use in the Monte Carlo
+   * @param consumer  the consumer of the forward rates at each expiry, dimensions: LMM periods x paths
+   */
+  default void evolveStreaming(
+      MulticurveEquivalentValues initialValues,
+      List<ZonedDateTime> expiries,
+      LiborMarketModelMonteCarloKernel kernel,
+      int numberSample,
+      MonteCarloStepConsumer consumer) {
+
+    getEvolution().evolveMultiStepsStreaming(expiries, initialValues, kernel,
+        getNumberGenerator(), numberSample, consumer);
+  }
+
   /**
    * Returns the numeraire rebased discount factors at the different LMM dates.
    * <p>
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.product.ResolvedProduct;
+
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+
+/**
+ * A product with the LMM Monte Carlo pricer used for its aggregation, as an item of a portfolio priced by 
+ * {@link LmmdddMonteCarloPortfolioPricer}.
+ * <p>
+ * The item links the type of the product to the type of the pricer, so that portfolio of different product
+ * types can be priced together.
+ *
+ * @param <P> the type of product
+ * 
+ * @author Marc Henrard
+ */
+public final class LmmdddMonteCarloPortfolioItem<P extends ResolvedProduct> {
+
+  /** The pricer. Used for the multi-curve equivalent, the initial values, the paths and the aggregation. */
+  private final LmmdddMonteCarloEuropeanPricer<P> pricer;
+  /** The product. */
+  private final P product;
+
+  /**
+   * Obtains an instance.
+   * 
+   * @param <P> the type of product
+   * @param pricer  the pricer
+   * @param product  the product
+   * @return the item
+   */
+  public static <P extends ResolvedProduct> LmmdddMonteCarloPortfolioItem<P> of(
+      LmmdddMonteCarloEuropeanPricer<P> pricer,
+      P product) {
+
+    return new LmmdddMonteCarloPortfolioItem<>(pricer, product);
+  }
+
+  // Private constructor
+  private LmmdddMonteCarloPortfolioItem(LmmdddMonteCarloEuropeanPricer<P> pricer, P product) {
+    this.pricer = ArgChecker.notNull(pricer, "pricer");
+    this.product = ArgChecker.notNull(product, "product");
+  }
+
+  /**
+   * Returns the pricer.
+   * 
+   * @return the pricer
+   */
+  public LmmdddMonteCarloEuropeanPricer<P> getPricer() {
+    return pricer;
+  }
+
+  /**
+   * Returns the product.
+   * 
+   * @return the product
+   */
+  public P getProduct() {
+    return product;
+  }
+
+  /**
+   * Returns the multi-curve equivalent of the product.
+   * 
+   * @return the multi-curve equivalent
+   */
+  public MulticurveEquivalent multicurveEquivalent() {
+    return pricer.multicurveEquivalent(product);
+  }
+
+  /**
+   * Returns the numeraire rebased values of the product for each path.
+   * 
+   * @param me  the multi-curve equivalent of the product
+   * @param valuesExpiry  the forward rates at the decision date, dimensions: LMM periods x paths
+   * @return the values, one for each path
+   */
+  public DoubleArray aggregation(MulticurveEquivalent me, MonteCarloPathBuffer valuesExpiry) {
+    return pricer.aggregation(product, me, valuesExpiry);
+  }
+
+}
@@ -0,0 +1,514 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+import org.joda.beans.Bean;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.ImmutableValidator;
+import org.joda.beans.gen.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.tuple.Triple;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+
+import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+
+/**
+ * Monte Carlo pricer for portfolios of European products in the Libor Market Model with deterministic 
+ * multiplicative spread, with one simulation shared by the products with the same model and decision date.
+ * <p>
+ * The products are grouped by model, evolution mechanism and decision date/time. For each group, the forward rates
+ * are evolved once for each block of paths and the same path buffer is used in the aggregation of each product of 
+ * the group. The cost is thus one simulation for each group instead of one for each product.
+ * <p>
+ * The groups are simulated in the order of their first product in the portfolio, all with the random number 
+ * generator of the portfolio pricer. The number of paths and of paths in each block of the portfolio pricer are 
+ * used; the ones of the product pricers are ignored. For a portfolio with a single group, the present values are
+ * the ones obtained by each product pricer with the same generator, number of paths and block size.
+ * 
+ * @author Marc Henrard
+ */
+@BeanDefinition(factoryName = "of")
+public final class LmmdddMonteCarloPortfolioPricer
+    implements ImmutableBean, Serializable {
+
+  /** The number of paths */
+  @PropertyDefinition
+  private final int nbPaths;
+  /** The number of paths in a computation block */
+  @PropertyDefinition
+  private final int pathNumberBlock;
+  /** The random number generator, shared by all the simulations of the portfolio. */
+  @PropertyDefinition(validate = "notNull")
+  private final RandomNumberGenerator numberGenerator;
+
+  @ImmutableValidator
+  private void validate() {
+    ArgChecker.isTrue(nbPaths > 0, "number of paths must be strictly positive");
+    ArgChecker.isTrue(pathNumberBlock > 0, "number of paths in a block must be strictly positive");
+  }
+
+  /**
+   * Computes the present values of the products of a portfolio.
+   * 
+   * @param portfolio  the portfolio items, each one with its product and its pricer
+   * @param multicurve  the multi-curve framework
+   * @return the present values, in the order of the portfolio
+   */
+  public DoubleArray presentValueDouble(
+      List<? extends LmmdddMonteCarloPortfolioItem<?>> portfolio,
+      RatesProvider multicurve) {
+
+    int nbItems = portfolio.size();
+    List<MulticurveEquivalent> mces = new ArrayList<>(nbItems);
+    for (LmmdddMonteCarloPortfolioItem<?> item : portfolio) {
+      mces.add(item.multicurveEquivalent());
+    }
+    double[] pv = new double[nbItems];
+    for (List<Integer> group : groups(portfolio, mces)) {
+      int first = group.get(0);
+      LmmdddMonteCarloEuropeanPricer<?> pricer = portfolio.get(first).getPricer();
+      MulticurveEquivalent mceFirst = mces.get(first);
+      MulticurveEquivalentValues initialValues = pricer.initialValues(mceFirst, multicurve);
+      IntFunction<MonteCarloPathBuffer> evolution =
+          pricer.pathEvolution(initialValues, mceFirst.getDecisionTime(), numberGenerator);
+      int nbPathsDone = 0;
+      while (nbPathsDone < nbPaths) {
+        int nbPathsBlock = Math.min(pathNumberBlock, nbPaths - nbPathsDone);
+        MonteCarloPathBuffer valuesExpiry = evolution.apply(nbPathsBlock);
+        for (int loopitem : group) {
+          pv[loopitem] += portfolio.get(loopitem).aggregation(mces.get(loopitem), valuesExpiry).sum();
+        }
+        nbPathsDone += nbPathsBlock;
+      }
+      double initialNumeraireValue = pricer.numeraireInitialValue(multicurve);
+      for (int loopitem : group) {
+        pv[loopitem] = pv[loopitem] / nbPaths * initialNumeraireValue;
+      }
+    }
+    return DoubleArray.ofUnsafe(pv);
+  }
+
+  /**
+   * Returns the number of simulations required to price a portfolio.
+   * <p>
+   * This is the number of groups of products with the same model, evolution and decision date/time.
+   * 
+   * @param portfolio  the portfolio items
+   * @return the number of simulations
+   */
+  public int simulationsCount(List<? extends LmmdddMonteCarloPortfolioItem<?>> portfolio) {
+    List<MulticurveEquivalent> mces = new ArrayList<>(portfolio.size());
+    for (LmmdddMonteCarloPortfolioItem<?> item : portfolio) {
+      mces.add(item.multicurveEquivalent());
+    }
+    return groups(portfolio, mces).size();
+  }
+
+  // The indices of the items in each group, in the order of the first item of each group
+  private static List<List<Integer>> groups(
+      List<? extends LmmdddMonteCarloPortfolioItem<?>> portfolio,
+      List<MulticurveEquivalent> mces) {
+
+    Map<Triple<LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters, LiborMarketModelMonteCarloEvolution,
+        ZonedDateTime>, List<Integer>> groups = new LinkedHashMap<>();
+    for (int loopitem = 0; loopitem < portfolio.size(); loopitem++) {
+      LmmdddMonteCarloEuropeanPricer<?> pricer = portfolio.get(loopitem).getPricer();
+      groups.computeIfAbsent(
+          Triple.of(pricer.getModel(), pricer.getEvolution(), mces.get(loopitem).getDecisionTime()),
+          k -> new ArrayList<>()).add(loopitem);
+    }
+    return new ArrayList<>(groups.values());
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code LmmdddMonteCarloPortfolioPricer}.
+   * @return the meta-bean, not null
+   */
+  public static LmmdddMonteCarloPortfolioPricer.Meta meta() {
+    return LmmdddMonteCarloPortfolioPricer.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(LmmdddMonteCarloPortfolioPricer.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Obtains an instance.
+   * @param nbPaths  the value of the property
+   * @param pathNumberBlock  the value of the property
+   * @param numberGenerator  the value of the property, not null
+   * @return the instance
+   */
+  public static LmmdddMonteCarloPortfolioPricer of(
+      int nbPaths,
+      int pathNumberBlock,
+      RandomNumberGenerator numberGenerator) {
+    return new LmmdddMonteCarloPortfolioPricer(
+      nbPaths,
+      pathNumberBlock,
+      numberGenerator);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static LmmdddMonteCarloPortfolioPricer.Builder builder() {
+    return new LmmdddMonteCarloPortfolioPricer.Builder();
+  }
+
+  private LmmdddMonteCarloPortfolioPricer(
+      int nbPaths,
+      int pathNumberBlock,
+      RandomNumberGenerator numberGenerator) {
+    JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+    this.nbPaths = nbPaths;
+    this.pathNumberBlock = pathNumberBlock;
+    this.numberGenerator = numberGenerator;
+    validate();
+  }
+
+  @Override
+  public LmmdddMonteCarloPortfolioPricer.Meta metaBean() {
+    return LmmdddMonteCarloPortfolioPricer.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths
+   * @return the value of the property
+   */
+  public int getNbPaths() {
+    return nbPaths;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths in a computation block
+   * @return the value of the property
+   */
+  public int getPathNumberBlock() {
+    return pathNumberBlock;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the random number generator, shared by all the simulations of the portfolio.
+   * @return the value of the property, not null
+   */
+  public RandomNumberGenerator getNumberGenerator() {
+    return numberGenerator;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      LmmdddMonteCarloPortfolioPricer other = (LmmdddMonteCarloPortfolioPricer) obj;
+      return (nbPaths == other.nbPaths) &&
+          (pathNumberBlock == other.pathNumberBlock) &&
+          JodaBeanUtils.equal(numberGenerator, other.numberGenerator);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(nbPaths);
+    hash = hash * 31 + JodaBeanUtils.hashCode(pathNumberBlock);
+    hash = hash * 31 + JodaBeanUtils.hashCode(numberGenerator);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(128);
+    buf.append("LmmdddMonteCarloPortfolioPricer{");
+    buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+    buf.append("pathNumberBlock").append('=').append(JodaBeanUtils.toString(pathNumberBlock)).append(',').append(' ');
+    buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code LmmdddMonteCarloPortfolioPricer}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     */
+    private final MetaProperty<Integer> nbPaths = DirectMetaProperty.ofImmutable(
+        this, "nbPaths", LmmdddMonteCarloPortfolioPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code pathNumberBlock} property.
+     */
+    private final MetaProperty<Integer> pathNumberBlock = DirectMetaProperty.ofImmutable(
+        this, "pathNumberBlock", LmmdddMonteCarloPortfolioPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     */
+    private final MetaProperty<RandomNumberGenerator> numberGenerator = DirectMetaProperty.ofImmutable(
+        this, "numberGenerator", LmmdddMonteCarloPortfolioPricer.class, RandomNumberGenerator.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "nbPaths",
+        "pathNumberBlock",
+        "numberGenerator");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case -1504032417:  // pathNumberBlock
+          return pathNumberBlock;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public LmmdddMonteCarloPortfolioPricer.Builder builder() {
+      return new LmmdddMonteCarloPortfolioPricer.Builder();
+    }
+
+    @Override
+    public Class<? extends LmmdddMonteCarloPortfolioPricer> beanType() {
+      return LmmdddMonteCarloPortfolioPricer.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> nbPaths() {
+      return nbPaths;
+    }
+
+    /**
+     * The meta-property for the {@code pathNumberBlock} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> pathNumberBlock() {
+      return pathNumberBlock;
+    }
+
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<RandomNumberGenerator> numberGenerator() {
+      return numberGenerator;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return ((LmmdddMonteCarloPortfolioPricer) bean).getNbPaths();
+        case -1504032417:  // pathNumberBlock
+          return ((LmmdddMonteCarloPortfolioPricer) bean).getPathNumberBlock();
+        case 1709932938:  // numberGenerator
+          return ((LmmdddMonteCarloPortfolioPricer) bean).getNumberGenerator();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code LmmdddMonteCarloPortfolioPricer}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<LmmdddMonteCarloPortfolioPricer> {
+
+    private int nbPaths;
+    private int pathNumberBlock;
+    private RandomNumberGenerator numberGenerator;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(LmmdddMonteCarloPortfolioPricer beanToCopy) {
+      this.nbPaths = beanToCopy.getNbPaths();
+      this.pathNumberBlock = beanToCopy.getPathNumberBlock();
+      this.numberGenerator = beanToCopy.getNumberGenerator();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case -1504032417:  // pathNumberBlock
+          return pathNumberBlock;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          this.nbPaths = (Integer) newValue;
+          break;
+        case -1504032417:  // pathNumberBlock
+          this.pathNumberBlock = (Integer) newValue;
+          break;
+        case 1709932938:  // numberGenerator
+          this.numberGenerator = (RandomNumberGenerator) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public LmmdddMonteCarloPortfolioPricer build() {
+      return new LmmdddMonteCarloPortfolioPricer(
+          nbPaths,
+          pathNumberBlock,
+          numberGenerator);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the number of paths
+     * @param nbPaths  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder nbPaths(int nbPaths) {
+      this.nbPaths = nbPaths;
+      return this;
+    }
+
+    /**
+     * Sets the number of paths in a computation block
+     * @param pathNumberBlock  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder pathNumberBlock(int pathNumberBlock) {
+      this.pathNumberBlock = pathNumberBlock;
+      return this;
+    }
+
+    /**
+     * Sets the random number generator, shared by all the simulations of the portfolio.
+     * @param numberGenerator  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder numberGenerator(RandomNumberGenerator numberGenerator) {
+      JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+      this.numberGenerator = numberGenerator;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(128);
+      buf.append("LmmdddMonteCarloPortfolioPricer.Builder{");
+      buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+      buf.append("pathNumberBlock").append('=').append(JodaBeanUtils.toString(pathNumberBlock)).append(',').append(' ');
+      buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
@@ -0,0 +1,475 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.joda.beans.Bean;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+
+/**
+ * The present value and its pathwise sensitivities computed by Monte Carlo in the LMM with displaced diffusion.
+ * <p>
+ * The sensitivities are with respect to the model initial forward rates (the initial numeraire value being 
+ * fixed), the displacements and the volatilities. They are computed by the adjoint of the path generation 
+ * and of the aggregation on the same paths as the present value.
+ *
+ * @author Marc Henrard
+ */
+@BeanDefinition(factoryName = "of")
+public final class LmmdddMonteCarloSensitivities
+    implements ImmutableBean, Serializable {
+
+  /** The Monte Carlo estimate of the present value. */
+  @PropertyDefinition
+  private final double presentValue;
+  /** The derivatives of the present value with respect to the initial forward rates of the model. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray initialForwardsSensitivity;
+  /** The derivatives of the present value with respect to the displacements of the model. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray displacementsSensitivity;
+  /** The derivatives of the present value with respect to the volatilities, dimensions: periods x factors. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleMatrix volatilitiesSensitivity;
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code LmmdddMonteCarloSensitivities}.
+   * @return the meta-bean, not null
+   */
+  public static LmmdddMonteCarloSensitivities.Meta meta() {
+    return LmmdddMonteCarloSensitivities.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(LmmdddMonteCarloSensitivities.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Obtains an instance.
+   * @param presentValue  the value of the property
+   * @param initialForwardsSensitivity  the value of the property, not null
+   * @param displacementsSensitivity  the value of the property, not null
+   * @param volatilitiesSensitivity  the value of the property, not null
+   * @return the instance
+   */
+  public static LmmdddMonteCarloSensitivities of(
+      double presentValue,
+      DoubleArray initialForwardsSensitivity,
+      DoubleArray displacementsSensitivity,
+      DoubleMatrix volatilitiesSensitivity) {
+    return new LmmdddMonteCarloSensitivities(
+      presentValue,
+      initialForwardsSensitivity,
+      displacementsSensitivity,
+      volatilitiesSensitivity);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static LmmdddMonteCarloSensitivities.Builder builder() {
+    return new LmmdddMonteCarloSensitivities.Builder();
+  }
+
+  private LmmdddMonteCarloSensitivities(
+      double presentValue,
+      DoubleArray initialForwardsSensitivity,
+      DoubleArray displacementsSensitivity,
+      DoubleMatrix volatilitiesSensitivity) {
+    JodaBeanUtils.notNull(initialForwardsSensitivity, "initialForwardsSensitivity");
+    JodaBeanUtils.notNull(displacementsSensitivity, "displacementsSensitivity");
+    JodaBeanUtils.notNull(volatilitiesSensitivity, "volatilitiesSensitivity");
+    this.presentValue = presentValue;
+    this.initialForwardsSensitivity = initialForwardsSensitivity;
+    this.displacementsSensitivity = displacementsSensitivity;
+    this.volatilitiesSensitivity = volatilitiesSensitivity;
+  }
+
+  @Override
+  public LmmdddMonteCarloSensitivities.Meta metaBean() {
+    return LmmdddMonteCarloSensitivities.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the Monte Carlo estimate of the present value.
+   * @return the value of the property
+   */
+  public double getPresentValue() {
+    return presentValue;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the derivatives of the present value with respect to the initial forward rates of the model.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getInitialForwardsSensitivity() {
+    return initialForwardsSensitivity;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the derivatives of the present value with respect to the displacements of the model.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getDisplacementsSensitivity() {
+    return displacementsSensitivity;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the derivatives of the present value with respect to the volatilities, dimensions: periods x factors.
+   * @return the value of the property, not null
+   */
+  public DoubleMatrix getVolatilitiesSensitivity() {
+    return volatilitiesSensitivity;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      LmmdddMonteCarloSensitivities other = (LmmdddMonteCarloSensitivities) obj;
+      return JodaBeanUtils.equal(presentValue, other.presentValue) &&
+          JodaBeanUtils.equal(initialForwardsSensitivity, other.initialForwardsSensitivity) &&
+          JodaBeanUtils.equal(displacementsSensitivity, other.displacementsSensitivity) &&
+          JodaBeanUtils.equal(volatilitiesSensitivity, other.volatilitiesSensitivity);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(presentValue);
+    hash = hash * 31 + JodaBeanUtils.hashCode(initialForwardsSensitivity);
+    hash = hash * 31 + JodaBeanUtils.hashCode(displacementsSensitivity);
+    hash = hash * 31 + JodaBeanUtils.hashCode(volatilitiesSensitivity);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(160);
+    buf.append("LmmdddMonteCarloSensitivities{");
+    buf.append("presentValue").append('=').append(JodaBeanUtils.toString(presentValue)).append(',').append(' ');
+    buf.append("initialForwardsSensitivity").append('=').append(JodaBeanUtils.toString(initialForwardsSensitivity)).append(',').append(' ');
+    buf.append("displacementsSensitivity").append('=').append(JodaBeanUtils.toString(displacementsSensitivity)).append(',').append(' ');
+    buf.append("volatilitiesSensitivity").append('=').append(JodaBeanUtils.toString(volatilitiesSensitivity));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code LmmdddMonteCarloSensitivities}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code presentValue} property.
+     */
+    private final MetaProperty<Double> presentValue = DirectMetaProperty.ofImmutable(
+        this, "presentValue", LmmdddMonteCarloSensitivities.class, Double.TYPE);
+    /**
+     * The meta-property for the {@code initialForwardsSensitivity} property.
+     */
+    private final MetaProperty<DoubleArray> initialForwardsSensitivity = DirectMetaProperty.ofImmutable(
+        this, "initialForwardsSensitivity", LmmdddMonteCarloSensitivities.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code displacementsSensitivity} property.
+     */
+    private final MetaProperty<DoubleArray> displacementsSensitivity = DirectMetaProperty.ofImmutable(
+        this, "displacementsSensitivity", LmmdddMonteCarloSensitivities.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code volatilitiesSensitivity} property.
+     */
+    private final MetaProperty<DoubleMatrix> volatilitiesSensitivity = DirectMetaProperty.ofImmutable(
+        this, "volatilitiesSensitivity", LmmdddMonteCarloSensitivities.class, DoubleMatrix.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "presentValue",
+        "initialForwardsSensitivity",
+        "displacementsSensitivity",
+        "volatilitiesSensitivity");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 686253430:  // presentValue
+          return presentValue;
+        case 961652109:  // initialForwardsSensitivity
+          return initialForwardsSensitivity;
+        case -429296701:  // displacementsSensitivity
+          return displacementsSensitivity;
+        case 1747617564:  // volatilitiesSensitivity
+          return volatilitiesSensitivity;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public LmmdddMonteCarloSensitivities.Builder builder() {
+      return new LmmdddMonteCarloSensitivities.Builder();
+    }
+
+    @Override
+    public Class<? extends LmmdddMonteCarloSensitivities> beanType() {
+      return LmmdddMonteCarloSensitivities.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code presentValue} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Double> presentValue() {
+      return presentValue;
+    }
+
+    /**
+     * The meta-property for the {@code initialForwardsSensitivity} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> initialForwardsSensitivity() {
+      return initialForwardsSensitivity;
+    }
+
+    /**
+     * The meta-property for the {@code displacementsSensitivity} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> displacementsSensitivity() {
+      return displacementsSensitivity;
+    }
+
+    /**
+     * The meta-property for the {@code volatilitiesSensitivity} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleMatrix> volatilitiesSensitivity() {
+      return volatilitiesSensitivity;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 686253430:  // presentValue
+          return ((LmmdddMonteCarloSensitivities) bean).getPresentValue();
+        case 961652109:  // initialForwardsSensitivity
+          return ((LmmdddMonteCarloSensitivities) bean).getInitialForwardsSensitivity();
+        case -429296701:  // displacementsSensitivity
+          return ((LmmdddMonteCarloSensitivities) bean).getDisplacementsSensitivity();
+        case 1747617564:  // volatilitiesSensitivity
+          return ((LmmdddMonteCarloSensitivities) bean).getVolatilitiesSensitivity();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code LmmdddMonteCarloSensitivities}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<LmmdddMonteCarloSensitivities> {
+
+    private double presentValue;
+    private DoubleArray initialForwardsSensitivity;
+    private DoubleArray displacementsSensitivity;
+    private DoubleMatrix volatilitiesSensitivity;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(LmmdddMonteCarloSensitivities beanToCopy) {
+      this.presentValue = beanToCopy.getPresentValue();
+      this.initialForwardsSensitivity = beanToCopy.getInitialForwardsSensitivity();
+      this.displacementsSensitivity = beanToCopy.getDisplacementsSensitivity();
+      this.volatilitiesSensitivity = beanToCopy.getVolatilitiesSensitivity();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 686253430:  // presentValue
+          return presentValue;
+        case 961652109:  // initialForwardsSensitivity
+          return initialForwardsSensitivity;
+        case -429296701:  // displacementsSensitivity
+          return displacementsSensitivity;
+        case 1747617564:  // volatilitiesSensitivity
+          return volatilitiesSensitivity;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 686253430:  // presentValue
+          this.presentValue = (Double) newValue;
+          break;
+        case 961652109:  // initialForwardsSensitivity
+          this.initialForwardsSensitivity = (DoubleArray) newValue;
+          break;
+        case -429296701:  // displacementsSensitivity
+          this.displacementsSensitivity = (DoubleArray) newValue;
+          break;
+        case 1747617564:  // volatilitiesSensitivity
+          this.volatilitiesSensitivity = (DoubleMatrix) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public LmmdddMonteCarloSensitivities build() {
+      return new LmmdddMonteCarloSensitivities(
+          presentValue,
+          initialForwardsSensitivity,
+          displacementsSensitivity,
+          volatilitiesSensitivity);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the Monte Carlo estimate of the present value.
+     * @param presentValue  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder presentValue(double presentValue) {
+      this.presentValue = presentValue;
+      return this;
+    }
+
+    /**
+     * Sets the derivatives of the present value with respect to the initial forward rates of the model.
+     * @param initialForwardsSensitivity  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder initialForwardsSensitivity(DoubleArray initialForwardsSensitivity) {
+      JodaBeanUtils.notNull(initialForwardsSensitivity, "initialForwardsSensitivity");
+      this.initialForwardsSensitivity = initialForwardsSensitivity;
+      return this;
+    }
+
+    /**
+     * Sets the derivatives of the present value with respect to the displacements of the model.
+     * @param displacementsSensitivity  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder displacementsSensitivity(DoubleArray displacementsSensitivity) {
+      JodaBeanUtils.notNull(displacementsSensitivity, "displacementsSensitivity");
+      this.displacementsSensitivity = displacementsSensitivity;
+      return this;
+    }
+
+    /**
+     * Sets the derivatives of the present value with respect to the volatilities, dimensions: periods x factors.
+     * @param volatilitiesSensitivity  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder volatilitiesSensitivity(DoubleMatrix volatilitiesSensitivity) {
+      JodaBeanUtils.notNull(volatilitiesSensitivity, "volatilitiesSensitivity");
+      this.volatilitiesSensitivity = volatilitiesSensitivity;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(160);
+      buf.append("LmmdddMonteCarloSensitivities.Builder{");
+      buf.append("presentValue").append('=').append(JodaBeanUtils.toString(presentValue)).append(',').append(' ');
+      buf.append("initialForwardsSensitivity").append('=').append(JodaBeanUtils.toString(initialForwardsSensitivity)).append(',').append(' ');
+      buf.append("displacementsSensitivity").append('=').append(JodaBeanUtils.toString(displacementsSensitivity)).append(',').append(' ');
+      buf.append("volatilitiesSensitivity").append('=').append(JodaBeanUtils.toString(volatilitiesSensitivity));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
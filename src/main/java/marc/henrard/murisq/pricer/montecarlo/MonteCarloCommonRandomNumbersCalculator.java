@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.ResolvedProduct;
+
+import marc.henrard.murisq.model.calibration.CalibrationParallelUtils;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+
+/**
+ * Bump-and-reprice calculator for Monte Carlo pricers with common random numbers.
+ * <p>
+ * The base scenario and all the bumped scenarios, where the model and/or the multi-curve are bumped,
+ * are priced with the same stored random numbers, see {@link MonteCarloStoredRandomNumbers}. The Monte Carlo
+ * noise is thus mostly the same in all scenarios and cancels in the finite differences. This produces stable
+ * finite difference sensitivities with a number of paths similar to the one used for the present value.
+ * <p>
+ * All the blocks of all the scenarios are computed in parallel on the pool. The block values are summed in the
+ * block order for each scenario, the results are thus identical whatever the number of threads of the pool.
+ * <p>
+ * The random number generators of the pricers are not used.
+ *
+ * @author Marc Henrard
+ */
+public final class MonteCarloCommonRandomNumbersCalculator {
+
+  /** The stored random numbers used in all scenarios. */
+  private final MonteCarloStoredRandomNumbers numbers;
+  /** The fork-join pool on which the blocks are computed. */
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates an instance of the calculator.
+   *
+   * @param numbers  the stored random numbers
+   * @param pool  the fork-join pool on which the blocks are computed
+   * @return the instance
+   */
+  public static MonteCarloCommonRandomNumbersCalculator of(
+      MonteCarloStoredRandomNumbers numbers,
+      ForkJoinPool pool) {
+
+    return new MonteCarloCommonRandomNumbersCalculator(numbers, pool);
+  }
+
+  /**
+   * Creates an instance of the calculator using the common pool.
+   *
+   * @param numbers  the stored random numbers
+   * @return the instance
+   */
+  public static MonteCarloCommonRandomNumbersCalculator of(MonteCarloStoredRandomNumbers numbers) {
+    return new MonteCarloCommonRandomNumbersCalculator(numbers, ForkJoinPool.commonPool());
+  }
+
+  // Private constructor
+  private MonteCarloCommonRandomNumbersCalculator(
+      MonteCarloStoredRandomNumbers numbers,
+      ForkJoinPool pool) {
+
+    this.numbers = ArgChecker.notNull(numbers, "numbers");
+    this.pool = ArgChecker.notNull(pool, "pool");
+  }
+
+  /**
+   * Returns the stored random numbers.
+   *
+   * @return the numbers
+   */
+  public MonteCarloStoredRandomNumbers getNumbers() {
+    return numbers;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Computes the present value of a product with the stored random numbers.
+   *
+   * @param <P>  the type of product
+   * @param product  the product
+   * @param pricer  the Monte Carlo pricer
+   * @param multicurve  the multi-curve
+   * @return the present value
+   */
+  public <P extends ResolvedProduct> double presentValue(
+      P product,
+      MonteCarloEuropeanPricer<P, ?> pricer,
+      RatesProvider multicurve) {
+
+    List<MonteCarloEuropeanPricer<P, ?>> pricers = new ArrayList<>();
+    pricers.add(pricer);
+    List<RatesProvider> multicurves = new ArrayList<>();
+    multicurves.add(multicurve);
+    return presentValues(product, pricers, multicurves).get(0);
+  }
+
+  /**
+   * Computes the present values of a product in several scenarios with the stored random numbers.
+   * <p>
+   * The scenario i is priced with the i-th pricer, which contains the model, and the i-th multi-curve.
+   *
+   * @param <P>  the type of product
+   * @param product  the product
+   * @param pricers  the Monte Carlo pricers, one for each scenario
+   * @param multicurves  the multi-curves, one for each scenario
+   * @return the present values, one for each scenario
+   */
+  public <P extends ResolvedProduct> DoubleArray presentValues(
+      P product,
+      List<? extends MonteCarloEuropeanPricer<P, ?>> pricers,
+      List<? extends RatesProvider> multicurves) {
+
+    int nbScenarios = pricers.size();
+    ArgChecker.isTrue(multicurves.size() == nbScenarios, "one multi-curve required for each pricer");
+    int nbBlocks = numbers.getNbBlocks();
+    List<Callable<Double>> tasks = new ArrayList<>();
+    for (int loopsc = 0; loopsc < nbScenarios; loopsc++) {
+      MonteCarloEuropeanPricer<P, ?> pricer = pricers.get(loopsc);
+      numbers.checkDecomposition(pricer);
+      MulticurveEquivalent mce = pricer.multicurveEquivalent(product);
+      MulticurveEquivalentValues initialValues = pricer.initialValues(mce, multicurves.get(loopsc));
+      for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
+        int blockIndex = loopblock;
+        tasks.add(() -> {
+          int nbPathsBlock = (blockIndex < nbBlocks - 1) ? numbers.getPathNumberBlock()
+              : numbers.getNbPaths() - (nbBlocks - 1) * numbers.getPathNumberBlock();
+          MonteCarloPathBuffer valuesExpiry = pricer.evolvePaths(
+              initialValues, mce.getDecisionTime(), nbPathsBlock, numbers.blockGenerator(blockIndex));
+          return pricer.aggregation(product, mce, valuesExpiry).sum();
+        });
+      }
+    }
+    double[] pv = new double[nbScenarios];
+    try {
+      List<Future<Double>> blockValues = pool.invokeAll(tasks);
+      for (int loopsc = 0; loopsc < nbScenarios; loopsc++) {
+        for (int loopblock = 0; loopblock < nbBlocks; loopblock++) { // sum in block order
+          pv[loopsc] += blockValues.get(loopsc * nbBlocks + loopblock).get();
+        }
+        double initialNumeraireValue = pricers.get(loopsc).numeraireInitialValue(multicurves.get(loopsc));
+        pv[loopsc] = pv[loopsc] / numbers.getNbPaths() * initialNumeraireValue;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw CalibrationParallelUtils.unchecked(e);
+    }
+    return DoubleArray.ofUnsafe(pv);
+  }
+
+  /**
+   * Computes the one-sided finite difference sensitivities of a product to the bumped scenarios.
+   * <p>
+   * The base scenario and the bumped scenarios are priced together with the stored random numbers.
+   * The sensitivity i is (PV(bumped i) - PV(base)) / shift.
+   *
+   * @param <P>  the type of product
+   * @param product  the product
+   * @param basePricer  the Monte Carlo pricer with the base model
+   * @param baseMulticurve  the base multi-curve
+   * @param bumpedPricers  the Monte Carlo pricers with the bumped models, one for each bumped scenario
+   * @param bumpedMulticurves  the bumped multi-curves, one for each bumped scenario
+   * @param shift  the size of the bumps
+   * @return the sensitivities, one for each bumped scenario
+   */
+  public <P extends ResolvedProduct> DoubleArray finiteDifferenceSensitivities(
+      P product,
+      MonteCarloEuropeanPricer<P, ?> basePricer,
+      RatesProvider baseMulticurve,
+      List<? extends MonteCarloEuropeanPricer<P, ?>> bumpedPricers,
+      List<? extends RatesProvider> bumpedMulticurves,
+      double shift) {
+
+    ArgChecker.isTrue(shift != 0.0d, "shift must be non-zero");
+    List<MonteCarloEuropeanPricer<P, ?>> pricers = new ArrayList<>();
+    pricers.add(basePricer);
+    pricers.addAll(bumpedPricers);
+    List<RatesProvider> multicurves = new ArrayList<>();
+    multicurves.add(baseMulticurve);
+    multicurves.addAll(bumpedMulticurves);
+    DoubleArray pv = presentValues(product, pricers, multicurves);
+    return DoubleArray.of(pv.size() - 1, i -> (pv.get(i + 1) - pv.get(0)) / shift);
+  }
+
+}
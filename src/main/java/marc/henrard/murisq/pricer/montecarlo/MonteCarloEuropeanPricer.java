@@ -3,14 +3,24 @@
  */
 package marc.henrard.murisq.pricer.montecarlo;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 
+import com.opengamma.strata.collect.ArgChecker;
 import com.opengamma.strata.collect.array.DoubleArray;
 import com.opengamma.strata.collect.tuple.Triple;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
 import com.opengamma.strata.pricer.rate.RatesProvider;
 import com.opengamma.strata.product.ResolvedProduct;
 
+import marc.henrard.murisq.model.calibration.CalibrationParallelUtils;
 import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
@@ -100,11 +110,124 @@ public interface MonteCarloEuropeanPricer<P extends ResolvedProduct, M extends S
       ZonedDateTime expiry,
       int numberPaths);
   
+  /**
+   * Evolves the model up to the expiry date/time using a given random number generator.
+   * <p>
+   * Used in the parallel implementation, where each block of paths has its own generator.
+   * <p>
+   * The default implementation throws an {@link UnsupportedOperationException}; the pricers supporting the
+   * parallel implementations and the external random number streams override it. The generator cannot be
+   * ignored, the generator of the pricer being neither thread-safe nor the one expected by the caller.
+   * 
+   * @param initialValues  the initial values for the multi-curve equivalent
+   * @param expiry  the option expiry date/time
+   * @param numberPaths  the number of paths to use in the Monte Carlo
+   * @param numberGenerator  the random number generator
+   * @return the evolved quantities, one element for each path
+   */
+  default List<MulticurveEquivalentValues> evolve(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    throw new UnsupportedOperationException("evolution with an external random number generator not supported");
+  }
+  
+  /**
+   * Evolves the model up to the expiry date/time and returns the evolved quantities in a path buffer.
+   * <p>
+   * The default implementation stores the results of {@link #evolve(MulticurveEquivalentValues, ZonedDateTime, int)}
+   * in a buffer. Implementations should override it to generate the buffer directly.
+   * 
+   * @param initialValues  the initial values for the multi-curve equivalent
+   * @param expiry  the option expiry date/time
+   * @param numberPaths  the number of paths to use in the Monte Carlo
+   * @return the evolved quantities, dimensions: periods x paths
+   */
+  default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths) {
+
+    return MonteCarloPathBuffer.ofValues(evolve(initialValues, expiry, numberPaths));
+  }
+  
+  /**
+   * Evolves the model up to the expiry date/time using a given random number generator and returns 
+   * the evolved quantities in a path buffer.
+   * <p>
+   * The default implementation stores the results of 
+   * {@link #evolve(MulticurveEquivalentValues, ZonedDateTime, int, RandomNumberGenerator)}
+   * in a buffer. Implementations should override it to generate the buffer directly.
+   * 
+   * @param initialValues  the initial values for the multi-curve equivalent
+   * @param expiry  the option expiry date/time
+   * @param numberPaths  the number of paths to use in the Monte Carlo
+   * @param numberGenerator  the random number generator
+   * @return the evolved quantities, dimensions: periods x paths
+   */
+  default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return MonteCarloPathBuffer.ofValues(evolve(initialValues, expiry, numberPaths, numberGenerator));
+  }
+  
+  /**
+   * Returns the evolution of the paths up to the expiry date/time for the blocks of a pricing call.
+   * <p>
+   * The function returned evolves the number of paths in argument with the random number generator of the pricer.
+   * It is created once for each pricing call and used for all the blocks of the call; it can keep the model
+   * dependent quantities and scratch buffers from one block to the next. It is used by one thread only.
+   * <p>
+   * The default implementation calls {@link #evolvePaths(MulticurveEquivalentValues, ZonedDateTime, int)}
+   * for each block.
+   * 
+   * @param initialValues  the initial values for the multi-curve equivalent
+   * @param expiry  the option expiry date/time
+   * @return the evolution, from the number of paths of a block to the evolved quantities of the block
+   */
+  default IntFunction<MonteCarloPathBuffer> pathEvolution(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry) {
+
+    return numberPaths -> evolvePaths(initialValues, expiry, numberPaths);
+  }
+  
+  /**
+   * Returns the evolution of the paths up to the expiry date/time for the blocks of a pricing call using a given
+   * random number generator.
+   * <p>
+   * The function returned is used by one thread only, see {@link #pathEvolution(MulticurveEquivalentValues, 
+   * ZonedDateTime)}. In the parallel implementations, one evolution is created for each block of paths.
+   * <p>
+   * The default implementation calls 
+   * {@link #evolvePaths(MulticurveEquivalentValues, ZonedDateTime, int, RandomNumberGenerator)} for each block.
+   * 
+   * @param initialValues  the initial values for the multi-curve equivalent
+   * @param expiry  the option expiry date/time
+   * @param numberGenerator  the random number generator
+   * @return the evolution, from the number of paths of a block to the evolved quantities of the block
+   */
+  default IntFunction<MonteCarloPathBuffer> pathEvolution(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      RandomNumberGenerator numberGenerator) {
+
+    return numberPaths -> evolvePaths(initialValues, expiry, numberPaths, numberGenerator);
+  }
+  
   /**
    * Aggregate different quantity simulated into a value for each path.
    * <P>
    * The aggregation consists in applying the product specific quantities to the model quantities 
    * and multiplying by the numeraire. The starting numeraire is not applied to the results.
+   * <p>
+   * The two aggregation methods have default implementations delegating to each other; implementations must
+   * override at least one of them. The default implementation of this one uses the path buffer version.
    * 
    * @param product  the financial product; in some cases some information are not available in the MulticurveEquivalent
    * @param me  the multi-curve equivalent
@@ -112,10 +235,35 @@ public interface MonteCarloEuropeanPricer<P extends ResolvedProduct, M extends S
    * @param model  the interest rate model
    * @return the aggregated value
    */
-  abstract DoubleArray aggregation(
+  default DoubleArray aggregation(
+      P product,
+      MulticurveEquivalent me,
+      List<MulticurveEquivalentValues> valuesExpiry) {
+    
+    return aggregation(product, me, MonteCarloPathBuffer.ofValues(valuesExpiry));
+  }
+  
+  /**
+   * Aggregate different quantity simulated and stored in a path buffer into a value for each path.
+   * <P>
+   * The aggregation consists in applying the product specific quantities to the model quantities 
+   * and multiplying by the numeraire. The starting numeraire is not applied to the results.
+   * <p>
+   * The default implementation converts the buffer to values and uses the list version, which is the one
+   * implemented by the pricers written before the path buffers. The pricers should override this version.
+   * 
+   * @param product  the financial product; in some cases some information are not available in the MulticurveEquivalent
+   * @param me  the multi-curve equivalent
+   * @param valuesExpiry  the values at expiry for the model quantities, dimensions: periods x paths
+   * @return the aggregated value
+   */
+  default DoubleArray aggregation(
       P product,
       MulticurveEquivalent me,
-      List<MulticurveEquivalentValues> valuesExpiry);
+      MonteCarloPathBuffer valuesExpiry) {
+
+    return aggregation(product, me, valuesExpiry.toValues());
+  }
   
   /**
    * Present value as a double.
@@ -132,15 +280,14 @@ public interface MonteCarloEuropeanPricer<P extends ResolvedProduct, M extends S
     MulticurveEquivalent mce = multicurveEquivalent(product);
     MulticurveEquivalentValues initialValues = initialValues(mce, multicurve);
     Triple<Integer, Integer, Integer> decomposition = decomposition(); // fullblocks, path block, residual
+    IntFunction<MonteCarloPathBuffer> evolution = pathEvolution(initialValues, mce.getDecisionTime());
     double pv = 0.0;
     for (int loopblock = 0; loopblock < decomposition.getFirst(); loopblock++) {
-      List<MulticurveEquivalentValues> valuesExpiry =
-          evolve(initialValues, mce.getDecisionTime(), decomposition.getSecond());
+      MonteCarloPathBuffer valuesExpiry = evolution.apply(decomposition.getSecond());
       pv += aggregation(product, mce, valuesExpiry).sum();
     }
     if (decomposition.getThird() > 0) { // Residual number of path if non zero.
-      List<MulticurveEquivalentValues> valuesExpiryResidual =
-          evolve(initialValues, mce.getDecisionTime(), decomposition.getThird());
+      MonteCarloPathBuffer valuesExpiryResidual = evolution.apply(decomposition.getThird());
       pv += aggregation(product, mce, valuesExpiryResidual).sum();
     }
     double initialNumeraireValue = numeraireInitialValue(multicurve);
@@ -148,4 +295,229 @@ public interface MonteCarloEuropeanPricer<P extends ResolvedProduct, M extends S
     return pv;
   }
   
+  /**
+   * Present value as a double with the blocks of paths computed in parallel in the common fork-join pool.
+   * 
+   * @param product  the financial product to price
+   * @param multicurve  the underlying multi-curve framework
+   * @param streams  the random number streams, one for each block
+   * @return the present value
+   */
+  default double presentValueDoubleParallel(
+      P product,
+      RatesProvider multicurve,
+      MonteCarloRandomStreams streams) {
+
+    return presentValueDoubleParallel(product, multicurve, streams, ForkJoinPool.commonPool());
+  }
+  
+  /**
+   * Present value as a double with the blocks of paths computed in parallel.
+   * <p>
+   * Each block uses its own random number generator provided by the streams for the block index. 
+   * The full blocks have indices 0 to (number of full blocks - 1) and the residual block, if any, has the next index.
+   * The block values are summed in the block order once all blocks are computed. The result is thus identical
+   * whatever the number of threads of the pool.
+   * <p>
+   * The random number generator of the pricer is not used.
+   * 
+   * @param product  the financial product to price
+   * @param multicurve  the underlying multi-curve framework
+   * @param streams  the random number streams, one for each block
+   * @param pool  the fork-join pool on which the blocks are computed
+   * @return the present value
+   */
+  default double presentValueDoubleParallel(
+      P product,
+      RatesProvider multicurve,
+      MonteCarloRandomStreams streams,
+      ForkJoinPool pool) {
+
+    return presentValueDoubleParallel(product, multicurve, streams::blockGenerator, pool);
+  }
+
+  /**
+   * Present value as a double with the blocks of paths computed in parallel and the block generators provided.
+   * <p>
+   * The block generators are provided by a function of the block index. The full blocks have indices 0 to
+   * (number of full blocks - 1) and the residual block, if any, has the next index. The function is called once
+   * for each block and each generator is used by one thread only. The block values are summed in the block order
+   * once all blocks are computed.
+   * <p>
+   * This is the version used to replay stored random numbers, see {@link MonteCarloStoredRandomNumbers}.
+   * The random number generator of the pricer is not used.
+   * 
+   * @param product  the financial product to price
+   * @param multicurve  the underlying multi-curve framework
+   * @param blockGenerators  the random number generator for each block index
+   * @param pool  the fork-join pool on which the blocks are computed
+   * @return the present value
+   */
+  default double presentValueDoubleParallel(
+      P product,
+      RatesProvider multicurve,
+      IntFunction<RandomNumberGenerator> blockGenerators,
+      ForkJoinPool pool) {
+
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    MulticurveEquivalentValues initialValues = initialValues(mce, multicurve);
+    Triple<Integer, Integer, Integer> decomposition = decomposition(); // fullblocks, path block, residual
+    int nbFullBlocks = decomposition.getFirst();
+    int nbBlocks = nbFullBlocks + (decomposition.getThird() > 0 ? 1 : 0);
+    List<Callable<Double>> tasks = new ArrayList<>();
+    for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
+      int blockIndex = loopblock;
+      int nbPathsBlock = (loopblock < nbFullBlocks) ? decomposition.getSecond() : decomposition.getThird();
+      tasks.add(() -> {
+        MonteCarloPathBuffer valuesExpiry = pathEvolution(
+            initialValues, mce.getDecisionTime(), blockGenerators.apply(blockIndex)).apply(nbPathsBlock);
+        return aggregation(product, mce, valuesExpiry).sum();
+      });
+    }
+    double pv = 0.0;
+    try {
+      List<Future<Double>> blockValues = pool.invokeAll(tasks);
+      for (Future<Double> blockValue : blockValues) { // sum in block order
+        pv += blockValue.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw CalibrationParallelUtils.unchecked(e);
+    }
+    double initialNumeraireValue = numeraireInitialValue(multicurve);
+    pv = pv / getNbPaths() * initialNumeraireValue;
+    return pv;
+  }
+  
+  /**
+   * Present value with its standard error and the estimates on each block of paths.
+   * <p>
+   * The paths and the present value are the same as the ones of {@link #presentValueDouble}.
+   * 
+   * @param product  the financial product to price
+   * @param multicurve  the underlying multi-curve framework
+   * @return the Monte Carlo result
+   */
+  default MonteCarloResult presentValueResult(
+      P product,
+      RatesProvider multicurve) {
+
+    return presentValueResultAdaptive(product, multicurve, 0.0d, null);
+  }
+  
+  /**
+   * Present value with its standard error, computed with a number of paths adapted to a target.
+   * <p>
+   * Blocks of paths are added until the standard error is below the target standard error, the computation
+   * time exceeds the maximal duration or the number of paths of the pricer is reached. The standard error is
+   * checked only once at least two blocks have been computed. The number of paths of the pricer is 
+   * thus the maximal number of paths used.
+   * <p>
+   * The adaptive stopping is sequential only: the blocks are computed one after the other, the decision to stop
+   * depending on the blocks already computed. There is no parallel version.
+   * 
+   * @param product  the financial product to price
+   * @param multicurve  the underlying multi-curve framework
+   * @param targetStandardError  the target standard error of the present value
+   * @param maxDuration  the maximal computation time, null for no limit
+   * @return the Monte Carlo result
+   */
+  default MonteCarloResult presentValueResultAdaptive(
+      P product,
+      RatesProvider multicurve,
+      double targetStandardError,
+      Duration maxDuration) {
+
+    long start = System.nanoTime();
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    MulticurveEquivalentValues initialValues = initialValues(mce, multicurve);
+    double initialNumeraireValue = numeraireInitialValue(multicurve);
+    IntFunction<MonteCarloPathBuffer> evolution = pathEvolution(initialValues, mce.getDecisionTime());
+    MonteCarloResultAccumulator accumulator = new MonteCarloResultAccumulator();
+    while (accumulator.getNbPaths() < getNbPaths()) {
+      int nbPathsBlock = Math.min(getPathNumberBlock(), getNbPaths() - accumulator.getNbPaths());
+      MonteCarloPathBuffer valuesExpiry = evolution.apply(nbPathsBlock);
+      accumulator.addBlock(aggregation(product, mce, valuesExpiry).toArrayUnsafe());
+      if (accumulator.getBlocksCount() >= 2 &&
+          accumulator.standardError(initialNumeraireValue) < targetStandardError) {
+        break;
+      }
+      if (maxDuration != null && System.nanoTime() - start >= maxDuration.toNanos()) {
+        break;
+      }
+    }
+    return accumulator.result(initialNumeraireValue);
+  }
+  
+  /**
+   * Present value as a double with a control variate.
+   * <p>
+   * The control is another product priced on the same paths by a control pricer. Its present value, 
+   * provided by an independent (typically explicit) method, is used to correct the Monte Carlo estimate. 
+   * The coefficient of the control variate is the one minimizing the variance, estimated on the same paths:
+   * beta = Cov(X, Y) / Var(Y) where X and Y are the numeraire rebased values of the product and of the control.
+   * The estimate is then mean(X) - beta * (mean(Y) - control present value / initial numeraire).
+   * <p>
+   * The control pricer must use the same model as this pricer and the control must have the same decision
+   * date/time as the product. Only the aggregation of the control pricer is used, the paths are the ones of
+   * this pricer.
+   * <p>
+   * When the control value is an approximation, the estimate is biased by beta times the error of the 
+   * approximation.
+   * 
+   * @param <C>  the type of the control product
+   * @param product  the financial product to price
+   * @param multicurve  the underlying multi-curve framework
+   * @param controlPricer  the pricer used for the aggregation of the control
+   * @param control  the control product
+   * @param controlPresentValue  the present value of the control
+   * @return the present value
+   */
+  default <C extends ResolvedProduct> double presentValueDoubleControlVariate(
+      P product,
+      RatesProvider multicurve,
+      MonteCarloEuropeanPricer<C, M> controlPricer,
+      C control,
+      double controlPresentValue) {
+
+    ArgChecker.isTrue(controlPricer.getModel().equals(getModel()), 
+        "control pricer must use the same model as the pricer");
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    MulticurveEquivalent mceControl = controlPricer.multicurveEquivalent(control);
+    ArgChecker.isTrue(mceControl.getDecisionTime().equals(mce.getDecisionTime()),
+        "control must have the same decision time as the product");
+    MulticurveEquivalentValues initialValues = initialValues(mce, multicurve);
+    Triple<Integer, Integer, Integer> decomposition = decomposition(); // fullblocks, path block, residual
+    int nbFullBlocks = decomposition.getFirst();
+    int nbBlocks = nbFullBlocks + (decomposition.getThird() > 0 ? 1 : 0);
+    // Running means and centered co-moments (Welford updates), avoiding the cancellation of the raw moments
+    int nbPathsDone = 0;
+    double meanX = 0.0;
+    double meanY = 0.0;
+    double comomentXY = 0.0;
+    double momentYY = 0.0;
+    IntFunction<MonteCarloPathBuffer> evolution = pathEvolution(initialValues, mce.getDecisionTime());
+    for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
+      int nbPathsBlock = (loopblock < nbFullBlocks) ? decomposition.getSecond() : decomposition.getThird();
+      MonteCarloPathBuffer valuesExpiry = evolution.apply(nbPathsBlock);
+      double[] x = aggregation(product, mce, valuesExpiry).toArrayUnsafe();
+      double[] y = controlPricer.aggregation(control, mceControl, valuesExpiry).toArrayUnsafe();
+      for (int looppath = 0; looppath < nbPathsBlock; looppath++) {
+        nbPathsDone++;
+        double deviationX = x[looppath] - meanX;
+        double deviationY = y[looppath] - meanY;
+        meanX += deviationX / nbPathsDone;
+        meanY += deviationY / nbPathsDone;
+        double deviationYUpdated = y[looppath] - meanY;
+        comomentXY += deviationX * deviationYUpdated;
+        momentYY += deviationY * deviationYUpdated;
+      }
+    }
+    double beta = (momentYY > 0.0) ? comomentXY / momentYY : 0.0d;
+    double initialNumeraireValue = numeraireInitialValue(multicurve);
+    return (meanX - beta * (meanY - controlPresentValue / initialNumeraireValue)) * initialNumeraireValue;
+  }
+  
 }
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import com.opengamma.strata.collect.ArgChecker;
+
+/**
+ * Least-squares regression of Monte Carlo path values on basis functions, as used in the Longstaff-Schwartz
+ * algorithm for early exercise.
+ * <p>
+ * The basis functions values are stored by function, with the values for the different paths contiguous, in
+ * the same structure as the path buffers. No object is created for each path.
+ * <p>
+ * The regression is computed by a QR decomposition of the design matrix with the modified Gram-Schmidt
+ * algorithm, which avoids the squaring of the condition number of the normal equations. The basis
+ * functions which are numerically linearly dependent on the previous ones receive a coefficient 0.
+ * <p>
+ * Reference: Longstaff, F. A. and Schwartz, E. S. (2001). Valuing American options by simulation: a simple
+ * least-squares approach. The Review of Financial Studies, 14(1):113-147.
+ *
+ * @author Marc Henrard
+ */
+public final class MonteCarloLeastSquaresRegression {
+
+  /** The relative threshold below which a basis function is considered as linearly dependent. */
+  private static final double DEPENDENCE_THRESHOLD = 1.0E-10;
+
+  /**
+   * Computes the regression coefficients of the values on the basis functions.
+   * <p>
+   * Only the paths selected are used in the regression. If the selection is null, all the paths are used.
+   *
+   * @param basis  the basis functions values, dimensions: functions x paths
+   * @param values  the values to regress, dimension: paths
+   * @param selected  the flags indicating the paths used in the regression, dimension: paths; may be null
+   * @return the coefficients, dimension: functions
+   */
+  public static double[] regression(double[][] basis, double[] values, boolean[] selected) {
+    int nbFunctions = basis.length;
+    int nbPaths = values.length;
+    ArgChecker.isTrue(selected == null || selected.length == nbPaths, "selection must have one flag per path");
+    int nbSelected = 0;
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      if (selected == null || selected[looppath]) {
+        nbSelected++;
+      }
+    }
+    // Design matrix by columns, restricted to the selected paths
+    double[][] q = new double[nbFunctions][nbSelected];
+    double[] y = new double[nbSelected];
+    int loopsel = 0;
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      if (selected == null || selected[looppath]) {
+        for (int loopfn = 0; loopfn < nbFunctions; loopfn++) {
+          q[loopfn][loopsel] = basis[loopfn][looppath];
+        }
+        y[loopsel] = values[looppath];
+        loopsel++;
+      }
+    }
+    // Modified Gram-Schmidt: q is replaced by Q, r is the upper triangular matrix
+    double[][] r = new double[nbFunctions][nbFunctions];
+    boolean[] independent = new boolean[nbFunctions];
+    for (int loopfn = 0; loopfn < nbFunctions; loopfn++) {
+      double[] qj = q[loopfn];
+      double normInitial = Math.sqrt(dot(qj, qj));
+      for (int looppr = 0; looppr < loopfn; looppr++) {
+        if (independent[looppr]) {
+          double rij = dot(q[looppr], qj);
+          r[looppr][loopfn] = rij;
+          axpy(-rij, q[looppr], qj);
+        }
+      }
+      double norm = Math.sqrt(dot(qj, qj));
+      if (norm > DEPENDENCE_THRESHOLD * normInitial && norm > 0.0d) {
+        independent[loopfn] = true;
+        r[loopfn][loopfn] = norm;
+        for (int looppath = 0; looppath < nbSelected; looppath++) {
+          qj[looppath] /= norm;
+        }
+      }
+    }
+    // R c = Q^T y, by back substitution
+    double[] coefficients = new double[nbFunctions];
+    for (int loopfn = nbFunctions - 1; loopfn >= 0; loopfn--) {
+      if (independent[loopfn]) {
+        double rhs = dot(q[loopfn], y);
+        for (int loopnx = loopfn + 1; loopnx < nbFunctions; loopnx++) {
+          rhs -= r[loopfn][loopnx] * coefficients[loopnx];
+        }
+        coefficients[loopfn] = rhs / r[loopfn][loopfn];
+      }
+    }
+    return coefficients;
+  }
+
+  /**
+   * Computes the value of the regression for one path.
+   *
+   * @param basis  the basis functions values, dimensions: functions x paths
+   * @param coefficients  the regression coefficients, dimension: functions
+   * @param path  the index of the path
+   * @return the value
+   */
+  public static double value(double[][] basis, double[] coefficients, int path) {
+    double value = 0.0d;
+    for (int loopfn = 0; loopfn < coefficients.length; loopfn++) {
+      value += coefficients[loopfn] * basis[loopfn][path];
+    }
+    return value;
+  }
+
+  // Scalar product
+  private static double dot(double[] x, double[] y) {
+    double result = 0.0d;
+    for (int i = 0; i < x.length; i++) {
+      result += x[i] * y[i];
+    }
+    return result;
+  }
+
+  // y = y + a x
+  private static void axpy(double a, double[] x, double[] y) {
+    for (int i = 0; i < x.length; i++) {
+      y[i] += a * x[i];
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  // restricted constructor
+  private MonteCarloLeastSquaresRegression() {
+  }
+
+}
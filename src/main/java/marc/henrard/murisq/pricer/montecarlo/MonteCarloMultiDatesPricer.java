@@ -3,6 +3,7 @@
  */
 package marc.henrard.murisq.pricer.montecarlo;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.List;
 
@@ -153,4 +154,69 @@ public interface MonteCarloMultiDatesPricer<P extends ResolvedProduct, M extends
     return pv;
   }
   
+  /**
+   * Present value with its standard error and the estimates on each block of paths.
+   * <p>
+   * The paths are the same as the ones of {@link #presentValueDouble}.
+   * 
+   * @param product  the financial product to price
+   * @param multicurve  the underlying multi-curve framework
+   * @return the Monte Carlo result
+   */
+  default MonteCarloResult presentValueResult(
+      P product,
+      RatesProvider multicurve) {
+
+    return presentValueResultAdaptive(product, multicurve, 0.0d, null);
+  }
+  
+  /**
+   * Present value with its standard error, computed with a number of paths adapted to a target.
+   * <p>
+   * Blocks of paths are added until the standard error is below the target standard error, the computation
+   * time exceeds the maximal duration or the number of paths of the pricer is reached. The standard error is
+   * checked only once at least two blocks have been computed. The number of paths of the pricer is 
+   * thus the maximal number of paths used.
+   * <p>
+   * The adaptive stopping is sequential only: the blocks are computed one after the other, the decision to stop
+   * depending on the blocks already computed. There is no parallel version.
+   * 
+   * @param product  the financial product to price
+   * @param multicurve  the underlying multi-curve framework
+   * @param targetStandardError  the target standard error of the present value
+   * @param maxDuration  the maximal computation time, null for no limit
+   * @return the Monte Carlo result
+   */
+  default MonteCarloResult presentValueResultAdaptive(
+      P product,
+      RatesProvider multicurve,
+      double targetStandardError,
+      Duration maxDuration) {
+
+    long start = System.nanoTime();
+    MulticurveEquivalentSchedule mce = multicurveEquivalent(product);
+    MulticurveEquivalentValues initialValues = initialValues(mce, multicurve);
+    double initialNumeraireValue = numeraireInitialValue(multicurve);
+    MonteCarloResultAccumulator accumulator = new MonteCarloResultAccumulator();
+    while (accumulator.getNbPaths() < getNbPaths()) {
+      int nbPathsBlock = Math.min(getPathNumberBlock(), getNbPaths() - accumulator.getNbPaths());
+      List<List<MulticurveEquivalentValues>> valuesExpiry =
+          evolve(initialValues, mce.getDecisionTimes(), nbPathsBlock);
+      double[][] aggregation = aggregation(mce, product, valuesExpiry, getModel());
+      double[] pathValues = new double[nbPathsBlock];
+      for (int looppath = 0; looppath < nbPathsBlock; looppath++) {
+        pathValues[looppath] = DoubleArray.ofUnsafe(aggregation[looppath]).sum();
+      }
+      accumulator.addBlock(pathValues);
+      if (accumulator.getBlocksCount() >= 2 &&
+          accumulator.standardError(initialNumeraireValue) < targetStandardError) {
+        break;
+      }
+      if (maxDuration != null && System.nanoTime() - start >= maxDuration.toNanos()) {
+        break;
+      }
+    }
+    return accumulator.result(initialNumeraireValue);
+  }
+  
 }
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+
+/**
+ * Buffer storing the simulated model quantities for a block of Monte Carlo paths.
+ * <p>
+ * The values are stored as a structure of arrays with dimensions: periods x paths. For a given period, 
+ * the values for the different paths are contiguous. The buffer replaces the list of 
+ * {@link MulticurveEquivalentValues}, one for each path, and avoids the creation of one object by path.
+ * <p>
+ * The buffers are mutable and not thread-safe; they are intended to be used by one block computation.
+ *
+ * @author Marc Henrard
+ */
+public interface MonteCarloPathBuffer {
+
+  /**
+   * Creates a buffer from a list of values, one for each path.
+   * <p>
+   * The overnight rates of the values are stored in the buffer, in a heap buffer. 
+   * This is the representation used for the forward rates in the Libor Market Model.
+   * 
+   * @param values  the values, one for each path
+   * @return the buffer
+   */
+  public static MonteCarloPathBuffer ofValues(List<MulticurveEquivalentValues> values) {
+    ArgChecker.isTrue(values.size() > 0, "at least one path required");
+    int nbPaths = values.size();
+    int nbPeriods = values.get(0).getOnRates().size();
+    double[][] buffer = new double[nbPeriods][nbPaths];
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      double[] valuePath = values.get(looppath).getOnRates().toArrayUnsafe();
+      for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+        buffer[loopperiod][looppath] = valuePath[loopperiod];
+      }
+    }
+    return MonteCarloPathBufferHeap.ofUnsafe(buffer);
+  }
+
+  /**
+   * Returns the number of periods, i.e. the number of values for each path.
+   * 
+   * @return the number of periods
+   */
+  public abstract int getPeriodsCount();
+
+  /**
+   * Returns the number of paths.
+   * 
+   * @return the number of paths
+   */
+  public abstract int getPathsCount();
+
+  /**
+   * Returns the value for a given period and path.
+   * 
+   * @param period  the period index
+   * @param path  the path index
+   * @return the value
+   */
+  public abstract double get(int period, int path);
+
+  /**
+   * Sets the value for a given period and path.
+   * 
+   * @param period  the period index
+   * @param path  the path index
+   * @param value  the value
+   */
+  public abstract void set(int period, int path, double value);
+
+  /**
+   * Copies the values of all paths for a given period into an array.
+   * 
+   * @param period  the period index
+   * @param destination  the array in which the values are copied, the length must be at least the number of paths
+   */
+  public default void getPeriod(int period, double[] destination) {
+    int nbPaths = getPathsCount();
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      destination[looppath] = get(period, looppath);
+    }
+  }
+
+  /**
+   * Sets the values of all paths for a given period from an array.
+   * 
+   * @param period  the period index
+   * @param source  the array from which the values are copied, the length must be at least the number of paths
+   */
+  public default void setPeriod(int period, double[] source) {
+    int nbPaths = getPathsCount();
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      set(period, looppath, source[looppath]);
+    }
+  }
+
+  /**
+   * Returns the values as a list of multi-curve equivalent values, one for each path.
+   * <p>
+   * The values are stored as overnight rates. This is the representation used by the previous implementations
+   * and creates one object by path.
+   * 
+   * @return the values
+   */
+  public default List<MulticurveEquivalentValues> toValues() {
+    int nbPaths = getPathsCount();
+    int nbPeriods = getPeriodsCount();
+    List<MulticurveEquivalentValues> values = new ArrayList<>(nbPaths);
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      double[] valuePath = new double[nbPeriods];
+      for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+        valuePath[loopperiod] = get(loopperiod, looppath);
+      }
+      values.add(MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(valuePath)).build());
+    }
+    return values;
+  }
+
+}
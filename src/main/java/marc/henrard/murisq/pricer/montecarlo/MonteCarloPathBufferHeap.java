@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import com.opengamma.strata.collect.ArgChecker;
+
+/**
+ * Monte Carlo path buffer stored on the heap in a two-dimensional array.
+ * <p>
+ * The array has dimensions periods x paths.
+ *
+ * @author Marc Henrard
+ */
+public final class MonteCarloPathBufferHeap
+    implements MonteCarloPathBuffer {
+
+  /** The values, dimensions: periods x paths. */
+  private final double[][] values;
+
+  /**
+   * Creates an empty buffer, i.e. filled with 0.
+   * 
+   * @param nbPeriods  the number of periods
+   * @param nbPaths  the number of paths
+   * @return the buffer
+   */
+  public static MonteCarloPathBufferHeap of(int nbPeriods, int nbPaths) {
+    ArgChecker.isTrue(nbPeriods > 0, "number of periods must be strictly positive");
+    ArgChecker.isTrue(nbPaths > 0, "number of paths must be strictly positive");
+    return new MonteCarloPathBufferHeap(new double[nbPeriods][nbPaths]);
+  }
+
+  /**
+   * Creates a buffer wrapping an existing array.
+   * <p>
+   * The array is not copied; changes to the array are reflected in the buffer and vice versa.
+   * 
+   * @param values  the values, dimensions: periods x paths, all periods with the same number of paths
+   * @return the buffer
+   */
+  public static MonteCarloPathBufferHeap ofUnsafe(double[][] values) {
+    ArgChecker.isTrue(values.length > 0, "number of periods must be strictly positive");
+    for (int loopperiod = 1; loopperiod < values.length; loopperiod++) {
+      ArgChecker.isTrue(values[loopperiod].length == values[0].length, 
+          "all periods must have the same number of paths");
+    }
+    return new MonteCarloPathBufferHeap(values);
+  }
+
+  // Private constructor
+  private MonteCarloPathBufferHeap(double[][] values) {
+    this.values = values;
+  }
+
+  /**
+   * Returns the underlying array, without copy.
+   * 
+   * @return the values, dimensions: periods x paths
+   */
+  public double[][] getValuesUnsafe() {
+    return values;
+  }
+
+  @Override
+  public int getPeriodsCount() {
+    return values.length;
+  }
+
+  @Override
+  public int getPathsCount() {
+    return values[0].length;
+  }
+
+  @Override
+  public double get(int period, int path) {
+    return values[period][path];
+  }
+
+  @Override
+  public void set(int period, int path, double value) {
+    values[period][path] = value;
+  }
+
+  @Override
+  public void getPeriod(int period, double[] destination) {
+    System.arraycopy(values[period], 0, destination, 0, values[period].length);
+  }
+
+  @Override
+  public void setPeriod(int period, double[] source) {
+    System.arraycopy(source, 0, values[period], 0, values[period].length);
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import com.opengamma.strata.collect.ArgChecker;
+
+/**
+ * Monte Carlo path buffer stored off-heap in a direct buffer.
+ * <p>
+ * The values are stored contiguously, period by period, i.e. the value for a period and a path is at the
+ * position period * nbPaths + path. The memory is released when the buffer is garbage collected.
+ * <p>
+ * The off-heap storage reduces the heap used by the buffers kept after their creation, e.g. during the aggregation
+ * of a block of paths. It does not reduce the heap used to compute the values: the producers of the buffer, like
+ * the LMM evolution, may compute the values in heap arrays before copying them into the buffer.
+ *
+ * @author Marc Henrard
+ */
+public final class MonteCarloPathBufferOffHeap
+    implements MonteCarloPathBuffer {
+
+  /** The number of periods. */
+  private final int nbPeriods;
+  /** The number of paths. */
+  private final int nbPaths;
+  /** The values, period by period. */
+  private final DoubleBuffer values;
+
+  /**
+   * Creates an empty buffer, i.e. filled with 0.
+   * 
+   * @param nbPeriods  the number of periods
+   * @param nbPaths  the number of paths
+   * @return the buffer
+   */
+  public static MonteCarloPathBufferOffHeap of(int nbPeriods, int nbPaths) {
+    ArgChecker.isTrue(nbPeriods > 0, "number of periods must be strictly positive");
+    ArgChecker.isTrue(nbPaths > 0, "number of paths must be strictly positive");
+    ArgChecker.isTrue((long) nbPeriods * nbPaths <= Integer.MAX_VALUE / Double.BYTES, 
+        "buffer too large, reduce the number of paths in a block");
+    return new MonteCarloPathBufferOffHeap(nbPeriods, nbPaths);
+  }
+
+  // Private constructor
+  private MonteCarloPathBufferOffHeap(int nbPeriods, int nbPaths) {
+    this.nbPeriods = nbPeriods;
+    this.nbPaths = nbPaths;
+    this.values = ByteBuffer.allocateDirect(nbPeriods * nbPaths * Double.BYTES)
+        .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+  }
+
+  @Override
+  public int getPeriodsCount() {
+    return nbPeriods;
+  }
+
+  @Override
+  public int getPathsCount() {
+    return nbPaths;
+  }
+
+  @Override
+  public double get(int period, int path) {
+    return values.get(period * nbPaths + path);
+  }
+
+  @Override
+  public void set(int period, int path, double value) {
+    values.put(period * nbPaths + path, value);
+  }
+
+  @Override
+  public void getPeriod(int period, double[] destination) {
+    DoubleBuffer view = values.duplicate();
+    view.position(period * nbPaths);
+    view.get(destination, 0, nbPaths);
+  }
+
+  @Override
+  public void setPeriod(int period, double[] source) {
+    DoubleBuffer view = values.duplicate();
+    view.position(period * nbPaths);
+    view.put(source, 0, nbPaths);
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+/**
+ * Deterministic random number streams for the blocks of a Monte Carlo simulation.
+ * <p>
+ * Each block receives its own standard normal generator. The seed of the block generator is derived
+ * from the base seed and the block index only, through a SplitMix64 mixing function. The numbers used by a
+ * given block are thus independent of the order in which the blocks are computed and of the number of threads
+ * used, which makes parallel simulations exactly reproducible.
+ * <p>
+ * The streams can be antithetic, in which case each block generator is an {@link AntitheticRandomNumberGenerator}.
+ *
+ * @author Marc Henrard
+ */
+public final class MonteCarloRandomStreams {
+
+  /** The increment of the SplitMix64 generator (golden ratio). */
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  /** The base seed. */
+  private final long seed;
+  /** Whether the block generators are antithetic. */
+  private final boolean antithetic;
+
+  /**
+   * Creates an instance of the streams.
+   *
+   * @param seed  the base seed
+   * @return the instance
+   */
+  public static MonteCarloRandomStreams of(long seed) {
+    return new MonteCarloRandomStreams(seed, false);
+  }
+
+  /**
+   * Creates an instance of the streams with antithetic block generators.
+   *
+   * @param seed  the base seed
+   * @return the instance
+   */
+  public static MonteCarloRandomStreams ofAntithetic(long seed) {
+    return new MonteCarloRandomStreams(seed, true);
+  }
+
+  /**
+   * Private constructor.
+   *
+   * @param seed  the base seed
+   * @param antithetic  whether the block generators are antithetic
+   */
+  private MonteCarloRandomStreams(long seed, boolean antithetic) {
+    this.seed = seed;
+    this.antithetic = antithetic;
+  }
+
+  /**
+   * Returns the base seed.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns whether the block generators are antithetic.
+   *
+   * @return the antithetic flag
+   */
+  public boolean isAntithetic() {
+    return antithetic;
+  }
+
+  /**
+   * Returns the seed of the generator associated to a block.
+   *
+   * @param blockIndex  the block index, positive or zero
+   * @return the block seed
+   */
+  public int blockSeed(int blockIndex) {
+    ArgChecker.isTrue(blockIndex >= 0, "block index must be positive or zero");
+    long z = seed + (blockIndex + 1L) * GOLDEN_GAMMA;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return (int) (z >>> 32);
+  }
+
+  /**
+   * Returns a new standard normal random number generator for a block.
+   * <p>
+   * A new generator is created at each call; two calls with the same block index return generators producing
+   * the same numbers.
+   *
+   * @param blockIndex  the block index, positive or zero
+   * @return the generator
+   */
+  public RandomNumberGenerator blockGenerator(int blockIndex) {
+    RandomNumberGenerator generator =
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(blockSeed(blockIndex)));
+    return antithetic ? AntitheticRandomNumberGenerator.of(generator) : generator;
+  }
+
+}
@@ -0,0 +1,594 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.joda.beans.Bean;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.ImmutableValidator;
+import org.joda.beans.gen.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.IntArray;
+import com.opengamma.strata.collect.tuple.Pair;
+import com.opengamma.strata.math.impl.statistics.distribution.NormalDistribution;
+import com.opengamma.strata.math.impl.statistics.distribution.ProbabilityDistribution;
+
+/**
+ * The result of a Monte Carlo present value computation.
+ * <p>
+ * The result contains the present value estimate, its standard error, the number of paths and the estimates 
+ * on each block of paths. The standard error is computed by batch means from the block estimates. When there is
+ * only one block, it is computed from the sample variance of the path values, supposing independent paths.
+ * <p>
+ * The batch means standard error only requires the blocks to be independent. It is valid for pseudo-random
+ * generators and for the {@link AntitheticRandomNumberGenerator}, the antithetic paths being in the same block.
+ * It is not valid for a quasi-random sequence like the {@link SobolNormalRandomNumberGenerator} shared between
+ * the blocks, the blocks being then dependent; the standard error is only indicative in that case.
+ *
+ * @author Marc Henrard
+ */
+@BeanDefinition(factoryName = "of")
+public final class MonteCarloResult
+    implements ImmutableBean, Serializable {
+
+  /** The standard normal distribution. */
+  private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+
+  /** The Monte Carlo estimate of the present value. */
+  @PropertyDefinition
+  private final double presentValue;
+  /** The standard error of the present value estimate. */
+  @PropertyDefinition
+  private final double standardError;
+  /** The number of paths used in the estimate. */
+  @PropertyDefinition
+  private final int nbPaths;
+  /** The present value estimates on each block of paths, in the block order. */
+  @PropertyDefinition(validate = "notNull")
+  private final DoubleArray blockPresentValues;
+  /** The number of paths in each block, in the block order. */
+  @PropertyDefinition(validate = "notNull")
+  private final IntArray blockPathsCounts;
+
+  @ImmutableValidator
+  private void validate() {
+    ArgChecker.isTrue(blockPresentValues.size() == blockPathsCounts.size(),
+        "blockPresentValues and blockPathsCounts must have the same size");
+    ArgChecker.isTrue(blockPathsCounts.sum() == nbPaths, "the number of paths in the blocks must be nbPaths");
+  }
+
+  /**
+   * Returns the number of blocks.
+   * 
+   * @return the number of blocks
+   */
+  public int getBlocksCount() {
+    return blockPresentValues.size();
+  }
+
+  /**
+   * Returns the symmetric confidence interval of the present value for a given confidence level.
+   * <p>
+   * The interval is based on the normal approximation of the estimate distribution.
+   * 
+   * @param confidenceLevel  the confidence level, in (0,1), e.g. 0.95
+   * @return the lower and upper bounds of the interval
+   */
+  public Pair<Double, Double> confidenceInterval(double confidenceLevel) {
+    ArgChecker.inRangeExclusive(confidenceLevel, 0.0d, 1.0d, "confidenceLevel");
+    double halfWidth = NORMAL.getInverseCDF(0.5d * (1.0d + confidenceLevel)) * standardError;
+    return Pair.of(presentValue - halfWidth, presentValue + halfWidth);
+  }
+
+  /**
+   * Returns the convergence trace, i.e. the present value estimate using the paths up to each block.
+   * <p>
+   * The last element of the trace is the present value.
+   * 
+   * @return the estimates, one for each block
+   */
+  public DoubleArray convergenceTrace() {
+    int nbBlocks = blockPresentValues.size();
+    double[] trace = new double[nbBlocks];
+    double sum = 0.0;
+    int nbPathsCumulative = 0;
+    for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
+      sum += blockPresentValues.get(loopblock) * blockPathsCounts.get(loopblock);
+      nbPathsCumulative += blockPathsCounts.get(loopblock);
+      trace[loopblock] = sum / nbPathsCumulative;
+    }
+    return DoubleArray.ofUnsafe(trace);
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code MonteCarloResult}.
+   * @return the meta-bean, not null
+   */
+  public static MonteCarloResult.Meta meta() {
+    return MonteCarloResult.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(MonteCarloResult.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Obtains an instance.
+   * @param presentValue  the value of the property
+   * @param standardError  the value of the property
+   * @param nbPaths  the value of the property
+   * @param blockPresentValues  the value of the property, not null
+   * @param blockPathsCounts  the value of the property, not null
+   * @return the instance
+   */
+  public static MonteCarloResult of(
+      double presentValue,
+      double standardError,
+      int nbPaths,
+      DoubleArray blockPresentValues,
+      IntArray blockPathsCounts) {
+    return new MonteCarloResult(
+      presentValue,
+      standardError,
+      nbPaths,
+      blockPresentValues,
+      blockPathsCounts);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static MonteCarloResult.Builder builder() {
+    return new MonteCarloResult.Builder();
+  }
+
+  private MonteCarloResult(
+      double presentValue,
+      double standardError,
+      int nbPaths,
+      DoubleArray blockPresentValues,
+      IntArray blockPathsCounts) {
+    JodaBeanUtils.notNull(blockPresentValues, "blockPresentValues");
+    JodaBeanUtils.notNull(blockPathsCounts, "blockPathsCounts");
+    this.presentValue = presentValue;
+    this.standardError = standardError;
+    this.nbPaths = nbPaths;
+    this.blockPresentValues = blockPresentValues;
+    this.blockPathsCounts = blockPathsCounts;
+    validate();
+  }
+
+  @Override
+  public MonteCarloResult.Meta metaBean() {
+    return MonteCarloResult.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the Monte Carlo estimate of the present value.
+   * @return the value of the property
+   */
+  public double getPresentValue() {
+    return presentValue;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the standard error of the present value estimate.
+   * @return the value of the property
+   */
+  public double getStandardError() {
+    return standardError;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths used in the estimate.
+   * @return the value of the property
+   */
+  public int getNbPaths() {
+    return nbPaths;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the present value estimates on each block of paths, in the block order.
+   * @return the value of the property, not null
+   */
+  public DoubleArray getBlockPresentValues() {
+    return blockPresentValues;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths in each block, in the block order.
+   * @return the value of the property, not null
+   */
+  public IntArray getBlockPathsCounts() {
+    return blockPathsCounts;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      MonteCarloResult other = (MonteCarloResult) obj;
+      return JodaBeanUtils.equal(presentValue, other.presentValue) &&
+          JodaBeanUtils.equal(standardError, other.standardError) &&
+          (nbPaths == other.nbPaths) &&
+          JodaBeanUtils.equal(blockPresentValues, other.blockPresentValues) &&
+          JodaBeanUtils.equal(blockPathsCounts, other.blockPathsCounts);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(presentValue);
+    hash = hash * 31 + JodaBeanUtils.hashCode(standardError);
+    hash = hash * 31 + JodaBeanUtils.hashCode(nbPaths);
+    hash = hash * 31 + JodaBeanUtils.hashCode(blockPresentValues);
+    hash = hash * 31 + JodaBeanUtils.hashCode(blockPathsCounts);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(192);
+    buf.append("MonteCarloResult{");
+    buf.append("presentValue").append('=').append(JodaBeanUtils.toString(presentValue)).append(',').append(' ');
+    buf.append("standardError").append('=').append(JodaBeanUtils.toString(standardError)).append(',').append(' ');
+    buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+    buf.append("blockPresentValues").append('=').append(JodaBeanUtils.toString(blockPresentValues)).append(',').append(' ');
+    buf.append("blockPathsCounts").append('=').append(JodaBeanUtils.toString(blockPathsCounts));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code MonteCarloResult}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code presentValue} property.
+     */
+    private final MetaProperty<Double> presentValue = DirectMetaProperty.ofImmutable(
+        this, "presentValue", MonteCarloResult.class, Double.TYPE);
+    /**
+     * The meta-property for the {@code standardError} property.
+     */
+    private final MetaProperty<Double> standardError = DirectMetaProperty.ofImmutable(
+        this, "standardError", MonteCarloResult.class, Double.TYPE);
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     */
+    private final MetaProperty<Integer> nbPaths = DirectMetaProperty.ofImmutable(
+        this, "nbPaths", MonteCarloResult.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code blockPresentValues} property.
+     */
+    private final MetaProperty<DoubleArray> blockPresentValues = DirectMetaProperty.ofImmutable(
+        this, "blockPresentValues", MonteCarloResult.class, DoubleArray.class);
+    /**
+     * The meta-property for the {@code blockPathsCounts} property.
+     */
+    private final MetaProperty<IntArray> blockPathsCounts = DirectMetaProperty.ofImmutable(
+        this, "blockPathsCounts", MonteCarloResult.class, IntArray.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "presentValue",
+        "standardError",
+        "nbPaths",
+        "blockPresentValues",
+        "blockPathsCounts");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 686253430:  // presentValue
+          return presentValue;
+        case -2016710325:  // standardError
+          return standardError;
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case 1626554928:  // blockPresentValues
+          return blockPresentValues;
+        case 1532652805:  // blockPathsCounts
+          return blockPathsCounts;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public MonteCarloResult.Builder builder() {
+      return new MonteCarloResult.Builder();
+    }
+
+    @Override
+    public Class<? extends MonteCarloResult> beanType() {
+      return MonteCarloResult.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code presentValue} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Double> presentValue() {
+      return presentValue;
+    }
+
+    /**
+     * The meta-property for the {@code standardError} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Double> standardError() {
+      return standardError;
+    }
+
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> nbPaths() {
+      return nbPaths;
+    }
+
+    /**
+     * The meta-property for the {@code blockPresentValues} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<DoubleArray> blockPresentValues() {
+      return blockPresentValues;
+    }
+
+    /**
+     * The meta-property for the {@code blockPathsCounts} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<IntArray> blockPathsCounts() {
+      return blockPathsCounts;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 686253430:  // presentValue
+          return ((MonteCarloResult) bean).getPresentValue();
+        case -2016710325:  // standardError
+          return ((MonteCarloResult) bean).getStandardError();
+        case 1723700122:  // nbPaths
+          return ((MonteCarloResult) bean).getNbPaths();
+        case 1626554928:  // blockPresentValues
+          return ((MonteCarloResult) bean).getBlockPresentValues();
+        case 1532652805:  // blockPathsCounts
+          return ((MonteCarloResult) bean).getBlockPathsCounts();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code MonteCarloResult}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<MonteCarloResult> {
+
+    private double presentValue;
+    private double standardError;
+    private int nbPaths;
+    private DoubleArray blockPresentValues;
+    private IntArray blockPathsCounts;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(MonteCarloResult beanToCopy) {
+      this.presentValue = beanToCopy.getPresentValue();
+      this.standardError = beanToCopy.getStandardError();
+      this.nbPaths = beanToCopy.getNbPaths();
+      this.blockPresentValues = beanToCopy.getBlockPresentValues();
+      this.blockPathsCounts = beanToCopy.getBlockPathsCounts();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 686253430:  // presentValue
+          return presentValue;
+        case -2016710325:  // standardError
+          return standardError;
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case 1626554928:  // blockPresentValues
+          return blockPresentValues;
+        case 1532652805:  // blockPathsCounts
+          return blockPathsCounts;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 686253430:  // presentValue
+          this.presentValue = (Double) newValue;
+          break;
+        case -2016710325:  // standardError
+          this.standardError = (Double) newValue;
+          break;
+        case 1723700122:  // nbPaths
+          this.nbPaths = (Integer) newValue;
+          break;
+        case 1626554928:  // blockPresentValues
+          this.blockPresentValues = (DoubleArray) newValue;
+          break;
+        case 1532652805:  // blockPathsCounts
+          this.blockPathsCounts = (IntArray) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public MonteCarloResult build() {
+      return new MonteCarloResult(
+          presentValue,
+          standardError,
+          nbPaths,
+          blockPresentValues,
+          blockPathsCounts);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the Monte Carlo estimate of the present value.
+     * @param presentValue  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder presentValue(double presentValue) {
+      this.presentValue = presentValue;
+      return this;
+    }
+
+    /**
+     * Sets the standard error of the present value estimate.
+     * @param standardError  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder standardError(double standardError) {
+      this.standardError = standardError;
+      return this;
+    }
+
+    /**
+     * Sets the number of paths used in the estimate.
+     * @param nbPaths  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder nbPaths(int nbPaths) {
+      this.nbPaths = nbPaths;
+      return this;
+    }
+
+    /**
+     * Sets the present value estimates on each block of paths, in the block order.
+     * @param blockPresentValues  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder blockPresentValues(DoubleArray blockPresentValues) {
+      JodaBeanUtils.notNull(blockPresentValues, "blockPresentValues");
+      this.blockPresentValues = blockPresentValues;
+      return this;
+    }
+
+    /**
+     * Sets the number of paths in each block, in the block order.
+     * @param blockPathsCounts  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder blockPathsCounts(IntArray blockPathsCounts) {
+      JodaBeanUtils.notNull(blockPathsCounts, "blockPathsCounts");
+      this.blockPathsCounts = blockPathsCounts;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(192);
+      buf.append("MonteCarloResult.Builder{");
+      buf.append("presentValue").append('=').append(JodaBeanUtils.toString(presentValue)).append(',').append(' ');
+      buf.append("standardError").append('=').append(JodaBeanUtils.toString(standardError)).append(',').append(' ');
+      buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+      buf.append("blockPresentValues").append('=').append(JodaBeanUtils.toString(blockPresentValues)).append(',').append(' ');
+      buf.append("blockPathsCounts").append('=').append(JodaBeanUtils.toString(blockPathsCounts));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
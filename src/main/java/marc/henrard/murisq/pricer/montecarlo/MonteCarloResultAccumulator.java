@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.IntArray;
+
+/**
+ * Accumulator of the numeraire rebased path values of a Monte Carlo simulation, block by block.
+ * <p>
+ * The accumulator is mutable and not thread-safe. It is used by the Monte Carlo pricers to produce
+ * a {@link MonteCarloResult}, including the pricers with a product specific path generation like the streaming
+ * pricers.
+ *
+ * @author Marc Henrard
+ */
+public final class MonteCarloResultAccumulator {
+
+  /** The sum of the path values. */
+  private double sum;
+  /** The number of paths. */
+  private int nbPaths;
+  /** The sum of the path values for each block. */
+  private final List<Double> blockSums = new ArrayList<>();
+  /** The number of paths for each block. */
+  private final List<Integer> blockPathsCounts = new ArrayList<>();
+  /** The running mean of the path values, used for the single block standard error. */
+  private double pathMean;
+  /** The running sum of the squared deviations of the path values from their mean (Welford updates). */
+  private double pathSquaredDeviations;
+
+  /**
+   * Adds the values of a block of paths.
+   *
+   * @param pathValues  the numeraire rebased values, one for each path
+   */
+  public void addBlock(double[] pathValues) {
+    double blockSum = 0.0;
+    for (int looppath = 0; looppath < pathValues.length; looppath++) {
+      blockSum += pathValues[looppath];
+      double deviation = pathValues[looppath] - pathMean;
+      pathMean += deviation / (nbPaths + looppath + 1);
+      pathSquaredDeviations += deviation * (pathValues[looppath] - pathMean);
+    }
+    sum += blockSum;
+    nbPaths += pathValues.length;
+    blockSums.add(blockSum);
+    blockPathsCounts.add(pathValues.length);
+  }
+
+  /**
+   * Returns the number of paths accumulated.
+   *
+   * @return the number of paths
+   */
+  public int getNbPaths() {
+    return nbPaths;
+  }
+
+  /**
+   * Returns the number of blocks accumulated.
+   *
+   * @return the number of blocks
+   */
+  public int getBlocksCount() {
+    return blockSums.size();
+  }
+
+  /**
+   * Returns the standard error of the present value estimate.
+   * <p>
+   * The standard error is computed by batch means: the blocks are the batches and the dispersion of the
+   * block estimates around the global estimate, weighted by the number of paths in each block, is used.
+   * The paths do not need to be independent inside a block, only the blocks need to be independent.
+   * <p>
+   * With a single block, the standard error is computed from the sample variance of the path values, which
+   * supposes independent paths; it is not valid for antithetic or quasi-random paths. The standard error is 
+   * infinite when less than two paths have been accumulated.
+   *
+   * @param initialNumeraireValue  the initial value of the numeraire
+   * @return the standard error
+   */
+  public double standardError(double initialNumeraireValue) {
+    int nbBlocks = blockSums.size();
+    if (nbBlocks < 2) {
+      if (nbPaths < 2) {
+        return Double.POSITIVE_INFINITY;
+      }
+      double variancePaths = pathSquaredDeviations / (nbPaths - 1);
+      return Math.sqrt(variancePaths / nbPaths) * Math.abs(initialNumeraireValue);
+    }
+    double mean = sum / nbPaths;
+    double variance = 0.0d;
+    for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
+      double blockDeviation = blockSums.get(loopblock) - mean * blockPathsCounts.get(loopblock);
+      variance += blockDeviation * blockDeviation;
+    }
+    variance *= (double) nbBlocks / (nbBlocks - 1) / ((double) nbPaths * nbPaths);
+    return Math.sqrt(variance) * Math.abs(initialNumeraireValue);
+  }
+
+  /**
+   * Returns the result.
+   *
+   * @param initialNumeraireValue  the initial value of the numeraire
+   * @return the result
+   */
+  public MonteCarloResult result(double initialNumeraireValue) {
+    int nbBlocks = blockSums.size();
+    double[] blockPv = new double[nbBlocks];
+    int[] blockCounts = new int[nbBlocks];
+    for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
+      blockCounts[loopblock] = blockPathsCounts.get(loopblock);
+      blockPv[loopblock] = blockSums.get(loopblock) / blockCounts[loopblock] * initialNumeraireValue;
+    }
+    return MonteCarloResult.of(
+        sum / nbPaths * initialNumeraireValue,
+        standardError(initialNumeraireValue),
+        nbPaths,
+        DoubleArray.ofUnsafe(blockPv),
+        IntArray.ofUnsafe(blockCounts));
+  }
+
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+/**
+ * Consumer of the simulated model quantities at each step of a multi-step Monte Carlo evolution.
+ * <p>
+ * The consumer is called once for each step, in increasing step order, with the model quantities for a block of 
+ * paths at the step. The array passed is the running state of the evolution: it is valid only during the call, 
+ * is modified by the following steps and should not be modified or stored by the consumer. The consumer keeps
+ * the path dependent information it requires, e.g. the previous coupon rate of a ratchet, in its own state.
+ * <p>
+ * This allows path dependent products to be priced with a memory independent of the number of steps.
+ *
+ * @author Marc Henrard
+ */
+@FunctionalInterface
+public interface MonteCarloStepConsumer {
+
+  /**
+   * Consumes the model quantities at one step.
+   * 
+   * @param stepIndex  the index of the step, starting at 0
+   * @param values  the model quantities at the step, dimensions: periods x paths, not to be modified
+   */
+  public void accept(int stepIndex, double[][] values);
+
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+/**
+ * Random numbers drawn once for all the blocks of a Monte Carlo simulation and replayed on demand.
+ * <p>
+ * The numbers are drawn at creation from the block generators of a {@link MonteCarloRandomStreams}. For each block,
+ * a given number of vectors with one number for each path of the block are drawn and stored. The
+ * generator returned by {@link #blockGenerator(int)} replays those vectors in the same order. A pricer using the
+ * replaying generators produces exactly the same paths as with the streams, as long as it does not request more
+ * vectors than stored. The number of vectors required by the pricers is usually provided by their
+ * {@code randomDimension} method.
+ * <p>
+ * The numbers are stored in a heap buffer or in a memory-mapped file. The memory-mapped version is
+ * intended for large simulations for which the numbers do not fit in the heap; the file is not deleted by this class.
+ * <p>
+ * Once created, the store is immutable. Each replaying generator has its own position and is not thread-safe, but
+ * different generators, for the same or different blocks, can be used in parallel.
+ *
+ * @author Marc Henrard
+ */
+public final class MonteCarloStoredRandomNumbers {
+
+  /** The number of bytes of a double. */
+  private static final int BYTES_DOUBLE = 8;
+
+  /** The number of vectors stored for each block. */
+  private final int nbVectors;
+  /** The number of paths in each block, the last block may be a residual block. */
+  private final int[] blockPaths;
+  /** The stored numbers, one buffer by block. */
+  private final List<DoubleBuffer> blockNumbers;
+
+  /**
+   * Draws and stores the random numbers in the heap.
+   * <p>
+   * The paths are split in blocks of the given size, with a residual block if required, in the same way as
+   * {@link MonteCarloEuropeanPricer#decomposition()}.
+   *
+   * @param streams  the random number streams
+   * @param nbVectors  the number of vectors by block, i.e. the random dimension
+   * @param nbPaths  the total number of paths
+   * @param pathNumberBlock  the number of paths in each full block
+   * @return the stored numbers
+   */
+  public static MonteCarloStoredRandomNumbers of(
+      MonteCarloRandomStreams streams,
+      int nbVectors,
+      int nbPaths,
+      int pathNumberBlock) {
+
+    int[] blockPaths = blockPaths(nbPaths, pathNumberBlock);
+    List<DoubleBuffer> blockNumbers = new ArrayList<>();
+    for (int loopblock = 0; loopblock < blockPaths.length; loopblock++) {
+      blockNumbers.add(DoubleBuffer.allocate(blockSize(nbVectors, blockPaths[loopblock])));
+    }
+    return new MonteCarloStoredRandomNumbers(streams, nbVectors, blockPaths, blockNumbers);
+  }
+
+  /**
+   * Draws and stores the random numbers in a memory-mapped file.
+   * <p>
+   * The file is created if it does not exist and truncated otherwise. Each block is mapped on its own region
+   * of the file and is thus limited to 2^31 bytes.
+   * <p>
+   * The channel is closed on return but the mappings stay valid. They are released only when the buffers are
+   * garbage collected; the file can usually not be deleted before that on Windows.
+   *
+   * @param streams  the random number streams
+   * @param nbVectors  the number of vectors by block, i.e. the random dimension
+   * @param nbPaths  the total number of paths
+   * @param pathNumberBlock  the number of paths in each full block
+   * @param file  the file in which the numbers are stored
+   * @return the stored numbers
+   */
+  public static MonteCarloStoredRandomNumbers ofMemoryMapped(
+      MonteCarloRandomStreams streams,
+      int nbVectors,
+      int nbPaths,
+      int pathNumberBlock,
+      Path file) {
+
+    ArgChecker.notNull(file, "file");
+    int[] blockPaths = blockPaths(nbPaths, pathNumberBlock);
+    List<DoubleBuffer> blockNumbers = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long position = 0;
+      for (int loopblock = 0; loopblock < blockPaths.length; loopblock++) {
+        long size = (long) blockSize(nbVectors, blockPaths[loopblock]) * BYTES_DOUBLE;
+        ArgChecker.isTrue(size <= Integer.MAX_VALUE, "block too large to be memory-mapped: {} bytes", size);
+        blockNumbers.add(channel.map(FileChannel.MapMode.READ_WRITE, position, size)
+            .order(ByteOrder.nativeOrder()).asDoubleBuffer());
+        position += size;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return new MonteCarloStoredRandomNumbers(streams, nbVectors, blockPaths, blockNumbers);
+  }
+
+  // Private constructor, draws the numbers
+  private MonteCarloStoredRandomNumbers(
+      MonteCarloRandomStreams streams,
+      int nbVectors,
+      int[] blockPaths,
+      List<DoubleBuffer> blockNumbers) {
+
+    ArgChecker.notNull(streams, "streams");
+    ArgChecker.isTrue(nbVectors > 0, "number of vectors must be strictly positive");
+    this.nbVectors = nbVectors;
+    this.blockPaths = blockPaths;
+    this.blockNumbers = blockNumbers;
+    for (int loopblock = 0; loopblock < blockPaths.length; loopblock++) {
+      RandomNumberGenerator generator = streams.blockGenerator(loopblock);
+      DoubleBuffer buffer = blockNumbers.get(loopblock);
+      for (int loopvector = 0; loopvector < nbVectors; loopvector++) {
+        buffer.put(generator.getVector(blockPaths[loopblock]));
+      }
+    }
+  }
+
+  // The number of paths in each block, with the residual block last
+  private static int[] blockPaths(int nbPaths, int pathNumberBlock) {
+    ArgChecker.isTrue(nbPaths > 0, "number of paths must be strictly positive");
+    ArgChecker.isTrue(pathNumberBlock > 0, "number of paths in a block must be strictly positive");
+    int nbFullBlocks = nbPaths / pathNumberBlock;
+    int residual = nbPaths - nbFullBlocks * pathNumberBlock;
+    int[] blockPaths = new int[nbFullBlocks + (residual > 0 ? 1 : 0)];
+    for (int loopblock = 0; loopblock < nbFullBlocks; loopblock++) {
+      blockPaths[loopblock] = pathNumberBlock;
+    }
+    if (residual > 0) {
+      blockPaths[nbFullBlocks] = residual;
+    }
+    return blockPaths;
+  }
+
+  // The number of doubles in a block
+  private static int blockSize(int nbVectors, int nbPathsBlock) {
+    long size = (long) nbVectors * nbPathsBlock;
+    ArgChecker.isTrue(size <= Integer.MAX_VALUE, "block too large: {} numbers", size);
+    return (int) size;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns the number of vectors stored for each block.
+   *
+   * @return the number of vectors
+   */
+  public int getNbVectors() {
+    return nbVectors;
+  }
+
+  /**
+   * Returns the number of blocks.
+   *
+   * @return the number of blocks
+   */
+  public int getNbBlocks() {
+    return blockPaths.length;
+  }
+
+  /**
+   * Returns the total number of paths.
+   *
+   * @return the number of paths
+   */
+  public int getNbPaths() {
+    int nbPaths = 0;
+    for (int loopblock = 0; loopblock < blockPaths.length; loopblock++) {
+      nbPaths += blockPaths[loopblock];
+    }
+    return nbPaths;
+  }
+
+  /**
+   * Returns the number of paths in a full block.
+   *
+   * @return the number of paths
+   */
+  public int getPathNumberBlock() {
+    return blockPaths[0];
+  }
+
+  /**
+   * Checks that a pricer uses the same decomposition in blocks as the one of the stored numbers.
+   *
+   * @param pricer  the pricer
+   */
+  public void checkDecomposition(MonteCarloEuropeanPricer<?, ?> pricer) {
+    ArgChecker.isTrue(pricer.getNbPaths() == getNbPaths(),
+        "pricer number of paths {} different from stored numbers {}", pricer.getNbPaths(), getNbPaths());
+    ArgChecker.isTrue(pricer.getPathNumberBlock() == getPathNumberBlock() || getNbBlocks() == 1,
+        "pricer block size {} different from stored numbers {}", pricer.getPathNumberBlock(), getPathNumberBlock());
+  }
+
+  /**
+   * Returns a new generator replaying the numbers stored for a block.
+   * <p>
+   * The generator returns the stored vectors in the order in which they have been drawn. The size of each
+   * requested vector must be the number of paths of the block.
+   *
+   * @param blockIndex  the block index
+   * @return the generator
+   */
+  public RandomNumberGenerator blockGenerator(int blockIndex) {
+    ArgChecker.inRange(blockIndex, 0, blockPaths.length, "blockIndex");
+    DoubleBuffer view = blockNumbers.get(blockIndex).duplicate();
+    view.rewind();
+    return new ReplayRandomNumberGenerator(view, blockPaths[blockIndex]);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Generator replaying the numbers of a buffer.
+   */
+  private static final class ReplayRandomNumberGenerator
+      implements RandomNumberGenerator {
+
+    /** The numbers, with the position on the next number to return. */
+    private final DoubleBuffer numbers;
+    /** The size of the vectors. */
+    private final int vectorSize;
+
+    ReplayRandomNumberGenerator(DoubleBuffer numbers, int vectorSize) {
+      this.numbers = numbers;
+      this.vectorSize = vectorSize;
+    }
+
+    @Override
+    public double[] getVector(int size) {
+      ArgChecker.isTrue(size == vectorSize, "stored vectors have size {}, not {}", vectorSize, size);
+      ArgChecker.isTrue(numbers.remaining() >= size, "stored random numbers exhausted");
+      double[] vector = new double[size];
+      numbers.get(vector);
+      return vector;
+    }
+
+    @Override
+    public List<double[]> getVectors(int arraySize, int listSize) {
+      List<double[]> vectors = new ArrayList<>(listSize);
+      for (int loopvector = 0; loopvector < listSize; loopvector++) {
+        vectors.add(getVector(arraySize));
+      }
+      return vectors;
+    }
+
+  }
+
+}
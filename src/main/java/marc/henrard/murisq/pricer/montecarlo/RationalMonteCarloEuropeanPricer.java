@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.ResolvedProduct;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.model.rationalmulticurve.RationalMonteCarloEvolution;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+
+/**
+ * Generic Monte Carlo pricer for European options in the one-factor and two-factor rational models.
+ * <p>
+ * The initial value of the numeraire is 1. The initial values are the coefficients of the numeraire rebased
+ * quantities affine in the model martingales and the evolved values are those quantities, 
+ * see {@link RationalMonteCarloEvolution}. The order of the quantities is described in 
+ * {@link RationalMonteCarloEvolution#coefficients}.
+ *
+ * @param <P> the type of product to be priced 
+ * @param <M> the rational model, one-factor or two-factor
+ * 
+ * @author Marc Henrard
+ */
+public interface RationalMonteCarloEuropeanPricer<P extends ResolvedProduct, M extends SingleCurrencyModelParameters>
+    extends MonteCarloEuropeanPricer<P, M> {
+
+  /**
+   * Returns the mechanism to compute the rational model evolution.
+   * 
+   * @return the evolution
+   */
+  abstract RationalMonteCarloEvolution getEvolution();
+
+  /**
+   * Returns the random number generator.
+   * 
+   * @return the random number generator
+   */
+  abstract RandomNumberGenerator getNumberGenerator();
+
+  @Override
+  default public int getNbFactors() {
+    return getEvolution().factorCount(getModel());
+  }
+
+  @Override
+  default public double numeraireInitialValue(RatesProvider multicurve) {
+    return 1.0d;
+  }
+
+  /**
+   * Returns the number of random dimensions used for each path to price a product.
+   * <p>
+   * This is the dimension required for quasi-random number generators like 
+   * {@link SobolNormalRandomNumberGenerator}.
+   * 
+   * @param product  the product
+   * @return the number of dimensions
+   */
+  default int randomDimension(P product) {
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    double[] stepTimes = new double[] {getModel().relativeTime(mce.getDecisionTime())};
+    return getEvolution().randomDimension(stepTimes, getModel());
+  }
+
+  @Override
+  default public MulticurveEquivalentValues initialValues(
+      MulticurveEquivalent mce,
+      RatesProvider multicurve) {
+
+    // The coefficients of the affine quantities are stored in ON equivalent values
+    double[] coefficients = getEvolution().coefficients(mce, multicurve, getModel());
+    return MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(coefficients)).build();
+  }
+
+  @Override
+  public default List<MulticurveEquivalentValues> evolve(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths) {
+
+    return getEvolution()
+        .evolveOneStep(expiry, initialValues, getModel(), getNumberGenerator(), numberPaths);
+  }
+
+  @Override
+  public default List<MulticurveEquivalentValues> evolve(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return getEvolution()
+        .evolveOneStep(expiry, initialValues, getModel(), numberGenerator, numberPaths);
+  }
+
+  @Override
+  public default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths) {
+
+    return getEvolution()
+        .evolveOneStepPaths(expiry, initialValues, getModel(), getNumberGenerator(), numberPaths);
+  }
+
+  @Override
+  public default MonteCarloPathBuffer evolvePaths(
+      MulticurveEquivalentValues initialValues,
+      ZonedDateTime expiry,
+      int numberPaths,
+      RandomNumberGenerator numberGenerator) {
+
+    return getEvolution()
+        .evolveOneStepPaths(expiry, initialValues, getModel(), numberGenerator, numberPaths);
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.ResolvedProduct;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.model.rationalmulticurve.RationalMonteCarloEvolution;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentSchedule;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+
+/**
+ * Generic Monte Carlo pricer for path dependent products in the one-factor and two-factor rational models.
+ * <p>
+ * The initial value of the numeraire is 1. The initial values are the coefficients of the numeraire rebased
+ * quantities affine in the model martingales and the evolved values are those quantities, 
+ * see {@link RationalMonteCarloEvolution}. The quantities of all the decision dates are concatenated in the 
+ * order of the schedules; for each schedule, the order is described in
+ * {@link RationalMonteCarloEvolution#coefficients}.
+ * All the quantities are evaluated at each decision date, only the ones related to that date are relevant.
+ *
+ * @param <P> the type of product to be priced 
+ * @param <M> the rational model, one-factor or two-factor
+ * 
+ * @author Marc Henrard
+ */
+public interface RationalMonteCarloMultiDatePricer<P extends ResolvedProduct, M extends SingleCurrencyModelParameters>
+    extends MonteCarloMultiDatesPricer<P, M> {
+
+  /**
+   * Returns the mechanism to compute the rational model evolution.
+   * 
+   * @return the evolution
+   */
+  abstract RationalMonteCarloEvolution getEvolution();
+
+  /**
+   * Returns the random number generator.
+   * 
+   * @return the random number generator
+   */
+  abstract RandomNumberGenerator getNumberGenerator();
+
+  @Override
+  default public int getNbFactors() {
+    return getEvolution().factorCount(getModel());
+  }
+
+  @Override
+  default public double numeraireInitialValue(RatesProvider multicurve) {
+    return 1.0d;
+  }
+
+  /**
+   * Returns the number of random dimensions used for each path to price a product.
+   * <p>
+   * This is the dimension required for quasi-random number generators like 
+   * {@link SobolNormalRandomNumberGenerator}.
+   * 
+   * @param product  the product
+   * @return the number of dimensions
+   */
+  default int randomDimension(P product) {
+    List<ZonedDateTime> decisionTimes = multicurveEquivalent(product).getDecisionTimes();
+    double[] stepTimes = new double[decisionTimes.size()];
+    for (int i = 0; i < decisionTimes.size(); i++) {
+      stepTimes[i] = getModel().relativeTime(decisionTimes.get(i));
+    }
+    return getEvolution().randomDimension(stepTimes, getModel());
+  }
+
+  @Override
+  default public MulticurveEquivalentValues initialValues(
+      MulticurveEquivalentSchedule mce,
+      RatesProvider multicurve) {
+
+    // The coefficients of the affine quantities are stored in ON equivalent values, schedules concatenated
+    DoubleArray coefficients = DoubleArray.EMPTY;
+    for (MulticurveEquivalent schedule : mce.getSchedules()) {
+      coefficients = coefficients.concat(getEvolution().coefficients(schedule, multicurve, getModel()));
+    }
+    return MulticurveEquivalentValues.builder().onRates(coefficients).build();
+  }
+
+  @Override
+  default public List<List<MulticurveEquivalentValues>> evolve(
+      MulticurveEquivalentValues initialValues,
+      List<ZonedDateTime> expiries,
+      int numberSample) {
+
+    return getEvolution()
+        .evolveMultiSteps(expiries, initialValues, getModel(), getNumberGenerator(), numberSample);
+  }
+
+  /**
+   * Evolves the model up to the expiry dates/times and passes the quantities at each expiry to a consumer.
+   * <p>
+   * The streaming version of {@link #evolve}, with the same random numbers; the memory used is independent of 
+   * the number of expiries.
+   * 
+   * @param initialValues  the initial values for the multi-curve equivalent
+   * @param expiries  the option expiry dates/times
+   * @param numberSample  the number of sample to use in the Monte Carlo
+   * @param consumer  the consumer of the quantities at each expiry, dimensions: quantities x paths
+   */
+  default void evolveStreaming(
+      MulticurveEquivalentValues initialValues,
+      List<ZonedDateTime> expiries,
+      int numberSample,
+      MonteCarloStepConsumer consumer) {
+
+    getEvolution().evolveMultiStepsStreaming(expiries, initialValues, getModel(),
+        getNumberGenerator(), numberSample, consumer);
+  }
+
+}
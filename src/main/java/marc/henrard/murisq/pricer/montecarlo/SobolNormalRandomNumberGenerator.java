@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.math.impl.statistics.distribution.NormalDistribution;
+import com.opengamma.strata.math.impl.statistics.distribution.ProbabilityDistribution;
+
+/**
+ * Standard normal quasi-random numbers generator based on a Sobol sequence.
+ * <p>
+ * The Monte Carlo path generators request the random numbers by vectors, one vector for each random dimension
+ * (e.g. for each factor and each jump) with one number for each path of the block. This generator provides, for
+ * a block of paths, the successive coordinates of the Sobol points associated to the paths: the k-th vector
+ * requested for a block contains the k-th coordinate of the next points of the sequence. The dimension of the
+ * sequence must be equal to the number of vectors requested for each block; a new block of points starts after
+ * that number of vectors.
+ * <p>
+ * The uniform numbers are transformed in normal numbers by the inverse cumulative distribution function.
+ * <p>
+ * The generator is mutable and not thread-safe.
+ *
+ * @author Marc Henrard
+ */
+public final class SobolNormalRandomNumberGenerator
+    implements RandomNumberGenerator {
+
+  /** The standard normal distribution. */
+  private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+
+  /** The underlying Sobol sequence. */
+  private final SobolSequenceGenerator sequence;
+  /** The normal numbers of the current block of points, dimensions: dimension x paths. */
+  private double[][] block;
+  /** The index of the next coordinate to be returned in the current block. */
+  private int coordinate;
+
+  /**
+   * Creates a generator without scrambling.
+   * 
+   * @param dimension  the dimension, i.e. the number of vectors requested for each block of paths
+   * @return the generator
+   */
+  public static SobolNormalRandomNumberGenerator of(int dimension) {
+    return new SobolNormalRandomNumberGenerator(SobolSequenceGenerator.of(dimension));
+  }
+
+  /**
+   * Creates a generator with a random digital shift scrambling.
+   * <p>
+   * Independent scrambles can be used to estimate the error of the quasi-Monte Carlo estimate.
+   * 
+   * @param dimension  the dimension, i.e. the number of vectors requested for each block of paths
+   * @param seed  the seed of the scrambling
+   * @return the generator
+   */
+  public static SobolNormalRandomNumberGenerator ofScrambled(int dimension, long seed) {
+    return new SobolNormalRandomNumberGenerator(SobolSequenceGenerator.ofScrambled(dimension, seed));
+  }
+
+  // Private constructor
+  private SobolNormalRandomNumberGenerator(SobolSequenceGenerator sequence) {
+    this.sequence = sequence;
+    this.coordinate = 0;
+  }
+
+  /**
+   * Returns the dimension of the underlying sequence.
+   * 
+   * @return the dimension
+   */
+  public int getDimension() {
+    return sequence.getDimension();
+  }
+
+  @Override
+  public double[] getVector(int size) {
+    int dimension = sequence.getDimension();
+    if (coordinate == 0) { // new block of points
+      block = new double[dimension][size];
+      double[] point = new double[dimension];
+      for (int looppath = 0; looppath < size; looppath++) {
+        sequence.nextPoint(point);
+        for (int loopdim = 0; loopdim < dimension; loopdim++) {
+          block[loopdim][looppath] = NORMAL.getInverseCDF(point[loopdim]);
+        }
+      }
+    }
+    ArgChecker.isTrue(block[coordinate].length == size,
+        "the size of the vectors must be the same for all the dimensions of a block");
+    double[] vector = block[coordinate];
+    coordinate = (coordinate + 1) % dimension;
+    return vector;
+  }
+
+  @Override
+  public List<double[]> getVectors(int arraySize, int listSize) {
+    List<double[]> vectors = new ArrayList<>(listSize);
+    for (int loopvector = 0; loopvector < listSize; loopvector++) {
+      vectors.add(getVector(arraySize));
+    }
+    return vectors;
+  }
+
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.opengamma.strata.collect.ArgChecker;
+
+/**
+ * Generator of Sobol low-discrepancy sequences in the unit hypercube.
+ * <p>
+ * The points are generated in Gray code order (Antonov-Saleev). The first point of the sequence (the origin)
+ * is skipped. The primitive polynomials are enumerated by increasing degree and, for a given degree, by increasing
+ * value of their coefficients, which is the order used by Joe and Kuo. The initial direction numbers for the first
+ * 21 dimensions are the ones of Joe and Kuo (new-joe-kuo-6.21201). For higher dimensions, the initial direction
+ * numbers are generated pseudo-randomly, with a seed depending only on the dimension; each one-dimensional
+ * projection is still a (0,1)-sequence in base 2.
+ * <p>
+ * The sequence can be scrambled by a random digital shift: each coordinate is XOR-ed with a random 32-bit number
+ * generated from the seed. The uniform numbers are the mid-points of the dyadic intervals with 32 bits, they
+ * are never 0 or 1.
+ * <p>
+ * The generator is mutable and not thread-safe.
+ * <p>
+ * References:
+ * Joe, S. and Kuo, F. Y. (2008). Constructing Sobol sequences with better two-dimensional projections.
+ * SIAM Journal on Scientific Computing, 30(5):2635-2654.
+ * Glasserman, P. (2004). Monte Carlo Methods in Financial Engineering. Springer, Section 5.2.3.
+ *
+ * @author Marc Henrard
+ */
+public final class SobolSequenceGenerator {
+
+  /** The number of bits of the direction numbers. */
+  private static final int NB_BITS = 32;
+  /** The scaling to obtain numbers in the unit interval, 2^-32. */
+  private static final double SCALE = 1.0d / (1L << NB_BITS);
+  /** The maximum number of points which can be generated. */
+  private static final long MAX_POINTS = (1L << NB_BITS) - 1;
+  /** The initial direction numbers m_k of Joe and Kuo, starting with the second dimension. */
+  private static final int[][] INITIAL_DIRECTION_NUMBERS = {
+      {1},
+      {1, 3},
+      {1, 3, 1},
+      {1, 1, 1},
+      {1, 1, 3, 3},
+      {1, 3, 5, 13},
+      {1, 1, 5, 5, 17},
+      {1, 1, 5, 5, 5},
+      {1, 1, 7, 11, 19},
+      {1, 1, 5, 1, 1},
+      {1, 1, 1, 3, 11},
+      {1, 3, 5, 5, 31},
+      {1, 3, 3, 9, 7, 49},
+      {1, 1, 1, 15, 21, 21},
+      {1, 3, 1, 13, 27, 49},
+      {1, 1, 1, 15, 7, 5},
+      {1, 3, 1, 15, 13, 25},
+      {1, 1, 5, 5, 19, 61},
+      {1, 3, 7, 11, 23, 15, 103},
+      {1, 3, 7, 13, 13, 15, 69}};
+
+  /** The dimension. */
+  private final int dimension;
+  /** The direction numbers, dimensions: dimension x bits. */
+  private final int[][] directionNumbers;
+  /** The digital shift for each dimension; 0 when not scrambled. */
+  private final int[] shift;
+  /** The current point, as integers. */
+  private final int[] current;
+  /** The index of the current point. */
+  private long index;
+
+  /**
+   * Creates a generator without scrambling.
+   *
+   * @param dimension  the dimension of the points
+   * @return the generator
+   */
+  public static SobolSequenceGenerator of(int dimension) {
+    return new SobolSequenceGenerator(dimension, new int[dimension]);
+  }
+
+  /**
+   * Creates a generator with a random digital shift scrambling.
+   *
+   * @param dimension  the dimension of the points
+   * @param seed  the seed of the random digital shift
+   * @return the generator
+   */
+  public static SobolSequenceGenerator ofScrambled(int dimension, long seed) {
+    Random random = new Random(seed);
+    int[] shift = new int[dimension];
+    for (int loopdim = 0; loopdim < dimension; loopdim++) {
+      shift[loopdim] = random.nextInt();
+    }
+    return new SobolSequenceGenerator(dimension, shift);
+  }
+
+  // Private constructor
+  private SobolSequenceGenerator(int dimension, int[] shift) {
+    ArgChecker.isTrue(dimension > 0, "dimension must be strictly positive");
+    this.dimension = dimension;
+    this.shift = shift;
+    this.current = new int[dimension];
+    this.directionNumbers = new int[dimension][NB_BITS];
+    for (int loopbit = 0; loopbit < NB_BITS; loopbit++) { // First dimension: van der Corput
+      directionNumbers[0][loopbit] = 1 << (NB_BITS - 1 - loopbit);
+    }
+    List<Integer> polynomials = primitivePolynomials(dimension - 1);
+    for (int loopdim = 1; loopdim < dimension; loopdim++) {
+      int polynomial = polynomials.get(loopdim - 1);
+      int degree = 31 - Integer.numberOfLeadingZeros(polynomial);
+      int[] m = initialDirectionNumbers(loopdim, degree);
+      int[] v = directionNumbers[loopdim];
+      for (int loopbit = 0; loopbit < Math.min(degree, NB_BITS); loopbit++) {
+        v[loopbit] = m[loopbit] << (NB_BITS - 1 - loopbit);
+      }
+      for (int loopbit = degree; loopbit < NB_BITS; loopbit++) {
+        v[loopbit] = v[loopbit - degree] ^ (v[loopbit - degree] >>> degree);
+        for (int loopcoef = 1; loopcoef < degree; loopcoef++) {
+          if (((polynomial >>> (degree - loopcoef)) & 1) == 1) {
+            v[loopbit] ^= v[loopbit - loopcoef];
+          }
+        }
+      }
+    }
+    this.index = 0;
+  }
+
+  /**
+   * Returns the dimension of the points.
+   *
+   * @return the dimension
+   */
+  public int getDimension() {
+    return dimension;
+  }
+
+  /**
+   * Returns the number of points generated up to now.
+   *
+   * @return the number of points
+   */
+  public long getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the next point of the sequence.
+   *
+   * @return the point, with coordinates in the open interval (0,1)
+   */
+  public double[] nextPoint() {
+    double[] point = new double[dimension];
+    nextPoint(point);
+    return point;
+  }
+
+  /**
+   * Computes the next point of the sequence into a given array.
+   *
+   * @param point  the array in which the point coordinates, in the open interval (0,1), are stored
+   */
+  public void nextPoint(double[] point) {
+    ArgChecker.isTrue(index < MAX_POINTS, "maximum number of points reached");
+    int c = Long.numberOfTrailingZeros(~index); // rightmost zero bit of the index
+    for (int loopdim = 0; loopdim < dimension; loopdim++) {
+      current[loopdim] ^= directionNumbers[loopdim][c];
+      point[loopdim] = (((current[loopdim] ^ shift[loopdim]) & 0xFFFFFFFFL) + 0.5d) * SCALE;
+    }
+    index++;
+  }
+
+  /**
+   * Skips a number of points in the sequence.
+   *
+   * @param nbPoints  the number of points to skip
+   */
+  public void skip(long nbPoints) {
+    ArgChecker.isTrue(nbPoints >= 0, "number of points to skip must be positive or zero");
+    ArgChecker.isTrue(index + nbPoints <= MAX_POINTS, "maximum number of points reached");
+    long target = index + nbPoints;
+    long gray = target ^ (target >>> 1); // the point with index n is the XOR of the direction numbers of Gray(n)
+    for (int loopdim = 0; loopdim < dimension; loopdim++) {
+      int x = 0;
+      for (int loopbit = 0; loopbit < NB_BITS; loopbit++) {
+        if (((gray >>> loopbit) & 1L) == 1L) {
+          x ^= directionNumbers[loopdim][loopbit];
+        }
+      }
+      current[loopdim] = x;
+    }
+    index = target;
+  }
+
+  //-------------------------------------------------------------------------
+  // The initial direction numbers, m_k, odd and below 2^k
+  private static int[] initialDirectionNumbers(int dimensionIndex, int degree) {
+    if (dimensionIndex - 1 < INITIAL_DIRECTION_NUMBERS.length) {
+      return INITIAL_DIRECTION_NUMBERS[dimensionIndex - 1];
+    }
+    Random random = new Random(dimensionIndex);
+    int[] m = new int[degree];
+    for (int loopbit = 0; loopbit < degree; loopbit++) {
+      m[loopbit] = (random.nextInt(1 << loopbit) << 1) | 1; // odd and below 2^(k+1)
+    }
+    return m;
+  }
+
+  /**
+   * Returns the first primitive polynomials over GF(2), excluding the polynomial x.
+   * <p>
+   * The polynomials are represented by the bits of an integer: bit i is the coefficient of x^i.
+   * They are ordered by increasing degree and, for a given degree, by increasing value.
+   *
+   * @param nbPolynomials  the number of polynomials
+   * @return the polynomials
+   */
+  static List<Integer> primitivePolynomials(int nbPolynomials) {
+    List<Integer> polynomials = new ArrayList<>();
+    int degree = 1;
+    while (polynomials.size() < nbPolynomials) {
+      ArgChecker.isTrue(degree < NB_BITS, "dimension too large");
+      for (int a = 0; a < (1 << (degree - 1)) && polynomials.size() < nbPolynomials; a++) {
+        int polynomial = (1 << degree) | (a << 1) | 1;
+        if (isPrimitive(polynomial, degree)) {
+          polynomials.add(polynomial);
+        }
+      }
+      degree++;
+    }
+    return polynomials;
+  }
+
+  // Primitivity: the order of x modulo the polynomial is 2^degree - 1
+  private static boolean isPrimitive(int polynomial, int degree) {
+    long order = (1L << degree) - 1;
+    if (powerMod(order, polynomial, degree) != 1) {
+      return false;
+    }
+    long remaining = order;
+    for (long factor = 2; factor * factor <= remaining; factor++) {
+      if (remaining % factor == 0) {
+        if (powerMod(order / factor, polynomial, degree) == 1) {
+          return false;
+        }
+        while (remaining % factor == 0) {
+          remaining /= factor;
+        }
+      }
+    }
+    if (remaining > 1 && remaining < order) {
+      return powerMod(order / remaining, polynomial, degree) != 1;
+    }
+    return true;
+  }
+
+  // x^exponent modulo the polynomial, in GF(2)[x]
+  private static long powerMod(long exponent, int polynomial, int degree) {
+    long result = 1;
+    long base = (degree == 1) ? 1 : 2; // x modulo the polynomial; the only polynomial of degree 1 is x+1
+    long e = exponent;
+    while (e > 0) {
+      if ((e & 1L) == 1L) {
+        result = multiplyMod(result, base, polynomial, degree);
+      }
+      base = multiplyMod(base, base, polynomial, degree);
+      e >>>= 1;
+    }
+    return result;
+  }
+
+  // Product modulo the polynomial, in GF(2)[x]
+  private static long multiplyMod(long a, long b, int polynomial, int degree) {
+    long result = 0;
+    long aShift = a;
+    for (int loopbit = 0; loopbit < degree; loopbit++) {
+      if (((b >>> loopbit) & 1L) == 1L) {
+        result ^= aShift;
+      }
+      aShift <<= 1;
+      if (((aShift >>> degree) & 1L) == 1L) {
+        aShift ^= polynomial;
+      }
+    }
+    return result;
+  }
+
+}
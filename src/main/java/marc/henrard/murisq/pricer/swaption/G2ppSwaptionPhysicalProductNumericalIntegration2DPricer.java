@@ -21,6 +21,7 @@ import com.opengamma.strata.product.swaption.ResolvedSwaption;
 import marc.henrard.murisq.model.g2pp.G2ppPiecewiseConstantFormulas;
 import marc.henrard.murisq.model.g2pp.G2ppPiecewiseConstantParameters;
 import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.pricer.generic.CorrelatedGaussHermiteIntegrator2D;
 import marc.henrard.murisq.pricer.swap.CashFlowEquivalentCalculator;
 import marc.henrard.murisq.pricer.swap.CashFlowEquivalentUtils;
 
@@ -30,7 +31,11 @@ import marc.henrard.murisq.pricer.swap.CashFlowEquivalentUtils;
  * <p>
  * Based on cash flow equivalent, works for LIBOR and OIS swaptions.
  * <p>
- * Pricing by numerical integration.
+ * Pricing by numerical integration. By default, the integration uses an adaptive Runge-Kutta integration on
+ * a truncated domain in both dimensions. The pricer with a Gauss-Hermite quadrature in the first dimension and
+ * an explicit formula in the second dimension, see {@link CorrelatedGaussHermiteIntegrator2D}, is also available
+ * through {@link #ofGaussHermite(int)}.
+ * <p>
  * Implementation reference:
  * Henrard, M. G2++, muRisQ Model description, September 2020.
  * 
@@ -54,21 +59,47 @@ public class G2ppSwaptionPhysicalProductNumericalIntegration2DPricer
   private static final G2ppPiecewiseConstantFormulas FORMULAS_G2PP = G2ppPiecewiseConstantFormulas.DEFAULT;
   
   /**
-   * Minimal number of integration steps in the integration.
+   * Minimal number of integration steps in the integration. Used only if the quadrature is not present.
    */
   private final int nbSteps;
+  /**
+   * The Gauss-Hermite quadrature. Null if the Runge-Kutta integration is used.
+   */
+  private final CorrelatedGaussHermiteIntegrator2D quadrature;
   
   /**
-  * Default implementation.
+  * Default implementation, with Runge-Kutta integration.
   */
   public static final G2ppSwaptionPhysicalProductNumericalIntegration2DPricer DEFAULT =
       new G2ppSwaptionPhysicalProductNumericalIntegration2DPricer(NB_INTEGRATION_DEFAULT);
 
   /**
-  * Creates an instance.
+   * Creates an instance using the Gauss-Hermite quadrature of a given order.
+   * 
+   * @param order  the quadrature order
+   * @return the pricer
+   */
+  public static G2ppSwaptionPhysicalProductNumericalIntegration2DPricer ofGaussHermite(int order) {
+    return new G2ppSwaptionPhysicalProductNumericalIntegration2DPricer(
+        NB_INTEGRATION_DEFAULT, CorrelatedGaussHermiteIntegrator2D.of(order));
+  }
+
+  /**
+  * Creates an instance using the Runge-Kutta integration.
+  * 
+  * @param nbSteps  the minimal number of integration steps
   */
   public G2ppSwaptionPhysicalProductNumericalIntegration2DPricer(int nbSteps) {
+    this(nbSteps, null);
+  }
+
+  // Private constructor
+  private G2ppSwaptionPhysicalProductNumericalIntegration2DPricer(
+      int nbSteps,
+      CorrelatedGaussHermiteIntegrator2D quadrature) {
+
     this.nbSteps = nbSteps;
+    this.quadrature = quadrature;
   }
 
   /**
@@ -113,16 +144,29 @@ public class G2ppSwaptionPhysicalProductNumericalIntegration2DPricer
       tau2[loopcf] = alpha[0][loopcf] * alpha[0][loopcf] + alpha[1][loopcf] * alpha[1][loopcf] + 2 * rhog2pp * gamma[0][1] * htheta[0][loopcf] * htheta[1][loopcf];
     }
     double rhobar = rhog2pp * gamma[0][1] / Math.sqrt(gamma[0][0] * gamma[1][1]);
-    SwaptionIntegrant integrant = new SwaptionIntegrant(discountedCashFlow, alpha, tau2, rhobar);
-    RungeKuttaIntegrator1D integrator1D = 
-        new RungeKuttaIntegrator1D(TOL_ABS, TOL_REL, nbSteps);
-    IntegratorRepeated2D integrator2D = new IntegratorRepeated2D(integrator1D);
     double pv = 0.0;
-    try {
-      pv = 1.0 / (2.0 * Math.PI * Math.sqrt(1 - rhobar * rhobar)) * 
-          integrator2D.integrate(integrant, new Double[] {-LIMIT_INT, -LIMIT_INT}, new Double[] {LIMIT_INT, LIMIT_INT});
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+    if (quadrature != null) {
+      double[] coefficients = new double[nbCf];
+      double[] exponents0 = new double[nbCf];
+      double[] exponents1 = new double[nbCf];
+      for (int loopcf = 0; loopcf < nbCf; loopcf++) {
+        coefficients[loopcf] = discountedCashFlow[loopcf] * Math.exp(-0.5 * tau2[loopcf]);
+        exponents0[loopcf] = -alpha[0][loopcf];
+        exponents1[loopcf] = -alpha[1][loopcf];
+      }
+      pv = quadrature.expectationPositivePart(coefficients, exponents0, exponents1, rhobar);
+    } else {
+      SwaptionIntegrant integrant = new SwaptionIntegrant(discountedCashFlow, alpha, tau2, rhobar);
+      RungeKuttaIntegrator1D integrator1D = 
+          new RungeKuttaIntegrator1D(TOL_ABS, TOL_REL, nbSteps);
+      IntegratorRepeated2D integrator2D = new IntegratorRepeated2D(integrator1D);
+      try {
+        pv = 1.0 / (2.0 * Math.PI * Math.sqrt(1 - rhobar * rhobar)) * integrator2D.integrate(
+            integrant,
+            new Double[] {-LIMIT_INT, -LIMIT_INT}, new Double[] {LIMIT_INT, LIMIT_INT});
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
     }
     return CurrencyAmount.of(ccy, pv * swaption.getLongShort().sign());
   }
@@ -0,0 +1,555 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import static marc.henrard.murisq.pricer.swaption.SwaptionPhysicalMonteCarloEuropeanPricer.times;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.function.ToDoubleFunction;
+
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.PropertyDefinition;
+
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+
+import marc.henrard.murisq.model.hullwhite.HullWhiteOneFactorMonteCarloEvolution;
+import marc.henrard.murisq.model.hullwhite.HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.montecarlo.HullWhiteMonteCarloEuropeanPricer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.joda.beans.Bean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+/**
+ * Monte Carlo pricer for swaptions with physical settlement in the Hull-White one-factor model with
+ * deterministic multiplicative spread.
+ * <p>
+ * The evolution is exact, with the cash account as numeraire. The swaption is valued with one step to the expiry.
+ * 
+ * @author Marc Henrard
+ */
+@BeanDefinition
+public final class HullWhiteSwaptionPhysicalProductMonteCarloPricer 
+    implements HullWhiteMonteCarloEuropeanPricer<ResolvedSwaption>,
+    SwaptionPhysicalMonteCarloEuropeanPricer<HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters>,
+    ImmutableBean, Serializable {
+
+  /** The number of paths */
+  @PropertyDefinition
+  private final int nbPaths;
+  /** The number of paths in a computation block */
+  @PropertyDefinition
+  private final int pathNumberBlock;
+  /** The model */
+  @PropertyDefinition(validate = "notNull")
+  private final HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model;
+  /** The random number generator. */
+  @PropertyDefinition(validate = "notNull")
+  private final RandomNumberGenerator numberGenerator;
+  /** The methods related to the model evolution. */
+  @PropertyDefinition(validate = "notNull")
+  private final HullWhiteOneFactorMonteCarloEvolution evolution;
+
+  @Override
+  public SwaptionPathValues pathValues(MulticurveEquivalent me, MonteCarloPathBuffer valuesExpiry) {
+    ToDoubleFunction<LocalDate> time =
+        date -> model.getTimeMeasure().relativeTime(model.getValuationDate(), date);
+    int[] fixIndices = model.getIborTimeIndex(
+        times(me.getDiscountFactorPayments(), payment -> time.applyAsDouble(payment.getPaymentDate())));
+    int[] iborPaymentIndices = model.getIborTimeIndex(
+        times(me.getIborPayments(), payment -> time.applyAsDouble(payment.getPaymentDate())));
+    int[] iborEffectiveIndices = model.getIborTimeIndex( // effective time, to find the right period
+        times(me.getIborComputations(), ibor -> time.applyAsDouble(ibor.getEffectiveDate())));
+    int nbPathsA = valuesExpiry.getPathsCount();
+    double[] discountingStart = new double[nbPathsA];
+    double[] discountingEnd = new double[nbPathsA];
+    return new SwaptionPathValues() {
+
+      @Override
+      public void discountFactors(int fixIndex, double[] result) {
+        valuesExpiry.getPeriod(fixIndices[fixIndex], result);
+      }
+
+      @Override
+      public void discountedIborRates(int iborIndex, double[] result) {
+        int iperiod = iborEffectiveIndices[iborIndex];
+        valuesExpiry.getPeriod(iperiod, discountingStart);
+        valuesExpiry.getPeriod(iperiod + 1, discountingEnd);
+        valuesExpiry.getPeriod(iborPaymentIndices[iborIndex], result);
+        for (int looppath = 0; looppath < nbPathsA; looppath++) {
+          result[looppath] *=
+              model.iborRateFromDiscountFactors(discountingStart[looppath], discountingEnd[looppath], iperiod);
+        }
+      }
+    };
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code HullWhiteSwaptionPhysicalProductMonteCarloPricer}.
+   * @return the meta-bean, not null
+   */
+  public static HullWhiteSwaptionPhysicalProductMonteCarloPricer.Meta meta() {
+    return HullWhiteSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(HullWhiteSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static HullWhiteSwaptionPhysicalProductMonteCarloPricer.Builder builder() {
+    return new HullWhiteSwaptionPhysicalProductMonteCarloPricer.Builder();
+  }
+
+  private HullWhiteSwaptionPhysicalProductMonteCarloPricer(
+      int nbPaths,
+      int pathNumberBlock,
+      HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      HullWhiteOneFactorMonteCarloEvolution evolution) {
+    JodaBeanUtils.notNull(model, "model");
+    JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+    JodaBeanUtils.notNull(evolution, "evolution");
+    this.nbPaths = nbPaths;
+    this.pathNumberBlock = pathNumberBlock;
+    this.model = model;
+    this.numberGenerator = numberGenerator;
+    this.evolution = evolution;
+  }
+
+  @Override
+  public HullWhiteSwaptionPhysicalProductMonteCarloPricer.Meta metaBean() {
+    return HullWhiteSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths
+   * @return the value of the property
+   */
+  public int getNbPaths() {
+    return nbPaths;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths in a computation block
+   * @return the value of the property
+   */
+  public int getPathNumberBlock() {
+    return pathNumberBlock;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the model
+   * @return the value of the property, not null
+   */
+  public HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters getModel() {
+    return model;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the random number generator.
+   * @return the value of the property, not null
+   */
+  public RandomNumberGenerator getNumberGenerator() {
+    return numberGenerator;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the methods related to the model evolution.
+   * @return the value of the property, not null
+   */
+  public HullWhiteOneFactorMonteCarloEvolution getEvolution() {
+    return evolution;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      HullWhiteSwaptionPhysicalProductMonteCarloPricer other = (HullWhiteSwaptionPhysicalProductMonteCarloPricer) obj;
+      return (nbPaths == other.nbPaths) &&
+          (pathNumberBlock == other.pathNumberBlock) &&
+          JodaBeanUtils.equal(model, other.model) &&
+          JodaBeanUtils.equal(numberGenerator, other.numberGenerator) &&
+          JodaBeanUtils.equal(evolution, other.evolution);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(nbPaths);
+    hash = hash * 31 + JodaBeanUtils.hashCode(pathNumberBlock);
+    hash = hash * 31 + JodaBeanUtils.hashCode(model);
+    hash = hash * 31 + JodaBeanUtils.hashCode(numberGenerator);
+    hash = hash * 31 + JodaBeanUtils.hashCode(evolution);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(192);
+    buf.append("HullWhiteSwaptionPhysicalProductMonteCarloPricer{");
+    buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+    buf.append("pathNumberBlock").append('=').append(JodaBeanUtils.toString(pathNumberBlock)).append(',').append(' ');
+    buf.append("model").append('=').append(JodaBeanUtils.toString(model)).append(',').append(' ');
+    buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator)).append(',').append(' ');
+    buf.append("evolution").append('=').append(JodaBeanUtils.toString(evolution));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code HullWhiteSwaptionPhysicalProductMonteCarloPricer}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     */
+    private final MetaProperty<Integer> nbPaths = DirectMetaProperty.ofImmutable(
+        this, "nbPaths", HullWhiteSwaptionPhysicalProductMonteCarloPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code pathNumberBlock} property.
+     */
+    private final MetaProperty<Integer> pathNumberBlock = DirectMetaProperty.ofImmutable(
+        this, "pathNumberBlock", HullWhiteSwaptionPhysicalProductMonteCarloPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code model} property.
+     */
+    private final MetaProperty<HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters> model = DirectMetaProperty.ofImmutable(
+        this, "model", HullWhiteSwaptionPhysicalProductMonteCarloPricer.class, HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters.class);
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     */
+    private final MetaProperty<RandomNumberGenerator> numberGenerator = DirectMetaProperty.ofImmutable(
+        this, "numberGenerator", HullWhiteSwaptionPhysicalProductMonteCarloPricer.class, RandomNumberGenerator.class);
+    /**
+     * The meta-property for the {@code evolution} property.
+     */
+    private final MetaProperty<HullWhiteOneFactorMonteCarloEvolution> evolution = DirectMetaProperty.ofImmutable(
+        this, "evolution", HullWhiteSwaptionPhysicalProductMonteCarloPricer.class, HullWhiteOneFactorMonteCarloEvolution.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "nbPaths",
+        "pathNumberBlock",
+        "model",
+        "numberGenerator",
+        "evolution");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case -1504032417:  // pathNumberBlock
+          return pathNumberBlock;
+        case 104069929:  // model
+          return model;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        case 261136251:  // evolution
+          return evolution;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public HullWhiteSwaptionPhysicalProductMonteCarloPricer.Builder builder() {
+      return new HullWhiteSwaptionPhysicalProductMonteCarloPricer.Builder();
+    }
+
+    @Override
+    public Class<? extends HullWhiteSwaptionPhysicalProductMonteCarloPricer> beanType() {
+      return HullWhiteSwaptionPhysicalProductMonteCarloPricer.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> nbPaths() {
+      return nbPaths;
+    }
+
+    /**
+     * The meta-property for the {@code pathNumberBlock} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> pathNumberBlock() {
+      return pathNumberBlock;
+    }
+
+    /**
+     * The meta-property for the {@code model} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters> model() {
+      return model;
+    }
+
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<RandomNumberGenerator> numberGenerator() {
+      return numberGenerator;
+    }
+
+    /**
+     * The meta-property for the {@code evolution} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<HullWhiteOneFactorMonteCarloEvolution> evolution() {
+      return evolution;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return ((HullWhiteSwaptionPhysicalProductMonteCarloPricer) bean).getNbPaths();
+        case -1504032417:  // pathNumberBlock
+          return ((HullWhiteSwaptionPhysicalProductMonteCarloPricer) bean).getPathNumberBlock();
+        case 104069929:  // model
+          return ((HullWhiteSwaptionPhysicalProductMonteCarloPricer) bean).getModel();
+        case 1709932938:  // numberGenerator
+          return ((HullWhiteSwaptionPhysicalProductMonteCarloPricer) bean).getNumberGenerator();
+        case 261136251:  // evolution
+          return ((HullWhiteSwaptionPhysicalProductMonteCarloPricer) bean).getEvolution();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code HullWhiteSwaptionPhysicalProductMonteCarloPricer}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<HullWhiteSwaptionPhysicalProductMonteCarloPricer> {
+
+    private int nbPaths;
+    private int pathNumberBlock;
+    private HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model;
+    private RandomNumberGenerator numberGenerator;
+    private HullWhiteOneFactorMonteCarloEvolution evolution;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(HullWhiteSwaptionPhysicalProductMonteCarloPricer beanToCopy) {
+      this.nbPaths = beanToCopy.getNbPaths();
+      this.pathNumberBlock = beanToCopy.getPathNumberBlock();
+      this.model = beanToCopy.getModel();
+      this.numberGenerator = beanToCopy.getNumberGenerator();
+      this.evolution = beanToCopy.getEvolution();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case -1504032417:  // pathNumberBlock
+          return pathNumberBlock;
+        case 104069929:  // model
+          return model;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        case 261136251:  // evolution
+          return evolution;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          this.nbPaths = (Integer) newValue;
+          break;
+        case -1504032417:  // pathNumberBlock
+          this.pathNumberBlock = (Integer) newValue;
+          break;
+        case 104069929:  // model
+          this.model = (HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters) newValue;
+          break;
+        case 1709932938:  // numberGenerator
+          this.numberGenerator = (RandomNumberGenerator) newValue;
+          break;
+        case 261136251:  // evolution
+          this.evolution = (HullWhiteOneFactorMonteCarloEvolution) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public HullWhiteSwaptionPhysicalProductMonteCarloPricer build() {
+      return new HullWhiteSwaptionPhysicalProductMonteCarloPricer(
+          nbPaths,
+          pathNumberBlock,
+          model,
+          numberGenerator,
+          evolution);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the number of paths
+     * @param nbPaths  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder nbPaths(int nbPaths) {
+      this.nbPaths = nbPaths;
+      return this;
+    }
+
+    /**
+     * Sets the number of paths in a computation block
+     * @param pathNumberBlock  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder pathNumberBlock(int pathNumberBlock) {
+      this.pathNumberBlock = pathNumberBlock;
+      return this;
+    }
+
+    /**
+     * Sets the model
+     * @param model  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder model(HullWhiteOneFactorPiecewiseConstantDeterministicSpreadParameters model) {
+      JodaBeanUtils.notNull(model, "model");
+      this.model = model;
+      return this;
+    }
+
+    /**
+     * Sets the random number generator.
+     * @param numberGenerator  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder numberGenerator(RandomNumberGenerator numberGenerator) {
+      JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+      this.numberGenerator = numberGenerator;
+      return this;
+    }
+
+    /**
+     * Sets the methods related to the model evolution.
+     * @param evolution  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder evolution(HullWhiteOneFactorMonteCarloEvolution evolution) {
+      JodaBeanUtils.notNull(evolution, "evolution");
+      this.evolution = evolution;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(192);
+      buf.append("HullWhiteSwaptionPhysicalProductMonteCarloPricer.Builder{");
+      buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+      buf.append("pathNumberBlock").append('=').append(JodaBeanUtils.toString(pathNumberBlock)).append(',').append(' ');
+      buf.append("model").append('=').append(JodaBeanUtils.toString(model)).append(',').append(' ');
+      buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator)).append(',').append(' ');
+      buf.append("evolution").append('=').append(JodaBeanUtils.toString(evolution));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
@@ -0,0 +1,986 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.joda.beans.Bean;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.rate.FixedRateComputation;
+import com.opengamma.strata.product.swap.RateAccrualPeriod;
+import com.opengamma.strata.product.swap.RatePaymentPeriod;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.SwapLegType;
+import com.opengamma.strata.product.swap.SwapPaymentPeriod;
+
+import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloKernel;
+import marc.henrard.murisq.pricer.decomposition.MulticurveDecisionScheduleCalculator;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentSchedule;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.LmmdddMonteCarloMultiDatePricer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloLeastSquaresRegression;
+import marc.henrard.murisq.product.swaption.BermudanSwaptionResolved;
+
+/**
+ * Monte Carlo pricer for Bermudan swaptions with physical settlement in the Libor Market Model with
+ * deterministic multiplicative spread.
+ * <p>
+ * The early exercise is priced by the Longstaff-Schwartz algorithm. At each expiry except the last one, the 
+ * numeraire rebased continuation value is estimated by a least-squares regression, on the in-the-money paths, 
+ * on the basis functions 1, S, S^2, A and S A where S is the swap rate and A the numeraire rebased annuity of 
+ * the swap entered into on exercise. The option is exercised on the first expiry where the exercise value is 
+ * positive and above the estimated continuation value.
+ * <p>
+ * In the one-pass method ({@code nbPathsRegression} equal to 0), the regression and the pricing use the same 
+ * paths. In the two-pass method, the regression coefficients are estimated on {@code nbPathsRegression} paths 
+ * and the exercise rule is applied to the next {@code nbPaths} paths of the generator; the estimate is then 
+ * biased low, as the exercise rule is sub-optimal and independent of the pricing paths.
+ * <p>
+ * The paths are generated on the primitive arrays of the evolution; the regression is done on primitive arrays 
+ * of dimensions: exercise x paths, without object for each path. The methods {@link #evolve} and 
+ * {@link #aggregation} of the generic multi-dates pricer are implemented for compatibility; in that case the 
+ * regression is done on each block of paths in the one-pass way.
+ * 
+ * @author Marc Henrard
+ */
+@BeanDefinition
+public final class LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer
+    implements LmmdddMonteCarloMultiDatePricer<BermudanSwaptionResolved>, ImmutableBean, Serializable {
+
+  /** The number of basis functions used in the regression. */
+  private static final int NB_BASIS_FUNCTIONS = 5;
+
+  /** The number of paths */
+  @PropertyDefinition
+  private final int nbPaths;
+  /** The number of paths in a computation block */
+  @PropertyDefinition
+  private final int pathNumberBlock;
+  /** The number of paths used to estimate the exercise boundary in the two-pass method; 0 for the one-pass method. */
+  @PropertyDefinition
+  private final int nbPathsRegression;
+  /** The model */
+  @PropertyDefinition(validate = "notNull")
+  private final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model;
+  /** The random number generator. */
+  @PropertyDefinition(validate = "notNull")
+  private final RandomNumberGenerator numberGenerator;
+  /** The methods related to the model evolution. */
+  @PropertyDefinition(validate = "notNull")
+  private final LiborMarketModelMonteCarloEvolution evolution;
+
+  @Override
+  public int getNbFactors() {
+    return model.getFactorCount();
+  }
+
+  @Override
+  public MulticurveEquivalentSchedule multicurveEquivalent(BermudanSwaptionResolved product) {
+    return MulticurveDecisionScheduleCalculator.decisionSchedule(product);
+  }
+
+  @Override
+  public double[][] aggregation( // path x cash flows
+      MulticurveEquivalentSchedule me,
+      BermudanSwaptionResolved product,
+      List<List<MulticurveEquivalentValues>> valuesExpiries, // dimensions: paths x expiry
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model) {
+
+    int nbPathsA = valuesExpiries.size();
+    int nbExpiries = me.getExpiriesCount();
+    int nbPeriods = model.getIborPeriodsCount();
+    double[][][] forwards = new double[nbExpiries][nbPeriods][nbPathsA];
+    for (int looppath = 0; looppath < nbPathsA; looppath++) {
+      for (int loopexp = 0; loopexp < nbExpiries; loopexp++) {
+        double[] valueFwdPath = valuesExpiries.get(looppath).get(loopexp).getOnRates().toArrayUnsafe();
+        for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+          forwards[loopexp][loopperiod][looppath] = valueFwdPath[loopperiod];
+        }
+      }
+    }
+    ExerciseData data = exerciseData(me, product);
+    ExerciseValues values = exerciseValues(data, forwards);
+    int[] exercise = exerciseIndices(values, regressionCoefficients(values));
+    double sign = product.getLongShort().sign();
+    double[][] pv = new double[nbPathsA][nbExpiries];
+    for (int looppath = 0; looppath < nbPathsA; looppath++) {
+      if (exercise[looppath] >= 0) {
+        pv[looppath][exercise[looppath]] = sign * values.swapValues[exercise[looppath]][looppath];
+      }
+    }
+    return pv;
+  }
+
+  @Override
+  public double presentValueDouble(
+      BermudanSwaptionResolved product,
+      RatesProvider multicurve) {
+
+    MulticurveEquivalentSchedule mce = multicurveEquivalent(product);
+    return presentValueDouble(product, initialValues(mce, multicurve), numeraireInitialValue(multicurve));
+  }
+
+  /**
+   * Present value as a double from given initial values.
+   * <p>
+   * The paths are generated on primitive arrays. In the two-pass method, the regression paths are generated 
+   * first, followed by the pricing paths.
+   * 
+   * @param product  the Bermudan swaption
+   * @param initialValues  the initial values of the model forward rates
+   * @param numeraireInitialValue  the initial value of the numeraire
+   * @return the present value
+   */
+  public double presentValueDouble(
+      BermudanSwaptionResolved product,
+      MulticurveEquivalentValues initialValues,
+      double numeraireInitialValue) {
+
+    MulticurveEquivalentSchedule mce = multicurveEquivalent(product);
+    ExerciseData data = exerciseData(mce, product);
+    double[] stepTimes = stepTimes(mce);
+    LiborMarketModelMonteCarloKernel kernel = evolution.kernel(model);
+    double pv = 0.0;
+    if (nbPathsRegression == 0) { // one-pass
+      ExerciseValues values = simulate(data, stepTimes, initialValues, kernel, nbPaths);
+      pv = exerciseSum(values, regressionCoefficients(values));
+    } else { // two-pass
+      double[][] coefficients =
+          regressionCoefficients(simulate(data, stepTimes, initialValues, kernel, nbPathsRegression));
+      int nbPathsDone = 0;
+      while (nbPathsDone < nbPaths) {
+        int nbPathsBlock = Math.min(pathNumberBlock, nbPaths - nbPathsDone);
+        pv += exerciseSum(simulate(data, stepTimes, initialValues, kernel, nbPathsBlock), coefficients);
+        nbPathsDone += nbPathsBlock;
+      }
+    }
+    return product.getLongShort().sign() * pv / nbPaths * numeraireInitialValue;
+  }
+
+  /**
+   * Returns the regression coefficients of the continuation values estimated on the regression paths.
+   * <p>
+   * The paths used are the regression paths in the two-pass method and the pricing paths in the one-pass 
+   * method. The coefficients are for the basis functions 1, S, S^2, A and S A. The coefficients for the last 
+   * expiry are 0, as there is no continuation value.
+   * 
+   * @param product  the Bermudan swaption
+   * @param multicurve  the multi-curve framework
+   * @return the coefficients, dimensions: expiries x basis functions
+   */
+  public double[][] regressionCoefficients(
+      BermudanSwaptionResolved product,
+      RatesProvider multicurve) {
+
+    MulticurveEquivalentSchedule mce = multicurveEquivalent(product);
+    ExerciseData data = exerciseData(mce, product);
+    ExerciseValues values = simulate(data, stepTimes(mce), initialValues(mce, multicurve),
+        evolution.kernel(model), (nbPathsRegression == 0) ? nbPaths : nbPathsRegression);
+    return regressionCoefficients(values);
+  }
+
+  //-------------------------------------------------------------------------
+  // The step times associated to the expiries
+  private double[] stepTimes(MulticurveEquivalentSchedule mce) {
+    int nbExpiries = mce.getExpiriesCount();
+    double[] stepTimes = new double[nbExpiries];
+    for (int loopexp = 0; loopexp < nbExpiries; loopexp++) {
+      stepTimes[loopexp] = model.relativeTime(mce.getDecisionTimes().get(loopexp));
+    }
+    return stepTimes;
+  }
+
+  // Simulates the paths by blocks and computes the exercise values, dimensions: expiries x paths
+  private ExerciseValues simulate(
+      ExerciseData data,
+      double[] stepTimes,
+      MulticurveEquivalentValues initialValues,
+      LiborMarketModelMonteCarloKernel kernel,
+      int nbPathsTotal) {
+
+    int nbPeriods = model.getIborPeriodsCount();
+    double[] initialForwards = initialValues.getOnRates().toArrayUnsafe();
+    List<ExerciseValues> blocks = new ArrayList<>();
+    int nbPathsDone = 0;
+    while (nbPathsDone < nbPathsTotal) {
+      int nbPathsBlock = Math.min(pathNumberBlock, nbPathsTotal - nbPathsDone);
+      double[][] initForwards = new double[nbPeriods][nbPathsBlock];
+      for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+        Arrays.fill(initForwards[loopperiod], initialForwards[loopperiod]);
+      }
+      double[][][] forwards = evolution.pathGeneratorForwards(stepTimes, initForwards, kernel, numberGenerator);
+      blocks.add(exerciseValues(data, forwards));
+      nbPathsDone += nbPathsBlock;
+    }
+    return ExerciseValues.combined(blocks, nbPathsTotal);
+  }
+
+  // The product description at each expiry: payment indices and amounts
+  private ExerciseData exerciseData(MulticurveEquivalentSchedule mce, BermudanSwaptionResolved product) {
+    int nbExpiries = mce.getExpiriesCount();
+    ArgChecker.isTrue(nbExpiries == product.getExpiriesCount(), "schedule must have one equivalent per expiry");
+    ExerciseData data = new ExerciseData(nbExpiries);
+    for (int loopexp = 0; loopexp < nbExpiries; loopexp++) {
+      MulticurveEquivalent me = mce.getSchedules().get(loopexp);
+      int nbFix = me.getDiscountFactorPayments().size();
+      double[] fixTimes = new double[nbFix];
+      data.fixAmounts[loopexp] = new double[nbFix];
+      for (int i = 0; i < nbFix; i++) {
+        fixTimes[i] = relativeTime(me.getDiscountFactorPayments().get(i).getPaymentDate());
+        data.fixAmounts[loopexp][i] = me.getDiscountFactorPayments().get(i).getPaymentAmount().getAmount();
+      }
+      data.fixIndices[loopexp] = model.getIborTimeIndex(fixTimes);
+      int nbIbor = me.getIborComputations().size();
+      double[] iborPaymentTimes = new double[nbIbor];
+      double[] iborEffectiveTimes = new double[nbIbor];
+      data.iborAmounts[loopexp] = new double[nbIbor];
+      for (int i = 0; i < nbIbor; i++) {
+        iborPaymentTimes[i] = relativeTime(me.getIborPayments().get(i).getPaymentDate());
+        iborEffectiveTimes[i] = relativeTime(me.getIborComputations().get(i).getEffectiveDate());
+        data.iborAmounts[loopexp][i] = me.getIborPayments().get(i).getPaymentAmount().getAmount();
+      }
+      data.iborPaymentIndices[loopexp] = model.getIborTimeIndex(iborPaymentTimes);
+      data.iborEffectiveIndices[loopexp] = model.getIborTimeIndex(iborEffectiveTimes);
+      ResolvedSwapLeg fixedLeg = product.underlyingExercise(loopexp).getLegs(SwapLegType.FIXED).get(0);
+      List<SwapPaymentPeriod> periods = fixedLeg.getPaymentPeriods();
+      int nbCoupons = periods.size();
+      double[] couponTimes = new double[nbCoupons];
+      data.annuityAccruals[loopexp] = new double[nbCoupons];
+      data.fixedCoupons[loopexp] = new double[nbCoupons];
+      for (int i = 0; i < nbCoupons; i++) {
+        RatePaymentPeriod ratePeriod = (RatePaymentPeriod) periods.get(i);
+        RateAccrualPeriod accrualPeriod = ratePeriod.getAccrualPeriods().get(0);
+        double rate = ((FixedRateComputation) accrualPeriod.getRateComputation()).getRate();
+        couponTimes[i] = relativeTime(ratePeriod.getPaymentDate());
+        data.annuityAccruals[loopexp][i] = Math.abs(ratePeriod.getNotional() * accrualPeriod.getYearFraction());
+        data.fixedCoupons[loopexp][i] = ratePeriod.getNotional() * accrualPeriod.getYearFraction() * rate;
+      }
+      data.couponIndices[loopexp] = model.getIborTimeIndex(couponTimes);
+      data.swapRateSigns[loopexp] = fixedLeg.getPayReceive().isPay() ? 1.0d : -1.0d;
+    }
+    return data;
+  }
+
+  // Time in the model time measure
+  private double relativeTime(LocalDate date) {
+    return model.getTimeMeasure().relativeTime(model.getValuationDate(), date);
+  }
+
+  // The swap values, swap rates and annuities at each expiry from the forward rates, dimensions: expiries x paths
+  private ExerciseValues exerciseValues(ExerciseData data, double[][][] forwards) {
+    int nbExpiries = forwards.length;
+    int nbPeriods = model.getIborPeriodsCount();
+    int nbPathsA = forwards[0][0].length;
+    double[] delta = model.getAccrualFactors().toArrayUnsafe();
+    ExerciseValues values = new ExerciseValues(nbExpiries, nbPathsA);
+    double[][] discounting = new double[nbPeriods + 1][nbPathsA];
+    Arrays.fill(discounting[nbPeriods], 1.0);
+    for (int loopexp = 0; loopexp < nbExpiries; loopexp++) {
+      double[][] forwardsExpiry = forwards[loopexp];
+      for (int loopdsc = nbPeriods - 1; loopdsc >= 0; loopdsc--) {
+        for (int looppath = 0; looppath < nbPathsA; looppath++) {
+          discounting[loopdsc][looppath] =
+              discounting[loopdsc + 1][looppath] * (1.0 + forwardsExpiry[loopdsc][looppath] * delta[loopdsc]);
+        }
+      }
+      double[] swapValues = values.swapValues[loopexp];
+      double[] annuities = values.annuities[loopexp];
+      double[] fixedValues = new double[nbPathsA];
+      for (int loopfix = 0; loopfix < data.fixIndices[loopexp].length; loopfix++) {
+        double amount = data.fixAmounts[loopexp][loopfix];
+        double[] discountingFix = discounting[data.fixIndices[loopexp][loopfix]];
+        for (int looppath = 0; looppath < nbPathsA; looppath++) {
+          swapValues[looppath] += amount * discountingFix[looppath];
+        }
+      }
+      for (int loopibor = 0; loopibor < data.iborAmounts[loopexp].length; loopibor++) {
+        int ifwd = data.iborEffectiveIndices[loopexp][loopibor];
+        double amount = data.iborAmounts[loopexp][loopibor];
+        double[] discountingIbor = discounting[data.iborPaymentIndices[loopexp][loopibor]];
+        for (int looppath = 0; looppath < nbPathsA; looppath++) {
+          double iborRate = model.iborRateFromDscForwards(forwardsExpiry[ifwd][looppath], ifwd);
+          swapValues[looppath] += amount * iborRate * discountingIbor[looppath];
+        }
+      }
+      for (int loopcpn = 0; loopcpn < data.couponIndices[loopexp].length; loopcpn++) {
+        double accrual = data.annuityAccruals[loopexp][loopcpn];
+        double coupon = data.fixedCoupons[loopexp][loopcpn];
+        double[] discountingCpn = discounting[data.couponIndices[loopexp][loopcpn]];
+        for (int looppath = 0; looppath < nbPathsA; looppath++) {
+          annuities[looppath] += accrual * discountingCpn[looppath];
+          fixedValues[looppath] += coupon * discountingCpn[looppath];
+        }
+      }
+      double[] swapRates = values.swapRates[loopexp];
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        swapRates[looppath] =
+            data.swapRateSigns[loopexp] * (swapValues[looppath] - fixedValues[looppath]) / annuities[looppath];
+      }
+    }
+    return values;
+  }
+
+  // Backward induction of Longstaff-Schwartz, dimensions: expiries x basis functions
+  private static double[][] regressionCoefficients(ExerciseValues values) {
+    int nbExpiries = values.swapValues.length;
+    int nbPathsA = values.swapValues[0].length;
+    double[][] coefficients = new double[nbExpiries][NB_BASIS_FUNCTIONS];
+    double[] cash = new double[nbPathsA];
+    double[] swapValuesLast = values.swapValues[nbExpiries - 1];
+    for (int looppath = 0; looppath < nbPathsA; looppath++) {
+      cash[looppath] = Math.max(0.0d, swapValuesLast[looppath]);
+    }
+    boolean[] itm = new boolean[nbPathsA];
+    for (int loopexp = nbExpiries - 2; loopexp >= 0; loopexp--) {
+      double[] swapValues = values.swapValues[loopexp];
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        itm[looppath] = swapValues[looppath] > 0.0d;
+      }
+      double[][] basis = basis(values, loopexp);
+      coefficients[loopexp] = MonteCarloLeastSquaresRegression.regression(basis, cash, itm);
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        if (itm[looppath] &&
+            swapValues[looppath] > MonteCarloLeastSquaresRegression.value(basis, coefficients[loopexp], looppath)) {
+          cash[looppath] = swapValues[looppath];
+        }
+      }
+    }
+    return coefficients;
+  }
+
+  // The expiry index of exercise for each path, -1 if not exercised
+  private static int[] exerciseIndices(ExerciseValues values, double[][] coefficients) {
+    int nbExpiries = values.swapValues.length;
+    int nbPathsA = values.swapValues[0].length;
+    int[] exercise = new int[nbPathsA];
+    Arrays.fill(exercise, -1);
+    for (int loopexp = nbExpiries - 1; loopexp >= 0; loopexp--) {
+      double[] swapValues = values.swapValues[loopexp];
+      double[][] basis = basis(values, loopexp);
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        if (swapValues[looppath] > 0.0d && (loopexp == nbExpiries - 1 ||
+            swapValues[looppath] > MonteCarloLeastSquaresRegression.value(basis, coefficients[loopexp], looppath))) {
+          exercise[looppath] = loopexp;
+        }
+      }
+    }
+    return exercise;
+  }
+
+  // The sum over the paths of the numeraire rebased exercise values
+  private static double exerciseSum(ExerciseValues values, double[][] coefficients) {
+    int[] exercise = exerciseIndices(values, coefficients);
+    double sum = 0.0d;
+    for (int looppath = 0; looppath < exercise.length; looppath++) {
+      if (exercise[looppath] >= 0) {
+        sum += values.swapValues[exercise[looppath]][looppath];
+      }
+    }
+    return sum;
+  }
+
+  // The basis functions 1, S, S^2, A, S A; dimensions: functions x paths
+  private static double[][] basis(ExerciseValues values, int expiryIndex) {
+    double[] swapRates = values.swapRates[expiryIndex];
+    double[] annuities = values.annuities[expiryIndex];
+    int nbPathsA = swapRates.length;
+    double[][] basis = new double[NB_BASIS_FUNCTIONS][nbPathsA];
+    Arrays.fill(basis[0], 1.0d);
+    for (int looppath = 0; looppath < nbPathsA; looppath++) {
+      basis[1][looppath] = swapRates[looppath];
+      basis[2][looppath] = swapRates[looppath] * swapRates[looppath];
+      basis[3][looppath] = annuities[looppath];
+      basis[4][looppath] = swapRates[looppath] * annuities[looppath];
+    }
+    return basis;
+  }
+
+  //-------------------------------------------------------------------------
+  // The product description at each expiry, in terms of the model dates
+  private static final class ExerciseData {
+    private final int[][] fixIndices;
+    private final double[][] fixAmounts;
+    private final int[][] iborPaymentIndices;
+    private final int[][] iborEffectiveIndices;
+    private final double[][] iborAmounts;
+    private final int[][] couponIndices;
+    private final double[][] annuityAccruals;
+    private final double[][] fixedCoupons;
+    private final double[] swapRateSigns;
+
+    private ExerciseData(int nbExpiries) {
+      this.fixIndices = new int[nbExpiries][];
+      this.fixAmounts = new double[nbExpiries][];
+      this.iborPaymentIndices = new int[nbExpiries][];
+      this.iborEffectiveIndices = new int[nbExpiries][];
+      this.iborAmounts = new double[nbExpiries][];
+      this.couponIndices = new int[nbExpiries][];
+      this.annuityAccruals = new double[nbExpiries][];
+      this.fixedCoupons = new double[nbExpiries][];
+      this.swapRateSigns = new double[nbExpiries];
+    }
+  }
+
+  // The numeraire rebased swap values, the swap rates and the numeraire rebased annuities, dimensions: expiries x paths
+  private static final class ExerciseValues {
+    private final double[][] swapValues;
+    private final double[][] swapRates;
+    private final double[][] annuities;
+
+    private ExerciseValues(int nbExpiries, int nbPaths) {
+      this.swapValues = new double[nbExpiries][nbPaths];
+      this.swapRates = new double[nbExpiries][nbPaths];
+      this.annuities = new double[nbExpiries][nbPaths];
+    }
+
+    // Concatenates the values of several blocks of paths
+    private static ExerciseValues combined(List<ExerciseValues> blocks, int nbPaths) {
+      if (blocks.size() == 1) {
+        return blocks.get(0);
+      }
+      int nbExpiries = blocks.get(0).swapValues.length;
+      ExerciseValues combined = new ExerciseValues(nbExpiries, nbPaths);
+      int start = 0;
+      for (ExerciseValues block : blocks) {
+        int nbPathsBlock = block.swapValues[0].length;
+        for (int loopexp = 0; loopexp < nbExpiries; loopexp++) {
+          System.arraycopy(block.swapValues[loopexp], 0, combined.swapValues[loopexp], start, nbPathsBlock);
+          System.arraycopy(block.swapRates[loopexp], 0, combined.swapRates[loopexp], start, nbPathsBlock);
+          System.arraycopy(block.annuities[loopexp], 0, combined.annuities[loopexp], start, nbPathsBlock);
+        }
+        start += nbPathsBlock;
+      }
+      return combined;
+    }
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer}.
+   * @return the meta-bean, not null
+   */
+  public static LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Meta meta() {
+    return LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Builder builder() {
+    return new LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Builder();
+  }
+
+  private LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer(
+      int nbPaths,
+      int pathNumberBlock,
+      int nbPathsRegression,
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model,
+      RandomNumberGenerator numberGenerator,
+      LiborMarketModelMonteCarloEvolution evolution) {
+    JodaBeanUtils.notNull(model, "model");
+    JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+    JodaBeanUtils.notNull(evolution, "evolution");
+    this.nbPaths = nbPaths;
+    this.pathNumberBlock = pathNumberBlock;
+    this.nbPathsRegression = nbPathsRegression;
+    this.model = model;
+    this.numberGenerator = numberGenerator;
+    this.evolution = evolution;
+  }
+
+  @Override
+  public LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Meta metaBean() {
+    return LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths
+   * @return the value of the property
+   */
+  public int getNbPaths() {
+    return nbPaths;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths in a computation block
+   * @return the value of the property
+   */
+  public int getPathNumberBlock() {
+    return pathNumberBlock;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths used to estimate the exercise boundary in the two-pass method; 0 for the one-pass method.
+   * @return the value of the property
+   */
+  public int getNbPathsRegression() {
+    return nbPathsRegression;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the model
+   * @return the value of the property, not null
+   */
+  public LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters getModel() {
+    return model;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the random number generator.
+   * @return the value of the property, not null
+   */
+  public RandomNumberGenerator getNumberGenerator() {
+    return numberGenerator;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the methods related to the model evolution.
+   * @return the value of the property, not null
+   */
+  public LiborMarketModelMonteCarloEvolution getEvolution() {
+    return evolution;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer other = (LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer) obj;
+      return (nbPaths == other.nbPaths) &&
+          (pathNumberBlock == other.pathNumberBlock) &&
+          (nbPathsRegression == other.nbPathsRegression) &&
+          JodaBeanUtils.equal(model, other.model) &&
+          JodaBeanUtils.equal(numberGenerator, other.numberGenerator) &&
+          JodaBeanUtils.equal(evolution, other.evolution);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(nbPaths);
+    hash = hash * 31 + JodaBeanUtils.hashCode(pathNumberBlock);
+    hash = hash * 31 + JodaBeanUtils.hashCode(nbPathsRegression);
+    hash = hash * 31 + JodaBeanUtils.hashCode(model);
+    hash = hash * 31 + JodaBeanUtils.hashCode(numberGenerator);
+    hash = hash * 31 + JodaBeanUtils.hashCode(evolution);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(224);
+    buf.append("LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer{");
+    buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+    buf.append("pathNumberBlock").append('=').append(JodaBeanUtils.toString(pathNumberBlock)).append(',').append(' ');
+    buf.append("nbPathsRegression").append('=').append(JodaBeanUtils.toString(nbPathsRegression)).append(',').append(' ');
+    buf.append("model").append('=').append(JodaBeanUtils.toString(model)).append(',').append(' ');
+    buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator)).append(',').append(' ');
+    buf.append("evolution").append('=').append(JodaBeanUtils.toString(evolution));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     */
+    private final MetaProperty<Integer> nbPaths = DirectMetaProperty.ofImmutable(
+        this, "nbPaths", LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code pathNumberBlock} property.
+     */
+    private final MetaProperty<Integer> pathNumberBlock = DirectMetaProperty.ofImmutable(
+        this, "pathNumberBlock", LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code nbPathsRegression} property.
+     */
+    private final MetaProperty<Integer> nbPathsRegression = DirectMetaProperty.ofImmutable(
+        this, "nbPathsRegression", LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code model} property.
+     */
+    private final MetaProperty<LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters> model = DirectMetaProperty.ofImmutable(
+        this, "model", LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.class, LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters.class);
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     */
+    private final MetaProperty<RandomNumberGenerator> numberGenerator = DirectMetaProperty.ofImmutable(
+        this, "numberGenerator", LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.class, RandomNumberGenerator.class);
+    /**
+     * The meta-property for the {@code evolution} property.
+     */
+    private final MetaProperty<LiborMarketModelMonteCarloEvolution> evolution = DirectMetaProperty.ofImmutable(
+        this, "evolution", LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.class, LiborMarketModelMonteCarloEvolution.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "nbPaths",
+        "pathNumberBlock",
+        "nbPathsRegression",
+        "model",
+        "numberGenerator",
+        "evolution");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case -1504032417:  // pathNumberBlock
+          return pathNumberBlock;
+        case -1908492421:  // nbPathsRegression
+          return nbPathsRegression;
+        case 104069929:  // model
+          return model;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        case 261136251:  // evolution
+          return evolution;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Builder builder() {
+      return new LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Builder();
+    }
+
+    @Override
+    public Class<? extends LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer> beanType() {
+      return LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> nbPaths() {
+      return nbPaths;
+    }
+
+    /**
+     * The meta-property for the {@code pathNumberBlock} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> pathNumberBlock() {
+      return pathNumberBlock;
+    }
+
+    /**
+     * The meta-property for the {@code nbPathsRegression} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> nbPathsRegression() {
+      return nbPathsRegression;
+    }
+
+    /**
+     * The meta-property for the {@code model} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters> model() {
+      return model;
+    }
+
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<RandomNumberGenerator> numberGenerator() {
+      return numberGenerator;
+    }
+
+    /**
+     * The meta-property for the {@code evolution} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<LiborMarketModelMonteCarloEvolution> evolution() {
+      return evolution;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return ((LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer) bean).getNbPaths();
+        case -1504032417:  // pathNumberBlock
+          return ((LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer) bean).getPathNumberBlock();
+        case -1908492421:  // nbPathsRegression
+          return ((LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer) bean).getNbPathsRegression();
+        case 104069929:  // model
+          return ((LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer) bean).getModel();
+        case 1709932938:  // numberGenerator
+          return ((LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer) bean).getNumberGenerator();
+        case 261136251:  // evolution
+          return ((LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer) bean).getEvolution();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer> {
+
+    private int nbPaths;
+    private int pathNumberBlock;
+    private int nbPathsRegression;
+    private LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model;
+    private RandomNumberGenerator numberGenerator;
+    private LiborMarketModelMonteCarloEvolution evolution;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer beanToCopy) {
+      this.nbPaths = beanToCopy.getNbPaths();
+      this.pathNumberBlock = beanToCopy.getPathNumberBlock();
+      this.nbPathsRegression = beanToCopy.getNbPathsRegression();
+      this.model = beanToCopy.getModel();
+      this.numberGenerator = beanToCopy.getNumberGenerator();
+      this.evolution = beanToCopy.getEvolution();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case -1504032417:  // pathNumberBlock
+          return pathNumberBlock;
+        case -1908492421:  // nbPathsRegression
+          return nbPathsRegression;
+        case 104069929:  // model
+          return model;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        case 261136251:  // evolution
+          return evolution;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          this.nbPaths = (Integer) newValue;
+          break;
+        case -1504032417:  // pathNumberBlock
+          this.pathNumberBlock = (Integer) newValue;
+          break;
+        case -1908492421:  // nbPathsRegression
+          this.nbPathsRegression = (Integer) newValue;
+          break;
+        case 104069929:  // model
+          this.model = (LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters) newValue;
+          break;
+        case 1709932938:  // numberGenerator
+          this.numberGenerator = (RandomNumberGenerator) newValue;
+          break;
+        case 261136251:  // evolution
+          this.evolution = (LiborMarketModelMonteCarloEvolution) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer build() {
+      return new LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer(
+          nbPaths,
+          pathNumberBlock,
+          nbPathsRegression,
+          model,
+          numberGenerator,
+          evolution);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the number of paths
+     * @param nbPaths  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder nbPaths(int nbPaths) {
+      this.nbPaths = nbPaths;
+      return this;
+    }
+
+    /**
+     * Sets the number of paths in a computation block
+     * @param pathNumberBlock  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder pathNumberBlock(int pathNumberBlock) {
+      this.pathNumberBlock = pathNumberBlock;
+      return this;
+    }
+
+    /**
+     * Sets the number of paths used to estimate the exercise boundary in the two-pass method; 0 for the one-pass method.
+     * @param nbPathsRegression  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder nbPathsRegression(int nbPathsRegression) {
+      this.nbPathsRegression = nbPathsRegression;
+      return this;
+    }
+
+    /**
+     * Sets the model
+     * @param model  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder model(LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters model) {
+      JodaBeanUtils.notNull(model, "model");
+      this.model = model;
+      return this;
+    }
+
+    /**
+     * Sets the random number generator.
+     * @param numberGenerator  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder numberGenerator(RandomNumberGenerator numberGenerator) {
+      JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+      this.numberGenerator = numberGenerator;
+      return this;
+    }
+
+    /**
+     * Sets the methods related to the model evolution.
+     * @param evolution  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder evolution(LiborMarketModelMonteCarloEvolution evolution) {
+      JodaBeanUtils.notNull(evolution, "evolution");
+      this.evolution = evolution;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(224);
+      buf.append("LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.Builder{");
+      buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+      buf.append("pathNumberBlock").append('=').append(JodaBeanUtils.toString(pathNumberBlock)).append(',').append(' ');
+      buf.append("nbPathsRegression").append('=').append(JodaBeanUtils.toString(nbPathsRegression)).append(',').append(' ');
+      buf.append("model").append('=').append(JodaBeanUtils.toString(model)).append(',').append(' ');
+      buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator)).append(',').append(' ');
+      buf.append("evolution").append('=').append(JodaBeanUtils.toString(evolution));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
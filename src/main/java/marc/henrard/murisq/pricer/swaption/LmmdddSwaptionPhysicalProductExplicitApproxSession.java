@@ -0,0 +1,326 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import java.util.Arrays;
+
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.currency.CurrencyAmount;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.pricer.DiscountFactors;
+import com.opengamma.strata.pricer.impl.option.BlackFormulaRepository;
+import com.opengamma.strata.pricer.impl.rate.swap.CashFlowEquivalentCalculator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.common.PayReceive;
+import com.opengamma.strata.product.common.PutCall;
+import com.opengamma.strata.product.swap.NotionalExchange;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.SwapLegType;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+
+import marc.henrard.murisq.model.bachelier.BachelierFormula;
+import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
+
+/**
+ * Pricing session for one European physical settlement swaption in the Libor Market Model with deterministic
+ * multiplicative spread with the efficient approximation of {@link LmmdddSwaptionPhysicalProductExplicitApproxPricer}.
+ * <p>
+ * All the quantities that depend only on the multi-curve and on the model time structure are computed once
+ * when the session is created: the cash-flow equivalent, its link to the model Ibor times, the discount factors,
+ * the initial forward rates, the par rate, the PVBP and the strike. The pricing for a given set of model
+ * parameters only runs the volatility-dependent part of the approximation. This is useful in calibration
+ * where the same swaption is priced repetitively with the curves unchanged and only the volatilities,
+ * displacements or mean reversion modified.
+ * <p>
+ * The models used with a session must have the same valuation date, time measure, Ibor times and accrual
+ * factors as the model used to create it.
+ * <p>
+ * The present value of {@link LmmdddSwaptionPhysicalProductExplicitApproxPricer} is computed by a session
+ * used once, without the implied volatility data.
+ *
+ * @author Marc Henrard
+ */
+public final class LmmdddSwaptionPhysicalProductExplicitApproxSession {
+
+  /** The pricer used for swap measures. */
+  private static final DiscountingSwapProductPricer PRICER_SWAP = DiscountingSwapProductPricer.DEFAULT;
+
+  /** The swaption currency. */
+  private final Currency currency;
+  /** The model Ibor times used to create the session. */
+  private final DoubleArray iborTimes;
+  /** The time to expiry. */
+  private final double timeToExpiry;
+  /** The index of the first model date used. */
+  private final int indStart;
+  /** The number of model dates used. */
+  private final int nbCfDatesLmm;
+  /** The call flag after the cash-flow sign change. */
+  private final boolean isCall;
+  /** The sign of the swaption, 1 for long and -1 for short. */
+  private final double sign;
+  /** The discount factor to the first date. */
+  private final double df0;
+  /** The accrual factors of the model periods used. */
+  private final double[] deltaSwap;
+  /** The initial forward rates. */
+  private final double[] forwardLmm;
+  /** The modified cash-flow amounts; the first element is the modified strike. */
+  private final double[] cfaMod;
+  /** The discount factors relative to the first date. */
+  private final double[] p0;
+  /** The cash-flows multiplied by the relative discount factors. */
+  private final double[] dP;
+  /** The swap value at the first date. */
+  private final double b0;
+  /** The strike value. */
+  private final double bK;
+  /** The middle point value. */
+  private final double bM;
+  /** The par rate of the underlying swap. */
+  private final double parRate;
+  /** The PVBP of the underlying swap fixed leg. */
+  private final double pvbp;
+  /** The coupon equivalent of the underlying swap fixed leg. */
+  private final double strike;
+  /** The put/call flag of the swaption, in the Bachelier formula convention. Null if not available. */
+  private final PutCall putCall;
+
+  /**
+   * Creates a session for a swaption.
+   *
+   * @param swaption  the swaption
+   * @param multicurve  the rates provider
+   * @param lmm  the LMM parameters, only the time structure is used
+   * @return the session
+   */
+  public static LmmdddSwaptionPhysicalProductExplicitApproxSession of(
+      ResolvedSwaption swaption,
+      RatesProvider multicurve,
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm) {
+
+    return new LmmdddSwaptionPhysicalProductExplicitApproxSession(swaption, multicurve, lmm, true);
+  }
+
+  /**
+   * Computes the present value of a swaption with a session used once.
+   * <p>
+   * The implied volatility data, not required for the present value, are not computed.
+   *
+   * @param swaption  the swaption
+   * @param multicurve  the rates provider
+   * @param lmm  the LMM parameters
+   * @return the present value
+   */
+  static CurrencyAmount presentValue(
+      ResolvedSwaption swaption,
+      RatesProvider multicurve,
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm) {
+
+    return new LmmdddSwaptionPhysicalProductExplicitApproxSession(swaption, multicurve, lmm, false)
+        .presentValue(lmm);
+  }
+
+  // Private constructor; curve-dependent steps 1 to 5 of the approximation, up to the volatility-dependent part
+  private LmmdddSwaptionPhysicalProductExplicitApproxSession(
+      ResolvedSwaption swaption,
+      RatesProvider multicurve,
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm,
+      boolean impliedVolatilityData) {
+
+    currency = swaption.getCurrency();
+    iborTimes = lmm.getIborTimes();
+    DiscountFactors dsc = multicurve.discountFactors(currency);
+    // 1. Swaption CFE preparation
+    ResolvedSwapLeg cfe = CashFlowEquivalentCalculator
+        .cashFlowEquivalentSwap(swaption.getUnderlying(), multicurve); // includes the spread adjusted notional
+    int nbCfInit = cfe.getPaymentEvents().size();
+    double[] cfTimesInit = new double[nbCfInit]; // times, not sorted
+    double[] cfAmountsInit = new double[nbCfInit];
+    for (int loopcf = 0; loopcf < nbCfInit; loopcf++) {
+      cfTimesInit[loopcf] = lmm.getTimeMeasure().relativeTime(
+          lmm.getValuationDate(),
+          ((NotionalExchange) cfe.getPaymentEvents().get(loopcf)).getPaymentDate());
+      cfAmountsInit[loopcf] =
+          ((NotionalExchange) cfe.getPaymentEvents().get(loopcf)).getPaymentAmount().getAmount();
+    }
+    timeToExpiry = lmm.relativeTime(swaption.getExpiry());
+    // 2. Model data
+    double[] timeLmm = iborTimes.toArrayUnsafe();
+    // 3. Link cfe dates to lmm
+    int[] indexCfDates = lmm.getIborTimeIndex(cfTimesInit);
+    indStart = Arrays.stream(indexCfDates).min().getAsInt();
+    int indEnd = Arrays.stream(indexCfDates).max().getAsInt();
+    nbCfDatesLmm = indEnd - indStart + 1;
+    double[] cfAmounts = new double[nbCfDatesLmm]; // aggregate same dates
+    for (int loopcf = 0; loopcf < nbCfInit; loopcf++) {
+      cfAmounts[indexCfDates[loopcf] - indStart] += cfAmountsInit[loopcf];
+    }
+    double amount0 = cfAmounts[0];
+    if (amount0 > 0.0d) { // Change sign to have standard call
+      for (int i = 0; i < nbCfDatesLmm; i++) {
+        cfAmounts[i] *= -1.0d;
+      }
+    }
+    isCall = (amount0 < 0);
+    double[] cfTimes = new double[nbCfDatesLmm];
+    System.arraycopy(timeLmm, indStart, cfTimes, 0, nbCfDatesLmm);
+    double[] dfLmm = new double[nbCfDatesLmm];
+    for (int loopcf = 0; loopcf < nbCfDatesLmm; loopcf++) {
+      dfLmm[loopcf] = dsc.discountFactor(cfTimes[loopcf]);
+    }
+    df0 = dfLmm[0];
+    deltaSwap = new double[nbCfDatesLmm - 1];
+    System.arraycopy(lmm.getAccrualFactors().toArrayUnsafe(), indStart, deltaSwap, 0, nbCfDatesLmm - 1);
+    forwardLmm = new double[nbCfDatesLmm - 1];
+    for (int loopcf = 0; loopcf < nbCfDatesLmm - 1; loopcf++) {
+      forwardLmm[loopcf] = (dfLmm[loopcf] / dfLmm[loopcf + 1] - 1.0d) / deltaSwap[loopcf];
+    }
+    // 4. cfe modification (for roller coasters) - not implemented
+    cfaMod = new double[nbCfDatesLmm + 1];
+    cfaMod[0] = cfAmounts[0]; // modified strike
+    cfaMod[1] = 0.0;
+    System.arraycopy(cfAmounts, 1, cfaMod, 2, nbCfDatesLmm - 1);
+    // 5. Pricing algorithm, curve-dependent part
+    p0 = new double[nbCfDatesLmm];
+    dP = new double[nbCfDatesLmm];
+    double b0Sum = 0;
+    for (int loopcf = 0; loopcf < nbCfDatesLmm; loopcf++) {
+      p0[loopcf] = dfLmm[loopcf] / dfLmm[0];
+      dP[loopcf] = cfaMod[loopcf + 1] * p0[loopcf];
+      b0Sum += dP[loopcf];
+    }
+    b0 = b0Sum;
+    bK = -cfaMod[0]; // strike
+    bM = (b0 + bK) / 2.0d;
+    sign = swaption.getLongShort().equals(LongShort.LONG) ? 1.0 : -1.0;
+    // Bachelier implied volatility data
+    if (impliedVolatilityData) {
+      ResolvedSwapLeg legFixed = swaption.getUnderlying().getLegs(SwapLegType.FIXED).get(0);
+      parRate = PRICER_SWAP.parRate(swaption.getUnderlying(), multicurve);
+      pvbp = PRICER_SWAP.getLegPricer().pvbp(legFixed, multicurve);
+      strike = PRICER_SWAP.getLegPricer().couponEquivalent(legFixed, multicurve, pvbp);
+      putCall = legFixed.getPayReceive().equals(PayReceive.RECEIVE) ? PutCall.PUT : PutCall.CALL;
+    } else {
+      parRate = Double.NaN;
+      pvbp = Double.NaN;
+      strike = Double.NaN;
+      putCall = null;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Computes the present value of the swaption for the given model parameters.
+   * <p>
+   * The result is the same as the one of {@link LmmdddSwaptionPhysicalProductExplicitApproxPricer#presentValue}.
+   *
+   * @param lmm  the LMM parameters
+   * @return the present value
+   */
+  public CurrencyAmount presentValue(LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm) {
+    return CurrencyAmount.of(currency, presentValueDouble(lmm));
+  }
+
+  /**
+   * Computes the implied volatility in the Bachelier model of the swaption for the given model parameters.
+   * <p>
+   * The result is the same as the one of
+   * {@link SingleCurrencyModelSwaptionPhysicalProductPricer#impliedVolatilityBachelier}.
+   *
+   * @param lmm  the LMM parameters
+   * @return the implied volatility
+   */
+  public double impliedVolatilityBachelier(LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm) {
+    ArgChecker.notNull(putCall, "implied volatility data");
+    double price = presentValueDouble(lmm);
+    return BachelierFormula.impliedVolatilityApproxLfk4(
+        Math.abs(price), parRate, strike, timeToExpiry, Math.abs(pvbp), putCall);
+  }
+
+  // Volatility-dependent part of the approximation
+  private double presentValueDouble(LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm) {
+    ArgChecker.isTrue(lmm.getIborTimes().equals(iborTimes), "model Ibor times must be the ones of the session");
+    double amr = lmm.getMeanReversion();
+    int nbFactor = lmm.getFactorCount();
+    double[][] volLMM = lmm.getVolatilities().toArrayUnsafe();
+    double[][] gammaLMM = new double[nbCfDatesLmm - 1][];
+    double[] aSwap = new double[nbCfDatesLmm - 1];
+    System.arraycopy(lmm.getDisplacements().toArrayUnsafe(), indStart, aSwap, 0, nbCfDatesLmm - 1);
+    for (int loopcf = 0; loopcf < nbCfDatesLmm - 1; loopcf++) {
+      gammaLMM[loopcf] = volLMM[indStart + loopcf];
+    }
+    double meanReversionImpact = Math.abs(amr) < 1.0E-6 ?
+        timeToExpiry : (Math.exp(2.0d * amr * timeToExpiry) - 1.0d) / (2.0d * amr); // To handle 0 mean reversion.
+    double[] rate0Ratio = new double[nbCfDatesLmm - 1];
+    double[][] mu0 = new double[nbCfDatesLmm - 1][nbFactor];
+    for (int loopcf = 0; loopcf < nbCfDatesLmm - 1; loopcf++) {
+      rate0Ratio[loopcf] = (forwardLmm[loopcf] + aSwap[loopcf]) / (forwardLmm[loopcf] + 1 / deltaSwap[loopcf]);
+    }
+    for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+      mu0[0][loopfact] = rate0Ratio[0] * gammaLMM[0][loopfact];
+    }
+    for (int loopcf = 1; loopcf < nbCfDatesLmm - 1; loopcf++) {
+      for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+        mu0[loopcf][loopfact] = mu0[loopcf - 1][loopfact] + rate0Ratio[loopcf] * gammaLMM[loopcf][loopfact];
+      }
+    }
+    double[] tau = new double[nbCfDatesLmm];
+    double[] tau2 = new double[nbCfDatesLmm];
+    for (int loopcf = 0; loopcf < nbCfDatesLmm - 1; loopcf++) {
+      for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+        tau2[loopcf + 1] += mu0[loopcf][loopfact] * mu0[loopcf][loopfact];
+      }
+      tau2[loopcf + 1] = tau2[loopcf + 1] * meanReversionImpact;
+      tau[loopcf + 1] = Math.sqrt(tau2[loopcf + 1]);
+    }
+    double sumNum = -bM;
+    double sumDen = 0;
+    for (int loopcf = 0; loopcf < nbCfDatesLmm; loopcf++) {
+      sumNum += dP[loopcf] - dP[loopcf] * tau2[loopcf] / 2.0;
+      sumDen += dP[loopcf] * tau[loopcf];
+    }
+    double xBar = sumNum / sumDen;
+    double[] pM = new double[nbCfDatesLmm];
+    for (int loopcf = 0; loopcf < nbCfDatesLmm; loopcf++) {
+      pM[loopcf] = p0[loopcf] * (1 - xBar * tau[loopcf] - tau2[loopcf] / 2.0);
+    }
+    double[] liborM = new double[nbCfDatesLmm - 1];
+    double[] alphaM = new double[nbCfDatesLmm];
+    for (int loopcf = 0; loopcf < nbCfDatesLmm - 1; loopcf++) {
+      liborM[loopcf] = (pM[loopcf] / pM[loopcf + 1] - 1.0d) / deltaSwap[loopcf];
+    }
+    for (int loopcf = 0; loopcf < nbCfDatesLmm; loopcf++) {
+      alphaM[loopcf] = cfaMod[loopcf + 1] * pM[loopcf] / bM;
+    }
+    double[] rateMRatio = new double[nbCfDatesLmm - 1];
+    double[][] muM = new double[nbCfDatesLmm - 1][nbFactor];
+    for (int loopcf = 0; loopcf < nbCfDatesLmm - 1; loopcf++) {
+      rateMRatio[loopcf] = (liborM[loopcf] + aSwap[loopcf]) / (liborM[loopcf] + 1 / deltaSwap[loopcf]);
+    }
+    for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+      muM[0][loopfact] = rateMRatio[0] * gammaLMM[0][loopfact];
+    }
+    for (int loopcf = 1; loopcf < nbCfDatesLmm - 1; loopcf++) {
+      for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+        muM[loopcf][loopfact] = muM[loopcf - 1][loopfact] + rateMRatio[loopcf] * gammaLMM[loopcf][loopfact];
+      }
+    }
+    double normSigmaM = 0;
+    double[] sigmaM = new double[nbFactor];
+    for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+      for (int loopcf = 0; loopcf < nbCfDatesLmm - 1; loopcf++) {
+        sigmaM[loopfact] += alphaM[loopcf + 1] * muM[loopcf][loopfact];
+      }
+      normSigmaM += sigmaM[loopfact] * sigmaM[loopfact];
+    }
+    double impliedBlackVol = Math.sqrt(normSigmaM * meanReversionImpact);
+    double pv = df0 * BlackFormulaRepository.price(b0, bK, 1.0d, impliedBlackVol, isCall);
+    return pv * sign;
+  }
+
+}
@@ -3,9 +3,13 @@
  */
 package marc.henrard.murisq.pricer.swaption;
 
+import static marc.henrard.murisq.pricer.swaption.SwaptionPhysicalMonteCarloEuropeanPricer.times;
+
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.function.ToDoubleFunction;
 
 import org.joda.beans.ImmutableBean;
 import org.joda.beans.gen.BeanDefinition;
@@ -13,17 +17,24 @@ import org.joda.beans.gen.PropertyDefinition;
 
 import com.opengamma.strata.basics.currency.Currency;
 import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.collect.tuple.Triple;
 import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
 import com.opengamma.strata.pricer.DiscountFactors;
 import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.ResolvedProduct;
 import com.opengamma.strata.product.swaption.ResolvedSwaption;
 
 import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
 import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
-import marc.henrard.murisq.pricer.decomposition.MulticurveDecisionScheduleCalculator;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloKernel;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloTape;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
 import marc.henrard.murisq.pricer.montecarlo.LmmdddMonteCarloEuropeanPricer;
+import marc.henrard.murisq.pricer.montecarlo.LmmdddMonteCarloSensitivities;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBufferHeap;
 
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -44,7 +55,9 @@ import org.joda.beans.impl.direct.DirectMetaPropertyMap;
  */
 @BeanDefinition
 public final class LmmdddSwaptionPhysicalProductMonteCarloPricer 
-    implements LmmdddMonteCarloEuropeanPricer<ResolvedSwaption>, ImmutableBean, Serializable {
+    implements LmmdddMonteCarloEuropeanPricer<ResolvedSwaption>,
+    SwaptionPhysicalMonteCarloEuropeanPricer<LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters>,
+    ImmutableBean, Serializable {
 
   /** The number of paths */
   @PropertyDefinition
@@ -68,12 +81,6 @@ public final class LmmdddSwaptionPhysicalProductMonteCarloPricer
     return model.getFactorCount();
   }
 
-  @Override
-  public MulticurveEquivalent multicurveEquivalent(ResolvedSwaption product) {
-    return MulticurveDecisionScheduleCalculator
-        .decisionSchedule(product).getSchedules().get(0);
-  }
-  
   @Override
   public double numeraireInitialValue(RatesProvider multicurve) {
     // The pseudo-numeraire is the pseudo-discount factor on the last model date.
@@ -111,50 +118,210 @@ public final class LmmdddSwaptionPhysicalProductMonteCarloPricer
   }
 
   @Override
-  public DoubleArray aggregation(
+  public SwaptionPathValues pathValues(MulticurveEquivalent me, MonteCarloPathBuffer valuesExpiry) {
+    int[][] indices = paymentIndices(me);
+    double[][] discounting = discounting(valuesExpiry); // dates x paths
+    int nbPathsA = valuesExpiry.getPathsCount();
+    double[] valueFwd = new double[nbPathsA];
+    return new SwaptionPathValues() {
+
+      @Override
+      public void discountFactors(int fixIndex, double[] result) {
+        System.arraycopy(discounting[indices[0][fixIndex]], 0, result, 0, nbPathsA);
+      }
+
+      @Override
+      public void discountedIborRates(int iborIndex, double[] result) {
+        int ifwd = indices[2][iborIndex];
+        double[] discountingIbor = discounting[indices[1][iborIndex]];
+        valuesExpiry.getPeriod(ifwd, valueFwd);
+        for (int looppath = 0; looppath < nbPathsA; looppath++) {
+          result[looppath] = model.iborRateFromDscForwards(valueFwd[looppath], ifwd) * discountingIbor[looppath];
+        }
+      }
+    };
+  }
+
+  // The model date indices of the fixed payments, of the Ibor payments and of the Ibor effective dates
+  private int[][] paymentIndices(MulticurveEquivalent me) {
+    ToDoubleFunction<LocalDate> time = date -> model.getTimeMeasure().relativeTime(model.getValuationDate(), date);
+    return new int[][] {
+        model.getIborTimeIndex(
+            times(me.getDiscountFactorPayments(), payment -> time.applyAsDouble(payment.getPaymentDate()))),
+        model.getIborTimeIndex(
+            times(me.getIborPayments(), payment -> time.applyAsDouble(payment.getPaymentDate()))),
+        model.getIborTimeIndex( // effective time, to find the right forward rate
+            times(me.getIborComputations(), ibor -> time.applyAsDouble(ibor.getEffectiveDate())))};
+  }
+
+  /**
+   * Computes the present value and its pathwise sensitivities with respect to the model parameters.
+   * <p>
+   * The sensitivities are computed by adjoint algorithmic differentiation of the path generation and of the
+   * aggregation: the forward sweep evolves and records the paths, the backward sweep propagates the derivatives
+   * of the path values to the initial forward rates, the displacements and the volatilities in one pass.
+   * The paths are the same as the ones of {@link #presentValueDouble}.
+   * <p>
+   * The sensitivities to the initial forward rates are computed with a fixed initial numeraire value.
+   * 
+   * @param product  the swaption
+   * @param multicurve  the multi-curve framework
+   * @return the present value and its sensitivities
+   */
+  public LmmdddMonteCarloSensitivities presentValueSensitivityModel(
+      ResolvedSwaption product,
+      RatesProvider multicurve) {
+
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    return presentValueSensitivityModel(product, initialValues(mce, multicurve), numeraireInitialValue(multicurve));
+  }
+
+  /**
+   * Computes the present value and its pathwise sensitivities with respect to the model parameters from given
+   * initial values.
+   * 
+   * @param product  the swaption
+   * @param initialValues  the initial values of the model forward rates
+   * @param numeraireInitialValue  the initial value of the numeraire
+   * @return the present value and its sensitivities
+   */
+  public LmmdddMonteCarloSensitivities presentValueSensitivityModel(
       ResolvedSwaption product,
+      MulticurveEquivalentValues initialValues,
+      double numeraireInitialValue) {
+
+    MulticurveEquivalent mce = multicurveEquivalent(product);
+    LiborMarketModelMonteCarloKernel kernel = evolution.kernel(model);
+    int nbPeriods = model.getIborPeriodsCount();
+    int nbFactors = model.getFactorCount();
+    double[] initialForwardsBar = new double[nbPeriods];
+    double[] displacementsBar = new double[nbPeriods];
+    double[][] volatilitiesBar = new double[nbPeriods][nbFactors];
+    Triple<Integer, Integer, Integer> decomposition = decomposition(); // fullblocks, path block, residual
+    int nbFullBlocks = decomposition.getFirst();
+    int nbBlocks = nbFullBlocks + (decomposition.getThird() > 0 ? 1 : 0);
+    double pv = 0.0;
+    for (int loopblock = 0; loopblock < nbBlocks; loopblock++) {
+      int nbPathsBlock = (loopblock < nbFullBlocks) ? decomposition.getSecond() : decomposition.getThird();
+      LiborMarketModelMonteCarloTape tape =
+          evolution.evolveOneStepTape(mce.getDecisionTime(), initialValues, kernel, numberGenerator, nbPathsBlock);
+      MonteCarloPathBuffer valuesExpiry = MonteCarloPathBufferHeap.ofUnsafe(tape.getForwardsEnd());
+      DoubleArray pvPaths = aggregation(product, mce, valuesExpiry);
+      pv += pvPaths.sum();
+      double[][] forwardsEndBar = aggregationAdjoint(mce, valuesExpiry, pvPaths.toArrayUnsafe());
+      double[][] forwardsBar = tape.adjoint(forwardsEndBar, displacementsBar, volatilitiesBar);
+      for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+        for (int looppath = 0; looppath < nbPathsBlock; looppath++) {
+          initialForwardsBar[loopperiod] += forwardsBar[loopperiod][looppath];
+        }
+      }
+    }
+    double factor = numeraireInitialValue / nbPaths;
+    for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+      initialForwardsBar[loopperiod] *= factor;
+      displacementsBar[loopperiod] *= factor;
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        volatilitiesBar[loopperiod][loopfact] *= factor;
+      }
+    }
+    return LmmdddMonteCarloSensitivities.of(
+        pv / nbPaths * numeraireInitialValue,
+        DoubleArray.ofUnsafe(initialForwardsBar),
+        DoubleArray.ofUnsafe(displacementsBar),
+        DoubleMatrix.ofUnsafe(volatilitiesBar));
+  }
+
+  // Adjoint of the aggregation: derivatives of the path values with respect to the forward rates at expiry
+  private double[][] aggregationAdjoint(
       MulticurveEquivalent me,
-      List<MulticurveEquivalentValues> valuesExpiry) {
+      MonteCarloPathBuffer valuesExpiry,
+      double[] pvPaths) {
 
-    int nbPathsA = valuesExpiry.size();
+    int nbPeriods = model.getIborPeriodsCount();
+    int nbPathsA = valuesExpiry.getPathsCount();
     int nbFix = me.getDiscountFactorPayments().size();
-    double[] fixTimes = new double[nbFix];
-    for (int i = 0; i < nbFix; i++) {
-      fixTimes[i] = model.getTimeMeasure()
-          .relativeTime(model.getValuationDate(), me.getDiscountFactorPayments().get(i).getPaymentDate());
-    }
-    int[] fixIndices = model.getIborTimeIndex(fixTimes);
     int nbIbor = me.getIborComputations().size();
-    double[] iborPaymentTimes = new double[nbIbor]; // payment time
-    double[] iborEffectiveTimes = new double[nbIbor]; // effective time, to find the right forward rate
-    for (int i = 0; i < nbIbor; i++) {
-      iborPaymentTimes[i] = model.getTimeMeasure()
-          .relativeTime(model.getValuationDate(), me.getIborPayments().get(i).getPaymentDate());
-      iborEffectiveTimes[i] = model.getTimeMeasure()
-          .relativeTime(model.getValuationDate(), me.getIborComputations().get(i).getEffectiveDate());
-    }
-    int[] iborPaymentIndices = model.getIborTimeIndex(iborPaymentTimes);
-    int[] iborEffectiveIndices = model.getIborTimeIndex(iborEffectiveTimes);
-    double[][] discounting = discounting(valuesExpiry);
-    double[] pv = new double[nbPathsA];
+    int[][] indices = paymentIndices(me);
+    int[] fixIndices = indices[0];
+    int[] iborPaymentIndices = indices[1];
+    int[] iborEffectiveIndices = indices[2];
+    double[] delta = model.getAccrualFactors().toArrayUnsafe();
+    double[][] discounting = discounting(valuesExpiry); // dates x paths
+    // pv = max(0, value): the derivative of the path value is 1 when in the money, 0 otherwise
+    double[] pvBar = new double[nbPathsA];
     for (int looppath = 0; looppath < nbPathsA; looppath++) {
-      MulticurveEquivalentValues valuePath = valuesExpiry.get(looppath);
-      double[] valueFwdPath = valuePath.getOnRates().toArrayUnsafe();
-      double pvPath = 0.0; // path value numeraire re-based
-      for (int loopfix = 0; loopfix < nbFix; loopfix++) {
-        pvPath += me.getDiscountFactorPayments().get(loopfix).getPaymentAmount().getAmount() *
-            discounting[looppath][fixIndices[loopfix]];
+      pvBar[looppath] = (pvPaths[looppath] > 0.0) ? 1.0d : 0.0d;
+    }
+    double[][] discountingBar = new double[nbPeriods + 1][nbPathsA];
+    double[][] forwardsBar = new double[nbPeriods][nbPathsA];
+    for (int loopfix = 0; loopfix < nbFix; loopfix++) {
+      double amount = me.getDiscountFactorPayments().get(loopfix).getPaymentAmount().getAmount();
+      double[] discountingFixBar = discountingBar[fixIndices[loopfix]];
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        discountingFixBar[looppath] += amount * pvBar[looppath];
       }
-      for (int loopibor = 0; loopibor < nbIbor; loopibor++) {
-        int ipay = iborPaymentIndices[loopibor];
-        int ifwd = iborEffectiveIndices[loopibor];
-        double iborRate = model.iborRateFromDscForwards(valueFwdPath[ifwd], ifwd);
-        pvPath += me.getIborPayments().get(loopibor).getPaymentAmount().getAmount() *
-            iborRate * discounting[looppath][ipay];
+    }
+    double[] valueFwd = new double[nbPathsA];
+    for (int loopibor = 0; loopibor < nbIbor; loopibor++) {
+      int ifwd = iborEffectiveIndices[loopibor];
+      double amount = me.getIborPayments().get(loopibor).getPaymentAmount().getAmount();
+      double spread = model.getMultiplicativeSpreads().get(ifwd); // derivative of the Ibor rate
+      double[] discountingIbor = discounting[iborPaymentIndices[loopibor]];
+      double[] discountingIborBar = discountingBar[iborPaymentIndices[loopibor]];
+      double[] fwdBar = forwardsBar[ifwd];
+      valuesExpiry.getPeriod(ifwd, valueFwd);
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        double iborRate = model.iborRateFromDscForwards(valueFwd[looppath], ifwd);
+        discountingIborBar[looppath] += amount * iborRate * pvBar[looppath];
+        fwdBar[looppath] += amount * spread * discountingIbor[looppath] * pvBar[looppath];
+      }
+    }
+    // discounting[n] = discounting[n+1] * (1 + forward[n] * delta[n])
+    for (int loopdsc = 0; loopdsc < nbPeriods; loopdsc++) {
+      valuesExpiry.getPeriod(loopdsc, valueFwd);
+      double[] dscBar = discountingBar[loopdsc];
+      double[] dscNext = discounting[loopdsc + 1];
+      double[] dscNextBar = discountingBar[loopdsc + 1];
+      double[] fwdBar = forwardsBar[loopdsc];
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        fwdBar[looppath] += dscBar[looppath] * dscNext[looppath] * delta[loopdsc];
+        dscNextBar[looppath] += dscBar[looppath] * (1.0 + valueFwd[looppath] * delta[loopdsc]);
       }
-      pv[looppath] = Math.max(0.0, pvPath);
     }
-    return DoubleArray.ofUnsafe(pv);
+    return forwardsBar;
+  }
+
+  /**
+   * Present value as a double with a swaption control variate.
+   * <p>
+   * The control is a swaption, typically the co-terminal swaption with the same expiry as the product, which
+   * is valued on the Monte Carlo paths and with the explicit approximation 
+   * {@link LmmdddSwaptionPhysicalProductExplicitApproxPricer}. The control variate coefficient is estimated on 
+   * the same paths. See {@link LmmdddMonteCarloEuropeanPricer#presentValueDoubleControlVariate}.
+   * 
+   * @param <P>  the type of the product
+   * @param pricer  the Monte Carlo pricer of the product
+   * @param product  the product
+   * @param controlSwaption  the swaption used as control
+   * @param multicurve  the multi-curve framework
+   * @return the present value
+   */
+  public static <P extends ResolvedProduct> double presentValueDoubleSwaptionControlVariate(
+      LmmdddMonteCarloEuropeanPricer<P> pricer,
+      P product,
+      ResolvedSwaption controlSwaption,
+      RatesProvider multicurve) {
+
+    LmmdddSwaptionPhysicalProductMonteCarloPricer controlPricer = builder()
+        .nbPaths(pricer.getNbPaths())
+        .pathNumberBlock(pricer.getPathNumberBlock())
+        .model(pricer.getModel())
+        .numberGenerator(pricer.getNumberGenerator())
+        .evolution(pricer.getEvolution())
+        .build();
+    double controlPv = LmmdddSwaptionPhysicalProductExplicitApproxPricer.DEFAULT
+        .presentValue(controlSwaption, multicurve, pricer.getModel()).getAmount();
+    return pricer.presentValueDoubleControlVariate(product, multicurve, controlPricer, controlSwaption, controlPv);
   }
 
   //------------------------- AUTOGENERATED START -------------------------
@@ -0,0 +1,549 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import java.io.Serializable;
+
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.ImmutableValidator;
+import org.joda.beans.gen.PropertyDefinition;
+
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.model.rationalmulticurve.RationalMonteCarloEvolution;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+import marc.henrard.murisq.pricer.montecarlo.RationalMonteCarloEuropeanPricer;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.joda.beans.Bean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+/**
+ * Monte Carlo pricer for swaptions with physical settlement in the one-factor and two-factor rational models.
+ * <p>
+ * The martingales of the model are sampled exactly at the expiry, in one step. The rebased discount factors and 
+ * Ibor rates are evaluated in bulk from the model coefficients, see {@link RationalMonteCarloEvolution}.
+ * 
+ * @author Marc Henrard
+ */
+@BeanDefinition
+public final class RationalSwaptionPhysicalProductMonteCarloPricer 
+    implements RationalMonteCarloEuropeanPricer<ResolvedSwaption, SingleCurrencyModelParameters>,
+    SwaptionPhysicalMonteCarloEuropeanPricer<SingleCurrencyModelParameters>, ImmutableBean, Serializable {
+
+  /** The number of paths */
+  @PropertyDefinition
+  private final int nbPaths;
+  /** The number of paths in a computation block */
+  @PropertyDefinition
+  private final int pathNumberBlock;
+  /** The model, one-factor or two-factor rational model */
+  @PropertyDefinition(validate = "notNull")
+  private final SingleCurrencyModelParameters model;
+  /** The random number generator. */
+  @PropertyDefinition(validate = "notNull")
+  private final RandomNumberGenerator numberGenerator;
+  /** The methods related to the model evolution. */
+  @PropertyDefinition(validate = "notNull")
+  private final RationalMonteCarloEvolution evolution;
+
+  @ImmutableValidator
+  private void validate() {
+    evolution.factorCount(model); // check the model type
+  }
+
+  @Override
+  public SwaptionPathValues pathValues(MulticurveEquivalent me, MonteCarloPathBuffer valuesExpiry) {
+    int nbFix = me.getDiscountFactorPayments().size();
+    int nbPathsA = valuesExpiry.getPathsCount();
+    double[] iborDiscounted = new double[nbPathsA];
+    double[] discountingMaturity = new double[nbPathsA];
+    return new SwaptionPathValues() {
+
+      @Override
+      public void discountFactors(int fixIndex, double[] result) {
+        valuesExpiry.getPeriod(fixIndex, result);
+      }
+
+      @Override
+      public void discountedIborRates(int iborIndex, double[] result) {
+        int iquantity = nbFix + 3 * iborIndex;
+        valuesExpiry.getPeriod(iquantity, iborDiscounted);
+        valuesExpiry.getPeriod(iquantity + 1, discountingMaturity);
+        valuesExpiry.getPeriod(iquantity + 2, result);
+        for (int looppath = 0; looppath < nbPathsA; looppath++) {
+          result[looppath] *= iborDiscounted[looppath] / discountingMaturity[looppath];
+        }
+      }
+    };
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code RationalSwaptionPhysicalProductMonteCarloPricer}.
+   * @return the meta-bean, not null
+   */
+  public static RationalSwaptionPhysicalProductMonteCarloPricer.Meta meta() {
+    return RationalSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(RationalSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static RationalSwaptionPhysicalProductMonteCarloPricer.Builder builder() {
+    return new RationalSwaptionPhysicalProductMonteCarloPricer.Builder();
+  }
+
+  private RationalSwaptionPhysicalProductMonteCarloPricer(
+      int nbPaths,
+      int pathNumberBlock,
+      SingleCurrencyModelParameters model,
+      RandomNumberGenerator numberGenerator,
+      RationalMonteCarloEvolution evolution) {
+    JodaBeanUtils.notNull(model, "model");
+    JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+    JodaBeanUtils.notNull(evolution, "evolution");
+    this.nbPaths = nbPaths;
+    this.pathNumberBlock = pathNumberBlock;
+    this.model = model;
+    this.numberGenerator = numberGenerator;
+    this.evolution = evolution;
+    validate();
+  }
+
+  @Override
+  public RationalSwaptionPhysicalProductMonteCarloPricer.Meta metaBean() {
+    return RationalSwaptionPhysicalProductMonteCarloPricer.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths
+   * @return the value of the property
+   */
+  public int getNbPaths() {
+    return nbPaths;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of paths in a computation block
+   * @return the value of the property
+   */
+  public int getPathNumberBlock() {
+    return pathNumberBlock;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the model, one-factor or two-factor rational model
+   * @return the value of the property, not null
+   */
+  public SingleCurrencyModelParameters getModel() {
+    return model;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the random number generator.
+   * @return the value of the property, not null
+   */
+  public RandomNumberGenerator getNumberGenerator() {
+    return numberGenerator;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the methods related to the model evolution.
+   * @return the value of the property, not null
+   */
+  public RationalMonteCarloEvolution getEvolution() {
+    return evolution;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      RationalSwaptionPhysicalProductMonteCarloPricer other = (RationalSwaptionPhysicalProductMonteCarloPricer) obj;
+      return (nbPaths == other.nbPaths) &&
+          (pathNumberBlock == other.pathNumberBlock) &&
+          JodaBeanUtils.equal(model, other.model) &&
+          JodaBeanUtils.equal(numberGenerator, other.numberGenerator) &&
+          JodaBeanUtils.equal(evolution, other.evolution);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(nbPaths);
+    hash = hash * 31 + JodaBeanUtils.hashCode(pathNumberBlock);
+    hash = hash * 31 + JodaBeanUtils.hashCode(model);
+    hash = hash * 31 + JodaBeanUtils.hashCode(numberGenerator);
+    hash = hash * 31 + JodaBeanUtils.hashCode(evolution);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(192);
+    buf.append("RationalSwaptionPhysicalProductMonteCarloPricer{");
+    buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+    buf.append("pathNumberBlock").append('=').append(JodaBeanUtils.toString(pathNumberBlock)).append(',').append(' ');
+    buf.append("model").append('=').append(JodaBeanUtils.toString(model)).append(',').append(' ');
+    buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator)).append(',').append(' ');
+    buf.append("evolution").append('=').append(JodaBeanUtils.toString(evolution));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code RationalSwaptionPhysicalProductMonteCarloPricer}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     */
+    private final MetaProperty<Integer> nbPaths = DirectMetaProperty.ofImmutable(
+        this, "nbPaths", RationalSwaptionPhysicalProductMonteCarloPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code pathNumberBlock} property.
+     */
+    private final MetaProperty<Integer> pathNumberBlock = DirectMetaProperty.ofImmutable(
+        this, "pathNumberBlock", RationalSwaptionPhysicalProductMonteCarloPricer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code model} property.
+     */
+    private final MetaProperty<SingleCurrencyModelParameters> model = DirectMetaProperty.ofImmutable(
+        this, "model", RationalSwaptionPhysicalProductMonteCarloPricer.class, SingleCurrencyModelParameters.class);
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     */
+    private final MetaProperty<RandomNumberGenerator> numberGenerator = DirectMetaProperty.ofImmutable(
+        this, "numberGenerator", RationalSwaptionPhysicalProductMonteCarloPricer.class, RandomNumberGenerator.class);
+    /**
+     * The meta-property for the {@code evolution} property.
+     */
+    private final MetaProperty<RationalMonteCarloEvolution> evolution = DirectMetaProperty.ofImmutable(
+        this, "evolution", RationalSwaptionPhysicalProductMonteCarloPricer.class, RationalMonteCarloEvolution.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "nbPaths",
+        "pathNumberBlock",
+        "model",
+        "numberGenerator",
+        "evolution");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case -1504032417:  // pathNumberBlock
+          return pathNumberBlock;
+        case 104069929:  // model
+          return model;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        case 261136251:  // evolution
+          return evolution;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public RationalSwaptionPhysicalProductMonteCarloPricer.Builder builder() {
+      return new RationalSwaptionPhysicalProductMonteCarloPricer.Builder();
+    }
+
+    @Override
+    public Class<? extends RationalSwaptionPhysicalProductMonteCarloPricer> beanType() {
+      return RationalSwaptionPhysicalProductMonteCarloPricer.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code nbPaths} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> nbPaths() {
+      return nbPaths;
+    }
+
+    /**
+     * The meta-property for the {@code pathNumberBlock} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> pathNumberBlock() {
+      return pathNumberBlock;
+    }
+
+    /**
+     * The meta-property for the {@code model} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<SingleCurrencyModelParameters> model() {
+      return model;
+    }
+
+    /**
+     * The meta-property for the {@code numberGenerator} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<RandomNumberGenerator> numberGenerator() {
+      return numberGenerator;
+    }
+
+    /**
+     * The meta-property for the {@code evolution} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<RationalMonteCarloEvolution> evolution() {
+      return evolution;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return ((RationalSwaptionPhysicalProductMonteCarloPricer) bean).getNbPaths();
+        case -1504032417:  // pathNumberBlock
+          return ((RationalSwaptionPhysicalProductMonteCarloPricer) bean).getPathNumberBlock();
+        case 104069929:  // model
+          return ((RationalSwaptionPhysicalProductMonteCarloPricer) bean).getModel();
+        case 1709932938:  // numberGenerator
+          return ((RationalSwaptionPhysicalProductMonteCarloPricer) bean).getNumberGenerator();
+        case 261136251:  // evolution
+          return ((RationalSwaptionPhysicalProductMonteCarloPricer) bean).getEvolution();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code RationalSwaptionPhysicalProductMonteCarloPricer}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<RationalSwaptionPhysicalProductMonteCarloPricer> {
+
+    private int nbPaths;
+    private int pathNumberBlock;
+    private SingleCurrencyModelParameters model;
+    private RandomNumberGenerator numberGenerator;
+    private RationalMonteCarloEvolution evolution;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(RationalSwaptionPhysicalProductMonteCarloPricer beanToCopy) {
+      this.nbPaths = beanToCopy.getNbPaths();
+      this.pathNumberBlock = beanToCopy.getPathNumberBlock();
+      this.model = beanToCopy.getModel();
+      this.numberGenerator = beanToCopy.getNumberGenerator();
+      this.evolution = beanToCopy.getEvolution();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          return nbPaths;
+        case -1504032417:  // pathNumberBlock
+          return pathNumberBlock;
+        case 104069929:  // model
+          return model;
+        case 1709932938:  // numberGenerator
+          return numberGenerator;
+        case 261136251:  // evolution
+          return evolution;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 1723700122:  // nbPaths
+          this.nbPaths = (Integer) newValue;
+          break;
+        case -1504032417:  // pathNumberBlock
+          this.pathNumberBlock = (Integer) newValue;
+          break;
+        case 104069929:  // model
+          this.model = (SingleCurrencyModelParameters) newValue;
+          break;
+        case 1709932938:  // numberGenerator
+          this.numberGenerator = (RandomNumberGenerator) newValue;
+          break;
+        case 261136251:  // evolution
+          this.evolution = (RationalMonteCarloEvolution) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public RationalSwaptionPhysicalProductMonteCarloPricer build() {
+      return new RationalSwaptionPhysicalProductMonteCarloPricer(
+          nbPaths,
+          pathNumberBlock,
+          model,
+          numberGenerator,
+          evolution);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the number of paths
+     * @param nbPaths  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder nbPaths(int nbPaths) {
+      this.nbPaths = nbPaths;
+      return this;
+    }
+
+    /**
+     * Sets the number of paths in a computation block
+     * @param pathNumberBlock  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder pathNumberBlock(int pathNumberBlock) {
+      this.pathNumberBlock = pathNumberBlock;
+      return this;
+    }
+
+    /**
+     * Sets the model, one-factor or two-factor rational model
+     * @param model  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder model(SingleCurrencyModelParameters model) {
+      JodaBeanUtils.notNull(model, "model");
+      this.model = model;
+      return this;
+    }
+
+    /**
+     * Sets the random number generator.
+     * @param numberGenerator  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder numberGenerator(RandomNumberGenerator numberGenerator) {
+      JodaBeanUtils.notNull(numberGenerator, "numberGenerator");
+      this.numberGenerator = numberGenerator;
+      return this;
+    }
+
+    /**
+     * Sets the methods related to the model evolution.
+     * @param evolution  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder evolution(RationalMonteCarloEvolution evolution) {
+      JodaBeanUtils.notNull(evolution, "evolution");
+      this.evolution = evolution;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(192);
+      buf.append("RationalSwaptionPhysicalProductMonteCarloPricer.Builder{");
+      buf.append("nbPaths").append('=').append(JodaBeanUtils.toString(nbPaths)).append(',').append(' ');
+      buf.append("pathNumberBlock").append('=').append(JodaBeanUtils.toString(pathNumberBlock)).append(',').append(' ');
+      buf.append("model").append('=').append(JodaBeanUtils.toString(model)).append(',').append(' ');
+      buf.append("numberGenerator").append('=').append(JodaBeanUtils.toString(numberGenerator)).append(',').append(' ');
+      buf.append("evolution").append('=').append(JodaBeanUtils.toString(evolution));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
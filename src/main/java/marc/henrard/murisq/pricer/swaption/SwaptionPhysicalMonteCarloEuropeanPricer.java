@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.pricer.decomposition.MulticurveDecisionScheduleCalculator;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloEuropeanPricer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+
+/**
+ * Monte Carlo pricer for swaptions with physical settlement, common part of the models.
+ * <p>
+ * The decision schedule and the aggregation are shared by the models. The value of a path at expiry is the
+ * positive part of the numeraire rebased value of the underlying swap: the sum of the fixed cash flows times the
+ * discount factors and of the Ibor cash flows times the Ibor rates and the discount factors. The models provide
+ * only the numeraire rebased discount factors and discounted Ibor rates on the paths, see {@link SwaptionPathValues}.
+ *
+ * @param <M> the type of model
+ *
+ * @author Marc Henrard
+ */
+public interface SwaptionPhysicalMonteCarloEuropeanPricer<M extends SingleCurrencyModelParameters>
+    extends MonteCarloEuropeanPricer<ResolvedSwaption, M> {
+
+  @Override
+  default MulticurveEquivalent multicurveEquivalent(ResolvedSwaption product) {
+    return MulticurveDecisionScheduleCalculator
+        .decisionSchedule(product).getSchedules().get(0);
+  }
+
+  /**
+   * Returns the model specific values on the paths at expiry.
+   *
+   * @param me  the multi-curve equivalent of the swaption
+   * @param valuesExpiry  the values of the paths at expiry
+   * @return the path values
+   */
+  abstract SwaptionPathValues pathValues(MulticurveEquivalent me, MonteCarloPathBuffer valuesExpiry);
+
+  @Override
+  default DoubleArray aggregation(
+      ResolvedSwaption product,
+      MulticurveEquivalent me,
+      MonteCarloPathBuffer valuesExpiry) {
+
+    int nbPathsA = valuesExpiry.getPathsCount();
+    int nbFix = me.getDiscountFactorPayments().size();
+    int nbIbor = me.getIborComputations().size();
+    SwaptionPathValues pathValues = pathValues(me, valuesExpiry);
+    double[] pv = new double[nbPathsA]; // path value numeraire re-based
+    double[] values = new double[nbPathsA];
+    for (int loopfix = 0; loopfix < nbFix; loopfix++) {
+      double amount = me.getDiscountFactorPayments().get(loopfix).getPaymentAmount().getAmount();
+      pathValues.discountFactors(loopfix, values);
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        pv[looppath] += amount * values[looppath];
+      }
+    }
+    for (int loopibor = 0; loopibor < nbIbor; loopibor++) {
+      double amount = me.getIborPayments().get(loopibor).getPaymentAmount().getAmount();
+      pathValues.discountedIborRates(loopibor, values);
+      for (int looppath = 0; looppath < nbPathsA; looppath++) {
+        pv[looppath] += amount * values[looppath];
+      }
+    }
+    for (int looppath = 0; looppath < nbPathsA; looppath++) {
+      pv[looppath] = Math.max(0.0, pv[looppath]);
+    }
+    return DoubleArray.ofUnsafe(pv);
+  }
+
+  /**
+   * Returns the times of a list of elements of a multi-curve equivalent.
+   *
+   * @param <T>  the type of elements
+   * @param elements  the elements
+   * @param time  the time of one element
+   * @return the times
+   */
+  static <T> double[] times(List<T> elements, ToDoubleFunction<T> time) {
+    return elements.stream().mapToDouble(time).toArray();
+  }
+
+  /**
+   * The model specific values of the paths, for the payments of the multi-curve equivalent of a swaption.
+   * <p>
+   * The values are written in the result arrays, with one value for each path. An instance is used by one thread.
+   */
+  interface SwaptionPathValues {
+
+    /**
+     * Computes the numeraire rebased discount factors for the payment date of a fixed cash flow.
+     *
+     * @param fixIndex  the index of the cash flow in the discount factor payments
+     * @param result  the array in which the values are written
+     */
+    void discountFactors(int fixIndex, double[] result);
+
+    /**
+     * Computes the Ibor rates times the numeraire rebased discount factors for the payment date of an Ibor
+     * cash flow.
+     *
+     * @param iborIndex  the index of the cash flow in the Ibor payments
+     * @param result  the array in which the values are written
+     */
+    void discountedIborRates(int iborIndex, double[] result);
+  }
+
+}
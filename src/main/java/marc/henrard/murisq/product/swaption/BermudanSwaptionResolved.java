@@ -0,0 +1,495 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.product.swaption;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.joda.beans.Bean;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.ImmutableValidator;
+import org.joda.beans.gen.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.strata.collect.ArgChecker;
+import com.opengamma.strata.product.ResolvedProduct;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwap;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.SwapLegType;
+import com.opengamma.strata.product.swap.SwapPaymentPeriod;
+
+/**
+ * Bermudan swaption with physical settlement, resolved for pricing.
+ * <p>
+ * The option can be exercised on any of the expiries. On exercise, the holder enters into the part of the 
+ * underlying swap with payment periods starting on or after the expiry date. The swaption is co-terminal: all
+ * the exercise swaps have the same maturity as the underlying swap.
+ * <p>
+ * The underlying swap must have one fixed leg and one Ibor leg.
+ * 
+ * @author Marc Henrard
+ */
+@BeanDefinition(factoryName = "of")
+public final class BermudanSwaptionResolved
+    implements ResolvedProduct, ImmutableBean, Serializable {
+
+  /** Whether the option is long or short. */
+  @PropertyDefinition(validate = "notNull")
+  private final LongShort longShort;
+  /** The exercise dates and times of the option. */
+  @PropertyDefinition(validate = "notNull")
+  private final List<ZonedDateTime> expiries;
+  /** The underlying swap. */
+  @PropertyDefinition(validate = "notNull")
+  private final ResolvedSwap underlying;
+
+  @ImmutableValidator
+  private void validate() {
+    ArgChecker.isTrue(expiries.size() > 0, "at least one expiry is required");
+    for (int loopexp = 1; loopexp < expiries.size(); loopexp++) {
+      ArgChecker.isTrue(expiries.get(loopexp - 1).isBefore(expiries.get(loopexp)),
+          "expiries must be in increasing order");
+    }
+    ArgChecker.isTrue(underlying.getLegs(SwapLegType.FIXED).size() == 1, "underlying must have one fixed leg");
+    ArgChecker.isTrue(underlying.getLegs(SwapLegType.IBOR).size() == 1, "underlying must have one Ibor leg");
+    ArgChecker.isFalse(expiries.get(expiries.size() - 1).toLocalDate().isAfter(underlying.getEndDate()),
+        "last expiry must be before the underlying swap end date");
+  }
+
+  /**
+   * Returns the number of exercise dates.
+   * 
+   * @return the number of exercise dates
+   */
+  public int getExpiriesCount() {
+    return expiries.size();
+  }
+
+  /**
+   * Returns the swap entered into when the option is exercised on a given expiry.
+   * <p>
+   * The swap is the part of the underlying swap with payment periods starting on or after the expiry date.
+   * 
+   * @param expiryIndex  the index of the expiry
+   * @return the swap
+   */
+  public ResolvedSwap underlyingExercise(int expiryIndex) {
+    ArgChecker.inRange(expiryIndex, 0, expiries.size(), "expiryIndex");
+    LocalDate expiryDate = expiries.get(expiryIndex).toLocalDate();
+    List<ResolvedSwapLeg> legs = new ArrayList<>();
+    for (ResolvedSwapLeg leg : underlying.getLegs()) {
+      List<SwapPaymentPeriod> periods = new ArrayList<>();
+      for (SwapPaymentPeriod period : leg.getPaymentPeriods()) {
+        if (!period.getStartDate().isBefore(expiryDate)) {
+          periods.add(period);
+        }
+      }
+      ArgChecker.isFalse(periods.isEmpty(), "no payment period after expiry {}", expiryIndex);
+      legs.add(ResolvedSwapLeg.builder()
+          .type(leg.getType())
+          .payReceive(leg.getPayReceive())
+          .paymentPeriods(periods)
+          .build());
+    }
+    return ResolvedSwap.builder().legs(legs).build();
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  /**
+   * The meta-bean for {@code BermudanSwaptionResolved}.
+   * @return the meta-bean, not null
+   */
+  public static BermudanSwaptionResolved.Meta meta() {
+    return BermudanSwaptionResolved.Meta.INSTANCE;
+  }
+
+  static {
+    MetaBean.register(BermudanSwaptionResolved.Meta.INSTANCE);
+  }
+
+  /**
+   * The serialization version id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Obtains an instance.
+   * @param longShort  the value of the property, not null
+   * @param expiries  the value of the property, not null
+   * @param underlying  the value of the property, not null
+   * @return the instance
+   */
+  public static BermudanSwaptionResolved of(
+      LongShort longShort,
+      List<ZonedDateTime> expiries,
+      ResolvedSwap underlying) {
+    return new BermudanSwaptionResolved(
+      longShort,
+      expiries,
+      underlying);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static BermudanSwaptionResolved.Builder builder() {
+    return new BermudanSwaptionResolved.Builder();
+  }
+
+  private BermudanSwaptionResolved(
+      LongShort longShort,
+      List<ZonedDateTime> expiries,
+      ResolvedSwap underlying) {
+    JodaBeanUtils.notNull(longShort, "longShort");
+    JodaBeanUtils.notNull(expiries, "expiries");
+    JodaBeanUtils.notNull(underlying, "underlying");
+    this.longShort = longShort;
+    this.expiries = ImmutableList.copyOf(expiries);
+    this.underlying = underlying;
+    validate();
+  }
+
+  @Override
+  public BermudanSwaptionResolved.Meta metaBean() {
+    return BermudanSwaptionResolved.Meta.INSTANCE;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets whether the option is long or short.
+   * @return the value of the property, not null
+   */
+  public LongShort getLongShort() {
+    return longShort;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the exercise dates and times of the option.
+   * @return the value of the property, not null
+   */
+  public List<ZonedDateTime> getExpiries() {
+    return expiries;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the underlying swap.
+   * @return the value of the property, not null
+   */
+  public ResolvedSwap getUnderlying() {
+    return underlying;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      BermudanSwaptionResolved other = (BermudanSwaptionResolved) obj;
+      return JodaBeanUtils.equal(longShort, other.longShort) &&
+          JodaBeanUtils.equal(expiries, other.expiries) &&
+          JodaBeanUtils.equal(underlying, other.underlying);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(longShort);
+    hash = hash * 31 + JodaBeanUtils.hashCode(expiries);
+    hash = hash * 31 + JodaBeanUtils.hashCode(underlying);
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(128);
+    buf.append("BermudanSwaptionResolved{");
+    buf.append("longShort").append('=').append(JodaBeanUtils.toString(longShort)).append(',').append(' ');
+    buf.append("expiries").append('=').append(JodaBeanUtils.toString(expiries)).append(',').append(' ');
+    buf.append("underlying").append('=').append(JodaBeanUtils.toString(underlying));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code BermudanSwaptionResolved}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code longShort} property.
+     */
+    private final MetaProperty<LongShort> longShort = DirectMetaProperty.ofImmutable(
+        this, "longShort", BermudanSwaptionResolved.class, LongShort.class);
+    /**
+     * The meta-property for the {@code expiries} property.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes" })
+    private final MetaProperty<List<ZonedDateTime>> expiries = DirectMetaProperty.ofImmutable(
+        this, "expiries", BermudanSwaptionResolved.class, (Class) List.class);
+    /**
+     * The meta-property for the {@code underlying} property.
+     */
+    private final MetaProperty<ResolvedSwap> underlying = DirectMetaProperty.ofImmutable(
+        this, "underlying", BermudanSwaptionResolved.class, ResolvedSwap.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "longShort",
+        "expiries",
+        "underlying");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 116685664:  // longShort
+          return longShort;
+        case -1931588335:  // expiries
+          return expiries;
+        case -1770633379:  // underlying
+          return underlying;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public BermudanSwaptionResolved.Builder builder() {
+      return new BermudanSwaptionResolved.Builder();
+    }
+
+    @Override
+    public Class<? extends BermudanSwaptionResolved> beanType() {
+      return BermudanSwaptionResolved.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code longShort} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<LongShort> longShort() {
+      return longShort;
+    }
+
+    /**
+     * The meta-property for the {@code expiries} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<List<ZonedDateTime>> expiries() {
+      return expiries;
+    }
+
+    /**
+     * The meta-property for the {@code underlying} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<ResolvedSwap> underlying() {
+      return underlying;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 116685664:  // longShort
+          return ((BermudanSwaptionResolved) bean).getLongShort();
+        case -1931588335:  // expiries
+          return ((BermudanSwaptionResolved) bean).getExpiries();
+        case -1770633379:  // underlying
+          return ((BermudanSwaptionResolved) bean).getUnderlying();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code BermudanSwaptionResolved}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<BermudanSwaptionResolved> {
+
+    private LongShort longShort;
+    private List<ZonedDateTime> expiries = ImmutableList.of();
+    private ResolvedSwap underlying;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(BermudanSwaptionResolved beanToCopy) {
+      this.longShort = beanToCopy.getLongShort();
+      this.expiries = ImmutableList.copyOf(beanToCopy.getExpiries());
+      this.underlying = beanToCopy.getUnderlying();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 116685664:  // longShort
+          return longShort;
+        case -1931588335:  // expiries
+          return expiries;
+        case -1770633379:  // underlying
+          return underlying;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 116685664:  // longShort
+          this.longShort = (LongShort) newValue;
+          break;
+        case -1931588335:  // expiries
+          this.expiries = (List<ZonedDateTime>) newValue;
+          break;
+        case -1770633379:  // underlying
+          this.underlying = (ResolvedSwap) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public BermudanSwaptionResolved build() {
+      return new BermudanSwaptionResolved(
+          longShort,
+          expiries,
+          underlying);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets whether the option is long or short.
+     * @param longShort  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder longShort(LongShort longShort) {
+      JodaBeanUtils.notNull(longShort, "longShort");
+      this.longShort = longShort;
+      return this;
+    }
+
+    /**
+     * Sets the exercise dates and times of the option.
+     * @param expiries  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder expiries(List<ZonedDateTime> expiries) {
+      JodaBeanUtils.notNull(expiries, "expiries");
+      this.expiries = expiries;
+      return this;
+    }
+
+    /**
+     * Sets the {@code expiries} property in the builder
+     * from an array of objects.
+     * @param expiries  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder expiries(ZonedDateTime... expiries) {
+      return expiries(ImmutableList.copyOf(expiries));
+    }
+
+    /**
+     * Sets the underlying swap.
+     * @param underlying  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder underlying(ResolvedSwap underlying) {
+      JodaBeanUtils.notNull(underlying, "underlying");
+      this.underlying = underlying;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(128);
+      buf.append("BermudanSwaptionResolved.Builder{");
+      buf.append("longShort").append('=').append(JodaBeanUtils.toString(longShort)).append(',').append(' ');
+      buf.append("expiries").append('=').append(JodaBeanUtils.toString(expiries)).append(',').append(' ');
+      buf.append("underlying").append('=').append(JodaBeanUtils.toString(underlying));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  //-------------------------- AUTOGENERATED END --------------------------
+}
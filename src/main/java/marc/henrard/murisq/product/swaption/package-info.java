@@ -0,0 +1,8 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+
+/**
+ * Package with classes related to swaptions not available in Strata.
+ */
+package marc.henrard.murisq.product.swaption;
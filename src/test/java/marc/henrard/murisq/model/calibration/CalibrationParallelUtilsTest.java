@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.calibration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.math.impl.differentiation.VectorFieldFirstOrderDifferentiator;
+
+/**
+ * Tests {@link CalibrationParallelUtils}.
+ *
+ * @author Marc Henrard
+ */
+public class CalibrationParallelUtilsTest {
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+  private static final Function<DoubleArray, DoubleArray> FUNCTION = x -> DoubleArray.of(
+      x.get(0) * x.get(0) + Math.sin(x.get(1)),
+      Math.exp(x.get(0) * x.get(1)),
+      x.get(0) + 2.0d * x.get(1) * x.get(1) * x.get(1));
+  private static final DoubleArray X = DoubleArray.of(0.25d, -1.10d);
+
+  private static final double TOLERANCE_JACOBIAN = 1.0E-10;
+
+  @Test
+  public void values() {
+    DoubleArray computed = CalibrationParallelUtils.values(25, i -> Math.log(1.0d + i), POOL);
+    assertThat(computed).isEqualTo(DoubleArray.of(25, i -> Math.log(1.0d + i)));
+  }
+
+  @Test
+  public void values_exception() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> CalibrationParallelUtils.values(3, CalibrationParallelUtilsTest::failingValue, POOL))
+        .withMessage("value not available");
+  }
+
+  /* The interrupt status of the calling thread is restored. */
+  @Test
+  public void values_interrupted() {
+    Thread.currentThread().interrupt();
+    try {
+      assertThatExceptionOfType(RuntimeException.class)
+          .isThrownBy(() -> CalibrationParallelUtils.values(3, i -> i, POOL))
+          .withCauseInstanceOf(InterruptedException.class);
+      assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  // Fails for the index 1
+  private static double failingValue(int i) {
+    if (i == 1) {
+      throw new IllegalArgumentException("value not available");
+    }
+    return i;
+  }
+
+  /* Parallel Jacobian v sequential differentiator. Repeated computations are identical. */
+  @Test
+  public void jacobian_forward() {
+    DoubleMatrix computed = CalibrationParallelUtils.jacobianForward(FUNCTION, POOL).apply(X);
+    DoubleMatrix expected = new VectorFieldFirstOrderDifferentiator().differentiate(FUNCTION).apply(X);
+    assertThat(computed.rowCount()).isEqualTo(expected.rowCount());
+    assertThat(computed.columnCount()).isEqualTo(expected.columnCount());
+    for (int i = 0; i < expected.rowCount(); i++) {
+      for (int j = 0; j < expected.columnCount(); j++) {
+        assertThat(computed.get(i, j)).isEqualTo(expected.get(i, j), within(TOLERANCE_JACOBIAN));
+      }
+    }
+    for (int looprep = 0; looprep < 10; looprep++) {
+      assertThat(CalibrationParallelUtils.jacobianForward(FUNCTION, POOL).apply(X)).isEqualTo(computed);
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.calibration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.index.IborIndices;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.collect.timeseries.LocalDateDoubleTimeSeries;
+import com.opengamma.strata.market.curve.Curve;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.CalibrationWarmStart;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.SeededJacobian;
+
+/**
+ * Tests {@link CalibrationWarmStartCache}.
+ *
+ * @author Marc Henrard
+ */
+public class CalibrationWarmStartCacheTest {
+
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+  private static final DoubleArray QUOTES = DoubleArray.of(0.0100, 0.0090, 0.0080);
+  private static final CalibrationWarmStart WARM_START_1 =
+      CalibrationWarmStart.of(DoubleArray.of(1.0d), DoubleArray.of(0.5d), Optional.empty());
+  private static final CalibrationWarmStart WARM_START_2 =
+      CalibrationWarmStart.of(DoubleArray.of(2.0d), DoubleArray.of(0.6d), Optional.empty());
+  private static final CalibrationWarmStart WARM_START_3 =
+      CalibrationWarmStart.of(DoubleArray.of(3.0d), DoubleArray.of(0.7d), Optional.empty());
+
+  @Test
+  public void max_size() {
+    assertThatIllegalArgumentException().isThrownBy(() -> CalibrationWarmStartCache.of(0));
+  }
+
+  /* The least recently used entry is evicted; a get makes the entry the most recently used. */
+  @Test
+  public void lru_eviction() {
+    CalibrationWarmStartCache cache = CalibrationWarmStartCache.of(2);
+    cache.put("A", WARM_START_1);
+    cache.put("B", WARM_START_2);
+    assertThat(cache.get("A")).contains(WARM_START_1);
+    cache.put("C", WARM_START_3);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("B")).isEmpty();
+    assertThat(cache.get("A")).contains(WARM_START_1);
+    assertThat(cache.get("C")).contains(WARM_START_3);
+    cache.put("A", WARM_START_2);
+    assertThat(cache.get("A")).contains(WARM_START_2);
+    cache.clear();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  /* The fingerprint is unchanged for the same market data and changes when a curve, a fixing or a quote moves. */
+  @Test
+  public void fingerprint() {
+    DoubleArray fingerprint = CalibrationWarmStartCache.fingerprint(MULTICURVE_EUR, QUOTES);
+    assertThat(CalibrationWarmStartCache.fingerprint(MULTICURVE_EUR.toBuilder().build(), QUOTES))
+        .isEqualTo(fingerprint);
+    assertThat(CalibrationWarmStartCache.fingerprint(MULTICURVE_EUR, QUOTES.with(1, 0.0091)))
+        .isNotEqualTo(fingerprint);
+    Curve curve = MULTICURVE_EUR.getDiscountCurves().get(Currency.EUR);
+    Curve curveShifted = curve.withParameter(0, curve.getParameter(0) + 1.0E-6);
+    ImmutableRatesProvider multicurveShifted = MULTICURVE_EUR.toBuilder()
+        .discountCurve(Currency.EUR, curveShifted).build();
+    assertThat(CalibrationWarmStartCache.fingerprint(multicurveShifted, QUOTES)).isNotEqualTo(fingerprint);
+    LocalDate fixingDate = MULTICURVE_EUR.getValuationDate().minusDays(1);
+    ImmutableRatesProvider multicurveFixing = MULTICURVE_EUR.toBuilder()
+        .timeSeries(IborIndices.EUR_EURIBOR_6M, LocalDateDoubleTimeSeries.of(fixingDate, 0.0010)).build();
+    DoubleArray fingerprintFixing = CalibrationWarmStartCache.fingerprint(multicurveFixing, QUOTES);
+    assertThat(fingerprintFixing).isNotEqualTo(fingerprint);
+    ImmutableRatesProvider multicurveFixingMoved = MULTICURVE_EUR.toBuilder()
+        .timeSeries(IborIndices.EUR_EURIBOR_6M, LocalDateDoubleTimeSeries.of(fixingDate, 0.0011)).build();
+    assertThat(CalibrationWarmStartCache.fingerprint(multicurveFixingMoved, QUOTES)).isNotEqualTo(fingerprintFixing);
+  }
+
+  /* The seed is used only at the starting point. */
+  @Test
+  public void seeded_jacobian() {
+    Function<DoubleArray, DoubleMatrix> jacobian = x -> DoubleMatrix.of(1, 1, 2.0d * x.get(0));
+    DoubleArray start = DoubleArray.of(1.0d);
+    DoubleMatrix seed = DoubleMatrix.of(1, 1, 5.0d);
+    SeededJacobian seeded = new SeededJacobian(jacobian, start, Optional.of(seed));
+    assertThat(seeded.apply(start)).isEqualTo(seed);
+    DoubleArray other = DoubleArray.of(1.5d);
+    assertThat(seeded.apply(other)).isEqualTo(jacobian.apply(other));
+    assertThat(seeded.apply(start)).isEqualTo(seed);
+    SeededJacobian notSeeded = new SeededJacobian(jacobian, start, Optional.empty());
+    assertThat(notSeeded.apply(start)).isEqualTo(jacobian.apply(start));
+  }
+
+}
@@ -47,6 +47,7 @@ import marc.henrard.murisq.model.calibration.SingleCurrencyModelCapFloorLeastSqu
 import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
 import marc.henrard.murisq.model.rationalmulticurve.RationalTwoFactorHWShapePlusCstParameters;
 import marc.henrard.murisq.model.rationalmulticurve.RationalTwoFactorHWShapePlusCstTemplate;
+import marc.henrard.murisq.pricer.capfloor.RationalTwoFactorCapletFloorletPeriodGaussHermitePricer;
 import marc.henrard.murisq.pricer.capfloor.RationalTwoFactorCapletFloorletPeriodSemiExplicitPricer;
 import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorLegPricer;
 import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorProductPricer;
@@ -84,6 +85,12 @@ public class RationalCapFloorLeastSquareBachelierVolatilityCalibratorTest {
       new SingleCurrencyModelCapFloorProductPricer(PRICER_LEG_S_EX, PRICER_SWAP_LEG);
   private static final SingleCurrencyModelCapFloorTradePricer PRICER_TRADE =
       new SingleCurrencyModelCapFloorTradePricer(PRICER_PRODUCT, PRICER_PAYMENT);
+  private static final SingleCurrencyModelCapFloorProductPricer PRICER_PRODUCT_GH =
+      new SingleCurrencyModelCapFloorProductPricer(
+          new SingleCurrencyModelCapFloorLegPricer(RationalTwoFactorCapletFloorletPeriodGaussHermitePricer.DEFAULT),
+          PRICER_SWAP_LEG);
+  private static final SingleCurrencyModelCapFloorTradePricer PRICER_TRADE_GH =
+      new SingleCurrencyModelCapFloorTradePricer(PRICER_PRODUCT_GH, PRICER_PAYMENT);
   
   /* Descriptions of cap/floor */
   private static final Period[] MATURITIES_PER = new Period[] {
@@ -134,6 +141,42 @@ public class RationalCapFloorLeastSquareBachelierVolatilityCalibratorTest {
     assertTrue(calibrated.getParameters().equalWithTolerance(RATIONAL_2F.getParameters(), TOL_LS));
   }
 
+  /* Calibration at best of parameters b_0(0) and eta with a smile, with the Gauss-Hermite pricer. The Jacobian
+   * is computed from the price sensitivities and the Bachelier vegas. Recover a rational model smile. */
+  public void two_factor_smile_rat_gauss_hermite() {
+    int maturityIndex = 4;
+    LocalDate spot = EUR_EURIBOR_6M.calculateEffectiveFromFixing(VALUATION_DATE, REF_DATA);
+    LocalDate maturity = spot.plus(MATURITIES_PER[maturityIndex]);
+    List<ResolvedIborCapFloorTrade> trades = new ArrayList<>();
+    for (int k = 0; k < NB_STRIKES; k++) {
+      IborCapFloor cap = cap(spot, maturity, STRIKES[k]);
+      MultiCurrencyAmount pvLeg = PRICER_PRODUCT_GH.presentValue(cap.resolve(REF_DATA), MULTICURVE, RATIONAL_2F);
+      AdjustablePayment premium = AdjustablePayment.of(pvLeg.getAmount(EUR).multipliedBy(-1.0), VALUATION_DATE);
+      IborCapFloorTrade capTrade = IborCapFloorTrade.builder()
+          .product(cap)
+          .premium(premium)
+          .info(TradeInfo.of(VALUATION_DATE)).build();
+      trades.add(capTrade.resolve(REF_DATA));
+    }
+    BitSet fixed = new BitSet(8);
+    fixed.set(0); // a1
+    fixed.set(1); // a2
+    fixed.set(2); // correlation
+    fixed.set(5); // kappa
+    fixed.set(6); // c1
+    fixed.set(7); // c2
+    RationalTwoFactorHWShapePlusCstTemplate template =
+        RationalTwoFactorHWShapePlusCstTemplate
+        .of(RATIONAL_2F.getTimeMeasure(), RATIONAL_2F.getDiscountFactors(),
+            RATIONAL_2F.getValuationTime(), RATIONAL_2F.getValuationZone(), 
+            DoubleArray.of(0.75, 0.50, 0.00, 0.45, 0.012, 0.03, 0.00, 0.0020), fixed);
+    SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator calibrator = 
+            SingleCurrencyModelCapFloorLeastSquareBachelierVolatilityCalibrator.of(template);
+    SingleCurrencyModelParameters calibrated = 
+        calibrator.calibrateConstraints(trades, MULTICURVE, PRICER_TRADE_GH);
+    assertTrue(calibrated.getParameters().equalWithTolerance(RATIONAL_2F.getParameters(), TOL_LS));
+  }
+
   /* Calibration at best of parameters a1 and kappa with a term structure. Recover a rational model smile.
    * Method with explicit constraints: calibrateConstraints. */
   public void two_factor_ts() {
@@ -15,6 +15,7 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.annotations.Test;
 
@@ -97,6 +98,7 @@ public class RationalCapFloorLeastSquarePriceCalibratorTest {
   
 
   private static final double TOL_LS = 1.0E-6;
+  private static final double TOL_PARALLEL = 1.0E-10;
 
   /* Calibration at best of parameters b_0(0) and eta with a smile. Recover a rational model smile. 
    * Method with explicit constraints: calibrateConstraints. */
@@ -134,6 +136,48 @@ public class RationalCapFloorLeastSquarePriceCalibratorTest {
     assertTrue(calibrated.getParameters().equalWithTolerance(RATIONAL_2F.getParameters(), TOL_LS));
   }
 
+  /* Calibration with the trades priced in parallel. Identical to the sequential calibration. */
+  public void two_factor_smile_rat_parallel() {
+    int maturityIndex = 4;
+    LocalDate spot = EUR_EURIBOR_6M.calculateEffectiveFromFixing(VALUATION_DATE, REF_DATA);
+    LocalDate maturity = spot.plus(MATURITIES_PER[maturityIndex]);
+    List<ResolvedIborCapFloorTrade> trades = new ArrayList<>();
+    for (int k = 0; k < NB_STRIKES; k++) {
+      IborCapFloor cap = cap(spot, maturity, STRIKES[k]);
+      MultiCurrencyAmount pvLeg = PRICER_PRODUCT.presentValue(cap.resolve(REF_DATA), MULTICURVE, RATIONAL_2F);
+      AdjustablePayment premium = 
+          AdjustablePayment.of(pvLeg.getAmount(EUR).multipliedBy(-1.0).plus(100.0 * k), VALUATION_DATE);
+      IborCapFloorTrade capTrade = IborCapFloorTrade.builder()
+          .product(cap)
+          .premium(premium)
+          .info(TradeInfo.of(VALUATION_DATE)).build();
+      trades.add(capTrade.resolve(REF_DATA));
+    }
+    BitSet fixed = new BitSet(8);
+    fixed.set(0); // a1
+    fixed.set(1); // a2
+    fixed.set(2); // correlation
+    fixed.set(5); // kappa
+    fixed.set(6); // c1
+    fixed.set(7); // c2
+    RationalTwoFactorHWShapePlusCstTemplate template =
+        RationalTwoFactorHWShapePlusCstTemplate
+        .of(RATIONAL_2F.getTimeMeasure(), RATIONAL_2F.getDiscountFactors(),
+            RATIONAL_2F.getValuationTime(), RATIONAL_2F.getValuationZone(), 
+            DoubleArray.of(0.75, 0.50, 0.00, 0.45, 0.012, 0.03, 0.00, 0.0020), fixed);
+    SingleCurrencyModelParameters calibratedSequential = SingleCurrencyModelCapFloorLeastSquarePriceCalibrator
+        .of(template).calibrateConstraints(trades, MULTICURVE, PRICER_TRADE);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      SingleCurrencyModelParameters calibratedParallel = SingleCurrencyModelCapFloorLeastSquarePriceCalibrator
+          .of(template, pool).calibrateConstraints(trades, MULTICURVE, PRICER_TRADE);
+      assertTrue(calibratedParallel.getParameters()
+          .equalWithTolerance(calibratedSequential.getParameters(), TOL_PARALLEL));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   /* Calibration at best of parameters a1 and kappa with a term structure. Recover a rational model smile.
    * Method with explicit constraints: calibrateConstraints. */
   public void two_factor_ts() {
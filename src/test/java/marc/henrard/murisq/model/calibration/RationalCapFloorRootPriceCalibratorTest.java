@@ -43,6 +43,7 @@ import com.opengamma.strata.product.swap.IborRateCalculation;
 
 import marc.henrard.murisq.dataset.MulticurveStandardEurDataSet;
 import marc.henrard.murisq.dataset.RationalParametersDataSet;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.CalibrationWarmStart;
 import marc.henrard.murisq.model.calibration.SingleCurrencyModelCapFloorLeastSquarePriceCalibrator;
 import marc.henrard.murisq.model.calibration.SingleCurrencyModelCapFloorRootPriceCalibrator;
 import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
@@ -94,22 +95,82 @@ public class RationalCapFloorRootPriceCalibratorTest {
   private static final double NOTIONAL = 1_000_000.0d;
   
   private static final double TOL_ROOT = 1.0E-5;
+  private static final double TOL_PV = 1.0E-1; // Root-finder absolute tolerance
+  private static final double TOL_JACOBIAN = 1.0E-10;
 
   /* Calibration exact of eta and kappa to a term structure of 2 prices. */
   public void two_factor_ts() {
+    List<ResolvedIborCapFloorTrade> trades = trades(1.0d);
+    RationalTwoFactorHWShapePlusCstTemplate template = template();
+    assertEquals(template.parametersCount(), RATIONAL_2F.getParameterCount());
+    assertEquals(template.parametersVariableCount(), 2);
+    SingleCurrencyModelCapFloorRootPriceCalibrator calibrator =
+        SingleCurrencyModelCapFloorRootPriceCalibrator.of(template);
+    SingleCurrencyModelParameters calibrated = 
+        calibrator.calibrateConstraints(trades, MULTICURVE, PRICER_TRADE);
+    assertTrue(calibrated.getParameters().equalWithTolerance(RATIONAL_2F.getParameters(), TOL_ROOT));
+  }
+
+  /* Calibration with warm-start cache: cold start, unchanged market and moved market. */
+  public void two_factor_ts_warm_start() {
+    List<ResolvedIborCapFloorTrade> trades = trades(1.0d);
+    SingleCurrencyModelCapFloorRootPriceCalibrator calibrator =
+        SingleCurrencyModelCapFloorRootPriceCalibrator.of(template());
+    CalibrationWarmStartCache cache = CalibrationWarmStartCache.of(10);
+    List<Object> key = calibrator.warmStartKey(trades, PRICER_TRADE);
+    SingleCurrencyModelParameters calibratedCold = 
+        calibrator.calibrateConstraints(trades, MULTICURVE, PRICER_TRADE);
+    SingleCurrencyModelParameters calibratedFirst = 
+        calibrator.calibrateConstraints(trades, MULTICURVE, PRICER_TRADE, cache);
+    assertEquals(calibratedFirst.getParameters(), calibratedCold.getParameters());
+    assertEquals(cache.size(), 1);
+    CalibrationWarmStart warmStartFirst = cache.get(key).get();
+    assertTrue(warmStartFirst.getJacobian().isPresent());
+    // Unchanged market: the stored solution is returned without root-finding
+    DoubleArray solutionFake = warmStartFirst.getSolution().plus(0.001);
+    cache.put(key, CalibrationWarmStart.of(
+        warmStartFirst.getFingerprint(), solutionFake, warmStartFirst.getJacobian()));
+    SingleCurrencyModelParameters calibratedSame = 
+        calibrator.calibrateConstraints(trades, MULTICURVE, PRICER_TRADE, cache);
+    assertEquals(calibratedSame.getParameters().get(4), solutionFake.get(0));
+    assertEquals(calibratedSame.getParameters().get(5), solutionFake.get(1));
+    cache.put(key, warmStartFirst);
+    // Moved market: root-finding from the stored solution and the Jacobian stored at the new solution
+    List<ResolvedIborCapFloorTrade> tradesMoved = trades(1.01d);
+    SingleCurrencyModelParameters calibratedMoved = 
+        calibrator.calibrateConstraints(tradesMoved, MULTICURVE, PRICER_TRADE, cache);
+    assertEquals(cache.size(), 1);
+    for (ResolvedIborCapFloorTrade trade : tradesMoved) {
+      assertEquals(PRICER_TRADE.presentValue(trade, MULTICURVE, calibratedMoved).getAmount(EUR).getAmount(), 
+          0.0d, TOL_PV);
+    }
+    CalibrationWarmStart warmStartMoved = cache.get(key).get();
+    assertTrue(warmStartMoved.getJacobian().isPresent());
+    assertTrue(!warmStartMoved.getJacobian().get()
+        .equalWithTolerance(warmStartFirst.getJacobian().get(), TOL_JACOBIAN));
+  }
+
+  // Cap trades with premiums equal to the factor times the model present values
+  private static List<ResolvedIborCapFloorTrade> trades(double premiumFactor) {
     LocalDate spot = EUR_EURIBOR_6M.calculateEffectiveFromFixing(VALUATION_DATE, REF_DATA);
     List<ResolvedIborCapFloorTrade> trades = new ArrayList<>();
     for (int i = 0; i < NB_MATURITIES; i++) {
       LocalDate maturity = spot.plus(MATURITIES_PER[i]);
       IborCapFloor cap = cap(spot, maturity, STRIKE);
       MultiCurrencyAmount pvLeg = PRICER_PRODUCT.presentValue(cap.resolve(REF_DATA), MULTICURVE, RATIONAL_2F);
-      AdjustablePayment premium = AdjustablePayment.of(pvLeg.getAmount(EUR).multipliedBy(-1.0), VALUATION_DATE);
+      AdjustablePayment premium =
+          AdjustablePayment.of(pvLeg.getAmount(EUR).multipliedBy(-premiumFactor), VALUATION_DATE);
       IborCapFloorTrade capTrade = IborCapFloorTrade.builder()
           .product(cap)
           .premium(premium)
           .info(TradeInfo.of(VALUATION_DATE)).build();
       trades.add(capTrade.resolve(REF_DATA));
     }
+    return trades;
+  }
+
+  // Template with eta and kappa calibrated, initial guess shifted from the model parameters
+  private static RationalTwoFactorHWShapePlusCstTemplate template() {
     BitSet fixed = new BitSet(8);
     fixed.set(0); // a1
     fixed.set(1); // a2
@@ -119,21 +180,13 @@ public class RationalCapFloorRootPriceCalibratorTest {
 //    fixed.set(5); // kappa
     fixed.set(6); // c1
     fixed.set(7); // c2
-    RationalTwoFactorHWShapePlusCstTemplate template =
-        RationalTwoFactorHWShapePlusCstTemplate
-            .of(RATIONAL_2F.getTimeMeasure(), RATIONAL_2F.getDiscountFactors(),
-                RATIONAL_2F.getValuationTime(), RATIONAL_2F.getValuationZone(),
-                DoubleArray.of(RATIONAL_2F.a1(), RATIONAL_2F.a2(), RATIONAL_2F.getCorrelation(),
-                    RATIONAL_2F.getB00(), RATIONAL_2F.getEta() + 0.0002, RATIONAL_2F.getKappa() + 0.0001,
-                    RATIONAL_2F.getC1(), RATIONAL_2F.getC2()),
-                fixed);
-    assertEquals(template.parametersCount(), RATIONAL_2F.getParameterCount());
-    assertEquals(template.parametersVariableCount(), 2);
-    SingleCurrencyModelCapFloorRootPriceCalibrator calibrator =
-        SingleCurrencyModelCapFloorRootPriceCalibrator.of(template);
-    SingleCurrencyModelParameters calibrated = 
-        calibrator.calibrateConstraints(trades, MULTICURVE, PRICER_TRADE);
-    assertTrue(calibrated.getParameters().equalWithTolerance(RATIONAL_2F.getParameters(), TOL_ROOT));
+    return RationalTwoFactorHWShapePlusCstTemplate
+        .of(RATIONAL_2F.getTimeMeasure(), RATIONAL_2F.getDiscountFactors(),
+            RATIONAL_2F.getValuationTime(), RATIONAL_2F.getValuationZone(),
+            DoubleArray.of(RATIONAL_2F.a1(), RATIONAL_2F.a2(), RATIONAL_2F.getCorrelation(),
+                RATIONAL_2F.getB00(), RATIONAL_2F.getEta() + 0.0002, RATIONAL_2F.getKappa() + 0.0001,
+                RATIONAL_2F.getC1(), RATIONAL_2F.getC2()),
+            fixed);
   }
   
   private static IborCapFloor cap(LocalDate spot, LocalDate maturity, double strike) {
@@ -0,0 +1,375 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.calibration;
+
+import static com.opengamma.strata.basics.currency.Currency.EUR;
+import static com.opengamma.strata.basics.date.HolidayCalendarIds.EUTA;
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_6M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.AdjustablePayment;
+import com.opengamma.strata.basics.currency.MultiCurrencyAmount;
+import com.opengamma.strata.basics.date.BusinessDayAdjustment;
+import com.opengamma.strata.basics.date.BusinessDayConventions;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.schedule.Frequency;
+import com.opengamma.strata.basics.schedule.PeriodicSchedule;
+import com.opengamma.strata.basics.schedule.RollConventions;
+import com.opengamma.strata.basics.schedule.StubConvention;
+import com.opengamma.strata.basics.value.ValueSchedule;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.io.ResourceLocator;
+import com.opengamma.strata.collect.result.Result;
+import com.opengamma.strata.data.MarketData;
+import com.opengamma.strata.loader.csv.QuotesCsvLoader;
+import com.opengamma.strata.loader.csv.RatesCalibrationCsvLoader;
+import com.opengamma.strata.market.curve.CurveGroupName;
+import com.opengamma.strata.market.curve.RatesCurveGroupDefinition;
+import com.opengamma.strata.pricer.DiscountingPaymentPricer;
+import com.opengamma.strata.pricer.curve.RatesCurveCalibrator;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapLegPricer;
+import com.opengamma.strata.product.TradeInfo;
+import com.opengamma.strata.product.capfloor.IborCapFloor;
+import com.opengamma.strata.product.capfloor.IborCapFloorLeg;
+import com.opengamma.strata.product.capfloor.IborCapFloorTrade;
+import com.opengamma.strata.product.capfloor.ResolvedIborCapFloorTrade;
+import com.opengamma.strata.product.common.PayReceive;
+import com.opengamma.strata.product.swap.IborRateCalculation;
+
+import marc.henrard.murisq.dataset.RationalParametersDataSet;
+import marc.henrard.murisq.model.generic.SingleCurrencyModelTemplate;
+import marc.henrard.murisq.model.rationalmulticurve.RationalTwoFactorHWShapePlusCstParameters;
+import marc.henrard.murisq.model.rationalmulticurve.RationalTwoFactorHWShapePlusCstTemplate;
+import marc.henrard.murisq.pricer.capfloor.RationalTwoFactorCapletFloorletPeriodSemiExplicitPricer;
+import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorLegPricer;
+import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorProductPricer;
+import marc.henrard.murisq.pricer.capfloor.SingleCurrencyModelCapFloorTradePricer;
+
+/**
+ * Tests {@link SingleCurrencyModelCapFloorBacktestRunner}.
+ *
+ * @author Marc Henrard
+ */
+public class SingleCurrencyModelCapFloorBacktestRunnerTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUTA);
+  private static final LocalTime VALUATION_TIME = LocalTime.of(11, 0);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/Brussels");
+  private static final BusinessDayAdjustment BUSINESS_ADJ = BusinessDayAdjustment.of(
+      BusinessDayConventions.MODIFIED_FOLLOWING, EUTA);
+
+  /* Curves */
+  private static final String PATH_CONFIG = "src/test/resources/curve-config/";
+  private static final String FILE_QUOTES = "src/test/resources/quotes/MARKET-QUOTES-EUR-Standard-20170906.csv";
+  private static final String QUOTES_DATE = "2017-09-06";
+  private static final String CURVE_GROUP_NAME_STR = "EUR-DSCEONIAOIS-E3MIRS-E6MIRS";
+  private static final RatesCurveGroupDefinition GROUP_DEFINITION = RatesCalibrationCsvLoader
+      .load(ResourceLocator.of(PATH_CONFIG + CURVE_GROUP_NAME_STR + "/" + CURVE_GROUP_NAME_STR + "-group.csv"),
+          ResourceLocator.of(PATH_CONFIG + CURVE_GROUP_NAME_STR + "/" + CURVE_GROUP_NAME_STR + "-settings-linear.csv"),
+          ResourceLocator.of(PATH_CONFIG + CURVE_GROUP_NAME_STR + "/" + CURVE_GROUP_NAME_STR + "-nodes-standard.csv"))
+      .get(CurveGroupName.of(CURVE_GROUP_NAME_STR));
+  private static final RatesCurveCalibrator CURVE_CALIBRATOR = RatesCurveCalibrator.standard();
+  private static final LocalDate START_DATE = LocalDate.of(2017, 9, 6);
+  private static final LocalDate END_DATE = LocalDate.of(2017, 9, 12);
+  private static final LocalDate END_DATE_EXTENDED = LocalDate.of(2017, 9, 13);
+
+  /* Pricers */
+  private static final SingleCurrencyModelCapFloorProductPricer PRICER_PRODUCT =
+      new SingleCurrencyModelCapFloorProductPricer(
+          new SingleCurrencyModelCapFloorLegPricer(RationalTwoFactorCapletFloorletPeriodSemiExplicitPricer.DEFAULT),
+          DiscountingSwapLegPricer.DEFAULT);
+  private static final SingleCurrencyModelCapFloorTradePricer PRICER_TRADE =
+      new SingleCurrencyModelCapFloorTradePricer(PRICER_PRODUCT, DiscountingPaymentPricer.DEFAULT);
+
+  /* Calibration */
+  private static final double[] STRIKES = new double[] {-0.0025, 0.0000, 0.0050, 0.0100, 0.0150, 0.0200};
+  private static final double NOTIONAL = 100_000_000.0d;
+  private static final DoubleArray INITIAL_GUESS = DoubleArray.of(0.75, 0.50, 0.00, 0.45, 0.012, 0.03, 0.00, 0.0020);
+  private static final BitSet FIXED = new BitSet(8);
+  static {
+    FIXED.set(0); // a1
+    FIXED.set(1); // a2
+    FIXED.set(2); // correlation
+    FIXED.set(5); // kappa
+    FIXED.set(6); // c1
+    FIXED.set(7); // c2
+  }
+
+  /* Tests */
+  private static final double TOL_LS = 1.0E-6;
+
+  @TempDir
+  Path directory;
+
+  /* Each date recovers the rational model used to generate the prices. The rows are written in the output file.
+   * The warm starts are chained in each partition. */
+  @Test
+  public void run() throws IOException {
+    Path output = directory.resolve("backtest.csv");
+    AtomicInteger nbWarmStarts = new AtomicInteger();
+    SingleCurrencyModelCapFloorBacktestRunner runner = runner(new AtomicInteger(), nbWarmStarts);
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      ImmutableSortedMap<LocalDate, Result<DoubleArray>> results =
+          runner.run(START_DATE, END_DATE, EUTA_IMPL, output, 2, pool);
+      assertThat(results.keySet()).containsExactly(LocalDate.of(2017, 9, 6), LocalDate.of(2017, 9, 7),
+          LocalDate.of(2017, 9, 8), LocalDate.of(2017, 9, 11), LocalDate.of(2017, 9, 12));
+      ImmutableSortedMap<LocalDate, DoubleArray> checkpoint =
+          SingleCurrencyModelCapFloorBacktestRunner.checkpoint(output);
+      assertThat(checkpoint.keySet()).isEqualTo(results.keySet());
+      for (Map.Entry<LocalDate, Result<DoubleArray>> entry : results.entrySet()) {
+        assertThat(entry.getValue().isSuccess()).isTrue();
+        DoubleArray expected = rational(multicurve(entry.getKey())).getParameters();
+        assertThat(entry.getValue().getValue().equalWithTolerance(expected, TOL_LS)).isTrue();
+        assertThat(checkpoint.get(entry.getKey())).isEqualTo(entry.getValue().getValue());
+      }
+      assertThat(nbWarmStarts.get()).isEqualTo(3); // 2 partitions for 5 dates
+      List<String> lines = Files.readAllLines(output);
+      assertThat(lines).hasSize(6); // header and one row by date
+      List<LocalDate> datesWritten = new ArrayList<>();
+      for (String line : lines.subList(1, lines.size())) {
+        datesWritten.add(LocalDate.parse(line.substring(0, line.indexOf(','))));
+      }
+      assertThat(datesWritten).containsExactlyElementsOf(results.keySet()); // in date order
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /* The dates in the output file are not calibrated again. */
+  @Test
+  public void resume() throws IOException {
+    Path output = directory.resolve("backtest-resume.csv");
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      ImmutableSortedMap<LocalDate, Result<DoubleArray>> results =
+          runner(new AtomicInteger(), new AtomicInteger()).run(START_DATE, END_DATE, EUTA_IMPL, output, 2, pool);
+      AtomicInteger nbCalibrations = new AtomicInteger();
+      SingleCurrencyModelCapFloorBacktestRunner runner = runner(nbCalibrations, new AtomicInteger());
+      assertThat(runner.run(START_DATE, END_DATE, EUTA_IMPL, output, 2, pool)).isEqualTo(results);
+      assertThat(nbCalibrations.get()).isEqualTo(0);
+      ImmutableSortedMap<LocalDate, Result<DoubleArray>> resultsExtended =
+          runner.run(START_DATE, END_DATE_EXTENDED, EUTA_IMPL, output, 2, pool);
+      assertThat(nbCalibrations.get()).isEqualTo(1);
+      assertThat(resultsExtended).hasSize(6);
+      assertThat(resultsExtended.headMap(END_DATE_EXTENDED)).isEqualTo(results);
+      assertThat(Files.readAllLines(output)).hasSize(7);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /* The first date of a new partition starts from the closest earlier date of the checkpoint. */
+  @Test
+  public void resume_warm_start() throws IOException {
+    Path output = directory.resolve("backtest-resume-warm.csv");
+    Map<LocalDate, Optional<DoubleArray>> previousByDate = new ConcurrentHashMap<>();
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      ImmutableSortedMap<LocalDate, Result<DoubleArray>> results =
+          runner(new AtomicInteger(), new AtomicInteger()).run(START_DATE, END_DATE, EUTA_IMPL, output, 2, pool);
+      runner(date -> ResourceLocator.ofPath(quotesFile(date)), new AtomicInteger(), new AtomicInteger(),
+          previousByDate).run(START_DATE, END_DATE_EXTENDED, EUTA_IMPL, output, 2, pool);
+      assertThat(previousByDate).containsOnlyKeys(END_DATE_EXTENDED);
+      assertThat(previousByDate.get(END_DATE_EXTENDED)).contains(results.get(END_DATE).getValue());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /* An incomplete last row is ignored by the checkpoint and replaced on restart. */
+  @Test
+  public void resume_incomplete_row() throws IOException {
+    Path output = directory.resolve("backtest-incomplete.csv");
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      ImmutableSortedMap<LocalDate, Result<DoubleArray>> results =
+          runner(new AtomicInteger(), new AtomicInteger()).run(START_DATE, END_DATE, EUTA_IMPL, output, 2, pool);
+      Files.write(output, (END_DATE_EXTENDED.toString() + ",0.75,0.5").getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.APPEND);
+      assertThat(SingleCurrencyModelCapFloorBacktestRunner.checkpoint(output).keySet())
+          .isEqualTo(results.keySet());
+      AtomicInteger nbCalibrations = new AtomicInteger();
+      ImmutableSortedMap<LocalDate, Result<DoubleArray>> resultsExtended = runner(nbCalibrations, new AtomicInteger())
+          .run(START_DATE, END_DATE_EXTENDED, EUTA_IMPL, output, 2, pool);
+      assertThat(nbCalibrations.get()).isEqualTo(1);
+      assertThat(resultsExtended.get(END_DATE_EXTENDED).isSuccess()).isTrue();
+      assertThat(Files.readAllLines(output)).hasSize(7);
+      assertThat(SingleCurrencyModelCapFloorBacktestRunner.checkpoint(output).get(END_DATE_EXTENDED))
+          .isEqualTo(resultsExtended.get(END_DATE_EXTENDED).getValue());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /* A complete row with a number of fields different from the header is rejected. */
+  @Test
+  public void checkpoint_wrong_field_count() throws IOException {
+    Path output = directory.resolve("backtest-wrong.csv");
+    Files.write(output, Arrays.asList(
+        SingleCurrencyModelCapFloorBacktestRunner.HEADER_DATE + ",p0,p1", "2017-09-06,0.75,0.5", "2017-09-07,0.75"));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> SingleCurrencyModelCapFloorBacktestRunner.checkpoint(output));
+  }
+
+  /* The failure of one date, due to a missing quotes file, is returned and does not stop the back-test.
+   * The next date starts from the last date successfully calibrated. The failed date is calibrated on restart. */
+  @Test
+  public void failure() throws IOException {
+    Path output = directory.resolve("backtest-failure.csv");
+    LocalDate dateFailed = LocalDate.of(2017, 9, 7);
+    Function<LocalDate, ResourceLocator> quotesMissing = date -> ResourceLocator.ofPath(
+        date.equals(dateFailed) ? directory.resolve("quotes-missing.csv") : quotesFile(date));
+    Map<LocalDate, Optional<DoubleArray>> previousByDate = new ConcurrentHashMap<>();
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      ImmutableSortedMap<LocalDate, Result<DoubleArray>> results =
+          runner(quotesMissing, new AtomicInteger(), new AtomicInteger(), previousByDate)
+              .run(START_DATE, END_DATE, EUTA_IMPL, output, 1, pool);
+      assertThat(results).hasSize(5);
+      assertThat(results.get(dateFailed).isFailure()).isTrue();
+      for (Map.Entry<LocalDate, Result<DoubleArray>> entry : results.entrySet()) {
+        assertThat(entry.getValue().isSuccess()).isEqualTo(!entry.getKey().equals(dateFailed));
+      }
+      assertThat(previousByDate.get(LocalDate.of(2017, 9, 8)))
+          .contains(results.get(LocalDate.of(2017, 9, 6)).getValue());
+      assertThat(Files.readAllLines(output)).hasSize(5); // header and one row by successful date
+      assertThat(SingleCurrencyModelCapFloorBacktestRunner.checkpoint(output)).doesNotContainKey(dateFailed);
+      AtomicInteger nbCalibrations = new AtomicInteger();
+      ImmutableSortedMap<LocalDate, Result<DoubleArray>> resultsRestart = runner(nbCalibrations, new AtomicInteger())
+          .run(START_DATE, END_DATE, EUTA_IMPL, output, 1, pool);
+      assertThat(nbCalibrations.get()).isEqualTo(1);
+      assertThat(resultsRestart.get(dateFailed).isSuccess()).isTrue();
+      assertThat(Files.readAllLines(output)).hasSize(6);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // Runner counting the calibrations and the warm starts
+  private SingleCurrencyModelCapFloorBacktestRunner runner(AtomicInteger nbCalibrations, AtomicInteger nbWarmStarts) {
+    return runner(date -> ResourceLocator.ofPath(quotesFile(date)), nbCalibrations, nbWarmStarts,
+        new ConcurrentHashMap<>());
+  }
+
+  // Runner counting the calibrations and the warm starts, and recording the previous parameters of each date
+  private SingleCurrencyModelCapFloorBacktestRunner runner(
+      Function<LocalDate, ResourceLocator> quotes,
+      AtomicInteger nbCalibrations,
+      AtomicInteger nbWarmStarts,
+      Map<LocalDate, Optional<DoubleArray>> previousByDate) {
+
+    return SingleCurrencyModelCapFloorBacktestRunner.of(
+        GROUP_DEFINITION,
+        quotes,
+        (date, multicurve) -> {
+          nbCalibrations.incrementAndGet();
+          return trades(date, multicurve);
+        },
+        (multicurve, previous) -> {
+          if (previous.isPresent()) {
+            nbWarmStarts.incrementAndGet();
+          }
+          previousByDate.put(multicurve.getValuationDate(), previous);
+          return template(multicurve, previous);
+        },
+        PRICER_TRADE,
+        REF_DATA);
+  }
+
+  // Quotes of the reference date with the valuation date replaced
+  private Path quotesFile(LocalDate date) {
+    Path file = directory.resolve("quotes-" + date.format(DateTimeFormatter.BASIC_ISO_DATE) + ".csv");
+    try {
+      List<String> lines = new ArrayList<>();
+      for (String line : Files.readAllLines(Paths.get(FILE_QUOTES))) {
+        lines.add(line.startsWith(QUOTES_DATE) ? date.toString() + line.substring(QUOTES_DATE.length()) : line);
+      }
+      Files.write(file, lines);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return file;
+  }
+
+  private RatesProvider multicurve(LocalDate date) {
+    MarketData marketData =
+        MarketData.of(date, QuotesCsvLoader.load(date, ResourceLocator.ofPath(quotesFile(date))));
+    return CURVE_CALIBRATOR.calibrate(GROUP_DEFINITION, marketData, REF_DATA);
+  }
+
+  private static RationalTwoFactorHWShapePlusCstParameters rational(RatesProvider multicurve) {
+    return RationalParametersDataSet
+        .twoFactorHWShaped(VALUATION_TIME, VALUATION_ZONE, multicurve.discountFactors(EUR));
+  }
+
+  private static SingleCurrencyModelTemplate template(RatesProvider multicurve, Optional<DoubleArray> previous) {
+    RationalTwoFactorHWShapePlusCstParameters rational = rational(multicurve);
+    return RationalTwoFactorHWShapePlusCstTemplate.of(rational.getTimeMeasure(), rational.getDiscountFactors(),
+        VALUATION_TIME, VALUATION_ZONE, previous.orElse(INITIAL_GUESS), FIXED);
+  }
+
+  // Caps with the premiums given by the rational model
+  private static List<ResolvedIborCapFloorTrade> trades(LocalDate date, RatesProvider multicurve) {
+    RationalTwoFactorHWShapePlusCstParameters rational = rational(multicurve);
+    LocalDate spot = EUR_EURIBOR_6M.calculateEffectiveFromFixing(date, REF_DATA);
+    LocalDate maturity = spot.plusYears(5);
+    List<ResolvedIborCapFloorTrade> trades = new ArrayList<>();
+    for (double strike : STRIKES) {
+      IborCapFloor cap = cap(spot, maturity, strike);
+      MultiCurrencyAmount pvLeg = PRICER_PRODUCT.presentValue(cap.resolve(REF_DATA), multicurve, rational);
+      AdjustablePayment premium = AdjustablePayment.of(pvLeg.getAmount(EUR).multipliedBy(-1.0), date);
+      IborCapFloorTrade capTrade = IborCapFloorTrade.builder()
+          .product(cap)
+          .premium(premium)
+          .info(TradeInfo.of(date)).build();
+      trades.add(capTrade.resolve(REF_DATA));
+    }
+    return trades;
+  }
+
+  private static IborCapFloor cap(LocalDate spot, LocalDate maturity, double strike) {
+    PeriodicSchedule paySchedule =
+        PeriodicSchedule.of(spot, maturity, Frequency.P6M, BUSINESS_ADJ, StubConvention.NONE,
+            RollConventions.NONE);
+    IborCapFloorLeg leg = IborCapFloorLeg.builder()
+        .currency(EUR)
+        .calculation(IborRateCalculation.of(EUR_EURIBOR_6M))
+        .capSchedule(ValueSchedule.of(strike))
+        .notional(ValueSchedule.of(NOTIONAL))
+        .paymentSchedule(paySchedule)
+        .payReceive(PayReceive.RECEIVE).build();
+    return IborCapFloor.of(leg);
+  }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.g2pp;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+
+/**
+ * Tests {@link G2ppMonteCarloEvolution}.
+ * 
+ * @author Marc Henrard
+ */
+public class G2ppMonteCarloEvolutionTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  private static final G2ppPiecewiseConstantParameters PARAMETERS_G2PP =
+      G2ppPiecewiseConstantParameters.builder()
+          .currency(Currency.EUR)
+          .correlation(-0.50)
+          .kappa1(0.02)
+          .kappa2(0.20)
+          .volatility1(DoubleArray.of(0.010, 0.008, 0.012))
+          .volatility2(DoubleArray.of(0.005, 0.006, 0.004))
+          .volatilityTime(DoubleArray.of(1.0, 3.0))
+          .valuationDate(VALUATION_DATE)
+          .valuationTime(VALUATION_TIME)
+          .valuationZone(VALUATION_ZONE)
+          .timeMeasure(ScaledSecondTime.DEFAULT)
+          .build();
+  private static final List<LocalDate> DATES = new ArrayList<>();
+  static {
+    for (int i = 0; i <= 20; i++) {
+      DATES.add(VALUATION_DATE.plusMonths(6 * i + 6));
+    }
+  }
+  private static final G2ppPiecewiseConstantDeterministicSpreadParameters MODEL =
+      G2ppPiecewiseConstantDeterministicSpreadParameters
+          .of(PARAMETERS_G2PP, DATES, EUR_EONIA, EUR_EURIBOR_3M, MULTICURVE_EUR, 1.0E-4, REF_DATA);
+  private static final List<ZonedDateTime> STEPS = new ArrayList<>();
+  static {
+    STEPS.add(ZonedDateTime.of(VALUATION_DATE.plusMonths(6), VALUATION_TIME, VALUATION_ZONE));
+    STEPS.add(ZonedDateTime.of(VALUATION_DATE.plusMonths(30), VALUATION_TIME, VALUATION_ZONE));
+    STEPS.add(ZonedDateTime.of(VALUATION_DATE.plusMonths(60), VALUATION_TIME, VALUATION_ZONE));
+  }
+  private static final G2ppMonteCarloEvolution EVOLUTION = G2ppMonteCarloEvolution.DEFAULT;
+
+  /* The rebased discount factors are martingales: their means are the initial rebased discount factors. */
+  @Test
+  public void martingale() {
+    int nbPaths = 100_000;
+    MulticurveEquivalentValues initialValues = initialValues();
+    NormalRandomNumberGenerator rnd = new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0));
+    double[][] mean = new double[STEPS.size()][];
+    EVOLUTION.evolveMultiStepsStreaming(STEPS, initialValues, MODEL, rnd, nbPaths,
+        (step, values) -> {
+          mean[step] = new double[values.length];
+          for (int loopdate = 0; loopdate < values.length; loopdate++) {
+            for (int looppath = 0; looppath < nbPaths; looppath++) {
+              mean[step][loopdate] += values[loopdate][looppath];
+            }
+            mean[step][loopdate] /= nbPaths;
+          }
+        });
+    for (int loopstep = 0; loopstep < STEPS.size(); loopstep++) {
+      double stepTime = MODEL.relativeTime(STEPS.get(loopstep));
+      for (int loopdate = 0; loopdate < DATES.size(); loopdate++) {
+        if (MODEL.getIborTimes().get(loopdate) >= stepTime) {
+          double dfRebased0 =
+              initialValues.getOnRates().get(loopdate) / initialValues.getOnRates().get(DATES.size() - 1);
+          assertThat(mean[loopstep][loopdate] / dfRebased0)
+              .isEqualTo(1.0d, within(2.5E-3));
+        }
+      }
+    }
+  }
+
+  /* One step, multi-steps and streaming use the same random numbers. */
+  @Test
+  public void consistency() {
+    int nbPaths = 100;
+    MulticurveEquivalentValues initialValues = initialValues();
+    List<List<MulticurveEquivalentValues>> multi = EVOLUTION.evolveMultiSteps(STEPS, initialValues, MODEL,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths);
+    MonteCarloPathBuffer oneStep = EVOLUTION.evolveOneStepPaths(STEPS.get(0), initialValues, MODEL,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths);
+    EVOLUTION.evolveMultiStepsStreaming(STEPS, initialValues, MODEL,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths,
+        (step, values) -> {
+          for (int looppath = 0; looppath < nbPaths; looppath++) {
+            for (int loopdate = 0; loopdate < values.length; loopdate++) {
+              assertThat(values[loopdate][looppath])
+                  .isEqualTo(multi.get(looppath).get(step).getOnRates().get(loopdate));
+            }
+          }
+        });
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      for (int loopdate = 0; loopdate < DATES.size(); loopdate++) {
+        assertThat(oneStep.get(loopdate, looppath))
+            .isEqualTo(multi.get(looppath).get(0).getOnRates().get(loopdate));
+      }
+    }
+    assertThat(EVOLUTION.randomDimension(new double[STEPS.size()])).isEqualTo(2 * STEPS.size());
+  }
+
+  private static MulticurveEquivalentValues initialValues() {
+    double[] df = new double[DATES.size()];
+    for (int loopdate = 0; loopdate < DATES.size(); loopdate++) {
+      df[loopdate] = MULTICURVE_EUR.discountFactor(Currency.EUR, DATES.get(loopdate));
+    }
+    return MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(df)).build();
+  }
+
+}
@@ -58,4 +58,27 @@ public class HullWhiteOneFactorPiecewiseConstantMonteCarloUtilsTest {
     }
   }
   
+  /* Test stepCovariance v formulas: variance and mean of the short rate from 0, variance of x over a step. */
+  public void stepCovariance() {
+    double[] times = {0.25d, 1.0d, 1.5d, 4.5d, 10.0d};
+    double tolerance = 1.0E-12;
+    for (int looptime = 0; looptime < times.length; looptime++) {
+      double[] cov0 = 
+          HullWhiteOneFactorPiecewiseConstantMonteCarloUtils.stepCovariance(MODEL_PARAMETERS, 0.0d, times[looptime]);
+      assertEquals(cov0[0], HW_FORMULAS.shortRateVariance(MODEL_PARAMETERS, 0.0d, times[looptime]), tolerance);
+      assertEquals(cov0[1], HW_FORMULAS.shortRateMeanModelPart(MODEL_PARAMETERS, times[looptime]), tolerance);
+      if (looptime > 0) {
+        double[] cov = HullWhiteOneFactorPiecewiseConstantMonteCarloUtils
+            .stepCovariance(MODEL_PARAMETERS, times[looptime - 1], times[looptime]);
+        assertEquals(cov[0], 
+            HW_FORMULAS.shortRateVariance(MODEL_PARAMETERS, times[looptime - 1], times[looptime]), tolerance);
+        // Variance of the integral is additive: V(0,t2) = V(0,t1) + 2 B cov(0,t1) + B^2 var(0,t1) + V(t1,t2)
+        double[] cov01 = HullWhiteOneFactorPiecewiseConstantMonteCarloUtils
+            .stepCovariance(MODEL_PARAMETERS, 0.0d, times[looptime - 1]);
+        double b = (1.0d - Math.exp(-MEAN_REVERSION * (times[looptime] - times[looptime - 1]))) / MEAN_REVERSION;
+        assertEquals(cov0[2], cov01[2] + 2.0d * b * cov01[1] + b * b * cov01[0] + cov[2], tolerance);
+      }
+    }
+  }
+  
 }
@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.lmm;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+
+/**
+ * Tests {@link LiborMarketModelMonteCarloKernel}.
+ *
+ * @author Marc Henrard
+ */
+public class LiborMarketModelMonteCarloKernelTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+  private static final LocalDate VALUATION_DATE = MULTICURVE_EUR.getValuationDate();
+
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+
+  /* Model: 2 factors, quarterly dates over 6 years */
+  private static final List<LocalDate> IBOR_DATES = new ArrayList<>();
+  static {
+    for (int i = 1; i <= 25; i++) {
+      IBOR_DATES.add(EUTA_IMPL.nextOrSame(VALUATION_DATE.plusMonths(3 * i)));
+    }
+  }
+  private static final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters LMM =
+      LmmdddExamplesUtils.lmm2Angle(0.02, 0.09, Math.PI * 0.5, 0.06, 0.05, IBOR_DATES, EUR_EONIA, EUR_EURIBOR_3M,
+          ScaledSecondTime.DEFAULT, MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+
+  private static final int NB_PATHS = 500;
+  private static final double[] JUMP_TIMES = {0.0, 0.8, 1.6, 2.4, 3.0};
+  private static final Offset<Double> TOLERANCE_RATE = within(1.0E-12);
+
+  /* Compares the kernel with a direct implementation of the predictor-corrector scheme. */
+  @Test
+  public void step_reference() {
+    double[][] forwardsComputed = initialForwards();
+    LiborMarketModelMonteCarloKernel kernel = LiborMarketModelMonteCarloKernel.of(LMM);
+    assertThat(kernel.getModel()).isEqualTo(LMM);
+    kernel.step(JUMP_TIMES, forwardsComputed, generator());
+    double[][] forwardsExpected = stepReference(JUMP_TIMES, initialForwards(), generator());
+    for (int loopperiod = 0; loopperiod < forwardsExpected.length; loopperiod++) {
+      for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+        assertThat(forwardsComputed[loopperiod][looppath])
+            .isEqualTo(forwardsExpected[loopperiod][looppath], TOLERANCE_RATE);
+      }
+    }
+  }
+
+  /* The kernel can be reused, including with a different number of paths. */
+  @Test
+  public void step_reuse() {
+    LiborMarketModelMonteCarloKernel kernel = LiborMarketModelMonteCarloKernel.of(LMM);
+    double[][] forwards1 = initialForwards();
+    kernel.step(JUMP_TIMES, forwards1, generator());
+    double[][] forwardsSmall = new double[forwards1.length][10];
+    for (int loopperiod = 0; loopperiod < forwards1.length; loopperiod++) {
+      Arrays.fill(forwardsSmall[loopperiod], 0.01);
+    }
+    kernel.step(JUMP_TIMES, forwardsSmall, generator());
+    double[][] forwards2 = initialForwards();
+    kernel.step(JUMP_TIMES, forwards2, generator());
+    for (int loopperiod = 0; loopperiod < forwards1.length; loopperiod++) {
+      assertThat(forwards2[loopperiod]).containsExactly(forwards1[loopperiod]);
+    }
+  }
+
+  /* Long-step scheme: the last rate, without state dependent drift, has the exactly integrated covariance. */
+  @Test
+  public void long_step_last_rate() {
+    LiborMarketModelMonteCarloKernel kernel = LiborMarketModelMonteCarloKernel.of(LMM, true);
+    assertThat(kernel.isLongStep()).isTrue();
+    assertThat(LiborMarketModelMonteCarloKernel.of(LMM).isLongStep()).isFalse();
+    double[] jumpTimes = {0.0, JUMP_TIMES[JUMP_TIMES.length - 1]};
+    double[][] forwards = initialForwards();
+    kernel.step(jumpTimes, forwards, generator());
+    int last = LMM.getIborPeriodsCount() - 1;
+    double kappa = LMM.getMeanReversion();
+    double integral = (Math.exp(2.0d * kappa * jumpTimes[1]) - 1.0d) / (2.0d * kappa);
+    double[] gamma = LMM.getVolatilities().row(last).toArray();
+    double a = LMM.getDisplacements().get(last);
+    double f0 = initialForwards()[last][0];
+    RandomNumberGenerator generator = generator();
+    double[][] dw = new double[gamma.length][];
+    for (int loopfact = 0; loopfact < gamma.length; loopfact++) {
+      dw[loopfact] = generator.getVector(NB_PATHS);
+    }
+    for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+      double exponent = 0.0d;
+      for (int loopfact = 0; loopfact < gamma.length; loopfact++) {
+        exponent += gamma[loopfact] * Math.sqrt(integral) * dw[loopfact][looppath]
+            - 0.5d * gamma[loopfact] * gamma[loopfact] * integral;
+      }
+      assertThat(forwards[last][looppath]).isEqualTo((f0 + a) * Math.exp(exponent) - a, TOLERANCE_RATE);
+    }
+  }
+
+  /* The evolution step is the same as the kernel step. */
+  @Test
+  public void evolution_step() {
+    double[][] forwardsKernel = initialForwards();
+    LiborMarketModelMonteCarloKernel.of(LMM).step(JUMP_TIMES, forwardsKernel, generator());
+    double[][] forwardsEvolution = LiborMarketModelMonteCarloEvolution.DEFAULT
+        .stepPredictorCorrector(JUMP_TIMES, initialForwards(), LMM, generator());
+    for (int loopperiod = 0; loopperiod < forwardsKernel.length; loopperiod++) {
+      assertThat(forwardsEvolution[loopperiod]).containsExactly(forwardsKernel[loopperiod]);
+    }
+  }
+
+  /* A kernel reused for several blocks gives the same rates as a new kernel for each block, also when the
+   * number of jumps exceeds the initial capacity of the jump data. */
+  @Test
+  public void kernel_reuse() {
+    int nbJumps = 40;
+    double[] jumpTimes = new double[nbJumps + 1];
+    for (int loopjump = 0; loopjump <= nbJumps; loopjump++) {
+      jumpTimes[loopjump] = 3.0d * loopjump / nbJumps;
+    }
+    LiborMarketModelMonteCarloKernel kernel = LiborMarketModelMonteCarloKernel.of(LMM);
+    RandomNumberGenerator generatorReused = generator();
+    RandomNumberGenerator generatorNew = generator();
+    for (int loopblock = 0; loopblock < 3; loopblock++) {
+      double[][] forwardsReused = initialForwards();
+      kernel.step(jumpTimes, forwardsReused, generatorReused);
+      double[][] forwardsNew = initialForwards();
+      LiborMarketModelMonteCarloKernel.of(LMM).step(jumpTimes, forwardsNew, generatorNew);
+      for (int loopperiod = 0; loopperiod < forwardsNew.length; loopperiod++) {
+        assertThat(forwardsReused[loopperiod]).containsExactly(forwardsNew[loopperiod]);
+      }
+    }
+  }
+
+  /* The recorded evolution gives the same rates as the kernel step. */
+  @Test
+  public void tape_step() {
+    double[][] forwardsKernel = initialForwards();
+    LiborMarketModelMonteCarloKernel.of(LMM).step(JUMP_TIMES, forwardsKernel, generator());
+    LiborMarketModelMonteCarloTape tape = LiborMarketModelMonteCarloTape
+        .record(LiborMarketModelMonteCarloKernel.of(LMM), JUMP_TIMES, initialForwards(), generator());
+    assertThat(tape.getPathsCount()).isEqualTo(NB_PATHS);
+    for (int loopperiod = 0; loopperiod < forwardsKernel.length; loopperiod++) {
+      assertThat(tape.getForwardsEnd()[loopperiod]).containsExactly(forwardsKernel[loopperiod]);
+    }
+  }
+
+  /* Adjoint of the evolution compared to finite differences on a function of the final rates. */
+  @Test
+  public void tape_adjoint() {
+    int nbPeriods = LMM.getIborPeriodsCount();
+    int nbFactors = LMM.getFactorCount();
+    LiborMarketModelMonteCarloTape tape = LiborMarketModelMonteCarloTape
+        .record(LiborMarketModelMonteCarloKernel.of(LMM), JUMP_TIMES, initialForwards(), generator());
+    double[][] forwardsEnd = tape.getForwardsEnd();
+    double[][] forwardsEndBar = new double[nbPeriods][NB_PATHS];
+    for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+      for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+        forwardsEndBar[loopperiod][looppath] = 2.0 * (1.0 + loopperiod) * forwardsEnd[loopperiod][looppath];
+      }
+    }
+    double[] displacementsBar = new double[nbPeriods];
+    double[][] volatilitiesBar = new double[nbPeriods][nbFactors];
+    double[][] forwardsBar = tape.adjoint(forwardsEndBar, displacementsBar, volatilitiesBar);
+    double shift = 1.0E-6;
+    Offset<Double> tolerance = within(1.0E-5);
+    for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+      double[][] forwardsP = initialForwards();
+      double[][] forwardsM = initialForwards();
+      Arrays.fill(forwardsP[loopperiod], 0.001 * loopperiod + shift);
+      Arrays.fill(forwardsM[loopperiod], 0.001 * loopperiod - shift);
+      double fd = (functionEnd(LMM, forwardsP) - functionEnd(LMM, forwardsM)) / (2 * shift);
+      double ad = 0.0;
+      for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+        ad += forwardsBar[loopperiod][looppath];
+      }
+      assertThat(ad).isEqualTo(fd, tolerance);
+      double[] displacementsP = LMM.getDisplacements().toArray();
+      double[] displacementsM = LMM.getDisplacements().toArray();
+      displacementsP[loopperiod] += shift;
+      displacementsM[loopperiod] -= shift;
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmDisplacementP =
+          LMM.toBuilder().displacements(DoubleArray.ofUnsafe(displacementsP)).build();
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmDisplacementM =
+          LMM.toBuilder().displacements(DoubleArray.ofUnsafe(displacementsM)).build();
+      double fdDisplacement = (functionEnd(lmmDisplacementP, initialForwards()) -
+          functionEnd(lmmDisplacementM, initialForwards())) / (2 * shift);
+      assertThat(displacementsBar[loopperiod]).isEqualTo(fdDisplacement, tolerance);
+      for (int loopfact = 0; loopfact < nbFactors; loopfact++) {
+        double[][] volatilitiesP = LMM.getVolatilities().toArray();
+        double[][] volatilitiesM = LMM.getVolatilities().toArray();
+        volatilitiesP[loopperiod][loopfact] += shift;
+        volatilitiesM[loopperiod][loopfact] -= shift;
+        LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmVolatilityP =
+            LMM.toBuilder().volatilities(DoubleMatrix.ofUnsafe(volatilitiesP)).build();
+        LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmVolatilityM =
+            LMM.toBuilder().volatilities(DoubleMatrix.ofUnsafe(volatilitiesM)).build();
+        double fdVolatility = (functionEnd(lmmVolatilityP, initialForwards()) -
+            functionEnd(lmmVolatilityM, initialForwards())) / (2 * shift);
+        assertThat(volatilitiesBar[loopperiod][loopfact]).isEqualTo(fdVolatility, tolerance);
+      }
+    }
+  }
+
+  // Function of the final rates used for the adjoint test: sum of (1+i) * f_i^2 over periods and paths
+  private static double functionEnd(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm,
+      double[][] initForwards) {
+
+    LiborMarketModelMonteCarloTape tape = LiborMarketModelMonteCarloTape
+        .record(LiborMarketModelMonteCarloKernel.of(lmm), JUMP_TIMES, initForwards, generator());
+    double[][] forwardsEnd = tape.getForwardsEnd();
+    double value = 0.0;
+    for (int loopperiod = 0; loopperiod < forwardsEnd.length; loopperiod++) {
+      for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+        value += (1.0 + loopperiod) * forwardsEnd[loopperiod][looppath] * forwardsEnd[loopperiod][looppath];
+      }
+    }
+    return value;
+  }
+
+  private static RandomNumberGenerator generator() {
+    return new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0));
+  }
+
+  private static double[][] initialForwards() {
+    int nbPeriods = LMM.getIborPeriodsCount();
+    double[][] forwards = new double[nbPeriods][NB_PATHS];
+    for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod++) {
+      Arrays.fill(forwards[loopperiod], 0.001 * loopperiod);
+    }
+    return forwards;
+  }
+
+  // Direct implementation of the scheme, without precomputation
+  private static double[][] stepReference(double[] jumpTimes, double[][] f, RandomNumberGenerator generator) {
+    double amr = LMM.getMeanReversion();
+    double[] iborTimes = LMM.getIborTimes().toArrayUnsafe();
+    double[] almm = LMM.getDisplacements().toArrayUnsafe();
+    double[] deltalmm = LMM.getAccrualFactors().toArrayUnsafe();
+    double[][] gamma = LMM.getVolatilities().toArrayUnsafe();
+    int nbPeriod = LMM.getIborPeriodsCount();
+    int nbFactor = LMM.getFactorCount();
+    int nbPath = f[0].length;
+    for (int loopjump = 0; loopjump < jumpTimes.length - 1; loopjump++) {
+      double dt = jumpTimes[loopjump + 1] - jumpTimes[loopjump];
+      double alpha = Math.exp(amr * jumpTimes[loopjump + 1]);
+      int index = Arrays.binarySearch(iborTimes, jumpTimes[loopjump + 1] - LMM.getTimeTolerance());
+      if (index < 0) {
+        index = -index - 1;
+      }
+      double[][] dw = new double[nbFactor][];
+      for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+        dw[loopfact] = generator.getVector(nbPath);
+      }
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        double[] fPredict = new double[nbPeriod];
+        for (int loopn = index; loopn < nbPeriod; loopn++) {
+          fPredict[loopn] = f[loopn][looppath];
+        }
+        for (int loopn = nbPeriod - 1; loopn >= index; loopn--) {
+          double cc = 0.0;
+          double s2 = 0.0;
+          for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+            cc += gamma[loopn][loopfact] * dw[loopfact][looppath] * Math.sqrt(dt) * alpha;
+            s2 += gamma[loopn][loopfact] * gamma[loopn][loopfact];
+          }
+          double mu = 0.0;
+          for (int loop = loopn + 1; loop < nbPeriod; loop++) {
+            double s = 0.0;
+            for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+              s += gamma[loop][loopfact] * gamma[loopn][loopfact];
+            }
+            s *= alpha * alpha;
+            mu += s * (fPredict[loop] + almm[loop]) / (fPredict[loop] + 1.0 / deltalmm[loop]);
+            mu += s * (f[loop][looppath] + almm[loop]) / (f[loop][looppath] + 1.0 / deltalmm[loop]);
+          }
+          f[loopn][looppath] = (f[loopn][looppath] + almm[loopn]) *
+              Math.exp(-0.5 * mu * dt - 0.5 * s2 * alpha * alpha * dt + cc) - almm[loopn];
+        }
+      }
+    }
+    return f;
+  }
+
+}
@@ -16,6 +16,7 @@ import java.time.Period;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.Test;
@@ -43,6 +44,8 @@ import com.opengamma.strata.product.swaption.Swaption;
 
 import marc.henrard.murisq.basics.time.ScaledSecondTime;
 import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache;
+import marc.henrard.murisq.model.calibration.CalibrationWarmStartCache.CalibrationWarmStart;
 import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductExplicitApproxPricer;
 
 /**
@@ -109,6 +112,7 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibratorTest {
   
   /* Tests */
   private static final Offset<Double> TOLERANCE_APPROX_IV = within(1.0E-8);
+  private static final double TOLERANCE_PARALLEL = 1.0E-10;
   private static final boolean PRINT_DETAILS = false;
 
   /* Test calibration with one factor volatilities. ATM swaptions */
@@ -176,6 +180,105 @@ public class LmmdddSwaptionRootBachelierVolatilityNLevelCalibratorTest {
     
   }
 
+  /* Test the calibration with the swaptions priced in parallel is identical to the sequential one. */
+  @Test
+  public void calibration_parallel() {
+    Period[] expiries =
+        new Period[] {Period.ofMonths(12), Period.ofMonths(36), Period.ofMonths(60), Period.ofMonths(120)};
+    double[] impliedVolatilities = {0.0099, 0.0095, 0.0092, 0.0085};
+    List<ResolvedSwaption> swaptions = new ArrayList<>();
+    for (int loopswpt = 0; loopswpt < expiries.length; loopswpt++) {
+      LocalDate expiryDate = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(expiries[loopswpt]));
+      ResolvedSwapTrade swap0 = EUR_FIXED_1Y_EURIBOR_3M
+          .createTrade(expiryDate, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA)
+          .resolve(REF_DATA);
+      double parRate = PRICER_SWAP.parRate(swap0.getProduct(), MULTICURVE_EUR);
+      SwapTrade swap = EUR_FIXED_1Y_EURIBOR_3M
+          .createTrade(expiryDate, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, parRate, REF_DATA);
+      Swaption swaption = Swaption.builder()
+          .expiryDate(AdjustableDate.of(expiryDate)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+          .longShort(LongShort.LONG)
+          .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+          .underlying(swap.getProduct()).build();
+      swaptions.add(swaption.resolve(REF_DATA));
+    } // end loopswpt
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator calibratorParallel =
+          LmmdddSwaptionRootBachelierVolatilityNLevelCalibrator
+              .of(LMM_2F_START, INTERPOLATOR, EXTRAPOLATOR_LEFT, EXTRAPOLATOR_RIGHT, pool);
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersSequential =
+          LMM_CALIBRATOR_2F.calibrate(swaptions, DoubleArray.ofUnsafe(impliedVolatilities), MULTICURVE_EUR);
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersParallel =
+          calibratorParallel.calibrate(swaptions, DoubleArray.ofUnsafe(impliedVolatilities), MULTICURVE_EUR);
+      assertThat(parametersParallel.getVolatilities().equalWithTolerance(
+          parametersSequential.getVolatilities(), TOLERANCE_PARALLEL)).isTrue();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /* Test the calibration with warm start: identical results for unchanged market data and exact calibration
+   * for moved implied volatilities. */
+  @Test
+  public void calibration_warm_start() {
+    Period[] expiries =
+        new Period[] {Period.ofMonths(12), Period.ofMonths(36), Period.ofMonths(60), Period.ofMonths(120)};
+    DoubleArray impliedVolatilities = DoubleArray.of(0.0099, 0.0095, 0.0092, 0.0085);
+    List<ResolvedSwaption> swaptions = new ArrayList<>();
+    for (int loopswpt = 0; loopswpt < expiries.length; loopswpt++) {
+      LocalDate expiryDate = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(expiries[loopswpt]));
+      ResolvedSwapTrade swap0 = EUR_FIXED_1Y_EURIBOR_3M
+          .createTrade(expiryDate, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA)
+          .resolve(REF_DATA);
+      double parRate = PRICER_SWAP.parRate(swap0.getProduct(), MULTICURVE_EUR);
+      SwapTrade swap = EUR_FIXED_1Y_EURIBOR_3M
+          .createTrade(expiryDate, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, parRate, REF_DATA);
+      Swaption swaption = Swaption.builder()
+          .expiryDate(AdjustableDate.of(expiryDate)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+          .longShort(LongShort.LONG)
+          .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+          .underlying(swap.getProduct()).build();
+      swaptions.add(swaption.resolve(REF_DATA));
+    } // end loopswpt
+    CalibrationWarmStartCache cache = CalibrationWarmStartCache.of(10);
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersCold =
+        LMM_CALIBRATOR_2F.calibrate(swaptions, impliedVolatilities, MULTICURVE_EUR);
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersFirst =
+        LMM_CALIBRATOR_2F.calibrate(swaptions, impliedVolatilities, MULTICURVE_EUR, cache);
+    assertThat(parametersFirst).isEqualTo(parametersCold);
+    assertThat(cache.size()).isEqualTo(1);
+    List<Object> key = LMM_CALIBRATOR_2F.warmStartKey(swaptions);
+    CalibrationWarmStart warmStartFirst = cache.get(key).get();
+    assertThat(warmStartFirst.getJacobian()).isPresent();
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersSame =
+        LMM_CALIBRATOR_2F.calibrate(swaptions, impliedVolatilities, MULTICURVE_EUR, cache);
+    assertThat(parametersSame).isEqualTo(parametersFirst);
+    // Unchanged market: the stored solution is returned without root-finding
+    DoubleArray solutionFake = warmStartFirst.getSolution().multipliedBy(1.01d);
+    cache.put(key, CalibrationWarmStart.of(
+        warmStartFirst.getFingerprint(), solutionFake, warmStartFirst.getJacobian()));
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersFake =
+        LMM_CALIBRATOR_2F.calibrate(swaptions, impliedVolatilities, MULTICURVE_EUR, cache);
+    assertThat(parametersFake).isNotEqualTo(parametersFirst);
+    assertThat(cache.get(key).get().getSolution()).isEqualTo(solutionFake);
+    cache.put(key, warmStartFirst);
+    // Moved market: root-finding from the stored solution and the Jacobian stored at the new solution
+    DoubleArray impliedVolatilitiesMoved = impliedVolatilities.plus(0.0002);
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters parametersMoved =
+        LMM_CALIBRATOR_2F.calibrate(swaptions, impliedVolatilitiesMoved, MULTICURVE_EUR, cache);
+    assertThat(cache.size()).isEqualTo(1);
+    for (int loopswpt = 0; loopswpt < expiries.length; loopswpt++) {
+      double ivAfterCalibration = PRICER_SWAPTION_LMM_APPROX
+          .impliedVolatilityBachelier(swaptions.get(loopswpt), MULTICURVE_EUR, parametersMoved);
+      assertThat(ivAfterCalibration).isEqualTo(impliedVolatilitiesMoved.get(loopswpt), TOLERANCE_APPROX_IV);
+    }
+    CalibrationWarmStart warmStartMoved = cache.get(key).get();
+    assertThat(warmStartMoved.getSolution()).isNotEqualTo(warmStartFirst.getSolution());
+    assertThat(warmStartMoved.getJacobian()).isPresent();
+    assertThat(warmStartMoved.getJacobian().get()).isNotEqualTo(warmStartFirst.getJacobian().get());
+  }
+
   /* Test exception for swaptions in wrong order. */
   @Test
   public void calibration_swaption_order() {
@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.model.rationalmulticurve;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.dataset.RationalParametersDataSet;
+import marc.henrard.murisq.dataset.RationalTwoFactorParameters20151120DataSet;
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+
+/**
+ * Tests {@link RationalMonteCarloEvolution}.
+ *
+ * @author Marc Henrard
+ */
+public class RationalMonteCarloEvolutionTest {
+
+  private static final LocalDate VALUATION_DATE = RationalTwoFactorParameters20151120DataSet.VALUATION_DATE;
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  private static final RationalTwoFactorGenericParameters RATIONAL_2F =
+      RationalTwoFactorParameters20151120DataSet.RATIONAL_2F;
+  private static final RationalOneFactorSimpleHWShapeParameters RATIONAL_1F =
+      RationalParametersDataSet.oneFactorHWShaped(RationalTwoFactorParameters20151120DataSet.LOCAL_TIME,
+          RationalTwoFactorParameters20151120DataSet.ZONE_ID, MULTICURVE_EUR.discountFactors(Currency.EUR));
+
+  private static final List<LocalDate> DATES = new ArrayList<>();
+  static {
+    for (int i = 0; i <= 20; i++) {
+      DATES.add(VALUATION_DATE.plusMonths(6 * i + 6));
+    }
+  }
+  private static final List<ZonedDateTime> STEPS = new ArrayList<>();
+  static {
+    STEPS.add(ZonedDateTime.of(VALUATION_DATE.plusMonths(6), RationalTwoFactorParameters20151120DataSet.LOCAL_TIME,
+        RationalTwoFactorParameters20151120DataSet.ZONE_ID));
+    STEPS.add(ZonedDateTime.of(VALUATION_DATE.plusMonths(30), RationalTwoFactorParameters20151120DataSet.LOCAL_TIME,
+        RationalTwoFactorParameters20151120DataSet.ZONE_ID));
+    STEPS.add(ZonedDateTime.of(VALUATION_DATE.plusMonths(60), RationalTwoFactorParameters20151120DataSet.LOCAL_TIME,
+        RationalTwoFactorParameters20151120DataSet.ZONE_ID));
+  }
+  private static final RationalMonteCarloEvolution EVOLUTION = RationalMonteCarloEvolution.DEFAULT;
+
+  /* The rebased discount factors are martingales: their means are the initial discount factors. */
+  @Test
+  public void martingale() {
+    int nbPaths = 100_000;
+    MulticurveEquivalentValues initialValues = initialValues(RATIONAL_2F);
+    NormalRandomNumberGenerator rnd = new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0));
+    double[][] mean = new double[STEPS.size()][];
+    EVOLUTION.evolveMultiStepsStreaming(STEPS, initialValues, RATIONAL_2F, rnd, nbPaths,
+        (step, values) -> {
+          mean[step] = new double[values.length];
+          for (int loopdate = 0; loopdate < values.length; loopdate++) {
+            for (int looppath = 0; looppath < nbPaths; looppath++) {
+              mean[step][loopdate] += values[loopdate][looppath];
+            }
+            mean[step][loopdate] /= nbPaths;
+          }
+        });
+    for (int loopstep = 0; loopstep < STEPS.size(); loopstep++) {
+      for (int loopdate = 0; loopdate < DATES.size(); loopdate++) {
+        double df0 = MULTICURVE_EUR.discountFactor(Currency.EUR, DATES.get(loopdate));
+        assertThat(mean[loopstep][loopdate] / df0).isEqualTo(1.0d, within(5.0E-3));
+      }
+    }
+  }
+
+  /* The martingales have the log-normal variance and correlation of the model. */
+  @Test
+  public void martingale_moments() {
+    int nbPaths = 100_000;
+    double[] stepTimes = new double[] {RATIONAL_2F.relativeTime(STEPS.get(0))};
+    NormalRandomNumberGenerator rnd = new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0));
+    double[] covariance = new double[3];
+    EVOLUTION.pathGeneratorMartingales(stepTimes, RATIONAL_2F, rnd, nbPaths,
+        (step, values) -> {
+          for (int looppath = 0; looppath < nbPaths; looppath++) {
+            covariance[0] += values[0][looppath] * values[0][looppath];
+            covariance[1] += values[0][looppath] * values[1][looppath];
+            covariance[2] += values[1][looppath] * values[1][looppath];
+          }
+        });
+    double t = stepTimes[0];
+    double a1 = RATIONAL_2F.a1();
+    double a2 = RATIONAL_2F.a2();
+    double rho = RATIONAL_2F.getCorrelation();
+    assertThat(covariance[0] / nbPaths / (Math.exp(a1 * a1 * t) - 1.0d)).isEqualTo(1.0d, within(5.0E-2));
+    assertThat(covariance[1] / nbPaths / (Math.exp(rho * a1 * a2 * t) - 1.0d)).isEqualTo(1.0d, within(5.0E-2));
+    assertThat(covariance[2] / nbPaths / (Math.exp(a2 * a2 * t) - 1.0d)).isEqualTo(1.0d, within(5.0E-2));
+  }
+
+  /* One step, multi-steps and streaming use the same random numbers. */
+  @Test
+  public void consistency() {
+    int nbPaths = 100;
+    MulticurveEquivalentValues initialValues = initialValues(RATIONAL_2F);
+    List<List<MulticurveEquivalentValues>> multi = EVOLUTION.evolveMultiSteps(STEPS, initialValues, RATIONAL_2F,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths);
+    MonteCarloPathBuffer oneStep = EVOLUTION.evolveOneStepPaths(STEPS.get(0), initialValues, RATIONAL_2F,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths);
+    EVOLUTION.evolveMultiStepsStreaming(STEPS, initialValues, RATIONAL_2F,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths,
+        (step, values) -> {
+          for (int looppath = 0; looppath < nbPaths; looppath++) {
+            for (int loopdate = 0; loopdate < values.length; loopdate++) {
+              assertThat(values[loopdate][looppath])
+                  .isEqualTo(multi.get(looppath).get(step).getOnRates().get(loopdate));
+            }
+          }
+        });
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      for (int loopdate = 0; loopdate < DATES.size(); loopdate++) {
+        assertThat(oneStep.get(loopdate, looppath))
+            .isEqualTo(multi.get(looppath).get(0).getOnRates().get(loopdate));
+      }
+    }
+    assertThat(EVOLUTION.randomDimension(new double[STEPS.size()], RATIONAL_2F)).isEqualTo(2 * STEPS.size());
+  }
+
+  /* One-factor model: one random dimension per step and martingale discount factors. */
+  @Test
+  public void one_factor() {
+    int nbPaths = 100_000;
+    MulticurveEquivalentValues initialValues = initialValues(RATIONAL_1F);
+    assertThat(EVOLUTION.factorCount(RATIONAL_1F)).isEqualTo(1);
+    assertThat(EVOLUTION.randomDimension(new double[STEPS.size()], RATIONAL_1F)).isEqualTo(STEPS.size());
+    MonteCarloPathBuffer values = EVOLUTION.evolveOneStepPaths(STEPS.get(0), initialValues, RATIONAL_1F,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths);
+    for (int loopdate = 0; loopdate < DATES.size(); loopdate++) {
+      double mean = 0.0d;
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        mean += values.get(loopdate, looppath);
+      }
+      mean /= nbPaths;
+      double df0 = MULTICURVE_EUR.discountFactor(Currency.EUR, DATES.get(loopdate));
+      assertThat(mean / df0).isEqualTo(1.0d, within(5.0E-3));
+    }
+  }
+
+  private static MulticurveEquivalentValues initialValues(SingleCurrencyModelParameters model) {
+
+    double[] coefficients = new double[RationalMonteCarloEvolution.NB_COEFFICIENTS * DATES.size()];
+    for (int loopdate = 0; loopdate < DATES.size(); loopdate++) {
+      double df = MULTICURVE_EUR.discountFactor(Currency.EUR, DATES.get(loopdate));
+      System.arraycopy(EVOLUTION.discountFactorCoefficients(model, DATES.get(loopdate), df), 0,
+          coefficients, RationalMonteCarloEvolution.NB_COEFFICIENTS * loopdate,
+          RationalMonteCarloEvolution.NB_COEFFICIENTS);
+    }
+    return MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(coefficients)).build();
+  }
+
+}
@@ -84,7 +84,8 @@ public class HullWhiteCapFloorLegPricerTest {
   private static final Offset<Double> TOLERANCE_PV = offset(1.0E-2);
   private static final Double TOLERANCE_SENSI_RATE = 1.0E-2;
 
-  /* Test cap/floor as sum of caplets/floorlets. Present value, currency exposure, present value sensitivity rates*/
+  /* Test cap/floor as sum of caplets/floorlets.
+   * Present value, currency exposure, present value sensitivity rates and model. */
   @Test
   public void present_value_leg_v_caplet() {
     IborRateCalculation iborCal = IborRateCalculation.of(EUR_EURIBOR_6M);
@@ -123,6 +124,14 @@ public class HullWhiteCapFloorLegPricerTest {
         CurrencyParameterSensitivities psComputed = MULTICURVE.parameterSensitivity(ptsComputed.build());
         CurrencyParameterSensitivities psExpected = MULTICURVE.parameterSensitivity(ptsExpected.build());
         assertThat(psComputed.equalWithTolerance(psExpected, TOLERANCE_SENSI_RATE)).isTrue();
+        DoubleArray pvpComputed =
+            PRICER_CAP_LEG_HW.presentValueSensitivityModelParamsHullWhite(leg, MULTICURVE, HW_PROVIDER);
+        DoubleArray pvpExpected = DoubleArray.filled(VOLATILITY.size());
+        for(IborCapletFloorletPeriod period: leg.getCapletFloorletPeriods()) {
+          pvpExpected = pvpExpected.plus(
+              PRICER_CAPLET_HW.presentValueSensitivityModelParamsHullWhite(period, MULTICURVE, HW_PROVIDER));
+        }
+        assertThat(pvpComputed.equalWithTolerance(pvpExpected, TOLERANCE_SENSI_RATE)).isTrue();
       }
     }
   }
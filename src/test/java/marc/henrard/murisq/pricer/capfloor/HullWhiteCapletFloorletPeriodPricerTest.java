@@ -105,6 +105,7 @@ public class HullWhiteCapletFloorletPeriodPricerTest {
   private static final Offset<Double> TOLERANCE_PV_PARITY = offset(1.0E-2);
   private static final Double TOLERANCE_SENSI_RATE = 1.0E-2;
   private static final Double TOLERANCE_SENSI_RATE_FD = 1.0E+4;
+  private static final Double TOLERANCE_SENSI_MODEL = 1.0E+2;
   private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
 
   /* Test payer/receiver parity. */
@@ -242,6 +243,39 @@ public class HullWhiteCapletFloorletPeriodPricerTest {
     }
   }
   
+  /* Test the sensitivity to the model volatility parameters v finite difference. */
+  @Test
+  public void present_value_sensitivity_model_parameters() {
+    double shift = 1.0E-7;
+    for (int i = 0; i < NB_EXPIRIES; i++) {
+      for (int k = 0; k < NB_STRIKES; k++) {
+        LocalDate fixingDate = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(EXPIRIES_PER[i]));
+        IborRateComputation comp = IborRateComputation.of(EUR_EURIBOR_6M, fixingDate, REF_DATA);
+        IborCapletFloorletPeriod[] periods = new IborCapletFloorletPeriod[] {
+            capletFloorlet(NOTIONAL, comp, STRIKES[k], true), capletFloorlet(-NOTIONAL, comp, STRIKES[k], false)};
+        for (IborCapletFloorletPeriod period : periods) {
+          DoubleArray sensiComputed =
+              PRICER_CAP_HW.presentValueSensitivityModelParamsHullWhite(period, MULTICURVE, HW_PROVIDER);
+          assertThat(sensiComputed.size()).isEqualTo(VOLATILITY.size());
+          for (int loopvol = 0; loopvol < VOLATILITY.size(); loopvol++) {
+            double pvUp = PRICER_CAP_HW.presentValue(period, MULTICURVE,
+                hwProvider(VOLATILITY.with(loopvol, VOLATILITY.get(loopvol) + shift))).getAmount();
+            double pvDown = PRICER_CAP_HW.presentValue(period, MULTICURVE,
+                hwProvider(VOLATILITY.with(loopvol, VOLATILITY.get(loopvol) - shift))).getAmount();
+            assertThat(sensiComputed.get(loopvol))
+                .isCloseTo((pvUp - pvDown) / (2 * shift), offset(TOLERANCE_SENSI_MODEL));
+          }
+        }
+      }
+    }
+  }
+
+  private static HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider(DoubleArray volatility) {
+    return HullWhiteOneFactorPiecewiseConstantParametersProvider.of(
+        HullWhiteOneFactorPiecewiseConstantParameters.of(MEAN_REVERSION, volatility, VOLATILITY_TIME),
+        ACT_365F, VALUATION_DATE.atTime(VALUATION_TIME).atZone(VALUATION_ZONE));
+  }
+
   private IborCapletFloorletPeriod capletFloorlet(
       double notional, IborRateComputation comp, double strike, boolean isCap) {
     Builder builder = IborCapletFloorletPeriod.builder()
@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.capfloor;
+
+import static com.opengamma.strata.basics.currency.Currency.EUR;
+import static com.opengamma.strata.basics.date.HolidayCalendarIds.EUTA;
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_6M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.CurrencyAmount;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.collect.array.DoubleMatrix;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.product.capfloor.IborCapletFloorletPeriod;
+import com.opengamma.strata.product.capfloor.IborCapletFloorletPeriod.Builder;
+import com.opengamma.strata.product.rate.IborRateComputation;
+
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.dataset.RationalTwoFactorParameters20151120DataSet;
+import marc.henrard.murisq.model.rationalmulticurve.RationalTwoFactorGenericParameters;
+
+/**
+ * Tests {@link RationalTwoFactorCapletFloorletPeriodGaussHermitePricer}.
+ *
+ * @author Marc Henrard
+ */
+public class RationalTwoFactorCapletFloorletPeriodGaussHermitePricerTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.findValue(EUTA).get();
+
+  private static final RationalTwoFactorCapletFloorletPeriodGaussHermitePricer PRICER_CAP_GH =
+      RationalTwoFactorCapletFloorletPeriodGaussHermitePricer.DEFAULT;
+  private static final RationalTwoFactorCapletFloorletPeriodNumericalIntegrationPricer PRICER_CAP_NI =
+      new RationalTwoFactorCapletFloorletPeriodNumericalIntegrationPricer(50);
+  private static final RationalTwoFactorCapletFloorletPeriodSemiExplicitPricer PRICER_CAP_S_EX =
+      RationalTwoFactorCapletFloorletPeriodSemiExplicitPricer.DEFAULT;
+
+  /* Descriptions of caplets */
+  private static final Period[] EXPIRIES_PER = new Period[] {
+      Period.ofMonths(3), Period.ofYears(2), Period.ofYears(10)};
+  private static final double[] STRIKES = new double[] {-0.0025, 0.0100, 0.0200};
+  private static final double NOTIONAL = 100_000_000.0d;
+
+  /* Curves and model */
+  private static final ImmutableRatesProvider MULTICURVE = MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+  private static final LocalTime LOCAL_TIME = LocalTime.of(9, 29);
+  private static final ZoneId ZONE_ID = ZoneId.of("Europe/London");
+  private static final RationalTwoFactorGenericParameters RATIONAL_2F =
+      RationalTwoFactorParameters20151120DataSet.rational2Factor(LOCAL_TIME, ZONE_ID);
+
+  private static final double TOLERANCE_PV_PARITY = 1.0E-1;
+  private static final double TOLERANCE_PV_NI = 1.5;
+  private static final double TOLERANCE_SENSI_MODEL = 1.0E-4;
+  private static final double SHIFT_FD = 1.0E-6;
+
+  /* Gauss-Hermite v numerical integration and semi-explicit formula, for caplets and floorlets. */
+  @Test
+  public void present_value_v_numerical_integration() {
+    for (IborCapletFloorletPeriod caplet : capletsGrid()) {
+      double pvGh = PRICER_CAP_GH.presentValue(caplet, MULTICURVE, RATIONAL_2F).getAmount();
+      double pvNi = PRICER_CAP_NI.presentValue(caplet, MULTICURVE, RATIONAL_2F).getAmount();
+      double pvSe = PRICER_CAP_S_EX.presentValue(caplet, MULTICURVE, RATIONAL_2F).getAmount();
+      assertThat(pvGh).isEqualTo(pvNi, within(TOLERANCE_PV_NI));
+      assertThat(pvGh).isEqualTo(pvSe, within(TOLERANCE_PV_NI));
+    }
+  }
+
+  /* Payer/receiver parity. */
+  @Test
+  public void present_value_payer_receiver_parity() {
+    for (Period expiry : EXPIRIES_PER) {
+      IborRateComputation comp = computation(expiry);
+      for (double strike : STRIKES) {
+        double pvCapLong = PRICER_CAP_GH
+            .presentValue(capletFloorlet(NOTIONAL, comp, strike, true), MULTICURVE, RATIONAL_2F).getAmount();
+        double pvFloorShort = PRICER_CAP_GH
+            .presentValue(capletFloorlet(-NOTIONAL, comp, strike, false), MULTICURVE, RATIONAL_2F).getAmount();
+        double pvUnderlying = MULTICURVE.discountFactor(EUR, comp.getMaturityDate())
+            * (MULTICURVE.iborIndexRates(EUR_EURIBOR_6M).rate(comp.getObservation()) - strike)
+            * comp.getYearFraction() * NOTIONAL;
+        assertThat(pvCapLong + pvFloorShort).isEqualTo(pvUnderlying, within(TOLERANCE_PV_PARITY));
+      }
+    }
+  }
+
+  /* The batch pricing of the strike x expiry grid is the same as the pricing caplet by caplet. */
+  @Test
+  public void present_values_batch() {
+    List<IborCapletFloorletPeriod> caplets = capletsGrid();
+    List<CurrencyAmount> pvBatch = PRICER_CAP_GH.presentValues(caplets, MULTICURVE, RATIONAL_2F);
+    assertThat(pvBatch).hasSize(caplets.size());
+    for (int i = 0; i < caplets.size(); i++) {
+      assertThat(pvBatch.get(i)).isEqualTo(PRICER_CAP_GH.presentValue(caplets.get(i), MULTICURVE, RATIONAL_2F));
+      assertThat(pvBatch.get(i).getAmount())
+          .isEqualTo(PRICER_CAP_NI.presentValue(caplets.get(i), MULTICURVE, RATIONAL_2F).getAmount(),
+              within(TOLERANCE_PV_NI));
+    }
+    List<CurrencyAmount> pvDefault = PRICER_CAP_NI.presentValues(caplets, MULTICURVE, RATIONAL_2F);
+    for (int i = 0; i < caplets.size(); i++) {
+      assertThat(pvDefault.get(i)).isEqualTo(PRICER_CAP_NI.presentValue(caplets.get(i), MULTICURVE, RATIONAL_2F));
+    }
+  }
+
+  /* Sensitivities to the model parameters v finite difference on the present value. */
+  @Test
+  public void present_value_sensitivity_model_parameters() {
+    List<IborCapletFloorletPeriod> caplets = capletsGrid();
+    Optional<DoubleMatrix> sensiOpt =
+        PRICER_CAP_GH.presentValueSensitivityModelParameters(caplets, MULTICURVE, RATIONAL_2F);
+    assertThat(sensiOpt).isPresent();
+    DoubleMatrix sensi = sensiOpt.get();
+    assertThat(sensi.rowCount()).isEqualTo(caplets.size());
+    assertThat(sensi.columnCount()).isEqualTo(RATIONAL_2F.getParameterCount());
+    for (int i = 0; i < RATIONAL_2F.getParameterCount(); i++) {
+      RationalTwoFactorGenericParameters modelP = (RationalTwoFactorGenericParameters)
+          RATIONAL_2F.withParameter(i, RATIONAL_2F.getParameter(i) + SHIFT_FD);
+      RationalTwoFactorGenericParameters modelM = (RationalTwoFactorGenericParameters)
+          RATIONAL_2F.withParameter(i, RATIONAL_2F.getParameter(i) - SHIFT_FD);
+      for (int j = 0; j < caplets.size(); j++) {
+        double pvP = PRICER_CAP_GH.presentValue(caplets.get(j), MULTICURVE, modelP).getAmount();
+        double pvM = PRICER_CAP_GH.presentValue(caplets.get(j), MULTICURVE, modelM).getAmount();
+        double sensiFd = (pvP - pvM) / (2 * SHIFT_FD);
+        assertThat(sensi.get(j, i))
+            .isEqualTo(sensiFd, within(TOLERANCE_SENSI_MODEL * (1.0d + Math.abs(sensiFd))));
+      }
+    }
+    assertThat(PRICER_CAP_NI.presentValueSensitivityModelParameters(caplets, MULTICURVE, RATIONAL_2F)).isEmpty();
+  }
+
+  // Long caplets and short floorlets for all expiries and strikes
+  private static List<IborCapletFloorletPeriod> capletsGrid() {
+    List<IborCapletFloorletPeriod> caplets = new ArrayList<>();
+    for (Period expiry : EXPIRIES_PER) {
+      IborRateComputation comp = computation(expiry);
+      for (double strike : STRIKES) {
+        caplets.add(capletFloorlet(NOTIONAL, comp, strike, true));
+        caplets.add(capletFloorlet(-NOTIONAL, comp, strike, false));
+      }
+    }
+    return caplets;
+  }
+
+  private static IborRateComputation computation(Period expiry) {
+    LocalDate fixingDate = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(expiry));
+    return IborRateComputation.of(EUR_EURIBOR_6M, fixingDate, REF_DATA);
+  }
+
+  private static IborCapletFloorletPeriod capletFloorlet(
+      double notional, IborRateComputation comp, double strike, boolean isCap) {
+    Builder builder = IborCapletFloorletPeriod.builder()
+        .currency(EUR)
+        .notional(notional)
+        .startDate(comp.getEffectiveDate())
+        .endDate(comp.getMaturityDate())
+        .paymentDate(comp.getMaturityDate())
+        .yearFraction(comp.getYearFraction())
+        .iborRate(comp);
+    if (isCap) {
+      builder.caplet(strike);
+    } else {
+      builder.floorlet(strike);
+    }
+    return builder.build();
+  }
+
+}
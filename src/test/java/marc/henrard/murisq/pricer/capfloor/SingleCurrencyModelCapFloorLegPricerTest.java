@@ -81,6 +81,7 @@ public class SingleCurrencyModelCapFloorLegPricerTest {
   /* Constants */
   private static final double TOLERANCE_PV = 1.0E-1;
   private static final double TOLERANCE_PV_IV = 1.0E-0;
+  private static final double TOLERANCE_VEGA = 1.0E+2;
 
   /* Tests present value as sum of periods. */
   public void present_value_leg() {
@@ -144,4 +145,45 @@ public class SingleCurrencyModelCapFloorLegPricerTest {
     }
   }
   
+  /* Tests the vega in the Bachelier model against a finite difference of the present value. */
+  public void vega_bachelier() {
+    LocalDate spot6M = EUR_EURIBOR_6M.calculateMaturityFromFixing(VALUATION_DATE, REF_DATA);
+    double volatility = 0.0050;
+    double shift = 1.0E-6;
+    for (int i = 0; i < NB_MATURITIES; i++) {
+      LocalDate maturity = spot6M.plus(MATURITIES_PER[i]);
+      for (int k = 0; k < NB_STRIKES; k++) {
+        PeriodicSchedule paySchedule =
+            PeriodicSchedule.of(spot6M, maturity, Frequency.P6M, BUSINESS_ADJ, StubConvention.NONE,
+                RollConventions.NONE);
+        IborCapFloorLeg leg = IborCapFloorLeg.builder()
+            .currency(EUR)
+            .calculation(IborRateCalculation.of(EUR_EURIBOR_6M))
+            .capSchedule(ValueSchedule.of(STRIKES[k]))
+            .notional(ValueSchedule.of(NOTIONAL))
+            .paymentSchedule(paySchedule)
+            .payReceive(PayReceive.PAY).build();
+        ResolvedIborCapFloorLeg resolvedLeg = leg.resolve(REF_DATA);
+        double vegaComputed = PRICER_LEG_S_EX.vegaBachelier(
+            resolvedLeg, MULTICURVE, volatility, RATIONAL_2F.getValuationDateTime());
+        double pvP = PRICER_LEG_BACHELIER.presentValue(resolvedLeg, MULTICURVE, bachelier(volatility + shift))
+            .getAmount();
+        double pvM = PRICER_LEG_BACHELIER.presentValue(resolvedLeg, MULTICURVE, bachelier(volatility - shift))
+            .getAmount();
+        assertEquals(vegaComputed, (pvP - pvM) / (2 * shift), TOLERANCE_VEGA);
+      }
+    }
+  }
+
+  private static NormalIborCapletFloorletExpiryStrikeVolatilities bachelier(double volatility) {
+    return NormalIborCapletFloorletExpiryStrikeVolatilities.of(EUR_EURIBOR_6M, RATIONAL_2F.getValuationDateTime(),
+        ConstantSurface.of(DefaultSurfaceMetadata.builder()
+            .surfaceName("Bachelier-vol")
+            .xValueType(ValueType.YEAR_FRACTION)
+            .yValueType(ValueType.STRIKE)
+            .zValueType(ValueType.NORMAL_VOLATILITY)
+            .dayCount(DayCounts.ACT_365F).build(),
+            volatility));
+  }
+
 }
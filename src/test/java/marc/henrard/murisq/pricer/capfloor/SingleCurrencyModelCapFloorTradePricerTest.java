@@ -13,6 +13,8 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.Period;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.testng.annotations.Test;
 
@@ -91,6 +93,7 @@ public class SingleCurrencyModelCapFloorTradePricerTest {
   
   /* Constants */
   private static final double TOLERANCE_PV = 1.0E-1;
+  private static final double TOLERANCE_PV_NI = 1.0E+1;
 
   /* Tests present value as sum of produce and premium. */
   public void present_value_trade() {
@@ -126,5 +129,48 @@ public class SingleCurrencyModelCapFloorTradePricerTest {
       }
     }
   }
+
+  /* Tests the batch present values v the trade by trade present values. */
+  public void present_values_trades() {
+    SingleCurrencyModelCapFloorTradePricer pricerTradeGh = new SingleCurrencyModelCapFloorTradePricer(
+        new SingleCurrencyModelCapFloorProductPricer(
+            new SingleCurrencyModelCapFloorLegPricer(RationalTwoFactorCapletFloorletPeriodGaussHermitePricer.DEFAULT),
+            PRICER_SWAP_LEG),
+        PRICER_PAYMENT);
+    LocalDate spot6M = EUR_EURIBOR_6M.calculateMaturityFromFixing(VALUATION_DATE, REF_DATA);
+    List<ResolvedIborCapFloorTrade> trades = new ArrayList<>();
+    for (int i = 0; i < NB_MATURITIES; i++) {
+      LocalDate maturity = spot6M.plus(MATURITIES_PER[i]);
+      for (int k = 0; k < NB_STRIKES; k++) {
+        PeriodicSchedule paySchedule =
+            PeriodicSchedule.of(spot6M, maturity, Frequency.P6M, BUSINESS_ADJ, StubConvention.NONE,
+                RollConventions.NONE);
+        IborCapFloorLeg leg = IborCapFloorLeg.builder()
+            .currency(EUR)
+            .calculation(IborRateCalculation.of(EUR_EURIBOR_6M))
+            .capSchedule(ValueSchedule.of(STRIKES[k]))
+            .notional(ValueSchedule.of(NOTIONAL))
+            .paymentSchedule(paySchedule)
+            .payReceive(PayReceive.PAY).build();
+        IborCapFloorTrade capTrade = IborCapFloorTrade.builder()
+            .product(IborCapFloor.of(leg))
+            .premium(AdjustablePayment.of(CurrencyAmount.of(EUR, 10_000.0d), spot6M))
+            .info(TradeInfo.of(VALUATION_DATE)).build();
+        trades.add(capTrade.resolve(REF_DATA));
+      }
+    }
+    List<MultiCurrencyAmount> pvSex = PRICER_TRADE.presentValues(trades, MULTICURVE, RATIONAL_2F);
+    List<MultiCurrencyAmount> pvGh = pricerTradeGh.presentValues(trades, MULTICURVE, RATIONAL_2F);
+    assertEquals(pvSex.size(), trades.size());
+    assertEquals(pvGh.size(), trades.size());
+    for (int i = 0; i < trades.size(); i++) {
+      double pvExpected =
+          PRICER_TRADE.presentValue(trades.get(i), MULTICURVE, RATIONAL_2F).getAmount(EUR).getAmount();
+      assertEquals(pvSex.get(i).getAmount(EUR).getAmount(), pvExpected, TOLERANCE_PV);
+      assertEquals(pvGh.get(i).getAmount(EUR).getAmount(),
+          pricerTradeGh.presentValue(trades.get(i), MULTICURVE, RATIONAL_2F).getAmount(EUR).getAmount(), TOLERANCE_PV);
+      assertEquals(pvGh.get(i).getAmount(EUR).getAmount(), pvExpected, TOLERANCE_PV_NI);
+    }
+  }
   
 }
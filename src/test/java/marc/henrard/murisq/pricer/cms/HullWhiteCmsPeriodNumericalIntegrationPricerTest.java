@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.cms;
+
+import static com.opengamma.strata.basics.currency.Currency.EUR;
+import static com.opengamma.strata.basics.date.DayCounts.ACT_365F;
+import static com.opengamma.strata.basics.date.HolidayCalendarIds.EUTA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.CurrencyAmount;
+import com.opengamma.strata.basics.date.DayCounts;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.pricer.DiscountingPaymentPricer;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParameters;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParametersProvider;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.product.cms.CmsPeriod;
+import com.opengamma.strata.product.cms.CmsPeriodType;
+import com.opengamma.strata.product.cms.ResolvedCmsLeg;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.PayReceive;
+import com.opengamma.strata.product.swap.ResolvedSwap;
+import com.opengamma.strata.product.swap.SwapIndex;
+import com.opengamma.strata.product.swap.SwapIndices;
+import com.opengamma.strata.product.swap.type.FixedIborSwapConvention;
+import com.opengamma.strata.product.swap.type.FixedIborSwapConventions;
+
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+
+/**
+ * Tests the leg pricing of {@link HullWhiteCmsPeriodNumericalIntegrationPricer}.
+ * 
+ * @author Marc Henrard
+ */
+public class HullWhiteCmsPeriodNumericalIntegrationPricerTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 0);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/Brussels");
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.findValue(EUTA).get();
+  private static final ImmutableRatesProvider MULTICURVE = MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  // Hull-White model parameters
+  private static final HullWhiteOneFactorPiecewiseConstantParameters MODEL_PARAMETERS =
+      HullWhiteOneFactorPiecewiseConstantParameters.of(0.01, DoubleArray.of(0.01, 0.012), DoubleArray.of(5.0));
+  private static final HullWhiteOneFactorPiecewiseConstantParametersProvider HW_PROVIDER =
+      HullWhiteOneFactorPiecewiseConstantParametersProvider.of(
+          MODEL_PARAMETERS, ACT_365F, VALUATION_DATE.atTime(VALUATION_TIME).atZone(VALUATION_ZONE));
+
+  private static final HullWhiteCmsPeriodNumericalIntegrationPricer PRICER_CMS_NI =
+      new HullWhiteCmsPeriodNumericalIntegrationPricer(250, DiscountingPaymentPricer.DEFAULT);
+
+  /* Description of the legs */
+  private static final SwapIndex INDEX = SwapIndices.EUR_EURIBOR_1100_10Y;
+  private static final FixedIborSwapConvention CONVENTION = FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_6M;
+  private static final int NB_PERIODS = 20;
+  private static final double[] STRIKES = {0.0050, 0.0150, 0.0300};
+  private static final double NOTIONAL = 100_000_000.0d;
+
+  private static final Offset<Double> TOLERANCE_PV = offset(1.0E+1);
+
+  /* Coupon leg: each period v the period pricer. */
+  @Test
+  public void coupon_leg() {
+    assertLeg(leg(CmsPeriodType.COUPON, 0.0d));
+  }
+
+  /* Cap and floor legs: each period v the period pricer. */
+  @Test
+  public void cap_floor_leg() {
+    for (double strike : STRIKES) {
+      assertLeg(leg(CmsPeriodType.CAPLET, strike));
+      assertLeg(leg(CmsPeriodType.FLOORLET, strike));
+    }
+  }
+
+  /* Parallel computation of the periods gives identical results. */
+  @Test
+  public void parallel() {
+    ResolvedCmsLeg leg = leg(CmsPeriodType.CAPLET, STRIKES[1]);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    DoubleArray pvSequential = PRICER_CMS_NI.presentValuePeriods(leg, MULTICURVE, HW_PROVIDER);
+    DoubleArray pvParallel = PRICER_CMS_NI.presentValuePeriods(leg, MULTICURVE, HW_PROVIDER, pool);
+    CurrencyAmount pvLeg = PRICER_CMS_NI.presentValue(leg, MULTICURVE, HW_PROVIDER, pool);
+    pool.shutdown();
+    assertThat(pvParallel).isEqualTo(pvSequential);
+    assertThat(pvLeg.getCurrency()).isEqualTo(EUR);
+    assertThat(pvLeg.getAmount()).isEqualTo(pvSequential.sum());
+  }
+
+  /* Mean reversion close to 0: the volatility terms have a finite limit. */
+  @Test
+  public void small_mean_reversion() {
+    ResolvedCmsLeg leg = leg(CmsPeriodType.CAPLET, STRIKES[1]);
+    DoubleArray pvSmall = PRICER_CMS_NI.presentValuePeriods(leg, MULTICURVE, hwProvider(1.0E-12));
+    DoubleArray pvReference = PRICER_CMS_NI.presentValuePeriods(leg, MULTICURVE, hwProvider(1.0E-8));
+    for (int loopperiod = 0; loopperiod < NB_PERIODS; loopperiod++) {
+      assertThat(pvSmall.get(loopperiod)).isFinite();
+      assertThat(pvSmall.get(loopperiod)).isCloseTo(pvReference.get(loopperiod), TOLERANCE_PV);
+    }
+  }
+
+  private static HullWhiteOneFactorPiecewiseConstantParametersProvider hwProvider(double meanReversion) {
+    HullWhiteOneFactorPiecewiseConstantParameters parameters = HullWhiteOneFactorPiecewiseConstantParameters
+        .of(meanReversion, DoubleArray.of(0.01, 0.012), DoubleArray.of(5.0));
+    return HullWhiteOneFactorPiecewiseConstantParametersProvider.of(
+        parameters, ACT_365F, VALUATION_DATE.atTime(VALUATION_TIME).atZone(VALUATION_ZONE));
+  }
+
+  private static void assertLeg(ResolvedCmsLeg leg) {
+    DoubleArray pvPeriods = PRICER_CMS_NI.presentValuePeriods(leg, MULTICURVE, HW_PROVIDER);
+    double pvTotal = 0.0d;
+    for (int loopperiod = 0; loopperiod < NB_PERIODS; loopperiod++) {
+      CurrencyAmount pvPeriod =
+          PRICER_CMS_NI.presentValue(leg.getCmsPeriods().get(loopperiod), MULTICURVE, HW_PROVIDER);
+      assertThat(pvPeriods.get(loopperiod)).isCloseTo(pvPeriod.getAmount(), TOLERANCE_PV);
+      pvTotal += pvPeriod.getAmount();
+    }
+    CurrencyAmount pvLeg = PRICER_CMS_NI.presentValue(leg, MULTICURVE, HW_PROVIDER);
+    assertThat(pvLeg.getAmount()).isCloseTo(pvTotal, offset(NB_PERIODS * TOLERANCE_PV.value));
+  }
+
+  private static ResolvedCmsLeg leg(CmsPeriodType type, double strike) {
+    List<CmsPeriod> periods = new ArrayList<>();
+    for (int loopperiod = 0; loopperiod < NB_PERIODS; loopperiod++) {
+      LocalDate fixingDate = EUTA_IMPL.nextOrSame(VALUATION_DATE.plusMonths(6 + 6 * loopperiod));
+      LocalDate startDate = CONVENTION.calculateSpotDateFromTradeDate(fixingDate, REF_DATA);
+      LocalDate endDate = EUTA_IMPL.nextOrSame(startDate.plusMonths(6));
+      ResolvedSwap underlyingSwap = INDEX.getTemplate()
+          .createTrade(fixingDate, BuySell.BUY, 1.0d, 1.0d, REF_DATA).resolve(REF_DATA).getProduct();
+      CmsPeriod.Builder builder = CmsPeriod.builder()
+          .fixingDate(fixingDate)
+          .startDate(startDate)
+          .endDate(endDate)
+          .paymentDate(endDate)
+          .dayCount(DayCounts.ACT_360)
+          .yearFraction(0.5)
+          .notional(NOTIONAL)
+          .index(INDEX)
+          .underlyingSwap(underlyingSwap)
+          .currency(EUR);
+      if (type.equals(CmsPeriodType.CAPLET)) {
+        builder.caplet(strike);
+      }
+      if (type.equals(CmsPeriodType.FLOORLET)) {
+        builder.floorlet(strike);
+      }
+      periods.add(builder.build());
+    }
+    return ResolvedCmsLeg.builder().payReceive(PayReceive.RECEIVE).cmsPeriods(periods).build();
+  }
+
+}
@@ -64,6 +64,9 @@ import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDetermini
 import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
 import marc.henrard.murisq.model.lmm.LmmdddExamplesUtils;
 import marc.henrard.murisq.pricer.capfloor.HullWhiteCapFloorLegPricer;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentSchedule;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloResult;
 
 /**
  * Test {@link LmmdddRatchetProductMonteCarloPricer}.
@@ -271,6 +274,77 @@ public class LmmdddRatchetProductMonteCarloPricerTest {
     assertThat(pvMc).isEqualTo(pvMcPreviousRun, TOLERANCE_MC_1);
   }
   
+  /* Streaming present value: same as the aggregation on the materialized paths, block by block. */
+  @Test
+  public void hw_like_ratchet_streaming() {
+    ResolvedSwap ratchet = ResolvedSwap.of(createRatchetSwapLeg(COEFFICIENTS));
+    int nbPaths = 1_250;
+    int nbPathsBlock = 500;
+    List<LocalDate> iborDates = new ArrayList<>();
+    ImmutableList<SwapPaymentPeriod> ratchetPayments = ratchet.getLegs().get(0).getPaymentPeriods();
+    iborDates.add(ratchetPayments.get(0).getStartDate());
+    for (SwapPaymentPeriod period : ratchetPayments) {
+      iborDates.add(period.getEndDate());
+    }
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmHw =
+        LmmdddExamplesUtils.lmmHw(MEAN_REVERTION, HW_SIGMA, iborDates, EUR_EONIA, EUR_EURIBOR_3M,
+            ScaledSecondTime.DEFAULT, MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+    LmmdddRatchetProductMonteCarloPricer pricerStreaming = LmmdddRatchetProductMonteCarloPricer.builder()
+        .model(lmmHw)
+        .evolution(LMM_EVOLUTION)
+        .nbPaths(nbPaths)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .pathNumberBlock(nbPathsBlock).build();
+    double pvStreaming = pricerStreaming.presentValueDouble(ratchet, MULTICURVE_EUR);
+    LmmdddRatchetProductMonteCarloPricer pricerMaterialized = pricerStreaming.toBuilder()
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0))).build();
+    MulticurveEquivalentSchedule mce = pricerMaterialized.multicurveEquivalent(ratchet);
+    MulticurveEquivalentValues initialValues = pricerMaterialized.initialValues(mce, MULTICURVE_EUR);
+    double pvExpected = 0.0;
+    int nbPathsDone = 0;
+    while (nbPathsDone < nbPaths) {
+      int nbPathsLoop = Math.min(nbPathsBlock, nbPaths - nbPathsDone);
+      List<List<MulticurveEquivalentValues>> valuesExpiries =
+          pricerMaterialized.evolve(initialValues, mce.getDecisionTimes(), nbPathsLoop);
+      double[][] aggregation = pricerMaterialized.aggregation(mce, ratchet, valuesExpiries, lmmHw);
+      for (int looppath = 0; looppath < nbPathsLoop; looppath++) {
+        pvExpected += DoubleArray.ofUnsafe(aggregation[looppath]).sum();
+      }
+      nbPathsDone += nbPathsLoop;
+    }
+    pvExpected = pvExpected / nbPaths * pricerMaterialized.numeraireInitialValue(MULTICURVE_EUR);
+    assertThat(pvStreaming).isEqualTo(pvExpected, within(1.0E-6));
+  }
+
+  /* Streaming present value with standard error: same paths as the present value. */
+  @Test
+  public void hw_like_ratchet_streaming_result() {
+    ResolvedSwap ratchet = ResolvedSwap.of(createRatchetSwapLeg(COEFFICIENTS));
+    List<LocalDate> iborDates = new ArrayList<>();
+    ImmutableList<SwapPaymentPeriod> ratchetPayments = ratchet.getLegs().get(0).getPaymentPeriods();
+    iborDates.add(ratchetPayments.get(0).getStartDate());
+    for (SwapPaymentPeriod period : ratchetPayments) {
+      iborDates.add(period.getEndDate());
+    }
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmHw =
+        LmmdddExamplesUtils.lmmHw(MEAN_REVERTION, HW_SIGMA, iborDates, EUR_EONIA, EUR_EURIBOR_3M,
+            ScaledSecondTime.DEFAULT, MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+    LmmdddRatchetProductMonteCarloPricer pricer = LmmdddRatchetProductMonteCarloPricer.builder()
+        .model(lmmHw)
+        .evolution(LMM_EVOLUTION)
+        .nbPaths(1_250)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .pathNumberBlock(500).build();
+    double pv = pricer.presentValueDouble(ratchet, MULTICURVE_EUR);
+    MonteCarloResult result = pricer.toBuilder()
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0))).build()
+        .presentValueResult(ratchet, MULTICURVE_EUR);
+    assertThat(result.getPresentValue()).isEqualTo(pv, within(1.0E-6));
+    assertThat(result.getNbPaths()).isEqualTo(1_250);
+    assertThat(result.getBlocksCount()).isEqualTo(3);
+    assertThat(result.getStandardError()).isPositive().isLessThan(Double.POSITIVE_INFINITY);
+  }
+
   private ResolvedIborCapFloorLeg capFloor(double strike) {
     IborRateCalculation iborCal = IborRateCalculation.of(EUR_EURIBOR_3M);
     PeriodicSchedule schedule = PeriodicSchedule.of(
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.exposure;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.DayCounts;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParameters;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParametersProvider;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.pricer.swaption.HullWhiteSwaptionPhysicalProductPricer;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwap;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
+
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.hullwhite.HullWhiteOneFactorMonteCarloEvolution;
+
+/**
+ * Tests {@link HullWhiteOneFactorSwapExposureCalculator}.
+ * 
+ * @author Marc Henrard
+ */
+public class HullWhiteOneFactorSwapExposureCalculatorTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  /* Portfolio description */
+  private static final double NOTIONAL = 1_000_000.0d;
+  private static final LocalDate START_DATE = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofMonths(24)));
+  private static final ResolvedSwap SWAP_SPOT = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(VALUATION_DATE, Tenor.TENOR_5Y, BuySell.BUY, NOTIONAL, 0.0050, REF_DATA)
+      .resolve(REF_DATA).getProduct();
+  private static final ResolvedSwap SWAP_FWD = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(START_DATE, Tenor.TENOR_5Y, BuySell.SELL, NOTIONAL, 0.0100, REF_DATA)
+      .resolve(REF_DATA).getProduct();
+  private static final List<ResolvedSwap> PORTFOLIO = new ArrayList<>();
+  static {
+    PORTFOLIO.add(SWAP_SPOT);
+    PORTFOLIO.add(SWAP_FWD);
+  }
+
+  /* Model data */
+  private static final HullWhiteOneFactorPiecewiseConstantParameters PARAMETERS_HW =
+      HullWhiteOneFactorPiecewiseConstantParameters
+          .of(0.02, DoubleArray.of(0.0100, 0.0090, 0.0110), DoubleArray.of(2.0, 5.0));
+  private static final HullWhiteOneFactorPiecewiseConstantParametersProvider PROVIDER_HW =
+      HullWhiteOneFactorPiecewiseConstantParametersProvider
+          .of(PARAMETERS_HW, DayCounts.ACT_365F, VALUATION_DATE, VALUATION_TIME, VALUATION_ZONE);
+
+  private static final DiscountingSwapProductPricer PRICER_SWAP = DiscountingSwapProductPricer.DEFAULT;
+  private static final HullWhiteSwaptionPhysicalProductPricer PRICER_SWAPTION_HW =
+      HullWhiteSwaptionPhysicalProductPricer.DEFAULT;
+
+  private static final double TOLERANCE_PV = 1.0E-2;
+
+  /* On the valuation date, the portfolio value is the present value on all paths. */
+  @Test
+  public void valuation_date() {
+    List<LocalDate> dates = new ArrayList<>();
+    dates.add(VALUATION_DATE);
+    ExposureProfile profile = calculator(100).exposure(PORTFOLIO, MULTICURVE_EUR, PARAMETERS_HW, dates);
+    double pv = PRICER_SWAP.presentValue(SWAP_SPOT, MULTICURVE_EUR).getAmount(EUR_EURIBOR_3M.getCurrency())
+        .getAmount()
+        + PRICER_SWAP.presentValue(SWAP_FWD, MULTICURVE_EUR).getAmount(EUR_EURIBOR_3M.getCurrency()).getAmount();
+    assertThat(profile.getTimes().get(0)).isEqualTo(0.0d);
+    assertThat(profile.getExpectedExposure().get(0)).isEqualTo(Math.max(pv, 0.0d), within(TOLERANCE_PV));
+    assertThat(profile.getExpectedNegativeExposure().get(0)).isEqualTo(Math.min(pv, 0.0d), within(TOLERANCE_PV));
+    assertThat(profile.getPotentialFutureExposure().get(0)).isEqualTo(Math.max(pv, 0.0d), within(TOLERANCE_PV));
+    assertThat(profile.getDiscountedExpectedExposure().get(0)).isEqualTo(Math.max(pv, 0.0d), within(TOLERANCE_PV));
+    assertThat(profile.getExpectedPositiveExposure().get(0)).isEqualTo(Math.max(pv, 0.0d), within(TOLERANCE_PV));
+  }
+
+  /* At the first fixing date of a forward swap, the discounted expected exposure is the swaption price. */
+  @Test
+  public void swaption() {
+    LocalDate expiryDate = EUR_EURIBOR_3M.calculateFixingFromEffective(START_DATE, REF_DATA);
+    ResolvedSwap swap = EUR_FIXED_1Y_EURIBOR_3M
+        .createTrade(START_DATE, Tenor.TENOR_5Y, BuySell.BUY, NOTIONAL, 0.0050, REF_DATA)
+        .resolve(REF_DATA).getProduct();
+    ResolvedSwaption swaption = Swaption.builder()
+        .expiryDate(AdjustableDate.of(expiryDate)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+        .longShort(LongShort.LONG)
+        .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+        .underlying(EUR_FIXED_1Y_EURIBOR_3M
+            .createTrade(START_DATE, Tenor.TENOR_5Y, BuySell.BUY, NOTIONAL, 0.0050, REF_DATA).getProduct())
+        .build().resolve(REF_DATA);
+    List<ResolvedSwap> portfolio = new ArrayList<>();
+    portfolio.add(swap);
+    List<LocalDate> dates = new ArrayList<>();
+    dates.add(VALUATION_DATE);
+    dates.add(expiryDate);
+    ExposureProfile profile = calculator(50_000).exposure(portfolio, MULTICURVE_EUR, PARAMETERS_HW, dates);
+    double pvSwaption = PRICER_SWAPTION_HW.presentValue(swaption, MULTICURVE_EUR, PROVIDER_HW).getAmount();
+    assertThat(profile.getDiscountedExpectedExposure().get(1)).isEqualTo(pvSwaption, within(0.03 * pvSwaption));
+  }
+
+  /* The profiles do not depend on the number of threads, the exposures are 0 after the last payment. */
+  @Test
+  public void profiles() {
+    LocalDate endDate = SWAP_FWD.getEndDate().plusMonths(1);
+    List<LocalDate> dates = HullWhiteOneFactorSwapExposureCalculator.monthlyGrid(VALUATION_DATE, endDate);
+    ForkJoinPool pool1 = new ForkJoinPool(1);
+    ForkJoinPool pool4 = new ForkJoinPool(4);
+    ExposureProfile profile1;
+    ExposureProfile profile4;
+    try {
+      profile1 = calculator(2_000).exposure(PORTFOLIO, MULTICURVE_EUR, PARAMETERS_HW, dates, pool1);
+      profile4 = calculator(2_000).exposure(PORTFOLIO, MULTICURVE_EUR, PARAMETERS_HW, dates, pool4);
+    } finally {
+      pool1.shutdown();
+      pool4.shutdown();
+    }
+    assertThat(profile4).isEqualTo(profile1); // exactly the same
+    int nbDates = dates.size();
+    assertThat(profile1.getDates()).isEqualTo(dates);
+    for (int loopdate = 0; loopdate < nbDates; loopdate++) {
+      assertThat(profile1.getExpectedExposure().get(loopdate)).isGreaterThanOrEqualTo(0.0d);
+      assertThat(profile1.getExpectedNegativeExposure().get(loopdate)).isLessThanOrEqualTo(0.0d);
+      assertThat(profile1.getPotentialFutureExposure().get(loopdate))
+          .isGreaterThanOrEqualTo(profile1.getExpectedExposure().get(loopdate));
+    }
+    assertThat(profile1.getExpectedExposure().get(nbDates - 1)).isEqualTo(0.0d);
+    assertThat(profile1.getExpectedNegativeExposure().get(nbDates - 1)).isEqualTo(0.0d);
+    assertThat(profile1.getExpectedPositiveExposure())
+        .isEqualTo(ExposureProfile.expectedPositiveExposure(profile1.getTimes(), profile1.getExpectedExposure()));
+    assertThat(profile1.peakPotentialFutureExposure()).isEqualTo(profile1.getPotentialFutureExposure().max());
+  }
+
+  /* Out-of-the-money portfolio: the PFE is a quantile of the exposure and is never negative. */
+  @Test
+  public void pfe_out_of_the_money() {
+    ResolvedSwap swapOtm = EUR_FIXED_1Y_EURIBOR_3M
+        .createTrade(VALUATION_DATE, Tenor.TENOR_5Y, BuySell.BUY, NOTIONAL, 0.0500, REF_DATA)
+        .resolve(REF_DATA).getProduct();
+    List<ResolvedSwap> portfolio = new ArrayList<>();
+    portfolio.add(swapOtm);
+    List<LocalDate> dates = HullWhiteOneFactorSwapExposureCalculator
+        .monthlyGrid(VALUATION_DATE, VALUATION_DATE.plusMonths(12));
+    ExposureProfile profile = calculator(2_000).exposure(portfolio, MULTICURVE_EUR, PARAMETERS_HW, dates);
+    double pv = PRICER_SWAP.presentValue(swapOtm, MULTICURVE_EUR).getAmount(EUR_EURIBOR_3M.getCurrency())
+        .getAmount();
+    assertThat(pv).isNegative();
+    assertThat(profile.getPotentialFutureExposure().get(0)).isEqualTo(0.0d);
+    for (int loopdate = 0; loopdate < dates.size(); loopdate++) {
+      assertThat(profile.getPotentialFutureExposure().get(loopdate)).isGreaterThanOrEqualTo(0.0d);
+      assertThat(profile.getExpectedNegativeExposure().get(loopdate)).isNegative();
+    }
+  }
+
+  /* Monthly grid and expected positive exposure. */
+  @Test
+  public void grid_epe() {
+    LocalDate endDate = VALUATION_DATE.plusMonths(3).plusDays(10);
+    List<LocalDate> grid = HullWhiteOneFactorSwapExposureCalculator.monthlyGrid(VALUATION_DATE, endDate);
+    assertThat(grid).containsExactly(VALUATION_DATE, VALUATION_DATE.plusMonths(1), VALUATION_DATE.plusMonths(2),
+        VALUATION_DATE.plusMonths(3), endDate);
+    DoubleArray times = DoubleArray.of(0.0d, 0.5d, 1.5d);
+    DoubleArray ee = DoubleArray.of(1.0d, 2.0d, 4.0d);
+    DoubleArray epe = ExposureProfile.expectedPositiveExposure(times, ee);
+    assertThat(epe.get(0)).isEqualTo(1.0d);
+    assertThat(epe.get(1)).isEqualTo(2.0d, within(1.0E-12));
+    assertThat(epe.get(2)).isEqualTo((2.0d * 0.5d + 4.0d) / 1.5d, within(1.0E-12));
+  }
+
+  private static HullWhiteOneFactorSwapExposureCalculator calculator(int nbPaths) {
+    return HullWhiteOneFactorSwapExposureCalculator.builder()
+        .evolution(HullWhiteOneFactorMonteCarloEvolution.DEFAULT)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .nbPaths(nbPaths)
+        .pfeLevel(0.95d)
+        .build();
+  }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.generic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.math.impl.statistics.distribution.NormalDistribution;
+import com.opengamma.strata.math.impl.statistics.distribution.ProbabilityDistribution;
+
+/**
+ * Tests {@link CorrelatedGaussHermiteIntegrator2D}.
+ *
+ * @author Marc Henrard
+ */
+public class CorrelatedGaussHermiteIntegrator2DTest {
+
+  private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+  private static final CorrelatedGaussHermiteIntegrator2D INTEGRATOR = CorrelatedGaussHermiteIntegrator2D.of();
+  private static final double[] CORRELATIONS = {-0.90, -0.25, 0.0, 0.50, 0.95};
+  private static final double TOLERANCE = 1.0E-10;
+
+  /* The integrators are cached by order and the weights sum to 1. */
+  @Test
+  public void cache() {
+    assertThat(CorrelatedGaussHermiteIntegrator2D.of(20)).isSameAs(CorrelatedGaussHermiteIntegrator2D.of(20));
+    assertThat(INTEGRATOR.getOrder()).isEqualTo(CorrelatedGaussHermiteIntegrator2D.DEFAULT_ORDER);
+    double sum = 0.0d;
+    for (double w : INTEGRATOR.getWeights()) {
+      sum += w;
+    }
+    assertThat(sum).isEqualTo(1.0d, within(TOLERANCE));
+  }
+
+  /* Moments of the correlated normal variables are exact for polynomials. */
+  @Test
+  public void moments() {
+    for (double rho : CORRELATIONS) {
+      assertThat(INTEGRATOR.expectation((x0, x1) -> x0 * x1, rho)).isEqualTo(rho, within(TOLERANCE));
+      assertThat(INTEGRATOR.expectation((x0, x1) -> x1 * x1, rho)).isEqualTo(1.0d, within(TOLERANCE));
+      assertThat(INTEGRATOR.expectation((x0, x1) -> x0 * x0 * x1 * x1, rho))
+          .isEqualTo(1.0d + 2.0d * rho * rho, within(TOLERANCE));
+    }
+  }
+
+  /* Call on a log-normal variable v Black formula. */
+  @Test
+  public void positive_part_black() {
+    double sigma = 0.25;
+    double[] strikes = {0.5, 1.0, 1.5};
+    for (double rho : CORRELATIONS) {
+      for (double strike : strikes) {
+        double pv = INTEGRATOR.expectationPositivePart(
+            new double[] {-strike, Math.exp(-0.5 * sigma * sigma)},
+            new double[] {0.0d, 0.0d},
+            new double[] {0.0d, sigma},
+            rho);
+        double d1 = (-Math.log(strike) + 0.5 * sigma * sigma) / sigma;
+        double black = NORMAL.getCDF(d1) - strike * NORMAL.getCDF(d1 - sigma);
+        assertThat(pv).isEqualTo(black, within(TOLERANCE));
+      }
+    }
+  }
+
+  /* Exchange option on two correlated log-normal variables v Margrabe formula. */
+  @Test
+  public void positive_part_margrabe() {
+    double a = 0.30;
+    double b = 0.20;
+    for (double rho : CORRELATIONS) {
+      double pv = INTEGRATOR.expectationPositivePart(
+          new double[] {Math.exp(-0.5 * a * a), -Math.exp(-0.5 * b * b)},
+          new double[] {a, 0.0d},
+          new double[] {0.0d, b},
+          rho);
+      double sigma = Math.sqrt(a * a + b * b - 2.0d * rho * a * b);
+      double margrabe = 2.0d * NORMAL.getCDF(0.5d * sigma) - 1.0d;
+      assertThat(pv).isEqualTo(margrabe, within(1.0E-8));
+    }
+  }
+
+  /* The specialised integration and the tensor quadrature at high order are close. */
+  @Test
+  public void positive_part_tensor() {
+    double[] coefficients = {-1.0d, 0.45d, 0.60d};
+    double[] exponents0 = {0.0d, 0.30d, -0.10d};
+    double[] exponents1 = {0.0d, 0.05d, 0.25d};
+    for (double rho : CORRELATIONS) {
+      double pv = INTEGRATOR.expectationPositivePart(coefficients, exponents0, exponents1, rho);
+      double pvTensor = CorrelatedGaussHermiteIntegrator2D.of(96).expectation((x0, x1) -> {
+        double sum = 0.0d;
+        for (int i = 0; i < coefficients.length; i++) {
+          sum += coefficients[i] * Math.exp(exponents0[i] * x0 + exponents1[i] * x1);
+        }
+        return Math.max(sum, 0.0d);
+      }, rho);
+      assertThat(pv).isEqualTo(pvTensor, within(5.0E-4)); // slow convergence of the tensor quadrature with a kink
+    }
+  }
+
+}
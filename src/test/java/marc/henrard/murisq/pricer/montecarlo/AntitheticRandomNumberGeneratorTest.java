@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+/**
+ * Tests {@link AntitheticRandomNumberGenerator}.
+ * 
+ * @author Marc Henrard
+ */
+public class AntitheticRandomNumberGeneratorTest {
+
+  /* Even size: second half is the opposite of the first half, which is the underlying numbers. */
+  @Test
+  public void even() {
+    RandomNumberGenerator underlying = generator();
+    AntitheticRandomNumberGenerator antithetic = AntitheticRandomNumberGenerator.of(generator());
+    assertThat(antithetic.getUnderlying()).isNotNull();
+    double[] expected = underlying.getVector(5);
+    double[] computed = antithetic.getVector(10);
+    for (int i = 0; i < 5; i++) {
+      assertThat(computed[i]).isEqualTo(expected[i]);
+      assertThat(computed[i + 5]).isEqualTo(-expected[i]);
+    }
+  }
+
+  /* Odd size: the middle number has no antithetic partner. */
+  @Test
+  public void odd() {
+    RandomNumberGenerator underlying = generator();
+    AntitheticRandomNumberGenerator antithetic = AntitheticRandomNumberGenerator.of(generator());
+    double[] expected = underlying.getVector(4);
+    double[] computed = antithetic.getVector(7);
+    for (int i = 0; i < 4; i++) {
+      assertThat(computed[i]).isEqualTo(expected[i]);
+    }
+    for (int i = 0; i < 3; i++) {
+      assertThat(computed[i + 4]).isEqualTo(-expected[i]);
+    }
+  }
+
+  /* The sum of each vector is 0. */
+  @Test
+  public void vectors() {
+    List<double[]> vectors = AntitheticRandomNumberGenerator.of(generator()).getVectors(100, 3);
+    assertThat(vectors).hasSize(3);
+    for (double[] vector : vectors) {
+      double sum = 0.0;
+      for (int i = 0; i < 50; i++) {
+        sum += vector[i] + vector[i + 50];
+      }
+      assertThat(sum).isEqualTo(0.0);
+    }
+  }
+
+  private static RandomNumberGenerator generator() {
+    return new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0));
+  }
+
+}
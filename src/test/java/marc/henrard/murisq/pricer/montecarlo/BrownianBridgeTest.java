@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+
+/**
+ * Tests {@link BrownianBridge}.
+ * 
+ * @author Marc Henrard
+ */
+public class BrownianBridgeTest {
+
+  private static final Offset<Double> TOLERANCE = within(1.0E-12);
+
+  /* Two times: explicit bridge formula. */
+  @Test
+  public void two_times() {
+    double t1 = 0.75;
+    double t2 = 2.0;
+    double[][] normals = {{0.3, -1.2}, {-0.5, 0.8}};
+    double[][] increments = BrownianBridge.of(new double[] {t1, t2}).increments(normals);
+    for (int looppath = 0; looppath < 2; looppath++) {
+      double w2 = Math.sqrt(t2) * normals[0][looppath];
+      double w1 = t1 / t2 * w2 + Math.sqrt(t1 * (t2 - t1) / t2) * normals[1][looppath];
+      assertThat(increments[0][looppath]).isEqualTo(w1 / Math.sqrt(t1), TOLERANCE);
+      assertThat(increments[1][looppath]).isEqualTo((w2 - w1) / Math.sqrt(t2 - t1), TOLERANCE);
+    }
+  }
+
+  /* The sum of the increments depends only on the first normal. */
+  @Test
+  public void terminal_value() {
+    double[] times = {0.25, 0.5, 1.0, 1.5, 2.5, 3.0, 5.0};
+    int nbPaths = 10;
+    NormalRandomNumberGenerator generator = new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0));
+    double[][] normals = new double[times.length][];
+    for (int i = 0; i < times.length; i++) {
+      normals[i] = generator.getVector(nbPaths);
+    }
+    BrownianBridge bridge = BrownianBridge.of(times);
+    assertThat(bridge.getSize()).isEqualTo(times.length);
+    double[][] increments = bridge.increments(normals);
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      double w = increments[0][looppath] * Math.sqrt(times[0]);
+      for (int i = 1; i < times.length; i++) {
+        w += increments[i][looppath] * Math.sqrt(times[i] - times[i - 1]);
+      }
+      assertThat(w).isEqualTo(Math.sqrt(times[times.length - 1]) * normals[0][looppath], TOLERANCE);
+    }
+  }
+
+  /* The increments are independent standard normal variables. */
+  @Test
+  public void distribution() {
+    double[] times = {0.3, 0.5, 1.2, 2.0, 2.1, 3.7, 5.0};
+    int nbPaths = 100_000;
+    NormalRandomNumberGenerator generator = new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0));
+    double[][] normals = new double[times.length][];
+    for (int i = 0; i < times.length; i++) {
+      normals[i] = generator.getVector(nbPaths);
+    }
+    double[][] increments = BrownianBridge.of(times).increments(normals);
+    for (int i = 0; i < times.length; i++) {
+      double sum = 0.0;
+      double sum2 = 0.0;
+      double product = 0.0;
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        sum += increments[i][looppath];
+        sum2 += increments[i][looppath] * increments[i][looppath];
+        product += increments[i][looppath] * increments[(i + 1) % times.length][looppath];
+      }
+      assertThat(sum / nbPaths).isEqualTo(0.0, within(2.0E-2));
+      assertThat(sum2 / nbPaths).isEqualTo(1.0, within(2.0E-2));
+      assertThat(product / nbPaths).isEqualTo(0.0, within(2.0E-2));
+    }
+  }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.SwapTrade;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.model.lmm.LmmdddExamplesUtils;
+import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductMonteCarloPricer;
+
+/**
+ * Tests {@link LmmdddMonteCarloPortfolioPricer}.
+ * 
+ * @author Marc Henrard
+ */
+public class LmmdddMonteCarloPortfolioPricerTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final double MEAN_REVERTION = 0.02;
+  private static final double HW_SIGMA = 0.01;
+  private static final LiborMarketModelMonteCarloEvolution EVOLUTION =
+      LiborMarketModelMonteCarloEvolution.DEFAULT;
+
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ImmutableRatesProvider MULTICURVE_EUR = 
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+  private static final LocalDate EXPIRY_DATE_1 = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofMonths(12)));
+  private static final LocalDate EXPIRY_DATE_2 = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofMonths(24)));
+  private static final double[] STRIKES = {0.0050, 0.0100, 0.0150};
+  private static final ResolvedSwaption[] SWAPTIONS_2 = new ResolvedSwaption[STRIKES.length];
+  static {
+    for (int i = 0; i < STRIKES.length; i++) {
+      SWAPTIONS_2[i] = swaption(EXPIRY_DATE_2, STRIKES[i]);
+    }
+  }
+  /* Expiry 1Y on the same forward starting swap as the 2Y expiry swaption. */
+  private static final ResolvedSwaption SWAPTION_1 = swaption(EXPIRY_DATE_1, STRIKES[1]);
+  private static final List<LocalDate> IBOR_DATES_SWAPTION = new ArrayList<>();
+  static {
+    ResolvedSwapLeg leg = SWAPTIONS_2[0].getUnderlying().getLegs().get(1);
+    IBOR_DATES_SWAPTION.add(leg.getPaymentPeriods().get(0).getStartDate());
+    for (int i = 0; i < leg.getPaymentPeriods().size(); i++) {
+      IBOR_DATES_SWAPTION.add(leg.getPaymentPeriods().get(i).getPaymentDate());
+    }
+  }
+  private static final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters LMMHW_SWAPTION = 
+      LmmdddExamplesUtils.
+      lmmHw(MEAN_REVERTION, HW_SIGMA, IBOR_DATES_SWAPTION, EUR_EONIA, EUR_EURIBOR_3M, ScaledSecondTime.DEFAULT, 
+          MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+  private static final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters LMMHW_SWAPTION_2 = 
+      LmmdddExamplesUtils.
+      lmmHw(MEAN_REVERTION, 2 * HW_SIGMA, IBOR_DATES_SWAPTION, EUR_EONIA, EUR_EURIBOR_3M, 
+          ScaledSecondTime.DEFAULT, MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+
+  private static final int NB_PATHS = 2_500;
+  private static final int NB_PATHS_BLOCK = 1_000;
+  private static final double TOLERANCE_PV = 1.0E-8;
+
+  /* Same expiry: one simulation and same present values as the individual pricers. */
+  @Test
+  public void same_expiry() {
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricer = pricerSwaption(LMMHW_SWAPTION, generator());
+    List<LmmdddMonteCarloPortfolioItem<ResolvedSwaption>> portfolio = new ArrayList<>();
+    for (int i = 0; i < STRIKES.length; i++) {
+      portfolio.add(LmmdddMonteCarloPortfolioItem.of(pricer, SWAPTIONS_2[i]));
+    }
+    LmmdddMonteCarloPortfolioPricer portfolioPricer =
+        LmmdddMonteCarloPortfolioPricer.of(NB_PATHS, NB_PATHS_BLOCK, generator());
+    assertThat(portfolioPricer.simulationsCount(portfolio)).isEqualTo(1);
+    DoubleArray pv = portfolioPricer.presentValueDouble(portfolio, MULTICURVE_EUR);
+    assertThat(pv.size()).isEqualTo(STRIKES.length);
+    for (int i = 0; i < STRIKES.length; i++) {
+      double pvExpected = pricerSwaption(LMMHW_SWAPTION, generator())
+          .presentValueDouble(SWAPTIONS_2[i], MULTICURVE_EUR);
+      assertThat(pv.get(i)).isEqualTo(pvExpected, within(TOLERANCE_PV));
+    }
+  }
+
+  /* Two expiries: groups simulated in the order of their first product, with the portfolio generator. */
+  @Test
+  public void two_expiries() {
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricer = pricerSwaption(LMMHW_SWAPTION, generator());
+    List<LmmdddMonteCarloPortfolioItem<ResolvedSwaption>> portfolio = ImmutableList.of(
+        LmmdddMonteCarloPortfolioItem.of(pricer, SWAPTIONS_2[0]),
+        LmmdddMonteCarloPortfolioItem.of(pricer, SWAPTION_1),
+        LmmdddMonteCarloPortfolioItem.of(pricer, SWAPTIONS_2[2]));
+    LmmdddMonteCarloPortfolioPricer portfolioPricer =
+        LmmdddMonteCarloPortfolioPricer.of(NB_PATHS, NB_PATHS_BLOCK, generator());
+    assertThat(portfolioPricer.simulationsCount(portfolio)).isEqualTo(2);
+    DoubleArray pv = portfolioPricer.presentValueDouble(portfolio, MULTICURVE_EUR);
+    // First group: first simulation of the generator
+    double pv0Expected = pricerSwaption(LMMHW_SWAPTION, generator())
+        .presentValueDouble(SWAPTIONS_2[0], MULTICURVE_EUR);
+    double pv2Expected = pricerSwaption(LMMHW_SWAPTION, generator())
+        .presentValueDouble(SWAPTIONS_2[2], MULTICURVE_EUR);
+    assertThat(pv.get(0)).isEqualTo(pv0Expected, within(TOLERANCE_PV));
+    assertThat(pv.get(2)).isEqualTo(pv2Expected, within(TOLERANCE_PV));
+    // Second group: generator after the first simulation
+    RandomNumberGenerator generatorShared = generator();
+    pricerSwaption(LMMHW_SWAPTION, generatorShared).presentValueDouble(SWAPTIONS_2[0], MULTICURVE_EUR);
+    double pv1Expected = pricerSwaption(LMMHW_SWAPTION, generatorShared)
+        .presentValueDouble(SWAPTION_1, MULTICURVE_EUR);
+    assertThat(pv.get(1)).isEqualTo(pv1Expected, within(TOLERANCE_PV));
+  }
+
+  /* Different models: one simulation for each model. */
+  @Test
+  public void different_models() {
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricer1 = pricerSwaption(LMMHW_SWAPTION, generator());
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricer2 = pricerSwaption(LMMHW_SWAPTION_2, generator());
+    List<LmmdddMonteCarloPortfolioItem<ResolvedSwaption>> portfolio = ImmutableList.of(
+        LmmdddMonteCarloPortfolioItem.of(pricer1, SWAPTIONS_2[1]),
+        LmmdddMonteCarloPortfolioItem.of(pricer2, SWAPTIONS_2[1]));
+    LmmdddMonteCarloPortfolioPricer portfolioPricer =
+        LmmdddMonteCarloPortfolioPricer.of(NB_PATHS, NB_PATHS_BLOCK, generator());
+    assertThat(portfolioPricer.simulationsCount(portfolio)).isEqualTo(2);
+    DoubleArray pv = portfolioPricer.presentValueDouble(portfolio, MULTICURVE_EUR);
+    assertThat(pv.get(1)).isGreaterThan(pv.get(0)); // larger volatility
+  }
+
+  private static RandomNumberGenerator generator() {
+    return new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0));
+  }
+
+  private static LmmdddSwaptionPhysicalProductMonteCarloPricer pricerSwaption(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm,
+      RandomNumberGenerator generator) {
+
+    return LmmdddSwaptionPhysicalProductMonteCarloPricer.builder()
+        .evolution(EVOLUTION)
+        .model(lmm)
+        .numberGenerator(generator)
+        .nbPaths(NB_PATHS)
+        .pathNumberBlock(NB_PATHS_BLOCK)
+        .build();
+  }
+
+  private static ResolvedSwaption swaption(LocalDate expiryDate, double strike) {
+    SwapTrade swap = EUR_FIXED_1Y_EURIBOR_3M
+        .createTrade(EXPIRY_DATE_2, Tenor.TENOR_5Y, BuySell.BUY, 1_000_000.0d, strike, REF_DATA);
+    return Swaption.builder()
+        .expiryDate(AdjustableDate.of(expiryDate)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+        .longShort(LongShort.LONG)
+        .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+        .underlying(swap.getProduct()).build().resolve(REF_DATA);
+  }
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.DayCounts;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParameters;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParametersProvider;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.pricer.swaption.HullWhiteSwaptionPhysicalProductPricer;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.ResolvedSwapTrade;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.model.lmm.LmmdddExamplesUtils;
+import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductMonteCarloPricer;
+
+/**
+ * Tests {@link MonteCarloCommonRandomNumbersCalculator}.
+ *
+ * @author Marc Henrard
+ */
+public class MonteCarloCommonRandomNumbersCalculatorTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  /* Swaption description */
+  private static final LocalDate EXPIRY_DATE = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofMonths(60)));
+  private static final double NOTIONAL = 1_000_000.0d;
+  private static final ResolvedSwapTrade SWAP_0 = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(EXPIRY_DATE, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA).resolve(REF_DATA);
+  private static final double PAR_RATE =
+      DiscountingSwapProductPricer.DEFAULT.parRate(SWAP_0.getProduct(), MULTICURVE_EUR);
+  private static final ResolvedSwaption SWAPTION = Swaption.builder()
+      .expiryDate(AdjustableDate.of(EXPIRY_DATE)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+      .longShort(LongShort.LONG)
+      .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+      .underlying(EUR_FIXED_1Y_EURIBOR_3M
+          .createTrade(EXPIRY_DATE, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, PAR_RATE + 0.0050, REF_DATA)
+          .getProduct())
+      .build().resolve(REF_DATA);
+
+  /* Model data */
+  private static final double MEAN_REVERSION = 0.02;
+  private static final double HW_SIGMA = 0.01;
+  private static final double SHIFT = 1.0E-4;
+  private static final List<LocalDate> IBOR_DATES = new ArrayList<>();
+  static {
+    ResolvedSwapLeg leg = SWAPTION.getUnderlying().getLegs().get(1);
+    IBOR_DATES.add(leg.getPaymentPeriods().get(0).getStartDate());
+    for (int i = 0; i < leg.getPaymentPeriods().size(); i++) {
+      IBOR_DATES.add(leg.getPaymentPeriods().get(i).getPaymentDate());
+    }
+  }
+
+  /* Monte Carlo */
+  private static final int NB_PATHS = 20_000;
+  private static final int PATHS_BLOCK = 1_000;
+  private static final MonteCarloRandomStreams STREAMS = MonteCarloRandomStreams.of(20151120L);
+  private static final LmmdddSwaptionPhysicalProductMonteCarloPricer PRICER_BASE = pricer(HW_SIGMA);
+  private static final MonteCarloStoredRandomNumbers NUMBERS = MonteCarloStoredRandomNumbers
+      .of(STREAMS, PRICER_BASE.randomDimension(SWAPTION), NB_PATHS, PATHS_BLOCK);
+
+  /* The stored numbers produce the same present value as the streams. */
+  @Test
+  public void present_value_streams() {
+    MonteCarloCommonRandomNumbersCalculator calculator = MonteCarloCommonRandomNumbersCalculator.of(NUMBERS);
+    double pvStored = calculator.presentValue(SWAPTION, PRICER_BASE, MULTICURVE_EUR);
+    double pvStreams = PRICER_BASE.presentValueDoubleParallel(SWAPTION, MULTICURVE_EUR, STREAMS);
+    double pvReplay = PRICER_BASE.presentValueDoubleParallel(SWAPTION, MULTICURVE_EUR, NUMBERS::blockGenerator,
+        ForkJoinPool.commonPool());
+    assertThat(pvStored).isEqualTo(pvStreams); // exactly the same
+    assertThat(pvReplay).isEqualTo(pvStreams);
+  }
+
+  /* A bump with the base data has exactly zero sensitivity; the result does not depend on the number of threads. */
+  @Test
+  public void bump_parallel() {
+    ForkJoinPool pool1 = new ForkJoinPool(1);
+    ForkJoinPool pool4 = new ForkJoinPool(4);
+    List<LmmdddSwaptionPhysicalProductMonteCarloPricer> pricers = new ArrayList<>();
+    pricers.add(PRICER_BASE);
+    pricers.add(pricer(HW_SIGMA + SHIFT));
+    List<RatesProvider> multicurves = new ArrayList<>();
+    multicurves.add(MULTICURVE_EUR);
+    multicurves.add(MULTICURVE_EUR);
+    DoubleArray sensi1;
+    DoubleArray sensi4;
+    try {
+      sensi1 = MonteCarloCommonRandomNumbersCalculator.of(NUMBERS, pool1)
+          .finiteDifferenceSensitivities(SWAPTION, PRICER_BASE, MULTICURVE_EUR, pricers, multicurves, SHIFT);
+      sensi4 = MonteCarloCommonRandomNumbersCalculator.of(NUMBERS, pool4)
+          .finiteDifferenceSensitivities(SWAPTION, PRICER_BASE, MULTICURVE_EUR, pricers, multicurves, SHIFT);
+    } finally {
+      pool1.shutdown();
+      pool4.shutdown();
+    }
+    assertThat(sensi1.get(0)).isEqualTo(0.0d);
+    assertThat(sensi4).isEqualTo(sensi1); // exactly the same
+  }
+
+  /* Vega with common random numbers v the Hull-White explicit vega. */
+  @Test
+  public void vega_hw() {
+    MonteCarloCommonRandomNumbersCalculator calculator = MonteCarloCommonRandomNumbersCalculator.of(NUMBERS);
+    List<LmmdddSwaptionPhysicalProductMonteCarloPricer> pricers = new ArrayList<>();
+    pricers.add(pricer(HW_SIGMA + SHIFT));
+    List<RatesProvider> multicurves = new ArrayList<>();
+    multicurves.add(MULTICURVE_EUR);
+    double vegaMc = calculator
+        .finiteDifferenceSensitivities(SWAPTION, PRICER_BASE, MULTICURVE_EUR, pricers, multicurves, SHIFT).get(0);
+    HullWhiteSwaptionPhysicalProductPricer pricerHw = HullWhiteSwaptionPhysicalProductPricer.DEFAULT;
+    double pvHw = pricerHw.presentValue(SWAPTION, MULTICURVE_EUR, providerHw(HW_SIGMA)).getAmount();
+    double pvHwBumped = pricerHw.presentValue(SWAPTION, MULTICURVE_EUR, providerHw(HW_SIGMA + SHIFT)).getAmount();
+    double vegaHw = (pvHwBumped - pvHw) / SHIFT;
+    assertThat(vegaMc / vegaHw).isEqualTo(1.0d, within(5.0E-2));
+  }
+
+  private static LmmdddSwaptionPhysicalProductMonteCarloPricer pricer(double sigma) {
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmHw =
+        LmmdddExamplesUtils.lmmHw(MEAN_REVERSION, sigma, IBOR_DATES, EUR_EONIA, EUR_EURIBOR_3M,
+            ScaledSecondTime.DEFAULT, MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+    return LmmdddSwaptionPhysicalProductMonteCarloPricer.builder()
+        .evolution(LiborMarketModelMonteCarloEvolution.DEFAULT)
+        .model(lmmHw)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .nbPaths(NB_PATHS)
+        .pathNumberBlock(PATHS_BLOCK)
+        .build();
+  }
+
+  private static HullWhiteOneFactorPiecewiseConstantParametersProvider providerHw(double sigma) {
+    return HullWhiteOneFactorPiecewiseConstantParametersProvider.of(
+        HullWhiteOneFactorPiecewiseConstantParameters.of(MEAN_REVERSION, DoubleArray.of(sigma), DoubleArray.of()),
+        DayCounts.ACT_365F, VALUATION_DATE, VALUATION_TIME, VALUATION_ZONE);
+  }
+
+}
@@ -5,27 +5,47 @@ package marc.henrard.murisq.pricer.montecarlo;
 
 import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
 import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.within;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.Period;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
 
 import com.google.common.collect.ImmutableList;
 import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
 import com.opengamma.strata.collect.tuple.Triple;
 import com.opengamma.strata.math.impl.cern.MersenneTwister64;
 import com.opengamma.strata.math.impl.cern.RandomEngine;
 import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.SwapTrade;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
 
 import marc.henrard.murisq.basics.time.ScaledSecondTime;
 import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
 import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
 import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
 import marc.henrard.murisq.model.lmm.LmmdddExamplesUtils;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
 import marc.henrard.murisq.pricer.swaption.LmmdddSwaptionPhysicalProductMonteCarloPricer;
 
 /**
@@ -57,6 +77,32 @@ public class MonteCarloEuropeanPricerTest {
   private static final LiborMarketModelMonteCarloEvolution EVOLUTION =
       LiborMarketModelMonteCarloEvolution.DEFAULT;
   
+  /* Swaption and model adapted to the swaption dates */
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ImmutableRatesProvider MULTICURVE_EUR = 
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+  private static final LocalDate EXPIRY_DATE = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofMonths(24)));
+  private static final SwapTrade SWAP = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(EXPIRY_DATE, Tenor.TENOR_5Y, BuySell.BUY, 1_000_000.0d, 0.0050, REF_DATA);
+  private static final ResolvedSwaption SWAPTION = Swaption.builder()
+      .expiryDate(AdjustableDate.of(EXPIRY_DATE)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+      .longShort(LongShort.LONG)
+      .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+      .underlying(SWAP.getProduct()).build().resolve(REF_DATA);
+  private static final List<LocalDate> IBOR_DATES_SWAPTION = new ArrayList<>();
+  static {
+    ResolvedSwapLeg leg = SWAPTION.getUnderlying().getLegs().get(1);
+    IBOR_DATES_SWAPTION.add(leg.getPaymentPeriods().get(0).getStartDate());
+    for (int i = 0; i < leg.getPaymentPeriods().size(); i++) {
+      IBOR_DATES_SWAPTION.add(leg.getPaymentPeriods().get(i).getPaymentDate());
+    }
+  }
+  private static final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters LMMHW_SWAPTION = 
+      LmmdddExamplesUtils.
+      lmmHw(MEAN_REVERTION, HW_SIGMA, IBOR_DATES_SWAPTION, EUR_EONIA, EUR_EURIBOR_3M, ScaledSecondTime.DEFAULT, 
+          MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+  
   @Test
   public void decomposition1() {
     int blocks = 3;
@@ -96,5 +142,114 @@ public class MonteCarloEuropeanPricerTest {
     assertThat(dec.getSecond()).isEqualTo(pathPerBlock);
     assertThat(dec.getThird()).isEqualTo(extra);
   }
+  
+  /* Parallel implementation: independent of the number of threads and equal to the block by block computation. */
+  @Test
+  public void present_value_parallel() {
+    int pathPerBlock = 1_000;
+    int nbPaths = 2 * pathPerBlock + 500;
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricer = 
+        LmmdddSwaptionPhysicalProductMonteCarloPricer.builder()
+        .evolution(EVOLUTION)
+        .model(LMMHW_SWAPTION)
+        .numberGenerator(RND)
+        .nbPaths(nbPaths)
+        .pathNumberBlock(pathPerBlock)
+        .build();
+    MonteCarloRandomStreams streams = MonteCarloRandomStreams.of(20151120L);
+    ForkJoinPool pool1 = new ForkJoinPool(1);
+    ForkJoinPool pool4 = new ForkJoinPool(4);
+    double pv1;
+    double pv4;
+    try {
+      pv1 = pricer.presentValueDoubleParallel(SWAPTION, MULTICURVE_EUR, streams, pool1);
+      pv4 = pricer.presentValueDoubleParallel(SWAPTION, MULTICURVE_EUR, streams, pool4);
+    } finally {
+      pool1.shutdown();
+      pool4.shutdown();
+    }
+    assertThat(pv4).isEqualTo(pv1); // exactly the same
+    // Block by block
+    MulticurveEquivalent mce = pricer.multicurveEquivalent(SWAPTION);
+    MulticurveEquivalentValues initialValues = pricer.initialValues(mce, MULTICURVE_EUR);
+    double pvExpected = 0.0;
+    for (int loopblock = 0; loopblock < 3; loopblock++) {
+      int nbPathsBlock = (loopblock < 2) ? pathPerBlock : 500;
+      List<MulticurveEquivalentValues> valuesExpiry = pricer
+          .evolve(initialValues, mce.getDecisionTime(), nbPathsBlock, streams.blockGenerator(loopblock));
+      pvExpected += pricer.aggregation(SWAPTION, mce, valuesExpiry).sum();
+    }
+    pvExpected = pvExpected / nbPaths * pricer.numeraireInitialValue(MULTICURVE_EUR);
+    assertThat(pv1).isEqualTo(pvExpected);
+  }
+
+  /* Parallel: the exception of a block is propagated unwrapped. */
+  @Test
+  public void present_value_parallel_exception() {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      assertThatIllegalArgumentException()
+          .isThrownBy(() -> pricerSwaption(2_500, 1_000).presentValueDoubleParallel(SWAPTION, MULTICURVE_EUR,
+              blockIndex -> {
+                throw new IllegalArgumentException("block " + blockIndex);
+              },
+              pool))
+          .withMessageStartingWith("block ");
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /* Result: same present value as the double version and consistent statistics. */
+  @Test
+  public void present_value_result() {
+    int pathPerBlock = 1_000;
+    int nbPaths = 2 * pathPerBlock + 500;
+    double pvExpected = pricerSwaption(nbPaths, pathPerBlock).presentValueDouble(SWAPTION, MULTICURVE_EUR);
+    MonteCarloResult result = pricerSwaption(nbPaths, pathPerBlock).presentValueResult(SWAPTION, MULTICURVE_EUR);
+    assertThat(result.getPresentValue()).isEqualTo(pvExpected, within(1.0E-8));
+    assertThat(result.getNbPaths()).isEqualTo(nbPaths);
+    assertThat(result.getBlocksCount()).isEqualTo(3);
+    assertThat(result.getBlockPathsCounts().toArray()).containsExactly(pathPerBlock, pathPerBlock, 500);
+    assertThat(result.convergenceTrace().get(2)).isEqualTo(result.getPresentValue(), within(1.0E-8));
+    // Standard error consistent with the dispersion of the block estimates
+    assertThat(result.getStandardError()).isPositive();
+    double blockDifference = Math.abs(result.getBlockPresentValues().get(0) - result.getBlockPresentValues().get(1));
+    assertThat(blockDifference).isLessThan(10.0 * result.getStandardError() * Math.sqrt(nbPaths / pathPerBlock));
+  }
+
+  /* Adaptive: stops at the target standard error, at the maximum number of paths or at the maximal duration. */
+  @Test
+  public void present_value_result_adaptive() {
+    int pathPerBlock = 1_000;
+    int nbPaths = 20 * pathPerBlock;
+    MonteCarloResult resultFull = pricerSwaption(nbPaths, pathPerBlock)
+        .presentValueResultAdaptive(SWAPTION, MULTICURVE_EUR, 0.0d, null);
+    assertThat(resultFull.getNbPaths()).isEqualTo(nbPaths);
+    MonteCarloResult resultLarge = pricerSwaption(nbPaths, pathPerBlock)
+        .presentValueResultAdaptive(SWAPTION, MULTICURVE_EUR, 1.0E+10, null);
+    assertThat(resultLarge.getNbPaths()).isEqualTo(2 * pathPerBlock); // minimum two blocks
+    double target = 2.0 * resultFull.getStandardError();
+    MonteCarloResult resultTarget = pricerSwaption(nbPaths, pathPerBlock)
+        .presentValueResultAdaptive(SWAPTION, MULTICURVE_EUR, target, null);
+    assertThat(resultTarget.getStandardError()).isLessThan(target);
+    assertThat(resultTarget.getNbPaths()).isLessThan(nbPaths);
+    assertThat(resultTarget.getBlockPresentValues().toArray())
+        .containsExactly(resultFull.getBlockPresentValues().subArray(0, resultTarget.getBlocksCount()).toArray());
+    MonteCarloResult resultTime = pricerSwaption(nbPaths, pathPerBlock)
+        .presentValueResultAdaptive(SWAPTION, MULTICURVE_EUR, 0.0d, Duration.ZERO);
+    assertThat(resultTime.getNbPaths()).isEqualTo(pathPerBlock); // at least one block
+  }
+
+  // Swaption pricer with a new generator
+  private static LmmdddSwaptionPhysicalProductMonteCarloPricer pricerSwaption(int nbPaths, int pathPerBlock) {
+    return LmmdddSwaptionPhysicalProductMonteCarloPricer.builder()
+        .evolution(EVOLUTION)
+        .model(LMMHW_SWAPTION)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .nbPaths(nbPaths)
+        .pathNumberBlock(pathPerBlock)
+        .build();
+  }
 
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Random;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link MonteCarloLeastSquaresRegression}.
+ * 
+ * @author Marc Henrard
+ */
+public class MonteCarloLeastSquaresRegressionTest {
+
+  private static final int NB_PATHS = 1000;
+  private static final double[] COEFFICIENTS = {0.10, -2.0, 30.0, 0.01, 0.5};
+  private static final Offset<Double> TOLERANCE_COEF = within(1.0E-8);
+
+  /* Values exactly in the span of the basis functions: coefficients recovered. */
+  @Test
+  public void regression_exact() {
+    double[][] basis = basis();
+    double[] values = new double[NB_PATHS];
+    for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+      values[looppath] = MonteCarloLeastSquaresRegression.value(basis, COEFFICIENTS, looppath);
+    }
+    double[] computed = MonteCarloLeastSquaresRegression.regression(basis, values, null);
+    for (int loopfn = 0; loopfn < COEFFICIENTS.length; loopfn++) {
+      assertThat(computed[loopfn]).isEqualTo(COEFFICIENTS[loopfn], TOLERANCE_COEF);
+    }
+  }
+
+  /* Only the selected paths are used: other paths values are irrelevant. */
+  @Test
+  public void regression_selected() {
+    double[][] basis = basis();
+    double[] values = new double[NB_PATHS];
+    boolean[] selected = new boolean[NB_PATHS];
+    for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+      selected[looppath] = looppath % 3 != 0;
+      values[looppath] = selected[looppath] ?
+          MonteCarloLeastSquaresRegression.value(basis, COEFFICIENTS, looppath) : 1000.0d;
+    }
+    double[] computed = MonteCarloLeastSquaresRegression.regression(basis, values, selected);
+    for (int loopfn = 0; loopfn < COEFFICIENTS.length; loopfn++) {
+      assertThat(computed[loopfn]).isEqualTo(COEFFICIENTS[loopfn], TOLERANCE_COEF);
+    }
+  }
+
+  /* Residuals of the least-square fit are orthogonal to the basis functions. */
+  @Test
+  public void regression_orthogonal() {
+    double[][] basis = basis();
+    Random random = new Random(1);
+    double[] values = new double[NB_PATHS];
+    for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+      values[looppath] = Math.max(0.0d, basis[1][looppath] - 0.02) * basis[3][looppath] + 0.01 * random.nextGaussian();
+    }
+    double[] computed = MonteCarloLeastSquaresRegression.regression(basis, values, null);
+    for (int loopfn = 0; loopfn < COEFFICIENTS.length; loopfn++) {
+      double scalar = 0.0d;
+      double norm = 0.0d;
+      for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+        double residual = values[looppath] - MonteCarloLeastSquaresRegression.value(basis, computed, looppath);
+        scalar += residual * basis[loopfn][looppath];
+        norm += basis[loopfn][looppath] * basis[loopfn][looppath];
+      }
+      assertThat(scalar / Math.sqrt(norm)).isEqualTo(0.0d, within(1.0E-10));
+    }
+  }
+
+  /* Linearly dependent basis function: coefficient 0. */
+  @Test
+  public void regression_dependent() {
+    double[][] basis = basis();
+    double[][] basisDependent = {basis[0], basis[1], basis[1]};
+    double[] values = new double[NB_PATHS];
+    for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+      values[looppath] = 0.5 + 2.0 * basis[1][looppath];
+    }
+    double[] computed = MonteCarloLeastSquaresRegression.regression(basisDependent, values, null);
+    assertThat(computed[0]).isEqualTo(0.5, TOLERANCE_COEF);
+    assertThat(computed[1]).isEqualTo(2.0, TOLERANCE_COEF);
+    assertThat(computed[2]).isEqualTo(0.0);
+  }
+
+  // Basis 1, S, S^2, A, S A with S around 2% and A around 8
+  private static double[][] basis() {
+    Random random = new Random(0);
+    double[][] basis = new double[5][NB_PATHS];
+    for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+      double s = 0.02 + 0.01 * random.nextGaussian();
+      double a = 8.0 + random.nextGaussian();
+      basis[0][looppath] = 1.0d;
+      basis[1][looppath] = s;
+      basis[2][looppath] = s * s;
+      basis[3][looppath] = a;
+      basis[4][looppath] = s * a;
+    }
+    return basis;
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+
+/**
+ * Tests {@link MonteCarloPathBuffer}, {@link MonteCarloPathBufferHeap} and {@link MonteCarloPathBufferOffHeap}.
+ * 
+ * @author Marc Henrard
+ */
+public class MonteCarloPathBufferTest {
+
+  private static final int NB_PERIODS = 5;
+  private static final int NB_PATHS = 7;
+
+  @Test
+  public void heap() {
+    MonteCarloPathBufferHeap buffer = MonteCarloPathBufferHeap.of(NB_PERIODS, NB_PATHS);
+    fill_get(buffer);
+    assertThat(buffer.getValuesUnsafe()[2][3]).isEqualTo(value(2, 3));
+  }
+
+  @Test
+  public void off_heap() {
+    fill_get(MonteCarloPathBufferOffHeap.of(NB_PERIODS, NB_PATHS));
+  }
+
+  @Test
+  public void values() {
+    List<MulticurveEquivalentValues> values = new ArrayList<>();
+    for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+      double[] rates = new double[NB_PERIODS];
+      for (int loopperiod = 0; loopperiod < NB_PERIODS; loopperiod++) {
+        rates[loopperiod] = value(loopperiod, looppath);
+      }
+      values.add(MulticurveEquivalentValues.builder().onRates(DoubleArray.ofUnsafe(rates)).build());
+    }
+    MonteCarloPathBuffer buffer = MonteCarloPathBuffer.ofValues(values);
+    assertThat(buffer.getPeriodsCount()).isEqualTo(NB_PERIODS);
+    assertThat(buffer.getPathsCount()).isEqualTo(NB_PATHS);
+    for (int loopperiod = 0; loopperiod < NB_PERIODS; loopperiod++) {
+      for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+        assertThat(buffer.get(loopperiod, looppath)).isEqualTo(value(loopperiod, looppath));
+      }
+    }
+    assertThat(buffer.toValues()).isEqualTo(values);
+  }
+
+  private static void fill_get(MonteCarloPathBuffer buffer) {
+    assertThat(buffer.getPeriodsCount()).isEqualTo(NB_PERIODS);
+    assertThat(buffer.getPathsCount()).isEqualTo(NB_PATHS);
+    for (int loopperiod = 0; loopperiod < NB_PERIODS - 1; loopperiod++) {
+      for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+        buffer.set(loopperiod, looppath, value(loopperiod, looppath));
+      }
+    }
+    double[] lastPeriod = new double[NB_PATHS];
+    for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+      lastPeriod[looppath] = value(NB_PERIODS - 1, looppath);
+    }
+    buffer.setPeriod(NB_PERIODS - 1, lastPeriod);
+    double[] period = new double[NB_PATHS];
+    for (int loopperiod = 0; loopperiod < NB_PERIODS; loopperiod++) {
+      buffer.getPeriod(loopperiod, period);
+      for (int looppath = 0; looppath < NB_PATHS; looppath++) {
+        assertThat(buffer.get(loopperiod, looppath)).isEqualTo(value(loopperiod, looppath));
+        assertThat(period[looppath]).isEqualTo(value(loopperiod, looppath));
+      }
+    }
+  }
+
+  private static double value(int period, int path) {
+    return 0.01 * period + 0.0001 * path;
+  }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+/**
+ * Tests {@link MonteCarloRandomStreams}.
+ * 
+ * @author Marc Henrard
+ */
+public class MonteCarloRandomStreamsTest {
+
+  private static final long SEED = 20151120L;
+  private static final MonteCarloRandomStreams STREAMS = MonteCarloRandomStreams.of(SEED);
+  private static final int NB_NUMBERS = 100;
+
+  @Test
+  public void seed() {
+    assertThat(STREAMS.getSeed()).isEqualTo(SEED);
+    assertThat(STREAMS.isAntithetic()).isFalse();
+  }
+
+  /* The same block always produces the same numbers. */
+  @Test
+  public void same_block() {
+    RandomNumberGenerator generator1 = STREAMS.blockGenerator(3);
+    RandomNumberGenerator generator2 = MonteCarloRandomStreams.of(SEED).blockGenerator(3);
+    assertThat(generator1.getVector(NB_NUMBERS)).containsExactly(generator2.getVector(NB_NUMBERS));
+  }
+
+  /* Different blocks and different seeds produce different numbers. */
+  @Test
+  public void different_blocks() {
+    assertThat(STREAMS.blockSeed(0)).isNotEqualTo(STREAMS.blockSeed(1));
+    assertThat(STREAMS.blockSeed(0)).isNotEqualTo(MonteCarloRandomStreams.of(SEED + 1).blockSeed(0));
+    double[] numbers0 = STREAMS.blockGenerator(0).getVector(NB_NUMBERS);
+    double[] numbers1 = STREAMS.blockGenerator(1).getVector(NB_NUMBERS);
+    assertThat(numbers0).isNotEqualTo(numbers1);
+  }
+
+  /* Antithetic streams: the first half of the numbers are the ones of the standard streams. */
+  @Test
+  public void antithetic() {
+    MonteCarloRandomStreams streamsAnti = MonteCarloRandomStreams.ofAntithetic(SEED);
+    assertThat(streamsAnti.isAntithetic()).isTrue();
+    double[] numbers = STREAMS.blockGenerator(2).getVector(NB_NUMBERS / 2);
+    double[] numbersAnti = streamsAnti.blockGenerator(2).getVector(NB_NUMBERS);
+    for (int i = 0; i < NB_NUMBERS / 2; i++) {
+      assertThat(numbersAnti[i]).isEqualTo(numbers[i]);
+      assertThat(numbersAnti[i + NB_NUMBERS / 2]).isEqualTo(-numbers[i]);
+    }
+  }
+
+}
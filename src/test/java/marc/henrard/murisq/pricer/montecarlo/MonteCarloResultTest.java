@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.within;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.IntArray;
+import com.opengamma.strata.collect.tuple.Pair;
+
+/**
+ * Tests {@link MonteCarloResult} and {@link MonteCarloResultAccumulator}.
+ * 
+ * @author Marc Henrard
+ */
+public class MonteCarloResultTest {
+
+  private static final DoubleArray BLOCK_PV = DoubleArray.of(100.0, 110.0, 90.0);
+  private static final IntArray BLOCK_COUNTS = IntArray.of(1000, 1000, 500);
+  private static final MonteCarloResult RESULT = MonteCarloResult.of(102.0, 2.0, 2500, BLOCK_PV, BLOCK_COUNTS);
+  private static final Offset<Double> TOLERANCE = within(1.0E-10);
+
+  @Test
+  public void of() {
+    assertThat(RESULT.getPresentValue()).isEqualTo(102.0);
+    assertThat(RESULT.getStandardError()).isEqualTo(2.0);
+    assertThat(RESULT.getNbPaths()).isEqualTo(2500);
+    assertThat(RESULT.getBlockPresentValues()).isEqualTo(BLOCK_PV);
+    assertThat(RESULT.getBlockPathsCounts()).isEqualTo(BLOCK_COUNTS);
+    assertThat(RESULT.getBlocksCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void validation() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> MonteCarloResult.of(102.0, 2.0, 2500, BLOCK_PV, IntArray.of(1000, 1500)));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> MonteCarloResult.of(102.0, 2.0, 2000, BLOCK_PV, BLOCK_COUNTS));
+  }
+
+  @Test
+  public void confidence_interval() {
+    Pair<Double, Double> interval = RESULT.confidenceInterval(0.95);
+    assertThat(interval.getFirst()).isEqualTo(102.0 - 1.959963984540054 * 2.0, within(1.0E-6));
+    assertThat(interval.getSecond()).isEqualTo(102.0 + 1.959963984540054 * 2.0, within(1.0E-6));
+    assertThatIllegalArgumentException().isThrownBy(() -> RESULT.confidenceInterval(1.0));
+  }
+
+  @Test
+  public void convergence_trace() {
+    DoubleArray trace = RESULT.convergenceTrace();
+    assertThat(trace.size()).isEqualTo(3);
+    assertThat(trace.get(0)).isEqualTo(100.0, TOLERANCE);
+    assertThat(trace.get(1)).isEqualTo(105.0, TOLERANCE);
+    assertThat(trace.get(2)).isEqualTo(102.0, TOLERANCE);
+  }
+
+  /* Accumulator: mean from the path values and standard error from the block estimates. */
+  @Test
+  public void accumulator() {
+    double numeraire = 0.8;
+    double[] block1 = {1.0, 2.0, 3.0};
+    double[] block2 = {4.0, 5.0};
+    MonteCarloResultAccumulator accumulator = new MonteCarloResultAccumulator();
+    assertThat(accumulator.standardError(numeraire)).isEqualTo(Double.POSITIVE_INFINITY);
+    accumulator.addBlock(block1);
+    // one block: path sample variance 1.0
+    assertThat(accumulator.standardError(numeraire)).isEqualTo(Math.sqrt(1.0 / 3.0) * numeraire, TOLERANCE);
+    accumulator.addBlock(block2);
+    assertThat(accumulator.getNbPaths()).isEqualTo(5);
+    assertThat(accumulator.getBlocksCount()).isEqualTo(2);
+    // block means 2.0 and 4.5, mean 3.0, weights 3/5 and 2/5
+    double varianceExpected = 2.0 / 1.0 * (0.6 * 0.6 * 1.0 * 1.0 + 0.4 * 0.4 * 1.5 * 1.5);
+    double seExpected = Math.sqrt(varianceExpected) * numeraire;
+    assertThat(accumulator.standardError(numeraire)).isEqualTo(seExpected, TOLERANCE);
+    MonteCarloResult result = accumulator.result(numeraire);
+    assertThat(result.getPresentValue()).isEqualTo(3.0 * numeraire, TOLERANCE);
+    assertThat(result.getStandardError()).isEqualTo(seExpected, TOLERANCE);
+    assertThat(result.getBlockPresentValues().get(0)).isEqualTo(2.0 * numeraire, TOLERANCE);
+    assertThat(result.getBlockPresentValues().get(1)).isEqualTo(4.5 * numeraire, TOLERANCE);
+    assertThat(result.getBlockPathsCounts()).isEqualTo(IntArray.of(3, 2));
+  }
+
+  /* Accumulator: a single path has an infinite standard error. */
+  @Test
+  public void accumulator_one_path() {
+    MonteCarloResultAccumulator accumulator = new MonteCarloResultAccumulator();
+    accumulator.addBlock(new double[] {2.0});
+    assertThat(accumulator.standardError(1.0)).isEqualTo(Double.POSITIVE_INFINITY);
+  }
+
+  /* Accumulator: equal blocks, the standard error is the one of the block means. */
+  @Test
+  public void accumulator_equal_blocks() {
+    double[][] blocks = {{1.0, 3.0}, {2.0, 6.0}, {6.0, 6.0}, {3.0, 5.0}};
+    MonteCarloResultAccumulator accumulator = new MonteCarloResultAccumulator();
+    for (double[] block : blocks) {
+      accumulator.addBlock(block);
+    }
+    // block means 2, 4, 6, 4: mean 4, sample variance 8/3
+    double seExpected = Math.sqrt(8.0 / 3.0 / 4.0);
+    assertThat(accumulator.standardError(1.0)).isEqualTo(seExpected, TOLERANCE);
+  }
+
+  /* Accumulator: antithetic-like blocks with identical means have a zero standard error, the path by path
+   * dispersion is not used. */
+  @Test
+  public void accumulator_antithetic_blocks() {
+    MonteCarloResultAccumulator accumulator = new MonteCarloResultAccumulator();
+    accumulator.addBlock(new double[] {1.0, 2.0, 5.0, 4.0});
+    accumulator.addBlock(new double[] {0.0, 3.0, 6.0, 3.0});
+    accumulator.addBlock(new double[] {2.5, 3.5, 3.5, 2.5});
+    assertThat(accumulator.standardError(0.9)).isEqualTo(0.0d, TOLERANCE);
+    assertThat(accumulator.result(0.9).getPresentValue()).isEqualTo(2.7d, TOLERANCE);
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.math.impl.random.RandomNumberGenerator;
+
+/**
+ * Tests {@link MonteCarloStoredRandomNumbers}.
+ *
+ * @author Marc Henrard
+ */
+public class MonteCarloStoredRandomNumbersTest {
+
+  private static final MonteCarloRandomStreams STREAMS = MonteCarloRandomStreams.of(20151120L);
+  private static final int NB_VECTORS = 5;
+  private static final int NB_PATHS = 2_500;
+  private static final int PATHS_BLOCK = 1_000;
+  private static final MonteCarloStoredRandomNumbers NUMBERS =
+      MonteCarloStoredRandomNumbers.of(STREAMS, NB_VECTORS, NB_PATHS, PATHS_BLOCK);
+
+  @Test
+  public void decomposition() {
+    assertThat(NUMBERS.getNbVectors()).isEqualTo(NB_VECTORS);
+    assertThat(NUMBERS.getNbBlocks()).isEqualTo(3);
+    assertThat(NUMBERS.getNbPaths()).isEqualTo(NB_PATHS);
+    assertThat(NUMBERS.getPathNumberBlock()).isEqualTo(PATHS_BLOCK);
+  }
+
+  /* The replayed numbers are the ones of the streams, including for the residual block. */
+  @Test
+  public void replay() {
+    int[] blockPaths = {PATHS_BLOCK, PATHS_BLOCK, NB_PATHS - 2 * PATHS_BLOCK};
+    for (int loopblock = 0; loopblock < blockPaths.length; loopblock++) {
+      RandomNumberGenerator expected = STREAMS.blockGenerator(loopblock);
+      RandomNumberGenerator replay1 = NUMBERS.blockGenerator(loopblock);
+      RandomNumberGenerator replay2 = NUMBERS.blockGenerator(loopblock);
+      for (int loopvector = 0; loopvector < NB_VECTORS; loopvector++) {
+        double[] vector = expected.getVector(blockPaths[loopblock]);
+        assertThat(replay1.getVector(blockPaths[loopblock])).containsExactly(vector);
+        assertThat(replay2.getVector(blockPaths[loopblock])).containsExactly(vector);
+      }
+    }
+  }
+
+  /* The memory-mapped storage replays the same numbers as the heap storage. */
+  @Test
+  public void memory_mapped() throws IOException {
+    Path file = Files.createTempFile("murisq-random", ".bin");
+    try {
+      MonteCarloStoredRandomNumbers mapped =
+          MonteCarloStoredRandomNumbers.ofMemoryMapped(STREAMS, NB_VECTORS, NB_PATHS, PATHS_BLOCK, file);
+      assertThat(Files.size(file)).isEqualTo(8L * NB_VECTORS * NB_PATHS);
+      for (int loopblock = 0; loopblock < 2; loopblock++) {
+        assertThat(mapped.blockGenerator(loopblock).getVectors(PATHS_BLOCK, NB_VECTORS))
+            .containsExactlyElementsOf(NUMBERS.blockGenerator(loopblock).getVectors(PATHS_BLOCK, NB_VECTORS));
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /* Requesting more vectors than stored or vectors of the wrong size fails. */
+  @Test
+  public void exhausted() {
+    RandomNumberGenerator replay = NUMBERS.blockGenerator(0);
+    replay.getVectors(PATHS_BLOCK, NB_VECTORS);
+    assertThatIllegalArgumentException().isThrownBy(() -> replay.getVector(PATHS_BLOCK));
+    assertThatIllegalArgumentException().isThrownBy(() -> NUMBERS.blockGenerator(1).getVector(PATHS_BLOCK - 1));
+    assertThatIllegalArgumentException().isThrownBy(() -> NUMBERS.blockGenerator(3));
+  }
+
+}
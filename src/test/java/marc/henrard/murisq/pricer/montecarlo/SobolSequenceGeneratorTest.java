@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.montecarlo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.List;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.math.impl.statistics.distribution.NormalDistribution;
+import com.opengamma.strata.math.impl.statistics.distribution.ProbabilityDistribution;
+
+/**
+ * Tests {@link SobolSequenceGenerator} and {@link SobolNormalRandomNumberGenerator}.
+ * 
+ * @author Marc Henrard
+ */
+public class SobolSequenceGeneratorTest {
+
+  private static final double HALF_BIT = 0.5d / (1L << 32);
+  private static final Offset<Double> TOLERANCE_POINT = within(1.0E-15);
+  private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+
+  /* First points of the sequence in the first 3 dimensions. */
+  @Test
+  public void first_points() {
+    SobolSequenceGenerator sobol = SobolSequenceGenerator.of(3);
+    double[][] expected = {
+        {0.5, 0.5, 0.5},
+        {0.75, 0.25, 0.25},
+        {0.25, 0.75, 0.75},
+        {0.375, 0.375, 0.625},
+        {0.875, 0.875, 0.125}};
+    for (int looppt = 0; looppt < expected.length; looppt++) {
+      double[] point = sobol.nextPoint();
+      for (int loopdim = 0; loopdim < 3; loopdim++) {
+        assertThat(point[loopdim]).isEqualTo(expected[looppt][loopdim] + HALF_BIT, TOLERANCE_POINT);
+      }
+    }
+    assertThat(sobol.getIndex()).isEqualTo(expected.length);
+  }
+
+  /* The primitive polynomials are the ones of Joe and Kuo. */
+  @Test
+  public void primitive_polynomials() {
+    List<Integer> polynomials = SobolSequenceGenerator.primitivePolynomials(20);
+    int[] degrees = {1, 2, 3, 3, 4, 4, 5, 5, 5, 5, 5, 5, 6, 6, 6, 6, 6, 6, 7, 7};
+    int[] a = {0, 1, 1, 2, 1, 4, 2, 4, 7, 11, 13, 14, 1, 13, 16, 19, 22, 25, 1, 4};
+    for (int i = 0; i < degrees.length; i++) {
+      assertThat(polynomials.get(i)).isEqualTo((1 << degrees[i]) | (a[i] << 1) | 1);
+    }
+    // Number of primitive polynomials of degree d: phi(2^d-1)/d, i.e. 36 up to degree 7 and 16 of degree 8
+    List<Integer> polynomials8 = SobolSequenceGenerator.primitivePolynomials(53);
+    assertThat(Integer.numberOfLeadingZeros(polynomials8.get(35))).isEqualTo(31 - 7);
+    assertThat(Integer.numberOfLeadingZeros(polynomials8.get(36))).isEqualTo(31 - 8);
+    assertThat(Integer.numberOfLeadingZeros(polynomials8.get(51))).isEqualTo(31 - 8);
+    assertThat(Integer.numberOfLeadingZeros(polynomials8.get(52))).isEqualTo(31 - 9);
+  }
+
+  /* Skipping points gives the same points as generating them. */
+  @Test
+  public void skip() {
+    int dimension = 50;
+    SobolSequenceGenerator sobol1 = SobolSequenceGenerator.of(dimension);
+    for (int i = 0; i < 1000; i++) {
+      sobol1.nextPoint();
+    }
+    SobolSequenceGenerator sobol2 = SobolSequenceGenerator.of(dimension);
+    sobol2.skip(1000);
+    assertThat(sobol2.nextPoint()).containsExactly(sobol1.nextPoint());
+  }
+
+  /* Low-discrepancy: the means over 2^k-1 points are exact up to the mid-point shift. */
+  @Test
+  public void uniformity() {
+    int dimension = 100;
+    int nbPoints = (1 << 12) - 1;
+    SobolSequenceGenerator sobol = SobolSequenceGenerator.of(dimension);
+    double[] sum = new double[dimension];
+    for (int looppt = 0; looppt < nbPoints; looppt++) {
+      double[] point = sobol.nextPoint();
+      for (int loopdim = 0; loopdim < dimension; loopdim++) {
+        assertThat(point[loopdim]).isStrictlyBetween(0.0, 1.0);
+        sum[loopdim] += point[loopdim];
+      }
+    }
+    for (int loopdim = 0; loopdim < dimension; loopdim++) {
+      assertThat(sum[loopdim] / nbPoints).isEqualTo(0.5 + HALF_BIT, within(1.0E-12));
+    }
+  }
+
+  /* Scrambling: different points, same uniformity. */
+  @Test
+  public void scrambled() {
+    int dimension = 10;
+    int nbPoints = (1 << 10);
+    SobolSequenceGenerator sobol = SobolSequenceGenerator.of(dimension);
+    SobolSequenceGenerator scrambled = SobolSequenceGenerator.ofScrambled(dimension, 1234L);
+    double[] sum = new double[dimension];
+    for (int looppt = 0; looppt < nbPoints - 1; looppt++) {
+      double[] point = scrambled.nextPoint();
+      assertThat(point).isNotEqualTo(sobol.nextPoint());
+      for (int loopdim = 0; loopdim < dimension; loopdim++) {
+        sum[loopdim] += point[loopdim];
+      }
+    }
+    for (int loopdim = 0; loopdim < dimension; loopdim++) {
+      assertThat(sum[loopdim] / (nbPoints - 1)).isEqualTo(0.5, within(2.0E-3));
+    }
+  }
+
+  /* Normal generator: the vectors of a block are the coordinates of the points. */
+  @Test
+  public void normal_generator() {
+    int dimension = 4;
+    int nbPaths = 16;
+    SobolNormalRandomNumberGenerator generator = SobolNormalRandomNumberGenerator.of(dimension);
+    assertThat(generator.getDimension()).isEqualTo(dimension);
+    SobolSequenceGenerator sobol = SobolSequenceGenerator.of(dimension);
+    for (int loopblock = 0; loopblock < 2; loopblock++) {
+      List<double[]> vectors = generator.getVectors(nbPaths, dimension);
+      for (int looppath = 0; looppath < nbPaths; looppath++) {
+        double[] point = sobol.nextPoint();
+        for (int loopdim = 0; loopdim < dimension; loopdim++) {
+          assertThat(vectors.get(loopdim)[looppath])
+              .isEqualTo(NORMAL.getInverseCDF(point[loopdim]));
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.ResolvedSwapTrade;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.g2pp.G2ppMonteCarloEvolution;
+import marc.henrard.murisq.model.g2pp.G2ppPiecewiseConstantDeterministicSpreadParameters;
+import marc.henrard.murisq.model.g2pp.G2ppPiecewiseConstantParameters;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloResult;
+
+/**
+ * Tests {@link G2ppSwaptionPhysicalProductMonteCarloPricer}.
+ * 
+ * @author Marc Henrard
+ */
+public class G2ppSwaptionPhysicalProductMonteCarloPricerTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  /* Swaption description */
+  private static final LocalDate EXPIRY_DATE = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofMonths(60)));
+  private static final double NOTIONAL = 1_000_000.0d;
+  private static final ResolvedSwapTrade SWAP_0 = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(EXPIRY_DATE, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA).resolve(REF_DATA);
+  private static final double PAR_RATE =
+      DiscountingSwapProductPricer.DEFAULT.parRate(SWAP_0.getProduct(), MULTICURVE_EUR);
+  private static final ResolvedSwaption SWAPTION = Swaption.builder()
+      .expiryDate(AdjustableDate.of(EXPIRY_DATE)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+      .longShort(LongShort.LONG)
+      .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+      .underlying(EUR_FIXED_1Y_EURIBOR_3M
+          .createTrade(EXPIRY_DATE, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, PAR_RATE + 0.0050, REF_DATA)
+          .getProduct())
+      .build().resolve(REF_DATA);
+
+  /* Model data */
+  private static final G2ppPiecewiseConstantParameters PARAMETERS_G2PP =
+      G2ppPiecewiseConstantParameters.builder()
+          .currency(Currency.EUR)
+          .correlation(-0.50)
+          .kappa1(0.02)
+          .kappa2(0.20)
+          .volatility1(DoubleArray.of(0.010, 0.008, 0.012))
+          .volatility2(DoubleArray.of(0.005, 0.006, 0.004))
+          .volatilityTime(DoubleArray.of(2.0, 5.0))
+          .valuationDate(VALUATION_DATE)
+          .valuationTime(VALUATION_TIME)
+          .valuationZone(VALUATION_ZONE)
+          .timeMeasure(ScaledSecondTime.DEFAULT)
+          .build();
+  private static final List<LocalDate> IBOR_DATES = new ArrayList<>();
+  static {
+    ResolvedSwapLeg leg = SWAPTION.getUnderlying().getLegs().get(1);
+    IBOR_DATES.add(leg.getPaymentPeriods().get(0).getStartDate());
+    for (int i = 0; i < leg.getPaymentPeriods().size(); i++) {
+      IBOR_DATES.add(leg.getPaymentPeriods().get(i).getPaymentDate());
+    }
+  }
+  private static final G2ppPiecewiseConstantDeterministicSpreadParameters MODEL =
+      G2ppPiecewiseConstantDeterministicSpreadParameters
+          .of(PARAMETERS_G2PP, IBOR_DATES, EUR_EONIA, EUR_EURIBOR_3M, MULTICURVE_EUR, 1.0E-4, REF_DATA);
+
+  private static final G2ppSwaptionPhysicalProductNumericalIntegration2DPricer PRICER_SWAPTION_NI =
+      G2ppSwaptionPhysicalProductNumericalIntegration2DPricer.DEFAULT;
+
+  /* Initial values are the discount factors on the model dates and the numeraire is the last discount factor. */
+  @Test
+  public void initial_values() {
+    G2ppSwaptionPhysicalProductMonteCarloPricer pricer = pricer(1000, 1000);
+    MulticurveEquivalent mce = pricer.multicurveEquivalent(SWAPTION);
+    MulticurveEquivalentValues initialValues = pricer.initialValues(mce, MULTICURVE_EUR);
+    assertThat(initialValues.getOnRates().size()).isEqualTo(IBOR_DATES.size());
+    for (int i = 0; i < IBOR_DATES.size(); i++) {
+      assertThat(initialValues.getOnRates().get(i))
+          .isEqualTo(MULTICURVE_EUR.discountFactor(Currency.EUR, IBOR_DATES.get(i)), within(1.0E-6));
+    }
+    assertThat(pricer.numeraireInitialValue(MULTICURVE_EUR))
+        .isEqualTo(MULTICURVE_EUR.discountFactor(Currency.EUR, IBOR_DATES.get(IBOR_DATES.size() - 1)), within(1.0E-6));
+    assertThat(pricer.getNbFactors()).isEqualTo(2);
+    assertThat(pricer.randomDimension(SWAPTION)).isEqualTo(2);
+  }
+
+  /* Present value v the numerical integration, within a few standard errors. */
+  @Test
+  public void present_value_integration() {
+    G2ppSwaptionPhysicalProductMonteCarloPricer pricer = pricer(50_000, 10_000);
+    MonteCarloResult result = pricer.presentValueResult(SWAPTION, MULTICURVE_EUR);
+    double pvIntegration = PRICER_SWAPTION_NI.presentValue(SWAPTION, MULTICURVE_EUR, PARAMETERS_G2PP).getAmount();
+    assertThat(result.getPresentValue()).isEqualTo(pvIntegration, within(4.0d * result.getStandardError()));
+    double pvDouble = pricer(50_000, 10_000).presentValueDouble(SWAPTION, MULTICURVE_EUR);
+    assertThat(pvDouble).isEqualTo(result.getPresentValue(), within(1.0E-6));
+  }
+
+  /* Parallel blocks: the result does not depend on the number of threads and is close to the reference. */
+  @Test
+  public void present_value_parallel() {
+    double pvIntegration = PRICER_SWAPTION_NI.presentValue(SWAPTION, MULTICURVE_EUR, PARAMETERS_G2PP).getAmount();
+    SwaptionPhysicalMonteCarloTestUtils.assertParallel(pricer(2_500, 250), SWAPTION, MULTICURVE_EUR, pvIntegration);
+  }
+
+  private static G2ppSwaptionPhysicalProductMonteCarloPricer pricer(int nbPaths, int pathsPerBlock) {
+    return G2ppSwaptionPhysicalProductMonteCarloPricer.builder()
+        .evolution(G2ppMonteCarloEvolution.DEFAULT)
+        .model(MODEL)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .nbPaths(nbPaths)
+        .pathNumberBlock(pathsPerBlock)
+        .build();
+  }
+
+}
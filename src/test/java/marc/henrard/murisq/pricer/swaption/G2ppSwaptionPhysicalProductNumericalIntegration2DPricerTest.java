@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.currency.CurrencyAmount;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwapTrade;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.g2pp.G2ppPiecewiseConstantParameters;
+import marc.henrard.murisq.pricer.generic.CorrelatedGaussHermiteIntegrator2D;
+
+/**
+ * Tests {@link G2ppSwaptionPhysicalProductNumericalIntegration2DPricer}.
+ * 
+ * @author Marc Henrard
+ */
+public class G2ppSwaptionPhysicalProductNumericalIntegration2DPricerTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  /* Swaption description */
+  private static final LocalDate EXPIRY_DATE = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofMonths(60)));
+  private static final double NOTIONAL = 1_000_000.0d;
+  private static final ResolvedSwapTrade SWAP_0 = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(EXPIRY_DATE, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA).resolve(REF_DATA);
+  private static final double PAR_RATE =
+      DiscountingSwapProductPricer.DEFAULT.parRate(SWAP_0.getProduct(), MULTICURVE_EUR);
+  private static final double[] MONEYNESS = {-0.0100, 0.0, 0.0050, 0.0200};
+
+  /* Model data */
+  private static final G2ppPiecewiseConstantParameters PARAMETERS_G2PP =
+      G2ppPiecewiseConstantParameters.builder()
+          .currency(Currency.EUR)
+          .correlation(-0.50)
+          .kappa1(0.02)
+          .kappa2(0.20)
+          .volatility1(DoubleArray.of(0.010, 0.008, 0.012))
+          .volatility2(DoubleArray.of(0.005, 0.006, 0.004))
+          .volatilityTime(DoubleArray.of(2.0, 5.0))
+          .valuationDate(VALUATION_DATE)
+          .valuationTime(VALUATION_TIME)
+          .valuationZone(VALUATION_ZONE)
+          .timeMeasure(ScaledSecondTime.DEFAULT)
+          .build();
+
+  private static final G2ppSwaptionPhysicalProductNumericalIntegration2DPricer PRICER_GH =
+      G2ppSwaptionPhysicalProductNumericalIntegration2DPricer
+          .ofGaussHermite(CorrelatedGaussHermiteIntegrator2D.DEFAULT_ORDER);
+  private static final G2ppSwaptionPhysicalProductNumericalIntegration2DPricer PRICER_RK =
+      new G2ppSwaptionPhysicalProductNumericalIntegration2DPricer(50);
+
+  /* Gauss-Hermite quadrature v adaptive Runge-Kutta integration, payer and receiver, long and short. */
+  @Test
+  public void gauss_hermite_runge_kutta() {
+    for (double moneyness : MONEYNESS) {
+      for (BuySell buySell : BuySell.values()) {
+        for (LongShort longShort : LongShort.values()) {
+          ResolvedSwaption swaption = swaption(moneyness, buySell, longShort);
+          CurrencyAmount pvGh = PRICER_GH.presentValue(swaption, MULTICURVE_EUR, PARAMETERS_G2PP);
+          CurrencyAmount pvRk = PRICER_RK.presentValue(swaption, MULTICURVE_EUR, PARAMETERS_G2PP);
+          assertThat(pvGh.getCurrency()).isEqualTo(Currency.EUR);
+          assertThat(pvGh.getAmount()).isEqualTo(pvRk.getAmount(), within(1.0E-6 * NOTIONAL));
+        }
+      }
+    }
+  }
+
+  /* The quadrature converges quickly with the order. */
+  @Test
+  public void gauss_hermite_order() {
+    G2ppSwaptionPhysicalProductNumericalIntegration2DPricer pricerHigh =
+        G2ppSwaptionPhysicalProductNumericalIntegration2DPricer.ofGaussHermite(64);
+    for (double moneyness : MONEYNESS) {
+      ResolvedSwaption swaption = swaption(moneyness, BuySell.BUY, LongShort.LONG);
+      double pv = PRICER_GH.presentValue(swaption, MULTICURVE_EUR, PARAMETERS_G2PP).getAmount();
+      double pvHigh = pricerHigh.presentValue(swaption, MULTICURVE_EUR, PARAMETERS_G2PP).getAmount();
+      assertThat(pv).isEqualTo(pvHigh, within(1.0E-6));
+    }
+  }
+
+  private static ResolvedSwaption swaption(double moneyness, BuySell buySell, LongShort longShort) {
+    return Swaption.builder()
+        .expiryDate(AdjustableDate.of(EXPIRY_DATE)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+        .longShort(longShort)
+        .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+        .underlying(EUR_FIXED_1Y_EURIBOR_3M
+            .createTrade(EXPIRY_DATE, Tenor.TENOR_10Y, buySell, NOTIONAL, PAR_RATE + moneyness, REF_DATA)
+            .getProduct())
+        .build().resolve(REF_DATA);
+  }
+
+}
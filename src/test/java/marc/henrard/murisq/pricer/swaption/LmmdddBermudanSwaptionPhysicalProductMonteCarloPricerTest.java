@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwap;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.SwapLegType;
+import com.opengamma.strata.product.swap.SwapPaymentPeriod;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.model.lmm.LmmdddExamplesUtils;
+import marc.henrard.murisq.pricer.decomposition.MulticurveDecisionScheduleCalculator;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentSchedule;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloResult;
+import marc.henrard.murisq.product.swaption.BermudanSwaptionResolved;
+
+/**
+ * Tests {@link LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer}.
+ *
+ * @author Marc Henrard
+ */
+public class LmmdddBermudanSwaptionPhysicalProductMonteCarloPricerTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+  private static final DiscountingSwapProductPricer PRICER_SWAP = DiscountingSwapProductPricer.DEFAULT;
+
+  /* Bermudan swaption 1Y x 10Y, exercise yearly up to 5Y */
+  private static final LocalDate START_DATE = EUTA_IMPL.nextOrSame(VALUATION_DATE.plusYears(1));
+  private static final double NOTIONAL = 1_000_000.0d;
+  private static final ResolvedSwap SWAP_0 = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(START_DATE, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA).getProduct().resolve(REF_DATA);
+  private static final double PAR_RATE = PRICER_SWAP.parRate(SWAP_0, MULTICURVE_EUR);
+  private static final ResolvedSwap SWAP = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(START_DATE, Tenor.TENOR_10Y, BuySell.BUY, NOTIONAL, PAR_RATE, REF_DATA).getProduct()
+      .resolve(REF_DATA);
+  private static final int NB_EXPIRIES = 5;
+  private static final List<ZonedDateTime> EXPIRIES = new ArrayList<>();
+  static {
+    ResolvedSwapLeg fixedLeg = SWAP.getLegs(SwapLegType.FIXED).get(0);
+    for (int i = 0; i < NB_EXPIRIES; i++) {
+      EXPIRIES.add(fixedLeg.getPaymentPeriods().get(i).getStartDate().atTime(VALUATION_TIME).atZone(VALUATION_ZONE));
+    }
+  }
+  private static final BermudanSwaptionResolved BERMUDAN_LONG =
+      BermudanSwaptionResolved.of(LongShort.LONG, EXPIRIES, SWAP);
+  private static final BermudanSwaptionResolved BERMUDAN_SHORT =
+      BermudanSwaptionResolved.of(LongShort.SHORT, EXPIRIES, SWAP);
+
+  /* Model */
+  private static final List<LocalDate> IBOR_DATES = new ArrayList<>();
+  static {
+    ResolvedSwapLeg leg = SWAP.getLegs(SwapLegType.IBOR).get(0);
+    IBOR_DATES.add(leg.getPaymentPeriods().get(0).getStartDate());
+    for (SwapPaymentPeriod period : leg.getPaymentPeriods()) {
+      IBOR_DATES.add(period.getPaymentDate());
+    }
+  }
+  private static final LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters LMM =
+      LmmdddExamplesUtils.lmm2Angle(0.02, 0.09, Math.PI * 0.5, 0.06, 0.05, IBOR_DATES, EUR_EONIA, EUR_EURIBOR_3M,
+          ScaledSecondTime.DEFAULT, MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+  private static final LiborMarketModelMonteCarloEvolution EVOLUTION = LiborMarketModelMonteCarloEvolution.DEFAULT;
+  private static final int NB_PATHS = 10_000;
+  private static final int PATHS_PER_BLOCK = 1_000;
+
+  private static final LmmdddSwaptionPhysicalProductExplicitApproxPricer PRICER_SWAPTION_LMM_APPROX =
+      LmmdddSwaptionPhysicalProductExplicitApproxPricer.DEFAULT;
+  private static final Offset<Double> TOLERANCE_PV_EXACT = within(1.0E-6);
+
+  /* The decision schedule is the one of the calculator, with one equivalent for each expiry. */
+  @Test
+  public void multicurve_equivalent() {
+    MulticurveEquivalentSchedule computed = pricer(0).multicurveEquivalent(BERMUDAN_LONG);
+    assertThat(computed).isEqualTo(MulticurveDecisionScheduleCalculator.decisionSchedule(BERMUDAN_LONG));
+    assertThat(computed.getExpiriesCount()).isEqualTo(NB_EXPIRIES);
+    assertThat(computed.getDecisionTimes()).isEqualTo(EXPIRIES);
+  }
+
+  /* With one expiry, the Bermudan is a European swaption: same value as the European Monte Carlo pricer. */
+  @Test
+  public void one_expiry_european() {
+    BermudanSwaptionResolved bermudan1 = BermudanSwaptionResolved.of(LongShort.LONG,
+        ImmutableList.of(EXPIRIES.get(0)), SWAP);
+    double pvBermudan = pricer(0).presentValueDouble(bermudan1, MULTICURVE_EUR);
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerEuropean =
+        LmmdddSwaptionPhysicalProductMonteCarloPricer.builder()
+            .evolution(EVOLUTION)
+            .model(LMM)
+            .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+            .nbPaths(NB_PATHS)
+            .pathNumberBlock(PATHS_PER_BLOCK)
+            .build();
+    double pvEuropean = pricerEuropean.presentValueDouble(european(0), MULTICURVE_EUR);
+    assertThat(pvBermudan).isEqualTo(pvEuropean, TOLERANCE_PV_EXACT);
+  }
+
+  /* The Bermudan is worth more than each European and less than their sum. */
+  @Test
+  public void bounds_european() {
+    double pvBermudan = pricer(0).presentValueDouble(BERMUDAN_LONG, MULTICURVE_EUR);
+    double pvEuropeanMax = 0.0d;
+    double pvEuropeanSum = 0.0d;
+    for (int loopexp = 0; loopexp < NB_EXPIRIES; loopexp++) {
+      double pvEuropean = PRICER_SWAPTION_LMM_APPROX.presentValue(european(loopexp), MULTICURVE_EUR, LMM).getAmount();
+      pvEuropeanMax = Math.max(pvEuropeanMax, pvEuropean);
+      pvEuropeanSum += pvEuropean;
+    }
+    assertThat(pvBermudan).isGreaterThan(pvEuropeanMax * 0.98); // Monte Carlo error
+    assertThat(pvBermudan).isLessThan(pvEuropeanSum);
+  }
+
+  /* The two-pass estimate is close to the one-pass estimate. */
+  @Test
+  public void two_pass() {
+    double pvOnePass = pricer(0).presentValueDouble(BERMUDAN_LONG, MULTICURVE_EUR);
+    double pvTwoPass = pricer(NB_PATHS).presentValueDouble(BERMUDAN_LONG, MULTICURVE_EUR);
+    assertThat(pvTwoPass).isEqualTo(pvOnePass, within(0.03 * pvOnePass));
+  }
+
+  /* Short is the opposite of long. */
+  @Test
+  public void long_short() {
+    double pvLong = pricer(0).presentValueDouble(BERMUDAN_LONG, MULTICURVE_EUR);
+    double pvShort = pricer(0).presentValueDouble(BERMUDAN_SHORT, MULTICURVE_EUR);
+    assertThat(pvShort).isEqualTo(-pvLong, TOLERANCE_PV_EXACT);
+  }
+
+  /* Coefficients for each expiry; no continuation value at the last expiry. */
+  @Test
+  public void regression_coefficients() {
+    double[][] coefficients = pricer(0).regressionCoefficients(BERMUDAN_LONG, MULTICURVE_EUR);
+    assertThat(coefficients.length).isEqualTo(NB_EXPIRIES);
+    for (int loopfn = 0; loopfn < coefficients[NB_EXPIRIES - 1].length; loopfn++) {
+      assertThat(coefficients[NB_EXPIRIES - 1][loopfn]).isEqualTo(0.0d);
+    }
+  }
+
+  /* The generic multi-dates aggregation, with regression by block, gives a close value. */
+  @Test
+  public void present_value_result() {
+    double pv = pricer(0).presentValueDouble(BERMUDAN_LONG, MULTICURVE_EUR);
+    MonteCarloResult result = pricer(0).presentValueResult(BERMUDAN_LONG, MULTICURVE_EUR);
+    assertThat(result.getNbPaths()).isEqualTo(NB_PATHS);
+    assertThat(result.getBlocksCount()).isEqualTo(NB_PATHS / PATHS_PER_BLOCK);
+    assertThat(result.getPresentValue()).isEqualTo(pv, within(3.0 * result.getStandardError()));
+  }
+
+  // Pricer with a new generator with seed 0
+  private static LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer pricer(int nbPathsRegression) {
+    return LmmdddBermudanSwaptionPhysicalProductMonteCarloPricer.builder()
+        .evolution(EVOLUTION)
+        .model(LMM)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .nbPaths(NB_PATHS)
+        .pathNumberBlock(PATHS_PER_BLOCK)
+        .nbPathsRegression(nbPathsRegression)
+        .build();
+  }
+
+  // European swaption on the swap of a given expiry
+  private static ResolvedSwaption european(int expiryIndex) {
+    ZonedDateTime expiry = EXPIRIES.get(expiryIndex);
+    return ResolvedSwaption.builder()
+        .expiry(expiry)
+        .longShort(LongShort.LONG)
+        .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+        .underlying(BERMUDAN_LONG.underlyingExercise(expiryIndex))
+        .build();
+  }
+
+}
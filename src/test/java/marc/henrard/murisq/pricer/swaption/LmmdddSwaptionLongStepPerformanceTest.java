@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.DayCounts;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParameters;
+import com.opengamma.strata.pricer.model.HullWhiteOneFactorPiecewiseConstantParametersProvider;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
+import marc.henrard.murisq.model.lmm.LiborMarketModelMonteCarloEvolution;
+import marc.henrard.murisq.model.lmm.LmmdddExamplesUtils;
+
+/**
+ * Benchmark of the long-step scheme of {@link LiborMarketModelMonteCarloEvolution} against the intermediary 
+ * jumps scheme, for long expiry swaptions in a LMM replicating a Hull-White model.
+ * <p>
+ * The computation times and the implied volatilities of the two schemes are compared with the explicit Hull-White
+ * implied volatilities.
+ * 
+ * @author Marc Henrard
+ */
+public class LmmdddSwaptionLongStepPerformanceTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  private static final int[] EXPIRIES_YEARS = {5, 10, 20};
+  private static final Tenor TENOR = Tenor.TENOR_10Y;
+  private static final double NOTIONAL = 1_000_000.0d;
+
+  private static final double MEAN_REVERSION = 0.02;
+  private static final double HW_SIGMA = 0.01;
+  private static final HullWhiteOneFactorPiecewiseConstantParametersProvider PROVIDER_HW =
+      HullWhiteOneFactorPiecewiseConstantParametersProvider.of(
+          HullWhiteOneFactorPiecewiseConstantParameters.of(MEAN_REVERSION, DoubleArray.of(HW_SIGMA), DoubleArray.of()),
+          DayCounts.ACT_365F, VALUATION_DATE, VALUATION_TIME, VALUATION_ZONE);
+
+  private static final int NB_PATHS = 20_000;
+  private static final int NB_REP = 3;
+
+  private static final DiscountingSwapProductPricer PRICER_SWAP = DiscountingSwapProductPricer.DEFAULT;
+  private static final HullWhiteSwaptionPhysicalProductPricer PRICER_SWAPTION_HW =
+      HullWhiteSwaptionPhysicalProductPricer.DEFAULT;
+  private static final NormalSwaptionPhysicalProductPricer2 PRICER_SWAPTION_BACHELIER =
+      NormalSwaptionPhysicalProductPricer2.DEFAULT;
+
+  @Disabled
+  @Test
+  public void long_step_performance() {
+    LiborMarketModelMonteCarloEvolution[] evolutions = {
+        LiborMarketModelMonteCarloEvolution.DEFAULT, LiborMarketModelMonteCarloEvolution.ofLongStep()};
+    String[] names = {"Intermediary jumps", "Long step"};
+    for (int loopexp = 0; loopexp < EXPIRIES_YEARS.length; loopexp++) {
+      ResolvedSwaption swaption = swaptionAtm(EXPIRIES_YEARS[loopexp]);
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm = lmmHw(swaption);
+      double pvHw = PRICER_SWAPTION_HW.presentValue(swaption, MULTICURVE_EUR, PROVIDER_HW).getAmount();
+      double ivHw = PRICER_SWAPTION_BACHELIER
+          .impliedVolatilityFromPresentValue(swaption, MULTICURVE_EUR, DayCounts.ACT_365F, pvHw);
+      for (int loopevol = 0; loopevol < evolutions.length; loopevol++) {
+        for (int looprep = 0; looprep < NB_REP; looprep++) {
+          LmmdddSwaptionPhysicalProductMonteCarloPricer pricer = LmmdddSwaptionPhysicalProductMonteCarloPricer
+              .builder()
+              .evolution(evolutions[loopevol])
+              .model(lmm)
+              .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+              .nbPaths(NB_PATHS)
+              .pathNumberBlock(1_000)
+              .build();
+          long start = System.currentTimeMillis();
+          double pvLmm = pricer.presentValueDouble(swaption, MULTICURVE_EUR);
+          long end = System.currentTimeMillis();
+          double ivLmm = PRICER_SWAPTION_BACHELIER
+              .impliedVolatilityFromPresentValue(swaption, MULTICURVE_EUR, DayCounts.ACT_365F, pvLmm);
+          System.out.println(EXPIRIES_YEARS[loopexp] + "Y x " + TENOR + " - " + names[loopevol] + ": " 
+              + (end - start) + " ms (" + NB_PATHS + " paths), iv LMM: " + ivLmm + ", iv HW: " + ivHw 
+              + ", difference: " + (ivLmm - ivHw));
+        }
+      }
+    }
+  }
+
+  // At-the-money payer swaption with the given expiry in years
+  private static ResolvedSwaption swaptionAtm(int expiryYears) {
+    LocalDate expiryDate = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofYears(expiryYears)));
+    double parRate = PRICER_SWAP.parRate(EUR_FIXED_1Y_EURIBOR_3M
+        .createTrade(expiryDate, TENOR, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA).resolve(REF_DATA).getProduct(),
+        MULTICURVE_EUR);
+    return Swaption.builder()
+        .expiryDate(AdjustableDate.of(expiryDate)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+        .longShort(LongShort.LONG)
+        .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+        .underlying(EUR_FIXED_1Y_EURIBOR_3M
+            .createTrade(expiryDate, TENOR, BuySell.BUY, NOTIONAL, parRate, REF_DATA).getProduct())
+        .build().resolve(REF_DATA);
+  }
+
+  // LMM replicating the Hull-White model on the dates of the swaption underlying
+  private static LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmHw(ResolvedSwaption swaption) {
+    List<LocalDate> iborDates = new ArrayList<>();
+    ResolvedSwapLeg leg = swaption.getUnderlying().getLegs().get(1);
+    iborDates.add(leg.getPaymentPeriods().get(0).getStartDate());
+    for (int i = 0; i < leg.getPaymentPeriods().size(); i++) {
+      iborDates.add(leg.getPaymentPeriods().get(i).getPaymentDate());
+    }
+    return LmmdddExamplesUtils.lmmHw(MEAN_REVERSION, HW_SIGMA, iborDates, EUR_EONIA, EUR_EURIBOR_3M,
+        ScaledSecondTime.DEFAULT, MULTICURVE_EUR, VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+  }
+
+}
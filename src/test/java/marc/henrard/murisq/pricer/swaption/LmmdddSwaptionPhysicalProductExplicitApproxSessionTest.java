@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_3M;
+import static com.opengamma.strata.basics.index.OvernightIndices.EUR_EONIA;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwapTrade;
+import com.opengamma.strata.product.swap.SwapPaymentPeriod;
+import com.opengamma.strata.product.swap.SwapTrade;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
+
+import marc.henrard.murisq.basics.time.ScaledSecondTime;
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.model.lmm.LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters;
+import marc.henrard.murisq.model.lmm.LmmdddExamplesUtils;
+
+/**
+ * Tests {@link LmmdddSwaptionPhysicalProductExplicitApproxSession}.
+ *
+ * @author Marc Henrard
+ */
+public class LmmdddSwaptionPhysicalProductExplicitApproxSessionTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_3M.getFixingCalendar());
+
+  private static final LocalDate VALUATION_DATE = LocalDate.of(2015, 11, 20);
+  private static final ZoneId VALUATION_ZONE = ZoneId.of("Europe/London");
+  private static final LocalTime VALUATION_TIME = LocalTime.of(10, 29);
+
+  /* Multi-curve */
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  /* LMM parameters (HW-like) */
+  private static final double MEAN_REVERTION = 0.02;
+  private static final double HW_SIGMA = 0.01;
+  private static final double[] VOLATILITY_FACTORS = {0.80, 1.00, 1.25};
+  private static final double[] DISPLACEMENT_FACTORS = {0.50, 1.00, 2.00};
+
+  /* Swaption description */
+  private static final double NOTIONAL = 1_000_000.0d;
+  private static final Period[] EXPIRIES = new Period[] {Period.ofMonths(6), Period.ofMonths(60)};
+  private static final Tenor[] TENORS = new Tenor[] {Tenor.TENOR_2Y, Tenor.TENOR_10Y};
+  private static final double[] MONEYNESS = new double[] {-0.0050, 0, 0.0100};
+
+  /* Pricer */
+  private static final DiscountingSwapProductPricer PRICER_SWAP = DiscountingSwapProductPricer.DEFAULT;
+  private static final LmmdddSwaptionPhysicalProductExplicitApproxPricer PRICER_SWAPTION_LMM_APPROX =
+      LmmdddSwaptionPhysicalProductExplicitApproxPricer.DEFAULT;
+
+  /* Tests */
+  private static final Offset<Double> TOLERANCE_PV = within(1.0E-8);
+  private static final Offset<Double> TOLERANCE_IV = within(1.0E-12);
+
+  /* The session present value and implied volatility are the same as the ones of the pricer, for models with
+   * different volatilities and displacements. */
+  @Test
+  public void present_value_implied_volatility_v_pricer() {
+    for (int loopexp = 0; loopexp < EXPIRIES.length; loopexp++) {
+      LocalDate expiryDate = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(EXPIRIES[loopexp]));
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmHw =
+          lmmHw(expiryDate, TENORS[TENORS.length - 1]);
+      for (int looptenor = 0; looptenor < TENORS.length; looptenor++) {
+        for (int loopmoney = 0; loopmoney < MONEYNESS.length; loopmoney++) {
+          ResolvedSwaption swaption = swaption(expiryDate, TENORS[looptenor], MONEYNESS[loopmoney],
+              (loopmoney == 0) ? BuySell.BUY : BuySell.SELL,
+              (looptenor == 0) ? LongShort.LONG : LongShort.SHORT);
+          LmmdddSwaptionPhysicalProductExplicitApproxSession session =
+              LmmdddSwaptionPhysicalProductExplicitApproxSession.of(swaption, MULTICURVE_EUR, lmmHw);
+          for (int loopvol = 0; loopvol < VOLATILITY_FACTORS.length; loopvol++) {
+            for (int loopdis = 0; loopdis < DISPLACEMENT_FACTORS.length; loopdis++) {
+              LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm = lmmHw.toBuilder()
+                  .volatilities(lmmHw.getVolatilities().multipliedBy(VOLATILITY_FACTORS[loopvol]))
+                  .displacements(lmmHw.getDisplacements().multipliedBy(DISPLACEMENT_FACTORS[loopdis])).build();
+              double pvSession = session.presentValue(lmm).getAmount();
+              double pvPricer = PRICER_SWAPTION_LMM_APPROX.presentValue(swaption, MULTICURVE_EUR, lmm).getAmount();
+              assertThat(session.presentValue(lmm).getCurrency()).isEqualTo(swaption.getCurrency());
+              assertThat(pvSession).isEqualTo(pvPricer, TOLERANCE_PV);
+              double ivSession = session.impliedVolatilityBachelier(lmm);
+              double ivPricer = PRICER_SWAPTION_LMM_APPROX.impliedVolatilityBachelier(swaption, MULTICURVE_EUR, lmm);
+              assertThat(ivSession).isEqualTo(ivPricer, TOLERANCE_IV);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /* The model used must have the Ibor times of the session. */
+  @Test
+  public void different_ibor_times() {
+    LocalDate expiryDate = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(EXPIRIES[0]));
+    ResolvedSwaption swaption = swaption(expiryDate, TENORS[0], 0.0d, BuySell.BUY, LongShort.LONG);
+    LmmdddSwaptionPhysicalProductExplicitApproxSession session = LmmdddSwaptionPhysicalProductExplicitApproxSession
+        .of(swaption, MULTICURVE_EUR, lmmHw(expiryDate, TENORS[1]));
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmOther = lmmHw(expiryDate, TENORS[0]);
+    assertThatIllegalArgumentException().isThrownBy(() -> session.presentValue(lmmOther));
+  }
+
+  // HW-like LMM with Ibor dates covering the swap with the given tenor
+  private static LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmmHw(
+      LocalDate expiryDate,
+      Tenor tenorMax) {
+
+    ResolvedSwapTrade swapMax = EUR_FIXED_1Y_EURIBOR_3M
+        .createTrade(expiryDate, tenorMax, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA).resolve(REF_DATA);
+    List<LocalDate> iborDates = new ArrayList<>();
+    List<SwapPaymentPeriod> iborLeg = swapMax.getProduct().getLegs().get(1).getPaymentPeriods();
+    iborDates.add(iborLeg.get(0).getStartDate());
+    for (SwapPaymentPeriod period : iborLeg) {
+      iborDates.add(period.getEndDate());
+    }
+    return LmmdddExamplesUtils.lmmHw(MEAN_REVERTION, HW_SIGMA, iborDates,
+        EUR_EONIA, EUR_EURIBOR_3M, ScaledSecondTime.DEFAULT, MULTICURVE_EUR,
+        VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+  }
+
+  private static ResolvedSwaption swaption(
+      LocalDate expiryDate,
+      Tenor tenor,
+      double moneyness,
+      BuySell buySell,
+      LongShort longShort) {
+
+    ResolvedSwapTrade swap0 = EUR_FIXED_1Y_EURIBOR_3M
+        .createTrade(expiryDate, tenor, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA).resolve(REF_DATA);
+    double parRate = PRICER_SWAP.parRate(swap0.getProduct(), MULTICURVE_EUR);
+    SwapTrade swap = EUR_FIXED_1Y_EURIBOR_3M
+        .createTrade(expiryDate, tenor, buySell, NOTIONAL, parRate + moneyness, REF_DATA);
+    Swaption swaption = Swaption.builder()
+        .expiryDate(AdjustableDate.of(expiryDate)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+        .longShort(longShort)
+        .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+        .underlying(swap.getProduct()).build();
+    return swaption.resolve(REF_DATA);
+  }
+
+}
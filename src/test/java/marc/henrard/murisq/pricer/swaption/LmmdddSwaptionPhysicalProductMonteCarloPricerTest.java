@@ -30,6 +30,7 @@ import com.opengamma.strata.basics.date.HolidayCalendar;
 import com.opengamma.strata.basics.date.Tenor;
 import com.opengamma.strata.basics.index.OvernightIndexObservation;
 import com.opengamma.strata.collect.array.DoubleArray;
+import com.opengamma.strata.collect.array.DoubleMatrix;
 import com.opengamma.strata.math.impl.cern.MersenneTwister64;
 import com.opengamma.strata.math.impl.cern.RandomEngine;
 import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
@@ -56,6 +57,13 @@ import marc.henrard.murisq.model.lmm.LmmdddExamplesUtils;
 import marc.henrard.murisq.pricer.decomposition.MulticurveDecisionScheduleCalculator;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
 import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.AntitheticRandomNumberGenerator;
+import marc.henrard.murisq.pricer.montecarlo.LmmdddMonteCarloSensitivities;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBuffer;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBufferHeap;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloPathBufferOffHeap;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloResult;
+import marc.henrard.murisq.pricer.montecarlo.SobolNormalRandomNumberGenerator;
 
 /**
  * Tests {@link LmmdddSwaptionPhysicalProductMonteCarloPricer} and partly
@@ -314,6 +322,68 @@ public class LmmdddSwaptionPhysicalProductMonteCarloPricerTest {
     }
   }
 
+  /* Path buffer: discounting and aggregation are the same as the ones with the list of values. */
+  @Test
+  public void path_buffer() {
+    int nbPaths = 100;
+    MulticurveEquivalent me = PRICER_MC_1.multicurveEquivalent(SWAPTION_RESOLVED);
+    MulticurveEquivalentValues initialValues = PRICER_MC_1.initialValues(me, MULTICURVE_EUR);
+    List<MulticurveEquivalentValues> valuesExpiry =
+        PRICER_MC_1.evolve(initialValues, me.getDecisionTime(), nbPaths);
+    MonteCarloPathBuffer buffer = MonteCarloPathBuffer.ofValues(valuesExpiry);
+    assertThat(buffer.toValues()).isEqualTo(valuesExpiry);
+    double[][] discountingList = PRICER_MC_1.discounting(valuesExpiry);
+    double[][] discountingBuffer = PRICER_MC_1.discounting(buffer);
+    int nbFwdPeriods = LMMHW.getIborPeriodsCount();
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      for (int loopdsc = 0; loopdsc <= nbFwdPeriods; loopdsc++) {
+        assertThat(discountingBuffer[loopdsc][looppath]).isEqualTo(discountingList[looppath][loopdsc]);
+      }
+    }
+    DoubleArray aggregationList = PRICER_MC_1.aggregation(SWAPTION_RESOLVED, me, valuesExpiry);
+    DoubleArray aggregationBuffer = PRICER_MC_1.aggregation(SWAPTION_RESOLVED, me, buffer);
+    assertThat(aggregationBuffer).isEqualTo(aggregationList);
+  }
+
+  /* Path buffer stored off-heap: same evolution and same present value. */
+  @Test
+  public void path_buffer_off_heap() {
+    int nbPaths = 100;
+    LiborMarketModelMonteCarloEvolution evolutionOffHeap = EVOLUTION.toBuilder().pathBufferOffHeap(true).build();
+    MulticurveEquivalent me = PRICER_MC_1.multicurveEquivalent(SWAPTION_RESOLVED);
+    MulticurveEquivalentValues initialValues = PRICER_MC_1.initialValues(me, MULTICURVE_EUR);
+    MonteCarloPathBuffer bufferHeap = EVOLUTION.evolveOneStepPaths(me.getDecisionTime(), initialValues, LMMHW,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths);
+    MonteCarloPathBuffer bufferOffHeap = evolutionOffHeap.evolveOneStepPaths(me.getDecisionTime(), initialValues,
+        LMMHW, new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths);
+    assertThat(bufferHeap).isInstanceOf(MonteCarloPathBufferHeap.class);
+    assertThat(bufferOffHeap).isInstanceOf(MonteCarloPathBufferOffHeap.class);
+    assertThat(bufferOffHeap.toValues()).isEqualTo(bufferHeap.toValues());
+    // The rates evolved in place are the ones of the multi-step generator
+    List<List<MulticurveEquivalentValues>> multiSteps = EVOLUTION.evolveMultiSteps(
+        ImmutableList.of(me.getDecisionTime()), initialValues, LMMHW,
+        new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)), nbPaths);
+    List<MulticurveEquivalentValues> valuesHeap = bufferHeap.toValues();
+    for (int looppath = 0; looppath < nbPaths; looppath++) {
+      assertThat(valuesHeap.get(looppath)).isEqualTo(multiSteps.get(looppath).get(0));
+    }
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerHeap =
+        LmmdddSwaptionPhysicalProductMonteCarloPricer.builder()
+            .evolution(EVOLUTION)
+            .model(LMMHW)
+            .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+            .nbPaths(2 * PATHSPERBLOCK)
+            .pathNumberBlock(PATHSPERBLOCK)
+            .build();
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerOffHeap = pricerHeap.toBuilder()
+        .evolution(evolutionOffHeap)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .build();
+    double pvHeap = pricerHeap.presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR);
+    double pvOffHeap = pricerOffHeap.presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR);
+    assertThat(pvOffHeap).isEqualTo(pvHeap);
+  }
+
   /* Comparison with Hull-White implied volatilities; different maturities and expiries. 
    * Also serve as a Unit Test mechanism for LiborMarketModelMonteCarloEvolution. */
   @Test
@@ -381,6 +451,270 @@ public class LmmdddSwaptionPhysicalProductMonteCarloPricerTest {
 
   }
 
+  /* Comparison with Hull-White implied volatilities; quasi-random numbers with Brownian bridge. */
+  @Test
+  public void comparison_hw_sobol() {
+    Offset<Double> toleranceIv = within(2.0E-4);
+    int nbPaths = 8_192; // Pseudo-random error with 10,000 paths: ~5.7E-4
+    LiborMarketModelMonteCarloEvolution evolutionBridge =
+        LiborMarketModelMonteCarloEvolution.of(EVOLUTION.getMaxJump(), false, true);
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerRandom =
+        LmmdddSwaptionPhysicalProductMonteCarloPricer.builder()
+            .evolution(evolutionBridge)
+            .model(LMMHW)
+            .numberGenerator(RND)
+            .nbPaths(nbPaths)
+            .pathNumberBlock(1_024)
+            .build();
+    int dimension = pricerRandom.randomDimension(SWAPTION_RESOLVED);
+    assertThat(dimension).isEqualTo(LMMHW.getFactorCount() *
+        (int) Math.ceil(LMMHW.relativeTime(SWAPTION_RESOLVED.getExpiry()) / EVOLUTION.getMaxJump()));
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerSobol = pricerRandom.toBuilder()
+        .numberGenerator(SobolNormalRandomNumberGenerator.ofScrambled(dimension, 0L))
+        .build();
+    double pvLmm = pricerSobol.presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR);
+    CurrencyAmount pvHw = PRICER_SWAPTION_HW.presentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, PROVIDER_HW);
+    double ivLmm = PRICER_SWAPTION_BACHELIER
+        .impliedVolatilityFromPresentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, DAY_COUNT_HW, pvLmm);
+    double ivHw = PRICER_SWAPTION_BACHELIER
+        .impliedVolatilityFromPresentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, DAY_COUNT_HW, pvHw.getAmount());
+    assertThat(ivLmm).isEqualTo(ivHw, toleranceIv);
+  }
+
+  /* Comparison with Hull-White implied volatilities; long-step scheme with one jump up to the expiry. */
+  @Test
+  public void comparison_hw_long_step() {
+    Offset<Double> toleranceIv = within(5.7E-4);
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerLongStep = pricerSeed0().toBuilder()
+        .evolution(LiborMarketModelMonteCarloEvolution.ofLongStep())
+        .build();
+    assertThat(pricerLongStep.randomDimension(SWAPTION_RESOLVED)).isEqualTo(LMMHW.getFactorCount());
+    double pvLmm = pricerLongStep.presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR);
+    CurrencyAmount pvHw = PRICER_SWAPTION_HW.presentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, PROVIDER_HW);
+    double ivLmm = PRICER_SWAPTION_BACHELIER
+        .impliedVolatilityFromPresentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, DAY_COUNT_HW, pvLmm);
+    double ivHw = PRICER_SWAPTION_BACHELIER
+        .impliedVolatilityFromPresentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, DAY_COUNT_HW, pvHw.getAmount());
+    assertThat(ivLmm).isEqualTo(ivHw, toleranceIv);
+  }
+
+  /* Comparison with Hull-White implied volatilities; antithetic paths. */
+  @Test
+  public void comparison_hw_antithetic() {
+    Offset<Double> toleranceIv = within(5.7E-4);
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerAnti = PRICER_MC_1.toBuilder()
+        .numberGenerator(AntitheticRandomNumberGenerator.of(
+            new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0))))
+        .build();
+    double pvLmm = pricerAnti.presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR);
+    CurrencyAmount pvHw = PRICER_SWAPTION_HW.presentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, PROVIDER_HW);
+    double ivLmm = PRICER_SWAPTION_BACHELIER
+        .impliedVolatilityFromPresentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, DAY_COUNT_HW, pvLmm);
+    double ivHw = PRICER_SWAPTION_BACHELIER
+        .impliedVolatilityFromPresentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, DAY_COUNT_HW, pvHw.getAmount());
+    assertThat(ivLmm).isEqualTo(ivHw, toleranceIv);
+  }
+
+  /* Antithetic paths: same number of paths, the batch means standard error is reduced.
+   * In-the-money swaption, the antithetic paths remove most of the linear part of the payoff. */
+  @Test
+  public void antithetic_standard_error() {
+    int nbPaths = 10_000;
+    int pathsPerBlock = 100;
+    ResolvedSwaption swaptionItm = swaptionStrike(PAR_RATE - 0.0200);
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerPlain = PRICER_MC_1.toBuilder()
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .nbPaths(nbPaths)
+        .pathNumberBlock(pathsPerBlock)
+        .build();
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricerAnti = pricerPlain.toBuilder()
+        .numberGenerator(AntitheticRandomNumberGenerator.of(
+            new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0))))
+        .build();
+    MonteCarloResult resultPlain = pricerPlain.presentValueResult(swaptionItm, MULTICURVE_EUR);
+    MonteCarloResult resultAnti = pricerAnti.presentValueResult(swaptionItm, MULTICURVE_EUR);
+    assertThat(resultAnti.getNbPaths()).isEqualTo(resultPlain.getNbPaths());
+    assertThat(resultAnti.getStandardError()).isLessThan(0.7d * resultPlain.getStandardError());
+    assertThat(resultAnti.getPresentValue()).isEqualTo(resultPlain.getPresentValue(),
+        within(4.0d * resultPlain.getStandardError()));
+  }
+
+  /* Control variate: when the control value is its Monte Carlo value, the estimate is the Monte Carlo one. */
+  @Test
+  public void control_variate_exact() {
+    ResolvedSwaption control = coTerminalAtm();
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricer = pricerSeed0();
+    double pvMc = pricer.presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR);
+    double pvControlMc = pricerSeed0().presentValueDouble(control, MULTICURVE_EUR);
+    double pvCv = pricerSeed0().presentValueDoubleControlVariate(
+        SWAPTION_RESOLVED, MULTICURVE_EUR, pricer, control, pvControlMc);
+    assertThat(pvCv).isEqualTo(pvMc, within(1.0E-6));
+    // Control is the product itself: the estimate is the control value
+    double pvSelf = pricerSeed0().presentValueDoubleControlVariate(
+        SWAPTION_RESOLVED, MULTICURVE_EUR, pricer, SWAPTION_RESOLVED, 12345.0);
+    assertThat(pvSelf).isEqualTo(12345.0, within(1.0E-6));
+  }
+
+  /* Comparison with Hull-White implied volatilities; co-terminal swaption control variate. */
+  @Test
+  public void comparison_hw_control_variate() {
+    Offset<Double> toleranceIv = within(3.0E-4); // Without control variate: ~5.7E-4
+    double pvLmm = LmmdddSwaptionPhysicalProductMonteCarloPricer.presentValueDoubleSwaptionControlVariate(
+        pricerSeed0(), SWAPTION_RESOLVED, coTerminalAtm(), MULTICURVE_EUR);
+    CurrencyAmount pvHw = PRICER_SWAPTION_HW.presentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, PROVIDER_HW);
+    double ivLmm = PRICER_SWAPTION_BACHELIER
+        .impliedVolatilityFromPresentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, DAY_COUNT_HW, pvLmm);
+    double ivHw = PRICER_SWAPTION_BACHELIER
+        .impliedVolatilityFromPresentValue(SWAPTION_RESOLVED, MULTICURVE_EUR, DAY_COUNT_HW, pvHw.getAmount());
+    assertThat(ivLmm).isEqualTo(ivHw, toleranceIv);
+  }
+
+  /* Control variate: the dispersion of the estimates over independent seeds is reduced. */
+  @Test
+  public void control_variate_dispersion() {
+    int nbSeeds = 40;
+    int nbPaths = 500;
+    ResolvedSwaption control = coTerminalAtm();
+    double[] pvPlain = new double[nbSeeds];
+    double[] pvCv = new double[nbSeeds];
+    for (int loopseed = 0; loopseed < nbSeeds; loopseed++) {
+      LmmdddSwaptionPhysicalProductMonteCarloPricer pricerPlain = pricerSeed(loopseed, nbPaths);
+      pvPlain[loopseed] = pricerPlain.presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR);
+      pvCv[loopseed] = LmmdddSwaptionPhysicalProductMonteCarloPricer.presentValueDoubleSwaptionControlVariate(
+          pricerSeed(loopseed, nbPaths), SWAPTION_RESOLVED, control, MULTICURVE_EUR);
+    }
+    assertThat(standardDeviation(pvCv)).isLessThan(0.5d * standardDeviation(pvPlain));
+  }
+
+  // Pricer with a number of paths in one block and a new generator with a given seed
+  private static LmmdddSwaptionPhysicalProductMonteCarloPricer pricerSeed(int seed, int nbPaths) {
+    return PRICER_MC_1.toBuilder()
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(seed)))
+        .nbPaths(nbPaths)
+        .pathNumberBlock(nbPaths)
+        .build();
+  }
+
+  // Sample standard deviation
+  private static double standardDeviation(double[] values) {
+    double mean = 0.0d;
+    for (double value : values) {
+      mean += value;
+    }
+    mean /= values.length;
+    double variance = 0.0d;
+    for (double value : values) {
+      variance += (value - mean) * (value - mean);
+    }
+    return Math.sqrt(variance / (values.length - 1));
+  }
+
+  // Pricer with 10,000 paths and a new generator with seed 0
+  private static LmmdddSwaptionPhysicalProductMonteCarloPricer pricerSeed0() {
+    return PRICER_MC_1.toBuilder()
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .build();
+  }
+
+  // At-the-money swaption with the same expiry and maturity as the tested swaption
+  private static ResolvedSwaption coTerminalAtm() {
+    return swaptionStrike(PAR_RATE);
+  }
+
+  // Swaption with the same expiry and maturity as the tested swaption and a given strike
+  private static ResolvedSwaption swaptionStrike(double strike) {
+    SwapTrade swap = EUR_FIXED_1Y_EURIBOR_3M
+        .createTrade(EXPIRY_DATE, TENOR, BuySell.BUY, NOTIONAL, strike, REF_DATA);
+    return Swaption.builder()
+        .expiryDate(AdjustableDate.of(EXPIRY_DATE)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+        .longShort(LongShort.LONG)
+        .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+        .underlying(swap.getProduct()).build().resolve(REF_DATA);
+  }
+
+  /* Pathwise adjoint sensitivities compared to finite differences with the same paths. */
+  @Test
+  public void present_value_sensitivity_model() {
+    LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm = LmmdddExamplesUtils.
+        lmm2Angle(MEAN_REVERTION, VOL2_LEVEL_1, VOL2_ANGLE, VOL2_LEVEL_2, DISPLACEMENT,
+            IBOR_DATES, EUR_EONIA, EUR_EURIBOR_3M, ScaledSecondTime.DEFAULT, MULTICURVE_EUR,
+            VALUATION_ZONE, VALUATION_TIME, REF_DATA);
+    LmmdddSwaptionPhysicalProductMonteCarloPricer pricer = pricerSensitivity(lmm);
+    MulticurveEquivalent mce = pricer.multicurveEquivalent(SWAPTION_RESOLVED);
+    MulticurveEquivalentValues initialValues = pricer.initialValues(mce, MULTICURVE_EUR);
+    double numeraire = pricer.numeraireInitialValue(MULTICURVE_EUR);
+    LmmdddMonteCarloSensitivities computed = pricer.presentValueSensitivityModel(SWAPTION_RESOLVED, MULTICURVE_EUR);
+    double pvExpected = pricerSensitivity(lmm).presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR);
+    assertThat(computed.getPresentValue()).isEqualTo(pvExpected, TOLERANCE_PV_EXACT);
+    double shift = 1.0E-6;
+    double toleranceRelative = 1.0E-4;
+    int nbPeriods = lmm.getIborPeriodsCount();
+    for (int loopperiod = 0; loopperiod < nbPeriods; loopperiod += 7) {
+      double[] forwardsP = initialValues.getOnRates().toArray();
+      double[] forwardsM = initialValues.getOnRates().toArray();
+      forwardsP[loopperiod] += shift;
+      forwardsM[loopperiod] -= shift;
+      double pvP = presentValue(pricerSensitivity(lmm), mce,
+          initialValues.toBuilder().onRates(DoubleArray.ofUnsafe(forwardsP)).build(), numeraire);
+      double pvM = presentValue(pricerSensitivity(lmm), mce,
+          initialValues.toBuilder().onRates(DoubleArray.ofUnsafe(forwardsM)).build(), numeraire);
+      double fdForward = (pvP - pvM) / (2 * shift);
+      assertThat(computed.getInitialForwardsSensitivity().get(loopperiod))
+          .isEqualTo(fdForward, within(Math.max(Math.abs(fdForward), NOTIONAL) * toleranceRelative));
+      double[] displacementsP = lmm.getDisplacements().toArray();
+      double[] displacementsM = lmm.getDisplacements().toArray();
+      displacementsP[loopperiod] += shift;
+      displacementsM[loopperiod] -= shift;
+      double fdDisplacement = (pricerSensitivity(lmm.toBuilder().displacements(DoubleArray.ofUnsafe(displacementsP))
+          .build()).presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR) -
+          pricerSensitivity(lmm.toBuilder().displacements(DoubleArray.ofUnsafe(displacementsM))
+              .build()).presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR)) / (2 * shift);
+      assertThat(computed.getDisplacementsSensitivity().get(loopperiod))
+          .isEqualTo(fdDisplacement, within(Math.max(Math.abs(fdDisplacement), NOTIONAL) * toleranceRelative));
+      for (int loopfact = 0; loopfact < lmm.getFactorCount(); loopfact++) {
+        double[][] volatilitiesP = lmm.getVolatilities().toArray();
+        double[][] volatilitiesM = lmm.getVolatilities().toArray();
+        volatilitiesP[loopperiod][loopfact] += shift;
+        volatilitiesM[loopperiod][loopfact] -= shift;
+        double fdVolatility = (pricerSensitivity(lmm.toBuilder().volatilities(DoubleMatrix.ofUnsafe(volatilitiesP))
+            .build()).presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR) -
+            pricerSensitivity(lmm.toBuilder().volatilities(DoubleMatrix.ofUnsafe(volatilitiesM))
+                .build()).presentValueDouble(SWAPTION_RESOLVED, MULTICURVE_EUR)) / (2 * shift);
+        assertThat(computed.getVolatilitiesSensitivity().get(loopperiod, loopfact))
+            .isEqualTo(fdVolatility, within(Math.max(Math.abs(fdVolatility), NOTIONAL) * toleranceRelative));
+      }
+    }
+  }
+
+  // Present value from given initial values, with the same blocks as the pricer
+  private static double presentValue(
+      LmmdddSwaptionPhysicalProductMonteCarloPricer pricer,
+      MulticurveEquivalent mce,
+      MulticurveEquivalentValues initialValues,
+      double numeraire) {
+
+    double pv = 0.0;
+    for (int loopblock = 0; loopblock < pricer.getNbPaths() / pricer.getPathNumberBlock(); loopblock++) {
+      MonteCarloPathBuffer valuesExpiry =
+          pricer.evolvePaths(initialValues, mce.getDecisionTime(), pricer.getPathNumberBlock());
+      pv += pricer.aggregation(SWAPTION_RESOLVED, mce, valuesExpiry).sum();
+    }
+    return pv / pricer.getNbPaths() * numeraire;
+  }
+
+  // Pricer with 1,000 paths in blocks of 500 and a new generator with seed 0
+  private static LmmdddSwaptionPhysicalProductMonteCarloPricer pricerSensitivity(
+      LiborMarketModelDisplacedDiffusionDeterministicSpreadParameters lmm) {
+
+    return LmmdddSwaptionPhysicalProductMonteCarloPricer.builder()
+        .evolution(EVOLUTION)
+        .model(lmm)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .nbPaths(1000)
+        .pathNumberBlock(500)
+        .build();
+  }
+
   /* Comparison with a two-factor implied volatilities; different maturities and expiries. 
    * Also serve as a Unit Test mechanism for LiborMarketModelMonteCarloEvolution. */
   @Test
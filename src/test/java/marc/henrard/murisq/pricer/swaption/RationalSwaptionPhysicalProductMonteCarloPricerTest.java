@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import static com.opengamma.strata.basics.index.IborIndices.EUR_EURIBOR_6M;
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_6M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+
+import org.junit.jupiter.api.Test;
+
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.currency.Currency;
+import com.opengamma.strata.basics.date.AdjustableDate;
+import com.opengamma.strata.basics.date.HolidayCalendar;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.math.impl.cern.MersenneTwister64;
+import com.opengamma.strata.math.impl.random.NormalRandomNumberGenerator;
+import com.opengamma.strata.pricer.rate.ImmutableRatesProvider;
+import com.opengamma.strata.pricer.swap.DiscountingSwapProductPricer;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwapTrade;
+import com.opengamma.strata.product.swaption.PhysicalSwaptionSettlement;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+import com.opengamma.strata.product.swaption.Swaption;
+
+import marc.henrard.murisq.dataset.MulticurveEur20151120DataSet;
+import marc.henrard.murisq.dataset.RationalParametersDataSet;
+import marc.henrard.murisq.dataset.RationalTwoFactorParameters20151120DataSet;
+import marc.henrard.murisq.model.generic.SingleCurrencyModelParameters;
+import marc.henrard.murisq.model.rationalmulticurve.RationalMonteCarloEvolution;
+import marc.henrard.murisq.model.rationalmulticurve.RationalOneFactorSimpleHWShapeParameters;
+import marc.henrard.murisq.model.rationalmulticurve.RationalTwoFactorGenericParameters;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalent;
+import marc.henrard.murisq.pricer.decomposition.MulticurveEquivalentValues;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloResult;
+
+/**
+ * Tests {@link RationalSwaptionPhysicalProductMonteCarloPricer}.
+ *
+ * @author Marc Henrard
+ */
+public class RationalSwaptionPhysicalProductMonteCarloPricerTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+
+  private static final LocalDate VALUATION_DATE = RationalTwoFactorParameters20151120DataSet.VALUATION_DATE;
+  private static final ZoneId VALUATION_ZONE = RationalTwoFactorParameters20151120DataSet.ZONE_ID;
+  private static final LocalTime VALUATION_TIME = RationalTwoFactorParameters20151120DataSet.LOCAL_TIME;
+  private static final HolidayCalendar EUTA_IMPL = REF_DATA.getValue(EUR_EURIBOR_6M.getFixingCalendar());
+
+  private static final ImmutableRatesProvider MULTICURVE_EUR =
+      MulticurveEur20151120DataSet.MULTICURVE_EUR_EONIA_20151120;
+
+  /* Swaption description */
+  private static final LocalDate EXPIRY_DATE = EUTA_IMPL.nextOrSame(VALUATION_DATE.plus(Period.ofMonths(24)));
+  private static final double NOTIONAL = 1_000_000.0d;
+  private static final ResolvedSwapTrade SWAP_0 = EUR_FIXED_1Y_EURIBOR_6M
+      .createTrade(EXPIRY_DATE, Tenor.TENOR_5Y, BuySell.BUY, NOTIONAL, 0.0d, REF_DATA).resolve(REF_DATA);
+  private static final double PAR_RATE =
+      DiscountingSwapProductPricer.DEFAULT.parRate(SWAP_0.getProduct(), MULTICURVE_EUR);
+  private static final ResolvedSwaption SWAPTION = Swaption.builder()
+      .expiryDate(AdjustableDate.of(EXPIRY_DATE)).expiryTime(VALUATION_TIME).expiryZone(VALUATION_ZONE)
+      .longShort(LongShort.LONG)
+      .swaptionSettlement(PhysicalSwaptionSettlement.DEFAULT)
+      .underlying(EUR_FIXED_1Y_EURIBOR_6M
+          .createTrade(EXPIRY_DATE, Tenor.TENOR_5Y, BuySell.BUY, NOTIONAL, PAR_RATE + 0.0025, REF_DATA)
+          .getProduct())
+      .build().resolve(REF_DATA);
+
+  /* Model data */
+  private static final RationalTwoFactorGenericParameters RATIONAL_2F =
+      RationalTwoFactorParameters20151120DataSet.RATIONAL_2F;
+  private static final RationalOneFactorSimpleHWShapeParameters RATIONAL_1F =
+      RationalParametersDataSet.oneFactorHWShaped(VALUATION_TIME, VALUATION_ZONE,
+          MULTICURVE_EUR.discountFactors(Currency.EUR));
+
+  private static final RationalTwoFactorSwaptionPhysicalProductSemiExplicitPricer PRICER_SWAPTION_2F =
+      RationalTwoFactorSwaptionPhysicalProductSemiExplicitPricer.DEFAULT;
+  private static final RationalOneFactorSwaptionPhysicalProductExplicitPricer PRICER_SWAPTION_1F =
+      RationalOneFactorSwaptionPhysicalProductExplicitPricer.DEFAULT;
+
+  /* Initial values are the coefficients of the discount factors and of the Ibor rates. */
+  @Test
+  public void initial_values() {
+    RationalSwaptionPhysicalProductMonteCarloPricer pricer = pricer(RATIONAL_2F, 1000, 1000);
+    MulticurveEquivalent mce = pricer.multicurveEquivalent(SWAPTION);
+    MulticurveEquivalentValues initialValues = pricer.initialValues(mce, MULTICURVE_EUR);
+    int nbFix = mce.getDiscountFactorPayments().size();
+    int nbIbor = mce.getIborComputations().size();
+    int nbCoefficients = RationalMonteCarloEvolution.NB_COEFFICIENTS;
+    assertThat(initialValues.getOnRates().size()).isEqualTo(nbCoefficients * (nbFix + 3 * nbIbor));
+    for (int loopfix = 0; loopfix < nbFix; loopfix++) {
+      LocalDate paymentDate = mce.getDiscountFactorPayments().get(loopfix).getPaymentDate();
+      assertThat(initialValues.getOnRates().get(nbCoefficients * loopfix))
+          .isEqualTo(MULTICURVE_EUR.discountFactor(Currency.EUR, paymentDate));
+      assertThat(initialValues.getOnRates().get(nbCoefficients * loopfix + 1))
+          .isEqualTo(RATIONAL_2F.b0(paymentDate));
+    }
+    for (int loopibor = 0; loopibor < nbIbor; loopibor++) {
+      int iquantity = nbFix + 3 * loopibor;
+      assertThat(initialValues.getOnRates().get(nbCoefficients * iquantity + 1))
+          .isEqualTo(RATIONAL_2F.b1(mce.getIborComputations().get(loopibor).getObservation()));
+      assertThat(initialValues.getOnRates().get(nbCoefficients * iquantity + 2))
+          .isEqualTo(RATIONAL_2F.b2(mce.getIborComputations().get(loopibor).getObservation()));
+    }
+    assertThat(pricer.numeraireInitialValue(MULTICURVE_EUR)).isEqualTo(1.0d);
+    assertThat(pricer.getNbFactors()).isEqualTo(2);
+    assertThat(pricer.randomDimension(SWAPTION)).isEqualTo(2);
+    assertThat(pricer(RATIONAL_1F, 1000, 1000).getNbFactors()).isEqualTo(1);
+  }
+
+  /* Present value v the semi-explicit formula in the two-factor model, within a few standard errors. */
+  @Test
+  public void present_value_two_factor() {
+    RationalSwaptionPhysicalProductMonteCarloPricer pricer = pricer(RATIONAL_2F, 100_000, 10_000);
+    MonteCarloResult result = pricer.presentValueResult(SWAPTION, MULTICURVE_EUR);
+    double pvSemiExplicit = PRICER_SWAPTION_2F.presentValue(SWAPTION, MULTICURVE_EUR, RATIONAL_2F).getAmount();
+    assertThat(result.getPresentValue()).isEqualTo(pvSemiExplicit, within(4.0d * result.getStandardError()));
+    double pvDouble = pricer(RATIONAL_2F, 100_000, 10_000).presentValueDouble(SWAPTION, MULTICURVE_EUR);
+    assertThat(pvDouble).isEqualTo(result.getPresentValue(), within(1.0E-6));
+  }
+
+  /* Present value v the explicit formula in the one-factor model, within a few standard errors. */
+  @Test
+  public void present_value_one_factor() {
+    RationalSwaptionPhysicalProductMonteCarloPricer pricer = pricer(RATIONAL_1F, 100_000, 10_000);
+    MonteCarloResult result = pricer.presentValueResult(SWAPTION, MULTICURVE_EUR);
+    double pvExplicit = PRICER_SWAPTION_1F.presentValue(SWAPTION, MULTICURVE_EUR, RATIONAL_1F).getAmount();
+    assertThat(result.getPresentValue()).isEqualTo(pvExplicit, within(4.0d * result.getStandardError()));
+  }
+
+  /* Parallel blocks: the result does not depend on the number of threads and is close to the reference. */
+  @Test
+  public void present_value_parallel() {
+    double pvSemiExplicit = PRICER_SWAPTION_2F.presentValue(SWAPTION, MULTICURVE_EUR, RATIONAL_2F).getAmount();
+    SwaptionPhysicalMonteCarloTestUtils
+        .assertParallel(pricer(RATIONAL_2F, 2_500, 250), SWAPTION, MULTICURVE_EUR, pvSemiExplicit);
+  }
+
+  private static RationalSwaptionPhysicalProductMonteCarloPricer pricer(
+      SingleCurrencyModelParameters model,
+      int nbPaths,
+      int pathsPerBlock) {
+
+    return RationalSwaptionPhysicalProductMonteCarloPricer.builder()
+        .evolution(RationalMonteCarloEvolution.DEFAULT)
+        .model(model)
+        .numberGenerator(new NormalRandomNumberGenerator(0.0d, 1.0d, new MersenneTwister64(0)))
+        .nbPaths(nbPaths)
+        .pathNumberBlock(pathsPerBlock)
+        .build();
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.pricer.swaption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.opengamma.strata.pricer.rate.RatesProvider;
+import com.opengamma.strata.product.swaption.ResolvedSwaption;
+
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloRandomStreams;
+import marc.henrard.murisq.pricer.montecarlo.MonteCarloResult;
+
+/**
+ * Checks shared by the tests of the {@link SwaptionPhysicalMonteCarloEuropeanPricer} implementations.
+ *
+ * @author Marc Henrard
+ */
+final class SwaptionPhysicalMonteCarloTestUtils {
+
+  /** The number of standard errors accepted between the Monte Carlo and the reference values. */
+  private static final double NB_STANDARD_ERRORS = 4.0d;
+
+  // Utility class
+  private SwaptionPhysicalMonteCarloTestUtils() {
+  }
+
+  /**
+   * Checks that the parallel present value does not depend on the number of threads and is within a few standard
+   * errors of the reference value. The standard error is the one of the sequential pricing with the same number of
+   * paths and blocks.
+   *
+   * @param pricer  the Monte Carlo pricer
+   * @param swaption  the swaption
+   * @param multicurve  the multi-curve
+   * @param pvReference  the reference present value
+   */
+  static void assertParallel(
+      SwaptionPhysicalMonteCarloEuropeanPricer<?> pricer,
+      ResolvedSwaption swaption,
+      RatesProvider multicurve,
+      double pvReference) {
+
+    MonteCarloRandomStreams streams = MonteCarloRandomStreams.of(20151120L);
+    ForkJoinPool pool1 = new ForkJoinPool(1);
+    ForkJoinPool pool4 = new ForkJoinPool(4);
+    double pv1;
+    double pv4;
+    try {
+      pv1 = pricer.presentValueDoubleParallel(swaption, multicurve, streams, pool1);
+      pv4 = pricer.presentValueDoubleParallel(swaption, multicurve, streams, pool4);
+    } finally {
+      pool1.shutdown();
+      pool4.shutdown();
+    }
+    assertThat(pv4).isEqualTo(pv1); // exactly the same
+    MonteCarloResult result = pricer.presentValueResult(swaption, multicurve);
+    assertThat(pv1).isEqualTo(pvReference, within(NB_STANDARD_ERRORS * result.getStandardError()));
+  }
+
+}
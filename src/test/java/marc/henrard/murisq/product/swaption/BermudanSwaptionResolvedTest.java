@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2022 - present by Marc Henrard.
+ */
+package marc.henrard.murisq.product.swaption;
+
+import static com.opengamma.strata.product.swap.type.FixedIborSwapConventions.EUR_FIXED_1Y_EURIBOR_3M;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.strata.basics.ReferenceData;
+import com.opengamma.strata.basics.date.Tenor;
+import com.opengamma.strata.product.common.BuySell;
+import com.opengamma.strata.product.common.LongShort;
+import com.opengamma.strata.product.swap.ResolvedSwap;
+import com.opengamma.strata.product.swap.ResolvedSwapLeg;
+import com.opengamma.strata.product.swap.SwapLegType;
+
+/**
+ * Tests {@link BermudanSwaptionResolved}.
+ * 
+ * @author Marc Henrard
+ */
+public class BermudanSwaptionResolvedTest {
+
+  private static final ReferenceData REF_DATA = ReferenceData.standard();
+  private static final LocalDate START_DATE = LocalDate.of(2021, 11, 22);
+  private static final ZoneId ZONE = ZoneId.of("Europe/Brussels");
+  private static final LocalTime TIME = LocalTime.of(11, 0);
+  private static final ResolvedSwap SWAP = EUR_FIXED_1Y_EURIBOR_3M
+      .createTrade(START_DATE, Tenor.TENOR_5Y, BuySell.BUY, 1_000_000.0d, 0.01, REF_DATA)
+      .getProduct().resolve(REF_DATA);
+  private static final List<ZonedDateTime> EXPIRIES = new ArrayList<>();
+  static {
+    ResolvedSwapLeg fixedLeg = SWAP.getLegs(SwapLegType.FIXED).get(0);
+    for (int i = 0; i < 4; i++) {
+      EXPIRIES.add(fixedLeg.getPaymentPeriods().get(i).getStartDate().atTime(TIME).atZone(ZONE));
+    }
+  }
+  private static final BermudanSwaptionResolved SWAPTION =
+      BermudanSwaptionResolved.of(LongShort.LONG, EXPIRIES, SWAP);
+
+  @Test
+  public void of() {
+    assertThat(SWAPTION.getLongShort()).isEqualTo(LongShort.LONG);
+    assertThat(SWAPTION.getExpiries()).isEqualTo(EXPIRIES);
+    assertThat(SWAPTION.getUnderlying()).isEqualTo(SWAP);
+    assertThat(SWAPTION.getExpiriesCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void underlying_exercise() {
+    assertThat(SWAPTION.underlyingExercise(0)).isEqualTo(SWAP);
+    for (int loopexp = 0; loopexp < EXPIRIES.size(); loopexp++) {
+      ResolvedSwap swap = SWAPTION.underlyingExercise(loopexp);
+      ResolvedSwapLeg fixedLeg = swap.getLegs(SwapLegType.FIXED).get(0);
+      ResolvedSwapLeg iborLeg = swap.getLegs(SwapLegType.IBOR).get(0);
+      assertThat(fixedLeg.getPaymentPeriods()).hasSize(5 - loopexp);
+      assertThat(iborLeg.getPaymentPeriods()).hasSize(4 * (5 - loopexp));
+      assertThat(fixedLeg.getStartDate()).isEqualTo(EXPIRIES.get(loopexp).toLocalDate());
+      assertThat(swap.getEndDate()).isEqualTo(SWAP.getEndDate());
+      assertThat(fixedLeg.getPayReceive()).isEqualTo(SWAP.getLegs(SwapLegType.FIXED).get(0).getPayReceive());
+    }
+    assertThatIllegalArgumentException().isThrownBy(() -> SWAPTION.underlyingExercise(4));
+  }
+
+  @Test
+  public void expiries_order() {
+    List<ZonedDateTime> expiries = ImmutableList.of(EXPIRIES.get(1), EXPIRIES.get(0));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> BermudanSwaptionResolved.of(LongShort.LONG, expiries, SWAP));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> BermudanSwaptionResolved.of(LongShort.LONG, ImmutableList.of(), SWAP));
+  }
+
+  @Test
+  public void expiry_after_maturity() {
+    List<ZonedDateTime> expiries = ImmutableList.of(SWAP.getEndDate().plusDays(1).atTime(TIME).atZone(ZONE));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> BermudanSwaptionResolved.of(LongShort.LONG, expiries, SWAP));
+  }
+
+}